@@ -22,6 +22,7 @@ package org.sonar.ce;
 import org.sonar.ce.monitoring.CEQueueStatusImpl;
 import org.sonar.ce.monitoring.CeTasksMBeanImpl;
 import org.sonar.ce.queue.CeQueueInitializer;
+import org.sonar.ce.queue.CeTaskInputStoreProvider;
 import org.sonar.ce.queue.InternalCeQueueImpl;
 import org.sonar.core.platform.Module;
 import org.sonar.process.systeminfo.JvmPropertiesSection;
@@ -33,6 +34,7 @@ public class CeQueueModule extends Module {
   protected void configureModule() {
     add(
       // queue state
+      new CeTaskInputStoreProvider(),
       InternalCeQueueImpl.class,
 
       // queue monitoring
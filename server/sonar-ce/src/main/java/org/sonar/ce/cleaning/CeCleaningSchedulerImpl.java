@@ -61,6 +61,7 @@ public class CeCleaningSchedulerImpl implements CeCleaningScheduler {
       try {
         cancelWornOuts();
         resetTasksWithUnknownWorkerUUIDs();
+        deleteOrphanTaskInputs();
       } finally {
         ceCleaningJobLock.unlock();
       }
@@ -84,4 +85,13 @@ public class CeCleaningSchedulerImpl implements CeCleaningScheduler {
       LOG.warn("Failed to reset tasks with unknown worker UUIDs", e);
     }
   }
+
+  private void deleteOrphanTaskInputs() {
+    try {
+      LOG.debug("Deleting orphan task inputs");
+      internalCeQueue.deleteOrphanTaskInputs();
+    } catch (Exception e) {
+      LOG.warn("Failed to delete orphan task inputs", e);
+    }
+  }
 }
@@ -72,6 +72,7 @@ import org.sonar.db.DaoModule;
 import org.sonar.db.DatabaseChecker;
 import org.sonar.db.DbClient;
 import org.sonar.db.DefaultDatabase;
+import org.sonar.db.SqlStatistics;
 import org.sonar.db.purge.PurgeProfiler;
 import org.sonar.process.NetworkUtilsImpl;
 import org.sonar.process.ProcessProperties;
@@ -85,6 +86,7 @@ import org.sonar.server.debt.DebtModelPluginRepository;
 import org.sonar.server.debt.DebtRulesXMLImporter;
 import org.sonar.server.event.NewAlerts;
 import org.sonar.server.issue.IssueFieldsSetter;
+import org.sonar.server.issue.bulkchange.IssueBulkChangeTaskModule;
 import org.sonar.server.issue.index.IssueIndex;
 import org.sonar.server.issue.index.IssueIndexer;
 import org.sonar.server.issue.index.IssueIteratorFactory;
@@ -242,6 +244,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       LogbackHelper.class,
       DefaultDatabase.class,
       DatabaseChecker.class,
+      SqlStatistics.class,
       // must instantiate deprecated class in 5.2 and only this one (and not its replacement)
       // to avoid having two SqlSessionFactory instances
       org.sonar.core.persistence.MyBatis.class,
@@ -413,6 +416,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       CeHttpModule.class,
       CeTaskCommonsModule.class,
       ProjectAnalysisTaskModule.class,
+      IssueBulkChangeTaskModule.class,
       CeTaskProcessorModule.class,
 
       InternalPropertiesImpl.class,
@@ -40,4 +40,8 @@ public interface CeDatabaseMBean {
   boolean getPoolRemoveAbandoned();
 
   int getPoolRemoveAbandonedTimeoutSeconds();
+
+  String[] getSqlStatementStatistics();
+
+  String[] getSlowSqlRequests();
 }
@@ -19,14 +19,21 @@
  */
 package org.sonar.ce.monitoring;
 
+import java.util.List;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.picocontainer.Startable;
 import org.sonar.db.DbClient;
+import org.sonar.db.SqlStatistics;
 import org.sonar.process.Jmx;
 import org.sonar.process.systeminfo.SystemInfoSection;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 
+import static java.util.stream.Collectors.toList;
+import static org.sonar.process.systeminfo.SystemInfoUtils.setAttribute;
+
 public class CeDatabaseMBeanImpl implements CeDatabaseMBean, Startable, SystemInfoSection {
+  static final int MAX_STATEMENT_STATISTICS = 10;
+
   private final DbClient dbClient;
 
   public CeDatabaseMBeanImpl(DbClient dbClient) {
@@ -91,6 +98,33 @@ public class CeDatabaseMBeanImpl implements CeDatabaseMBean, Startable, SystemIn
     return commonsDbcp().getRemoveAbandonedTimeout();
   }
 
+  @Override
+  public String[] getSqlStatementStatistics() {
+    return statementStatistics().toArray(new String[0]);
+  }
+
+  @Override
+  public String[] getSlowSqlRequests() {
+    return slowSqlRequests().toArray(new String[0]);
+  }
+
+  private List<String> statementStatistics() {
+    return sqlStatistics().getStatementStatistics().stream()
+      .limit(MAX_STATEMENT_STATISTICS)
+      .map(SqlStatistics.StatementStatistics::toString)
+      .collect(toList());
+  }
+
+  private List<String> slowSqlRequests() {
+    return sqlStatistics().getSlowQueries().stream()
+      .map(SqlStatistics.SlowQuery::toString)
+      .collect(toList());
+  }
+
+  private SqlStatistics sqlStatistics() {
+    return dbClient.getMyBatis().getSqlStatistics();
+  }
+
   private BasicDataSource commonsDbcp() {
     return (BasicDataSource) dbClient.getDatabase().getDataSource();
   }
@@ -108,6 +142,8 @@ public class CeDatabaseMBeanImpl implements CeDatabaseMBean, Startable, SystemIn
     builder.addAttributesBuilder().setKey("Pool Max Wait (ms)").setLongValue(getPoolMaxWaitMillis()).build();
     builder.addAttributesBuilder().setKey("Pool Remove Abandoned").setBooleanValue(getPoolRemoveAbandoned()).build();
     builder.addAttributesBuilder().setKey("Pool Remove Abandoned Timeout (sec)").setLongValue(getPoolRemoveAbandonedTimeoutSeconds()).build();
+    setAttribute(builder, "SQL Statements (top " + MAX_STATEMENT_STATISTICS + " by total duration)", statementStatistics());
+    setAttribute(builder, "Slow SQL Requests (threshold " + sqlStatistics().getSlowQueryThresholdMs() + " ms)", slowSqlRequests());
     return builder.build();
   }
 }
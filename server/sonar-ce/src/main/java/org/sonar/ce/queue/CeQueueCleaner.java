@@ -19,10 +19,10 @@
  */
 package org.sonar.ce.queue;
 
-import java.util.List;
 import org.picocontainer.Startable;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.platform.ServerUpgradeStatus;
+import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.DbClient;
@@ -37,14 +37,18 @@ public class CeQueueCleaner implements Startable {
 
   private static final Logger LOGGER = Loggers.get(CeQueueCleaner.class);
 
+  private final System2 system2;
   private final DbClient dbClient;
   private final ServerUpgradeStatus serverUpgradeStatus;
   private final InternalCeQueue queue;
+  private final CeTaskInputStore taskInputStore;
 
-  public CeQueueCleaner(DbClient dbClient, ServerUpgradeStatus serverUpgradeStatus, InternalCeQueue queue) {
+  public CeQueueCleaner(System2 system2, DbClient dbClient, ServerUpgradeStatus serverUpgradeStatus, InternalCeQueue queue, CeTaskInputStore taskInputStore) {
+    this.system2 = system2;
     this.dbClient = dbClient;
     this.serverUpgradeStatus = serverUpgradeStatus;
     this.queue = queue;
+    this.taskInputStore = taskInputStore;
   }
 
   @Override
@@ -70,12 +74,11 @@ public class CeQueueCleaner implements Startable {
     dbClient.ceQueueDao().resetAllToPendingStatus(dbSession);
     dbSession.commit();
 
-    // Reports that have been processed are not kept in database yet.
+    // Reports that have been processed are not kept in the task input store.
     // They are supposed to be systematically dropped.
-    // Let's clean-up orphans if any.
-    List<String> uuids = dbClient.ceTaskInputDao().selectUuidsNotInQueue(dbSession);
-    dbClient.ceTaskInputDao().deleteByUuids(dbSession, uuids);
-    dbSession.commit();
+    // Let's clean-up orphans if any. Recent ones may be reports being uploaded in chunks, for example
+    // through the Web Server while the Compute Engine restarts.
+    taskInputStore.deleteOrphans(dbSession, system2.now() - InternalCeQueueImpl.ORPHAN_TASK_INPUT_GRACE_PERIOD_MS);
   }
 
   @Override
@@ -69,4 +69,10 @@ public interface InternalCeQueue extends CeQueue {
   void cancelWornOuts();
 
   void resetTasksWithUnknownWorkerUUIDs(Set<String> knownWorkerUUIDs);
+
+  /**
+   * Deletes the inputs of the tasks which are not in the queue anymore. Inputs stored recently are kept,
+   * as they may belong to tasks which are being submitted.
+   */
+  void deleteOrphanTaskInputs();
 }
@@ -45,6 +45,7 @@ import org.sonar.server.organization.DefaultOrganizationProvider;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.HOURS;
 import static java.util.Objects.requireNonNull;
 
 @ComputeEngineSide
@@ -52,19 +53,26 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
   private static final org.sonar.api.utils.log.Logger LOG = Loggers.get(InternalCeQueueImpl.class);
 
   private static final int MAX_EXECUTION_COUNT = 2;
+  /**
+   * Inputs of tasks not in the queue are kept during this period after their last use, as they may belong to tasks
+   * not submitted yet, for example to reports being uploaded in chunks.
+   */
+  static final long ORPHAN_TASK_INPUT_GRACE_PERIOD_MS = HOURS.toMillis(1);
 
   private final System2 system2;
   private final DbClient dbClient;
   private final CEQueueStatus queueStatus;
   private final ComputeEngineStatus computeEngineStatus;
+  private final CeTaskInputStore taskInputStore;
 
   public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus,
-    DefaultOrganizationProvider defaultOrganizationProvider, ComputeEngineStatus computeEngineStatus) {
-    super(dbClient, uuidFactory, defaultOrganizationProvider);
+    DefaultOrganizationProvider defaultOrganizationProvider, ComputeEngineStatus computeEngineStatus, CeTaskInputStore taskInputStore) {
+    super(dbClient, uuidFactory, defaultOrganizationProvider, taskInputStore);
     this.system2 = system2;
     this.dbClient = dbClient;
     this.queueStatus = queueStatus;
     this.computeEngineStatus = computeEngineStatus;
+    this.taskInputStore = taskInputStore;
   }
 
   @Override
@@ -182,6 +190,13 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     }
   }
 
+  @Override
+  public void deleteOrphanTaskInputs() {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      taskInputStore.deleteOrphans(dbSession, system2.now() - ORPHAN_TASK_INPUT_GRACE_PERIOD_MS);
+    }
+  }
+
   /**
    * A {@link PrintWriter} subclass which enforces that line returns are {@code \n} whichever the platform.
    */
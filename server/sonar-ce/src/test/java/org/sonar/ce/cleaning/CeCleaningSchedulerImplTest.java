@@ -54,11 +54,13 @@ public class CeCleaningSchedulerImplTest {
     Exception exception = new IllegalArgumentException("faking unchecked exception thrown by cancelWornOuts");
     doThrow(exception).when(mockedInternalCeQueue).cancelWornOuts();
     doThrow(exception).when(mockedInternalCeQueue).resetTasksWithUnknownWorkerUUIDs(any());
+    doThrow(exception).when(mockedInternalCeQueue).deleteOrphanTaskInputs();
 
     underTest.startScheduling();
 
     verify(mockedInternalCeQueue).cancelWornOuts();
     verify(mockedInternalCeQueue).resetTasksWithUnknownWorkerUUIDs(any());
+    verify(mockedInternalCeQueue).deleteOrphanTaskInputs();
   }
 
   @Test
@@ -123,6 +125,7 @@ public class CeCleaningSchedulerImplTest {
     // since lock cannot be locked, cleaning job methods must not be called
     verify(mockedInternalCeQueue, times(0)).resetTasksWithUnknownWorkerUUIDs(any());
     verify(mockedInternalCeQueue, times(0)).cancelWornOuts();
+    verify(mockedInternalCeQueue, times(0)).deleteOrphanTaskInputs();
   }
 
   @Test
@@ -131,10 +131,11 @@ public class ComputeEngineContainerImplTest {
         CONTAINER_ITSELF
           + 73 // level 4
           + 4 // content of CeConfigurationModule
-          + 7 // content of CeQueueModule
+          + 8 // content of CeQueueModule
           + 4 // content of CeHttpModule
           + 3 // content of CeTaskCommonsModule
-          + 4 // content of ProjectAnalysisTaskModule
+          + 6 // content of ProjectAnalysisTaskModule
+          + 5 // IssueBulkChangeTaskModule + its content
           + 5 // content of CeTaskProcessorModule
           + 3 // CeCleaningModule + its content
           + 1 // CeDistributedInformation
@@ -150,7 +151,7 @@ public class ComputeEngineContainerImplTest {
     );
     assertThat(picoContainer.getParent().getParent().getParent().getComponentAdapters()).hasSize(
       COMPONENTS_IN_LEVEL_1_AT_CONSTRUCTION
-        + 26 // level 1
+        + 27 // level 1
         + 49 // content of DaoModule
         + 3 // content of EsSearchModule
         + 64 // content of CorePropertyDefinitions
@@ -20,6 +20,7 @@
 package org.sonar.ce.monitoring;
 
 import java.lang.management.ManagementFactory;
+import java.util.Arrays;
 import javax.annotation.CheckForNull;
 import javax.management.InstanceNotFoundException;
 import javax.management.ObjectInstance;
@@ -54,9 +55,20 @@ public class CeDatabaseMBeanImplTest {
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
     assertThat(section.getName()).isEqualTo("Compute Engine Database Connection");
-    assertThat(section.getAttributesCount()).isEqualTo(9);
+    assertThat(section.getAttributesCount()).isEqualTo(11);
     assertThat(section.getAttributes(0).getKey()).isEqualTo("Pool Initial Size");
     assertThat(section.getAttributes(0).getLongValue()).isGreaterThanOrEqualTo(0);
+    assertThat(section.getAttributes(9).getKey()).isEqualTo("SQL Statements (top 10 by total duration)");
+    assertThat(section.getAttributes(10).getKey()).isEqualTo("Slow SQL Requests (threshold 1000 ms)");
+  }
+
+  @Test
+  public void export_sql_statistics() {
+    dbTester.getDbClient().getMyBatis().getSqlStatistics().record("Mapper.slowSelect", 2_000_000_000L, 1L, () -> "select 1", () -> "");
+
+    assertThat(underTest.getSqlStatementStatistics())
+      .contains("Mapper.slowSelect: count=1, rows=1, total=2000ms, mean=2000.00ms, p50=2000.00ms, p95=2000.00ms, p99=2000.00ms, max=2000.00ms");
+    assertThat(Arrays.stream(underTest.getSlowSqlRequests()).anyMatch(s -> s.endsWith("Mapper.slowSelect: 2000ms, sql=select 1, params="))).isTrue();
   }
 
   @CheckForNull
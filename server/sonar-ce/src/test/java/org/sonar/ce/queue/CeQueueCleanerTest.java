@@ -43,7 +43,8 @@ public class CeQueueCleanerTest {
 
   private ServerUpgradeStatus serverUpgradeStatus = mock(ServerUpgradeStatus.class);
   private InternalCeQueue queue = mock(InternalCeQueue.class);
-  private CeQueueCleaner underTest = new CeQueueCleaner(dbTester.getDbClient(), serverUpgradeStatus, queue);
+  private CeQueueCleaner underTest = new CeQueueCleaner(System2.INSTANCE, dbTester.getDbClient(), serverUpgradeStatus, queue,
+    new DbCeTaskInputStore(dbTester.getDbClient()));
 
   @Test
   public void start_resets_in_progress_tasks_to_pending() throws IOException {
@@ -72,6 +73,7 @@ public class CeQueueCleanerTest {
     insertInQueue("TASK_1", CeQueueDto.Status.PENDING);
     insertTaskData("TASK_1");
     insertTaskData("TASK_2");
+    dbTester.executeUpdateSql("update ce_task_input set updated_at=1");
 
     underTest.start();
 
@@ -83,6 +85,16 @@ public class CeQueueCleanerTest {
     assertThat(dataDao.selectData(dbTester.getSession(), "TASK_2")).isNotPresent();
   }
 
+  @Test
+  public void start_keeps_recent_orphan_inputs_as_they_may_be_uploads_in_progress() throws Exception {
+    insertTaskData("UPLOAD_1");
+    insertTaskData(CeTaskInputStore.partUuid("UPLOAD_1", 0));
+
+    underTest.start();
+
+    assertThat(dbTester.countRowsOfTable("ce_task_input")).isEqualTo(2);
+  }
+
   private CeQueueDto insertInQueue(String taskUuid, CeQueueDto.Status status) throws IOException {
     CeQueueDto dto = new CeQueueDto();
     dto.setTaskType(CeTaskTypes.REPORT);
@@ -20,6 +20,7 @@
 package org.sonar.ce.queue;
 
 import com.google.common.collect.ImmutableSet;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.List;
@@ -76,7 +77,8 @@ public class InternalCeQueueImplTest {
   private CEQueueStatus queueStatus = new CEQueueStatusImpl(dbTester.getDbClient());
   private DefaultOrganizationProvider defaultOrganizationProvider = mock(DefaultOrganizationProvider.class);
   private ComputeEngineStatus computeEngineStatus = mock(ComputeEngineStatus.class);
-  private InternalCeQueue underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider, computeEngineStatus);
+  private InternalCeQueue underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider, computeEngineStatus,
+    new DbCeTaskInputStore(dbTester.getDbClient()));
 
   @Before
   public void setUp() throws Exception {
@@ -626,6 +628,29 @@ public class InternalCeQueueImplTest {
     verifyReset(u8);
   }
 
+  @Test
+  public void deleteOrphanTaskInputs_deletes_inputs_of_tasks_not_in_queue_stored_more_than_one_hour_ago() {
+    insertCeQueueDto("u1", CeQueueDto.Status.PENDING, 0, null);
+    insertTaskInput("u1");
+    insertTaskInput("orphan");
+    long now = system2.now();
+
+    underTest.deleteOrphanTaskInputs();
+    assertThat(dbTester.getDbClient().ceTaskInputDao().selectUuidsNotInQueue(dbTester.getSession())).containsOnly("orphan");
+
+    System2 oneHourLater = mock(System2.class);
+    when(oneHourLater.now()).thenReturn(now + 60 * 60 * 1_000L + 1L);
+    new InternalCeQueueImpl(oneHourLater, dbTester.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider, computeEngineStatus,
+      new DbCeTaskInputStore(dbTester.getDbClient())).deleteOrphanTaskInputs();
+    assertThat(dbTester.getDbClient().ceTaskInputDao().selectUuidsNotInQueue(dbTester.getSession())).isEmpty();
+    assertThat(dbTester.countRowsOfTable("ce_task_input")).isEqualTo(1);
+  }
+
+  private void insertTaskInput(String taskUuid) {
+    dbTester.getDbClient().ceTaskInputDao().insert(dbTester.getSession(), taskUuid, new ByteArrayInputStream(new byte[] {1, 2, 3}));
+    dbTester.commit();
+  }
+
   private void verifyReset(CeQueueDto original) {
     CeQueueDto dto = dbTester.getDbClient().ceQueueDao().selectByUuid(dbTester.getSession(), original.getUuid()).get();
     // We do not touch ExecutionCount nor CreatedAt
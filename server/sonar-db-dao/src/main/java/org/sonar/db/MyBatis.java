@@ -127,10 +127,16 @@ import org.sonar.db.webhook.WebhookDeliveryMapper;
 public class MyBatis implements Startable {
 
   private final Database database;
+  private final SqlStatistics sqlStatistics;
   private SqlSessionFactory sessionFactory;
 
   public MyBatis(Database database) {
+    this(database, new SqlStatistics());
+  }
+
+  public MyBatis(Database database, SqlStatistics sqlStatistics) {
     this.database = database;
+    this.sqlStatistics = sqlStatistics;
   }
 
   @Override
@@ -241,6 +247,7 @@ public class MyBatis implements Startable {
       WebhookDeliveryMapper.class
     };
     confBuilder.loadMappers(mappers);
+    confBuilder.addInterceptor(new SqlStatisticsInterceptor(sqlStatistics));
 
     sessionFactory = new SqlSessionFactoryBuilder().build(confBuilder.build());
   }
@@ -250,6 +257,10 @@ public class MyBatis implements Startable {
     // nothing to do
   }
 
+  public SqlStatistics getSqlStatistics() {
+    return sqlStatistics;
+  }
+
   @VisibleForTesting
   SqlSessionFactory getSessionFactory() {
     return sessionFactory;
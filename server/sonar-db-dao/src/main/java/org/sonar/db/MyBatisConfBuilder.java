@@ -22,6 +22,7 @@ package org.sonar.db;
 import com.google.common.io.Closeables;
 import java.io.InputStream;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
@@ -88,6 +89,10 @@ class MyBatisConfBuilder {
     }
   }
 
+  void addInterceptor(Interceptor interceptor) {
+    conf.addInterceptor(interceptor);
+  }
+
   public Configuration build() {
     return conf;
   }
@@ -0,0 +1,244 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.annotation.concurrent.Immutable;
+import org.sonar.api.config.Configuration;
+import org.sonar.core.util.DurationHistogram;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Statistics of the SQL requests executed by {@link MyBatis}, grouped by id of mapper statement, for
+ * example {@code org.sonar.db.issue.IssueMapper.insert}. Recording is lock-free, so it is always enabled.
+ * <p>
+ * Requests slower than the threshold defined by the property {@link #SLOW_QUERY_THRESHOLD_PROPERTY} are
+ * captured with their SQL and parameters. Only the latest {@link #MAX_SLOW_QUERIES} are kept.
+ */
+public class SqlStatistics {
+
+  public static final String SLOW_QUERY_THRESHOLD_PROPERTY = "sonar.jdbc.slowQueryThresholdMs";
+  static final long DEFAULT_SLOW_QUERY_THRESHOLD_MS = 1_000L;
+  static final int MAX_SLOW_QUERIES = 20;
+  /**
+   * Protects memory if statement ids are unexpectedly dynamic
+   */
+  static final int MAX_STATEMENTS = 2_000;
+  static final String OTHER_STATEMENTS = "<others>";
+
+  private final ConcurrentMap<String, Recorder> recordersByStatement = new ConcurrentHashMap<>();
+  private final AtomicReferenceArray<SlowQuery> slowQueries = new AtomicReferenceArray<>(MAX_SLOW_QUERIES);
+  private final AtomicLong slowQueryCount = new AtomicLong();
+  private final long slowQueryThresholdMs;
+
+  public SqlStatistics(Configuration config) {
+    this(config.getLong(SLOW_QUERY_THRESHOLD_PROPERTY).orElse(DEFAULT_SLOW_QUERY_THRESHOLD_MS));
+  }
+
+  public SqlStatistics() {
+    this(DEFAULT_SLOW_QUERY_THRESHOLD_MS);
+  }
+
+  /**
+   * @param slowQueryThresholdMs zero or negative to disable the capture of slow queries
+   */
+  SqlStatistics(long slowQueryThresholdMs) {
+    this.slowQueryThresholdMs = slowQueryThresholdMs;
+  }
+
+  public long getSlowQueryThresholdMs() {
+    return slowQueryThresholdMs;
+  }
+
+  /**
+   * @param rows the number of rows read or updated, or a negative value if unknown
+   * @param sql computed only if the request is slow
+   * @param params computed only if the request is slow
+   */
+  public void record(String statementId, long durationNanos, long rows, Supplier<String> sql, Supplier<String> params) {
+    recorderOf(statementId).record(durationNanos, rows);
+    long durationMs = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+    if (slowQueryThresholdMs > 0L && durationMs >= slowQueryThresholdMs) {
+      int index = (int) (slowQueryCount.getAndIncrement() % MAX_SLOW_QUERIES);
+      slowQueries.set(index, new SlowQuery(System.currentTimeMillis(), statementId, durationMs, sql.get(), params.get()));
+    }
+  }
+
+  private Recorder recorderOf(String statementId) {
+    Recorder recorder = recordersByStatement.get(statementId);
+    if (recorder != null) {
+      return recorder;
+    }
+    String key = recordersByStatement.size() < MAX_STATEMENTS ? statementId : OTHER_STATEMENTS;
+    return recordersByStatement.computeIfAbsent(key, k -> new Recorder());
+  }
+
+  /**
+   * @return the statistics of statements, sorted by decreasing total duration
+   */
+  public List<StatementStatistics> getStatementStatistics() {
+    return recordersByStatement.entrySet().stream()
+      .map(e -> e.getValue().snapshot(e.getKey()))
+      .sorted(Comparator.comparingLong(StatementStatistics::getTotalMs).reversed().thenComparing(StatementStatistics::getStatementId))
+      .collect(toList());
+  }
+
+  /**
+   * @return the latest slow queries, from the most recent one
+   */
+  public List<SlowQuery> getSlowQueries() {
+    List<SlowQuery> result = new ArrayList<>(MAX_SLOW_QUERIES);
+    for (int i = 0; i < MAX_SLOW_QUERIES; i++) {
+      SlowQuery query = slowQueries.get(i);
+      if (query != null) {
+        result.add(query);
+      }
+    }
+    result.sort(Comparator.comparingLong(SlowQuery::getDate).reversed());
+    return result;
+  }
+
+  private static class Recorder {
+    private final DurationHistogram durations = new DurationHistogram();
+    private final LongAdder rows = new LongAdder();
+
+    private void record(long durationNanos, long rowCount) {
+      durations.record(durationNanos);
+      if (rowCount > 0L) {
+        rows.add(rowCount);
+      }
+    }
+
+    private StatementStatistics snapshot(String statementId) {
+      return new StatementStatistics(statementId, rows.sum(), durations.snapshot());
+    }
+  }
+
+  @Immutable
+  public static final class StatementStatistics {
+    private final String statementId;
+    private final long rows;
+    private final DurationHistogram.Snapshot durations;
+
+    StatementStatistics(String statementId, long rows, DurationHistogram.Snapshot durations) {
+      this.statementId = statementId;
+      this.rows = rows;
+      this.durations = durations;
+    }
+
+    public String getStatementId() {
+      return statementId;
+    }
+
+    public long getCount() {
+      return durations.getCount();
+    }
+
+    /**
+     * Number of rows read or updated. Rows of batched updates are unknown, so they are not counted.
+     */
+    public long getRows() {
+      return rows;
+    }
+
+    public long getTotalMs() {
+      return durations.getTotalMs();
+    }
+
+    public double getMeanMs() {
+      return durations.getMeanMs();
+    }
+
+    public double getP50Ms() {
+      return durations.getP50Ms();
+    }
+
+    public double getP95Ms() {
+      return durations.getP95Ms();
+    }
+
+    public double getP99Ms() {
+      return durations.getP99Ms();
+    }
+
+    public double getMaxMs() {
+      return durations.getMaxMs();
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ENGLISH, "%s: count=%d, rows=%d, total=%dms, mean=%.2fms, p50=%.2fms, p95=%.2fms, p99=%.2fms, max=%.2fms",
+        statementId, getCount(), rows, getTotalMs(), getMeanMs(), getP50Ms(), getP95Ms(), getP99Ms(), getMaxMs());
+    }
+  }
+
+  @Immutable
+  public static final class SlowQuery {
+    private final long date;
+    private final String statementId;
+    private final long durationMs;
+    private final String sql;
+    private final String params;
+
+    SlowQuery(long date, String statementId, long durationMs, String sql, String params) {
+      this.date = date;
+      this.statementId = statementId;
+      this.durationMs = durationMs;
+      this.sql = sql;
+      this.params = params;
+    }
+
+    public long getDate() {
+      return date;
+    }
+
+    public String getStatementId() {
+      return statementId;
+    }
+
+    public long getDurationMs() {
+      return durationMs;
+    }
+
+    public String getSql() {
+      return sql;
+    }
+
+    public String getParams() {
+      return params;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ENGLISH, "%tFT%<tT%<tz %s: %dms, sql=%s, params=%s", date, statementId, durationMs, sql, params);
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.sonar.db.profiling.SqlLogFormatter;
+
+/**
+ * Records the executions of mapper statements into {@link SqlStatistics}
+ */
+@Intercepts({
+  @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+  @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+  @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class})
+})
+class SqlStatisticsInterceptor implements Interceptor {
+
+  private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+
+  private final SqlStatistics statistics;
+
+  SqlStatisticsInterceptor(SqlStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    Object[] args = invocation.getArgs();
+    MappedStatement statement = (MappedStatement) args[0];
+    Object parameter = args[1];
+    AtomicLong handledRows = null;
+    if (args.length > 3 && args[3] != null) {
+      // rows are sent to a handler instead of being returned
+      handledRows = new AtomicLong();
+      args[3] = new CountingResultHandler((ResultHandler) args[3], handledRows);
+    }
+
+    long start = System.nanoTime();
+    Object result = null;
+    try {
+      result = invocation.proceed();
+      return result;
+    } finally {
+      long durationNanos = System.nanoTime() - start;
+      long rows = countRows(result, handledRows);
+      statistics.record(statement.getId(), durationNanos, rows, () -> sqlOf(statement, parameter), () -> paramsOf(statement, parameter));
+    }
+  }
+
+  private static long countRows(@Nullable Object result, @Nullable AtomicLong handledRows) {
+    if (handledRows != null) {
+      return handledRows.get();
+    }
+    if (result instanceof List) {
+      return ((List) result).size();
+    }
+    if (result instanceof Integer) {
+      // negative when update is batched
+      return (Integer) result;
+    }
+    return -1L;
+  }
+
+  private static String sqlOf(MappedStatement statement, @Nullable Object parameter) {
+    try {
+      return WHITESPACES.matcher(statement.getBoundSql(parameter).getSql()).replaceAll(" ").trim();
+    } catch (RuntimeException e) {
+      return "<unknown>";
+    }
+  }
+
+  /**
+   * Same resolution of values as {@link org.apache.ibatis.scripting.defaults.DefaultParameterHandler}
+   */
+  private static String paramsOf(MappedStatement statement, @Nullable Object parameter) {
+    try {
+      BoundSql boundSql = statement.getBoundSql(parameter);
+      org.apache.ibatis.session.Configuration configuration = statement.getConfiguration();
+      List<Object> values = new ArrayList<>();
+      for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+        String property = mapping.getProperty();
+        if (boundSql.hasAdditionalParameter(property)) {
+          values.add(boundSql.getAdditionalParameter(property));
+        } else if (parameter == null) {
+          values.add(null);
+        } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())) {
+          values.add(parameter);
+        } else {
+          values.add(configuration.newMetaObject(parameter).getValue(property));
+        }
+      }
+      return SqlLogFormatter.formatParams(values.toArray());
+    } catch (RuntimeException e) {
+      return "<unknown>";
+    }
+  }
+
+  @Override
+  public Object plugin(Object target) {
+    return Plugin.wrap(target, this);
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+    // no properties
+  }
+
+  private static class CountingResultHandler implements ResultHandler<Object> {
+    private final ResultHandler<Object> delegate;
+    private final AtomicLong counter;
+
+    private CountingResultHandler(ResultHandler<Object> delegate, AtomicLong counter) {
+      this.delegate = delegate;
+      this.counter = counter;
+    }
+
+    @Override
+    public void handleResult(ResultContext<?> resultContext) {
+      counter.incrementAndGet();
+      delegate.handleResult(resultContext);
+    }
+  }
+}
@@ -78,6 +78,15 @@ public class CeActivityDao implements Dao {
     return mapper(dbSession).countLastByStatusAndComponentUuid(status, componentUuid);
   }
 
+  /**
+   * Id of the latest task archived in activity, or zero if there are no activities. It changes each
+   * time a task is completed.
+   */
+  public long selectLastId(DbSession dbSession) {
+    Long id = mapper(dbSession).selectLastId();
+    return id == null ? 0L : id;
+  }
+
   private static CeActivityMapper mapper(DbSession dbSession) {
     return dbSession.getMapper(CeActivityMapper.class);
   }
@@ -38,6 +38,9 @@ public interface CeActivityMapper {
 
   int countLastByStatusAndComponentUuid(@Param("status") CeActivityDto.Status status, @Nullable @Param("componentUuid") String componentUuid);
 
+  @CheckForNull
+  Long selectLastId();
+
   void insert(CeActivityDto dto);
 
   void updateIsLastToFalseForLastKey(@Param("isLastKey") String isLastKey, @Param("updatedAt") long updatedAt);
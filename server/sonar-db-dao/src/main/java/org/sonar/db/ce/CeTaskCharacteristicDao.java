@@ -34,6 +34,10 @@ public class CeTaskCharacteristicDao implements Dao {
     }
   }
 
+  public void updateValue(DbSession dbSession, String taskUuid, String key, String value) {
+    mapper(dbSession).updateValue(taskUuid, key, value);
+  }
+
   public List<CeTaskCharacteristicDto> selectByTaskUuid(DbSession dbSession, String taskUuid) {
     return mapper(dbSession).selectByTaskUuid(taskUuid);
   }
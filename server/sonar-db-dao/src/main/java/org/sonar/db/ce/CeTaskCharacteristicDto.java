@@ -23,6 +23,8 @@ public class CeTaskCharacteristicDto {
 
   public static final String BRANCH_KEY = "branch";
   public static final String BRANCH_TYPE_KEY = "branchType";
+  public static final String TOTAL_ITEMS_KEY = "totalItems";
+  public static final String PROCESSED_ITEMS_KEY = "processedItems";
 
   private String uuid;
   private String taskUuid;
@@ -30,4 +30,6 @@ public interface CeTaskCharacteristicMapper {
 
   void insert(CeTaskCharacteristicDto taskCharacteristic);
 
+  void updateValue(@Param("taskUuid") String taskUuid, @Param("key") String key, @Param("value") String value);
+
 }
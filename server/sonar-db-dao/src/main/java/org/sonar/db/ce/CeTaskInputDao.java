@@ -33,6 +33,9 @@ import org.sonar.db.Dao;
 import org.sonar.db.DatabaseUtils;
 import org.sonar.db.DbSession;
 
+import static org.sonar.db.DaoDatabaseUtils.buildLikeValue;
+import static org.sonar.db.WildcardPosition.AFTER;
+
 public class CeTaskInputDao implements Dao {
 
   private final System2 system;
@@ -80,8 +83,39 @@ public class CeTaskInputDao implements Dao {
     }
   }
 
+  /**
+   * Whether data is stored for the specified task. Unlike {@link #selectData(DbSession, String)}, the data is not read.
+   */
+  public boolean exists(DbSession dbSession, String taskUuid) {
+    return dbSession.getMapper(CeTaskInputMapper.class).countByUuid(taskUuid) > 0;
+  }
+
   public List<String> selectUuidsNotInQueue(DbSession dbSession) {
-    return dbSession.getMapper(CeTaskInputMapper.class).selectUuidsNotInQueue();
+    return dbSession.getMapper(CeTaskInputMapper.class).selectUuidsNotInQueue(null);
+  }
+
+  /**
+   * Same as {@link #selectUuidsNotInQueue(DbSession)} but ignores the data inserted or touched since {@code updatedBefore},
+   * whose task may not be submitted yet.
+   */
+  public List<String> selectUuidsNotInQueue(DbSession dbSession, long updatedBefore) {
+    return dbSession.getMapper(CeTaskInputMapper.class).selectUuidsNotInQueue(updatedBefore);
+  }
+
+  /**
+   * UUIDs of the rows named "{@code <taskUuid>.<suffix>}", for example the parts of the input of a task
+   */
+  public List<String> selectUuidsStartingWith(DbSession dbSession, String taskUuid) {
+    return dbSession.getMapper(CeTaskInputMapper.class).selectUuidsByPrefix(buildLikeValue(taskUuid + ".", AFTER));
+  }
+
+  /**
+   * Sets the date of update of the specified rows to now
+   */
+  public void touch(DbSession dbSession, Collection<String> uuids) {
+    long now = system.now();
+    CeTaskInputMapper mapper = dbSession.getMapper(CeTaskInputMapper.class);
+    DatabaseUtils.executeLargeUpdates(uuids, partition -> mapper.touch(partition, now));
   }
 
   public void deleteByUuids(DbSession dbSession, Collection<String> uuids) {
@@ -20,12 +20,19 @@
 package org.sonar.db.ce;
 
 import java.util.List;
+import javax.annotation.Nullable;
 import org.apache.ibatis.annotations.Param;
 
 public interface CeTaskInputMapper {
 
   void deleteByUuids(@Param("uuids") List<String> uuids);
 
-  List<String> selectUuidsNotInQueue();
+  int countByUuid(@Param("uuid") String uuid);
+
+  List<String> selectUuidsNotInQueue(@Nullable @Param("updatedBefore") Long updatedBefore);
+
+  List<String> selectUuidsByPrefix(@Param("prefix") String likePrefix);
+
+  void touch(@Param("uuids") List<String> uuids, @Param("now") long now);
 
 }
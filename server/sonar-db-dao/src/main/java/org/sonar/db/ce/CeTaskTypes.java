@@ -22,6 +22,8 @@ package org.sonar.db.ce;
 public final class CeTaskTypes {
   
   public static final String REPORT = "REPORT";
+  // values are limited to 15 characters by the column ce_queue.task_type
+  public static final String ISSUES_BULK_CHANGE = "ISSUES_BULK";
 
   private CeTaskTypes() {
     // only statics
@@ -22,10 +22,12 @@ package org.sonar.db.duplication;
 import java.util.Collection;
 import java.util.List;
 import javax.annotation.Nullable;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
 
 public class DuplicationDao implements Dao {
 
@@ -38,6 +40,15 @@ public class DuplicationDao implements Dao {
       partition -> session.getMapper(DuplicationMapper.class).selectCandidates(analysisUuid, language, partition));
   }
 
+  /**
+   * Scrolls the blocks of the given analyses which belong to enabled files of the given language. Only the fields
+   * analysisUuid and hash of the {@link DuplicationUnitDto} are loaded.
+   */
+  public void scrollHashes(DbSession session, String language, Collection<String> analysisUuids, ResultHandler<DuplicationUnitDto> handler) {
+    DuplicationMapper mapper = session.getMapper(DuplicationMapper.class);
+    executeLargeInputsWithoutOutput(analysisUuids, partition -> mapper.scrollHashes(language, partition, handler));
+  }
+
   /**
    * Insert rows in the table DUPLICATIONS_INDEX.
    * Note that generated ids are not returned.
@@ -38,6 +38,7 @@ import org.sonar.db.component.ComponentDto;
 import static com.google.common.collect.FluentIterable.from;
 import static org.sonar.db.DaoDatabaseUtils.buildLikeValue;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
 
 public class IssueDao implements Dao {
 
@@ -98,6 +99,15 @@ public class IssueDao implements Dao {
     mapper(dbSession).scrollNonClosedByComponentUuid(componentUuid, handler);
   }
 
+  /**
+   * Scrolls the non-closed issues of several components with a single query per partition of
+   * {@link org.sonar.db.DatabaseUtils#PARTITION_SIZE_FOR_ORACLE} uuids.
+   */
+  public void scrollNonClosedByComponentUuids(DbSession dbSession, Collection<String> componentUuids, ResultHandler<IssueDto> handler) {
+    IssueMapper mapper = mapper(dbSession);
+    executeLargeInputsWithoutOutput(componentUuids, partition -> mapper.scrollNonClosedByComponentUuids(partition, handler));
+  }
+
   public void scrollNonClosedByModuleOrProject(DbSession dbSession, ComponentDto module, ResultHandler<IssueDto> handler) {
     String likeModuleUuidPath = buildLikeValue(module.moduleUuidPath(), WildcardPosition.AFTER);
     mapper(dbSession).scrollNonClosedByModuleOrProject(module.projectUuid(), likeModuleUuidPath, handler);
@@ -31,6 +31,7 @@ import org.sonar.db.component.ComponentDto;
 
 import static java.util.Collections.emptyList;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
 
 public class MeasureDao implements Dao {
 
@@ -94,6 +95,17 @@ public class MeasureDao implements Dao {
       ids -> mapper(dbSession).selectPastMeasuresOnSingleAnalysis(componentUuid, analysisUuid, ids));
   }
 
+  /**
+   * Streams the measures of all the components of an analysis, restricted to the given metrics. Measures
+   * on files and on developers are excluded. Used to load past measures of a whole project with a single request
+   * per partition of metrics, instead of a request per component.
+   */
+  public void selectPastMeasures(DbSession dbSession, String analysisUuid, Collection<Integer> metricIds, ResultHandler<PastMeasureDto> resultHandler) {
+    executeLargeInputsWithoutOutput(
+      metricIds,
+      ids -> mapper(dbSession).selectPastMeasuresOnAllComponentsOfAnalysis(analysisUuid, ids, resultHandler));
+  }
+
   /**
    * Select measures of:
    * - one component
@@ -25,16 +25,20 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
 import javax.annotation.CheckForNull;
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
+
 public class FileSourceDao implements Dao {
 
   private static final Splitter END_OF_LINE_SPLITTER = Splitter.on('\n');
@@ -49,6 +53,15 @@ public class FileSourceDao implements Dao {
     return mapper(dbSession).select(fileUuid, Type.TEST);
   }
 
+  /**
+   * Scrolls the sources of the specified files, without line hashes. Files are queried by partitions of
+   * {@link org.sonar.db.DatabaseUtils#PARTITION_SIZE_FOR_ORACLE}.
+   */
+  public void scrollSourcesByFileUuids(DbSession dbSession, Collection<String> fileUuids, ResultHandler<FileSourceDto> handler) {
+    FileSourceMapper mapper = mapper(dbSession);
+    executeLargeInputsWithoutOutput(fileUuids, partition -> mapper.scrollSourcesByFileUuids(partition, Type.SOURCE, handler));
+  }
+
   @CheckForNull
   public List<String> selectLineHashes(DbSession dbSession, String fileUuid) {
     Connection connection = dbSession.getConnection();
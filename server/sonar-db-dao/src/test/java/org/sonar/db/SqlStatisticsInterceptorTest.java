@@ -0,0 +1,99 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+import java.util.List;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.db.rule.RuleMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class SqlStatisticsInterceptorTest {
+
+  private static H2Database database;
+
+  @BeforeClass
+  public static void start() {
+    database = new H2Database("sonar_sql_statistics", true);
+    database.start();
+  }
+
+  @AfterClass
+  public static void stop() {
+    database.stop();
+  }
+
+  private MyBatis underTest;
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void record_count_and_rows_by_statement() {
+    underTest = new MyBatis(database);
+    underTest.start();
+
+    try (DbSession session = underTest.openSession(false)) {
+      session.getMapper(IsAliveMapper.class).isAlive();
+      session.getMapper(IsAliveMapper.class).isAlive();
+      session.getMapper(RuleMapper.class).selectDefinitionById(42L);
+      session.getMapper(RuleMapper.class).selectEnabled(context -> {
+      });
+    }
+
+    List<SqlStatistics.StatementStatistics> statistics = underTest.getSqlStatistics().getStatementStatistics();
+    assertThat(statistics)
+      .extracting(SqlStatistics.StatementStatistics::getStatementId, SqlStatistics.StatementStatistics::getCount, SqlStatistics.StatementStatistics::getRows)
+      .containsOnly(
+        tuple("org.sonar.db.IsAliveMapper.isAlive", 2L, 2L),
+        tuple("org.sonar.db.rule.RuleMapper.selectDefinitionById", 1L, 0L),
+        tuple("org.sonar.db.rule.RuleMapper.selectEnabled", 1L, 0L));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void provide_sql_and_parameters_of_statement() {
+    SqlStatistics statistics = mock(SqlStatistics.class);
+    underTest = new MyBatis(database, statistics);
+    underTest.start();
+
+    try (DbSession session = underTest.openSession(false)) {
+      session.getMapper(RuleMapper.class).selectDefinitionById(42L);
+    }
+
+    ArgumentCaptor<Supplier> sql = ArgumentCaptor.forClass(Supplier.class);
+    ArgumentCaptor<Supplier> params = ArgumentCaptor.forClass(Supplier.class);
+    verify(statistics).record(eq("org.sonar.db.rule.RuleMapper.selectDefinitionById"), anyLong(), eq(0L), sql.capture(), params.capture());
+    assertThat((String) sql.getValue().get()).startsWith("select ").endsWith("from rules r where r.id=?");
+    assertThat(params.getValue().get()).isEqualTo("42");
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlStatisticsTest {
+
+  private SqlStatistics underTest = new SqlStatistics(100L);
+
+  @Test
+  public void read_slow_query_threshold_from_configuration() {
+    assertThat(new SqlStatistics(new MapSettings().asConfig()).getSlowQueryThresholdMs()).isEqualTo(SqlStatistics.DEFAULT_SLOW_QUERY_THRESHOLD_MS);
+    assertThat(new SqlStatistics(new MapSettings().setProperty("sonar.jdbc.slowQueryThresholdMs", "50").asConfig()).getSlowQueryThresholdMs()).isEqualTo(50L);
+  }
+
+  @Test
+  public void compute_statistics_of_each_statement() {
+    // 1ms, 2ms, ..., 100ms
+    IntStream.rangeClosed(1, 100).forEach(i -> record("Mapper.select", i, 10));
+    record("Mapper.insert", 500, 1);
+    record("Mapper.insert", 300, -2147482646);
+
+    assertThat(underTest.getStatementStatistics()).hasSize(2);
+    SqlStatistics.StatementStatistics select = underTest.getStatementStatistics().get(0);
+    assertThat(select.getStatementId()).isEqualTo("Mapper.select");
+    assertThat(select.getCount()).isEqualTo(100L);
+    assertThat(select.getRows()).isEqualTo(1_000L);
+    assertThat(select.getTotalMs()).isEqualTo(5_050L);
+    assertThat(select.getMeanMs()).isEqualTo(50.5);
+    assertThat(select.getMaxMs()).isEqualTo(100.0);
+    // percentiles are the upper bounds of buckets of powers of two microseconds
+    assertThat(select.getP50Ms()).isEqualTo(65.536);
+    assertThat(select.getP95Ms()).isEqualTo(100.0);
+    assertThat(select.getP99Ms()).isEqualTo(100.0);
+
+    SqlStatistics.StatementStatistics insert = underTest.getStatementStatistics().get(1);
+    assertThat(insert.getStatementId()).isEqualTo("Mapper.insert");
+    assertThat(insert.getCount()).isEqualTo(2L);
+    // rows of batched updates are unknown
+    assertThat(insert.getRows()).isEqualTo(1L);
+    assertThat(insert.toString()).isEqualTo("Mapper.insert: count=2, rows=1, total=800ms, mean=400.00ms, p50=500.00ms, p95=500.00ms, p99=500.00ms, max=500.00ms");
+  }
+
+  @Test
+  public void capture_slow_queries() {
+    record("Mapper.fast", 99, 1);
+    record("Mapper.slow", 100, 1);
+
+    assertThat(underTest.getSlowQueries()).hasSize(1);
+    SqlStatistics.SlowQuery slowQuery = underTest.getSlowQueries().get(0);
+    assertThat(slowQuery.getStatementId()).isEqualTo("Mapper.slow");
+    assertThat(slowQuery.getDurationMs()).isEqualTo(100L);
+    assertThat(slowQuery.getSql()).isEqualTo("sql of Mapper.slow");
+    assertThat(slowQuery.getParams()).isEqualTo("params of Mapper.slow");
+    assertThat(slowQuery.getDate()).isPositive();
+  }
+
+  @Test
+  public void keep_only_latest_slow_queries() {
+    IntStream.range(0, SqlStatistics.MAX_SLOW_QUERIES + 5).forEach(i -> record("Mapper.slow" + i, 200, 1));
+
+    assertThat(underTest.getSlowQueries())
+      .hasSize(SqlStatistics.MAX_SLOW_QUERIES)
+      .extracting(SqlStatistics.SlowQuery::getStatementId)
+      .contains("Mapper.slow" + (SqlStatistics.MAX_SLOW_QUERIES + 4))
+      .doesNotContain("Mapper.slow0", "Mapper.slow4");
+  }
+
+  @Test
+  public void do_not_capture_slow_queries_if_threshold_is_zero() {
+    underTest = new SqlStatistics(0L);
+
+    record("Mapper.slow", 10_000, 1);
+
+    assertThat(underTest.getSlowQueries()).isEmpty();
+    assertThat(underTest.getStatementStatistics()).hasSize(1);
+  }
+
+  @Test
+  public void group_statements_when_too_many_ids() {
+    IntStream.range(0, SqlStatistics.MAX_STATEMENTS + 10).forEach(i -> record("Mapper.select" + i, 1, 1));
+
+    assertThat(underTest.getStatementStatistics()).hasSize(SqlStatistics.MAX_STATEMENTS + 1);
+    assertThat(underTest.getStatementStatistics())
+      .filteredOn(s -> s.getStatementId().equals(SqlStatistics.OTHER_STATEMENTS))
+      .extracting(SqlStatistics.StatementStatistics::getCount)
+      .containsExactly(10L);
+  }
+
+  private void record(String statementId, long durationMs, long rows) {
+    underTest.record(statementId, TimeUnit.MILLISECONDS.toNanos(durationMs), rows, () -> "sql of " + statementId, () -> "params of " + statementId);
+  }
+}
@@ -336,6 +336,18 @@ public class CeActivityDaoTest {
     assertThat(underTest.countLastByStatusAndComponentUuid(dbSession, SUCCESS, null)).isEqualTo(2);
   }
 
+  @Test
+  public void selectLastId() {
+    assertThat(underTest.selectLastId(dbSession)).isEqualTo(0L);
+
+    insert("TASK_1", CeTaskTypes.REPORT, "COMPONENT1", CeActivityDto.Status.SUCCESS);
+    long firstId = underTest.selectLastId(dbSession);
+    assertThat(firstId).isPositive();
+
+    insert("TASK_2", CeTaskTypes.REPORT, "COMPONENT1", CeActivityDto.Status.FAILED);
+    assertThat(underTest.selectLastId(dbSession)).isGreaterThan(firstId);
+  }
+
   private CeActivityDto insert(String uuid, String type, String componentUuid, CeActivityDto.Status status) {
     CeActivityDto dto = createActivityDto(uuid, type, componentUuid, status);
     underTest.insert(db.getSession(), dto);
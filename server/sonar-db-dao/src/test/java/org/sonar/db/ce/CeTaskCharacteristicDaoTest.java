@@ -84,4 +84,29 @@ public class CeTaskCharacteristicDaoTest {
     assertThat(underTest.selectByTaskUuids(dbTester.getSession(), singletonList("unknown"))).isEmpty();
   }
 
+  @Test
+  public void updateValue() {
+    CeTaskCharacteristicDto dto1 = new CeTaskCharacteristicDto()
+      .setKey("key1")
+      .setValue("value1")
+      .setUuid("uuid1")
+      .setTaskUuid("task1");
+    CeTaskCharacteristicDto dto2 = new CeTaskCharacteristicDto()
+      .setKey("key1")
+      .setValue("value2")
+      .setUuid("uuid2")
+      .setTaskUuid("task2");
+    underTest.insert(dbTester.getSession(), asList(dto1, dto2));
+    dbTester.getSession().commit();
+
+    underTest.updateValue(dbTester.getSession(), "task1", "key1", "new value");
+    dbTester.getSession().commit();
+
+    assertThat(underTest.selectByTaskUuids(dbTester.getSession(), asList("task1", "task2")))
+      .extracting(CeTaskCharacteristicDto::getTaskUuid, CeTaskCharacteristicDto::getKey, CeTaskCharacteristicDto::getValue)
+      .containsOnly(
+        tuple("task1", "key1", "new value"),
+        tuple("task2", "key1", "value2"));
+  }
+
 }
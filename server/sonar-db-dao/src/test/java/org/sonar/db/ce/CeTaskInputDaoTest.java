@@ -28,6 +28,7 @@ import org.junit.rules.ExpectedException;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -86,6 +87,16 @@ public class CeTaskInputDaoTest {
     assertThat(result).isNotPresent();
   }
 
+  @Test
+  public void exists() {
+    underTest.insert(dbTester.getSession(), A_UUID, IOUtils.toInputStream(SOME_DATA));
+    insertData("U2");
+
+    assertThat(underTest.exists(dbTester.getSession(), A_UUID)).isTrue();
+    assertThat(underTest.exists(dbTester.getSession(), "U2")).isFalse();
+    assertThat(underTest.exists(dbTester.getSession(), "UNKNOWN")).isFalse();
+  }
+
   @Test
   public void selectUuidsNotInQueue() {
     insertData("U1");
@@ -97,6 +108,43 @@ public class CeTaskInputDaoTest {
     assertThat(underTest.selectUuidsNotInQueue(dbTester.getSession())).containsOnly("U1");
   }
 
+  @Test
+  public void selectUuidsNotInQueue_updated_before() {
+    insertData("U1");
+    dbTester.executeInsert(TABLE_NAME, "task_uuid", "U2", "created_at", NOW, "updated_at", NOW + 10);
+    dbTester.commit();
+
+    assertThat(underTest.selectUuidsNotInQueue(dbTester.getSession(), NOW + 10)).containsOnly("U1");
+    assertThat(underTest.selectUuidsNotInQueue(dbTester.getSession(), NOW)).isEmpty();
+  }
+
+  @Test
+  public void selectUuidsStartingWith() {
+    insertData("U1");
+    insertData("U1.0");
+    insertData("U1.1");
+    insertData("U10.0");
+    insertData("U2.0");
+    insertData("U_.0");
+
+    assertThat(underTest.selectUuidsStartingWith(dbTester.getSession(), "U1")).containsOnly("U1.0", "U1.1");
+    assertThat(underTest.selectUuidsStartingWith(dbTester.getSession(), "U_")).containsOnly("U_.0");
+    assertThat(underTest.selectUuidsStartingWith(dbTester.getSession(), "U3")).isEmpty();
+  }
+
+  @Test
+  public void touch_sets_date_of_update_to_now() {
+    insertData("U1");
+    insertData("U2");
+    when(system.now()).thenReturn(NOW + 100);
+
+    underTest.touch(dbTester.getSession(), asList("U1", "UNKNOWN"));
+    dbTester.commit();
+
+    assertThat(underTest.selectUuidsNotInQueue(dbTester.getSession(), NOW + 100)).containsOnly("U2");
+    assertThat(underTest.selectUuidsNotInQueue(dbTester.getSession(), NOW + 101)).containsOnly("U1", "U2");
+  }
+
   @Test
   public void deleteByUuids() {
     insertData(A_UUID);
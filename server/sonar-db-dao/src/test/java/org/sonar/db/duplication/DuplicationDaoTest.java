@@ -19,6 +19,7 @@
  */
 package org.sonar.db.duplication;
 
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
@@ -26,8 +27,10 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 public class DuplicationDaoTest {
 
@@ -59,6 +62,22 @@ public class DuplicationDaoTest {
     assertThat(blocks).hasSize(2);
   }
 
+  @Test
+  public void scroll_hashes_of_analyses_and_language() {
+    db.prepareDbUnit(getClass(), "select_candidates.xml");
+    dbSession.commit();
+
+    List<DuplicationUnitDto> blocks = new ArrayList<>();
+    dao.scrollHashes(dbSession, "java", asList("u1", "u3", "u7"), context -> blocks.add(context.getResultObject()));
+
+    assertThat(blocks).extracting(DuplicationUnitDto::getAnalysisUuid, DuplicationUnitDto::getHash)
+      .containsOnly(tuple("u1", "bb"), tuple("u3", "aa"), tuple("u7", "aa"));
+
+    blocks.clear();
+    dao.scrollHashes(dbSession, "grvy", asList("u1", "u3"), context -> blocks.add(context.getResultObject()));
+    assertThat(blocks).extracting(DuplicationUnitDto::getAnalysisUuid, DuplicationUnitDto::getHash).containsOnly(tuple("u1", "aa"));
+  }
+
   @Test
   public void select_component() {
     db.prepareDbUnit(getClass(), "select_component.xml");
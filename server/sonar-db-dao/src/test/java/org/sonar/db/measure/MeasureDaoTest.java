@@ -40,9 +40,11 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.api.resources.Qualifiers.FILE;
 import static org.sonar.api.resources.Qualifiers.UNIT_TEST_FILE;
 import static org.sonar.api.utils.DateUtils.parseDate;
+import static org.sonar.db.component.ComponentTesting.newDirectory;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
 import static org.sonar.db.component.ComponentTesting.newModuleDto;
 import static org.sonar.db.component.SnapshotTesting.newAnalysis;
@@ -375,6 +377,40 @@ public class MeasureDaoTest {
       .containsOnly("P1_M1", "P1_M2", "P2_M1", "P2_M2");
   }
 
+  @Test
+  public void selectPastMeasures_on_all_non_file_components_of_analysis() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto module = db.components().insertComponent(newModuleDto(project));
+    ComponentDto directory = db.components().insertComponent(newDirectory(module, "src"));
+    db.components().insertComponent(newFileDto(module, directory).setUuid("C1"));
+    insertAnalysis(LAST_ANALYSIS_UUID, project.uuid(), true);
+    insertAnalysis(OTHER_ANALYSIS_UUID, project.uuid(), false);
+    insertMeasure("P1_M1", OTHER_ANALYSIS_UUID, project.uuid(), NCLOC_METRIC_ID);
+    insertMeasure("D1", OTHER_ANALYSIS_UUID, directory.uuid(), NCLOC_METRIC_ID);
+    insertMeasure("P1_M2", OTHER_ANALYSIS_UUID, project.uuid(), COVERAGE_METRIC_ID);
+    insertMeasure("P1_M3", OTHER_ANALYSIS_UUID, project.uuid(), COMPLEXITY_METRIC_ID);
+    insertMeasure("M1", OTHER_ANALYSIS_UUID, module.uuid(), NCLOC_METRIC_ID);
+    insertMeasure("M2", OTHER_ANALYSIS_UUID, "C1", NCLOC_METRIC_ID);
+    insertMeasureOnPerson("M3", OTHER_ANALYSIS_UUID, "C1", COVERAGE_METRIC_ID, A_PERSON_ID);
+    insertMeasure("M4", LAST_ANALYSIS_UUID, "C1", COVERAGE_METRIC_ID);
+    db.commit();
+
+    List<PastMeasureDto> result = new ArrayList<>();
+    underTest.selectPastMeasures(db.getSession(), OTHER_ANALYSIS_UUID, asList(NCLOC_METRIC_ID, COVERAGE_METRIC_ID), context -> result.add(context.getResultObject()));
+
+    assertThat(result)
+      .extracting(PastMeasureDto::getComponentUuid, PastMeasureDto::getMetricId)
+      .containsOnly(
+        tuple(project.uuid(), NCLOC_METRIC_ID),
+        tuple(project.uuid(), COVERAGE_METRIC_ID),
+        tuple(module.uuid(), NCLOC_METRIC_ID),
+        tuple(directory.uuid(), NCLOC_METRIC_ID));
+
+    result.clear();
+    underTest.selectPastMeasures(db.getSession(), OTHER_ANALYSIS_UUID, emptyList(), context -> result.add(context.getResultObject()));
+    assertThat(result).isEmpty();
+  }
+
   private Optional<MeasureDto> selectSingle(MeasureQuery.Builder query) {
     return underTest.selectSingle(db.getSession(), query.build());
   }
@@ -0,0 +1,384 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.db.migration.step;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.CheckForNull;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.ProgressLogger;
+import org.sonar.db.Database;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Variant of {@link MassUpdate} for large tables. The rows are split into partitions, which are ranges of values of a
+ * numeric column, usually the primary key, and the partitions are processed concurrently. Each thread uses its own read
+ * and write connections.
+ * <p>
+ * The two first parameters of the SELECT request are the lower bound (inclusive) and the upper bound (exclusive) of the
+ * partition, for example {@code select id, tags from issues where id >= ? and id < ? and tags is not null}. Other
+ * parameters are set with {@link #select(String, SelectParametersSetter)}.
+ * <p>
+ * Handlers are called concurrently by different threads, so they must be thread-safe. As with {@link MassUpdate},
+ * they must support being called again on rows which have already been updated, as a partition which fails is processed
+ * again entirely.
+ * <p>
+ * When a checkpoint key is defined with {@link #resumable(String)}, the partitions which are completed are recorded in
+ * the table INTERNAL_PROPERTIES, so that the execution following a failure processes only the partitions which were not
+ * completed. The checkpoint is deleted when all partitions are completed.
+ */
+public class PartitionedMassUpdate {
+
+  static final int DEFAULT_THREADS = 4;
+  static final int MAX_PARTITIONS = 1_000;
+  private static final int PARTITIONS_BY_THREAD = 4;
+  // size of column INTERNAL_PROPERTIES.KEE
+  private static final int MAX_CHECKPOINT_KEY_LENGTH = 20;
+  private static final Logger LOG = Loggers.get(PartitionedMassUpdate.class);
+
+  @FunctionalInterface
+  public interface SelectParametersSetter {
+    /**
+     * Set the parameters of the SELECT request, starting from index 3. Indices 1 and 2 are the bounds of the partition.
+     */
+    void set(SqlStatement select) throws SQLException;
+  }
+
+  private final Database db;
+  private final String table;
+  private final String partitionColumn;
+  private final AtomicLong counter = new AtomicLong(0L);
+  private final ProgressLogger progress = ProgressLogger.create(getClass(), counter);
+  private final AtomicBoolean cancelled = new AtomicBoolean(false);
+  /**
+   * The first failure of a partition. Other partitions are cancelled, so they fail afterwards with a less relevant error.
+   */
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  private String selectSql;
+  private SelectParametersSetter selectParametersSetter = select -> {
+  };
+  private final List<String> updateSqls = new ArrayList<>(1);
+  private int threads = DEFAULT_THREADS;
+  private int partitions = 0;
+  private String checkpointKey;
+
+  public PartitionedMassUpdate(Database db, String table, String partitionColumn) {
+    this.db = db;
+    this.table = table;
+    this.partitionColumn = partitionColumn;
+  }
+
+  public PartitionedMassUpdate select(String sql) {
+    return select(sql, select -> {
+    });
+  }
+
+  public PartitionedMassUpdate select(String sql, SelectParametersSetter parametersSetter) {
+    this.selectSql = sql;
+    this.selectParametersSetter = parametersSetter;
+    return this;
+  }
+
+  public PartitionedMassUpdate update(String sql) {
+    this.updateSqls.add(sql);
+    return this;
+  }
+
+  public PartitionedMassUpdate rowPluralName(String s) {
+    this.progress.setPluralLabel(s);
+    return this;
+  }
+
+  /**
+   * Number of partitions processed concurrently. Each of them uses two connections to the database. Default is {@link #DEFAULT_THREADS}.
+   */
+  public PartitionedMassUpdate threads(int i) {
+    checkArgument(i > 0, "Number of threads must be positive");
+    this.threads = i;
+    return this;
+  }
+
+  /**
+   * Number of partitions. Default is four times the number of threads, so that threads stay busy when partitions
+   * do not have the same number of rows.
+   */
+  public PartitionedMassUpdate partitions(int i) {
+    checkArgument(i > 0 && i <= MAX_PARTITIONS, "Number of partitions must be between 1 and %s", MAX_PARTITIONS);
+    this.partitions = i;
+    return this;
+  }
+
+  /**
+   * @param key unique key of the checkpoint in table INTERNAL_PROPERTIES, for example {@code "v66.issues.tags"}
+   */
+  public PartitionedMassUpdate resumable(String key) {
+    checkArgument(!key.isEmpty() && key.length() <= MAX_CHECKPOINT_KEY_LENGTH, "Checkpoint key must have between 1 and %s characters", MAX_CHECKPOINT_KEY_LENGTH);
+    this.checkpointKey = key;
+    return this;
+  }
+
+  public void execute(MassUpdate.Handler handler) throws SQLException {
+    checkState(selectSql != null && !updateSqls.isEmpty(), "SELECT or UPDATE requests are not defined");
+    checkState(updateSqls.size() == 1, "There should be only one update when using a " + MassUpdate.Handler.class.getName());
+
+    execute((row, update, updateIndex) -> handler.handle(row, update));
+  }
+
+  public void execute(MassUpdate.MultiHandler handler) throws SQLException {
+    checkState(selectSql != null && !updateSqls.isEmpty(), "SELECT or UPDATE(s) requests are not defined");
+
+    Plan plan = loadCheckpoint();
+    if (plan == null) {
+      plan = computePlan();
+    } else {
+      LOG.info("Resume from checkpoint {}: {}/{} partitions already processed", checkpointKey, plan.done.cardinality(), plan.count);
+    }
+    if (plan != null) {
+      execute(plan, handler);
+    }
+  }
+
+  private void execute(Plan plan, MassUpdate.MultiHandler handler) throws SQLException {
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("PartitionedMassUpdate-%d")
+      .setDaemon(true)
+      .build());
+    progress.start();
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int partition = plan.done.nextClearBit(0); partition < plan.count; partition = plan.done.nextClearBit(partition + 1)) {
+        int p = partition;
+        futures.add(executor.submit(() -> {
+          try {
+            processPartition(plan, p, handler);
+          } catch (Exception e) {
+            // recorded before cancelling, so that it's not replaced by the failures of the cancelled partitions
+            failure.compareAndSet(null, e);
+            // next rows and partitions are not processed
+            cancelled.set(true);
+            throw e;
+          }
+          return null;
+        }));
+      }
+      waitFor(futures);
+      deleteCheckpoint();
+
+      // log the total number of processed rows
+      progress.log();
+    } finally {
+      executor.shutdownNow();
+      progress.stop();
+    }
+  }
+
+  /**
+   * Waits for the completion of all partitions, even if one of them fails, so that connections are released before
+   * the failure is propagated. The propagated failure is the one which cancelled the other partitions.
+   */
+  private void waitFor(List<Future<Void>> futures) throws SQLException {
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        cancelled.set(true);
+        throw new IllegalStateException("Interrupted while updating rows of table " + table, e);
+      } catch (ExecutionException e) {
+        failure.compareAndSet(null, e.getCause());
+      }
+    }
+    Throwable firstFailure = failure.get();
+    if (firstFailure instanceof SQLException) {
+      throw (SQLException) firstFailure;
+    }
+    if (firstFailure instanceof RuntimeException) {
+      throw (RuntimeException) firstFailure;
+    }
+    if (firstFailure != null) {
+      throw new IllegalStateException(firstFailure);
+    }
+  }
+
+  private void processPartition(Plan plan, int partition, MassUpdate.MultiHandler handler) throws SQLException {
+    if (cancelled.get()) {
+      return;
+    }
+    try (Connection readConnection = DataChange.createReadUncommittedConnection(db);
+      Connection writeConnection = DataChange.createDdlConnection(db)) {
+      Select select = SelectImpl.create(db, readConnection, selectSql)
+        .setLong(1, plan.lowerBound(partition))
+        .setLong(2, plan.upperBound(partition));
+      selectParametersSetter.set(select);
+      List<UpsertImpl> updates = new ArrayList<>(updateSqls.size());
+      for (String sql : updateSqls) {
+        updates.add(UpsertImpl.create(writeConnection, sql));
+      }
+      select.scroll(row -> callHandler(handler, updates, row));
+      closeUpdates(updates);
+    }
+    markAsDone(plan, partition);
+  }
+
+  private void callHandler(MassUpdate.MultiHandler handler, List<UpsertImpl> updates, Select.Row row) throws SQLException {
+    checkState(!cancelled.get(), "Cancelled because of the failure of another partition");
+    int i = 0;
+    for (UpsertImpl update : updates) {
+      if (handler.handle(row, update, i)) {
+        update.addBatch();
+      }
+      i++;
+    }
+    counter.getAndIncrement();
+  }
+
+  private static void closeUpdates(List<UpsertImpl> updates) throws SQLException {
+    for (UpsertImpl update : updates) {
+      if (update.getBatchCount() > 0L) {
+        update.execute().commit();
+      }
+      update.close();
+    }
+  }
+
+  @CheckForNull
+  private Plan computePlan() throws SQLException {
+    try (Connection connection = DataChange.createReadUncommittedConnection(db)) {
+      long[] bounds = SelectImpl.create(db, connection, "select min(" + partitionColumn + "), max(" + partitionColumn + ") from " + table)
+        .get(row -> {
+          Long min = row.getNullableLong(1);
+          Long max = row.getNullableLong(2);
+          return min == null || max == null ? null : new long[] {min, max};
+        });
+      if (bounds == null) {
+        // empty table
+        return null;
+      }
+      int count = partitions > 0 ? partitions : Math.min(MAX_PARTITIONS, threads * PARTITIONS_BY_THREAD);
+      return new Plan(bounds[0], bounds[1], count, new BitSet());
+    }
+  }
+
+  @CheckForNull
+  private Plan loadCheckpoint() throws SQLException {
+    if (checkpointKey == null) {
+      return null;
+    }
+    try (Connection connection = DataChange.createReadUncommittedConnection(db)) {
+      String value = SelectImpl.create(db, connection, "select text_value from internal_properties where kee=?")
+        .setString(1, checkpointKey)
+        .get(row -> row.getNullableString(1));
+      return value == null ? null : Plan.parse(value);
+    }
+  }
+
+  private synchronized void markAsDone(Plan plan, int partition) throws SQLException {
+    plan.done.set(partition);
+    if (checkpointKey != null) {
+      try (Connection connection = DataChange.createDdlConnection(db)) {
+        deleteCheckpoint(connection);
+        UpsertImpl.create(connection, "insert into internal_properties (kee, is_empty, text_value, created_at) values (?, ?, ?, ?)")
+          .setString(1, checkpointKey)
+          .setBoolean(2, false)
+          .setString(3, plan.format())
+          .setLong(4, System2.INSTANCE.now())
+          .execute()
+          .commit();
+      }
+    }
+  }
+
+  private void deleteCheckpoint() throws SQLException {
+    if (checkpointKey != null) {
+      try (Connection connection = DataChange.createDdlConnection(db)) {
+        deleteCheckpoint(connection);
+        connection.commit();
+      }
+    }
+  }
+
+  private void deleteCheckpoint(Connection connection) throws SQLException {
+    UpsertImpl delete = UpsertImpl.create(connection, "delete from internal_properties where kee=?");
+    delete.setString(1, checkpointKey).execute();
+    delete.close();
+  }
+
+  /**
+   * Ranges of values of the partition column, and the ranges which are already processed
+   */
+  static class Plan {
+    private final long min;
+    private final long max;
+    private final int count;
+    private final long size;
+    private final BitSet done;
+
+    Plan(long min, long max, int count, BitSet done) {
+      this.min = min;
+      this.max = max;
+      long values = max - min + 1;
+      this.size = (values + count - 1) / count;
+      // do not create empty partitions when there are less values than partitions
+      this.count = (int) ((values + size - 1) / size);
+      this.done = done;
+    }
+
+    long lowerBound(int partition) {
+      return min + partition * size;
+    }
+
+    long upperBound(int partition) {
+      return partition == count - 1 ? (max + 1) : lowerBound(partition + 1);
+    }
+
+    int count() {
+      return count;
+    }
+
+    String format() {
+      return min + "," + max + "," + count + "," + Base64.getEncoder().encodeToString(done.toByteArray());
+    }
+
+    static Plan parse(String s) {
+      String[] fields = s.split(",", -1);
+      checkState(fields.length == 4, "Invalid checkpoint: %s", s);
+      return new Plan(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Integer.parseInt(fields[2]),
+        BitSet.valueOf(Base64.getDecoder().decode(fields[3])));
+    }
+  }
+}
@@ -0,0 +1,247 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.db.migration.step;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.sql.SQLException;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.db.CoreDbTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class PartitionedMassUpdateTest {
+
+  private static final String CHECKPOINT_KEY = "test.persons";
+
+  @Rule
+  public CoreDbTester db = CoreDbTester.createForSchema(PartitionedMassUpdateTest.class, "schema.sql");
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Before
+  public void setUp() {
+    db.executeUpdateSql("truncate table persons");
+    db.executeUpdateSql("truncate table internal_properties");
+  }
+
+  @Test
+  public void update_rows_of_all_partitions() throws SQLException {
+    insertPersons(1, 500);
+    insertPersons(10_000, 10_050);
+
+    execute(massUpdate -> massUpdate.threads(3).partitions(7), (row, update) -> {
+      long id = row.getLong(1);
+      update.setInt(1, (int) id % 100).setLong(2, id);
+      return true;
+    });
+
+    assertThat(db.countSql("select count(1) from persons where age is null")).isEqualTo(0);
+    assertThat(db.countSql("select count(1) from persons where age = 42")).isEqualTo(6);
+    assertThat(db.countRowsOfTable("internal_properties")).isEqualTo(0);
+  }
+
+  @Test
+  public void set_parameters_of_select() throws SQLException {
+    insertPersons(1, 100);
+
+    new DataChange(db.database()) {
+      @Override
+      protected void execute(Context context) throws SQLException {
+        context.preparePartitionedMassUpdate("persons", "id")
+          .select("select id from persons where id >= ? and id < ? and id > ?", select -> select.setLong(3, 90L))
+          .update("update persons set age=? where id=?")
+          .execute((row, update) -> {
+            update.setInt(1, 1).setLong(2, row.getLong(1));
+            return true;
+          });
+      }
+    }.execute();
+
+    assertThat(db.countSql("select count(1) from persons where age = 1")).isEqualTo(10);
+  }
+
+  @Test
+  public void do_nothing_if_table_is_empty() throws SQLException {
+    execute(massUpdate -> massUpdate, (row, update) -> {
+      throw new IllegalStateException("Should not be called");
+    });
+
+    assertThat(db.countRowsOfTable("internal_properties")).isEqualTo(0);
+  }
+
+  @Test
+  public void display_current_row_details_if_error() throws SQLException {
+    insertPersons(1, 1);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Error during processing of row: [id=1]");
+
+    execute(massUpdate -> massUpdate, (row, update) -> {
+      throw new IllegalStateException("Unexpected error");
+    });
+  }
+
+  @Test
+  public void resume_partitions_which_are_not_processed_after_failure() throws SQLException {
+    insertPersons(1, 100);
+    Set<Long> processedIds = ConcurrentHashMap.newKeySet();
+
+    try {
+      execute(massUpdate -> massUpdate.threads(1).partitions(10).resumable(CHECKPOINT_KEY), (row, update) -> {
+        long id = row.getLong(1);
+        if (id == 35L) {
+          throw new IllegalStateException("Unexpected error");
+        }
+        update.setInt(1, 1).setLong(2, id);
+        return true;
+      });
+      fail("An exception should have been raised");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageContaining("Error during processing of row: [id=35]");
+    }
+    // partitions [1, 11[, [11, 21[ and [21, 31[ are completed, updates of partition [31, 41[ are not committed
+    assertThat(db.countSql("select count(1) from persons where age = 1")).isEqualTo(30);
+    assertThat(db.select("select text_value as \"value\" from internal_properties where kee='" + CHECKPOINT_KEY + "'"))
+      .extracting(row -> row.get("value"))
+      .containsExactly("1,100,10," + encode(0, 1, 2));
+
+    execute(massUpdate -> massUpdate.threads(2).partitions(10).resumable(CHECKPOINT_KEY), (row, update) -> {
+      long id = row.getLong(1);
+      processedIds.add(id);
+      update.setInt(1, 2).setLong(2, id);
+      return true;
+    });
+
+    assertThat(processedIds).hasSize(70).allMatch(id -> id > 30L);
+    assertThat(db.countSql("select count(1) from persons where age = 1")).isEqualTo(30);
+    assertThat(db.countSql("select count(1) from persons where age = 2")).isEqualTo(70);
+    assertThat(db.countRowsOfTable("internal_properties")).isEqualTo(0);
+  }
+
+  @Test
+  public void propagate_failure_which_cancelled_other_partitions() throws SQLException {
+    insertPersons(1, 100);
+    CountDownLatch failed = new CountDownLatch(1);
+
+    try {
+      execute(massUpdate -> massUpdate.threads(2).partitions(2), (row, update) -> {
+        long id = row.getLong(1);
+        if (id == 51L) {
+          failed.countDown();
+          throw new IllegalStateException("Unexpected error");
+        }
+        if (id == 1L) {
+          // the first partition goes on once the second one failed, then it's cancelled
+          Uninterruptibles.awaitUninterruptibly(failed);
+          Uninterruptibles.sleepUninterruptibly(100L, TimeUnit.MILLISECONDS);
+        }
+        update.setInt(1, 1).setLong(2, id);
+        return true;
+      });
+      fail("An exception should have been raised");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageContaining("Error during processing of row: [id=51]");
+    }
+  }
+
+  @Test
+  public void plan_does_not_create_empty_partitions() {
+    PartitionedMassUpdate.Plan plan = new PartitionedMassUpdate.Plan(5, 7, 10, new BitSet());
+
+    assertThat(plan.count()).isEqualTo(3);
+    assertThat(plan.lowerBound(0)).isEqualTo(5);
+    assertThat(plan.upperBound(2)).isEqualTo(8);
+  }
+
+  @Test
+  public void plan_is_stable_when_restored_from_checkpoint() {
+    PartitionedMassUpdate.Plan plan = new PartitionedMassUpdate.Plan(1, 1_000_003, 16, new BitSet());
+    PartitionedMassUpdate.Plan restored = PartitionedMassUpdate.Plan.parse(plan.format());
+
+    assertThat(restored.count()).isEqualTo(plan.count());
+    for (int i = 0; i < plan.count(); i++) {
+      assertThat(restored.lowerBound(i)).isEqualTo(plan.lowerBound(i));
+      assertThat(restored.upperBound(i)).isEqualTo(plan.upperBound(i));
+    }
+    assertThat(plan.upperBound(plan.count() - 1)).isEqualTo(1_000_004);
+  }
+
+  @Test
+  public void fail_if_update_is_not_defined() throws SQLException {
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("SELECT or UPDATE requests are not defined");
+
+    new PartitionedMassUpdate(db.database(), "persons", "id")
+      .select("select id from persons where id >= ? and id < ?")
+      .execute((row, update) -> false);
+  }
+
+  @Test
+  public void fail_if_checkpoint_key_is_too_long() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Checkpoint key must have between 1 and 20 characters");
+
+    new PartitionedMassUpdate(db.database(), "persons", "id").resumable("abcdefghijklmnopqrstu");
+  }
+
+  private void execute(Configurer configurer, MassUpdate.Handler handler) throws SQLException {
+    new DataChange(db.database()) {
+      @Override
+      protected void execute(Context context) throws SQLException {
+        PartitionedMassUpdate massUpdate = context.preparePartitionedMassUpdate("persons", "id")
+          .select("select id from persons where id >= ? and id < ?")
+          .update("update persons set age=? where id=?");
+        configurer.configure(massUpdate).execute(handler);
+      }
+    }.execute();
+  }
+
+  private void insertPersons(int fromId, int toId) {
+    for (int id = fromId; id <= toId; id++) {
+      db.executeInsert("persons", "id", id, "login", "login" + id);
+    }
+  }
+
+  private static String encode(int... partitions) {
+    BitSet bitSet = new BitSet();
+    for (int partition : partitions) {
+      bitSet.set(partition);
+    }
+    return java.util.Base64.getEncoder().encodeToString(bitSet.toByteArray());
+  }
+
+  @FunctionalInterface
+  private interface Configurer {
+    PartitionedMassUpdate configure(PartitionedMassUpdate massUpdate);
+  }
+}
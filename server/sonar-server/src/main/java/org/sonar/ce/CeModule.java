@@ -22,8 +22,11 @@ package org.sonar.ce;
 import org.sonar.ce.http.CeHttpClientImpl;
 import org.sonar.ce.log.CeLogging;
 import org.sonar.ce.queue.CeQueueImpl;
+import org.sonar.ce.queue.CeTaskInputStoreProvider;
+import org.sonar.ce.taskprocessor.IssueBulkChangeTaskProcessorDeclaration;
 import org.sonar.ce.taskprocessor.ReportTaskProcessorDeclaration;
 import org.sonar.core.platform.Module;
+import org.sonar.server.computation.queue.ChunkedReportSubmitter;
 import org.sonar.server.computation.queue.ReportSubmitter;
 
 public class CeModule extends Module {
@@ -33,10 +36,13 @@ public class CeModule extends Module {
       CeHttpClientImpl.class,
 
       // Queue
+      new CeTaskInputStoreProvider(),
       CeQueueImpl.class,
       ReportSubmitter.class,
+      ChunkedReportSubmitter.class,
 
       // Core tasks processors
-      ReportTaskProcessorDeclaration.class);
+      ReportTaskProcessorDeclaration.class,
+      IssueBulkChangeTaskProcessorDeclaration.class);
   }
 }
@@ -0,0 +1,96 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Collection;
+import java.util.Optional;
+import org.sonar.db.DbSession;
+
+/**
+ * Storage of the input data of Compute Engine tasks, for example the analysis reports
+ * submitted by scanners. Data is streamed in and out so that it is never fully loaded in memory.
+ * <p>
+ * The input of a task can also be stored in several parts, named by {@link #partUuid(String, int)}. The parts
+ * of a task are kept as long as the task is in the queue, or as long as the input stored under the UUID of the task
+ * is used.
+ * </p>
+ */
+public interface CeTaskInputStore {
+
+  /**
+   * Name of the part {@code index} of the input of the task {@code taskUuid}, when the input is stored in parts.
+   */
+  static String partUuid(String taskUuid, int index) {
+    return taskUuid + "." + index;
+  }
+
+  /**
+   * Stores the input of a task. It must be called before submitting the task to the queue.
+   * The stream {@code data} is fully consumed but not closed.
+   */
+  void store(DbSession dbSession, String taskUuid, InputStream data);
+
+  /**
+   * Opens the input of a task, if any. The returned stream must be closed by the caller.
+   */
+  Optional<InputStream> open(DbSession dbSession, String taskUuid);
+
+  /**
+   * Whether an input is stored for the task. The input is not read.
+   */
+  boolean exists(DbSession dbSession, String taskUuid);
+
+  /**
+   * Number of consecutive parts of the input of a task, starting from part 0. The parts are not read.
+   */
+  int countParts(DbSession dbSession, String taskUuid);
+
+  /**
+   * Opens the input of a task which has been stored in parts, if any. The parts are read one after the other, from part 0
+   * to the last consecutive one. The returned stream must be closed by the caller.
+   */
+  default Optional<InputStream> openParts(DbSession dbSession, String taskUuid) {
+    return open(dbSession, partUuid(taskUuid, 0))
+      .map(firstPart -> new SequenceInputStream(new TaskInputPartsEnumeration(this, dbSession, taskUuid, firstPart)));
+  }
+
+  void delete(DbSession dbSession, Collection<String> taskUuids);
+
+  /**
+   * Deletes all the parts of the input of a task, see {@link #partUuid(String, int)}. The input stored under the UUID of
+   * the task itself is kept.
+   */
+  void deleteParts(DbSession dbSession, String taskUuid);
+
+  /**
+   * Marks the inputs as used now, so that they are not considered as orphans by {@link #deleteOrphans(DbSession, long)}
+   * while they are still being built, for example by an upload in chunks. Unknown inputs are ignored.
+   */
+  void touch(DbSession dbSession, Collection<String> taskUuids);
+
+  /**
+   * Deletes the inputs of the tasks that are not in the queue anymore and that have been stored or touched for the last time
+   * before {@code usedBefore}. The inputs used later are kept, as their tasks may not be submitted yet. Parts are kept
+   * as long as the input stored under the UUID of their task is kept, so that touching it is enough.
+   */
+  void deleteOrphans(DbSession dbSession, long usedBefore);
+}
@@ -0,0 +1,73 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.picocontainer.injectors.ProviderAdapter;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.MessageException;
+import org.sonar.db.DbClient;
+import org.sonar.server.platform.ServerFileSystem;
+
+import static java.lang.String.format;
+
+/**
+ * Provides the {@link CeTaskInputStore} selected by the property {@link #PROPERTY_TYPE}:
+ * <ul>
+ *   <li>{@link #TYPE_DATABASE} (default) stores inputs in the table CE_TASK_INPUT</li>
+ *   <li>{@link #TYPE_FILESYSTEM} stores inputs in the directory defined by {@link #PROPERTY_PATH}, which
+ *   must be shared by all the nodes of a cluster</li>
+ * </ul>
+ */
+@ServerSide
+@ComputeEngineSide
+public class CeTaskInputStoreProvider extends ProviderAdapter {
+
+  public static final String PROPERTY_TYPE = "sonar.ce.taskInputStore";
+  public static final String PROPERTY_PATH = "sonar.ce.taskInputStore.path";
+  public static final String TYPE_DATABASE = "database";
+  public static final String TYPE_FILESYSTEM = "filesystem";
+
+  private CeTaskInputStore store;
+
+  public CeTaskInputStore provide(Configuration config, DbClient dbClient, ServerFileSystem fs) {
+    if (store == null) {
+      String type = config.get(PROPERTY_TYPE).orElse(TYPE_DATABASE);
+      switch (type) {
+        case TYPE_DATABASE:
+          store = new DbCeTaskInputStore(dbClient);
+          break;
+        case TYPE_FILESYSTEM:
+          Path directory = config.get(PROPERTY_PATH)
+            .map(path -> Paths.get(path))
+            .orElseGet(() -> new File(fs.getDataDir(), "ce/task-inputs").toPath());
+          store = new FileSystemCeTaskInputStore(dbClient, directory.toAbsolutePath());
+          break;
+        default:
+          throw MessageException.of(format("Unsupported value '%s' of property %s. Supported values are: %s, %s", type, PROPERTY_TYPE, TYPE_DATABASE, TYPE_FILESYSTEM));
+      }
+    }
+    return store;
+  }
+}
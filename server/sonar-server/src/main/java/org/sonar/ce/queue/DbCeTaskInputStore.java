@@ -0,0 +1,137 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskInputDao;
+
+import static org.sonar.core.util.stream.MoreCollectors.toList;
+import static org.sonar.core.util.stream.MoreCollectors.toSet;
+
+/**
+ * Stores the inputs of tasks in the table CE_TASK_INPUT. This is the default implementation.
+ */
+public class DbCeTaskInputStore implements CeTaskInputStore {
+
+  private final DbClient dbClient;
+
+  public DbCeTaskInputStore(DbClient dbClient) {
+    this.dbClient = dbClient;
+  }
+
+  @Override
+  public void store(DbSession dbSession, String taskUuid, InputStream data) {
+    dbClient.ceTaskInputDao().insert(dbSession, taskUuid, data);
+  }
+
+  @Override
+  public Optional<InputStream> open(DbSession dbSession, String taskUuid) {
+    return dbClient.ceTaskInputDao().selectData(dbSession, taskUuid).map(DataStreamInputStream::new);
+  }
+
+  @Override
+  public boolean exists(DbSession dbSession, String taskUuid) {
+    return dbClient.ceTaskInputDao().exists(dbSession, taskUuid);
+  }
+
+  @Override
+  public int countParts(DbSession dbSession, String taskUuid) {
+    // part UUIDs are "<task uuid>.<index>"
+    int prefixLength = taskUuid.length() + 1;
+    Set<Integer> indexes = dbClient.ceTaskInputDao().selectUuidsStartingWith(dbSession, taskUuid).stream()
+      .map(uuid -> uuid.substring(prefixLength))
+      .filter(index -> index.chars().allMatch(Character::isDigit))
+      .map(Integer::valueOf)
+      .collect(toSet());
+    int count = 0;
+    while (indexes.contains(count)) {
+      count++;
+    }
+    return count;
+  }
+
+  @Override
+  public void delete(DbSession dbSession, Collection<String> taskUuids) {
+    dbClient.ceTaskInputDao().deleteByUuids(dbSession, taskUuids);
+  }
+
+  @Override
+  public void deleteParts(DbSession dbSession, String taskUuid) {
+    CeTaskInputDao dao = dbClient.ceTaskInputDao();
+    dao.deleteByUuids(dbSession, dao.selectUuidsStartingWith(dbSession, taskUuid));
+  }
+
+  @Override
+  public void touch(DbSession dbSession, Collection<String> taskUuids) {
+    dbClient.ceTaskInputDao().touch(dbSession, taskUuids);
+  }
+
+  @Override
+  public void deleteOrphans(DbSession dbSession, long usedBefore) {
+    List<String> orphans = dbClient.ceTaskInputDao().selectUuidsNotInQueue(dbSession, usedBefore);
+    if (orphans.stream().anyMatch(DbCeTaskInputStore::isPart)) {
+      // parts are not referenced by the queue, they are kept as long as their task is in it or its own input is kept
+      Set<String> uuidsInQueue = dbClient.ceQueueDao().selectAllInAscOrder(dbSession).stream()
+        .map(CeQueueDto::getUuid)
+        .collect(toSet());
+      Set<String> orphanUuids = new HashSet<>(orphans);
+      Map<String, Boolean> usedTasks = new HashMap<>();
+      orphans = orphans.stream()
+        .filter(uuid -> !isPart(uuid) || !usedTasks.computeIfAbsent(uuid.substring(0, uuid.indexOf('.')),
+          taskUuid -> uuidsInQueue.contains(taskUuid) || (!orphanUuids.contains(taskUuid) && exists(dbSession, taskUuid))))
+        .collect(toList());
+    }
+    dbClient.ceTaskInputDao().deleteByUuids(dbSession, orphans);
+    dbSession.commit();
+  }
+
+  private static boolean isPart(String uuid) {
+    return uuid.indexOf('.') > 0;
+  }
+
+  /**
+   * Releases the JDBC resources of the {@link CeTaskInputDao.DataStream} when the stream is closed
+   */
+  private static class DataStreamInputStream extends FilterInputStream {
+    private final CeTaskInputDao.DataStream dataStream;
+
+    private DataStreamInputStream(CeTaskInputDao.DataStream dataStream) {
+      super(dataStream.getInputStream());
+      this.dataStream = dataStream;
+    }
+
+    @Override
+    public void close() throws IOException {
+      dataStream.close();
+    }
+  }
+}
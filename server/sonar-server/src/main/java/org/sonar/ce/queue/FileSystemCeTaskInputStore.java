@@ -0,0 +1,291 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.stream.MoreCollectors;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Stores the inputs of tasks as files of a directory, which must be shared by all the nodes of a cluster.
+ * Each input is stored in a file named by the task UUID, along with the SHA-256 checksum of its content,
+ * which is verified when the input is read.
+ */
+public class FileSystemCeTaskInputStore implements CeTaskInputStore {
+
+  private static final Logger LOG = Loggers.get(FileSystemCeTaskInputStore.class);
+  private static final String CHECKSUM_SUFFIX = ".sha256";
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final String CHECKSUM_ALGORITHM = "SHA-256";
+
+  private final DbClient dbClient;
+  private final Path directory;
+
+  public FileSystemCeTaskInputStore(DbClient dbClient, Path directory) {
+    this.dbClient = dbClient;
+    this.directory = directory;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  @Override
+  public void store(DbSession dbSession, String taskUuid, InputStream data) {
+    Path tmpFile = directory.resolve(taskUuid + TMP_SUFFIX);
+    try {
+      Files.createDirectories(directory);
+      MessageDigest digest = newDigest();
+      try (OutputStream output = new DigestOutputStream(Files.newOutputStream(tmpFile), digest)) {
+        IOUtils.copyLarge(data, output);
+      }
+      Files.write(checksumFile(taskUuid), Hex.encodeHexString(digest.digest()).getBytes(UTF_8));
+      // the data file is created last, so that an input is never read while being written
+      Files.move(tmpFile, dataFile(taskUuid), StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      deleteQuietly(tmpFile);
+      throw new IllegalStateException("Fail to store input of CE task " + taskUuid, e);
+    }
+  }
+
+  @Override
+  public Optional<InputStream> open(DbSession dbSession, String taskUuid) {
+    Path dataFile = dataFile(taskUuid);
+    if (!Files.exists(dataFile)) {
+      return Optional.empty();
+    }
+    try {
+      String expectedChecksum = new String(Files.readAllBytes(checksumFile(taskUuid)), UTF_8);
+      return Optional.of(new ChecksumVerifyingInputStream(Files.newInputStream(dataFile), expectedChecksum, taskUuid));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read input of CE task " + taskUuid, e);
+    }
+  }
+
+  @Override
+  public boolean exists(DbSession dbSession, String taskUuid) {
+    return Files.exists(dataFile(taskUuid));
+  }
+
+  @Override
+  public int countParts(DbSession dbSession, String taskUuid) {
+    int count = 0;
+    while (exists(dbSession, CeTaskInputStore.partUuid(taskUuid, count))) {
+      count++;
+    }
+    return count;
+  }
+
+  @Override
+  public void delete(DbSession dbSession, Collection<String> taskUuids) {
+    taskUuids.forEach(this::delete);
+  }
+
+  private void delete(String taskUuid) {
+    deleteQuietly(dataFile(taskUuid));
+    deleteQuietly(checksumFile(taskUuid));
+    deleteQuietly(directory.resolve(taskUuid + TMP_SUFFIX));
+  }
+
+  @Override
+  public void deleteParts(DbSession dbSession, String taskUuid) {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    // task UUIDs do not contain glob special characters
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, taskUuid + ".[0-9]*")) {
+      for (Path file : files) {
+        deleteQuietly(file);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to delete parts of input of CE task " + taskUuid, e);
+    }
+  }
+
+  @Override
+  public void touch(DbSession dbSession, Collection<String> taskUuids) {
+    FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+    for (String taskUuid : taskUuids) {
+      for (Path file : new Path[] {dataFile(taskUuid), checksumFile(taskUuid)}) {
+        try {
+          if (Files.exists(file)) {
+            Files.setLastModifiedTime(file, now);
+          }
+        } catch (IOException e) {
+          throw new IllegalStateException("Fail to touch input of CE task " + taskUuid, e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void deleteOrphans(DbSession dbSession, long usedBefore) {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    Set<String> uuidsInQueue = dbClient.ceQueueDao().selectAllInAscOrder(dbSession).stream()
+      .map(CeQueueDto::getUuid)
+      .collect(MoreCollectors.toSet());
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        String taskUuid = toTaskUuid(file);
+        if (!uuidsInQueue.contains(taskUuid) && lastUse(file, taskUuid) < usedBefore) {
+          LOG.debug("Delete orphan input of CE task {}", taskUuid);
+          deleteQuietly(file);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to clean-up directory " + directory, e);
+    }
+  }
+
+  /**
+   * Parts are used as long as the input stored under the UUID of their task is used
+   */
+  private long lastUse(Path file, String taskUuid) throws IOException {
+    long lastUse = Files.getLastModifiedTime(file).toMillis();
+    try {
+      return Math.max(lastUse, Files.getLastModifiedTime(dataFile(taskUuid)).toMillis());
+    } catch (NoSuchFileException e) {
+      // only parts are stored, or the input of the task has already been deleted
+      return lastUse;
+    }
+  }
+
+  private static String toTaskUuid(Path file) {
+    String fileName = file.getFileName().toString();
+    int extensionIndex = fileName.indexOf('.');
+    return extensionIndex < 0 ? fileName : fileName.substring(0, extensionIndex);
+  }
+
+  private Path dataFile(String taskUuid) {
+    return directory.resolve(taskUuid);
+  }
+
+  private Path checksumFile(String taskUuid) {
+    return directory.resolve(taskUuid + CHECKSUM_SUFFIX);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(CHECKSUM_ALGORITHM + " is not supported", e);
+    }
+  }
+
+  /**
+   * Fails when the end of the stream is reached and the content does not match the checksum
+   * computed when it was stored. As readers like {@link java.util.zip.ZipInputStream} may stop
+   * before the end, the remaining bytes are read when the stream is closed.
+   */
+  private static class ChecksumVerifyingInputStream extends FilterInputStream {
+    private final MessageDigest digest = newDigest();
+    private final String expectedChecksum;
+    private final String taskUuid;
+    private boolean verified = false;
+
+    private ChecksumVerifyingInputStream(InputStream in, String expectedChecksum, String taskUuid) {
+      super(in);
+      this.expectedChecksum = expectedChecksum;
+      this.taskUuid = taskUuid;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b < 0) {
+        verify();
+      } else {
+        digest.update((byte) b);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int count = super.read(buffer, offset, length);
+      if (count < 0) {
+        verify();
+      } else {
+        digest.update(buffer, offset, count);
+      }
+      return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      throw new IOException("Skipping bytes is not supported, as the content would not be verified");
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        if (!verified) {
+          byte[] buffer = new byte[8192];
+          while (read(buffer, 0, buffer.length) >= 0) {
+            // verification is done when reaching the end of stream
+          }
+        }
+      } finally {
+        super.close();
+      }
+    }
+
+    private void verify() throws IOException {
+      if (!verified) {
+        verified = true;
+        String checksum = Hex.encodeHexString(digest.digest());
+        if (!checksum.equals(expectedChecksum)) {
+          throw new IOException("Input of CE task " + taskUuid + " is corrupted: checksum " + checksum + " does not match " + expectedChecksum);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import org.sonar.db.DbSession;
+
+/**
+ * Opens the parts of the input of a task one after the other, so that only one of them is opened at a time
+ * when read by a {@link java.io.SequenceInputStream}.
+ */
+class TaskInputPartsEnumeration implements Enumeration<InputStream> {
+  private final CeTaskInputStore store;
+  private final DbSession dbSession;
+  private final String taskUuid;
+  private int nextIndex = 1;
+  private boolean lastPartOpened = false;
+  @CheckForNull
+  private InputStream next;
+
+  TaskInputPartsEnumeration(CeTaskInputStore store, DbSession dbSession, String taskUuid, InputStream firstPart) {
+    this.store = store;
+    this.dbSession = dbSession;
+    this.taskUuid = taskUuid;
+    this.next = firstPart;
+  }
+
+  @Override
+  public boolean hasMoreElements() {
+    if (next == null && !lastPartOpened) {
+      Optional<InputStream> part = store.open(dbSession, CeTaskInputStore.partUuid(taskUuid, nextIndex));
+      if (part.isPresent()) {
+        next = part.get();
+        nextIndex++;
+      } else {
+        lastPartOpened = true;
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  public InputStream nextElement() {
+    if (!hasMoreElements()) {
+      throw new NoSuchElementException();
+    }
+    InputStream result = next;
+    next = null;
+    return result;
+  }
+}
@@ -36,6 +36,10 @@ public class CeWsModule extends Module {
       TaskFormatter.class,
       TaskAction.class,
       TaskTypesAction.class,
+      UploadStartAction.class,
+      UploadChunkAction.class,
+      UploadStatusAction.class,
+      UploadCommitAction.class,
       WorkerCountAction.class);
   }
 }
@@ -120,7 +120,7 @@ public class SubmitAction implements CeWsAction {
     }
   }
 
-  private static Map<String, String> parseTaskCharacteristics(Request wsRequest) {
+  static Map<String, String> parseTaskCharacteristics(Request wsRequest) {
     Map<String, String> characteristics = new LinkedHashMap<>();
 
     for (String param : wsRequest.multiParam(PARAM_ANALYSIS_CHARACTERISTIC)) {
@@ -90,6 +90,7 @@ public class TaskFormatter {
     setNullable(dto.getStartedAt(), builder::setStartedAt, DateUtils::formatDateTime);
     setNullable(computeExecutionTimeMs(dto), builder::setExecutionTimeMs);
     setBranch(builder, dto.getUuid(), componentDtoCache);
+    setProgress(builder, dto.getUuid(), componentDtoCache);
     return builder.build();
   }
 
@@ -119,6 +120,7 @@ public class TaskFormatter {
       builder.setAnalysisId(analysisUuid);
     }
     setBranch(builder, dto.getUuid(), componentDtoCache);
+    setProgress(builder, dto.getUuid(), componentDtoCache);
     setNullable(analysisUuid, builder::setAnalysisId);
     setNullable(dto.getSubmitterLogin(), builder::setSubmitterLogin);
     builder.setSubmittedAt(formatDateTime(new Date(dto.getSubmittedAt())));
@@ -143,6 +145,11 @@ public class TaskFormatter {
     return builder;
   }
 
+  private static void setProgress(WsCe.Task.Builder builder, String taskUuid, DtoCache componentDtoCache) {
+    componentDtoCache.getLongCharacteristic(taskUuid, CeTaskCharacteristicDto.TOTAL_ITEMS_KEY).ifPresent(builder::setTotalItems);
+    componentDtoCache.getLongCharacteristic(taskUuid, CeTaskCharacteristicDto.PROCESSED_ITEMS_KEY).ifPresent(builder::setProcessedItems);
+  }
+
   private static WsCe.Task.Builder setBranch(WsCe.Task.Builder builder, String taskUuid, DtoCache componentDtoCache) {
     componentDtoCache.getBranchName(taskUuid).ifPresent(
       b -> {
@@ -243,6 +250,13 @@ public class TaskFormatter {
         .findAny();
     }
 
+    Optional<Long> getLongCharacteristic(String taskUuid, String key) {
+      return characteristicsByTaskUuid.get(taskUuid).stream()
+        .filter(c -> c.getKey().equals(key))
+        .map(c -> Long.parseLong(c.getValue()))
+        .findAny();
+    }
+
     Optional<Common.BranchType> getBranchType(String taskUuid) {
       return characteristicsByTaskUuid.get(taskUuid).stream()
         .filter(c -> c.getKey().equals(CeTaskCharacteristicDto.BRANCH_TYPE_KEY))
@@ -0,0 +1,90 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.ws;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.server.computation.queue.ChunkedReportSubmitter;
+import org.sonarqube.ws.WsCe;
+
+import static org.sonar.server.ws.WsUtils.writeProtobuf;
+import static org.sonarqube.ws.client.ce.CeWsParameters.ACTION_UPLOAD_CHUNK;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNK;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNK_CHECKSUM;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNK_INDEX;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_UPLOAD_ID;
+
+public class UploadChunkAction implements CeWsAction {
+
+  private final ChunkedReportSubmitter chunkedReportSubmitter;
+
+  public UploadChunkAction(ChunkedReportSubmitter chunkedReportSubmitter) {
+    this.chunkedReportSubmitter = chunkedReportSubmitter;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller.createAction(ACTION_UPLOAD_CHUNK)
+      .setDescription("Sends a chunk of a report upload started with 'api/ce/upload_start'. Chunks must be sent in order. " +
+        "Sending again a chunk which has already been received replaces it, so that an interrupted upload can be resumed.")
+      .setPost(true)
+      .setInternal(true)
+      .setSince("6.6")
+      .setHandler(this)
+      .setResponseExample(getClass().getResource("upload-example.json"));
+
+    action.createParam(PARAM_UPLOAD_ID)
+      .setRequired(true)
+      .setDescription("Id of the upload")
+      .setExampleValue("AU-Tpxb--iU5OvuD2FLy");
+
+    action.createParam(PARAM_CHUNK_INDEX)
+      .setRequired(true)
+      .setDescription("Index of the chunk, starting from 0")
+      .setExampleValue("0");
+
+    action.createParam(PARAM_CHUNK_CHECKSUM)
+      .setRequired(true)
+      .setDescription("SHA-256 of the chunk, in hexadecimal")
+      .setExampleValue("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08");
+
+    action.createParam(PARAM_CHUNK)
+      .setRequired(true)
+      .setDescription("Content of the chunk");
+  }
+
+  @Override
+  public void handle(Request wsRequest, Response wsResponse) throws Exception {
+    String uploadId = wsRequest.mandatoryParam(PARAM_UPLOAD_ID);
+    int index = wsRequest.mandatoryParamAsInt(PARAM_CHUNK_INDEX);
+    String checksum = wsRequest.mandatoryParam(PARAM_CHUNK_CHECKSUM);
+
+    try (InputStream chunk = new BufferedInputStream(wsRequest.mandatoryParamAsPart(PARAM_CHUNK).getInputStream())) {
+      int nextChunk = chunkedReportSubmitter.addChunk(uploadId, index, checksum, chunk);
+      writeProtobuf(WsCe.UploadResponse.newBuilder()
+        .setUploadId(uploadId)
+        .setNextChunk(nextChunk)
+        .build(), wsRequest, wsResponse);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.ws;
+
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.server.computation.queue.ChunkedReportSubmitter;
+import org.sonarqube.ws.WsCe;
+
+import static org.sonar.server.ws.WsUtils.writeProtobuf;
+import static org.sonarqube.ws.client.ce.CeWsParameters.ACTION_UPLOAD_COMMIT;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNKS;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_UPLOAD_ID;
+
+public class UploadCommitAction implements CeWsAction {
+
+  private final ChunkedReportSubmitter chunkedReportSubmitter;
+
+  public UploadCommitAction(ChunkedReportSubmitter chunkedReportSubmitter) {
+    this.chunkedReportSubmitter = chunkedReportSubmitter;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller.createAction(ACTION_UPLOAD_COMMIT)
+      .setDescription("Submits the report uploaded in chunks to the queue. Report is processed asynchronously. Requires analysis permission. " +
+        "If the project does not exist, then the provisioning permission is also required.")
+      .setPost(true)
+      .setInternal(true)
+      .setSince("6.6")
+      .setHandler(this)
+      .setResponseExample(getClass().getResource("submit-example.json"));
+
+    action.createParam(PARAM_UPLOAD_ID)
+      .setRequired(true)
+      .setDescription("Id of the upload")
+      .setExampleValue("AU-Tpxb--iU5OvuD2FLy");
+
+    action.createParam(PARAM_CHUNKS)
+      .setRequired(true)
+      .setDescription("Number of chunks of the report")
+      .setExampleValue("3");
+  }
+
+  @Override
+  public void handle(Request wsRequest, Response wsResponse) throws Exception {
+    String uploadId = wsRequest.mandatoryParam(PARAM_UPLOAD_ID);
+    int chunks = wsRequest.mandatoryParamAsInt(PARAM_CHUNKS);
+
+    CeTask task = chunkedReportSubmitter.commit(uploadId, chunks);
+    writeProtobuf(WsCe.SubmitResponse.newBuilder()
+      .setTaskId(task.getUuid())
+      .setProjectId(task.getComponentUuid())
+      .build(), wsRequest, wsResponse);
+  }
+}
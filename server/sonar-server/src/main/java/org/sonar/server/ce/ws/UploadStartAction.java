@@ -0,0 +1,107 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.ws;
+
+import java.util.Map;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.server.computation.queue.ChunkedReportSubmitter;
+import org.sonar.server.organization.DefaultOrganizationProvider;
+import org.sonarqube.ws.WsCe;
+
+import static org.sonar.server.ws.WsUtils.writeProtobuf;
+import static org.sonarqube.ws.client.ce.CeWsParameters.ACTION_UPLOAD_START;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_ANALYSIS_CHARACTERISTIC;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_ORGANIZATION;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_PROJECT_BRANCH;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_PROJECT_KEY;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_PROJECT_NAME;
+
+public class UploadStartAction implements CeWsAction {
+
+  private final ChunkedReportSubmitter chunkedReportSubmitter;
+  private final DefaultOrganizationProvider defaultOrganizationProvider;
+
+  public UploadStartAction(ChunkedReportSubmitter chunkedReportSubmitter, DefaultOrganizationProvider defaultOrganizationProvider) {
+    this.chunkedReportSubmitter = chunkedReportSubmitter;
+    this.defaultOrganizationProvider = defaultOrganizationProvider;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller.createAction(ACTION_UPLOAD_START)
+      .setDescription("Starts the upload of a scanner report in chunks. Chunks are sent with 'api/ce/upload_chunk', " +
+        "then the report is submitted to the queue by 'api/ce/upload_commit'. " +
+        "Uploads which do not receive any chunk for one hour are dropped. " +
+        "Permissions are the same as for 'api/ce/submit'. They are verified when the upload is started and when it is committed.")
+      .setPost(true)
+      .setInternal(true)
+      .setSince("6.6")
+      .setHandler(this)
+      .setResponseExample(getClass().getResource("upload-example.json"));
+
+    action.createParam(PARAM_ORGANIZATION)
+      .setDescription("Key of the organization the project belongs to")
+      .setExampleValue("my-org")
+      .setInternal(true);
+
+    action
+      .createParam(PARAM_PROJECT_KEY)
+      .setRequired(true)
+      .setDescription("Key of project")
+      .setExampleValue("my_project");
+
+    action
+      .createParam(PARAM_PROJECT_BRANCH)
+      .setDescription("Optional branch of project")
+      .setExampleValue("branch-1.x");
+
+    action
+      .createParam(PARAM_PROJECT_NAME)
+      .setRequired(false)
+      .setDescription("Optional name of the project, used only if the project does not exist yet.")
+      .setExampleValue("My Project");
+
+    action
+      .createParam(PARAM_ANALYSIS_CHARACTERISTIC)
+      .setRequired(false)
+      .setDescription("Optional characteristic of the analysis. Can be repeated to define multiple characteristics.")
+      .setExampleValue("branchType=long");
+  }
+
+  @Override
+  public void handle(Request wsRequest, Response wsResponse) throws Exception {
+    String organizationKey = wsRequest.getParam(PARAM_ORGANIZATION)
+      .emptyAsNull()
+      .or(defaultOrganizationProvider.get()::getKey);
+    String projectKey = wsRequest.mandatoryParam(PARAM_PROJECT_KEY);
+    String projectBranch = wsRequest.param(PARAM_PROJECT_BRANCH);
+    String projectName = StringUtils.defaultIfBlank(wsRequest.param(PARAM_PROJECT_NAME), projectKey);
+    Map<String, String> characteristics = SubmitAction.parseTaskCharacteristics(wsRequest);
+
+    String uploadId = chunkedReportSubmitter.start(organizationKey, projectKey, projectBranch, projectName, characteristics);
+    writeProtobuf(WsCe.UploadResponse.newBuilder()
+      .setUploadId(uploadId)
+      .setNextChunk(0)
+      .build(), wsRequest, wsResponse);
+  }
+}
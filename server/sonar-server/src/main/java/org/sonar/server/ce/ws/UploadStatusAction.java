@@ -0,0 +1,63 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.ws;
+
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.server.computation.queue.ChunkedReportSubmitter;
+import org.sonarqube.ws.WsCe;
+
+import static org.sonar.server.ws.WsUtils.writeProtobuf;
+import static org.sonarqube.ws.client.ce.CeWsParameters.ACTION_UPLOAD_STATUS;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_UPLOAD_ID;
+
+public class UploadStatusAction implements CeWsAction {
+
+  private final ChunkedReportSubmitter chunkedReportSubmitter;
+
+  public UploadStatusAction(ChunkedReportSubmitter chunkedReportSubmitter) {
+    this.chunkedReportSubmitter = chunkedReportSubmitter;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller.createAction(ACTION_UPLOAD_STATUS)
+      .setDescription("Gets the index of the next chunk expected by a report upload, in order to resume it.")
+      .setInternal(true)
+      .setSince("6.6")
+      .setHandler(this)
+      .setResponseExample(getClass().getResource("upload-example.json"));
+
+    action.createParam(PARAM_UPLOAD_ID)
+      .setRequired(true)
+      .setDescription("Id of the upload")
+      .setExampleValue("AU-Tpxb--iU5OvuD2FLy");
+  }
+
+  @Override
+  public void handle(Request wsRequest, Response wsResponse) throws Exception {
+    String uploadId = wsRequest.mandatoryParam(PARAM_UPLOAD_ID);
+    writeProtobuf(WsCe.UploadResponse.newBuilder()
+      .setUploadId(uploadId)
+      .setNextChunk(chunkedReportSubmitter.getNextChunk(uploadId))
+      .build(), wsRequest, wsResponse);
+  }
+}
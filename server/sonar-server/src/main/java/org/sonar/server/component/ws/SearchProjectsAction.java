@@ -116,6 +116,7 @@ public class SearchProjectsAction implements ComponentsWsAction {
         new Change("6.5", "The 'filter' parameter now allows 'NO_DATA' as value for numeric metrics"),
         new Change("6.5", "Added the option 'analysisDate' for the 'sort' parameter"),
         new Change("6.5", format("Value '%s' is added to parameter '%s'", LEAK_PERIOD_DATE, FIELDS)))
+      .setCacheable(true)
       .setHandler(this);
 
     action.createFieldsParam(POSSIBLE_FIELDS)
@@ -0,0 +1,242 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.stream.IntStream;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
+import org.sonar.api.server.ServerSide;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.queue.CeTaskInputStore;
+import org.sonar.core.util.UuidFactory;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.user.UserSession;
+
+import static java.lang.String.format;
+import static java.util.Collections.singletonList;
+import static org.sonar.core.util.stream.MoreCollectors.toList;
+import static org.sonar.server.user.AbstractUserSession.insufficientPrivilegesException;
+import static org.sonar.server.ws.WsUtils.checkRequest;
+
+/**
+ * Receives a scanner report in chunks, so that an interrupted upload can be resumed from the last
+ * acknowledged chunk. The upload and each of its chunks are kept in the {@link CeTaskInputStore}.
+ * The id of the upload is the UUID of the task submitted on commit, and the chunks are stored as the parts
+ * of its input (see {@link CeTaskInputStore#partUuid(String, int)}): committing does not copy them, they
+ * are concatenated by the Compute Engine when reading the report.
+ * <p>
+ * Uploads which are not committed are dropped with the other orphan task inputs, once no chunk has been received for
+ * the grace period of orphans.
+ * </p>
+ */
+@ServerSide
+public class ChunkedReportSubmitter {
+
+  private static final String ORGANIZATION = "organization";
+  private static final String PROJECT_KEY = "projectKey";
+  private static final String PROJECT_BRANCH = "projectBranch";
+  private static final String PROJECT_NAME = "projectName";
+  private static final String SUBMITTER = "submitter";
+  private static final String CHARACTERISTIC_PREFIX = "characteristic.";
+
+  private final ReportSubmitter reportSubmitter;
+  private final CeTaskInputStore taskInputStore;
+  private final UserSession userSession;
+  private final UuidFactory uuidFactory;
+  private final DbClient dbClient;
+
+  public ChunkedReportSubmitter(ReportSubmitter reportSubmitter, CeTaskInputStore taskInputStore, UserSession userSession, UuidFactory uuidFactory,
+    DbClient dbClient) {
+    this.reportSubmitter = reportSubmitter;
+    this.taskInputStore = taskInputStore;
+    this.userSession = userSession;
+    this.uuidFactory = uuidFactory;
+    this.dbClient = dbClient;
+  }
+
+  /**
+   * Starts an upload. Permissions are verified before anything is stored, then again when the upload is committed.
+   *
+   * @return the id of the upload
+   */
+  public String start(String organizationKey, String projectKey, @Nullable String projectBranch, @Nullable String projectName, Map<String, String> characteristics) {
+    reportSubmitter.checkSubmitPermission(organizationKey, projectKey, projectBranch, projectName);
+
+    Properties upload = new Properties();
+    upload.setProperty(ORGANIZATION, organizationKey);
+    upload.setProperty(PROJECT_KEY, projectKey);
+    setIfNotNull(upload, PROJECT_BRANCH, projectBranch);
+    setIfNotNull(upload, PROJECT_NAME, projectName);
+    setIfNotNull(upload, SUBMITTER, userSession.getLogin());
+    characteristics.forEach((key, value) -> upload.setProperty(CHARACTERISTIC_PREFIX + key, value));
+
+    String uploadId = uuidFactory.create();
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      taskInputStore.store(dbSession, uploadId, toInputStream(upload));
+      dbSession.commit();
+    }
+    return uploadId;
+  }
+
+  /**
+   * @return the index of the first chunk which has not been received yet
+   */
+  public int getNextChunk(String uploadId) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      loadUpload(dbSession, uploadId);
+      return taskInputStore.countParts(dbSession, uploadId);
+    }
+  }
+
+  /**
+   * Stores a chunk of the report. Chunks must be added in order. Adding a chunk which has already been received replaces it.
+   *
+   * @param checksum the SHA-256 of the chunk, in hexadecimal
+   * @return the index of the next chunk
+   */
+  public int addChunk(String uploadId, int index, String checksum, InputStream chunk) {
+    checkRequest(index >= 0, "Index of chunk must be positive");
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      loadUpload(dbSession, uploadId);
+      checkRequest(index == 0 || taskInputStore.exists(dbSession, chunkUuid(uploadId, index - 1)), "Chunk %s must be uploaded before chunk %s", index - 1,
+        index);
+
+      String chunkUuid = chunkUuid(uploadId, index);
+      taskInputStore.delete(dbSession, singletonList(chunkUuid));
+      DigestInputStream digestInput = new DigestInputStream(chunk, newSha256());
+      taskInputStore.store(dbSession, chunkUuid, digestInput);
+      if (!Hex.encodeHexString(digestInput.getMessageDigest().digest()).equalsIgnoreCase(checksum)) {
+        taskInputStore.delete(dbSession, singletonList(chunkUuid));
+        dbSession.commit();
+        checkRequest(false, "Checksum of chunk %s does not match", index);
+      }
+      // orphan inputs are dropped according to their last use, so that slow uploads are not dropped while in progress.
+      // Chunks are kept as long as the upload is.
+      taskInputStore.touch(dbSession, singletonList(uploadId));
+      dbSession.commit();
+      return index + 1;
+    }
+  }
+
+  /**
+   * Submits the report made of the chunks [0, {@code chunks}[ to the queue. The chunks are not copied, they become the
+   * input of the task. The other chunks and the upload itself are dropped.
+   */
+  public CeTask commit(String uploadId, int chunks) {
+    checkRequest(chunks > 0, "Number of chunks must be strictly positive");
+    Properties upload;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      upload = loadUpload(dbSession, uploadId);
+      int receivedChunks = taskInputStore.countParts(dbSession, uploadId);
+      checkRequest(receivedChunks >= chunks, "Chunk %s is missing", receivedChunks);
+      // verified before dropping the upload, so that it can still be committed once the permission is granted
+      reportSubmitter.checkSubmitPermission(upload.getProperty(ORGANIZATION), upload.getProperty(PROJECT_KEY), upload.getProperty(PROJECT_BRANCH),
+        upload.getProperty(PROJECT_NAME));
+
+      // the upload has the UUID of the task: it must be dropped before the task is submitted, as it is not the report.
+      // The chunks are touched so that they are not dropped as orphans meanwhile.
+      taskInputStore.touch(dbSession, chunkUuids(uploadId, 0, chunks));
+      List<String> droppedUuids = new ArrayList<>();
+      droppedUuids.add(uploadId);
+      droppedUuids.addAll(chunkUuids(uploadId, chunks, receivedChunks));
+      taskInputStore.delete(dbSession, droppedUuids);
+      dbSession.commit();
+    }
+    return reportSubmitter.submitStoredReport(uploadId, upload.getProperty(ORGANIZATION), upload.getProperty(PROJECT_KEY), upload.getProperty(PROJECT_BRANCH),
+      upload.getProperty(PROJECT_NAME), characteristics(upload));
+  }
+
+  private Properties loadUpload(DbSession dbSession, String uploadId) {
+    Optional<InputStream> input = taskInputStore.open(dbSession, uploadId);
+    if (!input.isPresent()) {
+      throw new NotFoundException(format("Upload '%s' does not exist", uploadId));
+    }
+    Properties upload = new Properties();
+    try (InputStream in = input.get()) {
+      upload.load(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException(format("Fail to read upload '%s'", uploadId), e);
+    }
+    if (!upload.containsKey(PROJECT_KEY) || !Objects.equals(upload.getProperty(SUBMITTER), userSession.getLogin())) {
+      // either not an upload, or an upload started by another user
+      throw insufficientPrivilegesException();
+    }
+    return upload;
+  }
+
+  private static Map<String, String> characteristics(Properties upload) {
+    Map<String, String> characteristics = new LinkedHashMap<>();
+    for (String key : upload.stringPropertyNames().stream().sorted().collect(toList())) {
+      if (key.startsWith(CHARACTERISTIC_PREFIX)) {
+        characteristics.put(key.substring(CHARACTERISTIC_PREFIX.length()), upload.getProperty(key));
+      }
+    }
+    return characteristics;
+  }
+
+  private static String chunkUuid(String uploadId, int index) {
+    return CeTaskInputStore.partUuid(uploadId, index);
+  }
+
+  private static List<String> chunkUuids(String uploadId, int fromIndex, int toIndex) {
+    return IntStream.range(fromIndex, toIndex).mapToObj(index -> chunkUuid(uploadId, index)).collect(toList());
+  }
+
+  private static void setIfNotNull(Properties properties, String key, @Nullable String value) {
+    if (value != null) {
+      properties.setProperty(key, value);
+    }
+  }
+
+  private static InputStream toInputStream(Properties properties) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try {
+      properties.store(output, null);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new ByteArrayInputStream(output.toByteArray());
+  }
+
+  private static MessageDigest newSha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+}
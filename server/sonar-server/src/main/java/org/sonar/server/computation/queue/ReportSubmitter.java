@@ -38,6 +38,7 @@ import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.server.ServerSide;
 import org.sonar.ce.queue.CeQueue;
 import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.queue.CeTaskInputStore;
 import org.sonar.ce.queue.CeTaskSubmit;
 import org.sonar.core.component.ComponentKeys;
 import org.sonar.core.util.UuidFactory;
@@ -65,14 +66,16 @@ public class ReportSubmitter {
   private final PermissionTemplateService permissionTemplateService;
   private final DbClient dbClient;
   private final UuidFactory uuidFactory;
+  private final CeTaskInputStore taskInputStore;
 
   public ReportSubmitter(CeQueue queue, UserSession userSession, ComponentUpdater componentUpdater,
-    PermissionTemplateService permissionTemplateService, UuidFactory uuidFactory, DbClient dbClient) {
+    PermissionTemplateService permissionTemplateService, UuidFactory uuidFactory, DbClient dbClient, CeTaskInputStore taskInputStore) {
     this.queue = queue;
     this.userSession = userSession;
     this.componentUpdater = componentUpdater;
     this.permissionTemplateService = permissionTemplateService;
     this.uuidFactory = uuidFactory;
+    this.taskInputStore = taskInputStore;
     this.dbClient = dbClient;
   }
 
@@ -87,16 +90,48 @@ public class ReportSubmitter {
   public CeTask submit(String organizationKey, String projectKey, @Nullable String projectBranch, @Nullable String projectName, Map<String, String> characteristics,
     InputStream reportInput) {
     try (DbSession dbSession = dbClient.openSession(false)) {
-      OrganizationDto organizationDto = getOrganizationDtoOrFail(dbSession, organizationKey);
-      String effectiveProjectKey = ComponentKeys.createKey(projectKey, projectBranch);
-      Optional<ComponentDto> opt = dbClient.componentDao().selectByKey(dbSession, effectiveProjectKey);
-      ensureOrganizationIsConsistent(opt, organizationDto);
-      ComponentDto project = opt.or(() -> createProject(dbSession, organizationDto, projectKey, projectBranch, projectName));
-      checkScanPermission(project);
-      return submitReport(dbSession, reportInput, project, characteristics);
+      ComponentDto project = getProjectToAnalyze(dbSession, organizationKey, projectKey, projectBranch, projectName);
+      return submitReport(dbSession, queue.prepareSubmit(), reportInput, project, characteristics);
     }
   }
 
+  /**
+   * Same as {@link #submit(String, String, String, String, Map, InputStream)} for a report which has already been stored
+   * in parts for the task {@code taskUuid}. See {@link CeTaskInputStore#partUuid(String, int)}.
+   */
+  public CeTask submitStoredReport(String taskUuid, String organizationKey, String projectKey, @Nullable String projectBranch, @Nullable String projectName,
+    Map<String, String> characteristics) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      ComponentDto project = getProjectToAnalyze(dbSession, organizationKey, projectKey, projectBranch, projectName);
+      return submitReport(dbSession, new CeTaskSubmit.Builder(taskUuid), null, project, characteristics);
+    }
+  }
+
+  /**
+   * Verifies that the current user is allowed to submit a report of the specified project, without submitting anything.
+   * As when submitting a report, the project is created if it does not exist yet.
+   *
+   * @throws NotFoundException if the organization with the specified key does not exist
+   * @throws IllegalArgumentException if the organization with the specified key is not the organization of the specified project (when it already exists in DB)
+   */
+  public void checkSubmitPermission(String organizationKey, String projectKey, @Nullable String projectBranch, @Nullable String projectName) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      getProjectToAnalyze(dbSession, organizationKey, projectKey, projectBranch, projectName);
+      dbSession.commit();
+    }
+  }
+
+  private ComponentDto getProjectToAnalyze(DbSession dbSession, String organizationKey, String projectKey, @Nullable String projectBranch,
+    @Nullable String projectName) {
+    OrganizationDto organizationDto = getOrganizationDtoOrFail(dbSession, organizationKey);
+    String effectiveProjectKey = ComponentKeys.createKey(projectKey, projectBranch);
+    Optional<ComponentDto> opt = dbClient.componentDao().selectByKey(dbSession, effectiveProjectKey);
+    ensureOrganizationIsConsistent(opt, organizationDto);
+    ComponentDto project = opt.or(() -> createProject(dbSession, organizationDto, projectKey, projectBranch, projectName));
+    checkScanPermission(project);
+    return project;
+  }
+
   private void checkScanPermission(ComponentDto project) {
     // this is a specific and inconsistent behavior. For legacy reasons, "technical users"
     // defined on an organization should be able to analyze a project even if
@@ -146,13 +181,15 @@ public class ReportSubmitter {
     return componentUpdater.create(dbSession, newProject, userId);
   }
 
-  private CeTask submitReport(DbSession dbSession, InputStream reportInput, ComponentDto project, Map<String, String> characteristicsMap) {
-    CeTaskSubmit.Builder submit = queue.prepareSubmit();
+  private CeTask submitReport(DbSession dbSession, CeTaskSubmit.Builder submit, @Nullable InputStream reportInput, ComponentDto project,
+    Map<String, String> characteristicsMap) {
     List<CeTaskCharacteristicDto> characteristics = characteristicsMap.entrySet().stream()
       .map(e -> toDto(submit.getUuid(), e.getKey(), e.getValue())).collect(Collectors.toList());
 
     // the report file must be saved before submitting the task
-    dbClient.ceTaskInputDao().insert(dbSession, submit.getUuid(), reportInput);
+    if (reportInput != null) {
+      taskInputStore.store(dbSession, submit.getUuid(), reportInput);
+    }
     if (!characteristics.isEmpty()) {
       dbClient.ceTaskCharacteristicsDao().insert(dbSession, characteristics);
     }
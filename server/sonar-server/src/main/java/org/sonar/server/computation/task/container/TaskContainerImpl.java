@@ -19,7 +19,14 @@
  */
 package org.sonar.server.computation.task.container;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.picocontainer.ComponentAdapter;
 import org.picocontainer.ComponentMonitor;
 import org.picocontainer.DefaultPicoContainer;
@@ -32,14 +39,25 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.platform.ComponentContainer;
 import org.sonar.core.platform.ContainerPopulator;
 import org.sonar.core.platform.Module;
+import org.sonar.core.platform.PluginInfo;
 
 import static java.util.Objects.requireNonNull;
 
 public class TaskContainerImpl extends ComponentContainer implements TaskContainer {
 
+  /**
+   * Classes already declared to a {@link PropertyDefinitions}. The same classes are added to the container of every
+   * task, so their annotations are scanned only once.
+   */
+  private static final Map<PropertyDefinitions, Set<Class<?>>> DECLARED_CLASSES = Collections.synchronizedMap(new WeakHashMap<>());
+
+  @CheckForNull
+  private final Set<Class<?>> declaredClasses;
+
   public TaskContainerImpl(ComponentContainer parent, ContainerPopulator<TaskContainer> populator) {
     super(createContainer(requireNonNull(parent)), parent.getComponentByType(PropertyDefinitions.class));
 
+    this.declaredClasses = DECLARED_CLASSES.computeIfAbsent(getComponentByType(PropertyDefinitions.class), k -> ConcurrentHashMap.newKeySet());
     populateContainer(requireNonNull(populator));
     startComponents();
   }
@@ -56,6 +74,15 @@ public class TaskContainerImpl extends ComponentContainer implements TaskContain
     }
   }
 
+  @Override
+  public void declareExtension(@Nullable PluginInfo pluginInfo, Object extension) {
+    // declaredClasses is null when called by the constructor of ComponentContainer
+    if (declaredClasses != null && extension instanceof Class && !declaredClasses.add((Class<?>) extension)) {
+      return;
+    }
+    super.declareExtension(pluginInfo, extension);
+  }
+
   /**
    * Creates a PicContainer which extends the specified ComponentContainer <strong>but is not referenced in return</strong>
    * and lazily starts its components.
@@ -0,0 +1,401 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+import static org.apache.commons.lang.StringUtils.trimToNull;
+
+/**
+ * Tree of the components of an analysis report, stored in arrays of integers indexed by the position of the
+ * components in the tree. Keys, paths and other strings are stored once in a table shared by all the
+ * components.
+ * <p>
+ * The {@link Component} objects returned by {@link #getRoot()} are lightweight views which are created
+ * on demand, as well as their {@link ReportAttributes} and {@link FileAttributes}. Consequently, memory
+ * does not depend on the number of objects referenced by the tree, but only on the number of components.
+ * </p>
+ */
+@Immutable
+public final class CompactComponentTree {
+  private static final int NULL_STRING = -1;
+  private static final int NO_INDEX = -1;
+  private static final Component.Type[] TYPES = Component.Type.values();
+  private static final Component.Status[] STATUSES = Component.Status.values();
+
+  private final String[] strings;
+  private final byte[] types;
+  private final byte[] statuses;
+  private final int[] uuids;
+  private final int[] keys;
+  private final int[] publicKeys;
+  private final int[] names;
+  private final int[] descriptions;
+  private final int[] refs;
+  private final int[] versions;
+  private final int[] paths;
+  private final int[] languages;
+  private final int[] lines;
+  private final BitSet unitTests;
+  /**
+   * The children of the component at index {@code i} are stored in {@link #children} from index {@code childrenOffsets[i]}
+   * (inclusive) to {@code childrenOffsets[i + 1]} (exclusive).
+   */
+  private final int[] childrenOffsets;
+  private final int[] children;
+  /**
+   * Index of components by report ref, {@link #NO_INDEX} when no component has a given ref.
+   */
+  private final int[] indexesByRef;
+
+  private CompactComponentTree(Builder builder) {
+    int size = builder.size;
+    this.strings = builder.strings.toArray();
+    this.types = Arrays.copyOf(builder.types, size);
+    this.statuses = Arrays.copyOf(builder.statuses, size);
+    this.uuids = Arrays.copyOf(builder.uuids, size);
+    this.keys = Arrays.copyOf(builder.keys, size);
+    this.publicKeys = Arrays.copyOf(builder.publicKeys, size);
+    this.names = Arrays.copyOf(builder.names, size);
+    this.descriptions = Arrays.copyOf(builder.descriptions, size);
+    this.refs = Arrays.copyOf(builder.refs, size);
+    this.versions = Arrays.copyOf(builder.versions, size);
+    this.paths = Arrays.copyOf(builder.paths, size);
+    this.languages = Arrays.copyOf(builder.languages, size);
+    this.lines = Arrays.copyOf(builder.lines, size);
+    this.unitTests = builder.unitTests;
+
+    // components are added in pre-order, so that sorting them by parent keeps the order of the children
+    this.childrenOffsets = new int[size + 1];
+    for (int i = 1; i < size; i++) {
+      childrenOffsets[builder.parents[i] + 1]++;
+    }
+    for (int i = 0; i < size; i++) {
+      childrenOffsets[i + 1] += childrenOffsets[i];
+    }
+    this.children = new int[Math.max(size - 1, 0)];
+    int[] positions = Arrays.copyOf(childrenOffsets, size);
+    for (int i = 1; i < size; i++) {
+      children[positions[builder.parents[i]]++] = i;
+    }
+
+    int maxRef = 0;
+    for (int ref : refs) {
+      maxRef = Math.max(maxRef, ref);
+    }
+    this.indexesByRef = new int[maxRef + 1];
+    Arrays.fill(indexesByRef, NO_INDEX);
+    for (int i = 0; i < size; i++) {
+      indexesByRef[refs[i]] = i;
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public Component getRoot() {
+    checkState(types.length > 0, "Tree is empty");
+    return new ComponentView(this, 0);
+  }
+
+  /**
+   * Number of components in the tree
+   */
+  public int size() {
+    return types.length;
+  }
+
+  public Optional<Component> getComponentByRef(int ref) {
+    if (ref < 0 || ref >= indexesByRef.length || indexesByRef[ref] == NO_INDEX) {
+      return Optional.empty();
+    }
+    return Optional.of(new ComponentView(this, indexesByRef[ref]));
+  }
+
+  /**
+   * The tree the component belongs to, if it has been created by a {@link CompactComponentTree}.
+   */
+  static Optional<CompactComponentTree> treeOf(Component component) {
+    if (component instanceof ComponentView) {
+      return Optional.of(((ComponentView) component).tree);
+    }
+    return Optional.empty();
+  }
+
+  @CheckForNull
+  private String string(int index) {
+    return index == NULL_STRING ? null : strings[index];
+  }
+
+  public static final class Builder {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final StringTable strings = new StringTable();
+    private int size = 0;
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private int[] uuids = new int[INITIAL_CAPACITY];
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private int[] publicKeys = new int[INITIAL_CAPACITY];
+    private int[] names = new int[INITIAL_CAPACITY];
+    private int[] descriptions = new int[INITIAL_CAPACITY];
+    private int[] refs = new int[INITIAL_CAPACITY];
+    private int[] versions = new int[INITIAL_CAPACITY];
+    private int[] paths = new int[INITIAL_CAPACITY];
+    private int[] languages = new int[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+    private final BitSet unitTests = new BitSet();
+
+    private Builder() {
+      // use CompactComponentTree#builder()
+    }
+
+    /**
+     * Adds a component to the tree. Components must be added in pre-order: the root first, then each component
+     * before its children, the children being added in their order in the tree.
+     *
+     * @param parentIndex index of the parent, as returned when it was added, or -1 for the root
+     * @return the index of the component in the tree
+     */
+    public int add(int parentIndex, Component.Type type, Component.Status status, String uuid, String key, String publicKey,
+      String name, @Nullable String description, ReportAttributes reportAttributes, @Nullable FileAttributes fileAttributes) {
+      checkArgument(type.isReportType(), "Only report components can be added to the tree");
+      if (size == 0) {
+        checkArgument(parentIndex == -1, "Root must not have a parent");
+      } else {
+        checkArgument(parentIndex >= 0 && parentIndex < size, "Parent %s has not been added", parentIndex);
+      }
+      checkArgument(reportAttributes.getRef() >= 0, "Ref must not be negative");
+      ensureCapacity();
+      int index = size;
+      types[index] = (byte) type.ordinal();
+      statuses[index] = (byte) requireNonNull(status, "status can't be null").ordinal();
+      parents[index] = parentIndex;
+      uuids[index] = strings.add(requireNonNull(uuid, "uuid can't be null"));
+      keys[index] = strings.add(requireNonNull(key, "key can't be null"));
+      publicKeys[index] = strings.add(requireNonNull(publicKey, "publicKey can't be null"));
+      names[index] = strings.add(requireNonNull(name, "name can't be null"));
+      descriptions[index] = strings.add(trimToNull(description));
+      refs[index] = reportAttributes.getRef();
+      versions[index] = strings.add(reportAttributes.getVersion());
+      paths[index] = strings.add(reportAttributes.getPath());
+      if (fileAttributes == null) {
+        languages[index] = NULL_STRING;
+      } else {
+        languages[index] = strings.add(fileAttributes.getLanguageKey());
+        lines[index] = fileAttributes.getLines();
+        unitTests.set(index, fileAttributes.isUnitTest());
+      }
+      size++;
+      return index;
+    }
+
+    private void ensureCapacity() {
+      if (size < types.length) {
+        return;
+      }
+      int capacity = types.length * 2;
+      types = Arrays.copyOf(types, capacity);
+      statuses = Arrays.copyOf(statuses, capacity);
+      parents = Arrays.copyOf(parents, capacity);
+      uuids = Arrays.copyOf(uuids, capacity);
+      keys = Arrays.copyOf(keys, capacity);
+      publicKeys = Arrays.copyOf(publicKeys, capacity);
+      names = Arrays.copyOf(names, capacity);
+      descriptions = Arrays.copyOf(descriptions, capacity);
+      refs = Arrays.copyOf(refs, capacity);
+      versions = Arrays.copyOf(versions, capacity);
+      paths = Arrays.copyOf(paths, capacity);
+      languages = Arrays.copyOf(languages, capacity);
+      lines = Arrays.copyOf(lines, capacity);
+    }
+
+    public CompactComponentTree build() {
+      checkState(size > 0, "Tree must have a root");
+      return new CompactComponentTree(this);
+    }
+  }
+
+  /**
+   * Stores each distinct string once. For example the public key of a component is usually equal to its key,
+   * and languages and versions are shared by many components.
+   */
+  private static final class StringTable {
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    private int add(@Nullable String s) {
+      if (s == null) {
+        return NULL_STRING;
+      }
+      return indexes.computeIfAbsent(s, k -> indexes.size());
+    }
+
+    private String[] toArray() {
+      String[] result = new String[indexes.size()];
+      indexes.forEach((s, index) -> result[index] = s);
+      return result;
+    }
+  }
+
+  /**
+   * Component at a given index of a {@link CompactComponentTree}. Instances are created on demand, so two instances may
+   * represent the same component. They are equal if they have the same UUID.
+   */
+  private static final class ComponentView implements Component {
+    private final CompactComponentTree tree;
+    private final int index;
+
+    private ComponentView(CompactComponentTree tree, int index) {
+      this.tree = tree;
+      this.index = index;
+    }
+
+    @Override
+    public Type getType() {
+      return TYPES[tree.types[index]];
+    }
+
+    @Override
+    public Status getStatus() {
+      return STATUSES[tree.statuses[index]];
+    }
+
+    @Override
+    public String getUuid() {
+      return tree.strings[tree.uuids[index]];
+    }
+
+    @Override
+    public String getKey() {
+      return tree.strings[tree.keys[index]];
+    }
+
+    @Override
+    public String getPublicKey() {
+      return tree.strings[tree.publicKeys[index]];
+    }
+
+    @Override
+    public String getName() {
+      return tree.strings[tree.names[index]];
+    }
+
+    @Override
+    @CheckForNull
+    public String getDescription() {
+      return tree.string(tree.descriptions[index]);
+    }
+
+    @Override
+    public List<Component> getChildren() {
+      int from = tree.childrenOffsets[index];
+      int to = tree.childrenOffsets[index + 1];
+      return new AbstractList<Component>() {
+        @Override
+        public Component get(int i) {
+          checkElementIndex(i, to - from);
+          return new ComponentView(tree, tree.children[from + i]);
+        }
+
+        @Override
+        public int size() {
+          return to - from;
+        }
+      };
+    }
+
+    @Override
+    public ReportAttributes getReportAttributes() {
+      return ReportAttributes.newBuilder(tree.refs[index])
+        .setVersion(tree.string(tree.versions[index]))
+        .setPath(tree.string(tree.paths[index]))
+        .build();
+    }
+
+    @Override
+    @CheckForNull
+    public FileAttributes getFileAttributes() {
+      checkState(getType() == Type.FILE, "Only component of type FILE have a FileAttributes object");
+      if (tree.lines[index] == 0) {
+        return null;
+      }
+      return new FileAttributes(tree.unitTests.get(index), tree.string(tree.languages[index]), tree.lines[index]);
+    }
+
+    @Override
+    public ProjectViewAttributes getProjectViewAttributes() {
+      throw new IllegalStateException("Only component of type PROJECT_VIEW have a ProjectViewAttributes object");
+    }
+
+    @Override
+    public SubViewAttributes getSubViewAttributes() {
+      throw new IllegalStateException("Only component of type SUBVIEW have a SubViewAttributes object");
+    }
+
+    @Override
+    public ViewAttributes getViewAttributes() {
+      throw new IllegalStateException("Only component of type VIEW have a ViewAttributes object");
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      return getUuid().equals(((ComponentView) o).getUuid());
+    }
+
+    @Override
+    public int hashCode() {
+      return getUuid().hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return "Component{" +
+        "key='" + getKey() + '\'' +
+        ", type=" + getType() +
+        ", uuid='" + getUuid() + '\'' +
+        ", name='" + getName() + '\'' +
+        ", description='" + getDescription() + '\'' +
+        ", fileAttributes=" + (getType() == Type.FILE ? getFileAttributes() : null) +
+        ", reportAttributes=" + getReportAttributes() +
+        '}';
+    }
+  }
+}
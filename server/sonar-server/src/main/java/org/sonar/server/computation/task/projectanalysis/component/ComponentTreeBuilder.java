@@ -77,65 +77,54 @@ public class ComponentTreeBuilder {
   }
 
   public Component buildProject(ScannerReport.Component project) {
-    return buildComponent(project, project);
+    CompactComponentTree.Builder tree = CompactComponentTree.builder();
+    addComponent(tree, -1, project, project);
+    return tree.build().getRoot();
   }
 
-  private Component[] buildChildren(ScannerReport.Component component, ScannerReport.Component parentModule) {
-    return component.getChildRefList()
-      .stream()
-      .map(scannerComponentSupplier::apply)
-      .map(c -> buildComponent(c, parentModule))
-      .toArray(Component[]::new);
+  private void addChildren(CompactComponentTree.Builder tree, int parentIndex, ScannerReport.Component component,
+    ScannerReport.Component closestModule) {
+    for (int childRef : component.getChildRefList()) {
+      addComponent(tree, parentIndex, scannerComponentSupplier.apply(childRef), closestModule);
+    }
   }
 
-  private ComponentImpl buildComponent(ScannerReport.Component component, ScannerReport.Component closestModule) {
+  private void addComponent(CompactComponentTree.Builder tree, int parentIndex, ScannerReport.Component component,
+    ScannerReport.Component closestModule) {
+    int index;
     switch (component.getType()) {
       case PROJECT:
         String projectKey = keyGenerator.generateKey(component, null);
-        String uuid = uuidSupplier.apply(projectKey);
         String projectPublicKey = publicKeyGenerator.generateKey(component, null);
-        return ComponentImpl.builder(Component.Type.PROJECT)
-          .setUuid(uuid)
-          .setKey(projectKey)
-          .setPublicKey(projectPublicKey)
-          .setName(nameOfProject(component))
-          .setStatus(convertStatus(component.getStatus()))
-          .setDescription(trimToNull(component.getDescription()))
-          .setReportAttributes(createAttributesBuilder(component)
+        index = tree.add(parentIndex, Component.Type.PROJECT, convertStatus(component.getStatus()),
+          uuidSupplier.apply(projectKey), projectKey, projectPublicKey, nameOfProject(component), component.getDescription(),
+          createAttributesBuilder(component)
             .setVersion(createProjectVersion(component))
-            .build())
-          .addChildren(buildChildren(component, component))
-          .build();
+            .build(),
+          null);
+        addChildren(tree, index, component, component);
+        break;
 
       case MODULE:
         String moduleKey = keyGenerator.generateKey(component, null);
         String modulePublicKey = publicKeyGenerator.generateKey(component, null);
-        return ComponentImpl.builder(Component.Type.MODULE)
-          .setUuid(uuidSupplier.apply(moduleKey))
-          .setKey(moduleKey)
-          .setPublicKey(modulePublicKey)
-          .setName(nameOfOthers(component, modulePublicKey))
-          .setStatus(convertStatus(component.getStatus()))
-          .setDescription(trimToNull(component.getDescription()))
-          .setReportAttributes(createAttributesBuilder(component).build())
-          .addChildren(buildChildren(component, component))
-          .build();
+        index = tree.add(parentIndex, Component.Type.MODULE, convertStatus(component.getStatus()),
+          uuidSupplier.apply(moduleKey), moduleKey, modulePublicKey, nameOfOthers(component, modulePublicKey), component.getDescription(),
+          createAttributesBuilder(component).build(),
+          null);
+        addChildren(tree, index, component, component);
+        break;
 
       case DIRECTORY:
       case FILE:
         String key = keyGenerator.generateKey(closestModule, component);
         String publicKey = publicKeyGenerator.generateKey(closestModule, component);
-        return ComponentImpl.builder(convertDirOrFileType(component.getType()))
-          .setUuid(uuidSupplier.apply(key))
-          .setKey(key)
-          .setPublicKey(publicKey)
-          .setName(nameOfOthers(component, publicKey))
-          .setStatus(convertStatus(component.getStatus()))
-          .setDescription(trimToNull(component.getDescription()))
-          .setReportAttributes(createAttributesBuilder(component).build())
-          .setFileAttributes(createFileAttributes(component))
-          .addChildren(buildChildren(component, closestModule))
-          .build();
+        index = tree.add(parentIndex, convertDirOrFileType(component.getType()), convertStatus(component.getStatus()),
+          uuidSupplier.apply(key), key, publicKey, nameOfOthers(component, publicKey), component.getDescription(),
+          createAttributesBuilder(component).build(),
+          createFileAttributes(component));
+        addChildren(tree, index, component, closestModule);
+        break;
 
       default:
         throw new IllegalArgumentException(format("Unsupported component type '%s'", component.getType()));
@@ -21,19 +21,25 @@ package org.sonar.server.computation.task.projectanalysis.component;
 
 import com.google.common.collect.ImmutableMap;
 import java.util.Map;
+import java.util.Optional;
 import javax.annotation.CheckForNull;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
 
 /**
  * Holds the reference to the root of the {@link Component} tree for the current CE run.
+ * <p>
+ * Components can be requested by the threads of a parallel crawler, so the index of components by ref is built
+ * once, under lock.
+ * </p>
  */
 public class TreeRootHolderImpl implements MutableTreeRootHolder {
   @CheckForNull
-  private Map<Integer, Component> componentsByRef;
+  private volatile Map<Integer, Component> componentsByRef;
 
   private Component root;
 
@@ -53,15 +59,28 @@ public class TreeRootHolderImpl implements MutableTreeRootHolder {
   @Override
   public Component getComponentByRef(int ref) {
     checkInitialized();
-    ensureComponentByRefIsPopulated();
-    Component component = componentsByRef.get(ref);
+    Optional<CompactComponentTree> compactTree = CompactComponentTree.treeOf(root);
+    if (compactTree.isPresent()) {
+      // no need to index components, the compact tree already does
+      return compactTree.get().getComponentByRef(ref)
+        .orElseThrow(() -> new IllegalArgumentException(format("Component with ref '%s' can't be found", ref)));
+    }
+    Component component = ensureComponentByRefIsPopulated().get(ref);
     checkArgument(component != null, "Component with ref '%s' can't be found", ref);
     return component;
   }
 
-  private void ensureComponentByRefIsPopulated() {
+  private Map<Integer, Component> ensureComponentByRefIsPopulated() {
+    Map<Integer, Component> result = componentsByRef;
+    if (result != null) {
+      return result;
+    }
+    return populateComponentsByRef();
+  }
+
+  private synchronized Map<Integer, Component> populateComponentsByRef() {
     if (componentsByRef != null) {
-      return;
+      return componentsByRef;
     }
 
     final ImmutableMap.Builder<Integer, Component> builder = ImmutableMap.builder();
@@ -73,6 +92,7 @@ public class TreeRootHolderImpl implements MutableTreeRootHolder {
         }
       }).visit(this.root);
     this.componentsByRef = builder.build();
+    return this.componentsByRef;
   }
 
   private void checkInitialized() {
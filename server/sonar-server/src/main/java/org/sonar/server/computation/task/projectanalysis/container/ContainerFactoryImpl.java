@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.task.projectanalysis.container;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.core.platform.ComponentContainer;
@@ -27,8 +28,33 @@ import org.sonar.server.computation.task.container.TaskContainer;
 import org.sonar.server.computation.task.container.TaskContainerImpl;
 
 public class ContainerFactoryImpl implements ContainerFactory {
+
+  @CheckForNull
+  private ComponentContainer sharedContainer;
+
   @Override
   public TaskContainer create(ComponentContainer parent, CeTask task, @Nullable ReportAnalysisComponentProvider[] componentProviders) {
-    return new TaskContainerImpl(parent, new ProjectAnalysisTaskContainerPopulator(task, componentProviders));
+    return new TaskContainerImpl(getSharedContainer(parent), new ProjectAnalysisTaskContainerPopulator(task, componentProviders));
+  }
+
+  /**
+   * Child of the specified container holding the components listed in
+   * {@link ProjectAnalysisTaskContainerPopulator#sharedComponentClasses()}. It is created and started on first call
+   * and then reused by all the tasks. It is stopped along with its parent, or when another parent is specified.
+   */
+  synchronized ComponentContainer getSharedContainer(ComponentContainer parent) {
+    if (sharedContainer == null || sharedContainer.getParent() != parent) {
+      if (sharedContainer != null) {
+        // also removes it from the children of its previous parent
+        sharedContainer.stopComponents(true);
+      }
+      ComponentContainer container = parent.createChild();
+      container.addSingletons(ProjectAnalysisTaskContainerPopulator.sharedComponentClasses());
+      container.startComponents();
+      // instantiate components now rather than during the first task
+      container.getPicoContainer().getComponents();
+      sharedContainer = container;
+    }
+    return sharedContainer;
   }
 }
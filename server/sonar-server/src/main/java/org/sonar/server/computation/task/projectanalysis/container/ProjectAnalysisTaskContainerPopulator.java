@@ -147,9 +147,28 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
     container.addSingletons(steps.orderedStepClasses());
   }
 
+  /**
+   * Stateless components which do not depend on any task-scoped component. They are instantiated only once, in a
+   * container shared by all the tasks, instead of once per task.
+   */
+  static List<Object> sharedComponentClasses() {
+    return Arrays.asList(
+      ScmAccountToUserLoader.class,
+      UpdateConflictResolver.class,
+      Tracker.class,
+
+      // filemove
+      SourceSimilarityImpl.class,
+      FileSimilarityImpl.class,
+
+      // views
+      ViewIndex.class);
+  }
+
   /**
    * List of all objects to be injected in the picocontainer dedicated to computation stack.
-   * Does not contain the steps declared in {@link ReportComputationSteps#orderedStepClasses()}.
+   * Does not contain the steps declared in {@link ReportComputationSteps#orderedStepClasses()} nor the components
+   * declared in {@link #sharedComponentClasses()}.
    */
   private static List<Object> componentClasses() {
     return Arrays.asList(
@@ -193,7 +212,6 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
 
       // issues
       RuleRepositoryImpl.class,
-      ScmAccountToUserLoader.class,
       ScmAccountToUser.class,
       IssueCache.class,
       DefaultAssignee.class,
@@ -238,11 +256,9 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
       LastCommitVisitor.class,
       MeasureComputersVisitor.class,
 
-      UpdateConflictResolver.class,
       TrackerBaseInputFactory.class,
       TrackerRawInputFactory.class,
       TrackerMergeBranchInputFactory.class,
-      Tracker.class,
       TrackerExecution.class,
       ShortBranchTrackerExecution.class,
       MergeBranchTrackerExecution.class,
@@ -252,17 +268,12 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
       BranchPersister.class,
 
       // filemove
-      SourceSimilarityImpl.class,
-      FileSimilarityImpl.class,
       MutableMovedFilesRepositoryImpl.class,
 
       // duplication
       IntegrateCrossProjectDuplications.class,
       DuplicationMeasures.class,
 
-      // views
-      ViewIndex.class,
-
       BranchLoader.class,
       MeasureToMeasureDto.class,
 
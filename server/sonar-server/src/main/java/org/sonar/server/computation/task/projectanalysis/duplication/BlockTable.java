@@ -0,0 +1,112 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.duplication;
+
+import java.util.BitSet;
+
+/**
+ * Open addressing hash table associating 64-bits hashes of blocks to the analysis they belong to.
+ * It is not thread-safe.
+ */
+class BlockTable {
+  static final int NO_ANALYSIS = -1;
+  static final int MULTIPLE_ANALYSES = -2;
+
+  private static final long EMPTY_KEY = 0L;
+  private static final int INITIAL_CAPACITY = 1 << 10;
+  private static final float LOAD_FACTOR = 0.6F;
+
+  private long[] keys = new long[INITIAL_CAPACITY];
+  private int[] values = new int[INITIAL_CAPACITY];
+  private int size = 0;
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return the id of the analysis containing the hash, {@link #NO_ANALYSIS} if none or {@link #MULTIPLE_ANALYSES}
+   */
+  int get(long hash) {
+    long key = toKey(hash);
+    int mask = keys.length - 1;
+    for (int i = mix(key) & mask; keys[i] != EMPTY_KEY; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return values[i];
+      }
+    }
+    return NO_ANALYSIS;
+  }
+
+  /**
+   * Associates the hash to the analysis. If the hash is already associated to another analysis which is still valid,
+   * then it is associated to {@link #MULTIPLE_ANALYSES}.
+   *
+   * @return true if the hash was not in the table yet
+   */
+  boolean put(long hash, int analysisId, BitSet validAnalyses) {
+    long key = toKey(hash);
+    int mask = keys.length - 1;
+    int i = mix(key) & mask;
+    while (keys[i] != EMPTY_KEY) {
+      if (keys[i] == key) {
+        int existing = values[i];
+        if (existing != analysisId && existing != MULTIPLE_ANALYSES) {
+          values[i] = validAnalyses.get(existing) ? MULTIPLE_ANALYSES : analysisId;
+        }
+        return false;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = analysisId;
+    size++;
+    if (size > keys.length * LOAD_FACTOR) {
+      grow();
+    }
+    return true;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new long[oldKeys.length * 2];
+    values = new int[oldKeys.length * 2];
+    int mask = keys.length - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldKeys[j] != EMPTY_KEY) {
+        int i = mix(oldKeys[j]) & mask;
+        while (keys[i] != EMPTY_KEY) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  private static long toKey(long hash) {
+    return hash == EMPTY_KEY ? 1L : hash;
+  }
+
+  private static int mix(long key) {
+    return (int) (key ^ (key >>> 32));
+  }
+}
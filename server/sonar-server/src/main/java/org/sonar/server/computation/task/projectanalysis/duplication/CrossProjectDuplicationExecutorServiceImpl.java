@@ -0,0 +1,43 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.duplication;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.server.util.AbstractStoppableExecutorService;
+
+@ComputeEngineSide
+public class CrossProjectDuplicationExecutorServiceImpl
+  extends AbstractStoppableExecutorService<ExecutorService>
+  implements CrossProjectDuplicationExecutorService {
+
+  private static final int MAX_THREADS = 4;
+
+  public CrossProjectDuplicationExecutorServiceImpl() {
+    super(
+      Executors.newFixedThreadPool(Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()),
+        new ThreadFactoryBuilder()
+          .setNameFormat("CE_cross_project_duplications-%d")
+          .setDaemon(true)
+          .build()));
+  }
+}
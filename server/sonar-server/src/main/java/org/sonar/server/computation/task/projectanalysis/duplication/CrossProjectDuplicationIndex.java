@@ -0,0 +1,259 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.duplication;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.stream.MoreCollectors;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.SnapshotDto;
+import org.sonar.db.component.SnapshotQuery;
+import org.sonar.db.duplication.DuplicationUnitDto;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * In-memory index of the hashes of the duplication blocks of the last analyses of all projects, shared by the
+ * Compute Engine tasks. It tells which hashes of a file may have duplicates in other projects, so that the table
+ * DUPLICATIONS_INDEX is requested only for these hashes.
+ * <p>
+ * Blocks are loaded by language, the first time the language is refreshed. Then each refresh loads only the blocks
+ * of the analyses which became "last" since the previous refresh. Blocks of the analyses which are not "last"
+ * anymore are ignored, and are removed when they outnumber the valid blocks.
+ * </p>
+ * <p>
+ * The number of blocks in memory of each language is bounded by the property {@link #PROPERTY_MAX_BLOCKS}. The
+ * languages which would exceed this limit are not indexed: all their hashes are considered as candidates. This limit
+ * does not depend on the other languages, so that the indexed languages do not depend on the order of refreshes.
+ * The number of blocks of all the languages is also bounded by the property {@link #PROPERTY_MAX_TOTAL_BLOCKS}. The
+ * language being loaded when it is reached is not indexed.
+ * </p>
+ * <p>
+ * Each block takes between 20 and 40 bytes of heap, depending on the fill rate of its {@link BlockTable}. With the
+ * default limits, the index takes at most 80MB per language and 240MB overall.
+ * </p>
+ * <p>
+ * There may be false positives (collisions of hashes), but no false negatives.
+ * </p>
+ */
+@ComputeEngineSide
+public class CrossProjectDuplicationIndex {
+
+  public static final String PROPERTY_MAX_BLOCKS = "sonar.ce.crossProjectDuplicationIndex.maxBlocks";
+  static final int DEFAULT_MAX_BLOCKS = 2_000_000;
+  public static final String PROPERTY_MAX_TOTAL_BLOCKS = "sonar.ce.crossProjectDuplicationIndex.maxTotalBlocks";
+  static final int DEFAULT_MAX_TOTAL_BLOCKS = 6_000_000;
+
+  private static final Logger LOG = Loggers.get(CrossProjectDuplicationIndex.class);
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  private final DbClient dbClient;
+  private final int maxBlocks;
+  private final int maxTotalBlocks;
+
+  private final Map<String, LanguageIndex> indexesByLanguage = new HashMap<>();
+  /**
+   * Number of blocks held by the tables of all the languages
+   */
+  private int totalBlocks = 0;
+
+  public CrossProjectDuplicationIndex(DbClient dbClient, Configuration config) {
+    this.dbClient = dbClient;
+    this.maxBlocks = config.getInt(PROPERTY_MAX_BLOCKS).orElse(DEFAULT_MAX_BLOCKS);
+    this.maxTotalBlocks = config.getInt(PROPERTY_MAX_TOTAL_BLOCKS).orElse(DEFAULT_MAX_TOTAL_BLOCKS);
+  }
+
+  /**
+   * Loads the blocks of the given languages which are not indexed yet. Must be called before
+   * {@link #filterCandidates(String, String, Collection)}, so that the blocks of the latest analyses are taken into account.
+   */
+  public synchronized void refresh(Collection<String> languages) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      Set<String> lastAnalysisUuids = dbClient.snapshotDao().selectAnalysesByQuery(dbSession, new SnapshotQuery().setIsLast(true))
+        .stream()
+        .map(SnapshotDto::getUuid)
+        .collect(MoreCollectors.toSet());
+      indexesByLanguage.values().forEach(index -> index.setLastAnalyses(lastAnalysisUuids));
+
+      for (String language : languages) {
+        indexesByLanguage.computeIfAbsent(language, LanguageIndex::new).refresh(dbSession, lastAnalysisUuids);
+      }
+    }
+  }
+
+  /**
+   * Returns the hashes which may have duplicates in the last analyses of other projects.
+   *
+   * @param excludedAnalysisUuid the last analysis of the current project, if any
+   */
+  public synchronized Set<String> filterCandidates(String language, @Nullable String excludedAnalysisUuid, Collection<String> hashes) {
+    LanguageIndex index = indexesByLanguage.get(language);
+    if (index == null || index.table == null) {
+      // not refreshed or too many blocks
+      return new HashSet<>(hashes);
+    }
+    int excludedAnalysisId = excludedAnalysisUuid == null ? BlockTable.NO_ANALYSIS : index.analysisIds.getOrDefault(excludedAnalysisUuid, BlockTable.NO_ANALYSIS);
+    Set<String> candidates = new HashSet<>();
+    for (String hash : hashes) {
+      int analysisId = index.table.get(toLong(hash));
+      if (analysisId == BlockTable.MULTIPLE_ANALYSES
+        || (analysisId != BlockTable.NO_ANALYSIS && analysisId != excludedAnalysisId && index.lastAnalyses.get(analysisId))) {
+        candidates.add(hash);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Number of blocks held in memory
+   */
+  synchronized int size() {
+    return totalBlocks;
+  }
+
+  /**
+   * Number of analyses referenced by the indexes of languages
+   */
+  synchronized int referencedAnalyses() {
+    return indexesByLanguage.values().stream().mapToInt(index -> index.analysisIds.size()).sum();
+  }
+
+  private static long toLong(String hash) {
+    return HASH_FUNCTION.hashString(hash, UTF_8).asLong();
+  }
+
+  private class LanguageIndex {
+    private final String language;
+    /**
+     * Number of indexed blocks by analysis
+     */
+    private final Map<String, Integer> blocksByAnalysis = new HashMap<>();
+    /**
+     * Analyses are referenced by an integer in the table. Only the analyses which have blocks in the table are
+     * referenced, and the references are reset when the table is rebuilt.
+     */
+    private final Map<String, Integer> analysisIds = new HashMap<>();
+    private final BitSet lastAnalyses = new BitSet();
+    @CheckForNull
+    private BlockTable table = new BlockTable();
+
+    private LanguageIndex(String language) {
+      this.language = language;
+    }
+
+    private void refresh(DbSession dbSession, Set<String> lastAnalysisUuids) {
+      if (table == null) {
+        return;
+      }
+      int obsoleteBlocks = 0;
+      int validBlocks = 0;
+      for (Map.Entry<String, Integer> entry : blocksByAnalysis.entrySet()) {
+        if (lastAnalysisUuids.contains(entry.getKey())) {
+          validBlocks += entry.getValue();
+        } else {
+          obsoleteBlocks += entry.getValue();
+        }
+      }
+      // analyses without blocks are not referenced by the table
+      blocksByAnalysis.entrySet().removeIf(entry -> entry.getValue() == 0 && !lastAnalysisUuids.contains(entry.getKey()));
+      if (obsoleteBlocks > validBlocks) {
+        LOG.debug("Rebuild index of cross project duplications of language {}", language);
+        clear();
+        table = new BlockTable();
+      }
+
+      List<String> newAnalysisUuids = new ArrayList<>();
+      for (String analysisUuid : lastAnalysisUuids) {
+        if (!blocksByAnalysis.containsKey(analysisUuid)) {
+          newAnalysisUuids.add(analysisUuid);
+          blocksByAnalysis.put(analysisUuid, 0);
+        }
+      }
+      dbClient.duplicationDao().scrollHashes(dbSession, language, newAnalysisUuids, context -> add(context.getResultObject()));
+    }
+
+    private void add(DuplicationUnitDto dto) {
+      if (table == null) {
+        return;
+      }
+      if (table.size() >= maxBlocks) {
+        LOG.warn("Too many blocks to index cross project duplications of language {}. Please increase the property {}.",
+          language, PROPERTY_MAX_BLOCKS);
+        clear();
+        return;
+      }
+      if (totalBlocks >= maxTotalBlocks) {
+        LOG.warn("Too many blocks to index cross project duplications of all languages, language {} is not indexed. Please increase the property {}.",
+          language, PROPERTY_MAX_TOTAL_BLOCKS);
+        clear();
+        return;
+      }
+      if (table.put(toLong(dto.getHash()), analysisId(dto.getAnalysisUuid()), lastAnalyses)) {
+        totalBlocks++;
+      }
+      blocksByAnalysis.merge(dto.getAnalysisUuid(), 1, Integer::sum);
+    }
+
+    /**
+     * Blocks are loaded only for last analyses, so the analyses get referenced as last ones
+     */
+    private int analysisId(String analysisUuid) {
+      return analysisIds.computeIfAbsent(analysisUuid, k -> {
+        int id = analysisIds.size();
+        lastAnalyses.set(id);
+        return id;
+      });
+    }
+
+    private void setLastAnalyses(Set<String> lastAnalysisUuids) {
+      lastAnalyses.clear();
+      analysisIds.forEach((uuid, id) -> {
+        if (lastAnalysisUuids.contains(uuid)) {
+          lastAnalyses.set(id);
+        }
+      });
+    }
+
+    private void clear() {
+      if (table != null) {
+        totalBlocks -= table.size();
+      }
+      blocksByAnalysis.clear();
+      analysisIds.clear();
+      lastAnalyses.clear();
+      table = null;
+    }
+  }
+}
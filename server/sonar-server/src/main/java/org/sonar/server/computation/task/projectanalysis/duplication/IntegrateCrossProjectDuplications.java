@@ -23,9 +23,9 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nonnull;
 import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.log.Logger;
@@ -42,6 +42,7 @@ import static com.google.common.collect.FluentIterable.from;
 
 /**
  * Transform a list of duplication blocks into clone groups, then add these clone groups into the duplication repository.
+ * It is thread-safe: clone groups of different files can be computed concurrently.
  */
 public class IntegrateCrossProjectDuplications {
 
@@ -55,7 +56,7 @@ public class IntegrateCrossProjectDuplications {
   private final Configuration config;
   private final DuplicationRepository duplicationRepository;
 
-  private Map<String, NumberOfUnitsNotLessThan> numberOfUnitsByLanguage = new HashMap<>();
+  private final Map<String, NumberOfUnitsNotLessThan> numberOfUnitsByLanguage = new ConcurrentHashMap<>();
 
   public IntegrateCrossProjectDuplications(Configuration config, DuplicationRepository duplicationRepository) {
     this.config = config;
@@ -68,8 +69,11 @@ public class IntegrateCrossProjectDuplications {
     populateIndex(duplicationIndex, duplicationBlocks);
 
     List<CloneGroup> duplications = SuffixTreeCloneDetectionAlgorithm.detect(duplicationIndex, originBlocks);
-    Iterable<CloneGroup> filtered = from(duplications).filter(getNumberOfUnitsNotLessThan(component.getFileAttributes().getLanguageKey()));
-    addDuplications(component, filtered);
+    List<CloneGroup> filtered = from(duplications).filter(getNumberOfUnitsNotLessThan(component.getFileAttributes().getLanguageKey())).toList();
+    // the repository is not thread-safe
+    synchronized (duplicationRepository) {
+      addDuplications(component, filtered);
+    }
   }
 
   private static void populateIndex(CloneIndex duplicationIndex, Collection<Block> duplicationBlocks) {
@@ -109,12 +113,7 @@ public class IntegrateCrossProjectDuplications {
   }
 
   private NumberOfUnitsNotLessThan getNumberOfUnitsNotLessThan(String language) {
-    NumberOfUnitsNotLessThan numberOfUnitsNotLessThan = numberOfUnitsByLanguage.get(language);
-    if (numberOfUnitsNotLessThan == null) {
-      numberOfUnitsNotLessThan = new NumberOfUnitsNotLessThan(getMinimumTokens(language));
-      numberOfUnitsByLanguage.put(language, numberOfUnitsNotLessThan);
-    }
-    return numberOfUnitsNotLessThan;
+    return numberOfUnitsByLanguage.computeIfAbsent(language, l -> new NumberOfUnitsNotLessThan(getMinimumTokens(l)));
   }
 
   private int getMinimumTokens(String languageKey) {
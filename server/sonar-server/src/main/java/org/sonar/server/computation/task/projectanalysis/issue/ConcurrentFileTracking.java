@@ -0,0 +1,111 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+
+/**
+ * Tracks the issues of files by a pool of threads, ahead of the component crawler. Base issues are loaded
+ * by batches of {@link #BATCH_SIZE} files and at most {@code threads} batches are in progress at the same time.
+ * <p>
+ * Results are consumed in the order of the files, so that lifecycle, issue visitors and issue cache
+ * are still executed by the crawler thread in a deterministic order.
+ */
+class ConcurrentFileTracking implements AutoCloseable {
+  static final int BATCH_SIZE = 100;
+
+  private final IssueTrackingDelegator issueTracking;
+  private final Iterator<Component> files;
+  private final int maxPending;
+  private final ExecutorService executor;
+  private final Deque<PendingTracking> pending = new ArrayDeque<>();
+
+  ConcurrentFileTracking(IssueTrackingDelegator issueTracking, List<Component> files, int threads) {
+    this.issueTracking = issueTracking;
+    this.files = files.iterator();
+    this.maxPending = threads * BATCH_SIZE;
+    this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("IssueTracking-%d")
+      .setDaemon(true)
+      .build());
+  }
+
+  public TrackingResult track(Component file) {
+    fill();
+    PendingTracking next = pending.peekFirst();
+    if (next == null || !next.file.equals(file)) {
+      // file is not visited in the expected order, its tracking is executed by the current thread
+      return issueTracking.track(file);
+    }
+    pending.removeFirst();
+    return next.get();
+  }
+
+  private void fill() {
+    while (pending.size() < maxPending && files.hasNext()) {
+      List<Component> batch = new ArrayList<>(BATCH_SIZE);
+      while (batch.size() < BATCH_SIZE && files.hasNext()) {
+        batch.add(files.next());
+      }
+      List<Supplier<TrackingResult>> trackings = issueTracking.prepareTracking(batch);
+      for (int i = 0; i < batch.size(); i++) {
+        pending.add(new PendingTracking(batch.get(i), executor.submit(trackings.get(i)::get)));
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    pending.clear();
+  }
+
+  private static class PendingTracking {
+    private final Component file;
+    private final Future<TrackingResult> result;
+
+    private PendingTracking(Component file, Future<TrackingResult> result) {
+      this.file = file;
+      this.result = result;
+    }
+
+    private TrackingResult get() {
+      try {
+        return result.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(String.format("Interrupted while tracking issues of component '%s'", file.getKey()), e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException(String.format("Fail to track issues of component '%s'", file.getKey()), e.getCause());
+      }
+    }
+  }
+}
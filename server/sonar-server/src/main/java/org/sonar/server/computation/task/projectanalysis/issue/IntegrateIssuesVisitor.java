@@ -19,28 +19,45 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.api.config.Configuration;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.util.cache.DiskCache;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
 
-public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
+public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter implements AutoCloseable {
+
+  /**
+   * Number of threads tracking the issues of files. Tracking is sequential by default.
+   */
+  public static final String TRACKING_THREADS_PROPERTY = "sonar.ce.issueTracking.threads";
 
   private final IssueCache issueCache;
   private final IssueLifecycle issueLifecycle;
   private final IssueVisitors issueVisitors;
   private final IssueTrackingDelegator issueTracking;
+  private final TreeRootHolder treeRootHolder;
+  private final int trackingThreads;
+  @CheckForNull
+  private ConcurrentFileTracking concurrentFileTracking;
 
-  public IntegrateIssuesVisitor(IssueCache issueCache, IssueLifecycle issueLifecycle, IssueVisitors issueVisitors, IssueTrackingDelegator issueTracking) {
+  public IntegrateIssuesVisitor(IssueCache issueCache, IssueLifecycle issueLifecycle, IssueVisitors issueVisitors, IssueTrackingDelegator issueTracking,
+    TreeRootHolder treeRootHolder, Configuration config) {
     super(CrawlerDepthLimit.FILE, POST_ORDER);
     this.issueCache = issueCache;
     this.issueLifecycle = issueLifecycle;
     this.issueVisitors = issueVisitors;
     this.issueTracking = issueTracking;
+    this.treeRootHolder = treeRootHolder;
+    this.trackingThreads = config.getInt(TRACKING_THREADS_PROPERTY).orElse(1);
   }
 
   @Override
@@ -48,15 +65,58 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     try (DiskCache<DefaultIssue>.DiskAppender cacheAppender = issueCache.newAppender()) {
       issueVisitors.beforeComponent(component);
 
-      TrackingResult tracking = issueTracking.track(component);
+      TrackingResult tracking = track(component);
       fillNewOpenIssues(component, tracking.newIssues(), cacheAppender);
       fillExistingOpenIssues(component, tracking.issuesToMerge(), cacheAppender);
       closeIssues(component, tracking.issuesToClose(), cacheAppender);
       copyIssues(component, tracking.issuesToCopy(), cacheAppender);
       issueVisitors.afterComponent(component);
     } catch (Exception e) {
+      stopConcurrentFileTracking();
       throw new IllegalStateException(String.format("Fail to process issues of component '%s'", component.getKey()), e);
     }
+    if (component.equals(treeRootHolder.getRoot())) {
+      stopConcurrentFileTracking();
+    }
+  }
+
+  private TrackingResult track(Component component) {
+    if (component.getType() != Component.Type.FILE || trackingThreads <= 1 || !issueTracking.isBatchTrackingSupported()) {
+      return issueTracking.track(component);
+    }
+    if (concurrentFileTracking == null) {
+      List<Component> files = new ArrayList<>();
+      collectFiles(treeRootHolder.getRoot(), files);
+      concurrentFileTracking = new ConcurrentFileTracking(issueTracking, files, trackingThreads);
+    }
+    return concurrentFileTracking.track(component);
+  }
+
+  /**
+   * Files are collected in the order they are visited by the crawler
+   */
+  private static void collectFiles(Component component, List<Component> files) {
+    if (component.getType() == Component.Type.FILE) {
+      files.add(component);
+    }
+    for (Component child : component.getChildren()) {
+      collectFiles(child, files);
+    }
+  }
+
+  /**
+   * Stops the threads tracking files when the crawl is interrupted by another visitor
+   */
+  @Override
+  public void close() {
+    stopConcurrentFileTracking();
+  }
+
+  private void stopConcurrentFileTracking() {
+    if (concurrentFileTracking != null) {
+      concurrentFileTracking.close();
+      concurrentFileTracking = null;
+    }
   }
 
   private void fillNewOpenIssues(Component component, Iterable<DefaultIssue> issues, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
@@ -19,13 +19,17 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
+import static com.google.common.base.Preconditions.checkState;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.tracking.Tracking;
+import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.component.BranchType;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.server.computation.task.projectanalysis.analysis.Branch;
@@ -56,6 +60,24 @@ public class IssueTrackingDelegator {
     }
   }
 
+  /**
+   * Whether {@link #prepareTracking(List)} can be used. Only the tracking against the previous analysis
+   * of the same branch supports it.
+   */
+  public boolean isBatchTrackingSupported() {
+    return !analysisMetadataHolder.isShortLivingBranch() && !isFirstAnalysisSecondaryLongLivingBranch();
+  }
+
+  /**
+   * Prepares the tracking of several files, see {@link TrackerExecution#prepareTracking(List)}.
+   */
+  public List<Supplier<TrackingResult>> prepareTracking(List<Component> files) {
+    checkState(isBatchTrackingSupported(), "Batch tracking is not supported by this analysis");
+    return tracker.prepareTracking(files).stream()
+      .map(tracking -> (Supplier<TrackingResult>) () -> standardResult(tracking.get()))
+      .collect(MoreCollectors.toList(files.size()));
+  }
+
   private static TrackingResult standardResult(Tracking<DefaultIssue, DefaultIssue> tracking) {
     return new TrackingResult(emptyMap(), tracking.getMatchedRaws(), tracking.getUnmatchedBases(), tracking.getUnmatchedRaws());
   }
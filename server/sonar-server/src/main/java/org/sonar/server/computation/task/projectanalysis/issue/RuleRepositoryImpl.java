@@ -32,12 +32,19 @@ import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetada
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Rules are loaded on first access. They can be requested by the threads of a parallel crawler, so they are loaded
+ * once, under lock.
+ */
 public class RuleRepositoryImpl implements RuleRepository {
 
+  /**
+   * Written after {@link #rulesById}, so that both maps are visible once this one is not null
+   */
   @CheckForNull
-  private Map<RuleKey, Rule> rulesByKey;
+  private volatile Map<RuleKey, Rule> rulesByKey;
   @CheckForNull
-  private Map<Integer, Rule> rulesById;
+  private volatile Map<Integer, Rule> rulesById;
 
   private final DbClient dbClient;
   private final AnalysisMetadataHolder analysisMetadataHolder;
@@ -88,6 +95,12 @@ public class RuleRepositoryImpl implements RuleRepository {
   }
 
   private void ensureInitialized() {
+    if (rulesByKey == null) {
+      loadRules();
+    }
+  }
+
+  private synchronized void loadRules() {
     if (rulesByKey == null) {
       try (DbSession dbSession = dbClient.openSession(false)) {
         loadRulesFromDb(dbSession);
@@ -104,8 +117,8 @@ public class RuleRepositoryImpl implements RuleRepository {
       rulesByKeyBuilder.put(ruleDto.getKey(), rule);
       rulesByIdBuilder.put(ruleDto.getId(), rule);
     }
-    this.rulesByKey = rulesByKeyBuilder.build();
     this.rulesById = rulesByIdBuilder.build();
+    this.rulesByKey = rulesByKeyBuilder.build();
   }
 
 }
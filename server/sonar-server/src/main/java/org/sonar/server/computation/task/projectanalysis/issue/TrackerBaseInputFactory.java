@@ -19,14 +19,17 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.tracking.Input;
 import org.sonar.core.issue.tracking.LazyInput;
 import org.sonar.core.issue.tracking.LineHashSequence;
+import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
@@ -50,17 +53,40 @@ public class TrackerBaseInputFactory {
   }
 
   public Input<DefaultIssue> create(Component component) {
-    return new BaseLazyInput(component, movedFilesRepository.getOriginalFile(component).orNull());
+    return new BaseLazyInput(component, effectiveUuid(component), null);
+  }
+
+  /**
+   * Same as {@link #create(Component)} for several components, except that the issues of all the components
+   * are loaded at once. Inputs are returned in the same order as the components.
+   */
+  public List<Input<DefaultIssue>> create(List<Component> components) {
+    List<String> effectiveUuids = components.stream().map(this::effectiveUuid).collect(MoreCollectors.toList(components.size()));
+    Map<String, List<DefaultIssue>> issuesByUuid = issuesLoader.loadForComponentUuids(effectiveUuids);
+    List<Input<DefaultIssue>> inputs = new ArrayList<>(components.size());
+    for (int i = 0; i < components.size(); i++) {
+      String effectiveUuid = effectiveUuids.get(i);
+      // issues are not shared by inputs of components having the same effective uuid, they are then loaded by the second one
+      inputs.add(new BaseLazyInput(components.get(i), effectiveUuid, issuesByUuid.remove(effectiveUuid)));
+    }
+    return inputs;
+  }
+
+  private String effectiveUuid(Component component) {
+    OriginalFile originalFile = movedFilesRepository.getOriginalFile(component).orNull();
+    return originalFile == null ? component.getUuid() : originalFile.getUuid();
   }
 
   private class BaseLazyInput extends LazyInput<DefaultIssue> {
     private final Component component;
-    @CheckForNull
     private final String effectiveUuid;
+    @CheckForNull
+    private final List<DefaultIssue> loadedIssues;
 
-    private BaseLazyInput(Component component, @Nullable OriginalFile originalFile) {
+    private BaseLazyInput(Component component, String effectiveUuid, @Nullable List<DefaultIssue> loadedIssues) {
       this.component = component;
-      this.effectiveUuid = originalFile == null ? component.getUuid() : originalFile.getUuid();
+      this.effectiveUuid = effectiveUuid;
+      this.loadedIssues = loadedIssues;
     }
 
     @Override
@@ -80,6 +106,9 @@ public class TrackerBaseInputFactory {
 
     @Override
     protected List<DefaultIssue> loadIssues() {
+      if (loadedIssues != null) {
+        return loadedIssues;
+      }
       return issuesLoader.loadForComponentUuid(effectiveUuid);
     }
   }
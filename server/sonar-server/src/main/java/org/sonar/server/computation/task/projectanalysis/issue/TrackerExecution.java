@@ -19,7 +19,11 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
 import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
 import org.sonar.core.issue.tracking.Tracker;
 import org.sonar.core.issue.tracking.Tracking;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
@@ -40,4 +44,20 @@ public class TrackerExecution {
   public Tracking<DefaultIssue, DefaultIssue> track(Component component) {
     return tracker.track(rawInputFactory.create(component), baseInputFactory.create(component));
   }
+
+  /**
+   * Prepares the tracking of several components, which base issues are loaded at once. The returned
+   * suppliers execute the tracking itself, in the same order as the components, and can be called
+   * concurrently by any thread.
+   */
+  public List<Supplier<Tracking<DefaultIssue, DefaultIssue>>> prepareTracking(List<Component> components) {
+    List<Input<DefaultIssue>> baseInputs = baseInputFactory.create(components);
+    List<Supplier<Tracking<DefaultIssue, DefaultIssue>>> result = new ArrayList<>(components.size());
+    for (int i = 0; i < components.size(); i++) {
+      Input<DefaultIssue> rawInput = rawInputFactory.createForConcurrentTracking(components.get(i));
+      Input<DefaultIssue> baseInput = baseInputs.get(i);
+      result.add(() -> tracker.track(rawInput, baseInput));
+    }
+    return result;
+  }
 }
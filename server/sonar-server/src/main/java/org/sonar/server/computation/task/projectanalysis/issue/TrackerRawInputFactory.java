@@ -22,6 +22,7 @@ package org.sonar.server.computation.task.projectanalysis.issue;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import javax.annotation.CheckForNull;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.log.Loggers;
@@ -63,14 +64,26 @@ public class TrackerRawInputFactory {
   }
 
   public Input<DefaultIssue> create(Component component) {
-    return new RawLazyInput(component);
+    return new RawLazyInput(component, false);
+  }
+
+  /**
+   * Same as {@link #create(Component)}, except that issues of common rules are computed immediately. They rely
+   * on the measure repository, which is not thread-safe, whereas the rest of the input can be lazy-loaded
+   * by any thread.
+   */
+  public Input<DefaultIssue> createForConcurrentTracking(Component component) {
+    return new RawLazyInput(component, true);
   }
 
   private class RawLazyInput extends LazyInput<DefaultIssue> {
     private final Component component;
+    @CheckForNull
+    private final List<DefaultIssue> commonRuleIssues;
 
-    private RawLazyInput(Component component) {
+    private RawLazyInput(Component component, boolean loadCommonRuleIssuesNow) {
       this.component = component;
+      this.commonRuleIssues = loadCommonRuleIssuesNow ? loadCommonRuleIssues() : null;
     }
 
     @Override
@@ -88,13 +101,7 @@ public class TrackerRawInputFactory {
 
     @Override
     protected List<DefaultIssue> loadIssues() {
-      List<DefaultIssue> result = new ArrayList<>();
-
-      for (DefaultIssue commonRuleIssue : commonRuleEngine.process(component)) {
-        if (issueFilter.accept(commonRuleIssue, component)) {
-          result.add(init(commonRuleIssue));
-        }
-      }
+      List<DefaultIssue> result = new ArrayList<>(commonRuleIssues == null ? loadCommonRuleIssues() : commonRuleIssues);
       try (CloseableIterator<ScannerReport.Issue> reportIssues = reportReader.readComponentIssues(component.getReportAttributes().getRef())) {
         // optimization - do not load line hashes if there are no issues -> getLineHashSequence() is executed
         // as late as possible
@@ -114,6 +121,16 @@ public class TrackerRawInputFactory {
       return result;
     }
 
+    private List<DefaultIssue> loadCommonRuleIssues() {
+      List<DefaultIssue> result = new ArrayList<>();
+      for (DefaultIssue commonRuleIssue : commonRuleEngine.process(component)) {
+        if (issueFilter.accept(commonRuleIssue, component)) {
+          result.add(init(commonRuleIssue));
+        }
+      }
+      return result;
+    }
+
     private boolean isIssueOnUnsupportedCommonRule(ScannerReport.Issue issue) {
       // issues on batch common rules are ignored. This feature
       // is natively supported by compute engine since 5.2.
@@ -19,6 +19,10 @@
  */
 package org.sonar.server.computation.task.projectanalysis.scm;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
@@ -66,6 +70,35 @@ public class ScmInfoDbLoader {
     }
   }
 
+  /**
+   * Same as {@link #getScmInfoFromDb(Component)} for several files at once. Sources are streamed by chunks of file uuids
+   * rather than read one by one. The returned map contains an entry for each of the specified files, which is
+   * {@link NoScmInfo#INSTANCE} when no valid SCM info exists in DB.
+   */
+  public Map<Component, ScmInfo> getScmInfosFromDb(Collection<Component> files) {
+    Map<Component, ScmInfo> scmInfos = new LinkedHashMap<>();
+    Map<String, Component> filesByUuid = new HashMap<>();
+    for (Component file : files) {
+      scmInfos.put(file, NoScmInfo.INSTANCE);
+      getFileUUid(file).ifPresent(uuid -> filesByUuid.put(uuid, file));
+    }
+    if (filesByUuid.isEmpty()) {
+      return scmInfos;
+    }
+
+    LOGGER.trace("Reading SCM info from db for {} files", filesByUuid.size());
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbClient.fileSourceDao().scrollSourcesByFileUuids(dbSession, filesByUuid.keySet(), context -> {
+        FileSourceDto dto = context.getResultObject();
+        Component file = filesByUuid.get(dto.getFileUuid());
+        if (file != null && isDtoValid(file, dto)) {
+          scmInfos.put(file, DbScmInfo.create(file, dto.getSourceData().getLinesList()).or(NoScmInfo.INSTANCE));
+        }
+      });
+    }
+    return scmInfos;
+  }
+
   private Optional<String> getFileUUid(Component file) {
     if (!analysisMetadataHolder.isFirstAnalysis()) {
       return Optional.of(file.getUuid());
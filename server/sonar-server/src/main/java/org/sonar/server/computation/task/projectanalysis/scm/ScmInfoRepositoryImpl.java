@@ -20,13 +20,18 @@
 package org.sonar.server.computation.task.projectanalysis.scm;
 
 import com.google.common.base.Optional;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 
 import static java.util.Objects.requireNonNull;
 
@@ -34,13 +39,37 @@ public class ScmInfoRepositoryImpl implements ScmInfoRepository {
 
   private static final Logger LOGGER = Loggers.get(ScmInfoRepositoryImpl.class);
 
+  /**
+   * Maximum number of files for which SCM info is kept in memory. Steps read files in tree order, so files evicted
+   * from the cache are seldom requested again.
+   */
+  static final int CACHE_SIZE = 10_000;
+  /**
+   * Maximum number of files whose SCM info is read from DB in a single batch.
+   */
+  static final int DB_BATCH_SIZE = 100;
+
   private final BatchReportReader batchReportReader;
-  private final Map<Component, ScmInfo> scmInfoCache = new HashMap<>();
   private final ScmInfoDbLoader scmInfoDbLoader;
+  private final TreeRootHolder treeRootHolder;
+  private final Map<Component, ScmInfo> scmInfoCache;
+  private List<Component> files;
+  private Map<Component, Integer> filePositions;
+
+  public ScmInfoRepositoryImpl(BatchReportReader batchReportReader, ScmInfoDbLoader scmInfoDbLoader, TreeRootHolder treeRootHolder) {
+    this(batchReportReader, scmInfoDbLoader, treeRootHolder, CACHE_SIZE);
+  }
 
-  public ScmInfoRepositoryImpl(BatchReportReader batchReportReader, ScmInfoDbLoader scmInfoDbLoader) {
+  ScmInfoRepositoryImpl(BatchReportReader batchReportReader, ScmInfoDbLoader scmInfoDbLoader, TreeRootHolder treeRootHolder, int cacheSize) {
     this.batchReportReader = batchReportReader;
     this.scmInfoDbLoader = scmInfoDbLoader;
+    this.treeRootHolder = treeRootHolder;
+    this.scmInfoCache = new LinkedHashMap<Component, ScmInfo>(16, 0.75F, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Component, ScmInfo> eldest) {
+        return size() > cacheSize;
+      }
+    };
   }
 
   @Override
@@ -58,11 +87,68 @@ public class ScmInfoRepositoryImpl implements ScmInfoRepository {
       return optionalOf(scmInfo);
     }
 
-    scmInfo = getScmInfoForComponent(component);
+    ScannerReport.Changesets changesets = batchReportReader.readChangesets(component.getReportAttributes().getRef());
+    if (changesets != null && changesets.getCopyFromPrevious()) {
+      scmInfo = loadFromDbWithFollowingFiles(component);
+    } else {
+      scmInfo = getScmInfoForComponent(component, changesets);
+    }
     scmInfoCache.put(component, scmInfo);
     return optionalOf(scmInfo);
   }
 
+  /**
+   * Reads SCM info of the specified file from DB, together with the SCM info of the next files of the tree which are
+   * not in cache yet, up to {@link #DB_BATCH_SIZE} files requiring a read from DB. Info of all these files is cached,
+   * evicting the least recently used entries when the cache is full.
+   */
+  private ScmInfo loadFromDbWithFollowingFiles(Component file) {
+    Integer position = getFilePositions().get(file);
+    if (position == null) {
+      return scmInfoDbLoader.getScmInfoFromDb(file);
+    }
+
+    List<Component> dbFiles = new ArrayList<>();
+    dbFiles.add(file);
+    for (int i = position + 1; i < files.size() && dbFiles.size() < DB_BATCH_SIZE; i++) {
+      Component next = files.get(i);
+      if (!scmInfoCache.containsKey(next)) {
+        ScannerReport.Changesets changesets = batchReportReader.readChangesets(next.getReportAttributes().getRef());
+        if (changesets != null && changesets.getCopyFromPrevious()) {
+          dbFiles.add(next);
+        } else {
+          scmInfoCache.put(next, getScmInfoForComponent(next, changesets));
+        }
+      }
+    }
+
+    Map<Component, ScmInfo> scmInfos = scmInfoDbLoader.getScmInfosFromDb(dbFiles);
+    scmInfoCache.putAll(scmInfos);
+    return scmInfos.get(file);
+  }
+
+  private Map<Component, Integer> getFilePositions() {
+    if (filePositions == null) {
+      files = new ArrayList<>();
+      collectFiles(treeRootHolder.getRoot(), files);
+      filePositions = new HashMap<>(files.size());
+      for (int i = 0; i < files.size(); i++) {
+        filePositions.put(files.get(i), i);
+      }
+    }
+    return filePositions;
+  }
+
+  private static void collectFiles(Component component, List<Component> files) {
+    if (component.getType() == Component.Type.FILE) {
+      files.add(component);
+      return;
+    }
+    for (Component child : component.getChildren()) {
+      collectFiles(child, files);
+    }
+  }
+
   private static Optional<ScmInfo> optionalOf(ScmInfo scmInfo) {
     if (scmInfo == NoScmInfo.INSTANCE) {
       return Optional.absent();
@@ -70,15 +156,11 @@ public class ScmInfoRepositoryImpl implements ScmInfoRepository {
     return Optional.of(scmInfo);
   }
 
-  private ScmInfo getScmInfoForComponent(Component component) {
-    ScannerReport.Changesets changesets = batchReportReader.readChangesets(component.getReportAttributes().getRef());
+  private static ScmInfo getScmInfoForComponent(Component component, @Nullable ScannerReport.Changesets changesets) {
     if (changesets == null) {
       LOGGER.trace("No SCM info for file '{}'", component.getKey());
       return NoScmInfo.INSTANCE;
     }
-    if (changesets.getCopyFromPrevious()) {
-      return scmInfoDbLoader.getScmInfoFromDb(component);
-    }
     return getScmInfoFromReport(component, changesets);
   }
 
@@ -0,0 +1,135 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.source;
+
+import com.google.common.base.Optional;
+import com.google.protobuf.Message;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.duplication.Duplicate;
+import org.sonar.server.computation.task.projectanalysis.duplication.Duplication;
+import org.sonar.server.computation.task.projectanalysis.duplication.InnerDuplicate;
+import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
+import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
+import org.sonar.server.computation.task.projectanalysis.scm.ScmInfo;
+
+/**
+ * Computes a hash of all the data used by {@link ComputeFileSourceData} to build the sources of a file:
+ * source, coverage, highlighting, symbols, SCM and duplications. Report data is hashed without being merged
+ * line by line, so that the sources of unchanged files are not computed again.
+ */
+public class FileSourceInputHasher {
+
+  /**
+   * To be incremented when the data built from the same inputs changes, for example when a new {@link LineReader}
+   * is added.
+   */
+  private static final int VERSION = 1;
+
+  private final BatchReportReader reportReader;
+  private final SourceHashRepository sourceHashRepository;
+
+  public FileSourceInputHasher(BatchReportReader reportReader, SourceHashRepository sourceHashRepository) {
+    this.reportReader = reportReader;
+    this.sourceHashRepository = sourceHashRepository;
+  }
+
+  public String hash(Component file, Optional<ScmInfo> scmInfo, Iterable<Duplication> duplications) {
+    MessageDigest digest = DigestUtils.getMd5Digest();
+    try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(NullOutputStream.NULL_OUTPUT_STREAM, digest))) {
+      int lines = file.getFileAttributes().getLines();
+      int ref = file.getReportAttributes().getRef();
+      out.writeInt(VERSION);
+      out.writeInt(lines);
+      out.writeUTF(sourceHashRepository.getRawSourceHash(file));
+      writeMessages(out, reportReader.readComponentCoverage(ref));
+      writeMessages(out, reportReader.readComponentSyntaxHighlighting(ref));
+      writeMessages(out, reportReader.readComponentSymbols(ref));
+      writeScm(out, scmInfo, lines);
+      writeDuplications(out, duplications);
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to compute hash of sources of %s", file.getKey()), e);
+    }
+    return Hex.encodeHexString(digest.digest());
+  }
+
+  private static void writeMessages(DataOutputStream out, CloseableIterator<? extends Message> messages) throws IOException {
+    try (CloseableIterator<? extends Message> it = messages) {
+      while (it.hasNext()) {
+        out.writeBoolean(true);
+        it.next().writeDelimitedTo(out);
+      }
+    }
+    out.writeBoolean(false);
+  }
+
+  private static void writeScm(DataOutputStream out, Optional<ScmInfo> scmInfo, int lines) throws IOException {
+    out.writeBoolean(scmInfo.isPresent());
+    if (!scmInfo.isPresent()) {
+      return;
+    }
+    for (int line = 1; line <= lines; line++) {
+      boolean hasChangeset = scmInfo.get().hasChangesetForLine(line);
+      out.writeBoolean(hasChangeset);
+      if (hasChangeset) {
+        Changeset changeset = scmInfo.get().getChangesetForLine(line);
+        out.writeUTF(changeset.getRevision());
+        out.writeLong(changeset.getDate());
+        String author = changeset.getAuthor();
+        out.writeBoolean(author != null);
+        if (author != null) {
+          out.writeUTF(author);
+        }
+      }
+    }
+  }
+
+  /**
+   * Only the duplicated blocks of the file itself are used by {@link DuplicationLineReader}
+   */
+  private static void writeDuplications(DataOutputStream out, Iterable<Duplication> duplications) throws IOException {
+    List<TextBlock> textBlocks = new ArrayList<>();
+    for (Duplication duplication : duplications) {
+      textBlocks.add(duplication.getOriginal());
+      for (Duplicate duplicate : duplication.getDuplicates()) {
+        if (duplicate instanceof InnerDuplicate) {
+          textBlocks.add(duplicate.getTextBlock());
+        }
+      }
+    }
+    Collections.sort(textBlocks);
+    out.writeInt(textBlocks.size());
+    for (TextBlock textBlock : textBlocks) {
+      out.writeInt(textBlock.getStart());
+      out.writeInt(textBlock.getEnd());
+    }
+  }
+}
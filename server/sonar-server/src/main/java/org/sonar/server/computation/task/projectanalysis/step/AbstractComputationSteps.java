@@ -38,7 +38,7 @@ public abstract class AbstractComputationSteps implements ComputationSteps {
   @Override
   public Iterable<ComputationStep> instances() {
     return Iterables.transform(
-      orderedStepClasses(),
+      Iterables.filter(orderedStepClasses(), this::isExecuted),
       input -> {
         ComputationStep computationStepType = container.getComponentByType(input);
         if (computationStepType == null) {
@@ -47,4 +47,12 @@ public abstract class AbstractComputationSteps implements ComputationSteps {
         return computationStepType;
       });
   }
+
+  /**
+   * Whether the specified step must be executed. It is called lazily, just before the step would be executed, so it
+   * can depend on the state built by the previous steps.
+   */
+  protected boolean isExecuted(Class<? extends ComputationStep> stepClass) {
+    return true;
+  }
 }
@@ -49,8 +49,6 @@ import org.sonar.server.computation.task.step.ComputationStep;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
-import static java.util.function.Function.identity;
-import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.SUBVIEW;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
@@ -80,24 +78,65 @@ public class ComputeMeasureVariationsStep implements ComputationStep {
 
   @Override
   public void execute() {
+    List<Metric> metrics = StreamSupport.stream(metricRepository.getAll().spliterator(), false).filter(isNumeric()).collect(MoreCollectors.toList());
+    ComponentIndexVisitor componentIndexes = new ComponentIndexVisitor();
+    new DepthTraversalTypeAwareCrawler(componentIndexes).visit(treeRootHolder.getRoot());
+    PastMeasureValues pastMeasureValues = loadPastMeasureValues(componentIndexes.indexesByUuid, metrics);
+    new DepthTraversalTypeAwareCrawler(new VariationMeasuresVisitor(componentIndexes.indexesByUuid, pastMeasureValues, metrics))
+      .visit(treeRootHolder.getRoot());
+  }
+
+  /**
+   * Past measures of all the components are loaded with a single streamed request, rather than a request
+   * per component.
+   */
+  private PastMeasureValues loadPastMeasureValues(Map<String, Integer> componentIndexesByUuid, List<Metric> metrics) {
+    PastMeasureValues pastMeasureValues = new PastMeasureValues();
+    if (!periodHolder.hasPeriod() || metrics.isEmpty()) {
+      return pastMeasureValues;
+    }
+    Period period = periodHolder.getPeriod();
+    Set<Integer> metricIds = metrics.stream().map(Metric::getId).collect(MoreCollectors.toSet(metrics.size()));
     try (DbSession dbSession = dbClient.openSession(false)) {
-      List<Metric> metrics = StreamSupport.stream(metricRepository.getAll().spliterator(), false).filter(isNumeric()).collect(MoreCollectors.toList());
-      new DepthTraversalTypeAwareCrawler(new VariationMeasuresVisitor(dbSession, metrics))
-        .visit(treeRootHolder.getRoot());
+      dbClient.measureDao().selectPastMeasures(dbSession, period.getAnalysisUuid(), metricIds, context -> {
+        PastMeasureDto pastMeasure = context.getResultObject();
+        Integer componentIndex = componentIndexesByUuid.get(pastMeasure.getComponentUuid());
+        if (componentIndex != null && pastMeasure.hasValue()) {
+          pastMeasureValues.put(componentIndex, pastMeasure.getMetricId(), pastMeasure.getValue());
+        }
+      });
+    }
+    return pastMeasureValues;
+  }
+
+  private static CrawlerDepthLimit variationsDepthLimit() {
+    // measures on files are currently purged, so past measures are not available on files
+    return CrawlerDepthLimit.reportMaxDepth(DIRECTORY).withViewsMaxDepth(SUBVIEW);
+  }
+
+  private static class ComponentIndexVisitor extends TypeAwareVisitorAdapter {
+    private final Map<String, Integer> indexesByUuid = new HashMap<>();
+
+    ComponentIndexVisitor() {
+      super(variationsDepthLimit(), PRE_ORDER);
+    }
+
+    @Override
+    public void visitAny(Component component) {
+      indexesByUuid.put(component.getUuid(), indexesByUuid.size());
     }
   }
 
   private class VariationMeasuresVisitor extends TypeAwareVisitorAdapter {
 
-    private final DbSession session;
-    private final Set<Integer> metricIds;
+    private final Map<String, Integer> componentIndexesByUuid;
+    private final PastMeasureValues pastMeasureValues;
     private final List<Metric> metrics;
 
-    VariationMeasuresVisitor(DbSession session, List<Metric> metrics) {
-      // measures on files are currently purged, so past measures are not available on files
-      super(CrawlerDepthLimit.reportMaxDepth(DIRECTORY).withViewsMaxDepth(SUBVIEW), PRE_ORDER);
-      this.session = session;
-      this.metricIds = metrics.stream().map(Metric::getId).collect(MoreCollectors.toSet());
+    VariationMeasuresVisitor(Map<String, Integer> componentIndexesByUuid, PastMeasureValues pastMeasureValues, List<Metric> metrics) {
+      super(variationsDepthLimit(), PRE_ORDER);
+      this.componentIndexesByUuid = componentIndexesByUuid;
+      this.pastMeasureValues = pastMeasureValues;
       this.metrics = metrics;
     }
 
@@ -110,23 +149,17 @@ public class ComputeMeasureVariationsStep implements ComputationStep {
     private MeasuresWithVariationRepository computeMeasuresWithVariations(Component component) {
       MeasuresWithVariationRepository measuresWithVariationRepository = new MeasuresWithVariationRepository();
       if (periodHolder.hasPeriod()) {
-        Period period = periodHolder.getPeriod();
-        List<PastMeasureDto> pastMeasures = dbClient.measureDao()
-          .selectPastMeasures(session, component.getUuid(), period.getAnalysisUuid(), metricIds);
-        setVariationMeasures(component, pastMeasures, measuresWithVariationRepository);
+        setVariationMeasures(component, measuresWithVariationRepository);
       }
       return measuresWithVariationRepository;
     }
 
-    private void setVariationMeasures(Component component, List<PastMeasureDto> pastMeasures, MeasuresWithVariationRepository measuresWithVariationRepository) {
-      Map<MeasureKey, PastMeasureDto> pastMeasuresByMeasureKey = pastMeasures
-        .stream()
-        .collect(uniqueIndex(m -> new MeasureKey(metricRepository.getById((long) m.getMetricId()).getKey(), null), identity()));
+    private void setVariationMeasures(Component component, MeasuresWithVariationRepository measuresWithVariationRepository) {
+      int componentIndex = componentIndexesByUuid.get(component.getUuid());
       for (Metric metric : metrics) {
         Optional<Measure> measure = measureRepository.getRawMeasure(component, metric);
         if (measure.isPresent() && !measure.get().hasVariation()) {
-          PastMeasureDto pastMeasure = pastMeasuresByMeasureKey.get(new MeasureKey(metric.getKey(), null));
-          double pastValue = (pastMeasure != null && pastMeasure.hasValue()) ? pastMeasure.getValue() : 0d;
+          double pastValue = pastMeasureValues.get(componentIndex, metric.getId());
           measuresWithVariationRepository.add(metric, measure.get(), computeVariation(measure.get(), pastValue));
         }
       }
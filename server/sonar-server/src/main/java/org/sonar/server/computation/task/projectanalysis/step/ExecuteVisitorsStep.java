@@ -48,10 +48,30 @@ public class ExecuteVisitorsStep implements ComputationStep {
   @Override
   public void execute() {
     VisitorsCrawler visitorsCrawler = new VisitorsCrawler(visitors, LOGGER.isDebugEnabled());
-    visitorsCrawler.visit(treeRootHolder.getRoot());
+    try {
+      visitorsCrawler.visit(treeRootHolder.getRoot());
+    } finally {
+      closeVisitors();
+    }
     logVisitorExecutionDurations(visitors, visitorsCrawler);
   }
 
+  /**
+   * Visitors holding resources, for example threads, release them even if the crawl is interrupted by the failure
+   * of another visitor
+   */
+  private void closeVisitors() {
+    for (ComponentVisitor visitor : visitors) {
+      if (visitor instanceof AutoCloseable) {
+        try {
+          ((AutoCloseable) visitor).close();
+        } catch (Exception e) {
+          LOGGER.warn("Fail to close visitor " + visitor.getClass().getSimpleName(), e);
+        }
+      }
+    }
+  }
+
   private static void logVisitorExecutionDurations(List<ComponentVisitor> visitors, VisitorsCrawler visitorsCrawler) {
     if (LOGGER.isDebugEnabled()) {
       LOGGER.debug("  Execution time for each component visitor:");
@@ -20,12 +20,24 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Function;
+import com.google.common.collect.Multimap;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.slf4j.MDC;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.duplication.DuplicationUnitDto;
@@ -39,6 +51,8 @@ import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthL
 import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationExecutorService;
+import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationIndex;
 import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationStatusHolder;
 import org.sonar.server.computation.task.projectanalysis.duplication.IntegrateCrossProjectDuplications;
 import org.sonar.server.computation.task.projectanalysis.analysis.Analysis;
@@ -46,6 +60,7 @@ import org.sonar.server.computation.task.step.ComputationStep;
 
 import static com.google.common.collect.FluentIterable.from;
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Collections.singleton;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
 /**
@@ -54,33 +69,45 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
  * Blocks can be empty if :
  * - The file is excluded from the analysis using {@link org.sonar.api.CoreProperties#CPD_EXCLUSIONS}
  * - On Java, if the number of statements of the file is too small, nothing will be sent.
+ *
+ * Hashes which can't have duplicates in other projects are filtered out by the {@link CrossProjectDuplicationIndex}, then
+ * the duplicated blocks of a batch of files are loaded with a single request, and duplications of these files are
+ * computed in parallel by the {@link CrossProjectDuplicationExecutorService}, within the logging context of the task.
  */
 public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationStep {
 
   private static final Logger LOGGER = Loggers.get(LoadCrossProjectDuplicationsRepositoryStep.class);
+  private static final int FILES_PER_BATCH = 100;
 
   private final TreeRootHolder treeRootHolder;
   private final BatchReportReader reportReader;
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final IntegrateCrossProjectDuplications integrateCrossProjectDuplications;
   private final CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder;
+  private final CrossProjectDuplicationIndex crossProjectDuplicationIndex;
+  private final CrossProjectDuplicationExecutorService executor;
   private final DbClient dbClient;
 
   public LoadCrossProjectDuplicationsRepositoryStep(TreeRootHolder treeRootHolder, BatchReportReader reportReader,
     AnalysisMetadataHolder analysisMetadataHolder, CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder,
-    IntegrateCrossProjectDuplications integrateCrossProjectDuplications, DbClient dbClient) {
+    IntegrateCrossProjectDuplications integrateCrossProjectDuplications, CrossProjectDuplicationIndex crossProjectDuplicationIndex,
+    CrossProjectDuplicationExecutorService executor, DbClient dbClient) {
     this.treeRootHolder = treeRootHolder;
     this.reportReader = reportReader;
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.integrateCrossProjectDuplications = integrateCrossProjectDuplications;
     this.crossProjectDuplicationStatusHolder = crossProjectDuplicationStatusHolder;
+    this.crossProjectDuplicationIndex = crossProjectDuplicationIndex;
+    this.executor = executor;
     this.dbClient = dbClient;
   }
 
   @Override
   public void execute() {
     if (crossProjectDuplicationStatusHolder.isEnabled()) {
-      new DepthTraversalTypeAwareCrawler(new CrossProjectDuplicationVisitor()).visit(treeRootHolder.getRoot());
+      CrossProjectDuplicationVisitor visitor = new CrossProjectDuplicationVisitor();
+      new DepthTraversalTypeAwareCrawler(visitor).visit(treeRootHolder.getRoot());
+      visitor.flush();
     }
   }
 
@@ -90,9 +117,15 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
   }
 
   private class CrossProjectDuplicationVisitor extends TypeAwareVisitorAdapter {
+    @CheckForNull
+    private final String baseAnalysisUuid;
+    private final Set<String> refreshedLanguages = new HashSet<>();
+    private final List<FileBlocks> pendingFiles = new ArrayList<>();
 
     private CrossProjectDuplicationVisitor() {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
+      Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
+      this.baseAnalysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
     }
 
     @Override
@@ -106,25 +139,116 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
         }
       }
 
-      Collection<String> hashes = from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toList();
-      List<DuplicationUnitDto> dtos = selectDuplicates(file, hashes);
-      if (dtos.isEmpty()) {
+      String language = file.getFileAttributes().getLanguageKey();
+      if (language == null) {
+        // blocks of files without language can't be duplicated
+        return;
+      }
+      if (refreshedLanguages.add(language)) {
+        crossProjectDuplicationIndex.refresh(singleton(language));
+      }
+      Set<String> hashes = from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toSet();
+      Set<String> candidateHashes = crossProjectDuplicationIndex.filterCandidates(language, baseAnalysisUuid, hashes);
+      if (candidateHashes.isEmpty()) {
         return;
       }
 
+      pendingFiles.add(new FileBlocks(file, language, cpdTextBlocks, candidateHashes));
+      if (pendingFiles.size() >= FILES_PER_BATCH) {
+        flush();
+      }
+    }
+
+    /**
+     * Loads the duplicated blocks of the pending files, then computes their duplications in parallel
+     */
+    private void flush() {
+      if (pendingFiles.isEmpty()) {
+        return;
+      }
+      Map<String, Multimap<String, DuplicationUnitDto>> duplicatesByHashByLanguage = selectDuplicates();
+      Map<String, String> loggingContext = MDC.getCopyOfContextMap();
+      List<Future<?>> futures = new ArrayList<>();
+      for (FileBlocks fileBlocks : pendingFiles) {
+        Multimap<String, DuplicationUnitDto> duplicatesByHash = duplicatesByHashByLanguage.get(fileBlocks.language);
+        List<DuplicationUnitDto> dtos = fileBlocks.candidateHashes.stream()
+          .flatMap(hash -> duplicatesByHash.get(hash).stream())
+          .collect(MoreCollectors.toList());
+        if (!dtos.isEmpty()) {
+          futures.add(executor.submit(() -> withLoggingContext(loggingContext, () -> computeCpd(fileBlocks.file, fileBlocks.cpdTextBlocks, dtos))));
+        }
+      }
+      pendingFiles.clear();
+      awaitTermination(futures);
+    }
+
+    private Map<String, Multimap<String, DuplicationUnitDto>> selectDuplicates() {
+      Map<String, Multimap<String, DuplicationUnitDto>> result = new HashMap<>();
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        for (Map.Entry<String, Collection<FileBlocks>> entry : pendingFiles.stream().collect(MoreCollectors.index(f -> f.language)).asMap().entrySet()) {
+          Set<String> hashes = entry.getValue().stream().flatMap(f -> f.candidateHashes.stream()).collect(MoreCollectors.toSet());
+          List<DuplicationUnitDto> dtos = dbClient.duplicationDao().selectCandidates(dbSession, baseAnalysisUuid, entry.getKey(), hashes);
+          result.put(entry.getKey(), dtos.stream().collect(MoreCollectors.index(DuplicationUnitDto::getHash)));
+        }
+      }
+      return result;
+    }
+
+    private void computeCpd(Component file, List<CpdTextBlock> cpdTextBlocks, List<DuplicationUnitDto> dtos) {
       Collection<Block> duplicatedBlocks = from(dtos).transform(DtoToBlock.INSTANCE).toList();
       Collection<Block> originBlocks = from(cpdTextBlocks).transform(new CpdTextBlockToBlock(file.getKey())).toList();
       LOGGER.trace("Found {} duplicated cpd blocks on file {}", duplicatedBlocks.size(), file.getKey());
 
       integrateCrossProjectDuplications.computeCpd(file, originBlocks, duplicatedBlocks);
     }
+  }
 
-    private List<DuplicationUnitDto> selectDuplicates(Component file, Collection<String> hashes) {
-      try (DbSession dbSession = dbClient.openSession(false)) {
-        Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
-        String analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
-        return dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, file.getFileAttributes().getLanguageKey(), hashes);
+  /**
+   * Threads of the executor are shared by the tasks, so they get the logging context of the current task
+   * (ie. its uuid) only while computing its duplications.
+   */
+  private static void withLoggingContext(@Nullable Map<String, String> loggingContext, Runnable runnable) {
+    if (loggingContext != null) {
+      MDC.setContextMap(loggingContext);
+    }
+    try {
+      runnable.run();
+    } finally {
+      MDC.clear();
+    }
+  }
+
+  private static void awaitTermination(List<Future<?>> futures) {
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while computing cross project duplications", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
       }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException("Fail to compute cross project duplications", cause);
+    }
+  }
+
+  private static class FileBlocks {
+    private final Component file;
+    private final String language;
+    private final List<CpdTextBlock> cpdTextBlocks;
+    private final Set<String> candidateHashes;
+
+    private FileBlocks(Component file, String language, List<CpdTextBlock> cpdTextBlocks, Set<String> candidateHashes) {
+      this.file = file;
+      this.language = language;
+      this.cpdTextBlocks = cpdTextBlocks;
+      this.candidateHashes = candidateHashes;
     }
   }
 
@@ -0,0 +1,111 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.step;
+
+import java.util.Arrays;
+
+/**
+ * Values of past measures, keyed by index of component and id of metric. Keys and values are stored in
+ * primitive arrays with open addressing, so that the values of all the directories of a large project
+ * can be kept in memory without allocating an object per measure.
+ */
+class PastMeasureValues {
+
+  private static final long NO_KEY = -1L;
+  private static final int INITIAL_CAPACITY = 1_024;
+
+  private long[] keys;
+  private double[] values;
+  private int size = 0;
+
+  PastMeasureValues() {
+    this.keys = newKeys(INITIAL_CAPACITY);
+    this.values = new double[INITIAL_CAPACITY];
+  }
+
+  void put(int componentIndex, int metricId, double value) {
+    if ((size + 1) * 2 > keys.length) {
+      grow();
+    }
+    if (insert(keys, values, toKey(componentIndex, metricId), value)) {
+      size++;
+    }
+  }
+
+  /**
+   * @return the value, or {@code 0} if there is no past measure (or no value) on the component for this metric
+   */
+  double get(int componentIndex, int metricId) {
+    long key = toKey(componentIndex, metricId);
+    int mask = keys.length - 1;
+    for (int slot = hash(key) & mask; keys[slot] != NO_KEY; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        return values[slot];
+      }
+    }
+    return 0d;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private void grow() {
+    long[] newKeys = newKeys(keys.length * 2);
+    double[] newValues = new double[keys.length * 2];
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != NO_KEY) {
+        insert(newKeys, newValues, keys[i], values[i]);
+      }
+    }
+    this.keys = newKeys;
+    this.values = newValues;
+  }
+
+  /**
+   * @return true if the key was not already present
+   */
+  private static boolean insert(long[] keys, double[] values, long key, double value) {
+    int mask = keys.length - 1;
+    int slot = hash(key) & mask;
+    while (keys[slot] != NO_KEY && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    boolean added = keys[slot] == NO_KEY;
+    keys[slot] = key;
+    values[slot] = value;
+    return added;
+  }
+
+  private static long[] newKeys(int capacity) {
+    long[] result = new long[capacity];
+    Arrays.fill(result, NO_KEY);
+    return result;
+  }
+
+  private static long toKey(int componentIndex, int metricId) {
+    return ((long) componentIndex << 32) | (metricId & 0xFFFFFFFFL);
+  }
+
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
@@ -21,19 +21,26 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.ObjectUtils;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
-import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
 import org.sonar.db.source.FileSourceDto.Type;
 import org.sonar.scanner.protocol.output.ScannerReport;
@@ -43,6 +50,7 @@ import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthL
 import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.server.computation.task.projectanalysis.duplication.Duplication;
 import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepository;
 import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfo;
@@ -50,10 +58,12 @@ import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepository;
 import org.sonar.server.computation.task.projectanalysis.source.ComputeFileSourceData;
 import org.sonar.server.computation.task.projectanalysis.source.CoverageLineReader;
 import org.sonar.server.computation.task.projectanalysis.source.DuplicationLineReader;
+import org.sonar.server.computation.task.projectanalysis.source.FileSourceInputHasher;
 import org.sonar.server.computation.task.projectanalysis.source.HighlightingLineReader;
 import org.sonar.server.computation.task.projectanalysis.source.LineReader;
 import org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConverter;
 import org.sonar.server.computation.task.projectanalysis.source.ScmLineReader;
+import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SymbolsLineReader;
 import org.sonar.server.computation.task.step.ComputationStep;
@@ -62,6 +72,15 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 
 public class PersistFileSourcesStep implements ComputationStep {
 
+  /**
+   * Number of threads computing the sources of changed files. Sources are computed by the thread executing the step
+   * by default.
+   */
+  public static final String THREADS_PROPERTY = "sonar.ce.persistSources.threads";
+  private static final int MAX_PENDING_FILES_PER_THREAD = 10;
+  static final int MAX_ROWS_PER_TRANSACTION = 100;
+  static final long MAX_BYTES_PER_TRANSACTION = 10L * 1024 * 1024;
+
   private final DbClient dbClient;
   private final System2 system2;
   private final TreeRootHolder treeRootHolder;
@@ -69,9 +88,11 @@ public class PersistFileSourcesStep implements ComputationStep {
   private final SourceLinesRepository sourceLinesRepository;
   private final ScmInfoRepository scmInfoRepository;
   private final DuplicationRepository duplicationRepository;
+  private final FileSourceInputHasher inputHasher;
+  private final int threads;
 
   public PersistFileSourcesStep(DbClient dbClient, System2 system2, TreeRootHolder treeRootHolder, BatchReportReader reportReader, SourceLinesRepository sourceLinesRepository,
-    ScmInfoRepository scmInfoRepository, DuplicationRepository duplicationRepository) {
+    ScmInfoRepository scmInfoRepository, DuplicationRepository duplicationRepository, SourceHashRepository sourceHashRepository, Configuration config) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.treeRootHolder = treeRootHolder;
@@ -79,27 +100,46 @@ public class PersistFileSourcesStep implements ComputationStep {
     this.sourceLinesRepository = sourceLinesRepository;
     this.scmInfoRepository = scmInfoRepository;
     this.duplicationRepository = duplicationRepository;
+    this.inputHasher = new FileSourceInputHasher(reportReader, sourceHashRepository);
+    this.threads = config.getInt(THREADS_PROPERTY).orElse(1);
   }
 
   @Override
   public void execute() {
-    // Don't use batch insert for file_sources since keeping all data in memory can produce OOM for big files
+    // Don't use batch insert for file_sources since keeping all data in memory can produce OOM for big files.
+    // Rows are committed by groups bounded by MAX_ROWS_PER_TRANSACTION and MAX_BYTES_PER_TRANSACTION.
+    ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("PersistSources-%d")
+      .setDaemon(true)
+      .build()) : null;
     try (DbSession dbSession = dbClient.openSession(false)) {
-      new DepthTraversalTypeAwareCrawler(new FileSourceVisitor(dbSession))
+      FileSourceVisitor visitor = new FileSourceVisitor(dbSession, executor);
+      new DepthTraversalTypeAwareCrawler(visitor)
         .visit(treeRootHolder.getRoot());
+      visitor.flush();
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
     }
   }
 
   private class FileSourceVisitor extends TypeAwareVisitorAdapter {
 
     private final DbSession session;
+    @CheckForNull
+    private final ExecutorService executor;
+    private final Deque<Future<FileSource>> pending = new ArrayDeque<>();
 
     private Map<String, FileSourceDto> previousFileSourcesByUuid = new HashMap<>();
     private String projectUuid;
+    private int uncommittedRows = 0;
+    private long uncommittedBytes = 0L;
 
-    private FileSourceVisitor(DbSession session) {
+    private FileSourceVisitor(DbSession session, @Nullable ExecutorService executor) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
       this.session = session;
+      this.executor = executor;
     }
 
     @Override
@@ -114,23 +154,40 @@ public class PersistFileSourcesStep implements ComputationStep {
 
     @Override
     public void visitFile(Component file) {
-      try (CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file);
-        LineReaders lineReaders = new LineReaders(reportReader, scmInfoRepository, duplicationRepository, file)) {
-        ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), file.getFileAttributes().getLines());
-        ComputeFileSourceData.Data fileSourceData = computeFileSourceData.compute();
-        persistSource(fileSourceData, file.getUuid(), lineReaders.getLatestChange());
-      } catch (Exception e) {
-        throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
+      // SCM and duplications are loaded by the current thread as their repositories are not thread-safe
+      Optional<ScmInfo> scmInfo = scmInfoRepository.getScmInfo(file);
+      Iterable<Duplication> duplications = duplicationRepository.getDuplications(file);
+      String inputHash = inputHasher.hash(file, scmInfo, duplications);
+      FileSourceDto previousDto = previousFileSourcesByUuid.get(file.getUuid());
+      if (previousDto != null && inputHash.equals(previousDto.getInputHash()) && previousDto.getSrcHash() != null) {
+        // nothing has changed since previous analysis
+        return;
+      }
+
+      if (executor == null) {
+        persistSource(computeSource(file, scmInfo, duplications, inputHash));
+      } else {
+        pending.add(executor.submit(() -> computeSource(file, scmInfo, duplications, inputHash)));
+        while (pending.size() > threads * MAX_PENDING_FILES_PER_THREAD) {
+          persistSource(getPending(pending.removeFirst()));
+        }
       }
     }
 
-    private void persistSource(ComputeFileSourceData.Data fileSourceData, String componentUuid, @Nullable Changeset latestChange) {
-      DbFileSources.Data fileData = fileSourceData.getFileSourceData();
+    private void flush() {
+      while (!pending.isEmpty()) {
+        persistSource(getPending(pending.removeFirst()));
+      }
+      session.commit();
+    }
 
-      byte[] data = FileSourceDto.encodeSourceData(fileData);
-      String dataHash = DigestUtils.md5Hex(data);
-      String srcHash = fileSourceData.getSrcHash();
-      String lineHashes = fileSourceData.getLineHashes();
+    private void persistSource(FileSource fileSource) {
+      String componentUuid = fileSource.file.getUuid();
+      byte[] data = fileSource.data;
+      String dataHash = fileSource.dataHash;
+      String srcHash = fileSource.srcHash;
+      String lineHashes = fileSource.lineHashes;
+      String revision = fileSource.revision;
       FileSourceDto previousDto = previousFileSourcesByUuid.get(componentUuid);
 
       if (previousDto == null) {
@@ -144,35 +201,102 @@ public class PersistFileSourcesStep implements ComputationStep {
           .setLineHashes(lineHashes)
           .setCreatedAt(system2.now())
           .setUpdatedAt(system2.now())
-          .setRevision(computeRevision(latestChange));
+          .setRevision(revision)
+          .setInputHash(fileSource.inputHash);
         dbClient.fileSourceDao().insert(session, dto);
-        session.commit();
+        written(data);
       } else {
         // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
         boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
         boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
-        String revision = computeRevision(latestChange);
         boolean revisionUpdated = !ObjectUtils.equals(revision, previousDto.getRevision());
-        if (binaryDataUpdated || srcHashUpdated || revisionUpdated) {
+        boolean sourceUpdated = binaryDataUpdated || srcHashUpdated || revisionUpdated;
+        // input hash is missing or outdated although data is the same: it's stored without changing the update date
+        if (sourceUpdated || !fileSource.inputHash.equals(previousDto.getInputHash())) {
           previousDto
             .setBinaryData(data)
             .setDataHash(dataHash)
             .setSrcHash(srcHash)
             .setLineHashes(lineHashes)
             .setRevision(revision)
-            .setUpdatedAt(system2.now());
+            .setInputHash(fileSource.inputHash);
+          if (sourceUpdated) {
+            previousDto.setUpdatedAt(system2.now());
+          }
           dbClient.fileSourceDao().update(session, previousDto);
-          session.commit();
+          written(data);
         }
       }
     }
 
-    @CheckForNull
-    private String computeRevision(@Nullable Changeset latestChange) {
-      if (latestChange == null) {
-        return null;
+    private void written(byte[] data) {
+      uncommittedRows++;
+      uncommittedBytes += data.length;
+      if (uncommittedRows >= MAX_ROWS_PER_TRANSACTION || uncommittedBytes >= MAX_BYTES_PER_TRANSACTION) {
+        session.commit();
+        uncommittedRows = 0;
+        uncommittedBytes = 0L;
+      }
+    }
+  }
+
+  /**
+   * Builds and encodes the sources of a file. It does not depend on any state of the step and can be executed
+   * by any thread.
+   */
+  private FileSource computeSource(Component file, Optional<ScmInfo> scmInfo, Iterable<Duplication> duplications, String inputHash) {
+    try (CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file);
+      LineReaders lineReaders = new LineReaders(reportReader, scmInfo, duplications, file)) {
+      ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), file.getFileAttributes().getLines());
+      ComputeFileSourceData.Data fileSourceData = computeFileSourceData.compute();
+      byte[] data = FileSourceDto.encodeSourceData(fileSourceData.getFileSourceData());
+      return new FileSource(file, inputHash, data, DigestUtils.md5Hex(data), fileSourceData.getSrcHash(), fileSourceData.getLineHashes(),
+        computeRevision(lineReaders.getLatestChange()));
+    } catch (Exception e) {
+      throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
+    }
+  }
+
+  private static FileSource getPending(Future<FileSource> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while persisting sources", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
       }
-      return latestChange.getRevision();
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  @CheckForNull
+  private static String computeRevision(@Nullable Changeset latestChange) {
+    if (latestChange == null) {
+      return null;
+    }
+    return latestChange.getRevision();
+  }
+
+  private static class FileSource {
+    private final Component file;
+    private final String inputHash;
+    private final byte[] data;
+    private final String dataHash;
+    private final String srcHash;
+    private final String lineHashes;
+    @CheckForNull
+    private final String revision;
+
+    private FileSource(Component file, String inputHash, byte[] data, String dataHash, String srcHash, String lineHashes, @Nullable String revision) {
+      this.file = file;
+      this.inputHash = inputHash;
+      this.data = data;
+      this.dataHash = dataHash;
+      this.srcHash = srcHash;
+      this.lineHashes = lineHashes;
+      this.revision = revision;
     }
   }
 
@@ -182,13 +306,12 @@ public class PersistFileSourcesStep implements ComputationStep {
     @CheckForNull
     private final ScmLineReader scmLineReader;
 
-    LineReaders(BatchReportReader reportReader, ScmInfoRepository scmInfoRepository, DuplicationRepository duplicationRepository, Component component) {
+    LineReaders(BatchReportReader reportReader, Optional<ScmInfo> scmInfoOptional, Iterable<Duplication> duplications, Component component) {
       int componentRef = component.getReportAttributes().getRef();
       CloseableIterator<ScannerReport.LineCoverage> coverageIt = reportReader.readComponentCoverage(componentRef);
       closeables.add(coverageIt);
       readers.add(new CoverageLineReader(coverageIt));
 
-      Optional<ScmInfo> scmInfoOptional = scmInfoRepository.getScmInfo(component);
       if (scmInfoOptional.isPresent()) {
         this.scmLineReader = new ScmLineReader(scmInfoOptional.get());
         readers.add(scmLineReader);
@@ -204,7 +327,7 @@ public class PersistFileSourcesStep implements ComputationStep {
       CloseableIterator<ScannerReport.Symbol> symbolsIt = reportReader.readComponentSymbols(componentRef);
       closeables.add(symbolsIt);
       readers.add(new SymbolsLineReader(component, symbolsIt, rangeOffsetConverter));
-      readers.add(new DuplicationLineReader(duplicationRepository.getDuplications(component)));
+      readers.add(new DuplicationLineReader(duplications));
     }
 
     List<LineReader> readers() {
@@ -19,9 +19,12 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import org.sonar.server.computation.task.container.TaskContainer;
+import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.server.computation.task.projectanalysis.filemove.FileMoveDetectionStep;
 import org.sonar.server.computation.task.step.ComputationStep;
 
@@ -102,8 +105,22 @@ public class ReportComputationSteps extends AbstractComputationSteps {
 
     PublishTaskResultStep.class);
 
+  /**
+   * Steps which are not executed when analyzing a short living branch. They compute history-oriented data
+   * (variations, events) which is not used on such branches.
+   * <p>
+   * Cross project duplication steps are not listed: they already do nothing when the branch does not support
+   * cross project duplications (see {@link org.sonar.server.computation.task.projectanalysis.analysis.Branch#supportsCrossProjectCpd()}).
+   */
+  private static final Set<Class<? extends ComputationStep>> SKIPPED_ON_SHORT_LIVING_BRANCH = ImmutableSet.of(
+    ComputeMeasureVariationsStep.class,
+    QualityProfileEventsStep.class);
+
+  private final TaskContainer taskContainer;
+
   public ReportComputationSteps(TaskContainer taskContainer) {
     super(taskContainer);
+    this.taskContainer = taskContainer;
   }
 
   /**
@@ -115,4 +132,14 @@ public class ReportComputationSteps extends AbstractComputationSteps {
     return STEPS;
   }
 
+  /**
+   * Steps of {@link #SKIPPED_ON_SHORT_LIVING_BRANCH} are all executed after {@link LoadReportAnalysisMetadataHolderStep},
+   * so the branch is known when they are checked.
+   */
+  @Override
+  protected boolean isExecuted(Class<? extends ComputationStep> stepClass) {
+    return !SKIPPED_ON_SHORT_LIVING_BRANCH.contains(stepClass)
+      || !taskContainer.getComponentByType(AnalysisMetadataHolder.class).isShortLivingBranch();
+  }
+
 }
@@ -22,6 +22,9 @@ package org.sonar.server.computation.task.projectanalysis.taskprocessor;
 import java.util.Collections;
 import java.util.Set;
 import javax.annotation.CheckForNull;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.api.utils.log.Profiler;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.ce.queue.CeTaskResult;
 import org.sonar.ce.settings.SettingsLoader;
@@ -37,6 +40,7 @@ import org.sonar.server.setting.ThreadLocalSettings;
 
 public class ReportTaskProcessor implements CeTaskProcessor {
 
+  private static final Logger LOGGER = Loggers.get(ReportTaskProcessor.class);
   private static final Set<String> HANDLED_TYPES = Collections.singleton(CeTaskTypes.REPORT);
 
   private final ContainerFactory containerFactory;
@@ -69,7 +73,9 @@ public class ReportTaskProcessor implements CeTaskProcessor {
 
   @Override
   public CeTaskResult process(CeTask task) {
+    Profiler profiler = Profiler.create(LOGGER).start();
     TaskContainer ceContainer = containerFactory.create(serverContainer, task, componentProviders);
+    profiler.stopInfo("Create task container");
 
     try {
       ceContainer.getComponentByType(ComputationStepExecutor.class).execute();
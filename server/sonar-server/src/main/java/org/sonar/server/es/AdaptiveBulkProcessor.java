@@ -0,0 +1,285 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor.Listener;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+
+/**
+ * Alternative to {@link org.elasticsearch.action.bulk.BulkProcessor} that adapts the size of bulk requests
+ * and the number of concurrent requests to the load of the cluster:
+ * <ul>
+ *   <li>fast requests increase the size of the next bulk requests and the concurrency</li>
+ *   <li>slow requests decrease the size of the next bulk requests</li>
+ *   <li>rejected executions (full bulk queue) halve both size and concurrency. Rejected items are
+ *   retried with the backoff policy, so that they are not reported as failures as long as
+ *   Elasticsearch eventually accepts them.</li>
+ * </ul>
+ * Requests are executed in a dedicated pool of threads. The caller is blocked when the maximum
+ * number of concurrent requests is reached.
+ */
+class AdaptiveBulkProcessor implements BulkIndexer.BulkSender {
+
+  static final long MIN_BULK_BYTES = 256 * 1024L;
+  static final long INITIAL_BULK_BYTES = 1024 * 1024L;
+  static final long MAX_BULK_BYTES = 16 * 1024 * 1024L;
+  /**
+   * Bulk requests slower than this target decrease the size of the next ones. Requests twice faster
+   * increase it.
+   */
+  static final long TARGET_LATENCY_MS = 2_000L;
+
+  private final Client client;
+  private final Listener listener;
+  private final BackoffPolicy backoffPolicy;
+  private final int maxConcurrency;
+  private final ExecutorService executor;
+  private final AtomicLong executionIds = new AtomicLong();
+  private final LongAdder docs = new LongAdder();
+  private final LongAdder bytes = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+
+  // fields below are guarded by "this"
+  private long startNanos = -1L;
+  private BulkRequest bulkRequest = new BulkRequest();
+  private long bulkBytes = INITIAL_BULK_BYTES;
+  private int concurrency;
+  private int pendingRequests = 0;
+  private long elapsedNanos = -1L;
+
+  AdaptiveBulkProcessor(Client client, Listener listener, BackoffPolicy backoffPolicy, int initialConcurrency, int maxConcurrency) {
+    this.client = client;
+    this.listener = listener;
+    this.backoffPolicy = backoffPolicy;
+    this.maxConcurrency = Math.max(1, maxConcurrency);
+    this.concurrency = Math.min(Math.max(1, initialConcurrency), this.maxConcurrency);
+    this.executor = Executors.newFixedThreadPool(this.maxConcurrency, new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat("AdaptiveBulkProcessor-%d")
+      .build());
+  }
+
+  @Override
+  public void add(DocWriteRequest request) {
+    BulkRequest toBeSent = null;
+    synchronized (this) {
+      if (startNanos < 0L) {
+        startNanos = System.nanoTime();
+      }
+      bulkRequest.add(request);
+      if (bulkRequest.estimatedSizeInBytes() >= bulkBytes) {
+        toBeSent = bulkRequest;
+        bulkRequest = new BulkRequest();
+      }
+    }
+    if (toBeSent != null) {
+      submit(toBeSent);
+    }
+  }
+
+  @Override
+  public boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+    BulkRequest toBeSent;
+    synchronized (this) {
+      toBeSent = bulkRequest;
+      bulkRequest = new BulkRequest();
+    }
+    if (toBeSent.numberOfActions() > 0) {
+      submit(toBeSent);
+    }
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    try {
+      synchronized (this) {
+        while (pendingRequests > 0) {
+          long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+          if (remainingMs <= 0L) {
+            return false;
+          }
+          wait(remainingMs);
+        }
+        if (startNanos >= 0L) {
+          elapsedNanos = System.nanoTime() - startNanos;
+        }
+        return true;
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private void submit(BulkRequest request) {
+    synchronized (this) {
+      while (pendingRequests >= concurrency) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while waiting for the completion of Elasticsearch bulk requests", e);
+        }
+      }
+      pendingRequests++;
+    }
+    long executionId = executionIds.incrementAndGet();
+    try {
+      executor.execute(() -> {
+        try {
+          execute(executionId, request);
+        } finally {
+          release();
+        }
+      });
+    } catch (RuntimeException e) {
+      release();
+      throw e;
+    }
+  }
+
+  private synchronized void release() {
+    pendingRequests--;
+    notifyAll();
+  }
+
+  private void execute(long executionId, BulkRequest request) {
+    listener.beforeBulk(executionId, request);
+    try {
+      BulkResponse response = executeWithRetries(request);
+      docs.add(request.numberOfActions());
+      bytes.add(request.estimatedSizeInBytes());
+      listener.afterBulk(executionId, request, response);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      listener.afterBulk(executionId, request, e);
+    } catch (Exception e) {
+      listener.afterBulk(executionId, request, e);
+    }
+  }
+
+  private BulkResponse executeWithRetries(BulkRequest request) throws InterruptedException {
+    Iterator<TimeValue> backoff = backoffPolicy.iterator();
+    List<BulkItemResponse> items = new ArrayList<>(request.numberOfActions());
+    long tookMs = 0L;
+    BulkRequest pending = request;
+    while (true) {
+      long start = System.nanoTime();
+      BulkResponse response;
+      try {
+        response = client.bulk(pending).actionGet();
+      } catch (Exception e) {
+        if (!(ExceptionsHelper.unwrapCause(e) instanceof EsRejectedExecutionException) || !backoff.hasNext()) {
+          throw e;
+        }
+        onRejection();
+        Thread.sleep(backoff.next().millis());
+        continue;
+      }
+      long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      tookMs += response.getTookInMillis();
+
+      BulkRequest rejected = new BulkRequest();
+      for (BulkItemResponse item : response.getItems()) {
+        if (isRejected(item) && backoff.hasNext()) {
+          rejected.add(pending.requests().get(item.getItemId()));
+        } else {
+          items.add(item);
+        }
+      }
+      if (rejected.numberOfActions() == 0) {
+        adapt(durationMs, false);
+        return new BulkResponse(items.toArray(new BulkItemResponse[items.size()]), tookMs);
+      }
+      onRejection();
+      Thread.sleep(backoff.next().millis());
+      pending = rejected;
+    }
+  }
+
+  private static boolean isRejected(BulkItemResponse item) {
+    return item.isFailed() && item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS;
+  }
+
+  private void onRejection() {
+    rejections.increment();
+    adapt(0L, true);
+  }
+
+  @VisibleForTesting
+  synchronized void adapt(long durationMs, boolean rejected) {
+    if (rejected) {
+      bulkBytes = Math.max(MIN_BULK_BYTES, bulkBytes / 2);
+      concurrency = Math.max(1, concurrency / 2);
+    } else if (durationMs > TARGET_LATENCY_MS) {
+      bulkBytes = Math.max(MIN_BULK_BYTES, bulkBytes * 3 / 4);
+    } else if (durationMs < TARGET_LATENCY_MS / 2) {
+      bulkBytes = Math.min(MAX_BULK_BYTES, bulkBytes * 5 / 4);
+      concurrency = Math.min(maxConcurrency, concurrency + 1);
+    }
+    notifyAll();
+  }
+
+  synchronized long getBulkBytes() {
+    return bulkBytes;
+  }
+
+  synchronized int getConcurrency() {
+    return concurrency;
+  }
+
+  long getDocs() {
+    return docs.sum();
+  }
+
+  long getBytes() {
+    return bytes.sum();
+  }
+
+  long getRejections() {
+    return rejections.sum();
+  }
+
+  /**
+   * Duration between the first request and the closing, or until now if not closed yet
+   */
+  synchronized long getElapsedMs() {
+    if (startNanos < 0L) {
+      return 0L;
+    }
+    long nanos = elapsedNanos >= 0L ? elapsedNanos : (System.nanoTime() - startNanos);
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+}
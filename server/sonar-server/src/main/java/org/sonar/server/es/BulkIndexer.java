@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.DocWriteRequest;
@@ -56,8 +57,10 @@ import static java.lang.String.format;
 /**
  * Helper to bulk requests in an efficient way :
  * <ul>
- *   <li>bulk request is sent on the wire when its size is higher than 5Mb</li>
+ *   <li>bulk request is sent on the wire when its size is higher than 1Mb</li>
  *   <li>on large table indexing, replicas and automatic refresh can be temporarily disabled</li>
+ *   <li>on large table indexing, size of bulk requests and concurrency are adapted to the load of
+ *   Elasticsearch. See {@link AdaptiveBulkProcessor}.</li>
  * </ul>
  */
 public class BulkIndexer {
@@ -70,7 +73,7 @@ public class BulkIndexer {
 
   private final EsClient client;
   private final IndexType indexType;
-  private final BulkProcessor bulkProcessor;
+  private final BulkSender bulkSender;
   private final IndexingResult result = new IndexingResult();
   private final IndexingListener indexingListener;
   private final SizeHandler sizeHandler;
@@ -84,13 +87,7 @@ public class BulkIndexer {
     this.indexType = indexType;
     this.sizeHandler = size.createHandler(Runtime2.INSTANCE);
     this.indexingListener = indexingListener;
-    BulkProcessorListener bulkProcessorListener = new BulkProcessorListener();
-    this.bulkProcessor = BulkProcessor.builder(client.nativeClient(), bulkProcessorListener)
-      .setBackoffPolicy(BackoffPolicy.exponentialBackoff())
-      .setBulkSize(FLUSH_BYTE_SIZE)
-      .setBulkActions(FLUSH_ACTIONS)
-      .setConcurrentRequests(sizeHandler.getConcurrentRequests())
-      .build();
+    this.bulkSender = sizeHandler.createSender(client, new BulkProcessorListener());
   }
 
   public IndexType getIndexType() {
@@ -107,7 +104,7 @@ public class BulkIndexer {
    */
   public IndexingResult stop() {
     try {
-      bulkProcessor.awaitClose(1, TimeUnit.MINUTES);
+      bulkSender.awaitClose(1, TimeUnit.MINUTES);
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
       throw new IllegalStateException("Elasticsearch bulk requests still being executed after 1 minute", e);
@@ -120,17 +117,17 @@ public class BulkIndexer {
 
   public void add(IndexRequest request) {
     result.incrementRequests();
-    bulkProcessor.add(request);
+    bulkSender.add(request);
   }
 
   public void add(DeleteRequest request) {
     result.incrementRequests();
-    bulkProcessor.add(request);
+    bulkSender.add(request);
   }
 
   public void add(DocWriteRequest request) {
     result.incrementRequests();
-    bulkProcessor.add(request);
+    bulkSender.add(request);
   }
 
   public void addDeletion(SearchRequestBuilder searchRequest) {
@@ -190,13 +187,16 @@ public class BulkIndexer {
   }
 
   private final class BulkProcessorListener implements Listener {
+    private final Map<Long, Long> startNanosByExecutionId = new ConcurrentHashMap<>();
+
     @Override
     public void beforeBulk(long executionId, BulkRequest request) {
-      // no action required
+      startNanosByExecutionId.put(executionId, System.nanoTime());
     }
 
     @Override
     public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+      client.getRequestStatistics().recordBulk(request, durationNanos(executionId), response);
       List<DocId> successDocIds = new ArrayList<>();
       for (BulkItemResponse item : response.getItems()) {
         if (item.isFailed()) {
@@ -211,8 +211,14 @@ public class BulkIndexer {
 
     @Override
     public void afterBulk(long executionId, BulkRequest req, Throwable e) {
+      client.getRequestStatistics().recordBulk(req, durationNanos(executionId), null);
       LOGGER.error("Fail to execute bulk index request: " + req, e);
     }
+
+    private long durationNanos(long executionId) {
+      Long startNanos = startNanosByExecutionId.remove(executionId);
+      return startNanos == null ? 0L : (System.nanoTime() - startNanos);
+    }
   }
 
   public enum Size {
@@ -239,6 +245,20 @@ public class BulkIndexer {
     abstract SizeHandler createHandler(Runtime2 runtime2);
   }
 
+  /**
+   * Sends the bulk requests to Elasticsearch
+   */
+  interface BulkSender {
+    void add(DocWriteRequest request);
+
+    /**
+     * Flushes the remaining requests and waits for the completion of the pending ones
+     *
+     * @return {@code false} if the timeout elapsed before completion
+     */
+    boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException;
+  }
+
   @VisibleForTesting
   static class Runtime2 {
     private static final Runtime2 INSTANCE = new Runtime2();
@@ -257,6 +277,26 @@ public class BulkIndexer {
       return 0;
     }
 
+    BulkSender createSender(EsClient client, Listener listener) {
+      BulkProcessor bulkProcessor = BulkProcessor.builder(client.nativeClient(), listener)
+        .setBackoffPolicy(BackoffPolicy.exponentialBackoff())
+        .setBulkSize(FLUSH_BYTE_SIZE)
+        .setBulkActions(FLUSH_ACTIONS)
+        .setConcurrentRequests(getConcurrentRequests())
+        .build();
+      return new BulkSender() {
+        @Override
+        public void add(DocWriteRequest request) {
+          bulkProcessor.add(request);
+        }
+
+        @Override
+        public boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+          return bulkProcessor.awaitClose(timeout, unit);
+        }
+      };
+    }
+
     void beforeStart(BulkIndexer bulkIndexer) {
       // nothing to do, to be overridden if needed
     }
@@ -271,6 +311,7 @@ public class BulkIndexer {
     private final Map<String, Object> initialSettings = new HashMap<>();
     private final Runtime2 runtime2;
     private ProgressLogger progress;
+    private AdaptiveBulkProcessor bulkProcessor;
 
     LargeSizeHandler(Runtime2 runtime2) {
       this.runtime2 = runtime2;
@@ -284,6 +325,17 @@ public class BulkIndexer {
       return Math.max(1, cores / DEFAULT_NUMBER_OF_SHARDS) - 1;
     }
 
+    /**
+     * Concurrency starts as {@link #getConcurrentRequests()} (plus the request built by the caller thread)
+     * and is then adapted up to the number of cores.
+     */
+    @Override
+    BulkSender createSender(EsClient client, Listener listener) {
+      this.bulkProcessor = new AdaptiveBulkProcessor(client.nativeClient(), listener, BackoffPolicy.exponentialBackoff(),
+        getConcurrentRequests() + 1, runtime2.getCores());
+      return bulkProcessor;
+    }
+
     @Override
     void beforeStart(BulkIndexer bulkIndexer) {
       this.progress = new ProgressLogger(format("Progress[BulkIndexer[%s]]", bulkIndexer.indexType.getIndex()), bulkIndexer.result.total, LOGGER)
@@ -316,6 +368,15 @@ public class BulkIndexer {
 
       updateSettings(bulkIndexer, initialSettings);
       this.progress.stop();
+      logThroughput(bulkIndexer);
+    }
+
+    private void logThroughput(BulkIndexer bulkIndexer) {
+      long elapsedMs = Math.max(1L, bulkProcessor.getElapsedMs());
+      LOGGER.info("Bulk indexing of {}: {} documents in {} ms ({} docs/s, {} KB/s). Final bulk size: {} KB, concurrent requests: {}, rejections: {}",
+        bulkIndexer.indexType.getIndex(), bulkProcessor.getDocs(), elapsedMs,
+        bulkProcessor.getDocs() * 1_000L / elapsedMs, bulkProcessor.getBytes() * 1_000L / elapsedMs / 1_024L,
+        bulkProcessor.getBulkBytes() / 1_024L, bulkProcessor.getConcurrency(), bulkProcessor.getRejections());
     }
 
     private static void updateSettings(BulkIndexer bulkIndexer, Map<String, Object> settings) {
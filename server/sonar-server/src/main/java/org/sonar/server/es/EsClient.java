@@ -70,20 +70,27 @@ import static java.util.Objects.requireNonNull;
 
 /**
  * Facade to connect to Elasticsearch node. Handles correctly errors (logging + exceptions
- * with context) and profiling of requests.
+ * with context), profiling and statistics of requests.
  */
 public class EsClient implements Closeable {
 
   public static final Logger LOGGER = Loggers.get("es");
 
   private final Client nativeClient;
+  private final EsRequestStatistics requestStatistics;
 
   public EsClient(Client nativeClient) {
+    this(nativeClient, new EsRequestStatistics());
+  }
+
+  public EsClient(Client nativeClient, EsRequestStatistics requestStatistics) {
     this.nativeClient = requireNonNull(nativeClient);
+    this.requestStatistics = requestStatistics;
   }
 
   public EsClient() {
     this.nativeClient = null;
+    this.requestStatistics = new EsRequestStatistics();
   }
 
   public RefreshRequestBuilder prepareRefresh(String... indices) {
@@ -131,45 +138,45 @@ public class EsClient implements Closeable {
   }
 
   public SearchRequestBuilder prepareSearch(String... indices) {
-    return new ProxySearchRequestBuilder(nativeClient()).setIndices(indices);
+    return new ProxySearchRequestBuilder(nativeClient(), requestStatistics).setIndices(indices);
   }
 
   public SearchRequestBuilder prepareSearch(IndexType... indexType) {
-    return new ProxySearchRequestBuilder(nativeClient())
+    return new ProxySearchRequestBuilder(nativeClient(), requestStatistics)
       .setIndices(IndexType.getIndices(indexType))
       .setTypes(IndexType.getTypes(indexType));
   }
 
   public SearchScrollRequestBuilder prepareSearchScroll(String scrollId) {
-    return new ProxySearchScrollRequestBuilder(scrollId, nativeClient());
+    return new ProxySearchScrollRequestBuilder(scrollId, nativeClient(), requestStatistics);
   }
 
   public GetRequestBuilder prepareGet() {
-    return new ProxyGetRequestBuilder(nativeClient());
+    return new ProxyGetRequestBuilder(nativeClient(), requestStatistics);
   }
 
   public GetRequestBuilder prepareGet(IndexType indexType, String id) {
-    return new ProxyGetRequestBuilder(nativeClient()).setIndex(indexType.getIndex()).setType(indexType.getType()).setId(id);
+    return new ProxyGetRequestBuilder(nativeClient(), requestStatistics).setIndex(indexType.getIndex()).setType(indexType.getType()).setId(id);
   }
 
   public MultiGetRequestBuilder prepareMultiGet() {
-    return new ProxyMultiGetRequestBuilder(nativeClient());
+    return new ProxyMultiGetRequestBuilder(nativeClient(), requestStatistics);
   }
 
   public BulkRequestBuilder prepareBulk() {
-    return new ProxyBulkRequestBuilder(nativeClient());
+    return new ProxyBulkRequestBuilder(nativeClient(), requestStatistics);
   }
 
   public DeleteRequestBuilder prepareDelete(IndexType indexType, String id) {
-    return new ProxyDeleteRequestBuilder(nativeClient(), indexType.getIndex()).setType(indexType.getType()).setId(id);
+    return new ProxyDeleteRequestBuilder(nativeClient(), indexType.getIndex(), requestStatistics).setType(indexType.getType()).setId(id);
   }
 
   public DeleteRequestBuilder prepareDelete(String index, String type, String id) {
-    return new ProxyDeleteRequestBuilder(nativeClient(), index).setType(type).setId(id);
+    return new ProxyDeleteRequestBuilder(nativeClient(), index, requestStatistics).setType(type).setId(id);
   }
 
   public IndexRequestBuilder prepareIndex(IndexType indexType) {
-    return new ProxyIndexRequestBuilder(nativeClient()).setIndex(indexType.getIndex()).setType(indexType.getType());
+    return new ProxyIndexRequestBuilder(nativeClient(), requestStatistics).setIndex(indexType.getIndex()).setType(indexType.getType());
   }
 
   public ForceMergeRequestBuilder prepareForceMerge(String indexName) {
@@ -196,6 +203,10 @@ public class EsClient implements Closeable {
     return nativeClient;
   }
 
+  public EsRequestStatistics getRequestStatistics() {
+    return requestStatistics;
+  }
+
   /**
    * Checks whether there is any document in any mentioned type.
    */
@@ -0,0 +1,315 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.MDC;
+import org.sonar.api.config.Configuration;
+import org.sonar.core.util.DurationHistogram;
+import org.sonar.server.ws.WebServiceEngine;
+
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Statistics of the requests executed by {@link EsClient}, grouped by type of request and by index.
+ * Recording is lock-free, so it is always enabled.
+ * <p>
+ * Searches slower than the threshold defined by the property {@link #SLOW_SEARCH_THRESHOLD_PROPERTY}
+ * are logged with the web service action they originate from. Only one slow search out of
+ * {@link #SLOW_SEARCH_SAMPLING_PROPERTY} is logged. The log is disabled by default.
+ */
+public class EsRequestStatistics {
+
+  public static final String SLOW_SEARCH_THRESHOLD_PROPERTY = "sonar.search.slowLogThresholdMs";
+  public static final String SLOW_SEARCH_SAMPLING_PROPERTY = "sonar.search.slowLogSampling";
+  static final String ALL_INDICES = "_all";
+
+  private final ConcurrentMap<Key, Recorder> recorders = new ConcurrentHashMap<>();
+  private final AtomicLong slowSearchCount = new AtomicLong();
+  private final long slowSearchThresholdMs;
+  private final int slowSearchSampling;
+
+  public EsRequestStatistics(Configuration config) {
+    this(config.getLong(SLOW_SEARCH_THRESHOLD_PROPERTY).orElse(0L), config.getInt(SLOW_SEARCH_SAMPLING_PROPERTY).orElse(1));
+  }
+
+  public EsRequestStatistics() {
+    this(0L, 1);
+  }
+
+  /**
+   * @param slowSearchThresholdMs zero or negative to disable the log of slow searches
+   * @param slowSearchSampling log one slow search out of this number
+   */
+  EsRequestStatistics(long slowSearchThresholdMs, int slowSearchSampling) {
+    this.slowSearchThresholdMs = slowSearchThresholdMs;
+    this.slowSearchSampling = Math.max(1, slowSearchSampling);
+  }
+
+  /**
+   * @param indices empty if request is not bound to indices, for example for scrolls
+   * @param response {@code null} if request failed
+   * @param description computed only if the search is logged as slow
+   */
+  public void recordSearch(String requestType, String[] indices, long durationNanos, @Nullable SearchResponse response, Supplier<String> description) {
+    Recorder recorder = recorderOf(requestType, indices);
+    if (response == null) {
+      recorder.recordFailure(durationNanos);
+    } else {
+      recorder.record(durationNanos, response.getHits().getHits().length, response.getFailedShards(), 0);
+    }
+    logIfSlowSearch(durationNanos, description);
+  }
+
+  /**
+   * @param docs number of documents read or written
+   */
+  public void record(String requestType, String[] indices, long durationNanos, long docs, boolean failed) {
+    Recorder recorder = recorderOf(requestType, indices);
+    if (failed) {
+      recorder.recordFailure(durationNanos);
+    } else {
+      recorder.record(durationNanos, docs, 0, 0);
+    }
+  }
+
+  /**
+   * Items of bulk rejected because of a full queue of Elasticsearch are counted as rejections.
+   *
+   * @param response {@code null} if request failed
+   */
+  public void recordBulk(BulkRequest request, long durationNanos, @Nullable BulkResponse response) {
+    // items targeting missing indices are removed from the request by Elasticsearch
+    String[] indices = request.requests().stream()
+      .filter(Objects::nonNull)
+      .map(DocWriteRequest::index)
+      .filter(Objects::nonNull)
+      .distinct()
+      .sorted()
+      .toArray(String[]::new);
+    Recorder recorder = recorderOf("bulk", indices);
+    if (response == null) {
+      recorder.recordFailure(durationNanos);
+      return;
+    }
+    long docs = 0L;
+    long rejections = 0L;
+    for (BulkItemResponse item : response.getItems()) {
+      if (!item.isFailed()) {
+        docs++;
+      } else if (item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+        rejections++;
+      }
+    }
+    recorder.record(durationNanos, docs, 0, rejections);
+  }
+
+  private Recorder recorderOf(String requestType, String[] indices) {
+    String index = indices.length == 0 ? ALL_INDICES : Arrays.stream(indices).collect(joining(","));
+    return recorders.computeIfAbsent(new Key(requestType, index), k -> new Recorder());
+  }
+
+  private void logIfSlowSearch(long durationNanos, Supplier<String> description) {
+    long durationMs = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+    if (slowSearchThresholdMs > 0L && durationMs >= slowSearchThresholdMs && slowSearchCount.getAndIncrement() % slowSearchSampling == 0) {
+      EsClient.LOGGER.warn("Slow search of {} ms from web service {}: {}", durationMs, webServiceAction(), description.get());
+    }
+  }
+
+  @CheckForNull
+  private static String webServiceAction() {
+    return MDC.get(WebServiceEngine.WS_ACTION_MDC_KEY);
+  }
+
+  /**
+   * @return the statistics of requests, sorted by decreasing total duration
+   */
+  public List<RequestStatistics> getRequestStatistics() {
+    return recorders.entrySet().stream()
+      .map(e -> e.getValue().snapshot(e.getKey()))
+      .sorted(Comparator.comparingLong(RequestStatistics::getTotalMs).reversed()
+        .thenComparing(RequestStatistics::getRequestType)
+        .thenComparing(RequestStatistics::getIndex))
+      .collect(toList());
+  }
+
+  private static class Key {
+    private final String requestType;
+    private final String index;
+
+    private Key(String requestType, String index) {
+      this.requestType = requestType;
+      this.index = index;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return requestType.equals(key.requestType) && index.equals(key.index);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(requestType, index);
+    }
+  }
+
+  private static class Recorder {
+    private final DurationHistogram durations = new DurationHistogram();
+    private final LongAdder docs = new LongAdder();
+    private final LongAdder shardFailures = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private void record(long durationNanos, long docCount, long shardFailureCount, long rejectionCount) {
+      durations.record(durationNanos);
+      docs.add(docCount);
+      shardFailures.add(shardFailureCount);
+      rejections.add(rejectionCount);
+    }
+
+    private void recordFailure(long durationNanos) {
+      durations.record(durationNanos);
+      failures.increment();
+    }
+
+    private RequestStatistics snapshot(Key key) {
+      return new RequestStatistics(key.requestType, key.index, durations.snapshot(), docs.sum(), shardFailures.sum(), rejections.sum(), failures.sum());
+    }
+  }
+
+  @Immutable
+  public static final class RequestStatistics {
+    private final String requestType;
+    private final String index;
+    private final DurationHistogram.Snapshot durations;
+    private final long docs;
+    private final long shardFailures;
+    private final long rejections;
+    private final long failures;
+
+    RequestStatistics(String requestType, String index, DurationHistogram.Snapshot durations, long docs, long shardFailures, long rejections, long failures) {
+      this.requestType = requestType;
+      this.index = index;
+      this.durations = durations;
+      this.docs = docs;
+      this.shardFailures = shardFailures;
+      this.rejections = rejections;
+      this.failures = failures;
+    }
+
+    public String getRequestType() {
+      return requestType;
+    }
+
+    /**
+     * Comma-separated names of indices, or {@code _all} if request is not bound to indices
+     */
+    public String getIndex() {
+      return index;
+    }
+
+    public long getCount() {
+      return durations.getCount();
+    }
+
+    public long getTotalMs() {
+      return durations.getTotalMs();
+    }
+
+    public double getMeanMs() {
+      return durations.getMeanMs();
+    }
+
+    public double getP50Ms() {
+      return durations.getP50Ms();
+    }
+
+    public double getP95Ms() {
+      return durations.getP95Ms();
+    }
+
+    public double getP99Ms() {
+      return durations.getP99Ms();
+    }
+
+    public double getMaxMs() {
+      return durations.getMaxMs();
+    }
+
+    /**
+     * Number of documents returned by searches and gets, or successfully written by bulks and index requests
+     */
+    public long getDocs() {
+      return docs;
+    }
+
+    public long getShardFailures() {
+      return shardFailures;
+    }
+
+    /**
+     * Number of items of bulks rejected by Elasticsearch because its queue is full
+     */
+    public long getRejections() {
+      return rejections;
+    }
+
+    /**
+     * Number of requests that failed
+     */
+    public long getFailures() {
+      return failures;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ENGLISH,
+        "%s on %s: count=%d, docs=%d, total=%dms, mean=%.2fms, p50=%.2fms, p95=%.2fms, p99=%.2fms, max=%.2fms, shardFailures=%d, rejections=%d, failures=%d",
+        requestType, index, getCount(), docs, getTotalMs(), getMeanMs(), getP50Ms(), getP95Ms(), getP99Ms(), getMaxMs(), shardFailures, rejections, failures);
+    }
+  }
+}
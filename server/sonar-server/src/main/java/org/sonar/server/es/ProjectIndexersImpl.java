@@ -24,19 +24,28 @@ import java.util.Collection;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.sonar.db.DbSession;
 import org.sonar.db.es.EsQueueDto;
+import org.sonar.server.ws.WsResponseCacheInvalidator;
 
 import static java.util.Arrays.asList;
 
 public class ProjectIndexersImpl implements ProjectIndexers {
 
   private final List<ProjectIndexer> indexers;
+  @Nullable
+  private final WsResponseCacheInvalidator responseCacheInvalidator;
 
-  public ProjectIndexersImpl(ProjectIndexer... indexers) {
+  public ProjectIndexersImpl(@Nullable WsResponseCacheInvalidator responseCacheInvalidator, ProjectIndexer... indexers) {
+    this.responseCacheInvalidator = responseCacheInvalidator;
     this.indexers = asList(indexers);
   }
 
+  public ProjectIndexersImpl(ProjectIndexer... indexers) {
+    this(null, indexers);
+  }
+
   @Override
   public void commitAndIndexByProjectUuids(DbSession dbSession, Collection<String> projectUuids, ProjectIndexer.Cause cause) {
     Map<ProjectIndexer, Collection<EsQueueDto>> itemsByIndexer = new IdentityHashMap<>();
@@ -45,5 +54,10 @@ public class ProjectIndexersImpl implements ProjectIndexers {
 
     // ensure that indexer#index() is called only with the item type that it supports
     itemsByIndexer.forEach((indexer, items) -> indexer.index(dbSession, items));
+
+    // cached responses of web services may relate to these projects
+    if (responseCacheInvalidator != null) {
+      responseCacheInvalidator.invalidateAll();
+    }
   }
 }
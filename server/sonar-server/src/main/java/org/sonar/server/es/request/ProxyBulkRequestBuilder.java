@@ -34,21 +34,29 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.EsRequestStatistics;
 
 public class ProxyBulkRequestBuilder extends BulkRequestBuilder {
 
-  public ProxyBulkRequestBuilder(Client client) {
+  private final EsRequestStatistics statistics;
+
+  public ProxyBulkRequestBuilder(Client client, EsRequestStatistics statistics) {
     super(client, BulkAction.INSTANCE);
+    this.statistics = statistics;
   }
 
   @Override
   public BulkResponse get() {
     Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
+    long start = System.nanoTime();
+    BulkResponse response = null;
     try {
-      return super.execute().actionGet();
+      response = super.execute().actionGet();
+      return response;
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to execute %s", toString()), e);
     } finally {
+      statistics.recordBulk(request, System.nanoTime() - start, response);
       if (profiler.isTraceEnabled()) {
         profiler.stopTrace(toString());
       }
@@ -27,21 +27,29 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.EsRequestStatistics;
 
 public class ProxyDeleteRequestBuilder extends DeleteRequestBuilder {
 
-  public ProxyDeleteRequestBuilder(Client client, String index) {
+  private final EsRequestStatistics statistics;
+
+  public ProxyDeleteRequestBuilder(Client client, String index, EsRequestStatistics statistics) {
     super(client, DeleteAction.INSTANCE, index);
+    this.statistics = statistics;
   }
 
   @Override
   public DeleteResponse get() {
     Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
+    long start = System.nanoTime();
+    DeleteResponse response = null;
     try {
-      return super.execute().actionGet();
+      response = super.execute().actionGet();
+      return response;
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to execute %s", toString()), e);
     } finally {
+      statistics.record("delete", new String[] {request.index()}, System.nanoTime() - start, 1L, response == null);
       if (profiler.isTraceEnabled()) {
         profiler.stopTrace(toString());
       }
@@ -27,21 +27,29 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.EsRequestStatistics;
 
 public class ProxyGetRequestBuilder extends GetRequestBuilder {
 
-  public ProxyGetRequestBuilder(Client client) {
+  private final EsRequestStatistics statistics;
+
+  public ProxyGetRequestBuilder(Client client, EsRequestStatistics statistics) {
     super(client, GetAction.INSTANCE);
+    this.statistics = statistics;
   }
 
   @Override
   public GetResponse get() {
     Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
+    long start = System.nanoTime();
+    GetResponse response = null;
     try {
-      return super.execute().actionGet();
+      response = super.execute().actionGet();
+      return response;
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to execute %s", toString()), e);
     } finally {
+      statistics.record("get", new String[] {request.index()}, System.nanoTime() - start, response != null && response.isExists() ? 1L : 0L, response == null);
       if (profiler.isTraceEnabled()) {
         profiler.stopTrace(toString());
       }
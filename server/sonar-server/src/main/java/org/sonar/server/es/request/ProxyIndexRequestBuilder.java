@@ -27,21 +27,29 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.EsRequestStatistics;
 
 public class ProxyIndexRequestBuilder extends IndexRequestBuilder {
 
-  public ProxyIndexRequestBuilder(Client client) {
+  private final EsRequestStatistics statistics;
+
+  public ProxyIndexRequestBuilder(Client client, EsRequestStatistics statistics) {
     super(client, IndexAction.INSTANCE);
+    this.statistics = statistics;
   }
 
   @Override
   public IndexResponse get() {
     Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
+    long start = System.nanoTime();
+    IndexResponse response = null;
     try {
-      return super.execute().actionGet();
+      response = super.execute().actionGet();
+      return response;
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to execute %s", toString()), e);
     } finally {
+      statistics.record("index", new String[] {request.index()}, System.nanoTime() - start, 1L, response == null);
       if (profiler.isTraceEnabled()) {
         profiler.stopTrace(toString());
       }
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.es.request;
 
+import java.util.Arrays;
 import org.elasticsearch.action.ListenableActionFuture;
 import org.elasticsearch.action.get.MultiGetAction;
 import org.elasticsearch.action.get.MultiGetRequest;
@@ -28,27 +29,43 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.EsRequestStatistics;
 
 public class ProxyMultiGetRequestBuilder extends MultiGetRequestBuilder {
 
-  public ProxyMultiGetRequestBuilder(Client client) {
+  private final EsRequestStatistics statistics;
+
+  public ProxyMultiGetRequestBuilder(Client client, EsRequestStatistics statistics) {
     super(client, MultiGetAction.INSTANCE);
+    this.statistics = statistics;
   }
 
   @Override
   public MultiGetResponse get() {
     Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
+    long start = System.nanoTime();
+    MultiGetResponse response = null;
     try {
-      return super.execute().actionGet();
+      response = super.execute().actionGet();
+      return response;
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to execute %s", toString()), e);
     } finally {
+      statistics.record("multi_get", indices(), System.nanoTime() - start, response == null ? 0L : countExistingDocs(response), response == null);
       if (profiler.isTraceEnabled()) {
         profiler.stopTrace(toString());
       }
     }
   }
 
+  private String[] indices() {
+    return request.getItems().stream().map(MultiGetRequest.Item::index).distinct().sorted().toArray(String[]::new);
+  }
+
+  private static long countExistingDocs(MultiGetResponse response) {
+    return Arrays.stream(response.getResponses()).filter(item -> !item.isFailed() && item.getResponse().isExists()).count();
+  }
+
   @Override
   public MultiGetResponse get(TimeValue timeout) {
     throw new IllegalStateException("Not yet implemented");
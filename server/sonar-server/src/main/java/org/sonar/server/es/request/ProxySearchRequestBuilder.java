@@ -28,21 +28,29 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.EsRequestStatistics;
 
 public class ProxySearchRequestBuilder extends SearchRequestBuilder {
 
-  public ProxySearchRequestBuilder(Client client) {
+  private final EsRequestStatistics statistics;
+
+  public ProxySearchRequestBuilder(Client client, EsRequestStatistics statistics) {
     super(client, SearchAction.INSTANCE);
+    this.statistics = statistics;
   }
 
   @Override
   public SearchResponse get() {
     Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
+    long start = System.nanoTime();
+    SearchResponse response = null;
     try {
-      return super.execute().actionGet();
+      response = super.execute().actionGet();
+      return response;
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to execute %s", toString()), e);
     } finally {
+      statistics.recordSearch("search", request.indices(), System.nanoTime() - start, response, this::toString);
       if (profiler.isTraceEnabled()) {
         profiler.stopTrace(toString());
       }
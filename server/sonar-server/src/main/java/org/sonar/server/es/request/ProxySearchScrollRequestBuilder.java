@@ -27,21 +27,29 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.EsRequestStatistics;
 
 public class ProxySearchScrollRequestBuilder extends SearchScrollRequestBuilder {
 
-  public ProxySearchScrollRequestBuilder(String scrollId, Client client) {
+  private final EsRequestStatistics statistics;
+
+  public ProxySearchScrollRequestBuilder(String scrollId, Client client, EsRequestStatistics statistics) {
     super(client, SearchScrollAction.INSTANCE, scrollId);
+    this.statistics = statistics;
   }
 
   @Override
   public SearchResponse get() {
     Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
+    long start = System.nanoTime();
+    SearchResponse response = null;
     try {
-      return super.execute().actionGet();
+      response = super.execute().actionGet();
+      return response;
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to execute %s", toString()), e);
     } finally {
+      statistics.recordSearch("scroll", new String[0], System.nanoTime() - start, response, this::toString);
       if (profiler.isTraceEnabled()) {
         profiler.stopTrace(toString());
       }
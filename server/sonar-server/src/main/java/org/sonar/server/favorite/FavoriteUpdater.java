@@ -27,6 +27,7 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.db.property.PropertyDto;
 import org.sonar.db.property.PropertyQuery;
 import org.sonar.server.exceptions.BadRequestException;
+import org.sonar.server.ws.WsResponseCacheInvalidator;
 
 import static org.sonar.server.ws.WsUtils.checkRequest;
 
@@ -34,9 +35,16 @@ public class FavoriteUpdater {
   static final String PROP_FAVORITE_KEY = "favourite";
 
   private final DbClient dbClient;
+  @Nullable
+  private final WsResponseCacheInvalidator responseCacheInvalidator;
 
-  public FavoriteUpdater(DbClient dbClient) {
+  public FavoriteUpdater(DbClient dbClient, @Nullable WsResponseCacheInvalidator responseCacheInvalidator) {
     this.dbClient = dbClient;
+    this.responseCacheInvalidator = responseCacheInvalidator;
+  }
+
+  public FavoriteUpdater(DbClient dbClient) {
+    this(dbClient, null);
   }
 
   /**
@@ -57,6 +65,7 @@ public class FavoriteUpdater {
       .setKey(PROP_FAVORITE_KEY)
       .setResourceId(componentDto.getId())
       .setUserId(userId));
+    invalidateCachedResponses();
   }
 
   /**
@@ -73,5 +82,15 @@ public class FavoriteUpdater {
       .setResourceId(component.getId())
       .setUserId(userId));
     checkRequest(result == 1, "Component '%s' is not a favorite", component.getDbKey());
+    invalidateCachedResponses();
+  }
+
+  /**
+   * Some cached responses of web services, for example api/components/search_projects, flag the favorites
+   */
+  private void invalidateCachedResponses() {
+    if (responseCacheInvalidator != null) {
+      responseCacheInvalidator.invalidateAll();
+    }
   }
 }
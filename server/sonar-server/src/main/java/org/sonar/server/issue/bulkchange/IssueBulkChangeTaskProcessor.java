@@ -0,0 +1,328 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.bulkchange;
+
+import com.google.common.collect.Lists;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.api.web.UserRole;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.queue.CeTaskInputStore;
+import org.sonar.ce.queue.CeTaskResult;
+import org.sonar.ce.taskprocessor.CeTaskProcessor;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.issue.IssueChangeContext;
+import org.sonar.core.util.stream.MoreCollectors;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.issue.IssueDto;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.db.user.UserDto;
+import org.sonar.server.issue.Action;
+import org.sonar.server.issue.AddTagsAction;
+import org.sonar.server.issue.AssignAction;
+import org.sonar.server.issue.CommentAction;
+import org.sonar.server.issue.IssueFieldsSetter;
+import org.sonar.server.issue.IssueStorage;
+import org.sonar.server.issue.RemoveTagsAction;
+import org.sonar.server.issue.SetSeverityAction;
+import org.sonar.server.issue.SetTypeAction;
+import org.sonar.server.issue.TransitionAction;
+import org.sonar.server.issue.TransitionService;
+import org.sonar.server.issue.notification.IssueChangeNotification;
+import org.sonar.server.issue.workflow.IssueWorkflow;
+import org.sonar.server.issue.ws.BulkChangeAction.ActionContext;
+import org.sonar.server.notification.NotificationManager;
+import org.sonar.server.user.UserSession;
+import org.sonar.server.user.UserSessionFactory;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static java.util.function.Function.identity;
+import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
+import static org.sonar.db.ce.CeTaskCharacteristicDto.PROCESSED_ITEMS_KEY;
+import static org.sonar.server.issue.CommentAction.COMMENT_KEY;
+
+/**
+ * Applies the changes requested by api/issues/bulk_change_by_query. Issues are loaded, changed, saved and
+ * indexed by batches, and a single notification is sent per project and assignee.
+ */
+public class IssueBulkChangeTaskProcessor implements CeTaskProcessor {
+
+  private static final Logger LOG = Loggers.get(IssueBulkChangeTaskProcessor.class);
+  private static final Set<String> HANDLED_TYPES = Collections.singleton(CeTaskTypes.ISSUES_BULK_CHANGE);
+  static final int BATCH_SIZE = 500;
+
+  private final System2 system2;
+  private final DbClient dbClient;
+  private final UserSessionFactory userSessionFactory;
+  private final IssueFieldsSetter issueFieldsSetter;
+  private final IssueWorkflow workflow;
+  private final IssueStorage issueStorage;
+  private final NotificationManager notificationManager;
+  private final CeTaskInputStore taskInputStore;
+
+  public IssueBulkChangeTaskProcessor(System2 system2, DbClient dbClient, UserSessionFactory userSessionFactory, IssueFieldsSetter issueFieldsSetter,
+    IssueWorkflow workflow, IssueStorage issueStorage, NotificationManager notificationManager, CeTaskInputStore taskInputStore) {
+    this.system2 = system2;
+    this.dbClient = dbClient;
+    this.userSessionFactory = userSessionFactory;
+    this.issueFieldsSetter = issueFieldsSetter;
+    this.workflow = workflow;
+    this.issueStorage = issueStorage;
+    this.notificationManager = notificationManager;
+    this.taskInputStore = taskInputStore;
+  }
+
+  @Override
+  public Set<String> getHandledCeTaskTypes() {
+    return HANDLED_TYPES;
+  }
+
+  @Override
+  @CheckForNull
+  public CeTaskResult process(CeTask task) {
+    DbIssues.BulkChange bulkChange = loadInput(task.getUuid());
+    // permissions of the submitter are evaluated again, as they may have changed since the submission
+    UserSession userSession = loadSubmitterSession(task.getSubmitterLogin());
+    BulkChange change = new BulkChange(task.getUuid(), bulkChange, userSession);
+
+    int processed = 0;
+    for (List<String> issueKeys : Lists.partition(bulkChange.getIssueKeysList(), BATCH_SIZE)) {
+      processBatch(change, issueKeys);
+      processed += issueKeys.size();
+      updateProgress(task.getUuid(), processed);
+    }
+    LOG.info("{} issues changed out of {}", change.changedIssues, processed);
+
+    if (bulkChange.getSendNotifications()) {
+      change.digests.values().forEach(digest -> notificationManager.scheduleForSending(digest.toNotification(change)));
+    }
+    return null;
+  }
+
+  private DbIssues.BulkChange loadInput(String taskUuid) {
+    try (DbSession dbSession = dbClient.openSession(false);
+      InputStream input = taskInputStore.open(dbSession, taskUuid)
+        .orElseThrow(() -> new IllegalStateException("Input of task " + taskUuid + " is missing"))) {
+      return DbIssues.BulkChange.parseFrom(input);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read input of task " + taskUuid, e);
+    }
+  }
+
+  private UserSession loadSubmitterSession(@Nullable String login) {
+    checkState(login != null, "Bulk change must have been submitted by a user");
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      UserDto user = dbClient.userDao().selectActiveUserByLogin(dbSession, login);
+      checkState(user != null, "User '%s' does not exist or is not active", login);
+      return userSessionFactory.create(user);
+    }
+  }
+
+  private void processBatch(BulkChange change, List<String> issueKeys) {
+    List<DefaultIssue> changedIssues;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      List<IssueDto> issueDtos = dbClient.issueDao().selectByKeys(dbSession, issueKeys);
+      Set<String> projectUuids = issueDtos.stream().map(IssueDto::getProjectUuid).collect(MoreCollectors.toSet());
+      List<ComponentDto> projects = dbClient.componentDao().selectByUuids(dbSession, projectUuids);
+      Map<String, ComponentDto> authorizedProjectsByUuid = change.userSession.keepAuthorizedComponents(UserRole.USER, projects).stream()
+        .collect(uniqueIndex(ComponentDto::uuid, identity()));
+      changedIssues = issueDtos.stream()
+        .filter(issueDto -> authorizedProjectsByUuid.containsKey(issueDto.getProjectUuid()))
+        .map(IssueDto::toDefaultIssue)
+        .filter(issue -> change.apply(issue, authorizedProjectsByUuid.get(issue.projectUuid())))
+        .collect(MoreCollectors.toList());
+      change.projectsByUuid.putAll(authorizedProjectsByUuid);
+    }
+    // one commit and one indexing request per batch
+    issueStorage.save(changedIssues);
+    change.changedIssues += changedIssues.size();
+    if (change.sendNotifications) {
+      changedIssues.forEach(change::addToDigest);
+    }
+  }
+
+  private void updateProgress(String taskUuid, int processed) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbClient.ceTaskCharacteristicsDao().updateValue(dbSession, taskUuid, PROCESSED_ITEMS_KEY, String.valueOf(processed));
+      dbSession.commit();
+    }
+  }
+
+  private List<Action> createActions(UserSession userSession) {
+    return asList(
+      new AssignAction(dbClient, issueFieldsSetter),
+      new SetSeverityAction(issueFieldsSetter, userSession),
+      new SetTypeAction(issueFieldsSetter, userSession),
+      new TransitionAction(new TransitionService(userSession, workflow)),
+      new AddTagsAction(issueFieldsSetter),
+      new RemoveTagsAction(issueFieldsSetter),
+      new CommentAction(issueFieldsSetter));
+  }
+
+  private class BulkChange {
+    private final String key;
+    private final UserSession userSession;
+    private final boolean sendNotifications;
+    private final IssueChangeContext changeContext;
+    private final Map<String, Map<String, Object>> propertiesByActions = new HashMap<>();
+    private final List<Action> actions;
+    private final Map<String, ComponentDto> projectsByUuid = new HashMap<>();
+    private final Map<DigestKey, Digest> digests = new LinkedHashMap<>();
+    private int changedIssues = 0;
+
+    BulkChange(String key, DbIssues.BulkChange input, UserSession userSession) {
+      this.key = key;
+      this.userSession = userSession;
+      this.sendNotifications = input.getSendNotifications();
+      this.changeContext = IssueChangeContext.createUser(new Date(system2.now()), userSession.getLogin());
+      input.getActionsList().forEach(action -> {
+        Map<String, Object> properties = new HashMap<>();
+        action.getPropertiesList().forEach(property -> properties.put(property.getKey(), property.hasValue() ? property.getValue() : null));
+        propertiesByActions.put(action.getKey(), properties);
+      });
+      // actions are verified once, as their verification does not depend on the issues
+      this.actions = createActions(userSession).stream()
+        .filter(action -> propertiesByActions.containsKey(action.key()))
+        .filter(action -> action.verify(propertiesByActions.get(action.key()), Collections.emptyList(), userSession))
+        .collect(MoreCollectors.toList());
+    }
+
+    boolean apply(DefaultIssue issue, ComponentDto project) {
+      ActionContext actionContext = new ActionContext(issue, changeContext, project);
+      boolean changed = false;
+      for (Action action : actions) {
+        if (!action.key().equals(COMMENT_KEY)) {
+          changed |= execute(action, actionContext);
+        }
+      }
+      actions.stream()
+        .filter(action -> action.key().equals(COMMENT_KEY))
+        .forEach(action -> action.execute(propertiesByActions.get(action.key()), actionContext));
+      return changed;
+    }
+
+    private boolean execute(Action action, ActionContext actionContext) {
+      DefaultIssue issue = actionContext.issue();
+      try {
+        return action.supports(issue) && action.execute(propertiesByActions.get(action.key()), actionContext);
+      } catch (Exception e) {
+        LOG.error(format("An error occur when trying to apply the action : %s on issue : %s. This issue has been ignored. Error is '%s'",
+          action.key(), issue.key(), e.getMessage()), e);
+        return false;
+      }
+    }
+
+    void addToDigest(DefaultIssue issue) {
+      digests.computeIfAbsent(new DigestKey(issue.projectUuid(), issue.assignee()), Digest::new).add(issue);
+    }
+  }
+
+  private static class DigestKey {
+    private final String projectUuid;
+    private final String assignee;
+
+    private DigestKey(String projectUuid, @Nullable String assignee) {
+      this.projectUuid = projectUuid;
+      this.assignee = assignee;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      DigestKey that = (DigestKey) o;
+      return projectUuid.equals(that.projectUuid) && Objects.equals(assignee, that.assignee);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(projectUuid, assignee);
+    }
+  }
+
+  /**
+   * Changes applied on the issues of a project assigned to the same user. Only the new values shared by all the
+   * issues are kept, so that the memory does not depend on the number of issues.
+   */
+  private static class Digest {
+    private final DigestKey key;
+    private Map<String, String> commonNewValues;
+    private int issueCount = 0;
+
+    private Digest(DigestKey key) {
+      this.key = key;
+    }
+
+    void add(DefaultIssue issue) {
+      Map<String, String> newValues = newValues(issue);
+      if (commonNewValues == null) {
+        commonNewValues = newValues;
+      } else {
+        commonNewValues.entrySet().retainAll(newValues.entrySet());
+      }
+      issueCount++;
+    }
+
+    IssueChangeNotification toNotification(BulkChange change) {
+      return new IssueChangeNotification()
+        .setBulkChange(change.key, issueCount, key.assignee, commonNewValues)
+        .setChangeAuthorLogin(change.changeContext.login())
+        .setProject(change.projectsByUuid.get(key.projectUuid));
+    }
+
+    private static Map<String, String> newValues(DefaultIssue issue) {
+      Map<String, String> newValues = new HashMap<>();
+      FieldDiffs currentChange = issue.currentChange();
+      if (currentChange != null) {
+        currentChange.diffs().forEach((field, diff) -> {
+          Serializable newValue = diff.newValue();
+          if (newValue != null && !newValue.toString().isEmpty()) {
+            newValues.put(field, newValue.toString());
+          }
+        });
+      }
+      return newValues;
+    }
+  }
+}
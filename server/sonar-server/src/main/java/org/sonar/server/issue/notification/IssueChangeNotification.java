@@ -53,6 +53,19 @@ public class IssueChangeNotification extends Notification {
     return this;
   }
 
+  /**
+   * Summarizes in a single notification the changes applied by a bulk change on several issues sharing the same assignee.
+   *
+   * @param newValues the new values of the fields changed on all the issues, by field name
+   */
+  public IssueChangeNotification setBulkChange(String bulkChangeKey, int issueCount, @Nullable String assignee, Map<String, String> newValues) {
+    setFieldValue("bulkChangeKey", bulkChangeKey);
+    setFieldValue("issueCount", String.valueOf(issueCount));
+    setFieldValue("assignee", assignee);
+    newValues.forEach((type, value) -> setFieldValue("new." + type, value));
+    return this;
+  }
+
   public IssueChangeNotification setProject(ComponentDto project) {
     return setProject(project.getKey(), project.longName(), project.getBranch());
   }
@@ -54,6 +54,11 @@ public class IssueChangesEmailTemplate extends EmailTemplate {
       return null;
     }
 
+    String issueCount = notif.getFieldValue("issueCount");
+    if (issueCount != null) {
+      return formatBulkChange(notif, issueCount);
+    }
+
     StringBuilder sb = new StringBuilder();
     appendHeader(notif, sb);
     sb.append(NEW_LINE);
@@ -75,6 +80,25 @@ public class IssueChangesEmailTemplate extends EmailTemplate {
     return message;
   }
 
+  private EmailMessage formatBulkChange(Notification notif, String issueCount) {
+    StringBuilder sb = new StringBuilder();
+    appendLine(sb, issueCount + " issues have been changed");
+    sb.append(NEW_LINE);
+    appendChanges(notif, sb);
+    sb.append(NEW_LINE);
+    appendProjectFooter(sb, notif);
+
+    EmailMessage message = new EmailMessage()
+      .setMessageId("issue-changes/" + notif.getFieldValue("bulkChangeKey") + "/" + notif.getFieldValue("assignee"))
+      .setSubject(notif.getFieldValue("projectName") + ", changes on " + issueCount + " issues")
+      .setMessage(sb.toString());
+    String author = notif.getFieldValue("changeAuthor");
+    if (author != null) {
+      message.setFrom(getUserFullName(author));
+    }
+    return message;
+  }
+
   private static void appendChanges(Notification notif, StringBuilder sb) {
     appendField(sb, "Comment", null, notif.getFieldValue("comment"));
     appendFieldWithoutHistory(sb, "Assignee", notif.getFieldValue("old.assignee"), notif.getFieldValue("new.assignee"));
@@ -120,6 +144,20 @@ public class IssueChangesEmailTemplate extends EmailTemplate {
     }
   }
 
+  private void appendProjectFooter(StringBuilder sb, Notification notification) {
+    try {
+      sb.append("See them in SonarQube: ").append(settings.getServerBaseURL())
+        .append("/project/issues?id=").append(encode(notification.getFieldValue("projectKey"), "UTF-8"));
+      String branchName = notification.getFieldValue("branch");
+      if (branchName != null) {
+        sb.append("&branch=").append(branchName);
+      }
+      sb.append(NEW_LINE);
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException("Encoding not supported", e);
+    }
+  }
+
   private static void appendLine(StringBuilder sb, @Nullable String line) {
     if (!Strings.isNullOrEmpty(line)) {
       sb.append(line).append(NEW_LINE);
@@ -131,6 +131,10 @@ public class BulkChangeAction implements IssuesWsAction {
       .setDescription("Comma-separated list of issue keys")
       .setRequired(true)
       .setExampleValue(UUID_EXAMPLE_01 + "," + UUID_EXAMPLE_02);
+    addActionParams(action);
+  }
+
+  static void addActionParams(WebService.NewAction action) {
     action.createParam(PARAM_ASSIGN)
       .setDescription("To assign the list of issues to a specific user (login), or un-assign all the issues")
       .setExampleValue("john.smith")
@@ -339,24 +343,24 @@ public class BulkChangeAction implements IssuesWsAction {
     Optional<Action> getCommentAction() {
       return availableActions.stream().filter(action -> action.key().equals(COMMENT_KEY)).findFirst();
     }
+  }
 
-    private Map<String, Map<String, Object>> toPropertiesByActions(Request request) {
-      Map<String, Map<String, Object>> properties = new HashMap<>();
-      request.getParam(PARAM_ASSIGN, value -> properties.put(AssignAction.ASSIGN_KEY, new HashMap<>(of(ASSIGNEE_PARAMETER, value))));
-      request.getParam(PARAM_SET_SEVERITY, value -> properties.put(SET_SEVERITY_KEY, new HashMap<>(of(SEVERITY_PARAMETER, value))));
-      request.getParam(PARAM_SET_TYPE, value -> properties.put(SET_TYPE_KEY, new HashMap<>(of(TYPE_PARAMETER, value))));
-      request.getParam(PARAM_DO_TRANSITION, value -> properties.put(DO_TRANSITION_KEY, new HashMap<>(of(TRANSITION_PARAMETER, value))));
-      request.getParam(PARAM_ADD_TAGS, value -> properties.put(AddTagsAction.KEY, new HashMap<>(of(TAGS_PARAMETER, value))));
-      request.getParam(PARAM_REMOVE_TAGS, value -> properties.put(RemoveTagsAction.KEY, new HashMap<>(of(TAGS_PARAMETER, value))));
-      request.getParam(PARAM_COMMENT, value -> properties.put(COMMENT_KEY, new HashMap<>(of(COMMENT_PROPERTY, value))));
-      checkAtLeastOneActionIsDefined(properties.keySet());
-      return properties;
-    }
+  static Map<String, Map<String, Object>> toPropertiesByActions(Request request) {
+    Map<String, Map<String, Object>> properties = new HashMap<>();
+    request.getParam(PARAM_ASSIGN, value -> properties.put(AssignAction.ASSIGN_KEY, new HashMap<>(of(ASSIGNEE_PARAMETER, value))));
+    request.getParam(PARAM_SET_SEVERITY, value -> properties.put(SET_SEVERITY_KEY, new HashMap<>(of(SEVERITY_PARAMETER, value))));
+    request.getParam(PARAM_SET_TYPE, value -> properties.put(SET_TYPE_KEY, new HashMap<>(of(TYPE_PARAMETER, value))));
+    request.getParam(PARAM_DO_TRANSITION, value -> properties.put(DO_TRANSITION_KEY, new HashMap<>(of(TRANSITION_PARAMETER, value))));
+    request.getParam(PARAM_ADD_TAGS, value -> properties.put(AddTagsAction.KEY, new HashMap<>(of(TAGS_PARAMETER, value))));
+    request.getParam(PARAM_REMOVE_TAGS, value -> properties.put(RemoveTagsAction.KEY, new HashMap<>(of(TAGS_PARAMETER, value))));
+    request.getParam(PARAM_COMMENT, value -> properties.put(COMMENT_KEY, new HashMap<>(of(COMMENT_PROPERTY, value))));
+    checkAtLeastOneActionIsDefined(properties.keySet());
+    return properties;
+  }
 
-    private void checkAtLeastOneActionIsDefined(Set<String> actions) {
-      long actionsDefined = actions.stream().filter(action -> !action.equals(COMMENT_KEY)).count();
-      checkArgument(actionsDefined > 0, "At least one action must be provided");
-    }
+  private static void checkAtLeastOneActionIsDefined(Set<String> actions) {
+    long actionsDefined = actions.stream().filter(action -> !action.equals(COMMENT_KEY)).count();
+    checkArgument(actionsDefined > 0, "At least one action must be provided");
   }
 
   private static class BulkChangeResult {
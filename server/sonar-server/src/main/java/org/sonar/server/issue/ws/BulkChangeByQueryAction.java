@@ -0,0 +1,230 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.ce.queue.CeQueue;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.queue.CeTaskInputStore;
+import org.sonar.ce.queue.CeTaskSubmit;
+import org.sonar.core.util.UuidFactory;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeTaskCharacteristicDto;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.server.issue.IssueQuery;
+import org.sonar.server.issue.IssueQueryFactory;
+import org.sonar.server.issue.index.IssueIndex;
+import org.sonar.server.user.UserSession;
+import org.sonarqube.ws.Issues.BulkChangeByQueryWsResponse;
+import org.sonarqube.ws.client.issue.SearchWsRequest;
+
+import static java.util.Arrays.asList;
+import static org.sonar.db.ce.CeTaskCharacteristicDto.PROCESSED_ITEMS_KEY;
+import static org.sonar.db.ce.CeTaskCharacteristicDto.TOTAL_ITEMS_KEY;
+import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
+import static org.sonar.server.ws.WsUtils.writeProtobuf;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.ACTION_BULK_CHANGE_BY_QUERY;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.FACET_MODE_COUNT;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_ASSIGNEES;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_BRANCH;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_COMPONENT_KEYS;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_AFTER;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_BEFORE;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_LANGUAGES;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_ORGANIZATION;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_RESOLUTIONS;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_RESOLVED;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_RULES;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_SEND_NOTIFICATIONS;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_SEVERITIES;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_STATUSES;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_TAGS;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_TYPES;
+
+/**
+ * Asynchronous variant of {@link BulkChangeAction}: issues are selected by a search query instead of a list of keys,
+ * and the changes are applied by the Compute Engine.
+ */
+public class BulkChangeByQueryAction implements IssuesWsAction {
+
+  private final UserSession userSession;
+  private final DbClient dbClient;
+  private final IssueQueryFactory issueQueryFactory;
+  private final IssueIndex issueIndex;
+  private final CeQueue queue;
+  private final UuidFactory uuidFactory;
+  private final CeTaskInputStore taskInputStore;
+
+  public BulkChangeByQueryAction(UserSession userSession, DbClient dbClient, IssueQueryFactory issueQueryFactory, IssueIndex issueIndex, CeQueue queue,
+    UuidFactory uuidFactory, CeTaskInputStore taskInputStore) {
+    this.userSession = userSession;
+    this.dbClient = dbClient;
+    this.issueQueryFactory = issueQueryFactory;
+    this.issueIndex = issueIndex;
+    this.queue = queue;
+    this.uuidFactory = uuidFactory;
+    this.taskInputStore = taskInputStore;
+  }
+
+  @Override
+  public void define(WebService.NewController context) {
+    WebService.NewAction action = context.createAction(ACTION_BULK_CHANGE_BY_QUERY)
+      .setDescription("Bulk change on all the issues matching a search query.<br/>" +
+        "Changes are applied asynchronously by a background task, whose progress can be followed with api/ce/task.<br/>" +
+        "Requires authentication.")
+      .setSince("6.6")
+      .setInternal(true)
+      .setHandler(this)
+      .setPost(true);
+
+    action.createParam(PARAM_ORGANIZATION)
+      .setDescription("Organization key")
+      .setExampleValue("my-org");
+    action.createParam(PARAM_COMPONENT_KEYS)
+      .setDescription("Comma-separated list of component keys. Change issues associated to a specific list of components (and all its descendants)")
+      .setExampleValue(KEY_PROJECT_EXAMPLE_001);
+    action.createParam(PARAM_BRANCH)
+      .setDescription("Branch key")
+      .setInternal(true);
+    action.createParam(PARAM_RULES)
+      .setDescription("Comma-separated list of coding rule keys. Format is &lt;repository&gt;:&lt;rule&gt;")
+      .setExampleValue("squid:AvoidCycles");
+    action.createParam(PARAM_SEVERITIES)
+      .setDescription("Comma-separated list of severities")
+      .setPossibleValues(Severity.ALL);
+    action.createParam(PARAM_TYPES)
+      .setDescription("Comma-separated list of types")
+      .setPossibleValues((Object[]) RuleType.values());
+    action.createParam(PARAM_STATUSES)
+      .setDescription("Comma-separated list of statuses")
+      .setPossibleValues(Issue.STATUSES);
+    action.createParam(PARAM_RESOLUTIONS)
+      .setDescription("Comma-separated list of resolutions")
+      .setPossibleValues(Issue.RESOLUTIONS);
+    action.createParam(PARAM_RESOLVED)
+      .setDescription("To match resolved or unresolved issues")
+      .setBooleanPossibleValues();
+    action.createParam(PARAM_TAGS)
+      .setDescription("Comma-separated list of tags")
+      .setExampleValue("security,convention");
+    action.createParam(PARAM_ASSIGNEES)
+      .setDescription("Comma-separated list of assignee logins. The value '__me__' can be used as a placeholder for user who performs the request")
+      .setExampleValue("admin,usera,__me__");
+    action.createParam(PARAM_LANGUAGES)
+      .setDescription("Comma-separated list of languages")
+      .setExampleValue("java,js");
+    action.createParam(PARAM_CREATED_AFTER)
+      .setDescription("To change issues created after the given date (inclusive). Format: date or datetime ISO formats")
+      .setExampleValue("2013-05-01 (or 2013-05-01T13:00:00+0100)");
+    action.createParam(PARAM_CREATED_BEFORE)
+      .setDescription("To change issues created before the given date (exclusive). Format: date or datetime ISO formats")
+      .setExampleValue("2013-05-01 (or 2013-05-01T13:00:00+0100)");
+
+    BulkChangeAction.addActionParams(action);
+  }
+
+  @Override
+  public void handle(Request request, Response response) throws Exception {
+    userSession.checkLoggedIn();
+    Map<String, Map<String, Object>> propertiesByActions = BulkChangeAction.toPropertiesByActions(request);
+    boolean sendNotifications = request.mandatoryParamAsBoolean(PARAM_SEND_NOTIFICATIONS);
+
+    // issues are resolved now, with the permissions of the current user, as there's no user session in the Compute Engine
+    IssueQuery query = issueQueryFactory.create(toSearchWsRequest(request));
+    List<String> issueKeys = new ArrayList<>();
+    issueIndex.searchAll(query).forEachRemaining(issueKeys::add);
+
+    BulkChangeByQueryWsResponse.Builder wsResponse = BulkChangeByQueryWsResponse.newBuilder().setTotal(issueKeys.size());
+    if (!issueKeys.isEmpty()) {
+      CeTask task = submit(toInput(issueKeys, propertiesByActions, sendNotifications));
+      wsResponse.setTaskId(task.getUuid());
+    }
+    writeProtobuf(wsResponse.build(), request, response);
+  }
+
+  private CeTask submit(DbIssues.BulkChange input) {
+    CeTaskSubmit.Builder submit = queue.prepareSubmit();
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      // the input must be saved before submitting the task
+      taskInputStore.store(dbSession, submit.getUuid(), input.toByteString().newInput());
+      dbClient.ceTaskCharacteristicsDao().insert(dbSession, asList(
+        toCharacteristic(submit.getUuid(), TOTAL_ITEMS_KEY, input.getIssueKeysCount()),
+        toCharacteristic(submit.getUuid(), PROCESSED_ITEMS_KEY, 0)));
+      dbSession.commit();
+    }
+
+    submit.setType(CeTaskTypes.ISSUES_BULK_CHANGE);
+    submit.setSubmitterLogin(userSession.getLogin());
+    return queue.submit(submit.build());
+  }
+
+  private CeTaskCharacteristicDto toCharacteristic(String taskUuid, String key, int value) {
+    return new CeTaskCharacteristicDto()
+      .setUuid(uuidFactory.create())
+      .setTaskUuid(taskUuid)
+      .setKey(key)
+      .setValue(String.valueOf(value));
+  }
+
+  private static DbIssues.BulkChange toInput(List<String> issueKeys, Map<String, Map<String, Object>> propertiesByActions, boolean sendNotifications) {
+    DbIssues.BulkChange.Builder input = DbIssues.BulkChange.newBuilder()
+      .addAllIssueKeys(issueKeys)
+      .setSendNotifications(sendNotifications);
+    propertiesByActions.forEach((actionKey, properties) -> {
+      DbIssues.BulkChangeAction.Builder action = input.addActionsBuilder().setKey(actionKey);
+      properties.forEach((key, value) -> {
+        DbIssues.Property.Builder property = action.addPropertiesBuilder().setKey(key);
+        if (value != null) {
+          property.setValue(value.toString());
+        }
+      });
+    });
+    return input.build();
+  }
+
+  private static SearchWsRequest toSearchWsRequest(Request request) {
+    return new SearchWsRequest()
+      .setOrganization(request.param(PARAM_ORGANIZATION))
+      .setComponentKeys(request.paramAsStrings(PARAM_COMPONENT_KEYS))
+      .setBranch(request.param(PARAM_BRANCH))
+      .setRules(request.paramAsStrings(PARAM_RULES))
+      .setSeverities(request.paramAsStrings(PARAM_SEVERITIES))
+      .setTypes(request.paramAsStrings(PARAM_TYPES))
+      .setStatuses(request.paramAsStrings(PARAM_STATUSES))
+      .setResolutions(request.paramAsStrings(PARAM_RESOLUTIONS))
+      .setResolved(request.paramAsBoolean(PARAM_RESOLVED))
+      .setTags(request.paramAsStrings(PARAM_TAGS))
+      .setAssignees(request.paramAsStrings(PARAM_ASSIGNEES))
+      .setLanguages(request.paramAsStrings(PARAM_LANGUAGES))
+      .setCreatedAfter(request.param(PARAM_CREATED_AFTER))
+      .setCreatedBefore(request.param(PARAM_CREATED_BEFORE))
+      .setFacetMode(FACET_MODE_COUNT);
+  }
+}
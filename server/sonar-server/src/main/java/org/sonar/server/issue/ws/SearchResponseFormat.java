@@ -42,9 +42,9 @@ import org.sonar.db.protobuf.DbCommons;
 import org.sonar.db.protobuf.DbIssues;
 import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.db.user.UserDto;
-import org.sonar.markdown.Markdown;
 import org.sonar.server.es.Facets;
 import org.sonar.server.issue.workflow.Transition;
+import org.sonar.server.text.RenderedHtmlCache;
 import org.sonar.server.ws.WsResponseCommonFormat;
 import org.sonarqube.ws.Common;
 import org.sonarqube.ws.Issues;
@@ -70,12 +70,15 @@ public class SearchResponseFormat {
   private final WsResponseCommonFormat commonFormat;
   private final Languages languages;
   private final AvatarResolver avatarFactory;
+  private final RenderedHtmlCache renderedHtmlCache;
 
-  public SearchResponseFormat(Durations durations, WsResponseCommonFormat commonFormat, Languages languages, AvatarResolver avatarFactory) {
+  public SearchResponseFormat(Durations durations, WsResponseCommonFormat commonFormat, Languages languages, AvatarResolver avatarFactory,
+    RenderedHtmlCache renderedHtmlCache) {
     this.durations = durations;
     this.commonFormat = commonFormat;
     this.languages = languages;
     this.avatarFactory = avatarFactory;
+    this.renderedHtmlCache = renderedHtmlCache;
   }
 
   public SearchWsResponse formatSearch(Set<SearchAdditionalField> fields, SearchResponseData data,
@@ -259,7 +262,7 @@ public class SearchResponseFormat {
     wsIssue.setActions(wsActions);
   }
 
-  private static void formatIssueComments(SearchResponseData data, Issue.Builder wsIssue, IssueDto dto) {
+  private void formatIssueComments(SearchResponseData data, Issue.Builder wsIssue, IssueDto dto) {
     Comments.Builder wsComments = Comments.newBuilder();
     List<IssueChangeDto> comments = data.getCommentsForIssueKey(dto.getKey());
     if (comments != null) {
@@ -274,7 +277,7 @@ public class SearchResponseFormat {
           .setCreatedAt(DateUtils.formatDateTime(new Date(comment.getCreatedAt())));
         if (markdown != null) {
           wsComment
-            .setHtmlText(Markdown.convertToHtml(markdown))
+            .setHtmlText(renderedHtmlCache.markdownToHtml(markdown))
             .setMarkdown(markdown);
         }
         wsComments.addComments(wsComment);
@@ -95,6 +95,7 @@ public class SearchHistoryAction implements MeasuresWsAction {
         "Requires the following permission: 'Browse' on the specified component")
       .setResponseExample(getClass().getResource("search_history-example.json"))
       .setSince("6.3")
+      .setCacheable(true)
       .setHandler(this);
 
     action.createParam(PARAM_COMPONENT)
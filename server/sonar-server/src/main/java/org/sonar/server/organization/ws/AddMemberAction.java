@@ -20,6 +20,7 @@
 
 package org.sonar.server.organization.ws;
 
+import javax.annotation.Nullable;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
@@ -36,6 +37,7 @@ import org.sonar.server.issue.ws.AvatarResolver;
 import org.sonar.server.user.UserSession;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.usergroups.DefaultGroupFinder;
+import org.sonar.server.ws.WsResponseCacheInvalidator;
 import org.sonarqube.ws.Organizations.AddMemberWsResponse;
 import org.sonarqube.ws.Organizations.User;
 
@@ -54,13 +56,21 @@ public class AddMemberAction implements OrganizationsWsAction {
   private final UserIndexer userIndexer;
   private final DefaultGroupFinder defaultGroupFinder;
   private final AvatarResolver avatarResolver;
+  @Nullable
+  private final WsResponseCacheInvalidator responseCacheInvalidator;
 
-  public AddMemberAction(DbClient dbClient, UserSession userSession, UserIndexer userIndexer, DefaultGroupFinder defaultGroupFinder, AvatarResolver avatarResolver) {
+  public AddMemberAction(DbClient dbClient, UserSession userSession, UserIndexer userIndexer, DefaultGroupFinder defaultGroupFinder, AvatarResolver avatarResolver,
+    @Nullable WsResponseCacheInvalidator responseCacheInvalidator) {
     this.dbClient = dbClient;
     this.userSession = userSession;
     this.userIndexer = userIndexer;
     this.defaultGroupFinder = defaultGroupFinder;
     this.avatarResolver = avatarResolver;
+    this.responseCacheInvalidator = responseCacheInvalidator;
+  }
+
+  public AddMemberAction(DbClient dbClient, UserSession userSession, UserIndexer userIndexer, DefaultGroupFinder defaultGroupFinder, AvatarResolver avatarResolver) {
+    this(dbClient, userSession, userIndexer, defaultGroupFinder, avatarResolver, null);
   }
 
   @Override
@@ -119,6 +129,16 @@ public class AddMemberAction implements OrganizationsWsAction {
     dbClient.userGroupDao().insert(dbSession,
       new UserGroupDto().setGroupId(defaultGroupFinder.findDefaultGroup(dbSession, organization.getUuid()).getId()).setUserId(user.getId()));
     userIndexer.commitAndIndex(dbSession, user);
+    invalidateCachedResponses();
+  }
+
+  /**
+   * Cached responses of web services, for example api/components/search_projects, depend on the organizations of the user
+   */
+  private void invalidateCachedResponses() {
+    if (responseCacheInvalidator != null) {
+      responseCacheInvalidator.invalidateAll();
+    }
   }
 
   private AddMemberWsResponse buildResponse(UserDto user, int groups) {
@@ -20,6 +20,7 @@
 
 package org.sonar.server.organization.ws;
 
+import javax.annotation.Nullable;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
@@ -30,6 +31,7 @@ import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.user.UserSession;
 import org.sonar.server.user.index.UserIndexer;
+import org.sonar.server.ws.WsResponseCacheInvalidator;
 
 import static java.util.Collections.singletonList;
 import static org.sonar.api.CoreProperties.DEFAULT_ISSUE_ASSIGNEE;
@@ -45,11 +47,18 @@ public class RemoveMemberAction implements OrganizationsWsAction {
   private final DbClient dbClient;
   private final UserSession userSession;
   private final UserIndexer userIndexer;
+  @Nullable
+  private final WsResponseCacheInvalidator responseCacheInvalidator;
 
-  public RemoveMemberAction(DbClient dbClient, UserSession userSession, UserIndexer userIndexer) {
+  public RemoveMemberAction(DbClient dbClient, UserSession userSession, UserIndexer userIndexer, @Nullable WsResponseCacheInvalidator responseCacheInvalidator) {
     this.dbClient = dbClient;
     this.userSession = userSession;
     this.userIndexer = userIndexer;
+    this.responseCacheInvalidator = responseCacheInvalidator;
+  }
+
+  public RemoveMemberAction(DbClient dbClient, UserSession userSession, UserIndexer userIndexer) {
+    this(dbClient, userSession, userIndexer, null);
   }
 
   @Override
@@ -104,6 +113,16 @@ public class RemoveMemberAction implements OrganizationsWsAction {
 
     dbClient.organizationMemberDao().delete(dbSession, organizationUuid, userId);
     userIndexer.commitAndIndex(dbSession, user);
+    invalidateCachedResponses();
+  }
+
+  /**
+   * The permissions of the user on the organization are dropped without being indexed by {@link org.sonar.server.es.ProjectIndexers}
+   */
+  private void invalidateCachedResponses() {
+    if (responseCacheInvalidator != null) {
+      responseCacheInvalidator.invalidateAll();
+    }
   }
 
   private void ensureLastAdminIsNotRemoved(DbSession dbSession, OrganizationDto organizationDto, UserDto user) {
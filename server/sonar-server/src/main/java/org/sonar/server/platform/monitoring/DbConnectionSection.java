@@ -19,20 +19,25 @@
  */
 package org.sonar.server.platform.monitoring;
 
+import java.util.List;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.sonar.api.SonarQubeSide;
 import org.sonar.api.SonarRuntime;
 import org.sonar.db.DbClient;
+import org.sonar.db.SqlStatistics;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo.Section;
 import org.sonar.server.platform.db.migration.version.DatabaseVersion;
 
+import static java.util.stream.Collectors.toList;
 import static org.sonar.process.systeminfo.SystemInfoUtils.setAttribute;
 
 /**
- * Information about database connection pool
+ * Information about database connection pool and SQL requests
  */
 public class DbConnectionSection extends BaseSectionMBean implements DbConnectionSectionMBean {
 
+  static final int MAX_STATEMENT_STATISTICS = 10;
+
   private final DatabaseVersion dbVersion;
   private final DbClient dbClient;
   private final SonarRuntime runtime;
@@ -98,12 +103,23 @@ public class DbConnectionSection extends BaseSectionMBean implements DbConnectio
     return commonsDbcp().getRemoveAbandonedTimeout();
   }
 
+  @Override
+  public String[] getSqlStatementStatistics() {
+    return statementStatistics().toArray(new String[0]);
+  }
+
+  @Override
+  public String[] getSlowSqlRequests() {
+    return slowSqlRequests().toArray(new String[0]);
+  }
+
   @Override
   public Section toProtobuf() {
     Section.Builder protobuf = Section.newBuilder();
     String side = runtime.getSonarQubeSide() == SonarQubeSide.COMPUTE_ENGINE ? "Compute Engine" : "Web";
     protobuf.setName(side + " Database Connection");
     completePoolAttributes(protobuf);
+    completeSqlAttributes(protobuf);
     return protobuf.build();
   }
 
@@ -119,6 +135,28 @@ public class DbConnectionSection extends BaseSectionMBean implements DbConnectio
     setAttribute(protobuf, "Pool Remove Abandoned Timeout (seconds)", getPoolRemoveAbandonedTimeoutSeconds());
   }
 
+  private void completeSqlAttributes(Section.Builder protobuf) {
+    setAttribute(protobuf, "SQL Statements (top " + MAX_STATEMENT_STATISTICS + " by total duration)", statementStatistics());
+    setAttribute(protobuf, "Slow SQL Requests (threshold " + sqlStatistics().getSlowQueryThresholdMs() + " ms)", slowSqlRequests());
+  }
+
+  private List<String> statementStatistics() {
+    return sqlStatistics().getStatementStatistics().stream()
+      .limit(MAX_STATEMENT_STATISTICS)
+      .map(SqlStatistics.StatementStatistics::toString)
+      .collect(toList());
+  }
+
+  private List<String> slowSqlRequests() {
+    return sqlStatistics().getSlowQueries().stream()
+      .map(SqlStatistics.SlowQuery::toString)
+      .collect(toList());
+  }
+
+  private SqlStatistics sqlStatistics() {
+    return dbClient.getMyBatis().getSqlStatistics();
+  }
+
   private BasicDataSource commonsDbcp() {
     return (BasicDataSource) dbClient.getDatabase().getDataSource();
   }
@@ -68,4 +68,14 @@ public interface DbConnectionSectionMBean {
    * Timeout in seconds before an abandoned connection can be removed.
    */
   int getPoolRemoveAbandonedTimeoutSeconds();
+
+  /**
+   * Statistics of the SQL statements that took the most time since startup
+   */
+  String[] getSqlStatementStatistics();
+
+  /**
+   * Latest SQL requests that exceeded the threshold defined by the property sonar.jdbc.slowQueryThresholdMs
+   */
+  String[] getSlowSqlRequests();
 }
@@ -0,0 +1,70 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.List;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo.Section;
+import org.sonar.server.es.EsClient;
+import org.sonar.server.es.EsRequestStatistics;
+
+import static java.util.stream.Collectors.toList;
+import static org.sonar.process.systeminfo.SystemInfoUtils.setAttribute;
+
+/**
+ * Statistics of the Elasticsearch requests sent by the web server
+ */
+public class EsRequestsSection extends BaseSectionMBean implements EsRequestsSectionMBean {
+
+  static final int MAX_REQUEST_STATISTICS = 20;
+
+  private final EsClient esClient;
+
+  public EsRequestsSection(EsClient esClient) {
+    this.esClient = esClient;
+  }
+
+  @Override
+  String name() {
+    return "SearchRequests";
+  }
+
+  @Override
+  public String[] getRequestStatistics() {
+    return requestStatistics().stream()
+      .map(EsRequestStatistics.RequestStatistics::toString)
+      .toArray(String[]::new);
+  }
+
+  @Override
+  public Section toProtobuf() {
+    Section.Builder protobuf = Section.newBuilder();
+    protobuf.setName("Search Requests");
+    List<String> topRequests = requestStatistics().stream()
+      .limit(MAX_REQUEST_STATISTICS)
+      .map(EsRequestStatistics.RequestStatistics::toString)
+      .collect(toList());
+    setAttribute(protobuf, "Requests (top " + MAX_REQUEST_STATISTICS + " by total duration)", topRequests);
+    return protobuf.build();
+  }
+
+  private List<EsRequestStatistics.RequestStatistics> requestStatistics() {
+    return esClient.getRequestStatistics().getRequestStatistics();
+  }
+}
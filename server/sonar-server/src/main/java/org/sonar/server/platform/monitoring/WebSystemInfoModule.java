@@ -46,6 +46,8 @@ public class WebSystemInfoModule {
       DbConnectionSection.class,
       EsStateSection.class,
       EsIndexesSection.class,
+      EsRequestsSection.class,
+      WsResponseCacheSection.class,
       LoggingSection.class,
       PluginsSection.class,
       SettingsSection.class,
@@ -65,6 +67,8 @@ public class WebSystemInfoModule {
       DbSection.class,
       DbConnectionSection.class,
       EsIndexesSection.class,
+      EsRequestsSection.class,
+      WsResponseCacheSection.class,
       GlobalSystemSection.class,
       LoggingSection.class,
       NodeSystemSection.class,
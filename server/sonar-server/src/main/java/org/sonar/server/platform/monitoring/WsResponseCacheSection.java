@@ -0,0 +1,95 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo.Section;
+import org.sonar.server.ws.WsResponseCache;
+
+import static java.lang.String.format;
+import static java.util.Locale.ENGLISH;
+import static org.sonar.process.systeminfo.SystemInfoUtils.setAttribute;
+
+/**
+ * Statistics of the cache of web service responses of the web server
+ */
+public class WsResponseCacheSection extends BaseSectionMBean implements WsResponseCacheSectionMBean {
+
+  private final WsResponseCache cache;
+
+  public WsResponseCacheSection(WsResponseCache cache) {
+    this.cache = cache;
+  }
+
+  @Override
+  String name() {
+    return "WsResponseCache";
+  }
+
+  @Override
+  public long getHits() {
+    return cache.getStatistics().getHits();
+  }
+
+  @Override
+  public long getMisses() {
+    return cache.getStatistics().getMisses();
+  }
+
+  @Override
+  public double getHitRate() {
+    return cache.getStatistics().getHitRate();
+  }
+
+  @Override
+  public long getEvictions() {
+    return cache.getStatistics().getEvictions();
+  }
+
+  @Override
+  public long getInvalidations() {
+    return cache.getStatistics().getInvalidations();
+  }
+
+  @Override
+  public long getEntries() {
+    return cache.getStatistics().getEntries();
+  }
+
+  @Override
+  public long getSizeInBytes() {
+    return cache.getStatistics().getSizeInBytes();
+  }
+
+  @Override
+  public Section toProtobuf() {
+    Section.Builder protobuf = Section.newBuilder();
+    protobuf.setName("Web Services Cache");
+    WsResponseCache.Statistics statistics = cache.getStatistics();
+    setAttribute(protobuf, "Enabled", cache.isEnabled());
+    setAttribute(protobuf, "Hits", statistics.getHits());
+    setAttribute(protobuf, "Misses", statistics.getMisses());
+    setAttribute(protobuf, "Hit Rate", format(ENGLISH, "%.2f", statistics.getHitRate()));
+    setAttribute(protobuf, "Evictions", statistics.getEvictions());
+    setAttribute(protobuf, "Invalidations", statistics.getInvalidations());
+    setAttribute(protobuf, "Entries", statistics.getEntries());
+    setAttribute(protobuf, "Size (bytes)", statistics.getSizeInBytes());
+    return protobuf.build();
+  }
+}
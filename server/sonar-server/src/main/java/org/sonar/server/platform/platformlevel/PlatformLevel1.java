@@ -37,6 +37,7 @@ import org.sonar.db.DaoModule;
 import org.sonar.db.DatabaseChecker;
 import org.sonar.db.DbClient;
 import org.sonar.db.DefaultDatabase;
+import org.sonar.db.SqlStatistics;
 import org.sonar.db.purge.PurgeProfiler;
 import org.sonar.db.semaphore.SemaphoresImpl;
 import org.sonar.process.NetworkUtilsImpl;
@@ -93,6 +94,7 @@ public class PlatformLevel1 extends PlatformLevel {
       WebServerProcessLogging.class,
       DefaultDatabase.class,
       DatabaseChecker.class,
+      SqlStatistics.class,
       // must instantiate deprecated class in 5.2 and only this one (and not its replacement)
       // to avoid having two SqlSessionFactory instances
       org.sonar.core.persistence.MyBatis.class,
@@ -196,6 +196,7 @@ import org.sonar.server.test.index.TestIndexer;
 import org.sonar.server.test.ws.CoveredFilesAction;
 import org.sonar.server.test.ws.TestsWs;
 import org.sonar.server.text.MacroInterpreter;
+import org.sonar.server.text.RenderedHtmlCache;
 import org.sonar.server.ui.DeprecatedViews;
 import org.sonar.server.ui.PageDecorations;
 import org.sonar.server.ui.PageRepository;
@@ -224,6 +225,9 @@ import org.sonar.server.ws.DeprecatedPropertiesWsFilter;
 import org.sonar.server.ws.WebServiceEngine;
 import org.sonar.server.ws.WebServiceFilter;
 import org.sonar.server.ws.WebServiceReroutingFilter;
+import org.sonar.server.ws.WsResponseCache;
+import org.sonar.server.ws.WsResponseCacheClusterInvalidator;
+import org.sonar.server.ws.WsResponseCacheStandaloneInvalidator;
 import org.sonar.server.ws.ws.WebServicesWsModule;
 
 public class PlatformLevel4 extends PlatformLevel {
@@ -246,9 +250,11 @@ public class PlatformLevel4 extends PlatformLevel {
     addIfCluster(
       StartableHazelcastMember.class,
       NodeHealthModule.class,
-      ChangeLogLevelClusterService.class);
+      ChangeLogLevelClusterService.class,
+      WsResponseCacheClusterInvalidator.class);
     addIfStandalone(
-      ChangeLogLevelStandaloneService.class);
+      ChangeLogLevelStandaloneService.class,
+      WsResponseCacheStandaloneInvalidator.class);
 
     add(
       PluginDownloader.class,
@@ -339,6 +345,7 @@ public class PlatformLevel4 extends PlatformLevel {
 
       // web services
       WebServiceEngine.class,
+      WsResponseCache.class,
       WebServicesWsModule.class,
       WebServiceFilter.class,
       DeprecatedPropertiesWsFilter.class,
@@ -452,6 +459,7 @@ public class PlatformLevel4 extends PlatformLevel {
 
       // text
       MacroInterpreter.class,
+      RenderedHtmlCache.class,
 
       // Notifications
       NotificationModule.class,
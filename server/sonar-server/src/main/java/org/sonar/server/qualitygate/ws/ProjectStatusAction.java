@@ -87,6 +87,7 @@ public class ProjectStatusAction implements QualityGatesWsAction {
         "</ul>", QG_STATUSES_ONE_LINE, ProjectStatusWsResponse.Status.NONE))
       .setResponseExample(getClass().getResource("project_status-example.json"))
       .setSince("5.3")
+      .setCacheable(true)
       .setHandler(this);
 
     action.createParam(PARAM_ANALYSIS_ID)
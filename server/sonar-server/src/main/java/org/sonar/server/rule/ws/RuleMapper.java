@@ -19,13 +19,11 @@
  */
 package org.sonar.server.rule.ws;
 
-import com.google.common.base.Function;
 import com.google.common.collect.FluentIterable;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import javax.annotation.CheckForNull;
-import javax.annotation.Nonnull;
 import org.sonar.api.resources.Language;
 import org.sonar.api.resources.Languages;
 import org.sonar.api.server.debt.DebtRemediationFunction;
@@ -33,9 +31,8 @@ import org.sonar.api.server.debt.internal.DefaultDebtRemediationFunction;
 import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.db.rule.RuleMetadataDto;
 import org.sonar.db.rule.RuleParamDto;
-import org.sonar.markdown.Markdown;
 import org.sonar.server.rule.ws.SearchAction.SearchResult;
-import org.sonar.server.text.MacroInterpreter;
+import org.sonar.server.text.RenderedHtmlCache;
 import org.sonarqube.ws.Common;
 import org.sonarqube.ws.Rules;
 
@@ -72,11 +69,11 @@ import static org.sonarqube.ws.client.rule.RulesWsParameters.FIELD_TEMPLATE_KEY;
 public class RuleMapper {
 
   private final Languages languages;
-  private final MacroInterpreter macroInterpreter;
+  private final RenderedHtmlCache renderedHtmlCache;
 
-  public RuleMapper(final Languages languages, final MacroInterpreter macroInterpreter) {
+  public RuleMapper(final Languages languages, final RenderedHtmlCache renderedHtmlCache) {
     this.languages = languages;
-    this.macroInterpreter = macroInterpreter;
+    this.renderedHtmlCache = renderedHtmlCache;
   }
 
   public Rules.Rule toWsRule(RuleDefinitionDto ruleDefinitionDto, SearchResult result, Set<String> fieldsToReturn) {
@@ -220,11 +217,11 @@ public class RuleMapper {
     }
   }
 
-  private static void setParams(Rules.Rule.Builder ruleResponse, RuleDefinitionDto ruleDto, SearchResult searchResult, Set<String> fieldsToReturn) {
+  private void setParams(Rules.Rule.Builder ruleResponse, RuleDefinitionDto ruleDto, SearchResult searchResult, Set<String> fieldsToReturn) {
     if (shouldReturnField(fieldsToReturn, FIELD_PARAMS)) {
       List<RuleParamDto> ruleParameters = searchResult.getRuleParamsByRuleId().get(ruleDto.getId());
       ruleResponse.getParamsBuilder().addAllParams(FluentIterable.from(ruleParameters)
-        .transform(RuleParamDtoToWsRuleParam.INSTANCE)
+        .transform(this::toWsRuleParam)
         .toList());
     }
   }
@@ -241,10 +238,10 @@ public class RuleMapper {
       if (description != null) {
         switch (ruleDto.getDescriptionFormat()) {
           case MARKDOWN:
-            ruleResponse.setHtmlDesc(macroInterpreter.interpret(Markdown.convertToHtml(description)));
+            ruleResponse.setHtmlDesc(renderedHtmlCache.markdownToHtmlWithMacros(description));
             break;
           case HTML:
-            ruleResponse.setHtmlDesc(macroInterpreter.interpret(description));
+            ruleResponse.setHtmlDesc(renderedHtmlCache.htmlWithMacros(description));
             break;
           default:
             throw new IllegalStateException(format("Rule description format '%s' is unknown for key '%s'", ruleDto.getDescriptionFormat(), ruleDto.getKey().toString()));
@@ -259,7 +256,7 @@ public class RuleMapper {
 
   private void setNotesFields(Rules.Rule.Builder ruleResponse, RuleMetadataDto ruleDto, Set<String> fieldsToReturn) {
     if (shouldReturnField(fieldsToReturn, "htmlNote") && ruleDto.getNoteData() != null) {
-      ruleResponse.setHtmlNote(macroInterpreter.interpret(Markdown.convertToHtml(ruleDto.getNoteData())));
+      ruleResponse.setHtmlNote(renderedHtmlCache.markdownToHtmlWithMacros(ruleDto.getNoteData()));
     }
     if (shouldReturnField(fieldsToReturn, "mdNote") && ruleDto.getNoteData() != null) {
       ruleResponse.setMdNote(ruleDto.getNoteData());
@@ -344,24 +341,19 @@ public class RuleMapper {
     }
   }
 
-  private enum RuleParamDtoToWsRuleParam implements Function<RuleParamDto, Rules.Rule.Param> {
-    INSTANCE;
-
-    @Override
-    public Rules.Rule.Param apply(@Nonnull RuleParamDto param) {
-      Rules.Rule.Param.Builder paramResponse = Rules.Rule.Param.newBuilder();
-      paramResponse.setKey(param.getName());
-      if (param.getDescription() != null) {
-        paramResponse.setHtmlDesc(Markdown.convertToHtml(param.getDescription()));
-      }
-      if (param.getDefaultValue() != null) {
-        paramResponse.setDefaultValue(param.getDefaultValue());
-      }
-      if (param.getType() != null) {
-        paramResponse.setType(param.getType());
-      }
-
-      return paramResponse.build();
+  private Rules.Rule.Param toWsRuleParam(RuleParamDto param) {
+    Rules.Rule.Param.Builder paramResponse = Rules.Rule.Param.newBuilder();
+    paramResponse.setKey(param.getName());
+    if (param.getDescription() != null) {
+      paramResponse.setHtmlDesc(renderedHtmlCache.markdownToHtml(param.getDescription()));
+    }
+    if (param.getDefaultValue() != null) {
+      paramResponse.setDefaultValue(param.getDefaultValue());
     }
+    if (param.getType() != null) {
+      paramResponse.setType(param.getType());
+    }
+
+    return paramResponse.build();
   }
 }
@@ -0,0 +1,106 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.text;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.util.function.Supplier;
+import org.sonar.api.server.ServerSide;
+import org.sonar.markdown.Markdown;
+
+/**
+ * Cache of the HTML rendered from Markdown texts (rule descriptions and notes, parameter descriptions,
+ * issue comments) and of the expansion of macros. These texts rarely change but are rendered by each
+ * request to web services.
+ * <p>
+ * Entries are keyed by a 128-bit hash of the source text, so that large texts are not retained twice.
+ * The cache is bounded by the total length of rendered HTML.
+ */
+@ServerSide
+public class RenderedHtmlCache {
+
+  static final long DEFAULT_MAX_CHARS = 4_000_000L;
+  private static final int ENTRY_OVERHEAD_CHARS = 64;
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  private enum Rendering {
+    MARKDOWN, MARKDOWN_WITH_MACROS, HTML_WITH_MACROS
+  }
+
+  private final MacroInterpreter macroInterpreter;
+  private final Cache<HashCode, String> cache;
+
+  public RenderedHtmlCache(MacroInterpreter macroInterpreter) {
+    this(macroInterpreter, DEFAULT_MAX_CHARS);
+  }
+
+  @VisibleForTesting
+  RenderedHtmlCache(MacroInterpreter macroInterpreter, long maxChars) {
+    this.macroInterpreter = macroInterpreter;
+    this.cache = CacheBuilder.newBuilder()
+      .maximumWeight(maxChars)
+      .weigher((HashCode key, String html) -> ENTRY_OVERHEAD_CHARS + html.length())
+      .build();
+  }
+
+  /**
+   * Same as {@link Markdown#convertToHtml(String)}
+   */
+  public String markdownToHtml(String markdown) {
+    return get(Rendering.MARKDOWN, markdown, () -> Markdown.convertToHtml(markdown));
+  }
+
+  /**
+   * Converts Markdown to HTML, then expands macros with {@link MacroInterpreter}
+   */
+  public String markdownToHtmlWithMacros(String markdown) {
+    return get(Rendering.MARKDOWN_WITH_MACROS, markdown, () -> macroInterpreter.interpret(Markdown.convertToHtml(markdown)));
+  }
+
+  /**
+   * Same as {@link MacroInterpreter#interpret(String)}
+   */
+  public String htmlWithMacros(String html) {
+    return get(Rendering.HTML_WITH_MACROS, html, () -> macroInterpreter.interpret(html));
+  }
+
+  @VisibleForTesting
+  long size() {
+    return cache.size();
+  }
+
+  private String get(Rendering rendering, String text, Supplier<String> renderer) {
+    HashCode key = HASH_FUNCTION.newHasher(8 + 2 * text.length())
+      .putInt(rendering.ordinal())
+      .putUnencodedChars(text)
+      .hash();
+    String html = cache.getIfPresent(key);
+    if (html == null) {
+      // concurrent renderings of the same text are harmless
+      html = renderer.get();
+      cache.put(key, html);
+    }
+    return html;
+  }
+}
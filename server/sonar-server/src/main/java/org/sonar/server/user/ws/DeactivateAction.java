@@ -24,6 +24,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
@@ -39,6 +40,7 @@ import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.user.UserSession;
 import org.sonar.server.user.index.UserIndexer;
+import org.sonar.server.ws.WsResponseCacheInvalidator;
 
 import static java.lang.String.format;
 import static java.util.Collections.singletonList;
@@ -55,14 +57,22 @@ public class DeactivateAction implements UsersWsAction {
   private final UserSession userSession;
   private final UserJsonWriter userWriter;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  @Nullable
+  private final WsResponseCacheInvalidator responseCacheInvalidator;
 
   public DeactivateAction(DbClient dbClient, UserIndexer userIndexer, UserSession userSession, UserJsonWriter userWriter,
-    DefaultOrganizationProvider defaultOrganizationProvider) {
+    DefaultOrganizationProvider defaultOrganizationProvider, @Nullable WsResponseCacheInvalidator responseCacheInvalidator) {
     this.dbClient = dbClient;
     this.userIndexer = userIndexer;
     this.userSession = userSession;
     this.userWriter = userWriter;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.responseCacheInvalidator = responseCacheInvalidator;
+  }
+
+  public DeactivateAction(DbClient dbClient, UserIndexer userIndexer, UserSession userSession, UserJsonWriter userWriter,
+    DefaultOrganizationProvider defaultOrganizationProvider) {
+    this(dbClient, userIndexer, userSession, userWriter, defaultOrganizationProvider, null);
   }
 
   @Override
@@ -104,10 +114,20 @@ public class DeactivateAction implements UsersWsAction {
       dbClient.userDao().deactivateUser(dbSession, user);
       userIndexer.commitAndIndex(dbSession, user);
     }
+    invalidateCachedResponses();
 
     writeResponse(response, login);
   }
 
+  /**
+   * The permissions of the user are dropped without being indexed by {@link org.sonar.server.es.ProjectIndexers}
+   */
+  private void invalidateCachedResponses() {
+    if (responseCacheInvalidator != null) {
+      responseCacheInvalidator.invalidateAll();
+    }
+  }
+
   private void writeResponse(Response response, String login) {
     try (DbSession dbSession = dbClient.openSession(false)) {
       UserDto user = dbClient.userDao().selectByLogin(dbSession, login);
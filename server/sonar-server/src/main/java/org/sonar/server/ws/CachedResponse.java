@@ -0,0 +1,52 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import java.io.IOException;
+import java.util.Map;
+import javax.annotation.concurrent.Immutable;
+import org.sonar.api.server.ws.Response;
+
+/**
+ * Successful response stored in {@link WsResponseCache}
+ */
+@Immutable
+class CachedResponse {
+  private final String mediaType;
+  private final Map<String, String> headers;
+  private final byte[] body;
+
+  CachedResponse(String mediaType, Map<String, String> headers, byte[] body) {
+    this.mediaType = mediaType;
+    this.headers = headers;
+    this.body = body;
+  }
+
+  int getSizeInBytes() {
+    return body.length;
+  }
+
+  void writeTo(Response response) throws IOException {
+    Response.Stream stream = response.stream();
+    stream.setMediaType(mediaType);
+    headers.forEach(response::setHeader);
+    stream.output().write(body);
+  }
+}
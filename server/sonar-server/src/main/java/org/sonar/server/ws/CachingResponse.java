@@ -0,0 +1,180 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.output.TeeOutputStream;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.utils.text.JsonWriter;
+import org.sonar.api.utils.text.XmlWriter;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.sonarqube.ws.MediaTypes.JSON;
+import static org.sonarqube.ws.MediaTypes.XML;
+
+/**
+ * Writes to the wrapped response and keeps a copy of the body, so that it can be stored in {@link WsResponseCache}.
+ * The copy is abandoned if it's bigger than the given limit.
+ */
+class CachingResponse implements Response {
+
+  private final Response delegate;
+  private final CachingStream stream;
+  private final Map<String, String> headers = new LinkedHashMap<>();
+
+  CachingResponse(Response delegate, long maxSizeInBytes) {
+    this.delegate = delegate;
+    this.stream = new CachingStream(delegate.stream(), maxSizeInBytes);
+  }
+
+  @Override
+  public JsonWriter newJsonWriter() {
+    stream.setMediaType(JSON);
+    return JsonWriter.of(new OutputStreamWriter(stream.output(), UTF_8));
+  }
+
+  @Override
+  public XmlWriter newXmlWriter() {
+    stream.setMediaType(XML);
+    return XmlWriter.of(new OutputStreamWriter(stream.output(), UTF_8));
+  }
+
+  @Override
+  public Response noContent() {
+    stream.setStatus(204);
+    return this;
+  }
+
+  @Override
+  public Response setHeader(String name, String value) {
+    delegate.setHeader(name, value);
+    headers.put(name, value);
+    return this;
+  }
+
+  @Override
+  public Collection<String> getHeaderNames() {
+    return delegate.getHeaderNames();
+  }
+
+  @Override
+  public String getHeader(String name) {
+    return delegate.getHeader(name);
+  }
+
+  @Override
+  public Stream stream() {
+    return stream;
+  }
+
+  /**
+   * @return {@code null} if the response can't be cached
+   */
+  @CheckForNull
+  CachedResponse toCachedResponse() {
+    if (stream.status != 200 || stream.mediaType == null || stream.copy.isFull()) {
+      return null;
+    }
+    return new CachedResponse(stream.mediaType, ImmutableMap.copyOf(headers), stream.copy.toByteArray());
+  }
+
+  private static class CachingStream implements Stream {
+    private final Stream delegate;
+    private final BoundedOutputStream copy;
+    private OutputStream output;
+    private int status = 200;
+    private String mediaType;
+
+    private CachingStream(Stream delegate, long maxSizeInBytes) {
+      this.delegate = delegate;
+      this.copy = new BoundedOutputStream(maxSizeInBytes);
+    }
+
+    @Override
+    public Stream setMediaType(String s) {
+      delegate.setMediaType(s);
+      this.mediaType = s;
+      return this;
+    }
+
+    @Override
+    public Stream setStatus(int httpStatus) {
+      delegate.setStatus(httpStatus);
+      this.status = httpStatus;
+      return this;
+    }
+
+    @Override
+    public OutputStream output() {
+      if (output == null) {
+        output = new TeeOutputStream(delegate.output(), copy);
+      }
+      return output;
+    }
+  }
+
+  /**
+   * Stops copying, and releases memory, as soon as the limit is exceeded
+   */
+  private static class BoundedOutputStream extends OutputStream {
+    private final long maxSizeInBytes;
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    private BoundedOutputStream(long maxSizeInBytes) {
+      this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    @Override
+    public void write(int b) {
+      if (ensureCapacity(1)) {
+        buffer.write(b);
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      if (ensureCapacity(len)) {
+        buffer.write(b, off, len);
+      }
+    }
+
+    private boolean ensureCapacity(int len) {
+      if (buffer != null && buffer.size() + (long) len > maxSizeInBytes) {
+        buffer = null;
+      }
+      return buffer != null;
+    }
+
+    private boolean isFull() {
+      return buffer == null;
+    }
+
+    private byte[] toByteArray() {
+      return buffer.toByteArray();
+    }
+  }
+}
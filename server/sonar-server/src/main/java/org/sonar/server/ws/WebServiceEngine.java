@@ -27,6 +27,7 @@ import java.util.Locale;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.picocontainer.Startable;
+import org.slf4j.MDC;
 import org.sonar.api.server.ServerSide;
 import org.sonar.api.server.ws.LocalConnector;
 import org.sonar.api.server.ws.Request;
@@ -56,15 +57,27 @@ import static org.sonar.server.ws.WsUtils.checkFound;
 @ServerSide
 public class WebServiceEngine implements LocalConnector, Startable {
 
+  /**
+   * Key of the path of the web service action being executed, stored in the {@link MDC}
+   */
+  public static final String WS_ACTION_MDC_KEY = "WS_ACTION";
+
   private static final Logger LOGGER = Loggers.get(WebServiceEngine.class);
 
   private final WebService.Context context;
+  @Nullable
+  private final WsResponseCache responseCache;
 
-  public WebServiceEngine(WebService[] webServices) {
+  public WebServiceEngine(WebService[] webServices, @Nullable WsResponseCache responseCache) {
     context = new WebService.Context();
     for (WebService webService : webServices) {
       webService.define(context);
     }
+    this.responseCache = responseCache;
+  }
+
+  public WebServiceEngine(WebService[] webServices) {
+    this(webServices, null);
   }
 
   @Override
@@ -100,7 +113,7 @@ public class WebServiceEngine implements LocalConnector, Startable {
       }
       checkActionExtension(actionExtractor.getExtension());
       verifyRequest(action, request);
-      action.handler().handle(request, response);
+      handle(action, request, response);
     } catch (IllegalArgumentException e) {
       sendErrors(response, 400, singletonList(e.getMessage()));
     } catch (BadRequestException e) {
@@ -121,6 +134,27 @@ public class WebServiceEngine implements LocalConnector, Startable {
     }
   }
 
+  /**
+   * Local calls are nested in other actions, so the path of the calling action is restored at the end
+   */
+  private void handle(WebService.Action action, Request request, Response response) throws Exception {
+    String callingAction = MDC.get(WS_ACTION_MDC_KEY);
+    MDC.put(WS_ACTION_MDC_KEY, action.path());
+    try {
+      if (responseCache == null) {
+        action.handler().handle(request, response);
+      } else {
+        responseCache.handle(action, request, response);
+      }
+    } finally {
+      if (callingAction == null) {
+        MDC.remove(WS_ACTION_MDC_KEY);
+      } else {
+        MDC.put(WS_ACTION_MDC_KEY, callingAction);
+      }
+    }
+  }
+
   @CheckForNull
   private WebService.Action getAction(ActionExtractor actionExtractor) {
     String controllerPath = actionExtractor.getController();
@@ -0,0 +1,316 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.user.GroupDto;
+import org.sonar.server.user.UserSession;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Cache of the responses of the web services that are declared as cacheable (see
+ * {@link WebService.NewAction#setCacheable(boolean)}). Responses are shared by the requests with the same
+ * parameters and media type of a same user, as long as the groups of the user do not change, or of all
+ * anonymous users.
+ * <p>
+ * Memory is bounded by the property {@link #MAX_SIZE_PROPERTY}. Entries expire after the delay defined by
+ * {@link #TTL_PROPERTY}, and all of them are invalidated when:
+ * <ul>
+ *   <li>a task of Compute Engine, for example an analysis, is completed. It is detected by polling the table
+ *   of activities every {@link #CE_ACTIVITY_CHECK_INTERVAL_MS} ms, so that it works in both standalone and
+ *   cluster modes.</li>
+ *   <li>projects, permissions or members of organizations are changed by web services, or users are
+ *   deactivated. See {@link WsResponseCacheInvalidator}.</li>
+ * </ul>
+ */
+@ServerSide
+public class WsResponseCache implements Startable {
+
+  public static final String MAX_SIZE_PROPERTY = "sonar.web.wsCache.maxSizeInMb";
+  public static final String TTL_PROPERTY = "sonar.web.wsCache.ttlInSeconds";
+  static final long DEFAULT_MAX_SIZE_IN_MB = 32L;
+  static final long DEFAULT_TTL_IN_SECONDS = 60L;
+  static final long CE_ACTIVITY_CHECK_INTERVAL_MS = 5_000L;
+  /**
+   * A single response can not use more than this ratio of the cache
+   */
+  private static final int MAX_ENTRY_RATIO = 10;
+  private static final String ANONYMOUS = "_anonymous_";
+
+  /** Used for Hazelcast's distributed queries in cluster mode */
+  private static WsResponseCache instance;
+
+  private final UserSession userSession;
+  private final DbClient dbClient;
+  private final System2 system2;
+  private final long maxSizeInBytes;
+  @CheckForNull
+  private final Cache<String, CachedResponse> cache;
+  private final LongAdder sizeInBytes = new LongAdder();
+  private final AtomicLong invalidations = new AtomicLong();
+  /**
+   * Part of the keys of entries, so that the entries being computed when cache is invalidated are never read
+   */
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicLong nextCeActivityCheck = new AtomicLong();
+  private volatile long lastCeActivityId = -1L;
+
+  public WsResponseCache(Configuration config, UserSession userSession, DbClient dbClient, System2 system2) {
+    this.userSession = userSession;
+    this.dbClient = dbClient;
+    this.system2 = system2;
+    this.maxSizeInBytes = config.getLong(MAX_SIZE_PROPERTY).orElse(DEFAULT_MAX_SIZE_IN_MB) * 1024L * 1024L;
+    long ttlInSeconds = config.getLong(TTL_PROPERTY).orElse(DEFAULT_TTL_IN_SECONDS);
+    if (maxSizeInBytes > 0L && ttlInSeconds > 0L) {
+      this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxSizeInBytes)
+        .<String, CachedResponse>weigher((key, value) -> weight(key, value))
+        .expireAfterWrite(ttlInSeconds, TimeUnit.SECONDS)
+        .removalListener(notification -> sizeInBytes.add(-weight(notification.getKey(), notification.getValue())))
+        .recordStats()
+        .build();
+    } else {
+      this.cache = null;
+    }
+  }
+
+  @Override
+  public void start() {
+    instance = this;
+  }
+
+  @Override
+  public void stop() {
+    instance = null;
+  }
+
+  public boolean isEnabled() {
+    return cache != null;
+  }
+
+  /**
+   * Executes the action, or writes its cached response if it's cacheable.
+   */
+  public void handle(WebService.Action action, Request request, Response response) throws Exception {
+    if (cache == null || !action.isCacheable()) {
+      action.handler().handle(request, response);
+      return;
+    }
+    invalidateIfNewCeActivity();
+    String key = key(action, request);
+    CachedResponse cachedResponse = cache.getIfPresent(key);
+    if (cachedResponse != null) {
+      cachedResponse.writeTo(response);
+      return;
+    }
+
+    CachingResponse cachingResponse = new CachingResponse(response, maxSizeInBytes / MAX_ENTRY_RATIO);
+    action.handler().handle(request, cachingResponse);
+    cachedResponse = cachingResponse.toCachedResponse();
+    if (cachedResponse != null) {
+      sizeInBytes.add(weight(key, cachedResponse));
+      cache.put(key, cachedResponse);
+    }
+  }
+
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    invalidations.incrementAndGet();
+    if (cache != null) {
+      cache.invalidateAll();
+    }
+  }
+
+  public static void invalidateFromHazelcastDistributedQuery() {
+    WsResponseCache cache = instance;
+    if (cache != null) {
+      cache.invalidateAll();
+    }
+  }
+
+  private void invalidateIfNewCeActivity() {
+    long now = system2.now();
+    long nextCheck = nextCeActivityCheck.get();
+    if (now < nextCheck || !nextCeActivityCheck.compareAndSet(nextCheck, now + CE_ACTIVITY_CHECK_INTERVAL_MS)) {
+      // checked recently or being checked by another thread
+      return;
+    }
+    long ceActivityId;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      ceActivityId = dbClient.ceActivityDao().selectLastId(dbSession);
+    }
+    if (ceActivityId != lastCeActivityId) {
+      if (lastCeActivityId >= 0L) {
+        invalidateAll();
+      }
+      lastCeActivityId = ceActivityId;
+    }
+  }
+
+  private String key(WebService.Action action, Request request) {
+    StringBuilder key = new StringBuilder();
+    key.append(generation.get())
+      .append(' ').append(action.path())
+      .append(' ').append(request.getMediaType())
+      .append(' ');
+    appendUser(key);
+    key.append(' ');
+    action.params().stream()
+      .sorted(Comparator.comparing(WebService.Param::key))
+      .filter(param -> request.hasParam(param.key()))
+      .forEach(param -> {
+        key.append(encode(param.key())).append('=');
+        paramValues(request, param).forEach(value -> key.append(encode(value)).append(','));
+        key.append('&');
+      });
+    return key.toString();
+  }
+
+  /**
+   * Responses depend on the permissions of the user, so the groups of the user are part of the key
+   * in addition to the login: the groups are loaded for each request, and the responses are not read
+   * anymore as soon as the user is added to or removed from a group. Other changes of permissions
+   * invalidate the whole cache, see {@link WsResponseCacheInvalidator}.
+   */
+  private void appendUser(StringBuilder key) {
+    if (!userSession.isLoggedIn()) {
+      key.append(ANONYMOUS);
+      return;
+    }
+    key.append(encode(userSession.getLogin()));
+    if (userSession.isRoot()) {
+      key.append(",root");
+    }
+    userSession.getGroups().stream()
+      .mapToInt(GroupDto::getId)
+      .sorted()
+      .forEach(groupId -> key.append(',').append(groupId));
+  }
+
+  /**
+   * Parameters are read as the action may read them, without failing on valid values. Comma-separated values
+   * of parameters with possible values are validated individually, and other parameters are not validated,
+   * so they are read both as a single value and as repeated values.
+   */
+  private static List<String> paramValues(Request request, WebService.Param param) {
+    List<String> values = new ArrayList<>();
+    if (param.possibleValues() != null) {
+      Optional.ofNullable(request.paramAsStrings(param.key())).ifPresent(values::addAll);
+    } else {
+      Optional.ofNullable(request.param(param.key())).ifPresent(values::add);
+      values.addAll(request.multiParam(param.key()));
+    }
+    return values;
+  }
+
+  private static String encode(String s) {
+    try {
+      return URLEncoder.encode(s, UTF_8.name());
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static int weight(String key, CachedResponse response) {
+    // chars are stored on two bytes
+    return 2 * key.length() + response.getSizeInBytes();
+  }
+
+  public Statistics getStatistics() {
+    if (cache == null) {
+      return new Statistics(new CacheStats(0L, 0L, 0L, 0L, 0L, 0L), 0L, 0L, invalidations.get());
+    }
+    return new Statistics(cache.stats(), cache.size(), sizeInBytes.sum(), invalidations.get());
+  }
+
+  public static final class Statistics {
+    private final CacheStats stats;
+    private final long entries;
+    private final long sizeInBytes;
+    private final long invalidations;
+
+    Statistics(CacheStats stats, long entries, long sizeInBytes, long invalidations) {
+      this.stats = stats;
+      this.entries = entries;
+      this.sizeInBytes = sizeInBytes;
+      this.invalidations = invalidations;
+    }
+
+    public long getHits() {
+      return stats.hitCount();
+    }
+
+    public long getMisses() {
+      return stats.missCount();
+    }
+
+    /**
+     * Ratio of requests served from cache, between 0 and 1. It's 1 if there were no requests.
+     */
+    public double getHitRate() {
+      return stats.hitRate();
+    }
+
+    public long getEvictions() {
+      return stats.evictionCount();
+    }
+
+    public long getInvalidations() {
+      return invalidations;
+    }
+
+    public long getEntries() {
+      return entries;
+    }
+
+    public long getSizeInBytes() {
+      return sizeInBytes;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ENGLISH, "hits=%d, misses=%d, hitRate=%.2f, evictions=%d, invalidations=%d, entries=%d, size=%dKB",
+        getHits(), getMisses(), getHitRate(), getEvictions(), invalidations, entries, sizeInBytes / 1024L);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.process.ProcessId;
+import org.sonar.process.cluster.hz.DistributedCall;
+import org.sonar.process.cluster.hz.HazelcastMember;
+import org.sonar.process.cluster.hz.HazelcastMemberSelectors;
+
+/**
+ * Broadcasts the invalidation to the web servers of all the application nodes, including the
+ * current one. A failure is not propagated, as entries expire anyway.
+ */
+public class WsResponseCacheClusterInvalidator implements WsResponseCacheInvalidator {
+
+  private static final long CLUSTER_TIMEOUT_MILLIS = 5000;
+  private static final Logger LOGGER = Loggers.get(WsResponseCacheClusterInvalidator.class);
+
+  private final HazelcastMember member;
+  private final WsResponseCache cache;
+
+  public WsResponseCacheClusterInvalidator(HazelcastMember member, WsResponseCache cache) {
+    this.member = member;
+    this.cache = cache;
+  }
+
+  @Override
+  public void invalidateAll() {
+    // do not wait for the other nodes to invalidate the local cache
+    cache.invalidateAll();
+    try {
+      member.call(invalidateNode(), HazelcastMemberSelectors.selectorForProcessIds(ProcessId.WEB_SERVER), CLUSTER_TIMEOUT_MILLIS)
+        .propagateExceptions();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      LOGGER.warn("Fail to invalidate the cache of web services on all the cluster nodes", e);
+    }
+  }
+
+  private static DistributedCall<Object> invalidateNode() {
+    return () -> {
+      WsResponseCache.invalidateFromHazelcastDistributedQuery();
+      return null;
+    };
+  }
+}
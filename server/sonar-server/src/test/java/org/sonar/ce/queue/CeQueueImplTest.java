@@ -19,6 +19,7 @@
  */
 package org.sonar.ce.queue;
 
+import java.io.ByteArrayInputStream;
 import java.util.List;
 import java.util.Optional;
 import javax.annotation.Nullable;
@@ -60,7 +61,9 @@ public class CeQueueImplTest {
   private UuidFactory uuidFactory = UuidFactoryImpl.INSTANCE;
   private DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(dbTester);
 
-  private CeQueue underTest = new CeQueueImpl(dbTester.getDbClient(), uuidFactory, defaultOrganizationProvider);
+  private CeTaskInputStore taskInputStore = new DbCeTaskInputStore(dbTester.getDbClient());
+
+  private CeQueue underTest = new CeQueueImpl(dbTester.getDbClient(), uuidFactory, defaultOrganizationProvider, taskInputStore);
 
   @Test
   public void submit_returns_task_populated_from_CeTaskSubmit_and_creates_CeQueue_row() {
@@ -142,6 +145,18 @@ public class CeQueueImplTest {
     assertThat(activity.get().getStatus()).isEqualTo(CeActivityDto.Status.CANCELED);
   }
 
+  @Test
+  public void cancel_deletes_input_and_parts_of_input() {
+    CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    taskInputStore.store(session, task.getUuid(), new ByteArrayInputStream(new byte[] {1}));
+    taskInputStore.store(session, CeTaskInputStore.partUuid(task.getUuid(), 0), new ByteArrayInputStream(new byte[] {2}));
+    session.commit();
+
+    underTest.cancel(task.getUuid());
+
+    assertThat(dbTester.countRowsOfTable("ce_task_input")).isZero();
+  }
+
   @Test
   public void fail_to_cancel_if_in_progress() throws Exception {
     expectedException.expect(IllegalStateException.class);
@@ -0,0 +1,88 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import java.io.File;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.MessageException;
+import org.sonar.db.DbClient;
+import org.sonar.server.platform.ServerFileSystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CeTaskInputStoreProviderTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private MapSettings settings = new MapSettings();
+  private DbClient dbClient = mock(DbClient.class);
+  private ServerFileSystem fs = mock(ServerFileSystem.class);
+  private CeTaskInputStoreProvider underTest = new CeTaskInputStoreProvider();
+
+  @Test
+  public void database_store_by_default() {
+    CeTaskInputStore store = underTest.provide(settings.asConfig(), dbClient, fs);
+
+    assertThat(store).isInstanceOf(DbCeTaskInputStore.class);
+    assertThat(underTest.provide(settings.asConfig(), dbClient, fs)).isSameAs(store);
+  }
+
+  @Test
+  public void filesystem_store_in_data_directory_by_default() throws Exception {
+    File dataDir = temp.newFolder();
+    when(fs.getDataDir()).thenReturn(dataDir);
+    settings.setProperty("sonar.ce.taskInputStore", "filesystem");
+
+    CeTaskInputStore store = underTest.provide(settings.asConfig(), dbClient, fs);
+
+    assertThat(store).isInstanceOf(FileSystemCeTaskInputStore.class);
+    assertThat(((FileSystemCeTaskInputStore) store).getDirectory()).isEqualTo(new File(dataDir, "ce/task-inputs").toPath());
+  }
+
+  @Test
+  public void filesystem_store_in_configured_directory() throws Exception {
+    File dir = temp.newFolder();
+    settings.setProperty("sonar.ce.taskInputStore", "filesystem");
+    settings.setProperty("sonar.ce.taskInputStore.path", dir.getAbsolutePath());
+
+    CeTaskInputStore store = underTest.provide(settings.asConfig(), dbClient, fs);
+
+    assertThat(((FileSystemCeTaskInputStore) store).getDirectory()).isEqualTo(dir.toPath());
+  }
+
+  @Test
+  public void fail_if_type_is_not_supported() {
+    settings.setProperty("sonar.ce.taskInputStore", "s3");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("Unsupported value 's3' of property sonar.ce.taskInputStore. Supported values are: database, filesystem");
+
+    underTest.provide(settings.asConfig(), dbClient, fs);
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DbCeTaskInputStoreTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private DbSession dbSession = db.getSession();
+  private DbCeTaskInputStore underTest = new DbCeTaskInputStore(db.getDbClient());
+
+  @Test
+  public void store_open_and_delete_input() throws IOException {
+    store("TASK_1");
+
+    try (InputStream input = underTest.open(dbSession, "TASK_1").get()) {
+      assertThat(IOUtils.toString(input, UTF_8)).isEqualTo("content");
+    }
+
+    underTest.delete(dbSession, singletonList("TASK_1"));
+    assertThat(underTest.open(dbSession, "TASK_1")).isEmpty();
+  }
+
+  @Test
+  public void exists_and_countParts() {
+    store("TASK_1");
+    store(CeTaskInputStore.partUuid("TASK_1", 0));
+    store(CeTaskInputStore.partUuid("TASK_1", 1));
+    store(CeTaskInputStore.partUuid("TASK_1", 3));
+    store(CeTaskInputStore.partUuid("TASK_10", 2));
+
+    assertThat(underTest.exists(dbSession, "TASK_1")).isTrue();
+    assertThat(underTest.exists(dbSession, CeTaskInputStore.partUuid("TASK_1", 1))).isTrue();
+    assertThat(underTest.exists(dbSession, "TASK_2")).isFalse();
+    assertThat(underTest.countParts(dbSession, "TASK_1")).isEqualTo(2);
+    assertThat(underTest.countParts(dbSession, "TASK_10")).isEqualTo(0);
+    assertThat(underTest.countParts(dbSession, "TASK_2")).isEqualTo(0);
+  }
+
+  @Test
+  public void deleteParts_deletes_only_parts_of_task() {
+    store("TASK_1");
+    store(CeTaskInputStore.partUuid("TASK_1", 0));
+    store(CeTaskInputStore.partUuid("TASK_1", 1));
+    store(CeTaskInputStore.partUuid("TASK_2", 0));
+
+    underTest.deleteParts(dbSession, "TASK_1");
+    dbSession.commit();
+
+    assertThat(underTest.open(dbSession, "TASK_1")).isPresent();
+    assertThat(underTest.open(dbSession, CeTaskInputStore.partUuid("TASK_1", 0))).isEmpty();
+    assertThat(underTest.open(dbSession, CeTaskInputStore.partUuid("TASK_1", 1))).isEmpty();
+    assertThat(underTest.open(dbSession, CeTaskInputStore.partUuid("TASK_2", 0))).isPresent();
+  }
+
+  @Test
+  public void deleteOrphans_deletes_inputs_of_tasks_not_in_queue() {
+    db.getDbClient().ceQueueDao().insert(dbSession, new CeQueueDto().setUuid("TASK_1").setTaskType("foo").setStatus(CeQueueDto.Status.PENDING));
+    store("TASK_1");
+    store("TASK_2");
+
+    underTest.deleteOrphans(dbSession, Long.MAX_VALUE);
+
+    assertThat(db.getDbClient().ceTaskInputDao().selectUuidsNotInQueue(dbSession)).isEmpty();
+    assertThat(db.countRowsOfTable("ce_task_input")).isEqualTo(1);
+  }
+
+  @Test
+  public void deleteOrphans_keeps_touched_inputs() {
+    store("TASK_1");
+    store("TASK_2");
+    db.executeUpdateSql("update ce_task_input set updated_at=1");
+
+    underTest.touch(dbSession, singletonList("TASK_1"));
+    dbSession.commit();
+    underTest.deleteOrphans(dbSession, 2L);
+
+    assertThat(underTest.open(dbSession, "TASK_1")).isPresent();
+    assertThat(underTest.open(dbSession, "TASK_2")).isEmpty();
+  }
+
+  @Test
+  public void openParts_reads_parts_in_sequence() throws IOException {
+    underTest.store(dbSession, CeTaskInputStore.partUuid("TASK_1", 0), new ByteArrayInputStream("first ".getBytes(UTF_8)));
+    underTest.store(dbSession, CeTaskInputStore.partUuid("TASK_1", 1), new ByteArrayInputStream("second".getBytes(UTF_8)));
+    underTest.store(dbSession, CeTaskInputStore.partUuid("TASK_1", 3), new ByteArrayInputStream("not consecutive".getBytes(UTF_8)));
+    dbSession.commit();
+
+    try (InputStream input = underTest.openParts(dbSession, "TASK_1").get()) {
+      assertThat(IOUtils.toString(input, UTF_8)).isEqualTo("first second");
+    }
+    assertThat(underTest.openParts(dbSession, "TASK_2")).isEmpty();
+  }
+
+  @Test
+  public void deleteOrphans_keeps_parts_of_tasks_in_queue() {
+    db.getDbClient().ceQueueDao().insert(dbSession, new CeQueueDto().setUuid("TASK_1").setTaskType("foo").setStatus(CeQueueDto.Status.PENDING));
+    store(CeTaskInputStore.partUuid("TASK_1", 0));
+    store(CeTaskInputStore.partUuid("TASK_2", 0));
+
+    underTest.deleteOrphans(dbSession, Long.MAX_VALUE);
+
+    assertThat(underTest.open(dbSession, CeTaskInputStore.partUuid("TASK_1", 0))).isPresent();
+    assertThat(underTest.open(dbSession, CeTaskInputStore.partUuid("TASK_2", 0))).isEmpty();
+  }
+
+  @Test
+  public void deleteOrphans_keeps_parts_as_long_as_input_of_task_is_used() {
+    store("TASK_1");
+    store(CeTaskInputStore.partUuid("TASK_1", 0));
+    store("TASK_2");
+    store(CeTaskInputStore.partUuid("TASK_2", 0));
+    db.executeUpdateSql("update ce_task_input set updated_at=1");
+
+    underTest.touch(dbSession, singletonList("TASK_1"));
+    dbSession.commit();
+    underTest.deleteOrphans(dbSession, 2L);
+
+    assertThat(underTest.exists(dbSession, "TASK_1")).isTrue();
+    assertThat(underTest.exists(dbSession, CeTaskInputStore.partUuid("TASK_1", 0))).isTrue();
+    assertThat(db.countRowsOfTable("ce_task_input")).isEqualTo(2);
+  }
+
+  private void store(String taskUuid) {
+    underTest.store(dbSession, taskUuid, new ByteArrayInputStream("content".getBytes(UTF_8)));
+    dbSession.commit();
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileSystemCeTaskInputStoreTest {
+
+  private static final String CONTENT = "content of report";
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private DbSession dbSession = db.getSession();
+  private Path directory;
+  private FileSystemCeTaskInputStore underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = new File(temp.newFolder(), "task-inputs").toPath();
+    underTest = new FileSystemCeTaskInputStore(db.getDbClient(), directory);
+  }
+
+  @Test
+  public void store_and_open_input() throws IOException {
+    store("TASK_1", CONTENT);
+
+    assertThat(read("TASK_1")).isEqualTo(CONTENT);
+    assertThat(directory.resolve("TASK_1")).exists();
+    assertThat(directory.resolve("TASK_1.sha256")).exists();
+    assertThat(directory.resolve("TASK_1.tmp")).doesNotExist();
+  }
+
+  @Test
+  public void open_returns_empty_if_input_does_not_exist() {
+    assertThat(underTest.open(dbSession, "TASK_1")).isEmpty();
+  }
+
+  @Test
+  public void fail_to_read_corrupted_input() throws IOException {
+    store("TASK_1", CONTENT);
+    Files.write(directory.resolve("TASK_1"), "corrupted".getBytes(UTF_8));
+
+    expectedException.expect(IOException.class);
+    expectedException.expectMessage("Input of CE task TASK_1 is corrupted");
+
+    read("TASK_1");
+  }
+
+  @Test
+  public void checksum_is_verified_when_closing_a_partially_read_input() throws IOException {
+    store("TASK_1", CONTENT);
+    Files.write(directory.resolve("TASK_1"), "corrupted".getBytes(UTF_8));
+
+    expectedException.expect(IOException.class);
+    expectedException.expectMessage("Input of CE task TASK_1 is corrupted");
+
+    try (InputStream input = underTest.open(dbSession, "TASK_1").get()) {
+      input.read();
+    }
+  }
+
+  @Test
+  public void delete_inputs() {
+    store("TASK_1", CONTENT);
+    store("TASK_2", CONTENT);
+    store("TASK_3", CONTENT);
+
+    underTest.delete(dbSession, asList("TASK_1", "TASK_2", "UNKNOWN"));
+
+    assertThat(underTest.open(dbSession, "TASK_1")).isEmpty();
+    assertThat(underTest.open(dbSession, "TASK_2")).isEmpty();
+    assertThat(underTest.open(dbSession, "TASK_3")).isPresent();
+    assertThat(directory.toFile().list()).containsOnly("TASK_3", "TASK_3.sha256");
+  }
+
+  @Test
+  public void exists_and_countParts() {
+    store("TASK_1", CONTENT);
+    store(CeTaskInputStore.partUuid("TASK_1", 0), CONTENT);
+    store(CeTaskInputStore.partUuid("TASK_1", 1), CONTENT);
+    store(CeTaskInputStore.partUuid("TASK_1", 3), CONTENT);
+
+    assertThat(underTest.exists(dbSession, "TASK_1")).isTrue();
+    assertThat(underTest.exists(dbSession, "TASK_2")).isFalse();
+    assertThat(underTest.countParts(dbSession, "TASK_1")).isEqualTo(2);
+    assertThat(underTest.countParts(dbSession, "TASK_2")).isEqualTo(0);
+  }
+
+  @Test
+  public void deleteParts_deletes_only_parts_of_task() {
+    store("TASK_1", CONTENT);
+    store(CeTaskInputStore.partUuid("TASK_1", 0), CONTENT);
+    store(CeTaskInputStore.partUuid("TASK_1", 12), CONTENT);
+    store(CeTaskInputStore.partUuid("TASK_2", 0), CONTENT);
+
+    underTest.deleteParts(dbSession, "TASK_1");
+    underTest.deleteParts(dbSession, "UNKNOWN");
+
+    assertThat(directory.toFile().list()).containsOnly("TASK_1", "TASK_1.sha256", "TASK_2.0", "TASK_2.0.sha256");
+  }
+
+  @Test
+  public void deleteParts_does_nothing_if_directory_does_not_exist() {
+    underTest.deleteParts(dbSession, "TASK_1");
+
+    assertThat(directory).doesNotExist();
+  }
+
+  @Test
+  public void deleteOrphans_deletes_inputs_of_tasks_not_in_queue_stored_before_date() throws IOException {
+    insertInQueue("TASK_1");
+    store("TASK_1", CONTENT);
+    store("TASK_2", CONTENT);
+    store("TASK_3", CONTENT);
+    setLastModified("TASK_1", 1_000L);
+    setLastModified("TASK_2", 1_000L);
+    setLastModified("TASK_3", 3_000L);
+
+    underTest.deleteOrphans(dbSession, 2_000L);
+
+    assertThat(directory.toFile().list()).containsOnly("TASK_1", "TASK_1.sha256", "TASK_3", "TASK_3.sha256");
+  }
+
+  @Test
+  public void deleteOrphans_keeps_touched_inputs() throws IOException {
+    store("TASK_1", CONTENT);
+    store("TASK_2", CONTENT);
+    setLastModified("TASK_1", 1_000L);
+    setLastModified("TASK_2", 1_000L);
+
+    underTest.touch(dbSession, asList("TASK_1", "UNKNOWN"));
+    underTest.deleteOrphans(dbSession, 2_000L);
+
+    assertThat(directory.toFile().list()).containsOnly("TASK_1", "TASK_1.sha256");
+  }
+
+  @Test
+  public void deleteOrphans_keeps_parts_as_long_as_input_of_task_is_used() throws IOException {
+    String part1 = CeTaskInputStore.partUuid("TASK_1", 0);
+    String part2 = CeTaskInputStore.partUuid("TASK_2", 0);
+    store("TASK_1", CONTENT);
+    store(part1, CONTENT);
+    store("TASK_2", CONTENT);
+    store(part2, CONTENT);
+    setLastModified("TASK_1", 3_000L);
+    setLastModified(part1, 1_000L);
+    setLastModified("TASK_2", 1_000L);
+    setLastModified(part2, 1_000L);
+
+    underTest.deleteOrphans(dbSession, 2_000L);
+
+    assertThat(directory.toFile().list()).containsOnly("TASK_1", "TASK_1.sha256", part1, part1 + ".sha256");
+  }
+
+  @Test
+  public void deleteOrphans_does_nothing_if_directory_does_not_exist() {
+    underTest.deleteOrphans(dbSession, Long.MAX_VALUE);
+
+    assertThat(directory).doesNotExist();
+  }
+
+  private void store(String taskUuid, String content) {
+    underTest.store(dbSession, taskUuid, new ByteArrayInputStream(content.getBytes(UTF_8)));
+  }
+
+  private String read(String taskUuid) throws IOException {
+    Optional<InputStream> input = underTest.open(dbSession, taskUuid);
+    assertThat(input).isPresent();
+    try (InputStream stream = input.get()) {
+      return IOUtils.toString(stream, UTF_8);
+    }
+  }
+
+  private void setLastModified(String taskUuid, long time) throws IOException {
+    Files.setLastModifiedTime(directory.resolve(taskUuid), FileTime.fromMillis(time));
+    Files.setLastModifiedTime(directory.resolve(taskUuid + ".sha256"), FileTime.fromMillis(time));
+  }
+
+  private void insertInQueue(String taskUuid) {
+    db.getDbClient().ceQueueDao().insert(dbSession, new CeQueueDto()
+      .setUuid(taskUuid)
+      .setTaskType("foo")
+      .setStatus(CeQueueDto.Status.PENDING));
+    db.commit();
+  }
+}
@@ -29,6 +29,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskCharacteristicDto;
 import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonarqube.ws.WsCe;
@@ -120,6 +121,24 @@ public class TaskFormatterTest {
     assertThat(wsTask.hasComponentName()).isFalse();
   }
 
+  @Test
+  public void formatQueue_set_progress_of_task() {
+    CeQueueDto dto = new CeQueueDto();
+    dto.setUuid("UUID");
+    dto.setTaskType(CeTaskTypes.ISSUES_BULK_CHANGE);
+    dto.setStatus(CeQueueDto.Status.IN_PROGRESS);
+    dto.setCreatedAt(1_450_000_000_000L);
+    db.getDbClient().ceTaskCharacteristicsDao().insert(db.getSession(), asList(
+      new CeTaskCharacteristicDto().setUuid("C1").setTaskUuid("UUID").setKey(CeTaskCharacteristicDto.TOTAL_ITEMS_KEY).setValue("2000"),
+      new CeTaskCharacteristicDto().setUuid("C2").setTaskUuid("UUID").setKey(CeTaskCharacteristicDto.PROCESSED_ITEMS_KEY).setValue("500")));
+    db.commit();
+
+    WsCe.Task wsTask = underTest.formatQueue(db.getSession(), dto);
+
+    assertThat(wsTask.getTotalItems()).isEqualTo(2000L);
+    assertThat(wsTask.getProcessedItems()).isEqualTo(500L);
+  }
+
   @Test
   public void formatQueue_compute_execute_time_if_in_progress() {
     long startedAt = 1_450_000_001_000L;
@@ -0,0 +1,64 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.ws;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import org.junit.Test;
+import org.sonar.server.computation.queue.ChunkedReportSubmitter;
+import org.sonar.server.ws.WsActionTester;
+import org.sonarqube.ws.WsCe;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UploadChunkActionTest {
+
+  private ChunkedReportSubmitter chunkedReportSubmitter = mock(ChunkedReportSubmitter.class);
+  private WsActionTester tester = new WsActionTester(new UploadChunkAction(chunkedReportSubmitter));
+
+  @Test
+  public void add_chunk() {
+    when(chunkedReportSubmitter.addChunk(eq("UPLOAD_1"), eq(2), eq("abc"), any(InputStream.class))).thenReturn(3);
+
+    WsCe.UploadResponse response = tester.newRequest()
+      .setParam("uploadId", "UPLOAD_1")
+      .setParam("index", "2")
+      .setParam("checksum", "abc")
+      .setPart("chunk", new ByteArrayInputStream("{binary}".getBytes()), "report.zip")
+      .setMethod("POST")
+      .executeProtobuf(WsCe.UploadResponse.class);
+
+    assertThat(response.getUploadId()).isEqualTo("UPLOAD_1");
+    assertThat(response.getNextChunk()).isEqualTo(3);
+    verify(chunkedReportSubmitter).addChunk(eq("UPLOAD_1"), eq(2), eq("abc"), any(InputStream.class));
+  }
+
+  @Test
+  public void definition() {
+    assertThat(tester.getDef().isPost()).isTrue();
+    assertThat(tester.getDef().isInternal()).isTrue();
+    assertThat(tester.getDef().params()).extracting("key").containsOnly("uploadId", "index", "checksum", "chunk");
+  }
+}
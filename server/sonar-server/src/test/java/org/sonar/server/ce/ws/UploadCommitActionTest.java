@@ -0,0 +1,67 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.ws;
+
+import org.junit.Test;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.computation.queue.ChunkedReportSubmitter;
+import org.sonar.server.ws.TestResponse;
+import org.sonar.server.ws.WsActionTester;
+import org.sonar.test.JsonAssert;
+import org.sonarqube.ws.MediaTypes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class UploadCommitActionTest {
+
+  private static final CeTask A_CE_TASK = new CeTask.Builder()
+    .setOrganizationUuid("org1")
+    .setUuid("TASK_1")
+    .setType(CeTaskTypes.REPORT)
+    .setComponentUuid("PROJECT_1")
+    .build();
+
+  private ChunkedReportSubmitter chunkedReportSubmitter = mock(ChunkedReportSubmitter.class);
+  private WsActionTester tester = new WsActionTester(new UploadCommitAction(chunkedReportSubmitter));
+
+  @Test
+  public void test_example_json_response() {
+    when(chunkedReportSubmitter.commit("UPLOAD_1", 3)).thenReturn(A_CE_TASK);
+
+    TestResponse response = tester.newRequest()
+      .setParam("uploadId", "UPLOAD_1")
+      .setParam("chunks", "3")
+      .setMediaType(MediaTypes.JSON)
+      .setMethod("POST")
+      .execute();
+
+    JsonAssert.assertJson(tester.getDef().responseExampleAsString()).isSimilarTo(response.getInput());
+  }
+
+  @Test
+  public void definition() {
+    assertThat(tester.getDef().isPost()).isTrue();
+    assertThat(tester.getDef().isInternal()).isTrue();
+    assertThat(tester.getDef().params()).extracting("key").containsOnly("uploadId", "chunks");
+  }
+}
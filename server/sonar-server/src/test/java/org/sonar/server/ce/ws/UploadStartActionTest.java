@@ -0,0 +1,85 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.ws;
+
+import org.junit.Test;
+import org.sonar.server.computation.queue.ChunkedReportSubmitter;
+import org.sonar.server.organization.DefaultOrganizationProvider;
+import org.sonar.server.organization.TestDefaultOrganizationProvider;
+import org.sonar.server.ws.WsActionTester;
+import org.sonarqube.ws.WsCe;
+
+import static com.google.common.collect.ImmutableMap.of;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UploadStartActionTest {
+
+  private DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.fromUuid("org1");
+  private ChunkedReportSubmitter chunkedReportSubmitter = mock(ChunkedReportSubmitter.class);
+  private WsActionTester tester = new WsActionTester(new UploadStartAction(chunkedReportSubmitter, defaultOrganizationProvider));
+
+  @Test
+  public void start_upload() {
+    when(chunkedReportSubmitter.start(anyString(), anyString(), anyString(), anyString(), anyMapOf(String.class, String.class))).thenReturn("UPLOAD_1");
+
+    WsCe.UploadResponse response = tester.newRequest()
+      .setParam("organization", "my-org")
+      .setParam("projectKey", "my_project")
+      .setParam("projectBranch", "branch-1.x")
+      .setParam("projectName", "My Project")
+      .setMultiParam("characteristic", asList("branch=feature", "branchType=SHORT"))
+      .setMethod("POST")
+      .executeProtobuf(WsCe.UploadResponse.class);
+
+    assertThat(response.getUploadId()).isEqualTo("UPLOAD_1");
+    assertThat(response.getNextChunk()).isEqualTo(0);
+    verify(chunkedReportSubmitter).start("my-org", "my_project", "branch-1.x", "My Project", of("branch", "feature", "branchType", "SHORT"));
+  }
+
+  @Test
+  public void default_organization_and_project_name() {
+    when(chunkedReportSubmitter.start(anyString(), anyString(), isNull(String.class), anyString(), anyMapOf(String.class, String.class))).thenReturn("UPLOAD_1");
+
+    tester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setMethod("POST")
+      .executeProtobuf(WsCe.UploadResponse.class);
+
+    verify(chunkedReportSubmitter).start(eq(defaultOrganizationProvider.get().getKey()), eq("my_project"), isNull(String.class), eq("my_project"),
+      eq(of()));
+  }
+
+  @Test
+  public void definition() {
+    assertThat(tester.getDef().isPost()).isTrue();
+    assertThat(tester.getDef().isInternal()).isTrue();
+    assertThat(tester.getDef().since()).isEqualTo("6.6");
+    assertThat(tester.getDef().params()).extracting("key")
+      .containsOnly("organization", "projectKey", "projectBranch", "projectName", "characteristic");
+  }
+}
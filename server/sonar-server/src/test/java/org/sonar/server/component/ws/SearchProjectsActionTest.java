@@ -144,6 +144,7 @@ public class SearchProjectsActionTest {
     assertThat(def.since()).isEqualTo("6.2");
     assertThat(def.isInternal()).isTrue();
     assertThat(def.isPost()).isFalse();
+    assertThat(def.isCacheable()).isTrue();
     assertThat(def.responseExampleAsString()).isNotEmpty();
     assertThat(def.params().stream().map(Param::key).collect(toList())).containsOnly("organization", "filter", "facets", "s", "asc", "ps", "p", "f");
     assertThat(def.changelog()).extracting(Change::getVersion, Change::getDescription).containsExactlyInAnyOrder(
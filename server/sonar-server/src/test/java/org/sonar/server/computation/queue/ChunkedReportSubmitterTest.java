@@ -0,0 +1,252 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.System2;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.queue.CeTaskInputStore;
+import org.sonar.ce.queue.DbCeTaskInputStore;
+import org.sonar.core.util.SequenceUuidFactory;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.exceptions.BadRequestException;
+import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.tester.UserSessionRule;
+
+import static com.google.common.collect.ImmutableMap.of;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.server.user.AbstractUserSession.insufficientPrivilegesException;
+
+public class ChunkedReportSubmitterTest {
+
+  private static final CeTask TASK = new CeTask.Builder()
+    .setOrganizationUuid("org1")
+    .setUuid("TASK_1")
+    .setType(CeTaskTypes.REPORT)
+    .setComponentUuid("PROJECT_1")
+    .build();
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone().logIn("john");
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private ReportSubmitter reportSubmitter = mock(ReportSubmitter.class);
+  private DbCeTaskInputStore taskInputStore = new DbCeTaskInputStore(db.getDbClient());
+  private ChunkedReportSubmitter underTest = new ChunkedReportSubmitter(reportSubmitter, taskInputStore, userSession, new SequenceUuidFactory(), db.getDbClient());
+
+  @Test
+  public void upload_report_in_chunks_and_submit_it() throws IOException {
+    AtomicReference<Map<String, String>> submittedCharacteristics = new AtomicReference<>();
+    when(reportSubmitter.submitStoredReport(anyString(), eq("my-org"), eq("my_project"), isNull(String.class), eq("My Project"), anyMapOf(String.class, String.class)))
+      .thenAnswer(invocation -> {
+        submittedCharacteristics.set((Map<String, String>) invocation.getArguments()[5]);
+        return TASK;
+      });
+
+    String uploadId = underTest.start("my-org", "my_project", null, "My Project", of("branch", "feature", "branchType", "SHORT"));
+    assertThat(underTest.getNextChunk(uploadId)).isEqualTo(0);
+    assertThat(addChunk(uploadId, 0, "first ")).isEqualTo(1);
+    assertThat(addChunk(uploadId, 1, "second ")).isEqualTo(2);
+    assertThat(addChunk(uploadId, 2, "third")).isEqualTo(3);
+    assertThat(underTest.getNextChunk(uploadId)).isEqualTo(3);
+
+    CeTask task = underTest.commit(uploadId, 3);
+
+    assertThat(task).isSameAs(TASK);
+    verify(reportSubmitter).submitStoredReport(eq(uploadId), anyString(), anyString(), anyString(), anyString(), anyMapOf(String.class, String.class));
+    assertThat(submittedCharacteristics.get()).containsOnly(entry("branch", "feature"), entry("branchType", "SHORT"));
+    // the chunks are the input of the task, the upload itself is dropped
+    assertThat(taskInputStore.open(db.getSession(), uploadId)).isEmpty();
+    try (InputStream report = taskInputStore.openParts(db.getSession(), uploadId).get()) {
+      assertThat(IOUtils.toString(report, UTF_8)).isEqualTo("first second third");
+    }
+  }
+
+  @Test
+  public void commit_drops_chunks_which_are_not_part_of_the_report() throws IOException {
+    String uploadId = underTest.start("my-org", "my_project", null, null, emptyMap());
+    addChunk(uploadId, 0, "first");
+    addChunk(uploadId, 1, "unused");
+
+    underTest.commit(uploadId, 1);
+
+    try (InputStream report = taskInputStore.openParts(db.getSession(), uploadId).get()) {
+      assertThat(IOUtils.toString(report, UTF_8)).isEqualTo("first");
+    }
+  }
+
+  @Test
+  public void resend_chunk_to_resume_upload() {
+    String uploadId = underTest.start("my-org", "my_project", null, null, emptyMap());
+    addChunk(uploadId, 0, "first");
+    addChunk(uploadId, 1, "second");
+
+    assertThat(addChunk(uploadId, 1, "second")).isEqualTo(2);
+    assertThat(underTest.getNextChunk(uploadId)).isEqualTo(2);
+  }
+
+  @Test
+  public void upload_is_not_dropped_as_orphan_while_chunks_are_received() {
+    String uploadId = underTest.start("my-org", "my_project", null, null, emptyMap());
+    addChunk(uploadId, 0, "first");
+    db.executeUpdateSql("update ce_task_input set updated_at=1");
+
+    addChunk(uploadId, 1, "second");
+    taskInputStore.deleteOrphans(db.getSession(), 2L);
+
+    assertThat(underTest.getNextChunk(uploadId)).isEqualTo(2);
+  }
+
+  @Test
+  public void add_chunk_does_not_read_nor_touch_previous_chunks() {
+    DbCeTaskInputStore spiedStore = spy(taskInputStore);
+    underTest = new ChunkedReportSubmitter(reportSubmitter, spiedStore, userSession, new SequenceUuidFactory(), db.getDbClient());
+    String uploadId = underTest.start("my-org", "my_project", null, null, emptyMap());
+    addChunk(uploadId, 0, "first");
+    addChunk(uploadId, 1, "second");
+    reset(spiedStore);
+
+    addChunk(uploadId, 2, "third");
+
+    verify(spiedStore).open(any(DbSession.class), eq(uploadId));
+    verify(spiedStore).exists(any(DbSession.class), eq(CeTaskInputStore.partUuid(uploadId, 1)));
+    verify(spiedStore).touch(any(DbSession.class), eq(singletonList(uploadId)));
+    verify(spiedStore, never()).open(any(DbSession.class), startsWith(uploadId + "."));
+  }
+
+  @Test
+  public void upload_is_not_dropped_as_orphan_once_committed() throws IOException {
+    String uploadId = underTest.start("my-org", "my_project", null, null, emptyMap());
+    addChunk(uploadId, 0, "first");
+    db.executeUpdateSql("update ce_task_input set updated_at=1");
+
+    underTest.commit(uploadId, 1);
+    // the task is not in the queue as ReportSubmitter is mocked
+    taskInputStore.deleteOrphans(db.getSession(), 2L);
+
+    assertThat(taskInputStore.countParts(db.getSession(), uploadId)).isEqualTo(1);
+  }
+
+  @Test
+  public void fail_if_checksum_does_not_match() {
+    String uploadId = underTest.start("my-org", "my_project", null, null, emptyMap());
+
+    try {
+      underTest.addChunk(uploadId, 0, DigestUtils.sha256Hex("foo"), new ByteArrayInputStream("bar".getBytes(UTF_8)));
+      fail();
+    } catch (BadRequestException e) {
+      assertThat(e).hasMessage("Checksum of chunk 0 does not match");
+    }
+    assertThat(underTest.getNextChunk(uploadId)).isEqualTo(0);
+  }
+
+  @Test
+  public void fail_if_previous_chunk_is_missing() {
+    String uploadId = underTest.start("my-org", "my_project", null, null, emptyMap());
+    addChunk(uploadId, 0, "first");
+
+    expectedException.expect(BadRequestException.class);
+    expectedException.expectMessage("Chunk 1 must be uploaded before chunk 2");
+
+    addChunk(uploadId, 2, "third");
+  }
+
+  @Test
+  public void fail_to_commit_if_chunk_is_missing() {
+    String uploadId = underTest.start("my-org", "my_project", null, null, emptyMap());
+    addChunk(uploadId, 0, "first");
+
+    expectedException.expect(BadRequestException.class);
+    expectedException.expectMessage("Chunk 1 is missing");
+
+    try {
+      underTest.commit(uploadId, 2);
+    } finally {
+      verify(reportSubmitter, never()).submitStoredReport(anyString(), anyString(), anyString(), anyString(), anyString(), anyMapOf(String.class, String.class));
+    }
+  }
+
+  @Test
+  public void fail_to_start_if_user_is_not_allowed_to_submit_report() {
+    doThrow(insufficientPrivilegesException()).when(reportSubmitter).checkSubmitPermission("my-org", "my_project", null, null);
+
+    try {
+      underTest.start("my-org", "my_project", null, null, emptyMap());
+      fail();
+    } catch (ForbiddenException e) {
+      assertThat(db.countRowsOfTable("ce_task_input")).isZero();
+    }
+  }
+
+  @Test
+  public void fail_if_upload_does_not_exist() {
+    expectedException.expect(NotFoundException.class);
+    expectedException.expectMessage("Upload 'unknown' does not exist");
+
+    underTest.getNextChunk("unknown");
+  }
+
+  @Test
+  public void fail_if_upload_has_been_started_by_another_user() {
+    String uploadId = underTest.start("my-org", "my_project", null, null, emptyMap());
+    userSession.logIn("jane");
+
+    expectedException.expect(ForbiddenException.class);
+
+    addChunk(uploadId, 0, "first");
+  }
+
+  private int addChunk(String uploadId, int index, String content) {
+    return underTest.addChunk(uploadId, index, DigestUtils.sha256Hex(content), new ByteArrayInputStream(content.getBytes(UTF_8)));
+  }
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.queue;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +36,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.ce.queue.CeQueue;
 import org.sonar.ce.queue.CeQueueImpl;
 import org.sonar.ce.queue.CeTaskSubmit;
+import org.sonar.ce.queue.DbCeTaskInputStore;
 import org.sonar.core.permission.GlobalPermissions;
 import org.sonar.core.util.SequenceUuidFactory;
 import org.sonar.core.util.UuidFactory;
@@ -91,7 +93,8 @@ public class ReportSubmitterTest {
   private FavoriteUpdater favoriteUpdater = mock(FavoriteUpdater.class);
   private UuidFactory uuidFactory = new SequenceUuidFactory();
 
-  private ReportSubmitter underTest = new ReportSubmitter(queue, userSession, componentUpdater, permissionTemplateService, uuidFactory, db.getDbClient());
+  private ReportSubmitter underTest = new ReportSubmitter(queue, userSession, componentUpdater, permissionTemplateService, uuidFactory, db.getDbClient(),
+    new DbCeTaskInputStore(db.getDbClient()));
 
   @Before
   public void setUp() throws Exception {
@@ -273,6 +276,43 @@ public class ReportSubmitterTest {
     underTest.submit(defaultOrganizationKey, PROJECT_KEY, null, PROJECT_NAME, IOUtils.toInputStream("{binary}"));
   }
 
+  @Test
+  public void submitStoredReport_submits_task_of_specified_uuid_without_storing_report() {
+    ComponentDto project = db.components().insertPrivateProject(db.getDefaultOrganization());
+    userSession.addProjectPermission(SCAN_EXECUTION, project);
+
+    underTest.submitStoredReport("UPLOAD_1", defaultOrganizationKey, project.getDbKey(), null, project.name(), Collections.singletonMap("pr", "mypr"));
+
+    ArgumentCaptor<CeTaskSubmit> submittedTask = ArgumentCaptor.forClass(CeTaskSubmit.class);
+    verify(queue).submit(submittedTask.capture());
+    assertThat(submittedTask.getValue().getUuid()).isEqualTo("UPLOAD_1");
+    assertThat(submittedTask.getValue().getComponentUuid()).isEqualTo(project.uuid());
+    assertThat(db.getDbClient().ceTaskCharacteristicsDao().selectByTaskUuid(db.getSession(), "UPLOAD_1"))
+      .extracting(CeTaskCharacteristicDto::getKey, CeTaskCharacteristicDto::getValue)
+      .containsOnly(tuple("pr", "mypr"));
+    assertThat(db.countRowsOfTable("ce_task_input")).isZero();
+  }
+
+  @Test
+  public void checkSubmitPermission_does_not_submit_anything() {
+    ComponentDto project = db.components().insertPrivateProject(db.getDefaultOrganization());
+    userSession.addProjectPermission(SCAN_EXECUTION, project);
+
+    underTest.checkSubmitPermission(defaultOrganizationKey, project.getDbKey(), null, project.name());
+
+    verifyZeroInteractions(queue);
+    assertThat(db.countRowsOfTable("ce_task_input")).isZero();
+  }
+
+  @Test
+  public void checkSubmitPermission_fails_with_forbidden_exception_when_no_scan_permission() {
+    ComponentDto project = db.components().insertPrivateProject(db.getDefaultOrganization());
+
+    thrown.expect(ForbiddenException.class);
+
+    underTest.checkSubmitPermission(defaultOrganizationKey, project.getDbKey(), null, project.name());
+  }
+
   @Test
   public void fail_with_forbidden_exception_on_new_project_when_only_project_scan_permission() {
     userSession.addProjectPermission(SCAN_EXECUTION, ComponentTesting.newPrivateProjectDto(db.getDefaultOrganization(), PROJECT_UUID));
@@ -21,6 +21,8 @@ package org.sonar.server.computation.task.container;
 
 import org.junit.Test;
 import org.picocontainer.Startable;
+import org.sonar.api.Property;
+import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.core.platform.ComponentContainer;
 import org.sonar.core.platform.ContainerPopulator;
 
@@ -75,6 +77,20 @@ public class TaskContainerImplTest {
     assertThat(eagerStartable.stopCalls).isEqualTo(0);
   }
 
+  @Test
+  public void properties_of_added_classes_are_declared_to_PropertyDefinitions_of_parent() {
+    ContainerPopulator<TaskContainer> populator = container -> container.add(WithProperty.class);
+
+    new TaskContainerImpl(parent, populator).cleanup();
+    new TaskContainerImpl(parent, populator).cleanup();
+
+    assertThat(parent.getComponentByType(PropertyDefinitions.class).get("task.container.test")).isNotNull();
+  }
+
+  @Property(key = "task.container.test", name = "Test")
+  public static class WithProperty {
+  }
+
   public static class DefaultStartable implements Startable {
     protected int startCalls = 0;
     protected int stopCalls = 0;
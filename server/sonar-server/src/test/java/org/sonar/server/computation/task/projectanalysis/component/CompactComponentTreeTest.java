@@ -0,0 +1,173 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Status.ADDED;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Status.SAME;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.FILE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.MODULE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.VIEW;
+
+public class CompactComponentTreeTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void components_are_views_on_tree() {
+    CompactComponentTree.Builder builder = CompactComponentTree.builder();
+    int project = builder.add(-1, PROJECT, SAME, "U1", "K1", "PK1", "Project", " description ", attributes(1, "1.0", null), null);
+    int module = builder.add(project, MODULE, SAME, "U2", "K2", "PK2", "Module", null, attributes(2, null, "module"), null);
+    int dir = builder.add(module, DIRECTORY, SAME, "U3", "K3", "PK3", "src", null, attributes(3, null, "src"), null);
+    builder.add(dir, FILE, ADDED, "U4", "K4", "K4", "Foo.java", null, attributes(4, null, "src/Foo.java"), new FileAttributes(true, "java", 12));
+    builder.add(dir, FILE, SAME, "U5", "K5", "K5", "Bar.java", null, attributes(5, null, "src/Bar.java"), new FileAttributes(false, null, 3));
+    CompactComponentTree tree = builder.build();
+
+    assertThat(tree.size()).isEqualTo(5);
+    Component root = tree.getRoot();
+    assertThat(root.getType()).isEqualTo(PROJECT);
+    assertThat(root.getStatus()).isEqualTo(SAME);
+    assertThat(root.getUuid()).isEqualTo("U1");
+    assertThat(root.getKey()).isEqualTo("K1");
+    assertThat(root.getPublicKey()).isEqualTo("PK1");
+    assertThat(root.getName()).isEqualTo("Project");
+    assertThat(root.getDescription()).isEqualTo("description");
+    assertThat(root.getReportAttributes().getRef()).isEqualTo(1);
+    assertThat(root.getReportAttributes().getVersion()).isEqualTo("1.0");
+    assertThat(root.getReportAttributes().getPath()).isNull();
+    assertThat(root.getChildren()).extracting(Component::getUuid).containsExactly("U2");
+
+    Component directory = root.getChildren().get(0).getChildren().get(0);
+    assertThat(directory.getType()).isEqualTo(DIRECTORY);
+    assertThat(directory.getDescription()).isNull();
+    assertThat(directory.getReportAttributes().getPath()).isEqualTo("src");
+    assertThat(directory.getChildren()).extracting(Component::getUuid).containsExactly("U4", "U5");
+
+    Component file = directory.getChildren().get(0);
+    assertThat(file.getStatus()).isEqualTo(ADDED);
+    assertThat(file.getChildren()).isEmpty();
+    assertThat(file.getFileAttributes().isUnitTest()).isTrue();
+    assertThat(file.getFileAttributes().getLanguageKey()).isEqualTo("java");
+    assertThat(file.getFileAttributes().getLines()).isEqualTo(12);
+    Component otherFile = directory.getChildren().get(1);
+    assertThat(otherFile.getFileAttributes().isUnitTest()).isFalse();
+    assertThat(otherFile.getFileAttributes().getLanguageKey()).isNull();
+  }
+
+  @Test
+  public void views_of_same_component_are_equal() {
+    CompactComponentTree tree = newTree();
+
+    assertThat(tree.getRoot()).isEqualTo(tree.getRoot()).isNotSameAs(tree.getRoot());
+    assertThat(tree.getRoot().hashCode()).isEqualTo(tree.getRoot().hashCode());
+    assertThat(tree.getRoot()).isNotEqualTo(tree.getRoot().getChildren().get(0));
+    assertThat(tree.getRoot().toString()).contains("key='K1'", "uuid='U1'");
+  }
+
+  @Test
+  public void getComponentByRef() {
+    CompactComponentTree tree = newTree();
+
+    assertThat(tree.getComponentByRef(1).get().getUuid()).isEqualTo("U1");
+    assertThat(tree.getComponentByRef(7).get().getUuid()).isEqualTo("U2");
+    assertThat(tree.getComponentByRef(2)).isEmpty();
+    assertThat(tree.getComponentByRef(8)).isEmpty();
+    assertThat(tree.getComponentByRef(-1)).isEmpty();
+  }
+
+  @Test
+  public void children_list_is_immutable() {
+    CompactComponentTree tree = newTree();
+
+    expectedException.expect(UnsupportedOperationException.class);
+
+    tree.getRoot().getChildren().add(tree.getRoot());
+  }
+
+  @Test
+  public void getFileAttributes_fails_if_component_is_not_a_file() {
+    CompactComponentTree tree = newTree();
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Only component of type FILE have a FileAttributes object");
+
+    tree.getRoot().getFileAttributes();
+  }
+
+  @Test
+  public void fail_to_add_views_component() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Only report components can be added to the tree");
+
+    CompactComponentTree.builder().add(-1, VIEW, SAME, "U1", "K1", "K1", "View", null, attributes(1, null, null), null);
+  }
+
+  @Test
+  public void fail_to_add_component_if_parent_does_not_exist() {
+    CompactComponentTree.Builder builder = CompactComponentTree.builder();
+    builder.add(-1, PROJECT, SAME, "U1", "K1", "K1", "Project", null, attributes(1, null, null), null);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Parent 3 has not been added");
+
+    builder.add(3, MODULE, SAME, "U2", "K2", "K2", "Module", null, attributes(2, null, null), null);
+  }
+
+  @Test
+  public void fail_to_build_empty_tree() {
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Tree must have a root");
+
+    CompactComponentTree.builder().build();
+  }
+
+  @Test
+  public void builder_grows_with_the_number_of_components() {
+    CompactComponentTree.Builder builder = CompactComponentTree.builder();
+    int project = builder.add(-1, PROJECT, SAME, "U0", "K0", "K0", "Project", null, attributes(1, null, null), null);
+    for (int i = 1; i <= 1_000; i++) {
+      builder.add(project, FILE, SAME, "U" + i, "K" + i, "K" + i, "F" + i, null, attributes(i + 1, null, "F" + i), new FileAttributes(false, "java", i));
+    }
+    CompactComponentTree tree = builder.build();
+
+    assertThat(tree.size()).isEqualTo(1_001);
+    assertThat(tree.getRoot().getChildren()).hasSize(1_000);
+    assertThat(tree.getRoot().getChildren().get(999).getFileAttributes().getLines()).isEqualTo(1_000);
+    assertThat(tree.getComponentByRef(1_001).get().getKey()).isEqualTo("K1000");
+  }
+
+  private static CompactComponentTree newTree() {
+    CompactComponentTree.Builder builder = CompactComponentTree.builder();
+    int project = builder.add(-1, PROJECT, SAME, "U1", "K1", "K1", "Project", null, attributes(1, null, null), null);
+    builder.add(project, MODULE, SAME, "U2", "K2", "K2", "Module", null, attributes(7, null, "module"), null);
+    return builder.build();
+  }
+
+  private static ReportAttributes attributes(int ref, String version, String path) {
+    return ReportAttributes.newBuilder(ref).setVersion(version).setPath(path).build();
+  }
+}
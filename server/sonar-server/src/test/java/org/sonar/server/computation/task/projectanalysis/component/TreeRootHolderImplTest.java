@@ -109,6 +109,21 @@ public class TreeRootHolderImplTest {
     underTest.getComponentByRef(6);
   }
 
+  @Test
+  public void getComponentByRef_uses_compact_tree() {
+    CompactComponentTree.Builder builder = CompactComponentTree.builder();
+    int project = builder.add(-1, PROJECT, Component.Status.SAME, "U1", "K1", "K1", "Project", null, ReportAttributes.newBuilder(1).build(), null);
+    builder.add(project, MODULE, Component.Status.SAME, "U2", "K2", "K2", "Module", null, ReportAttributes.newBuilder(2).build(), null);
+    underTest.setRoot(builder.build().getRoot());
+
+    assertThat(underTest.getComponentByRef(2).getUuid()).isEqualTo("U2");
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Component with ref '3' can't be found");
+
+    underTest.getComponentByRef(3);
+  }
+
   @Test
   public void getComponentByRef_throws_IAE_if_holder_contains_View_tree() {
     underTest.setRoot(SOME_VIEWS_COMPONENT_TREE);
@@ -0,0 +1,90 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.container;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.core.issue.tracking.Tracker;
+import org.sonar.core.platform.ComponentContainer;
+import org.sonar.server.es.EsClient;
+import org.sonar.server.computation.task.projectanalysis.filemove.FileSimilarity;
+import org.sonar.server.computation.task.projectanalysis.filemove.SourceSimilarity;
+import org.sonar.server.user.index.UserIndex;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class ContainerFactoryImplTest {
+
+  private ComponentContainer parent = new ComponentContainer();
+  private ContainerFactoryImpl underTest = new ContainerFactoryImpl();
+
+  @Before
+  public void setUp() {
+    parent.add(mock(UserIndex.class), mock(EsClient.class));
+  }
+
+  @Test
+  public void shared_container_is_a_started_child_of_parent_holding_shared_components() {
+    ComponentContainer shared = underTest.getSharedContainer(parent);
+
+    assertThat(shared.getParent()).isSameAs(parent);
+    assertThat(parent.getChildren()).containsExactly(shared);
+    assertThat(shared.getComponentByType(Tracker.class)).isNotNull();
+    assertThat(shared.getComponentByType(FileSimilarity.class)).isNotNull();
+    assertThat(shared.getComponentByType(SourceSimilarity.class)).isNotNull();
+  }
+
+  @Test
+  public void shared_container_is_reused_for_same_parent() {
+    ComponentContainer shared = underTest.getSharedContainer(parent);
+
+    assertThat(underTest.getSharedContainer(parent)).isSameAs(shared);
+    assertThat(shared.getComponentByType(Tracker.class)).isSameAs(underTest.getSharedContainer(parent).getComponentByType(Tracker.class));
+    assertThat(parent.getChildren()).hasSize(1);
+  }
+
+  @Test
+  public void shared_container_is_recreated_when_parent_changes() {
+    ComponentContainer shared = underTest.getSharedContainer(parent);
+    ComponentContainer otherParent = new ComponentContainer();
+    otherParent.add(mock(UserIndex.class), mock(EsClient.class));
+
+    ComponentContainer otherShared = underTest.getSharedContainer(otherParent);
+
+    assertThat(otherShared).isNotSameAs(shared);
+    assertThat(otherShared.getParent()).isSameAs(otherParent);
+    assertThat(otherParent.getChildren()).containsExactly(otherShared);
+    assertThat(parent.getChildren()).isEmpty();
+  }
+
+  @Test
+  public void shared_container_is_recreated_when_previous_parent_is_stopped() {
+    ComponentContainer shared = underTest.getSharedContainer(parent);
+    parent.stopComponents();
+    ComponentContainer otherParent = new ComponentContainer();
+    otherParent.add(mock(UserIndex.class), mock(EsClient.class));
+
+    ComponentContainer otherShared = underTest.getSharedContainer(otherParent);
+
+    assertThat(otherShared).isNotSameAs(shared);
+    assertThat(otherParent.getChildren()).containsExactly(otherShared);
+  }
+}
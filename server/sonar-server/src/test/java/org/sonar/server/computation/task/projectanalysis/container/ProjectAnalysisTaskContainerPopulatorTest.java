@@ -95,6 +95,16 @@ public class ProjectAnalysisTaskContainerPopulatorTest {
     assertThat(container.added).contains(PersistComponentsStep.class);
   }
 
+  @Test
+  public void shared_components_are_not_added_to_the_container() {
+    underTest = new ProjectAnalysisTaskContainerPopulator(task, null);
+    AddedObjectsRecorderTaskContainer container = new AddedObjectsRecorderTaskContainer();
+    underTest.populateContainer(container);
+
+    assertThat(ProjectAnalysisTaskContainerPopulator.sharedComponentClasses()).isNotEmpty();
+    assertThat(container.added).doesNotContainAnyElementsOf(ProjectAnalysisTaskContainerPopulator.sharedComponentClasses());
+  }
+
   @Test
   public void Components_of_ReportAnalysisComponentProvider_are_added_to_the_container() {
     Object object = new Object();
@@ -0,0 +1,89 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.duplication;
+
+import java.util.BitSet;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.duplication.BlockTable.MULTIPLE_ANALYSES;
+import static org.sonar.server.computation.task.projectanalysis.duplication.BlockTable.NO_ANALYSIS;
+
+public class BlockTableTest {
+
+  private BitSet validAnalyses = new BitSet();
+  private BlockTable underTest = new BlockTable();
+
+  @Test
+  public void get_returns_no_analysis_when_hash_is_not_in_table() {
+    assertThat(underTest.get(42L)).isEqualTo(NO_ANALYSIS);
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  public void put_and_get() {
+    validAnalyses.set(0, 2);
+
+    assertThat(underTest.put(42L, 0, validAnalyses)).isTrue();
+    assertThat(underTest.put(0L, 1, validAnalyses)).isTrue();
+    assertThat(underTest.put(42L, 0, validAnalyses)).isFalse();
+
+    assertThat(underTest.get(42L)).isEqualTo(0);
+    assertThat(underTest.get(0L)).isEqualTo(1);
+    assertThat(underTest.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void hash_of_multiple_valid_analyses() {
+    validAnalyses.set(0, 2);
+
+    underTest.put(42L, 0, validAnalyses);
+    underTest.put(42L, 1, validAnalyses);
+    assertThat(underTest.get(42L)).isEqualTo(MULTIPLE_ANALYSES);
+
+    underTest.put(42L, 0, validAnalyses);
+    assertThat(underTest.get(42L)).isEqualTo(MULTIPLE_ANALYSES);
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void hash_of_obsolete_analysis_is_replaced() {
+    validAnalyses.set(1);
+
+    underTest.put(42L, 0, validAnalyses);
+    underTest.put(42L, 1, validAnalyses);
+
+    assertThat(underTest.get(42L)).isEqualTo(1);
+  }
+
+  @Test
+  public void grow() {
+    validAnalyses.set(0);
+    for (long hash = 0; hash < 10_000; hash++) {
+      assertThat(underTest.put(hash * 31, (int) (hash % 3), validAnalyses)).isTrue();
+    }
+
+    assertThat(underTest.size()).isEqualTo(10_000);
+    for (long hash = 0; hash < 10_000; hash++) {
+      assertThat(underTest.get(hash * 31)).isEqualTo((int) (hash % 3));
+    }
+    assertThat(underTest.get(10_000L * 31)).isEqualTo(NO_ANALYSIS);
+  }
+}
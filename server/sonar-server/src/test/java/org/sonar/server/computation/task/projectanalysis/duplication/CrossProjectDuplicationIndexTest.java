@@ -0,0 +1,195 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.duplication;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.component.SnapshotDto;
+import org.sonar.db.duplication.DuplicationUnitDto;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationIndex.PROPERTY_MAX_BLOCKS;
+import static org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationIndex.PROPERTY_MAX_TOTAL_BLOCKS;
+
+public class CrossProjectDuplicationIndexTest {
+
+  private static final String JAVA = "java";
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private DbSession dbSession = db.getSession();
+  private MapSettings settings = new MapSettings();
+  private CrossProjectDuplicationIndex underTest = new CrossProjectDuplicationIndex(db.getDbClient(), settings.asConfig());
+
+  @Test
+  public void all_hashes_are_candidates_if_language_is_not_refreshed() {
+    assertThat(underTest.filterCandidates(JAVA, null, asList("aa", "bb"))).containsOnly("aa", "bb");
+  }
+
+  @Test
+  public void filter_hashes_of_last_analyses() {
+    ComponentDto project = db.components().insertPrivateProject();
+    SnapshotDto analysis = db.components().insertSnapshot(project);
+    insertBlocks(analysis, insertFile(project, JAVA), "aa", "bb");
+    ComponentDto otherProject = db.components().insertPrivateProject();
+    SnapshotDto otherAnalysis = db.components().insertSnapshot(otherProject);
+    insertBlocks(otherAnalysis, insertFile(otherProject, "js"), "cc");
+
+    underTest.refresh(singletonList(JAVA));
+
+    assertThat(underTest.filterCandidates(JAVA, null, asList("aa", "cc", "dd"))).containsOnly("aa");
+    assertThat(underTest.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void ignore_hashes_of_excluded_analysis() {
+    ComponentDto project = db.components().insertPrivateProject();
+    SnapshotDto analysis = db.components().insertSnapshot(project);
+    insertBlocks(analysis, insertFile(project, JAVA), "aa", "bb");
+    ComponentDto otherProject = db.components().insertPrivateProject();
+    SnapshotDto otherAnalysis = db.components().insertSnapshot(otherProject);
+    insertBlocks(otherAnalysis, insertFile(otherProject, JAVA), "bb");
+
+    underTest.refresh(singletonList(JAVA));
+
+    assertThat(underTest.filterCandidates(JAVA, analysis.getUuid(), asList("aa", "bb"))).containsOnly("bb");
+    assertThat(underTest.filterCandidates(JAVA, otherAnalysis.getUuid(), asList("aa", "bb"))).containsOnly("aa", "bb");
+  }
+
+  @Test
+  public void refresh_loads_blocks_of_new_analyses_and_ignores_obsolete_analyses() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = insertFile(project, JAVA);
+    SnapshotDto analysis = db.components().insertSnapshot(project);
+    insertBlocks(analysis, file, "aa");
+    underTest.refresh(singletonList(JAVA));
+    assertThat(underTest.filterCandidates(JAVA, null, asList("aa", "bb"))).containsOnly("aa");
+
+    SnapshotDto newAnalysis = db.components().insertSnapshot(project, s -> s.setLast(false));
+    insertBlocks(newAnalysis, file, "bb");
+    db.getDbClient().snapshotDao().switchIsLastFlagAndSetProcessedStatus(dbSession, project.uuid(), newAnalysis.getUuid());
+    dbSession.commit();
+    underTest.refresh(singletonList(JAVA));
+
+    assertThat(underTest.filterCandidates(JAVA, null, asList("aa", "bb"))).containsOnly("bb");
+    // obsolete blocks outnumbered valid blocks, so the index has been rebuilt
+    assertThat(underTest.size()).isEqualTo(1);
+    assertThat(underTest.referencedAnalyses()).isEqualTo(1);
+  }
+
+  @Test
+  public void analyses_without_blocks_are_not_referenced() {
+    ComponentDto project = db.components().insertPrivateProject();
+    SnapshotDto analysis = db.components().insertSnapshot(project);
+    insertBlocks(analysis, insertFile(project, JAVA), "aa");
+    ComponentDto otherProject = db.components().insertPrivateProject();
+    SnapshotDto otherAnalysis = db.components().insertSnapshot(otherProject);
+    insertBlocks(otherAnalysis, insertFile(otherProject, "js"), "bb");
+
+    underTest.refresh(singletonList(JAVA));
+
+    assertThat(underTest.referencedAnalyses()).isEqualTo(1);
+  }
+
+  @Test
+  public void all_hashes_are_candidates_if_too_many_blocks() {
+    settings.setProperty(PROPERTY_MAX_BLOCKS, 2);
+    underTest = new CrossProjectDuplicationIndex(db.getDbClient(), settings.asConfig());
+    ComponentDto project = db.components().insertPrivateProject();
+    SnapshotDto analysis = db.components().insertSnapshot(project);
+    insertBlocks(analysis, insertFile(project, JAVA), "aa", "bb", "cc");
+
+    underTest.refresh(singletonList(JAVA));
+
+    assertThat(underTest.size()).isZero();
+    assertThat(underTest.filterCandidates(JAVA, null, asList("aa", "dd"))).containsOnly("aa", "dd");
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsOnly("Too many blocks to index cross project duplications of language java. " +
+      "Please increase the property sonar.ce.crossProjectDuplicationIndex.maxBlocks.");
+  }
+
+  @Test
+  public void limit_of_blocks_applies_to_each_language() {
+    settings.setProperty(PROPERTY_MAX_BLOCKS, 2);
+    underTest = new CrossProjectDuplicationIndex(db.getDbClient(), settings.asConfig());
+    ComponentDto project = db.components().insertPrivateProject();
+    SnapshotDto analysis = db.components().insertSnapshot(project);
+    insertBlocks(analysis, insertFile(project, JAVA), "aa", "bb");
+    insertBlocks(analysis, insertFile(project, "js"), "cc", "dd", "ee");
+    ComponentDto otherProject = db.components().insertPrivateProject();
+    SnapshotDto otherAnalysis = db.components().insertSnapshot(otherProject);
+    insertBlocks(otherAnalysis, insertFile(otherProject, "xoo"), "ff", "gg");
+
+    underTest.refresh(asList("js", JAVA, "xoo"));
+
+    assertThat(underTest.size()).isEqualTo(4);
+    assertThat(underTest.filterCandidates(JAVA, null, asList("aa", "zz"))).containsOnly("aa");
+    assertThat(underTest.filterCandidates("xoo", null, asList("ff", "zz"))).containsOnly("ff");
+    assertThat(underTest.filterCandidates("js", null, asList("cc", "zz"))).containsOnly("cc", "zz");
+  }
+
+  @Test
+  public void limit_of_blocks_applies_to_all_languages() {
+    settings.setProperty(PROPERTY_MAX_TOTAL_BLOCKS, 3);
+    underTest = new CrossProjectDuplicationIndex(db.getDbClient(), settings.asConfig());
+    ComponentDto project = db.components().insertPrivateProject();
+    SnapshotDto analysis = db.components().insertSnapshot(project);
+    insertBlocks(analysis, insertFile(project, JAVA), "aa", "bb");
+    insertBlocks(analysis, insertFile(project, "js"), "cc", "dd");
+
+    underTest.refresh(singletonList(JAVA));
+    underTest.refresh(singletonList("js"));
+
+    assertThat(underTest.size()).isEqualTo(2);
+    assertThat(underTest.filterCandidates(JAVA, null, asList("aa", "zz"))).containsOnly("aa");
+    assertThat(underTest.filterCandidates("js", null, asList("cc", "zz"))).containsOnly("cc", "zz");
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsOnly("Too many blocks to index cross project duplications of all languages, " +
+      "language js is not indexed. Please increase the property sonar.ce.crossProjectDuplicationIndex.maxTotalBlocks.");
+  }
+
+  private ComponentDto insertFile(ComponentDto project, String language) {
+    return db.components().insertComponent(ComponentTesting.newFileDto(project, null).setLanguage(language));
+  }
+
+  private void insertBlocks(SnapshotDto analysis, ComponentDto file, String... hashes) {
+    for (int i = 0; i < hashes.length; i++) {
+      db.getDbClient().duplicationDao().insert(dbSession, new DuplicationUnitDto()
+        .setAnalysisUuid(analysis.getUuid())
+        .setComponentUuid(file.uuid())
+        .setHash(hashes[i])
+        .setIndexInFile(i)
+        .setStartLine(i + 1)
+        .setEndLine(i + 2));
+    }
+    dbSession.commit();
+  }
+}
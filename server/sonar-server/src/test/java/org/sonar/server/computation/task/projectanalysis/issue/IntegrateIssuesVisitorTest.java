@@ -26,8 +26,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.Severity;
@@ -61,6 +63,8 @@ import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
@@ -113,6 +117,8 @@ public class IntegrateIssuesVisitorTest {
   @Mock
   private MergeBranchComponentUuids mergeBranchComponentsUuids;
 
+  private MapSettings settings = new MapSettings();
+
   ArgumentCaptor<DefaultIssue> defaultIssueCaptor = ArgumentCaptor.forClass(DefaultIssue.class);
 
   ComponentIssuesLoader issuesLoader = new ComponentIssuesLoader(dbTester.getDbClient(), ruleRepositoryRule, activeRulesHolderRule);
@@ -127,7 +133,6 @@ public class IntegrateIssuesVisitorTest {
   @Before
   public void setUp() throws Exception {
     MockitoAnnotations.initMocks(this);
-    IssueVisitors issueVisitors = new IssueVisitors(new IssueVisitor[] {issueVisitor});
 
     when(movedFilesRepository.getOriginalFile(any(Component.class))).thenReturn(Optional.<MovedFilesRepository.OriginalFile>absent());
 
@@ -142,7 +147,7 @@ public class IntegrateIssuesVisitorTest {
     treeRootHolder.setRoot(PROJECT);
     issueCache = new IssueCache(temp.newFile(), System2.INSTANCE);
     when(issueFilter.accept(any(DefaultIssue.class), eq(FILE))).thenReturn(true);
-    underTest = new IntegrateIssuesVisitor(issueCache, issueLifecycle, issueVisitors, trackingDelegator);
+    underTest = newVisitor();
   }
 
   @Test
@@ -243,6 +248,46 @@ public class IntegrateIssuesVisitorTest {
     underTest.visitAny(FILE);
   }
 
+  @Test
+  public void track_files_concurrently_and_process_them_in_order() throws Exception {
+    settings.setProperty(IntegrateIssuesVisitor.TRACKING_THREADS_PROPERTY, 2);
+    Component file2 = builder(Component.Type.FILE, 3).setKey("FILE_KEY_2").setUuid("FILE_UUID_2").build();
+    Component file3 = builder(Component.Type.FILE, 4).setKey("FILE_KEY_3").setUuid("FILE_UUID_3").build();
+    Component project = builder(Component.Type.PROJECT, PROJECT_REF).setKey(PROJECT_KEY).setUuid(PROJECT_UUID).addChildren(FILE, file2, file3).build();
+    treeRootHolder.setRoot(project);
+    when(issueFilter.accept(any(DefaultIssue.class), any(Component.class))).thenReturn(true);
+    RuleKey ruleKey = RuleTesting.XOO_X1;
+    addBaseIssue(ruleKey);
+    for (Component file : asList(FILE, file2, file3)) {
+      reportReader.putIssues(file.getReportAttributes().getRef(), asList(ScannerReport.Issue.newBuilder()
+        .setMsg("the message")
+        .setRuleRepository(ruleKey.repository())
+        .setRuleKey(ruleKey.rule())
+        .setSeverity(Constants.Severity.BLOCKER)
+        .build()));
+      fileSourceRepository.addLine(file.getReportAttributes().getRef(), "line1");
+    }
+    underTest = newVisitor();
+
+    underTest.visitAny(FILE);
+    underTest.visitAny(file2);
+    underTest.visitAny(file3);
+    underTest.visitAny(project);
+
+    verify(issueLifecycle).mergeExistingOpenIssue(any(DefaultIssue.class), any(DefaultIssue.class));
+    verify(issueLifecycle, times(2)).initNewOpenIssue(any(DefaultIssue.class));
+    InOrder inOrder = inOrder(issueVisitor);
+    inOrder.verify(issueVisitor).onIssue(eq(FILE), any(DefaultIssue.class));
+    inOrder.verify(issueVisitor).onIssue(eq(file2), any(DefaultIssue.class));
+    inOrder.verify(issueVisitor).onIssue(eq(file3), any(DefaultIssue.class));
+    assertThat(newArrayList(issueCache.traverse())).extracting(DefaultIssue::componentUuid).containsExactly(FILE_UUID, "FILE_UUID_2", "FILE_UUID_3");
+  }
+
+  private IntegrateIssuesVisitor newVisitor() {
+    IssueVisitors issueVisitors = new IssueVisitors(new IssueVisitor[] {issueVisitor});
+    return new IntegrateIssuesVisitor(issueCache, issueLifecycle, issueVisitors, trackingDelegator, treeRootHolder, settings.asConfig());
+  }
+
   private void addBaseIssue(RuleKey ruleKey) {
     ComponentDto project = ComponentTesting.newPrivateProjectDto(dbTester.organizations().insert(), PROJECT_UUID).setDbKey(PROJECT_KEY);
     ComponentDto file = ComponentTesting.newFileDto(project, null, FILE_UUID).setDbKey(FILE_KEY);
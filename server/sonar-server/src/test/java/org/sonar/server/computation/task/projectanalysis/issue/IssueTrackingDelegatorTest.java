@@ -19,15 +19,21 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sonar.core.issue.DefaultIssue;
@@ -38,6 +44,8 @@ import org.sonar.server.computation.task.projectanalysis.analysis.Branch;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 
 public class IssueTrackingDelegatorTest {
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
   @Mock
   private ShortBranchTrackerExecution shortBranchTracker;
   @Mock
@@ -103,4 +111,37 @@ public class IssueTrackingDelegatorTest {
     verifyZeroInteractions(tracker);
     verifyZeroInteractions(mergeBranchTracker);
   }
+
+  @Test
+  public void batch_tracking_is_supported_by_regular_tracker_only() {
+    when(analysisMetadataHolder.getBranch()).thenReturn(Optional.empty());
+    assertThat(underTest.isBatchTrackingSupported()).isTrue();
+
+    when(analysisMetadataHolder.isShortLivingBranch()).thenReturn(true);
+    assertThat(underTest.isBatchTrackingSupported()).isFalse();
+  }
+
+  @Test
+  public void prepare_tracking_delegates_to_regular_tracker() {
+    when(analysisMetadataHolder.getBranch()).thenReturn(Optional.empty());
+    when(tracker.prepareTracking(singletonList(component))).thenReturn(singletonList(() -> trackingResult));
+
+    List<Supplier<TrackingResult>> trackings = underTest.prepareTracking(singletonList(component));
+
+    assertThat(trackings).hasSize(1);
+    trackings.get(0).get();
+    verify(trackingResult).getUnmatchedRaws();
+    verifyZeroInteractions(shortBranchTracker);
+    verifyZeroInteractions(mergeBranchTracker);
+  }
+
+  @Test
+  public void prepare_tracking_fails_on_short_living_branch() {
+    when(analysisMetadataHolder.isShortLivingBranch()).thenReturn(true);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Batch tracking is not supported by this analysis");
+
+    underTest.prepareTracking(singletonList(component));
+  }
 }
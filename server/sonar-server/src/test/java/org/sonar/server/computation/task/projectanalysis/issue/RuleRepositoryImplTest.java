@@ -21,6 +21,11 @@ package org.sonar.server.computation.task.projectanalysis.issue;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -85,6 +90,28 @@ public class RuleRepositoryImplTest {
     verifyNoMethodCallTriggersCallToDB();
   }
 
+  @Test
+  public void rules_are_loaded_once_when_requested_by_concurrent_threads() throws Exception {
+    when(ruleDao.selectAll(any(DbSession.class), eq(ORGANIZATION_UUID))).thenAnswer(invocation -> {
+      Thread.sleep(50);
+      return ImmutableList.of(AB_RULE);
+    });
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Rule>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        futures.add(executor.submit(() -> underTest.getById(AB_RULE.getId())));
+      }
+      for (Future<Rule> future : futures) {
+        assertThat(future.get().getKey()).isEqualTo(AB_RULE.getKey());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    verify(ruleDao, times(1)).selectAll(any(DbSession.class), eq(ORGANIZATION_UUID));
+  }
+
   @Test
   public void first_call_to_findByKey_triggers_call_to_db_and_any_subsequent_get_or_find_call_does_not() {
     underTest.findByKey(AB_RULE.getKey());
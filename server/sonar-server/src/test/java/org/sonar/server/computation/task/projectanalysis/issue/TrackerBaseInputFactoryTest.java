@@ -20,8 +20,13 @@
 package org.sonar.server.computation.task.projectanalysis.issue;
 
 import com.google.common.base.Optional;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.source.FileSourceDao;
@@ -29,7 +34,11 @@ import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -95,4 +104,28 @@ public class TrackerBaseInputFactoryTest {
     verify(issuesLoader).loadForComponentUuid(originalUuid);
     verify(issuesLoader, times(0)).loadForComponentUuid(FILE_UUID);
   }
+
+  @Test
+  public void create_for_several_components_loads_issues_at_once() {
+    String originalUuid = "original uuid";
+    ReportComponent file2 = ReportComponent.builder(Component.Type.FILE, 2).setUuid("uuid2").build();
+    when(movedFilesRepository.getOriginalFile(file2)).thenReturn(
+      Optional.of(new MovedFilesRepository.OriginalFile(6542, originalUuid, "original key")));
+    DefaultIssue issue1 = new DefaultIssue().setKey("ISSUE1");
+    DefaultIssue issue2 = new DefaultIssue().setKey("ISSUE2");
+    Map<String, List<DefaultIssue>> issuesByUuid = new HashMap<>();
+    issuesByUuid.put(FILE_UUID, singletonList(issue1));
+    issuesByUuid.put(originalUuid, singletonList(issue2));
+    when(issuesLoader.loadForComponentUuids(asList(FILE_UUID, originalUuid))).thenReturn(issuesByUuid);
+
+    List<Input<DefaultIssue>> inputs = underTest.create(asList(FILE, file2));
+
+    assertThat(inputs).hasSize(2);
+    assertThat(inputs.get(0).getIssues()).containsExactly(issue1);
+    assertThat(inputs.get(1).getIssues()).containsExactly(issue2);
+    verify(issuesLoader, times(0)).loadForComponentUuid(anyString());
+
+    inputs.get(1).getLineHashSequence();
+    verify(fileSourceDao).selectLineHashes(dbSession, originalUuid);
+  }
 }
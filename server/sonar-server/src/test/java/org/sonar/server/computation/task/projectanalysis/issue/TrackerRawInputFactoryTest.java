@@ -45,6 +45,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 public class TrackerRawInputFactoryTest {
@@ -189,6 +191,24 @@ public class TrackerRawInputFactoryTest {
     assertThat(input.getIssues()).isEmpty();
   }
 
+  @Test
+  public void create_for_concurrent_tracking_loads_issues_of_common_rules_immediately() throws Exception {
+    when(issueFilter.accept(any(DefaultIssue.class), eq(FILE))).thenReturn(true);
+    fileSourceRepository.addLines(FILE_REF, "line 1;", "line 2;");
+    DefaultIssue ceIssue = new DefaultIssue()
+      .setRuleKey(RuleKey.of(CommonRuleKeys.commonRepositoryForLang("java"), "InsufficientCoverage"))
+      .setMessage("not enough coverage")
+      .setGap(10.0);
+    when(commonRuleEngine.process(FILE)).thenReturn(asList(ceIssue));
+
+    Input<DefaultIssue> input = underTest.createForConcurrentTracking(FILE);
+    verify(commonRuleEngine).process(FILE);
+
+    assertThat(input.getIssues()).containsOnly(ceIssue);
+    assertInitializedIssue(input.getIssues().iterator().next());
+    verifyNoMoreInteractions(commonRuleEngine);
+  }
+
   private void assertInitializedIssue(DefaultIssue issue) {
     assertThat(issue.projectKey()).isEqualTo(PROJECT.getPublicKey());
     assertThat(issue.componentKey()).isEqualTo(FILE.getPublicKey());
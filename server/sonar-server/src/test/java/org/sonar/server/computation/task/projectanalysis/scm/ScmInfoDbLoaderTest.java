@@ -22,6 +22,7 @@ package org.sonar.server.computation.task.projectanalysis.scm;
 import com.google.common.collect.ImmutableList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
@@ -42,7 +43,9 @@ import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepositoryIm
 import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepositoryImpl;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.sonar.api.utils.log.LoggerLevel.TRACE;
@@ -130,6 +133,36 @@ public class ScmInfoDbLoaderTest {
     assertThat(logTester.logs(TRACE)).containsOnly("Reading SCM info from db for file 'FILE_UUID'");
   }
 
+  @Test
+  public void returns_ScmInfo_of_several_files_from_DB() {
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+    analysisMetadataHolder.setBranch(null);
+    Component file2 = builder(Component.Type.FILE, 2).setKey("FILE_KEY_2").setUuid("FILE_UUID_2").build();
+    Component file3 = builder(Component.Type.FILE, 3).setKey("FILE_KEY_3").setUuid("FILE_UUID_3").build();
+
+    addFileSourceInReport(1);
+    addFileSourceInReport(file2.getReportAttributes().getRef(), 1);
+    addFileSourceInDb("henry", DATE_1, "rev-1", computeSourceHash(1));
+    addFileSourceInDb("john", DATE_2, "rev-2", computeSourceHash(1) + "_different", file2.getUuid());
+
+    Map<Component, ScmInfo> scmInfos = underTest.getScmInfosFromDb(asList(FILE, file2, file3));
+
+    assertThat(scmInfos).containsOnlyKeys(FILE, file2, file3);
+    assertThat(scmInfos.get(FILE).getLatestChangeset().getAuthor()).isEqualTo("henry");
+    assertThat(scmInfos.get(file2)).isEqualTo(NoScmInfo.INSTANCE);
+    assertThat(scmInfos.get(file3)).isEqualTo(NoScmInfo.INSTANCE);
+    assertThat(logTester.logs(TRACE)).containsOnly("Reading SCM info from db for 3 files");
+  }
+
+  @Test
+  public void not_read_several_files_in_db_on_first_analysis() {
+    analysisMetadataHolder.setBaseAnalysis(null);
+    analysisMetadataHolder.setBranch(null);
+
+    assertThat(underTest.getScmInfosFromDb(asList(FILE))).containsOnly(entry(FILE, NoScmInfo.INSTANCE));
+    assertThat(logTester.logs(TRACE)).isEmpty();
+  }
+
   @Test
   public void not_read_in_db_on_first_analysis() throws Exception {
     analysisMetadataHolder.setBaseAnalysis(null);
@@ -184,9 +217,13 @@ public class ScmInfoDbLoaderTest {
   }
 
   private void addFileSourceInReport(int lineCount) {
-    reportReader.putFileSourceLines(FILE_REF, generateLines(lineCount));
+    addFileSourceInReport(FILE_REF, lineCount);
+  }
+
+  private void addFileSourceInReport(int ref, int lineCount) {
+    reportReader.putFileSourceLines(ref, generateLines(lineCount));
     reportReader.putComponent(ScannerReport.Component.newBuilder()
-      .setRef(FILE_REF)
+      .setRef(ref)
       .setLines(lineCount)
       .build());
   }
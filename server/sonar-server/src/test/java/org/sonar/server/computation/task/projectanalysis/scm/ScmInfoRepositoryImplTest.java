@@ -23,6 +23,7 @@ import com.google.common.collect.ImmutableList;
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import com.google.common.collect.ImmutableMap;
 import java.util.EnumSet;
 import java.util.List;
 import org.junit.Rule;
@@ -35,11 +36,15 @@ import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.component.ViewsComponent;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.guava.api.Assertions.assertThat;
+import static java.util.Arrays.asList;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.sonar.api.utils.log.LoggerLevel.TRACE;
@@ -49,6 +54,12 @@ import static org.sonar.server.computation.task.projectanalysis.component.Report
 public class ScmInfoRepositoryImplTest {
   static final int FILE_REF = 1;
   static final Component FILE = builder(Component.Type.FILE, FILE_REF).setKey("FILE_KEY").setUuid("FILE_UUID").build();
+  static final Component FILE_2 = builder(Component.Type.FILE, 2).setKey("FILE_KEY_2").setUuid("FILE_UUID_2").build();
+  static final Component FILE_3 = builder(Component.Type.FILE, 3).setKey("FILE_KEY_3").setUuid("FILE_UUID_3").build();
+  static final Component FILE_4 = builder(Component.Type.FILE, 4).setKey("FILE_KEY_4").setUuid("FILE_UUID_4").build();
+  static final Component PROJECT = builder(Component.Type.PROJECT, 10).setKey("PROJECT_KEY").setUuid("PROJECT_UUID")
+    .addChildren(FILE, FILE_2, FILE_3, FILE_4)
+    .build();
   static final long DATE_1 = 123456789L;
   static final long DATE_2 = 1234567810L;
 
@@ -58,10 +69,12 @@ public class ScmInfoRepositoryImplTest {
   public LogTester logTester = new LogTester();
   @Rule
   public BatchReportReaderRule reportReader = new BatchReportReaderRule();
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule().setRoot(PROJECT);
 
   private ScmInfoDbLoader dbLoader = mock(ScmInfoDbLoader.class);
 
-  private ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(reportReader, dbLoader);
+  private ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(reportReader, dbLoader, treeRootHolder);
 
   @Test
   public void read_from_report() throws Exception {
@@ -97,7 +110,7 @@ public class ScmInfoRepositoryImplTest {
   @Test
   public void read_from_db_even_if_data_in_report_exists_when_CopyFromPrevious_is_true() throws Exception {
     ScmInfo info = mock(ScmInfo.class);
-    when(dbLoader.getScmInfoFromDb(FILE)).thenReturn(info);
+    when(dbLoader.getScmInfosFromDb(asList(FILE))).thenReturn(ImmutableMap.of(FILE, info));
 
     addFileSourceInReport(1);
     addChangesetInReport("john", DATE_2, "rev-2", true);
@@ -106,6 +119,58 @@ public class ScmInfoRepositoryImplTest {
     assertThat(scmInfo).isEqualTo(info);
   }
 
+  @Test
+  public void read_from_db_all_following_files_with_CopyFromPrevious_in_a_single_batch() {
+    ScmInfo info1 = mock(ScmInfo.class);
+    when(dbLoader.getScmInfosFromDb(asList(FILE, FILE_3)))
+      .thenReturn(ImmutableMap.of(FILE, info1, FILE_3, ScmInfoRepositoryImpl.NoScmInfo.INSTANCE));
+
+    addChangesetInReport(FILE_REF, "john", DATE_1, "rev-1", true);
+    addChangesetInReport(2, "henry", DATE_2, "rev-2", false);
+    addChangesetInReport(3, "john", DATE_1, "rev-1", true);
+
+    assertThat(underTest.getScmInfo(FILE).get()).isSameAs(info1);
+    assertThat(underTest.getScmInfo(FILE_2).get().getLatestChangeset().getAuthor()).isEqualTo("henry");
+    assertThat(underTest.getScmInfo(FILE_3)).isAbsent();
+    assertThat(underTest.getScmInfo(FILE_4)).isAbsent();
+
+    verify(dbLoader).getScmInfosFromDb(asList(FILE, FILE_3));
+    verifyNoMoreInteractions(dbLoader);
+  }
+
+  @Test
+  public void read_following_files_from_db_in_a_single_batch_when_cache_is_full() {
+    underTest = new ScmInfoRepositoryImpl(reportReader, dbLoader, treeRootHolder, 2);
+    ScmInfo info3 = mock(ScmInfo.class);
+    ScmInfo info4 = mock(ScmInfo.class);
+    when(dbLoader.getScmInfosFromDb(asList(FILE_3, FILE_4))).thenReturn(ImmutableMap.of(FILE_3, info3, FILE_4, info4));
+
+    addChangesetInReport(FILE_REF, "john", DATE_1, "rev-1", false);
+    addChangesetInReport(2, "henry", DATE_2, "rev-2", false);
+    addChangesetInReport(3, "john", DATE_1, "rev-1", true);
+    addChangesetInReport(4, "john", DATE_1, "rev-1", true);
+
+    assertThat(underTest.getScmInfo(FILE)).isPresent();
+    assertThat(underTest.getScmInfo(FILE_2)).isPresent();
+    assertThat(underTest.getScmInfo(FILE_3).get()).isSameAs(info3);
+    assertThat(underTest.getScmInfo(FILE_4).get()).isSameAs(info4);
+
+    verify(dbLoader).getScmInfosFromDb(asList(FILE_3, FILE_4));
+    verifyNoMoreInteractions(dbLoader);
+  }
+
+  @Test
+  public void read_single_file_from_db_when_file_is_not_in_tree() {
+    Component otherFile = builder(Component.Type.FILE, 20).setKey("OTHER_KEY").setUuid("OTHER_UUID").build();
+    ScmInfo info = mock(ScmInfo.class);
+    when(dbLoader.getScmInfoFromDb(otherFile)).thenReturn(info);
+    addChangesetInReport(20, "john", DATE_1, "rev-1", true);
+
+    assertThat(underTest.getScmInfo(otherFile).get()).isSameAs(info);
+    verify(dbLoader).getScmInfoFromDb(otherFile);
+    verifyNoMoreInteractions(dbLoader);
+  }
+
   @Test
   public void return_nothing_when_no_data_in_report_nor_db() throws Exception {
     assertThat(underTest.getScmInfo(FILE)).isAbsent();
@@ -144,7 +209,7 @@ public class ScmInfoRepositoryImplTest {
   @UseDataProvider("allTypeComponentButFile")
   public void do_not_query_db_nor_report_if_component_type_is_not_FILE(Component component) {
     BatchReportReader batchReportReader = mock(BatchReportReader.class);
-    ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(batchReportReader, dbLoader);
+    ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(batchReportReader, dbLoader, treeRootHolder);
 
     assertThat(underTest.getScmInfo(component)).isAbsent();
 
@@ -169,8 +234,12 @@ public class ScmInfoRepositoryImplTest {
   }
 
   private void addChangesetInReport(String author, Long date, String revision, boolean copyFromPrevious) {
+    addChangesetInReport(FILE_REF, author, date, revision, copyFromPrevious);
+  }
+
+  private void addChangesetInReport(int ref, String author, Long date, String revision, boolean copyFromPrevious) {
     reportReader.putChangesets(ScannerReport.Changesets.newBuilder()
-      .setComponentRef(FILE_REF)
+      .setComponentRef(ref)
       .setCopyFromPrevious(copyFromPrevious)
       .addChangeset(ScannerReport.Changesets.Changeset.newBuilder()
         .setAuthor(author)
@@ -0,0 +1,127 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.source;
+
+import com.google.common.base.Optional;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicate;
+import org.sonar.server.computation.task.projectanalysis.duplication.Duplication;
+import org.sonar.server.computation.task.projectanalysis.duplication.InnerDuplicate;
+import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
+import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
+import org.sonar.server.computation.task.projectanalysis.scm.ScmInfo;
+import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoImpl;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileSourceInputHasherTest {
+
+  private static final int FILE_REF = 2;
+  private static final Component FILE = ReportComponent.builder(Component.Type.FILE, FILE_REF)
+    .setFileAttributes(new FileAttributes(false, null, 2))
+    .build();
+
+  @Rule
+  public BatchReportReaderRule reportReader = new BatchReportReaderRule();
+  @Rule
+  public SourceLinesRepositoryRule sourceLinesRepository = new SourceLinesRepositoryRule();
+
+  private FileSourceInputHasher underTest = new FileSourceInputHasher(reportReader, new SourceHashRepositoryImpl(sourceLinesRepository));
+
+  @Test
+  public void hash_is_the_same_for_the_same_inputs() {
+    sourceLinesRepository.addLines(FILE_REF, "line1", "line2");
+
+    String hash = hash();
+
+    assertThat(hash).hasSize(32).isEqualTo(hash());
+  }
+
+  @Test
+  public void hash_changes_when_source_changes() {
+    sourceLinesRepository.addLines(FILE_REF, "line1", "line2");
+    String hash = hash();
+
+    FileSourceInputHasher other = new FileSourceInputHasher(reportReader, new SourceHashRepositoryImpl(new SourceLinesRepositoryRule().addLines(FILE_REF, "line1", "other")));
+
+    assertThat(other.hash(FILE, Optional.absent(), Collections.emptyList())).isNotEqualTo(hash);
+  }
+
+  @Test
+  public void hash_changes_when_report_data_changes() {
+    sourceLinesRepository.addLines(FILE_REF, "line1", "line2");
+    String initial = hash();
+
+    reportReader.putCoverage(FILE_REF, singletonList(ScannerReport.LineCoverage.newBuilder().setLine(1).setHits(true).build()));
+    String withCoverage = hash();
+    reportReader.putSyntaxHighlighting(FILE_REF, singletonList(ScannerReport.SyntaxHighlightingRule.newBuilder()
+      .setRange(ScannerReport.TextRange.newBuilder().setStartLine(1).setEndLine(1).setStartOffset(0).setEndOffset(4).build())
+      .setType(ScannerReport.SyntaxHighlightingRule.HighlightingType.KEYWORD)
+      .build()));
+    String withHighlighting = hash();
+
+    assertThat(asList(initial, withCoverage, withHighlighting)).doesNotHaveDuplicates();
+  }
+
+  @Test
+  public void hash_changes_when_scm_changes() {
+    sourceLinesRepository.addLines(FILE_REF, "line1", "line2");
+    Changeset changeset = Changeset.newChangesetBuilder().setRevision("rev-1").setDate(123456789L).setAuthor("john").build();
+    Changeset otherChangeset = Changeset.newChangesetBuilder().setRevision("rev-2").setDate(123456789L).setAuthor("john").build();
+    ScmInfo scmInfo = new ScmInfoImpl(asList(changeset, changeset));
+    ScmInfo otherScmInfo = new ScmInfoImpl(asList(changeset, otherChangeset));
+
+    String withoutScm = hash();
+    String withScm = underTest.hash(FILE, Optional.of(scmInfo), Collections.emptyList());
+    String withOtherScm = underTest.hash(FILE, Optional.of(otherScmInfo), Collections.emptyList());
+
+    assertThat(asList(withoutScm, withScm, withOtherScm)).doesNotHaveDuplicates();
+  }
+
+  @Test
+  public void hash_changes_only_when_duplicated_blocks_of_the_file_change() {
+    sourceLinesRepository.addLines(FILE_REF, "line1", "line2");
+    TextBlock original = new TextBlock(1, 1);
+    Duplication innerDuplication = new Duplication(original, singletonList(new InnerDuplicate(new TextBlock(2, 2))));
+    Duplication crossProjectDuplication = new Duplication(original, singletonList(new CrossProjectDuplicate("other", new TextBlock(5, 6))));
+    Duplication otherCrossProjectDuplication = new Duplication(original, singletonList(new CrossProjectDuplicate("other", new TextBlock(7, 8))));
+
+    String withoutDuplication = hash();
+    String withInnerDuplication = underTest.hash(FILE, Optional.absent(), singletonList(innerDuplication));
+    String withCrossProjectDuplication = underTest.hash(FILE, Optional.absent(), singletonList(crossProjectDuplication));
+
+    assertThat(asList(withoutDuplication, withInnerDuplication, withCrossProjectDuplication)).doesNotHaveDuplicates();
+    // duplicates in other files are not part of the sources of the file
+    assertThat(underTest.hash(FILE, Optional.absent(), singletonList(otherCrossProjectDuplication))).isEqualTo(withCrossProjectDuplication);
+  }
+
+  private String hash() {
+    return underTest.hash(FILE, Optional.absent(), Collections.emptyList());
+  }
+}
@@ -32,6 +32,7 @@ import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthL
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.server.computation.task.projectanalysis.component.VisitException;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepositoryRule;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
@@ -40,6 +41,7 @@ import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.sonar.api.measures.CoreMetrics.NCLOC;
 import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
@@ -121,6 +123,21 @@ public class ExecuteVisitorsStepTest {
     assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, TEST_METRIC_KEY).get().getIntValue()).isEqualTo(2);
   }
 
+  @Test
+  public void close_visitors_when_another_visitor_fails() {
+    CloseableVisitor closeableVisitor = new CloseableVisitor();
+    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, asList(closeableVisitor, new FailingVisitor()));
+
+    try {
+      underStep.execute();
+      fail("An exception should have been raised");
+    } catch (VisitException e) {
+      assertThat(e).hasRootCauseInstanceOf(IllegalStateException.class);
+    }
+
+    assertThat(closeableVisitor.closed).isTrue();
+  }
+
   @Test
   public void execute_logs_at_info_level_all_execution_duration_of_all_visitors() {
     try (ChangeLogLevel executor = new ChangeLogLevel(ExecuteVisitorsStep.class, LoggerLevel.DEBUG);
@@ -143,6 +160,30 @@ public class ExecuteVisitorsStepTest {
     }
   }
 
+  private static class CloseableVisitor extends TypeAwareVisitorAdapter implements AutoCloseable {
+    private boolean closed = false;
+
+    public CloseableVisitor() {
+      super(CrawlerDepthLimit.FILE, Order.PRE_ORDER);
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  private static class FailingVisitor extends TypeAwareVisitorAdapter {
+    public FailingVisitor() {
+      super(CrawlerDepthLimit.FILE, Order.PRE_ORDER);
+    }
+
+    @Override
+    public void visitFile(Component file) {
+      throw new IllegalStateException("Unexpected error");
+    }
+  }
+
   private static class VisitorA extends TypeAwareVisitorAdapter {
     public VisitorA() {
       super(CrawlerDepthLimit.PROJECT, Order.PRE_ORDER);
@@ -19,9 +19,11 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
@@ -33,6 +35,8 @@ import org.sonar.api.utils.internal.JUnitTempFolder;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.queue.CeTaskInputStore;
+import org.sonar.ce.queue.DbCeTaskInputStore;
 import org.sonar.db.DbTester;
 import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportDirectoryHolderImpl;
@@ -59,12 +63,13 @@ public class ExtractReportStepTest {
   private MutableBatchReportDirectoryHolder reportDirectoryHolder = new BatchReportDirectoryHolderImpl();
   private CeTask ceTask = new CeTask.Builder().setOrganizationUuid("org1").setType(CeTaskTypes.REPORT).setUuid(TASK_UUID).build();
 
-  private ExtractReportStep underTest = new ExtractReportStep(dbTester.getDbClient(), ceTask, tempFolder, reportDirectoryHolder);
+  private ExtractReportStep underTest = new ExtractReportStep(dbTester.getDbClient(), ceTask, tempFolder, reportDirectoryHolder,
+    new DbCeTaskInputStore(dbTester.getDbClient()));
 
   @Test
   public void fail_if_report_zip_does_not_exist() throws Exception {
     expectedException.expect(MessageException.class);
-    expectedException.expectMessage("Analysis report 1 is missing in database");
+    expectedException.expectMessage("Analysis report 1 is missing");
 
     underTest.execute();
   }
@@ -87,6 +92,22 @@ public class ExtractReportStepTest {
     assertThat(new File(unzippedDir, "metadata.pb")).hasContent("{metadata}");
   }
 
+  @Test
+  public void unzip_report_stored_in_parts() throws Exception {
+    byte[] report = FileUtils.readFileToByteArray(generateReport());
+    int half = report.length / 2;
+    dbTester.getDbClient().ceTaskInputDao().insert(dbTester.getSession(), CeTaskInputStore.partUuid(TASK_UUID, 0),
+      new ByteArrayInputStream(Arrays.copyOfRange(report, 0, half)));
+    dbTester.getDbClient().ceTaskInputDao().insert(dbTester.getSession(), CeTaskInputStore.partUuid(TASK_UUID, 1),
+      new ByteArrayInputStream(Arrays.copyOfRange(report, half, report.length)));
+    dbTester.getSession().commit();
+    dbTester.getSession().close();
+
+    underTest.execute();
+
+    assertThat(new File(reportDirectoryHolder.getDirectory(), "metadata.pb")).hasContent("{metadata}");
+  }
+
   private File generateReport() throws IOException {
     File zipDir = tempFolder.newDir();
     File metadataFile = new File(zipDir, "metadata.pb");
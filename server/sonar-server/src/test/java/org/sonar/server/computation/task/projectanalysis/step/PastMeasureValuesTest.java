@@ -0,0 +1,65 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.step;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+public class PastMeasureValuesTest {
+
+  private PastMeasureValues underTest = new PastMeasureValues();
+
+  @Test
+  public void get_returns_zero_if_no_value() {
+    underTest.put(1, 10, 3.5d);
+
+    assertThat(underTest.get(1, 11)).isEqualTo(0d);
+    assertThat(underTest.get(2, 10)).isEqualTo(0d);
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void put_replaces_existing_value() {
+    underTest.put(1, 10, 3.5d);
+    underTest.put(1, 10, -2d);
+
+    assertThat(underTest.get(1, 10)).isEqualTo(-2d);
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void store_values_of_many_components_and_metrics() {
+    for (int component = 0; component < 5_000; component++) {
+      for (int metric = 1; metric <= 20; metric++) {
+        underTest.put(component, metric, component * 100d + metric);
+      }
+    }
+
+    assertThat(underTest.size()).isEqualTo(100_000);
+    for (int component = 0; component < 5_000; component++) {
+      for (int metric = 1; metric <= 20; metric++) {
+        assertThat(underTest.get(component, metric)).isEqualTo(component * 100d + metric, offset(0d));
+      }
+    }
+    assertThat(underTest.get(5_000, 1)).isEqualTo(0d);
+  }
+}
@@ -24,6 +24,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -46,6 +47,7 @@ import org.sonar.server.computation.task.projectanalysis.duplication.InnerDuplic
 import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
 import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepositoryRule;
 import org.sonar.server.computation.task.step.ComputationStep;
 
@@ -82,6 +84,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
   @Rule
   public DuplicationRepositoryRule duplicationRepository = DuplicationRepositoryRule.create(treeRootHolder);
 
+  private MapSettings settings = new MapSettings();
   private DbClient dbClient = dbTester.getDbClient();
   private DbSession session = dbTester.getSession();
 
@@ -90,8 +93,12 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
   @Before
   public void setup() {
     when(system2.now()).thenReturn(NOW);
-    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader, fileSourceRepository, scmInfoRepository,
-      duplicationRepository);
+    underTest = newStep();
+  }
+
+  private PersistFileSourcesStep newStep() {
+    return new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader, fileSourceRepository, scmInfoRepository,
+      duplicationRepository, new SourceHashRepositoryImpl(fileSourceRepository), settings.asConfig());
   }
 
   @Override
@@ -314,6 +321,73 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getDataHash()).isEqualTo(dataHash);
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(past);
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(past);
+    // missing input hash is stored without changing the update date
+    assertThat(fileSourceDto.getInputHash()).isNotEmpty();
+  }
+
+  @Test
+  public void do_not_compute_sources_when_inputs_have_not_changed() {
+    initBasicReport(1);
+    underTest.execute();
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID);
+    String inputHash = fileSourceDto.getInputHash();
+    assertThat(inputHash).isNotEmpty();
+    // data hash is not read again when inputs are unchanged, so this fake value must be kept
+    dbClient.fileSourceDao().update(session, fileSourceDto.setDataHash("fake"));
+    session.commit();
+    when(system2.now()).thenReturn(NOW + 1);
+
+    underTest.execute();
+
+    fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID);
+    assertThat(fileSourceDto.getDataHash()).isEqualTo("fake");
+    assertThat(fileSourceDto.getInputHash()).isEqualTo(inputHash);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void compute_sources_when_coverage_has_changed() {
+    initBasicReport(1);
+    underTest.execute();
+    String inputHash = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID).getInputHash();
+    reportReader.putCoverage(FILE1_REF, newArrayList(ScannerReport.LineCoverage.newBuilder()
+      .setLine(1)
+      .setConditions(10)
+      .setHits(true)
+      .setCoveredConditions(2)
+      .build()));
+    when(system2.now()).thenReturn(NOW + 1);
+
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID);
+    assertThat(fileSourceDto.getInputHash()).isNotEqualTo(inputHash);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW + 1);
+    assertThat(fileSourceDto.getSourceData().getLines(0).getLineHits()).isEqualTo(1);
+  }
+
+  @Test
+  public void persist_sources_of_several_files_with_several_threads() {
+    settings.setProperty(PersistFileSourcesStep.THREADS_PROPERTY, 2);
+    underTest = newStep();
+    int nbFiles = 50;
+    ReportComponent.Builder project = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY);
+    for (int i = 0; i < nbFiles; i++) {
+      int ref = 10 + i;
+      project.addChildren(ReportComponent.builder(Component.Type.FILE, ref).setUuid("FILE_UUID_" + i).setKey("PROJECT_KEY:src/Foo" + i + ".java")
+        .setFileAttributes(new FileAttributes(false, null, 2)).build());
+      fileSourceRepository.addLines(ref, "line1 of " + i, "line2 of " + i);
+    }
+    treeRootHolder.setRoot(project.build());
+
+    underTest.execute();
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(nbFiles);
+    for (int i = 0; i < nbFiles; i++) {
+      DbFileSources.Data data = dbClient.fileSourceDao().selectSourceByFileUuid(session, "FILE_UUID_" + i).getSourceData();
+      assertThat(data.getLinesCount()).isEqualTo(2);
+      assertThat(data.getLines(1).getSource()).isEqualTo("line2 of " + i);
+    }
   }
 
   @Test
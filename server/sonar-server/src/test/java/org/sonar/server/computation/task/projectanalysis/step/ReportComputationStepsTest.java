@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.collect.Lists;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -27,8 +28,13 @@ import org.sonar.core.platform.ComponentContainer;
 import org.sonar.core.platform.ContainerPopulator;
 import org.sonar.server.computation.task.container.TaskContainer;
 import org.sonar.server.computation.task.container.TaskContainerImpl;
+import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
+import org.sonar.server.computation.task.step.ComputationStep;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ReportComputationStepsTest {
   @Rule
@@ -69,4 +75,40 @@ public class ReportComputationStepsTest {
 
     Lists.newArrayList(new ReportComputationSteps(computeEngineContainer).instances());
   }
+
+  @Test
+  public void instances_contains_all_steps_when_not_on_short_living_branch() {
+    ReportComputationSteps underTest = new ReportComputationSteps(mockContainerOfSteps(false));
+
+    List<ComputationStep> steps = Lists.newArrayList(underTest.instances());
+
+    assertThat(steps).hasSize(underTest.orderedStepClasses().size());
+  }
+
+  @Test
+  public void instances_skips_history_oriented_steps_on_short_living_branch() {
+    ReportComputationSteps underTest = new ReportComputationSteps(mockContainerOfSteps(true));
+
+    List<ComputationStep> steps = Lists.newArrayList(underTest.instances());
+
+    assertThat(steps).hasSize(underTest.orderedStepClasses().size() - 2);
+    assertThat(steps)
+      .filteredOn(step -> step instanceof ComputeMeasureVariationsStep || step instanceof QualityProfileEventsStep)
+      .isEmpty();
+    // cross project duplication steps are no-ops when the branch does not support them
+    assertThat(steps).filteredOn(step -> step instanceof LoadCrossProjectDuplicationsRepositoryStep).hasSize(1);
+    assertThat(steps).filteredOn(step -> step instanceof PersistCrossProjectDuplicationIndexStep).hasSize(1);
+    assertThat(steps).filteredOn(step -> step instanceof PersistFileSourcesStep).hasSize(1);
+    // tests of short living branches are browsed with api/tests/list
+    assertThat(steps).filteredOn(step -> step instanceof PersistTestsStep).hasSize(1);
+  }
+
+  private static TaskContainer mockContainerOfSteps(boolean shortLivingBranch) {
+    AnalysisMetadataHolder analysisMetadataHolder = mock(AnalysisMetadataHolder.class);
+    when(analysisMetadataHolder.isShortLivingBranch()).thenReturn(shortLivingBranch);
+    TaskContainer container = mock(TaskContainer.class);
+    when(container.getComponentByType(any(Class.class))).thenAnswer(invocation -> mock((Class<?>) invocation.getArguments()[0]));
+    when(container.getComponentByType(AnalysisMetadataHolder.class)).thenReturn(analysisMetadataHolder);
+    return container;
+  }
 }
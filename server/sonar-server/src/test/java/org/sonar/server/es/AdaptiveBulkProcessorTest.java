@@ -0,0 +1,267 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.elasticsearch.action.ActionFuture;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.ShardId;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.server.es.AdaptiveBulkProcessor.INITIAL_BULK_BYTES;
+import static org.sonar.server.es.AdaptiveBulkProcessor.MAX_BULK_BYTES;
+import static org.sonar.server.es.AdaptiveBulkProcessor.MIN_BULK_BYTES;
+import static org.sonar.server.es.AdaptiveBulkProcessor.TARGET_LATENCY_MS;
+
+public class AdaptiveBulkProcessorTest {
+
+  private static final BackoffPolicy BACKOFF = BackoffPolicy.constantBackoff(TimeValue.timeValueMillis(1L), 2);
+
+  private Client client = mock(Client.class);
+  private FakeListener listener = new FakeListener();
+
+  @Test
+  public void send_remaining_requests_on_close() throws Exception {
+    mockResponses(response(success(0), success(1)));
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(client, listener, BACKOFF, 1, 4);
+
+    underTest.add(newRequest("1"));
+    underTest.add(newRequest("2"));
+    verify(client, times(0)).bulk(any(BulkRequest.class));
+
+    assertThat(underTest.awaitClose(1, TimeUnit.MINUTES)).isTrue();
+    assertThat(listener.successes).hasSize(2);
+    assertThat(listener.failures).isEmpty();
+    assertThat(underTest.getDocs()).isEqualTo(2);
+    assertThat(underTest.getBytes()).isPositive();
+    assertThat(underTest.getRejections()).isZero();
+  }
+
+  @Test
+  public void retry_rejected_items() throws Exception {
+    mockResponses(response(success(0), rejected(1)), response(success(0)));
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(client, listener, BACKOFF, 4, 4);
+
+    underTest.add(newRequest("1"));
+    underTest.add(newRequest("2"));
+    underTest.awaitClose(1, TimeUnit.MINUTES);
+
+    verify(client, times(2)).bulk(any(BulkRequest.class));
+    assertThat(listener.successes).hasSize(2);
+    assertThat(listener.failures).isEmpty();
+    assertThat(underTest.getRejections()).isEqualTo(1);
+    // halved on rejection, then increased by the fast retry
+    assertThat(underTest.getConcurrency()).isEqualTo(3);
+    assertThat(underTest.getBulkBytes()).isEqualTo(INITIAL_BULK_BYTES / 2 * 5 / 4);
+  }
+
+  @Test
+  public void retry_whole_request_if_rejected() throws Exception {
+    ActionFuture<BulkResponse> rejected = mock(ActionFuture.class);
+    when(rejected.actionGet()).thenThrow(new EsRejectedExecutionException("rejected"));
+    ActionFuture<BulkResponse> accepted = mock(ActionFuture.class);
+    when(accepted.actionGet()).thenReturn(response(success(0)));
+    when(client.bulk(any(BulkRequest.class))).thenReturn(rejected, accepted);
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(client, listener, BACKOFF, 1, 4);
+
+    underTest.add(newRequest("1"));
+    underTest.awaitClose(1, TimeUnit.MINUTES);
+
+    assertThat(listener.successes).hasSize(1);
+    assertThat(underTest.getRejections()).isEqualTo(1);
+  }
+
+  @Test
+  public void items_still_rejected_after_all_retries_are_failures() throws Exception {
+    mockResponses(response(rejected(0)), response(rejected(0)), response(rejected(0)));
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(client, listener, BACKOFF, 1, 4);
+
+    underTest.add(newRequest("1"));
+    underTest.awaitClose(1, TimeUnit.MINUTES);
+
+    verify(client, times(3)).bulk(any(BulkRequest.class));
+    assertThat(listener.successes).isEmpty();
+    assertThat(listener.failures).hasSize(1);
+    assertThat(underTest.getRejections()).isEqualTo(2);
+  }
+
+  @Test
+  public void failure_of_request_is_notified_to_listener() throws Exception {
+    ActionFuture<BulkResponse> future = mock(ActionFuture.class);
+    when(future.actionGet()).thenThrow(new IllegalStateException("unavailable"));
+    when(client.bulk(any(BulkRequest.class))).thenReturn(future);
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(client, listener, BACKOFF, 1, 4);
+
+    underTest.add(newRequest("1"));
+    underTest.awaitClose(1, TimeUnit.MINUTES);
+
+    assertThat(listener.errors).extracting(Throwable::getMessage).containsExactly("unavailable");
+    assertThat(underTest.getRejections()).isZero();
+  }
+
+  @Test
+  public void interruption_during_retry_is_notified_to_listener_and_restored() throws Exception {
+    ActionFuture<BulkResponse> rejected = mock(ActionFuture.class);
+    when(rejected.actionGet()).thenAnswer(invocation -> {
+      // the backoff pause is interrupted
+      Thread.currentThread().interrupt();
+      throw new EsRejectedExecutionException("rejected");
+    });
+    when(client.bulk(any(BulkRequest.class))).thenReturn(rejected);
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(client, listener, BACKOFF, 1, 4);
+
+    underTest.add(newRequest("1"));
+    underTest.awaitClose(1, TimeUnit.MINUTES);
+
+    assertThat(listener.errors).hasSize(1);
+    assertThat(listener.errors.get(0)).isInstanceOf(InterruptedException.class);
+    assertThat(listener.interruptedOnErrors).containsExactly(true);
+  }
+
+  @Test
+  public void fast_requests_increase_size_and_concurrency() {
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(client, listener, BACKOFF, 1, 3);
+
+    underTest.adapt(TARGET_LATENCY_MS / 4, false);
+    assertThat(underTest.getBulkBytes()).isEqualTo(INITIAL_BULK_BYTES * 5 / 4);
+    assertThat(underTest.getConcurrency()).isEqualTo(2);
+
+    for (int i = 0; i < 100; i++) {
+      underTest.adapt(TARGET_LATENCY_MS / 4, false);
+    }
+    assertThat(underTest.getBulkBytes()).isEqualTo(MAX_BULK_BYTES);
+    assertThat(underTest.getConcurrency()).isEqualTo(3);
+  }
+
+  @Test
+  public void slow_requests_decrease_size() {
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(client, listener, BACKOFF, 2, 3);
+
+    underTest.adapt(TARGET_LATENCY_MS * 2, false);
+    assertThat(underTest.getBulkBytes()).isEqualTo(INITIAL_BULK_BYTES * 3 / 4);
+    assertThat(underTest.getConcurrency()).isEqualTo(2);
+
+    for (int i = 0; i < 100; i++) {
+      underTest.adapt(TARGET_LATENCY_MS * 2, false);
+    }
+    assertThat(underTest.getBulkBytes()).isEqualTo(MIN_BULK_BYTES);
+  }
+
+  @Test
+  public void requests_close_to_target_latency_do_not_change_anything() {
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(client, listener, BACKOFF, 2, 3);
+
+    underTest.adapt(TARGET_LATENCY_MS, false);
+
+    assertThat(underTest.getBulkBytes()).isEqualTo(INITIAL_BULK_BYTES);
+    assertThat(underTest.getConcurrency()).isEqualTo(2);
+  }
+
+  @Test
+  public void rejections_halve_size_and_concurrency() {
+    AdaptiveBulkProcessor underTest = new AdaptiveBulkProcessor(client, listener, BACKOFF, 8, 8);
+
+    underTest.adapt(0L, true);
+    assertThat(underTest.getBulkBytes()).isEqualTo(INITIAL_BULK_BYTES / 2);
+    assertThat(underTest.getConcurrency()).isEqualTo(4);
+
+    for (int i = 0; i < 10; i++) {
+      underTest.adapt(0L, true);
+    }
+    assertThat(underTest.getBulkBytes()).isEqualTo(MIN_BULK_BYTES);
+    assertThat(underTest.getConcurrency()).isEqualTo(1);
+  }
+
+  @SafeVarargs
+  private final void mockResponses(BulkResponse first, BulkResponse... others) {
+    List<ActionFuture<BulkResponse>> futures = new ArrayList<>();
+    for (BulkResponse response : others) {
+      futures.add(future(response));
+    }
+    ActionFuture<BulkResponse> firstFuture = future(first);
+    when(client.bulk(any(BulkRequest.class))).thenReturn(firstFuture, futures.toArray(new ActionFuture[futures.size()]));
+  }
+
+  private static ActionFuture<BulkResponse> future(BulkResponse response) {
+    ActionFuture<BulkResponse> future = mock(ActionFuture.class);
+    when(future.actionGet()).thenReturn(response);
+    return future;
+  }
+
+  private static BulkResponse response(BulkItemResponse... items) {
+    return new BulkResponse(items, 10L);
+  }
+
+  private static BulkItemResponse success(int itemId) {
+    return new BulkItemResponse(itemId, DocWriteRequest.OpType.INDEX, new IndexResponse(new ShardId("fakes", "_na_", 0), "fake", "id" + itemId, 1L, true));
+  }
+
+  private static BulkItemResponse rejected(int itemId) {
+    return new BulkItemResponse(itemId, DocWriteRequest.OpType.INDEX,
+      new BulkItemResponse.Failure("fakes", "fake", "id" + itemId, new EsRejectedExecutionException("rejected")));
+  }
+
+  private static IndexRequest newRequest(String id) {
+    return new IndexRequest("fakes", "fake", id).source("{\"key\":\"value\"}");
+  }
+
+  private static class FakeListener implements BulkProcessor.Listener {
+    private final List<BulkItemResponse> successes = new ArrayList<>();
+    private final List<BulkItemResponse> failures = new ArrayList<>();
+    private final List<Throwable> errors = new ArrayList<>();
+    private final List<Boolean> interruptedOnErrors = new ArrayList<>();
+
+    @Override
+    public void beforeBulk(long executionId, BulkRequest request) {
+      // nothing to do
+    }
+
+    @Override
+    public synchronized void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+      for (BulkItemResponse item : response.getItems()) {
+        (item.isFailed() ? failures : successes).add(item);
+      }
+    }
+
+    @Override
+    public synchronized void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+      errors.add(failure);
+      interruptedOnErrors.add(Thread.currentThread().isInterrupted());
+    }
+  }
+}
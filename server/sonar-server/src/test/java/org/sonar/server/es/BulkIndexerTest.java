@@ -30,11 +30,14 @@ import org.elasticsearch.index.query.QueryBuilders;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.db.DbTester;
 import org.sonar.server.es.BulkIndexer.Size;
 
 import static java.util.Collections.emptyMap;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.server.es.FakeIndexDefinition.INDEX;
 import static org.sonar.server.es.FakeIndexDefinition.INDEX_TYPE_FAKE;
 
@@ -46,6 +49,8 @@ public class BulkIndexerTest {
   public EsTester esTester = new EsTester(new FakeIndexDefinition().setReplicas(1));
   @Rule
   public DbTester dbTester = DbTester.create(testSystem2);
+  @Rule
+  public LogTester logTester = new LogTester();
 
   @Test
   public void index_nothing() {
@@ -71,6 +76,21 @@ public class BulkIndexerTest {
     assertThat(count()).isEqualTo(2);
   }
 
+  @Test
+  public void record_statistics_of_bulk_requests() {
+    EsClient client = esTester.client();
+    BulkIndexer indexer = new BulkIndexer(client, INDEX_TYPE_FAKE, Size.REGULAR);
+    indexer.start();
+    indexer.add(newIndexRequest(42));
+    indexer.add(newIndexRequest(78));
+    indexer.stop();
+
+    assertThat(client.getRequestStatistics().getRequestStatistics())
+      .filteredOn(s -> s.getRequestType().equals("bulk"))
+      .extracting(EsRequestStatistics.RequestStatistics::getIndex, EsRequestStatistics.RequestStatistics::getCount, EsRequestStatistics.RequestStatistics::getDocs)
+      .containsExactly(tuple(INDEX, 1L, 2L));
+  }
+
   @Test
   public void large_indexing() {
     // index has one replica
@@ -94,6 +114,8 @@ public class BulkIndexerTest {
     assertThat(count()).isEqualTo(10);
     // replicas are re-enabled
     assertThat(replicas()).isEqualTo(1);
+    // throughput is logged
+    assertThat(logTester.logs(LoggerLevel.INFO)).filteredOn(log -> log.startsWith("Bulk indexing of fakes: 10 documents in ")).hasSize(1);
   }
 
   @Test
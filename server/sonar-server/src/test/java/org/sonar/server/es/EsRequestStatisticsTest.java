@@ -0,0 +1,167 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.concurrent.TimeUnit;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.junit.Rule;
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.server.es.EsRequestStatistics.RequestStatistics;
+import org.sonar.server.ws.WebServiceEngine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EsRequestStatisticsTest {
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private EsRequestStatistics underTest = new EsRequestStatistics(100L, 1);
+
+  @Test
+  public void slow_search_log_is_disabled_by_default() {
+    underTest = new EsRequestStatistics(new MapSettings().asConfig());
+
+    underTest.recordSearch("search", new String[] {"issues"}, TimeUnit.SECONDS.toNanos(60), newSearchResponse(1, 0), () -> "the search");
+
+    assertThat(logTester.logs()).isEmpty();
+  }
+
+  @Test
+  public void record_searches_by_index() {
+    underTest.recordSearch("search", new String[] {"issues"}, ms(10), newSearchResponse(3, 0), () -> "search 1");
+    underTest.recordSearch("search", new String[] {"issues"}, ms(20), newSearchResponse(2, 1), () -> "search 2");
+    underTest.recordSearch("search", new String[] {"components", "projectmeasures"}, ms(5), null, () -> "search 3");
+    underTest.recordSearch("scroll", new String[0], ms(1), newSearchResponse(4, 0), () -> "scroll");
+
+    assertThat(underTest.getRequestStatistics())
+      .extracting(RequestStatistics::getRequestType, RequestStatistics::getIndex, RequestStatistics::getCount, RequestStatistics::getTotalMs,
+        RequestStatistics::getDocs, RequestStatistics::getShardFailures, RequestStatistics::getFailures)
+      .containsExactly(
+        tuple("search", "issues", 2L, 30L, 5L, 1L, 0L),
+        tuple("search", "components,projectmeasures", 1L, 5L, 0L, 0L, 1L),
+        tuple("scroll", "_all", 1L, 1L, 4L, 0L, 0L));
+  }
+
+  @Test
+  public void record_requests_on_documents() {
+    underTest.record("get", new String[] {"rules"}, ms(2), 1L, false);
+    underTest.record("get", new String[] {"rules"}, ms(2), 0L, false);
+    underTest.record("index", new String[] {"rules"}, ms(3), 0L, true);
+
+    assertThat(underTest.getRequestStatistics())
+      .extracting(RequestStatistics::getRequestType, RequestStatistics::getCount, RequestStatistics::getDocs, RequestStatistics::getFailures)
+      .containsExactly(
+        tuple("get", 2L, 1L, 0L),
+        tuple("index", 1L, 0L, 1L));
+  }
+
+  @Test
+  public void record_bulk_rejections() {
+    BulkRequest request = new BulkRequest()
+      .add(new IndexRequest("issues", "issue", "1"))
+      .add(new DeleteRequest("issues", "issue", "2"))
+      .add(new DeleteRequest("components", "component", "3"));
+    BulkResponse response = new BulkResponse(new BulkItemResponse[] {
+      newSuccessfulItem(),
+      newFailedItem(new EsRejectedExecutionException("queue is full")),
+      newFailedItem(new IllegalStateException("unexpected"))
+    }, 10L);
+
+    underTest.recordBulk(request, ms(10), response);
+    underTest.recordBulk(request, ms(10), null);
+
+    RequestStatistics statistics = underTest.getRequestStatistics().get(0);
+    assertThat(statistics.getRequestType()).isEqualTo("bulk");
+    assertThat(statistics.getIndex()).isEqualTo("components,issues");
+    assertThat(statistics.getCount()).isEqualTo(2L);
+    assertThat(statistics.getDocs()).isEqualTo(1L);
+    assertThat(statistics.getRejections()).isEqualTo(1L);
+    assertThat(statistics.getFailures()).isEqualTo(1L);
+    assertThat(statistics.toString()).isEqualTo("bulk on components,issues: count=2, docs=1, total=20ms, mean=10.00ms, p50=10.00ms, p95=10.00ms, p99=10.00ms, max=10.00ms, "
+      + "shardFailures=0, rejections=1, failures=1");
+  }
+
+  @Test
+  public void log_slow_searches_with_web_service_action() {
+    MDC.put(WebServiceEngine.WS_ACTION_MDC_KEY, "api/issues/search");
+    try {
+      underTest.recordSearch("search", new String[] {"issues"}, ms(99), newSearchResponse(1, 0), () -> "fast search");
+      underTest.recordSearch("search", new String[] {"issues"}, ms(100), newSearchResponse(1, 0), () -> "slow search");
+    } finally {
+      MDC.remove(WebServiceEngine.WS_ACTION_MDC_KEY);
+    }
+
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsExactly("Slow search of 100 ms from web service api/issues/search: slow search");
+  }
+
+  @Test
+  public void sample_log_of_slow_searches() {
+    underTest = new EsRequestStatistics(new MapSettings()
+      .setProperty("sonar.search.slowLogThresholdMs", "100")
+      .setProperty("sonar.search.slowLogSampling", "3")
+      .asConfig());
+
+    for (int i = 0; i < 7; i++) {
+      underTest.recordSearch("search", new String[] {"issues"}, ms(200), newSearchResponse(1, 0), () -> "slow search");
+    }
+
+    assertThat(logTester.logs(LoggerLevel.WARN)).hasSize(3);
+  }
+
+  private static long ms(long durationMs) {
+    return TimeUnit.MILLISECONDS.toNanos(durationMs);
+  }
+
+  private static SearchResponse newSearchResponse(int hits, int failedShards) {
+    SearchResponse response = mock(SearchResponse.class);
+    SearchHits searchHits = mock(SearchHits.class);
+    when(searchHits.getHits()).thenReturn(new SearchHit[hits]);
+    when(response.getHits()).thenReturn(searchHits);
+    when(response.getFailedShards()).thenReturn(failedShards);
+    return response;
+  }
+
+  private static BulkItemResponse newSuccessfulItem() {
+    BulkItemResponse item = mock(BulkItemResponse.class);
+    when(item.isFailed()).thenReturn(false);
+    return item;
+  }
+
+  private static BulkItemResponse newFailedItem(Exception cause) {
+    return new BulkItemResponse(0, DocWriteRequest.OpType.INDEX, new BulkItemResponse.Failure("issues", "issue", "1", cause));
+  }
+}
@@ -25,11 +25,13 @@ import java.util.Set;
 import org.junit.Test;
 import org.sonar.db.DbSession;
 import org.sonar.db.es.EsQueueDto;
+import org.sonar.server.ws.WsResponseCacheInvalidator;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 public class ProjectIndexersTest {
 
@@ -49,6 +51,17 @@ public class ProjectIndexersTest {
     assertThat(indexer2.calledItems).containsExactlyInAnyOrder(item2);
   }
 
+  @Test
+  public void commitAndIndexByProjectUuids_invalidates_cache_of_web_services() {
+    WsResponseCacheInvalidator responseCacheInvalidator = mock(WsResponseCacheInvalidator.class);
+    FakeIndexer indexer = new FakeIndexer(singletonList(EsQueueDto.create("fake/fake1", "P1")));
+
+    ProjectIndexersImpl underTest = new ProjectIndexersImpl(responseCacheInvalidator, indexer);
+    underTest.commitAndIndexByProjectUuids(mock(DbSession.class), singletonList("P1"), ProjectIndexer.Cause.PROJECT_CREATION);
+
+    verify(responseCacheInvalidator).invalidateAll();
+  }
+
   @Test
   public void commitAndIndex_restricts_indexing_to_projects() {
     // TODO
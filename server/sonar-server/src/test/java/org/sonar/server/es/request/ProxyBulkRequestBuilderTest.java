@@ -29,10 +29,13 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.server.es.EsClient;
+import org.sonar.server.es.EsRequestStatistics.RequestStatistics;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.es.FakeIndexDefinition;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 public class ProxyBulkRequestBuilderTest {
 
@@ -56,8 +59,24 @@ public class ProxyBulkRequestBuilderTest {
     assertThat(logTester.logs(LoggerLevel.TRACE)).hasSize(1);
   }
 
+  @Test
+  public void record_statistics() {
+    EsClient client = esTester.client();
+
+    testBulk(client);
+
+    assertThat(client.getRequestStatistics().getRequestStatistics())
+      .extracting(RequestStatistics::getRequestType, RequestStatistics::getIndex, RequestStatistics::getCount, RequestStatistics::getDocs, RequestStatistics::getRejections)
+      // update of a missing document fails
+      .containsExactly(tuple("bulk", "fakes", 1L, 2L, 0L));
+  }
+
   private void testBulk() {
-    BulkRequestBuilder req = esTester.client().prepareBulk();
+    testBulk(esTester.client());
+  }
+
+  private void testBulk(EsClient client) {
+    BulkRequestBuilder req = client.prepareBulk();
     req.add(new UpdateRequest(FakeIndexDefinition.INDEX, FakeIndexDefinition.INDEX_TYPE_FAKE.getType(), "key1")
       .doc(FakeIndexDefinition.newDoc(1).getFields()));
     req.add(new DeleteRequest(FakeIndexDefinition.INDEX, FakeIndexDefinition.INDEX_TYPE_FAKE.getType(), "key2"));
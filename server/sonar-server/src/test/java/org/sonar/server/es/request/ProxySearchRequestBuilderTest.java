@@ -24,11 +24,14 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.server.es.EsClient;
+import org.sonar.server.es.EsRequestStatistics.RequestStatistics;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.es.FakeIndexDefinition;
 import org.sonar.server.es.IndexType;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.Assert.fail;
 
 public class ProxySearchRequestBuilderTest {
@@ -44,6 +47,26 @@ public class ProxySearchRequestBuilderTest {
     esTester.client().prepareSearch(FakeIndexDefinition.INDEX).get();
   }
 
+  @Test
+  public void record_statistics() {
+    EsClient client = esTester.client();
+
+    client.prepareSearch(FakeIndexDefinition.INDEX).get();
+    client.prepareSearch(FakeIndexDefinition.INDEX).get();
+    try {
+      client.prepareSearch("non-existing-index").get();
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    assertThat(client.getRequestStatistics().getRequestStatistics())
+      .extracting(RequestStatistics::getRequestType, RequestStatistics::getIndex, RequestStatistics::getCount, RequestStatistics::getDocs, RequestStatistics::getFailures)
+      .containsOnly(
+        tuple("search", "fakes", 2L, 0L, 0L),
+        tuple("search", "non-existing-index", 1L, 0L, 1L));
+  }
+
   @Test
   public void to_string() {
     assertThat(esTester.client().prepareSearch(FakeIndexDefinition.INDEX).setTypes(FakeIndexDefinition.TYPE).toString()).contains("ES search request '").contains(
@@ -31,8 +31,13 @@ import org.sonar.db.component.ComponentTesting;
 import org.sonar.db.organization.OrganizationTesting;
 import org.sonar.db.property.PropertyQuery;
 import org.sonar.server.exceptions.BadRequestException;
+import org.sonar.server.ws.WsResponseCacheInvalidator;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 public class FavoriteUpdaterTest {
   private static final long COMPONENT_ID = 23L;
@@ -61,6 +66,19 @@ public class FavoriteUpdaterTest {
     assertFavorite();
   }
 
+  @Test
+  public void invalidate_cached_responses_of_web_services() {
+    WsResponseCacheInvalidator responseCacheInvalidator = mock(WsResponseCacheInvalidator.class);
+    FavoriteUpdater underTest = new FavoriteUpdater(dbClient, responseCacheInvalidator);
+
+    underTest.add(dbSession, COMPONENT, null);
+    verifyZeroInteractions(responseCacheInvalidator);
+
+    underTest.add(dbSession, COMPONENT, USER_ID);
+    underTest.remove(dbSession, COMPONENT, USER_ID);
+    verify(responseCacheInvalidator, times(2)).invalidateAll();
+  }
+
   @Test
   public void do_nothing_when_no_user() {
     underTest.add(dbSession, COMPONENT, null);
@@ -0,0 +1,257 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.bulkchange;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.notifications.Notification;
+import org.sonar.api.utils.System2;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.queue.DbCeTaskInputStore;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeTaskCharacteristicDto;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.issue.IssueDto;
+import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.user.UserDto;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.issue.IssueFieldsSetter;
+import org.sonar.server.issue.ServerIssueStorage;
+import org.sonar.server.issue.index.IssueIndexDefinition;
+import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.issue.index.IssueIteratorFactory;
+import org.sonar.server.issue.workflow.FunctionExecutor;
+import org.sonar.server.issue.workflow.IssueWorkflow;
+import org.sonar.server.notification.NotificationManager;
+import org.sonar.server.organization.DefaultOrganizationProvider;
+import org.sonar.server.organization.OrganizationFlagsImpl;
+import org.sonar.server.organization.TestDefaultOrganizationProvider;
+import org.sonar.server.rule.DefaultRuleFinder;
+import org.sonar.server.user.UserSessionFactoryImpl;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.api.issue.Issue.STATUS_OPEN;
+import static org.sonar.api.rule.Severity.MAJOR;
+import static org.sonar.api.rule.Severity.MINOR;
+import static org.sonar.api.web.UserRole.ISSUE_ADMIN;
+import static org.sonar.api.web.UserRole.USER;
+import static org.sonar.db.ce.CeTaskCharacteristicDto.PROCESSED_ITEMS_KEY;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+import static org.sonar.db.issue.IssueTesting.newDto;
+import static org.sonar.db.rule.RuleTesting.newRuleDto;
+import static org.sonar.server.issue.AssignAction.ASSIGNEE_PARAMETER;
+import static org.sonar.server.issue.AssignAction.ASSIGN_KEY;
+import static org.sonar.server.issue.SetSeverityAction.SET_SEVERITY_KEY;
+import static org.sonar.server.issue.SetSeverityAction.SEVERITY_PARAMETER;
+
+public class IssueBulkChangeTaskProcessorTest {
+
+  private static final long NOW = 2_000_000_000_000L;
+  private static final String TASK_UUID = "TASK_1";
+
+  private System2 system2 = mock(System2.class);
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public DbTester db = DbTester.create(system2);
+  @Rule
+  public EsTester es = new EsTester(new IssueIndexDefinition(new MapSettings().asConfig()));
+
+  private DbClient dbClient = db.getDbClient();
+  private DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
+  private IssueFieldsSetter issueFieldsSetter = new IssueFieldsSetter();
+  private IssueWorkflow issueWorkflow = new IssueWorkflow(new FunctionExecutor(issueFieldsSetter), issueFieldsSetter);
+  private NotificationManager notificationManager = mock(NotificationManager.class);
+
+  private IssueBulkChangeTaskProcessor underTest = new IssueBulkChangeTaskProcessor(system2, dbClient,
+    new UserSessionFactoryImpl(dbClient, defaultOrganizationProvider, new OrganizationFlagsImpl(dbClient)),
+    issueFieldsSetter, issueWorkflow,
+    new ServerIssueStorage(system2, new DefaultRuleFinder(dbClient, defaultOrganizationProvider), dbClient,
+      new IssueIndexer(es.client(), dbClient, new IssueIteratorFactory(dbClient))),
+    notificationManager, new DbCeTaskInputStore(dbClient));
+
+  private RuleDto rule;
+  private OrganizationDto organization;
+  private ComponentDto project;
+  private ComponentDto file;
+  private UserDto user;
+
+  @Before
+  public void setUp() {
+    issueWorkflow.start();
+    when(system2.now()).thenReturn(NOW);
+    rule = db.rules().insertRule(newRuleDto());
+    organization = db.organizations().insert();
+    project = db.components().insertPrivateProject(organization);
+    file = db.components().insertComponent(newFileDto(project));
+    user = db.users().insertUser("john");
+  }
+
+  @Test
+  public void handles_issues_bulk_change_tasks() {
+    assertThat(underTest.getHandledCeTaskTypes()).containsExactly(CeTaskTypes.ISSUES_BULK_CHANGE);
+  }
+
+  @Test
+  public void apply_changes_by_batches_and_report_progress() {
+    db.users().insertProjectPermissionOnUser(user, USER, project);
+    db.users().insertProjectPermissionOnUser(user, ISSUE_ADMIN, project);
+    List<IssueDto> issues = IntStream.range(0, IssueBulkChangeTaskProcessor.BATCH_SIZE + 10)
+      .mapToObj(i -> db.issues().insertIssue(newUnresolvedIssue().setSeverity(MAJOR)))
+      .collect(Collectors.toList());
+
+    underTest.process(submit(issues, action(SET_SEVERITY_KEY, SEVERITY_PARAMETER, MINOR), false));
+
+    assertThat(selectByKeys(issues)).extracting(IssueDto::getSeverity, IssueDto::getUpdatedAt).containsOnly(tuple(MINOR, NOW));
+    assertThat(processedItems()).isEqualTo(String.valueOf(issues.size()));
+    assertThat(es.countDocuments(IssueIndexDefinition.INDEX_TYPE_ISSUE)).isEqualTo(issues.size());
+    verify(notificationManager, never()).scheduleForSending(any(Notification.class));
+  }
+
+  @Test
+  public void ignore_issues_of_projects_not_browsable_by_submitter() {
+    IssueDto issue = db.issues().insertIssue(newUnresolvedIssue().setSeverity(MAJOR));
+
+    underTest.process(submit(singletonList(issue), action(SET_SEVERITY_KEY, SEVERITY_PARAMETER, MINOR), false));
+
+    assertThat(selectByKeys(singletonList(issue))).extracting(IssueDto::getSeverity).containsOnly(MAJOR);
+    assertThat(processedItems()).isEqualTo("1");
+  }
+
+  @Test
+  public void ignore_actions_not_allowed_to_submitter() {
+    db.users().insertProjectPermissionOnUser(user, USER, project);
+    IssueDto issue = db.issues().insertIssue(newUnresolvedIssue().setSeverity(MAJOR));
+
+    underTest.process(submit(singletonList(issue), action(SET_SEVERITY_KEY, SEVERITY_PARAMETER, MINOR), false));
+
+    assertThat(selectByKeys(singletonList(issue))).extracting(IssueDto::getSeverity).containsOnly(MAJOR);
+  }
+
+  @Test
+  public void send_one_notification_per_project_and_assignee() {
+    db.users().insertProjectPermissionOnUser(user, USER, project);
+    db.users().insertProjectPermissionOnUser(user, ISSUE_ADMIN, project);
+    List<IssueDto> issues = IntStream.range(0, 3)
+      .mapToObj(i -> db.issues().insertIssue(newUnresolvedIssue().setSeverity(MAJOR).setAssignee(i == 0 ? "simon" : "henri")))
+      .collect(Collectors.toList());
+
+    underTest.process(submit(issues, action(SET_SEVERITY_KEY, SEVERITY_PARAMETER, MINOR), true));
+
+    ArgumentCaptor<Notification> captor = ArgumentCaptor.forClass(Notification.class);
+    verify(notificationManager, times(2)).scheduleForSending(captor.capture());
+    assertThat(captor.getAllValues())
+      .extracting(n -> n.getFieldValue("assignee"), n -> n.getFieldValue("issueCount"), n -> n.getFieldValue("new.severity"),
+        n -> n.getFieldValue("projectKey"), n -> n.getFieldValue("changeAuthor"), n -> n.getFieldValue("bulkChangeKey"))
+      .containsOnly(
+        tuple("simon", "1", MINOR, project.getKey(), user.getLogin(), TASK_UUID),
+        tuple("henri", "2", MINOR, project.getKey(), user.getLogin(), TASK_UUID));
+  }
+
+  @Test
+  public void notification_contains_only_values_common_to_all_issues() {
+    db.users().insertProjectPermissionOnUser(user, USER, project);
+    db.users().insertProjectPermissionOnUser(user, ISSUE_ADMIN, project);
+    List<IssueDto> issues = IntStream.range(0, 2)
+      .mapToObj(i -> db.issues().insertIssue(newUnresolvedIssue().setSeverity(MAJOR).setAssignee(i == 0 ? "simon" : null)))
+      .collect(Collectors.toList());
+    db.organizations().addMember(organization, user);
+
+    underTest.process(submit(issues, action(ASSIGN_KEY, ASSIGNEE_PARAMETER, user.getLogin()), true));
+
+    ArgumentCaptor<Notification> captor = ArgumentCaptor.forClass(Notification.class);
+    verify(notificationManager).scheduleForSending(captor.capture());
+    assertThat(captor.getValue().getFieldValue("issueCount")).isEqualTo("2");
+    assertThat(captor.getValue().getFieldValue("assignee")).isEqualTo(user.getLogin());
+    assertThat(captor.getValue().getFieldValue("new.assignee")).isEqualTo(user.getName());
+  }
+
+  @Test
+  public void fail_if_submitter_does_not_exist() {
+    IssueDto issue = db.issues().insertIssue(newUnresolvedIssue());
+    user = new UserDto().setLogin("unknown");
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("User 'unknown' does not exist or is not active");
+
+    underTest.process(submit(singletonList(issue), action(SET_SEVERITY_KEY, SEVERITY_PARAMETER, MINOR), false));
+  }
+
+  private CeTask submit(List<IssueDto> issues, DbIssues.BulkChangeAction action, boolean sendNotifications) {
+    DbIssues.BulkChange input = DbIssues.BulkChange.newBuilder()
+      .addAllIssueKeys(issues.stream().map(IssueDto::getKey).collect(Collectors.toList()))
+      .addActions(action)
+      .setSendNotifications(sendNotifications)
+      .build();
+    dbClient.ceTaskInputDao().insert(db.getSession(), TASK_UUID, input.toByteString().newInput());
+    dbClient.ceTaskCharacteristicsDao().insert(db.getSession(), singletonList(new CeTaskCharacteristicDto()
+      .setUuid("UUID_1").setTaskUuid(TASK_UUID).setKey(PROCESSED_ITEMS_KEY).setValue("0")));
+    db.commit();
+    return new CeTask.Builder()
+      .setOrganizationUuid(defaultOrganizationProvider.get().getUuid())
+      .setUuid(TASK_UUID)
+      .setType(CeTaskTypes.ISSUES_BULK_CHANGE)
+      .setSubmitterLogin(user.getLogin())
+      .build();
+  }
+
+  private static DbIssues.BulkChangeAction action(String key, String property, String value) {
+    return DbIssues.BulkChangeAction.newBuilder()
+      .setKey(key)
+      .addProperties(DbIssues.Property.newBuilder().setKey(property).setValue(value))
+      .build();
+  }
+
+  private String processedItems() {
+    return dbClient.ceTaskCharacteristicsDao().selectByTaskUuid(db.getSession(), TASK_UUID).stream()
+      .filter(c -> c.getKey().equals(PROCESSED_ITEMS_KEY))
+      .map(CeTaskCharacteristicDto::getValue)
+      .findFirst()
+      .get();
+  }
+
+  private List<IssueDto> selectByKeys(List<IssueDto> issues) {
+    return dbClient.issueDao().selectByKeys(db.getSession(), issues.stream().map(IssueDto::getKey).collect(Collectors.toList()));
+  }
+
+  private IssueDto newUnresolvedIssue() {
+    return newDto(rule, file, project).setStatus(STATUS_OPEN).setResolution(null);
+  }
+}
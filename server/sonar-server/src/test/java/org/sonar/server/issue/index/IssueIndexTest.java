@@ -444,6 +444,21 @@ public class IssueIndexTest {
     assertThatSearchReturnsEmpty(IssueQuery.builder().severities(asList(Severity.BLOCKER)));
   }
 
+  @Test
+  public void search_all_keys_matching_query() {
+    ComponentDto project = ComponentTesting.newPrivateProjectDto(newOrganizationDto());
+    ComponentDto file = newFileDto(project, null);
+    IssueDoc[] issues = IntStream.range(0, 1_500)
+      .mapToObj(i -> newDoc("I" + i, file).setSeverity(i % 3 == 0 ? Severity.INFO : Severity.MAJOR))
+      .toArray(IssueDoc[]::new);
+    indexIssues(issues);
+
+    assertThat(Iterators.size(underTest.searchAll(IssueQuery.builder().build()))).isEqualTo(1_500);
+    List<String> infoKeys = new ArrayList<>();
+    underTest.searchAll(IssueQuery.builder().severities(asList(Severity.INFO)).build()).forEachRemaining(infoKeys::add);
+    assertThat(infoKeys).hasSize(500).contains("I0", "I3", "I1497").doesNotContain("I1");
+  }
+
   @Test
   public void facets_on_severities() {
     ComponentDto project = ComponentTesting.newPrivateProjectDto(newOrganizationDto());
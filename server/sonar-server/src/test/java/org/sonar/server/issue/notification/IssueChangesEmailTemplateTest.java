@@ -19,6 +19,7 @@
  */
 package org.sonar.server.issue.notification;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import java.nio.charset.StandardCharsets;
 import org.apache.commons.lang.StringUtils;
@@ -188,6 +189,27 @@ public class IssueChangesEmailTemplateTest {
     assertThat(message.getFrom()).isEqualTo("simon");
   }
 
+  @Test
+  public void email_should_summarize_bulk_change() {
+    db.users().insertUser(newUserDto().setLogin("simon").setName("Simon"));
+    Notification notification = new IssueChangeNotification()
+      .setBulkChange("TASK_1", 42, "louis", ImmutableMap.of("severity", "BLOCKER", "tags", "security"))
+      .setChangeAuthorLogin("simon")
+      .setProject("org.apache:struts", "Struts", "feature/foo");
+
+    EmailMessage email = underTest.format(notification);
+
+    assertThat(email.getMessageId()).isEqualTo("issue-changes/TASK_1/louis");
+    assertThat(email.getSubject()).isEqualTo("Struts, changes on 42 issues");
+    assertThat(email.getFrom()).isEqualTo("Simon");
+    assertThat(email.getMessage()).isEqualTo("42 issues have been changed\n" +
+      "\n" +
+      "Severity: BLOCKER\n" +
+      "Tags: [security]\n" +
+      "\n" +
+      "See them in SonarQube: http://nemo.sonarsource.org/project/issues?id=org.apache%3Astruts&branch=feature/foo\n");
+  }
+
   private static Notification generateNotification() {
     return new IssueChangeNotification()
       .setFieldValue("projectName", "Struts")
@@ -0,0 +1,197 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Clock;
+import java.util.Optional;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.utils.System2;
+import org.sonar.ce.queue.CeQueueImpl;
+import org.sonar.ce.queue.CeTaskInputStore;
+import org.sonar.ce.queue.DbCeTaskInputStore;
+import org.sonar.core.util.UuidFactoryFast;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskCharacteristicDto;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.issue.IssueDto;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.user.UserDto;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.exceptions.UnauthorizedException;
+import org.sonar.server.issue.IssueQueryFactory;
+import org.sonar.server.issue.index.IssueIndex;
+import org.sonar.server.issue.index.IssueIndexDefinition;
+import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.issue.index.IssueIteratorFactory;
+import org.sonar.server.organization.TestDefaultOrganizationProvider;
+import org.sonar.server.permission.index.AuthorizationTypeSupport;
+import org.sonar.server.permission.index.PermissionIndexerTester;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.TestRequest;
+import org.sonar.server.ws.WsActionTester;
+import org.sonarqube.ws.Issues.BulkChangeByQueryWsResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.sonar.api.rule.Severity.BLOCKER;
+import static org.sonar.api.rule.Severity.MAJOR;
+import static org.sonar.api.rule.Severity.MINOR;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+import static org.sonar.server.issue.SetSeverityAction.SET_SEVERITY_KEY;
+import static org.sonar.server.issue.SetSeverityAction.SEVERITY_PARAMETER;
+
+public class BulkChangeByQueryActionTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+  @Rule
+  public EsTester es = new EsTester(new IssueIndexDefinition(new MapSettings().asConfig()));
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+
+  private DbClient dbClient = db.getDbClient();
+  private IssueIndexer issueIndexer = new IssueIndexer(es.client(), dbClient, new IssueIteratorFactory(dbClient));
+  private PermissionIndexerTester permissionIndexer = new PermissionIndexerTester(es, issueIndexer);
+  private IssueIndex issueIndex = new IssueIndex(es.client(), System2.INSTANCE, userSession, new AuthorizationTypeSupport(userSession));
+  private IssueQueryFactory issueQueryFactory = new IssueQueryFactory(dbClient, Clock.systemUTC(), userSession);
+  private CeTaskInputStore taskInputStore = new DbCeTaskInputStore(dbClient);
+  private CeQueueImpl queue = new CeQueueImpl(dbClient, UuidFactoryFast.getInstance(), TestDefaultOrganizationProvider.from(db), taskInputStore);
+
+  private WsActionTester ws = new WsActionTester(new BulkChangeByQueryAction(userSession, dbClient, issueQueryFactory, issueIndex, queue,
+    UuidFactoryFast.getInstance(), taskInputStore));
+
+  @Test
+  public void test_definition() {
+    WebService.Action def = ws.getDef();
+
+    assertThat(def.key()).isEqualTo("bulk_change_by_query");
+    assertThat(def.isPost()).isTrue();
+    assertThat(def.isInternal()).isTrue();
+    assertThat(def.since()).isEqualTo("6.6");
+    assertThat(def.params()).extracting(WebService.Param::key).contains("organization", "componentKeys", "severities", "statuses", "tags",
+      "assign", "set_severity", "set_type", "do_transition", "add_tags", "remove_tags", "comment", "sendNotifications");
+  }
+
+  @Test
+  public void submit_task_on_issues_matching_query() throws IOException {
+    UserDto user = db.users().insertUser();
+    userSession.logIn(user);
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    IssueDto major = db.issues().insert(rule, project, file, i -> i.setSeverity(MAJOR));
+    db.issues().insert(rule, project, file, i -> i.setSeverity(MINOR));
+    allowAnyoneOnProjects(project);
+    indexIssues();
+
+    BulkChangeByQueryWsResponse response = newRequest()
+      .setParam("severities", MAJOR)
+      .setParam("set_severity", BLOCKER)
+      .setParam("sendNotifications", "true")
+      .executeProtobuf(BulkChangeByQueryWsResponse.class);
+
+    assertThat(response.getTotal()).isEqualTo(1);
+    Optional<CeQueueDto> task = dbClient.ceQueueDao().selectByUuid(db.getSession(), response.getTaskId());
+    assertThat(task).isPresent();
+    assertThat(task.get().getTaskType()).isEqualTo(CeTaskTypes.ISSUES_BULK_CHANGE);
+    assertThat(task.get().getSubmitterLogin()).isEqualTo(user.getLogin());
+    assertThat(task.get().getComponentUuid()).isNull();
+
+    DbIssues.BulkChange input = readInput(response.getTaskId());
+    assertThat(input.getIssueKeysList()).containsExactly(major.getKey());
+    assertThat(input.getSendNotifications()).isTrue();
+    assertThat(input.getActionsList()).extracting(DbIssues.BulkChangeAction::getKey).containsExactly(SET_SEVERITY_KEY);
+    assertThat(input.getActions(0).getPropertiesList())
+      .extracting(DbIssues.Property::getKey, DbIssues.Property::getValue)
+      .containsExactly(tuple(SEVERITY_PARAMETER, BLOCKER));
+    assertThat(dbClient.ceTaskCharacteristicsDao().selectByTaskUuid(db.getSession(), response.getTaskId()))
+      .extracting(CeTaskCharacteristicDto::getKey, CeTaskCharacteristicDto::getValue)
+      .containsOnly(tuple(CeTaskCharacteristicDto.TOTAL_ITEMS_KEY, "1"), tuple(CeTaskCharacteristicDto.PROCESSED_ITEMS_KEY, "0"));
+  }
+
+  @Test
+  public void ignore_issues_of_projects_not_browsable_by_user() {
+    userSession.logIn();
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    db.issues().insert(rule, project, file);
+    permissionIndexer.allowOnlyUser(project, db.users().insertUser());
+    indexIssues();
+
+    BulkChangeByQueryWsResponse response = newRequest()
+      .setParam("set_severity", BLOCKER)
+      .executeProtobuf(BulkChangeByQueryWsResponse.class);
+
+    assertThat(response.getTotal()).isZero();
+    assertThat(response.hasTaskId()).isFalse();
+    assertThat(dbClient.ceQueueDao().selectAllInAscOrder(db.getSession())).isEmpty();
+  }
+
+  @Test
+  public void fail_when_no_action_is_provided() {
+    userSession.logIn();
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("At least one action must be provided");
+
+    newRequest().setParam("comment", "a comment").execute();
+  }
+
+  @Test
+  public void fail_when_not_authenticated() {
+    expectedException.expect(UnauthorizedException.class);
+
+    newRequest().setParam("set_severity", BLOCKER).execute();
+  }
+
+  private TestRequest newRequest() {
+    return ws.newRequest().setMethod("POST");
+  }
+
+  private DbIssues.BulkChange readInput(String taskUuid) throws IOException {
+    try (InputStream data = taskInputStore.open(db.getSession(), taskUuid).get()) {
+      return DbIssues.BulkChange.parseFrom(data);
+    }
+  }
+
+  private void allowAnyoneOnProjects(ComponentDto... projects) {
+    userSession.registerComponents(projects);
+    for (ComponentDto project : projects) {
+      permissionIndexer.allowOnlyAnyone(project);
+    }
+  }
+
+  private void indexIssues() {
+    issueIndexer.indexOnStartup(null);
+  }
+}
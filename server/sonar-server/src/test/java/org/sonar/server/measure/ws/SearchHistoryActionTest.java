@@ -384,6 +384,7 @@ public class SearchHistoryActionTest {
     assertThat(definition.responseExampleAsString()).isNotEmpty();
     assertThat(definition.isPost()).isFalse();
     assertThat(definition.isInternal()).isFalse();
+    assertThat(definition.isCacheable()).isTrue();
     assertThat(definition.since()).isEqualTo("6.3");
     assertThat(definition.params()).hasSize(7);
 
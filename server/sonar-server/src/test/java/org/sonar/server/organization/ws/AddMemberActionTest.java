@@ -50,10 +50,13 @@ import org.sonar.server.user.index.UserQuery;
 import org.sonar.server.usergroups.DefaultGroupFinder;
 import org.sonar.server.ws.TestRequest;
 import org.sonar.server.ws.WsActionTester;
+import org.sonar.server.ws.WsResponseCacheInvalidator;
 import org.sonarqube.ws.Organizations.AddMemberWsResponse;
 
 import static java.lang.String.format;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.sonar.core.util.Protobuf.setNullable;
 import static org.sonar.db.permission.OrganizationPermission.ADMINISTER;
 import static org.sonar.db.permission.OrganizationPermission.ADMINISTER_QUALITY_GATES;
@@ -74,8 +77,11 @@ public class AddMemberActionTest {
   private DbClient dbClient = db.getDbClient();
   private DbSession dbSession = db.getSession();
 
+  private WsResponseCacheInvalidator responseCacheInvalidator = mock(WsResponseCacheInvalidator.class);
+
   private WsActionTester ws = new WsActionTester(
-    new AddMemberAction(dbClient, userSession, new UserIndexer(dbClient, es.client()), new DefaultGroupFinder(dbClient), new AvatarResolverImpl()));
+    new AddMemberAction(dbClient, userSession, new UserIndexer(dbClient, es.client()), new DefaultGroupFinder(dbClient), new AvatarResolverImpl(),
+      responseCacheInvalidator));
 
   @Test
   public void add_member_in_db_and_user_index() {
@@ -91,6 +97,17 @@ public class AddMemberActionTest {
     assertThat(userDocs.get(0).organizationUuids()).containsOnly(organization.getUuid());
   }
 
+  @Test
+  public void invalidate_cached_responses_of_web_services() {
+    OrganizationDto organization = db.organizations().insert();
+    db.users().insertDefaultGroup(organization, "default");
+    UserDto user = db.users().insertUser();
+
+    call(organization.getKey(), user.getLogin());
+
+    verify(responseCacheInvalidator).invalidateAll();
+  }
+
   @Test
   public void user_can_be_member_of_two_organizations() {
     OrganizationDto organization = db.organizations().insert();
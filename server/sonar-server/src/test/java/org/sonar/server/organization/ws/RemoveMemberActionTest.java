@@ -53,11 +53,15 @@ import org.sonar.server.user.index.UserQuery;
 import org.sonar.server.ws.TestRequest;
 import org.sonar.server.ws.TestResponse;
 import org.sonar.server.ws.WsActionTester;
+import org.sonar.server.ws.WsResponseCacheInvalidator;
 
 import static java.net.HttpURLConnection.HTTP_NO_CONTENT;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.sonar.api.CoreProperties.DEFAULT_ISSUE_ASSIGNEE;
 import static org.sonar.api.web.UserRole.CODEVIEWER;
 import static org.sonar.api.web.UserRole.USER;
@@ -82,7 +86,9 @@ public class RemoveMemberActionTest {
   private UserIndex userIndex = new UserIndex(es.client());
   private UserIndexer userIndexer = new UserIndexer(dbClient, es.client());
 
-  private WsActionTester ws = new WsActionTester(new RemoveMemberAction(dbClient, userSession, userIndexer));
+  private WsResponseCacheInvalidator responseCacheInvalidator = mock(WsResponseCacheInvalidator.class);
+
+  private WsActionTester ws = new WsActionTester(new RemoveMemberAction(dbClient, userSession, userIndexer, responseCacheInvalidator));
 
   private OrganizationDto organization;
   private ComponentDto project;
@@ -119,6 +125,22 @@ public class RemoveMemberActionTest {
     assertThat(login.isRequired()).isTrue();
   }
 
+  @Test
+  public void invalidate_cached_responses_of_web_services() {
+    call(organization.getKey(), user.getLogin());
+
+    verify(responseCacheInvalidator).invalidateAll();
+  }
+
+  @Test
+  public void do_not_invalidate_cached_responses_of_web_services_when_user_is_not_member() {
+    UserDto anotherUser = db.users().insertUser();
+
+    call(organization.getKey(), anotherUser.getLogin());
+
+    verifyZeroInteractions(responseCacheInvalidator);
+  }
+
   @Test
   public void no_content_http_204_returned() {
     TestResponse result = call(organization.getKey(), user.getLogin());
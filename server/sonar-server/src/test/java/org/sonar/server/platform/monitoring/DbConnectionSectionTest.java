@@ -59,6 +59,17 @@ public class DbConnectionSectionTest {
     assertThat(attribute(section, "Pool Remove Abandoned Timeout (seconds)").getLongValue()).isGreaterThanOrEqualTo(0L);
   }
 
+  @Test
+  public void sql_statistics() {
+    dbTester.getDbClient().getMyBatis().getSqlStatistics().record("Mapper.select", 10_000_000_000L, 3L, () -> "select 1", () -> "");
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+    assertThat(attribute(section, "SQL Statements (top 10 by total duration)").getStringValuesList())
+      .contains("Mapper.select: count=1, rows=3, total=10000ms, mean=10000.00ms, p50=10000.00ms, p95=10000.00ms, p99=10000.00ms, max=10000.00ms");
+    assertThat(attribute(section, "Slow SQL Requests (threshold 1000 ms)")).isNotNull();
+    assertThat(underTest.getSqlStatementStatistics()).contains("Mapper.select: count=1, rows=3, total=10000ms, mean=10000.00ms, p50=10000.00ms, p95=10000.00ms, p99=10000.00ms, max=10000.00ms");
+  }
+
   @Test
   public void section_name_depends_on_runtime_side() {
     when(runtime.getSonarQubeSide()).thenReturn(SonarQubeSide.COMPUTE_ENGINE);
@@ -0,0 +1,50 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import org.junit.Test;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+import org.sonar.server.es.EsClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.process.systeminfo.SystemInfoUtils.attribute;
+
+public class EsRequestsSectionTest {
+
+  private EsClient esClient = new EsClient();
+  private EsRequestsSection underTest = new EsRequestsSection(esClient);
+
+  @Test
+  public void name() {
+    assertThat(underTest.name()).isEqualTo("SearchRequests");
+  }
+
+  @Test
+  public void export_statistics_of_requests() {
+    esClient.getRequestStatistics().record("get", new String[] {"rules"}, 2_000_000L, 1L, false);
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+
+    assertThat(section.getName()).isEqualTo("Search Requests");
+    assertThat(attribute(section, "Requests (top 20 by total duration)").getStringValuesList())
+      .containsExactly("get on rules: count=1, docs=1, total=2ms, mean=2.00ms, p50=2.00ms, p95=2.00ms, p99=2.00ms, max=2.00ms, shardFailures=0, rejections=0, failures=0");
+    assertThat(underTest.getRequestStatistics()).containsExactly(attribute(section, "Requests (top 20 by total duration)").getStringValues(0));
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+import org.sonar.server.user.UserSession;
+import org.sonar.server.ws.WsResponseCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.sonar.process.systeminfo.SystemInfoUtils.attribute;
+
+public class WsResponseCacheSectionTest {
+
+  private WsResponseCache cache = new WsResponseCache(new MapSettings().asConfig(), mock(UserSession.class), mock(DbClient.class), System2.INSTANCE);
+  private WsResponseCacheSection underTest = new WsResponseCacheSection(cache);
+
+  @Test
+  public void name() {
+    assertThat(underTest.name()).isEqualTo("WsResponseCache");
+  }
+
+  @Test
+  public void export_statistics() {
+    cache.invalidateAll();
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+
+    assertThat(section.getName()).isEqualTo("Web Services Cache");
+    assertThat(attribute(section, "Enabled").getBooleanValue()).isTrue();
+    assertThat(attribute(section, "Hits").getLongValue()).isEqualTo(0L);
+    assertThat(attribute(section, "Hit Rate").getStringValue()).isEqualTo("1.00");
+    assertThat(attribute(section, "Invalidations").getLongValue()).isEqualTo(1L);
+    assertThat(underTest.getInvalidations()).isEqualTo(1L);
+    assertThat(underTest.getEntries()).isZero();
+  }
+}
@@ -61,6 +61,7 @@ import org.sonar.server.rule.index.RuleIndexDefinition;
 import org.sonar.server.rule.index.RuleIndexer;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.text.MacroInterpreter;
+import org.sonar.server.text.RenderedHtmlCache;
 import org.sonar.server.util.IntegerTypeValidation;
 import org.sonar.server.util.StringTypeValidation;
 import org.sonar.server.util.TypeValidations;
@@ -114,7 +115,7 @@ public class SearchActionTest {
   private RuleWsSupport wsSupport = new RuleWsSupport(db.getDbClient(), userSession, defaultOrganizationProvider);
   private RuleQueryFactory ruleQueryFactory = new RuleQueryFactory(db.getDbClient(), wsSupport);
   private MacroInterpreter macroInterpreter = mock(MacroInterpreter.class);
-  private RuleMapper ruleMapper = new RuleMapper(languages, macroInterpreter);
+  private RuleMapper ruleMapper = new RuleMapper(languages, new RenderedHtmlCache(macroInterpreter));
   private SearchAction underTest = new SearchAction(ruleIndex, activeRuleCompleter, ruleQueryFactory, db.getDbClient(), ruleMapper);
 
   private RuleActivatorContextFactory contextFactory = new RuleActivatorContextFactory(db.getDbClient());
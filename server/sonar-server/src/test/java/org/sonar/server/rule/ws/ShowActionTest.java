@@ -63,6 +63,7 @@ import org.sonar.server.rule.RuleCreator;
 import org.sonar.server.rule.index.RuleIndexDefinition;
 import org.sonar.server.rule.index.RuleIndexer;
 import org.sonar.server.text.MacroInterpreter;
+import org.sonar.server.text.RenderedHtmlCache;
 import org.sonar.server.util.TypeValidations;
 import org.sonar.server.ws.TestResponse;
 import org.sonar.server.ws.WsAction;
@@ -103,7 +104,7 @@ public class ShowActionTest {
   private DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(dbTester);
   private MacroInterpreter macroInterpreter = mock(MacroInterpreter.class);
   private Languages languages = new Languages(LanguageTesting.newLanguage("xoo", "Xoo"));
-  private RuleMapper mapper = new RuleMapper(languages, macroInterpreter);
+  private RuleMapper mapper = new RuleMapper(languages, new RenderedHtmlCache(macroInterpreter));
   private ActiveRuleCompleter activeRuleCompleter = mock(ActiveRuleCompleter.class);
   private WsAction underTest = new ShowAction(dbClient, mapper, activeRuleCompleter, defaultOrganizationProvider);
   private WsActionTester actionTester = new WsActionTester(underTest);
@@ -0,0 +1,76 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.text;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RenderedHtmlCacheTest {
+
+  private MacroInterpreter macroInterpreter = mock(MacroInterpreter.class);
+  private RenderedHtmlCache underTest = new RenderedHtmlCache(macroInterpreter);
+
+  @Test
+  public void convert_markdown_to_html() {
+    assertThat(underTest.markdownToHtml("This is *important*")).isEqualTo("This is <strong>important</strong>");
+    assertThat(underTest.markdownToHtml("This is *important*")).isEqualTo("This is <strong>important</strong>");
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void interpret_macros_once_per_text() {
+    when(macroInterpreter.interpret(anyString())).thenAnswer(invocation -> "[" + invocation.getArguments()[0] + "]");
+
+    assertThat(underTest.markdownToHtmlWithMacros("*bold*")).isEqualTo("[<strong>bold</strong>]");
+    assertThat(underTest.markdownToHtmlWithMacros("*bold*")).isEqualTo("[<strong>bold</strong>]");
+    assertThat(underTest.htmlWithMacros("<p>html</p>")).isEqualTo("[<p>html</p>]");
+    assertThat(underTest.htmlWithMacros("<p>html</p>")).isEqualTo("[<p>html</p>]");
+
+    verify(macroInterpreter, times(1)).interpret("<strong>bold</strong>");
+    verify(macroInterpreter, times(1)).interpret("<p>html</p>");
+  }
+
+  @Test
+  public void renderings_of_same_text_are_not_mixed() {
+    when(macroInterpreter.interpret(anyString())).thenAnswer(invocation -> "[" + invocation.getArguments()[0] + "]");
+
+    assertThat(underTest.markdownToHtml("*bold*")).isEqualTo("<strong>bold</strong>");
+    assertThat(underTest.markdownToHtmlWithMacros("*bold*")).isEqualTo("[<strong>bold</strong>]");
+    assertThat(underTest.htmlWithMacros("*bold*")).isEqualTo("[*bold*]");
+    assertThat(underTest.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void cache_is_bounded_by_length_of_html() {
+    underTest = new RenderedHtmlCache(macroInterpreter, 1_000L);
+
+    for (int i = 0; i < 100; i++) {
+      assertThat(underTest.markdownToHtml("text " + i)).isEqualTo("text " + i);
+    }
+
+    assertThat(underTest.size()).isLessThan(100);
+  }
+}
@@ -50,9 +50,12 @@ import org.sonar.server.user.index.UserIndexDefinition;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.ws.TestResponse;
 import org.sonar.server.ws.WsActionTester;
+import org.sonar.server.ws.WsResponseCacheInvalidator;
 
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.sonar.api.web.UserRole.CODEVIEWER;
 import static org.sonar.api.web.UserRole.USER;
 import static org.sonar.core.permission.GlobalPermissions.SYSTEM_ADMIN;
@@ -87,8 +90,10 @@ public class DeactivateActionTest {
   private UserIndexer userIndexer = new UserIndexer(dbClient, esTester.client());
   private DbSession dbSession = db.getSession();
 
+  private WsResponseCacheInvalidator responseCacheInvalidator = mock(WsResponseCacheInvalidator.class);
+
   private WsActionTester ws = new WsActionTester(new DeactivateAction(
-    dbClient, userIndexer, userSession, new UserJsonWriter(userSession), defaultOrganizationProvider));
+    dbClient, userIndexer, userSession, new UserJsonWriter(userSession), defaultOrganizationProvider, responseCacheInvalidator));
 
   @Test
   public void deactivate_user_and_delete_his_related_data() {
@@ -105,6 +110,16 @@ public class DeactivateActionTest {
     assertThat(index.getNullableByLogin(user.getLogin()).active()).isFalse();
   }
 
+  @Test
+  public void deactivate_user_invalidates_cached_responses_of_web_services() {
+    logInAsSystemAdministrator();
+    UserDto user = insertUser(newUserDto());
+
+    deactivate(user.getLogin()).getInput();
+
+    verify(responseCacheInvalidator).invalidateAll();
+  }
+
   @Test
   public void deactivate_user_deletes_his_group_membership() {
     logInAsSystemAdministrator();
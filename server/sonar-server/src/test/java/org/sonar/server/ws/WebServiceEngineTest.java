@@ -30,6 +30,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.slf4j.MDC;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.api.server.ws.internal.ValidatingRequest;
@@ -39,7 +40,10 @@ import org.sonar.server.exceptions.BadRequestException;
 import org.sonarqube.ws.MediaTypes;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class WebServiceEngineTest {
@@ -106,6 +110,41 @@ public class WebServiceEngineTest {
     assertThat(response.stream().outputAsString()).isEqualTo("{\"errors\":[{\"msg\":\"Unknown action extension: bat\"}]}");
   }
 
+  @Test
+  public void store_path_of_action_in_mdc_during_execution() {
+    ValidatingRequest request = new TestRequest().setMethod("GET").setPath("/api/system/action_in_mdc");
+    DumbResponse response = new DumbResponse();
+    underTest.execute(request, response);
+
+    assertThat(response.stream().outputAsString()).isEqualTo("api/system/action_in_mdc");
+    assertThat(MDC.get(WebServiceEngine.WS_ACTION_MDC_KEY)).isNull();
+  }
+
+  @Test
+  public void restore_path_of_calling_action_in_mdc() {
+    MDC.put(WebServiceEngine.WS_ACTION_MDC_KEY, "api/calling/action");
+    try {
+      ValidatingRequest request = new TestRequest().setMethod("GET").setPath("/api/system/action_in_mdc");
+      underTest.execute(request, new DumbResponse());
+
+      assertThat(MDC.get(WebServiceEngine.WS_ACTION_MDC_KEY)).isEqualTo("api/calling/action");
+    } finally {
+      MDC.remove(WebServiceEngine.WS_ACTION_MDC_KEY);
+    }
+  }
+
+  @Test
+  public void delegate_execution_to_response_cache() throws Exception {
+    WsResponseCache responseCache = mock(WsResponseCache.class);
+    WebServiceEngine underTest = new WebServiceEngine(new WebService[] {new SystemWs()}, responseCache);
+    ValidatingRequest request = new TestRequest().setMethod("GET").setPath("/api/system/health");
+    DumbResponse response = new DumbResponse();
+
+    underTest.execute(request, response);
+
+    verify(responseCache).handle(any(WebService.Action.class), eq(request), eq(response));
+  }
+
   @Test
   public void no_content() {
     ValidatingRequest request = new TestRequest().setMethod("GET").setPath("/api/system/alive");
@@ -361,6 +400,14 @@ public class WebServiceEngineTest {
         .setHandler((request, response) -> {
           throw new IllegalArgumentException("this should not fail %s");
         });
+      createNewDefaultAction(newController, "action_in_mdc")
+        .setHandler((request, response) -> {
+          try {
+            response.stream().output().write(MDC.get(WebServiceEngine.WS_ACTION_MDC_KEY).getBytes());
+          } catch (IOException e) {
+            throw new IllegalStateException(e);
+          }
+        });
       createNewDefaultAction(newController, "alive")
         .setHandler((request, response) -> response.noContent());
 
@@ -0,0 +1,310 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.api.utils.text.JsonWriter;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeActivityDao;
+import org.sonar.db.user.GroupDto;
+import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonarqube.ws.MediaTypes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonar.server.ws.WsResponseCache.CE_ACTIVITY_CHECK_INTERVAL_MS;
+import static org.sonar.server.ws.WsResponseCache.MAX_SIZE_PROPERTY;
+
+public class WsResponseCacheTest {
+
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+
+  private MapSettings settings = new MapSettings();
+  private TestSystem2 system2 = new TestSystem2().setNow(1_000_000L);
+  private DbClient dbClient = mock(DbClient.class);
+  private CeActivityDao ceActivityDao = mock(CeActivityDao.class);
+  private AtomicInteger executions = new AtomicInteger();
+  private WebService.Controller controller;
+
+  @Before
+  public void setUp() {
+    when(dbClient.openSession(false)).thenReturn(mock(DbSession.class));
+    when(dbClient.ceActivityDao()).thenReturn(ceActivityDao);
+    when(ceActivityDao.selectLastId(any(DbSession.class))).thenReturn(10L);
+
+    WebService.Context context = new WebService.Context();
+    WebService.NewController newController = context.createController("api/foo");
+    newController.createAction("cacheable")
+      .setCacheable(true)
+      .setHandler(this::print)
+      .createParam("message");
+    newController.createAction("not_cacheable")
+      .setHandler(this::print)
+      .createParam("message");
+    newController.createAction("not_found")
+      .setCacheable(true)
+      .setHandler((request, response) -> {
+        executions.incrementAndGet();
+        throw new NotFoundException("not found");
+      });
+    newController.createAction("no_content")
+      .setCacheable(true)
+      .setHandler((request, response) -> {
+        executions.incrementAndGet();
+        response.noContent();
+      });
+    newController.done();
+    controller = context.controller("api/foo");
+  }
+
+  @Test
+  public void cache_response_of_cacheable_action() throws Exception {
+    WsResponseCache underTest = newCache();
+
+    DumbResponse response1 = call(underTest, "cacheable", "hello");
+    DumbResponse response2 = call(underTest, "cacheable", "hello");
+
+    assertThat(executions.get()).isEqualTo(1);
+    assertThat(response1.outputAsString()).isEqualTo("{\"message\":\"hello\"}");
+    assertThat(response2.outputAsString()).isEqualTo(response1.outputAsString());
+    assertThat(response2.stream().mediaType()).isEqualTo(MediaTypes.JSON);
+    assertThat(response2.getHeader("X-Foo")).isEqualTo("bar");
+    WsResponseCache.Statistics statistics = underTest.getStatistics();
+    assertThat(statistics.getHits()).isEqualTo(1);
+    assertThat(statistics.getMisses()).isEqualTo(1);
+    assertThat(statistics.getHitRate()).isEqualTo(0.5);
+    assertThat(statistics.getEntries()).isEqualTo(1);
+    assertThat(statistics.getSizeInBytes()).isPositive();
+  }
+
+  @Test
+  public void do_not_cache_response_of_action_that_is_not_cacheable() throws Exception {
+    WsResponseCache underTest = newCache();
+
+    call(underTest, "not_cacheable", "hello");
+    DumbResponse response = call(underTest, "not_cacheable", "hello");
+
+    assertThat(executions.get()).isEqualTo(2);
+    assertThat(response.outputAsString()).isEqualTo("{\"message\":\"hello\"}");
+    assertThat(underTest.getStatistics().getMisses()).isZero();
+  }
+
+  @Test
+  public void responses_depend_on_parameters() throws Exception {
+    WsResponseCache underTest = newCache();
+
+    call(underTest, "cacheable", "hello");
+    DumbResponse response = call(underTest, "cacheable", "world");
+
+    assertThat(executions.get()).isEqualTo(2);
+    assertThat(response.outputAsString()).isEqualTo("{\"message\":\"world\"}");
+  }
+
+  @Test
+  public void responses_depend_on_user() throws Exception {
+    WsResponseCache underTest = newCache();
+
+    userSession.anonymous();
+    call(underTest, "cacheable", "hello");
+    call(underTest, "cacheable", "hello");
+    userSession.logIn("john");
+    call(underTest, "cacheable", "hello");
+    userSession.logIn("jane");
+    call(underTest, "cacheable", "hello");
+    call(underTest, "cacheable", "hello");
+
+    assertThat(executions.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void responses_depend_on_groups_of_user() throws Exception {
+    WsResponseCache underTest = newCache();
+    GroupDto group1 = new GroupDto().setId(1).setName("group1");
+    GroupDto group2 = new GroupDto().setId(2).setName("group2");
+
+    userSession.logIn("john").setGroups(group1, group2);
+    call(underTest, "cacheable", "hello");
+    userSession.logIn("john").setGroups(group2, group1);
+    call(underTest, "cacheable", "hello");
+    assertThat(executions.get()).isEqualTo(1);
+
+    // user is removed from a group
+    userSession.logIn("john").setGroups(group1);
+    call(underTest, "cacheable", "hello");
+    assertThat(executions.get()).isEqualTo(2);
+
+    userSession.logIn("john").setGroups(group1).setRoot();
+    call(underTest, "cacheable", "hello");
+    assertThat(executions.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void responses_depend_on_media_type() throws Exception {
+    WsResponseCache underTest = newCache();
+
+    call(underTest, new TestRequest().setPath("api/foo/cacheable").setMediaType(MediaTypes.JSON), "cacheable");
+    call(underTest, new TestRequest().setPath("api/foo/cacheable").setMediaType(MediaTypes.PROTOBUF), "cacheable");
+
+    assertThat(executions.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void do_not_cache_errors() throws Exception {
+    WsResponseCache underTest = newCache();
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        call(underTest, "not_found", null);
+        fail();
+      } catch (NotFoundException e) {
+        // expected
+      }
+    }
+
+    assertThat(executions.get()).isEqualTo(2);
+    assertThat(underTest.getStatistics().getEntries()).isZero();
+  }
+
+  @Test
+  public void do_not_cache_responses_without_content() throws Exception {
+    WsResponseCache underTest = newCache();
+
+    call(underTest, "no_content", null);
+    call(underTest, "no_content", null);
+
+    assertThat(executions.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void do_not_cache_responses_bigger_than_a_tenth_of_the_cache() throws Exception {
+    settings.setProperty(MAX_SIZE_PROPERTY, 1);
+    WsResponseCache underTest = newCache();
+    String bigMessage = StringUtils.repeat("a", 120 * 1024);
+
+    call(underTest, "cacheable", bigMessage);
+    DumbResponse response = call(underTest, "cacheable", bigMessage);
+
+    assertThat(executions.get()).isEqualTo(2);
+    assertThat(response.outputAsString()).contains(bigMessage);
+  }
+
+  @Test
+  public void invalidate_all_responses() throws Exception {
+    WsResponseCache underTest = newCache();
+    call(underTest, "cacheable", "hello");
+
+    underTest.invalidateAll();
+    call(underTest, "cacheable", "hello");
+
+    assertThat(executions.get()).isEqualTo(2);
+    assertThat(underTest.getStatistics().getInvalidations()).isEqualTo(1);
+  }
+
+  @Test
+  public void invalidate_all_responses_from_hazelcast_distributed_query() throws Exception {
+    WsResponseCache underTest = newCache();
+    underTest.start();
+    call(underTest, "cacheable", "hello");
+
+    WsResponseCache.invalidateFromHazelcastDistributedQuery();
+    call(underTest, "cacheable", "hello");
+    underTest.stop();
+
+    assertThat(executions.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void invalidate_all_responses_when_a_compute_engine_task_is_completed() throws Exception {
+    WsResponseCache underTest = newCache();
+    call(underTest, "cacheable", "hello");
+
+    // not checked again before the end of interval
+    when(ceActivityDao.selectLastId(any(DbSession.class))).thenReturn(11L);
+    system2.setNow(system2.now() + CE_ACTIVITY_CHECK_INTERVAL_MS - 1);
+    call(underTest, "cacheable", "hello");
+    assertThat(executions.get()).isEqualTo(1);
+
+    system2.setNow(system2.now() + 1);
+    call(underTest, "cacheable", "hello");
+    assertThat(executions.get()).isEqualTo(2);
+
+    // no new activity
+    system2.setNow(system2.now() + CE_ACTIVITY_CHECK_INTERVAL_MS);
+    call(underTest, "cacheable", "hello");
+    assertThat(executions.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void disable_cache_if_max_size_is_zero() throws Exception {
+    settings.setProperty(MAX_SIZE_PROPERTY, 0);
+    WsResponseCache underTest = newCache();
+
+    call(underTest, "cacheable", "hello");
+    call(underTest, "cacheable", "hello");
+
+    assertThat(underTest.isEnabled()).isFalse();
+    assertThat(executions.get()).isEqualTo(2);
+    assertThat(underTest.getStatistics().getMisses()).isZero();
+  }
+
+  private WsResponseCache newCache() {
+    return new WsResponseCache(settings.asConfig(), userSession, dbClient, system2);
+  }
+
+  private DumbResponse call(WsResponseCache underTest, String actionKey, @Nullable String message) throws Exception {
+    TestRequest request = new TestRequest().setPath("api/foo/" + actionKey).setMediaType(MediaTypes.JSON);
+    if (message != null) {
+      request.setParam("message", message);
+    }
+    return call(underTest, request, actionKey);
+  }
+
+  private DumbResponse call(WsResponseCache underTest, TestRequest request, String actionKey) throws Exception {
+    WebService.Action action = controller.action(actionKey);
+    request.setAction(action);
+    DumbResponse response = new DumbResponse();
+    underTest.handle(action, request, response);
+    return response;
+  }
+
+  private void print(Request request, Response response) {
+    executions.incrementAndGet();
+    response.setHeader("X-Foo", "bar");
+    try (JsonWriter json = response.newJsonWriter()) {
+      json.beginObject().prop("message", request.param("message")).endObject();
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.CheckForNull;
+
+import static java.lang.String.format;
+
+/**
+ * Compares two JSON result files generated by {@link BenchmarkRunner}, typically the results of the
+ * target branch and of the commit to be verified. Exits with status 1 if at least one benchmark
+ * regressed by more than the threshold (10% by default).
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar org.sonar.benchmarks.BenchmarkComparator <baseline.json> <current.json> [threshold in %]}
+ */
+public class BenchmarkComparator {
+
+  static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+
+  private final double thresholdPercent;
+
+  public BenchmarkComparator(double thresholdPercent) {
+    this.thresholdPercent = thresholdPercent;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: BenchmarkComparator <baseline.json> <current.json> [threshold in %]");
+      System.exit(2);
+    }
+    double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+    List<Comparison> comparisons;
+    try (Reader baseline = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8);
+      Reader current = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+      comparisons = new BenchmarkComparator(threshold).compare(baseline, current);
+    }
+    boolean regression = false;
+    for (Comparison comparison : comparisons) {
+      System.out.println(comparison);
+      regression |= comparison.isRegression();
+    }
+    System.exit(regression ? 1 : 0);
+  }
+
+  public List<Comparison> compare(Reader baselineJson, Reader currentJson) {
+    Map<String, Score> baseline = parse(baselineJson);
+    Map<String, Score> current = parse(currentJson);
+    List<Comparison> result = new ArrayList<>();
+    for (Map.Entry<String, Score> entry : current.entrySet()) {
+      result.add(new Comparison(entry.getKey(), baseline.get(entry.getKey()), entry.getValue(), thresholdPercent));
+    }
+    return result;
+  }
+
+  private static Map<String, Score> parse(Reader json) {
+    JsonArray results = new JsonParser().parse(json).getAsJsonArray();
+    Map<String, Score> scores = new LinkedHashMap<>();
+    for (JsonElement element : results) {
+      JsonObject result = element.getAsJsonObject();
+      JsonObject metric = result.getAsJsonObject("primaryMetric");
+      Score score = new Score(result.get("mode").getAsString(), metric.get("score").getAsDouble(), metric.get("scoreUnit").getAsString());
+      scores.put(keyOf(result), score);
+    }
+    return scores;
+  }
+
+  private static String keyOf(JsonObject result) {
+    StringBuilder key = new StringBuilder(result.get("benchmark").getAsString());
+    JsonObject params = result.getAsJsonObject("params");
+    if (params != null) {
+      // sort parameters so that key does not depend on order in file
+      Map<String, String> sortedParams = new TreeMap<>();
+      params.entrySet().forEach(param -> sortedParams.put(param.getKey(), param.getValue().getAsString()));
+      sortedParams.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+    }
+    return key.toString();
+  }
+
+  static class Score {
+    private final String mode;
+    private final double value;
+    private final String unit;
+
+    Score(String mode, double value, String unit) {
+      this.mode = mode;
+      this.value = value;
+      this.unit = unit;
+    }
+
+    /**
+     * In throughput mode a higher score is better. In all other modes (average time, sample time, ...)
+     * a lower score is better.
+     */
+    boolean isHigherBetter() {
+      return "thrpt".equals(mode);
+    }
+  }
+
+  public static class Comparison {
+    private final String key;
+    @CheckForNull
+    private final Score baseline;
+    private final Score current;
+    private final double thresholdPercent;
+
+    Comparison(String key, @CheckForNull Score baseline, Score current, double thresholdPercent) {
+      this.key = key;
+      this.baseline = baseline;
+      this.current = current;
+      this.thresholdPercent = thresholdPercent;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    /**
+     * Relative change of score, in percent. Positive value means that performance improved. Null
+     * if benchmark does not exist in baseline.
+     */
+    @CheckForNull
+    public Double getImprovementPercent() {
+      if (baseline == null || baseline.value == 0.0) {
+        return null;
+      }
+      double delta = (current.value - baseline.value) / baseline.value * 100.0;
+      return current.isHigherBetter() ? delta : -delta;
+    }
+
+    public boolean isRegression() {
+      Double improvement = getImprovementPercent();
+      return improvement != null && improvement < -thresholdPercent;
+    }
+
+    @Override
+    public String toString() {
+      Double improvement = getImprovementPercent();
+      if (improvement == null) {
+        return format("%-8s %s: %.3f %s", "NEW", key, current.value, current.unit);
+      }
+      String status = isRegression() ? "SLOWER" : "OK";
+      return format("%-8s %s: %.3f -> %.3f %s (%+.1f%%)", status, key, baseline.value, current.value, current.unit, improvement);
+    }
+  }
+}
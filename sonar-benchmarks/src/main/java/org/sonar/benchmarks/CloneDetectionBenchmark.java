@@ -0,0 +1,127 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
+import org.sonar.duplications.index.CloneGroup;
+import org.sonar.duplications.index.PackedMemoryCloneIndex;
+
+/**
+ * Copy-paste detection as executed by the scanner and by the Compute Engine for cross-project duplications:
+ * blocks of all files are inserted in a {@link PackedMemoryCloneIndex}, then clones are detected file by file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CloneDetectionBenchmark {
+
+  private static final int BLOCKS_PER_FILE = 200;
+  private static final int FRAGMENT_SIZE = 15;
+  private static final int NB_SHARED_FRAGMENTS = 50;
+
+  @Param({"100", "1000"})
+  public int files;
+
+  private List<List<Block>> blocksByFile;
+  private PackedMemoryCloneIndex index;
+
+  @Setup
+  public void setUp() {
+    Random random = Datasets.newRandom();
+    long[][] sharedFragments = new long[NB_SHARED_FRAGMENTS][FRAGMENT_SIZE];
+    for (long[] fragment : sharedFragments) {
+      for (int i = 0; i < fragment.length; i++) {
+        fragment[i] = random.nextLong();
+      }
+    }
+
+    blocksByFile = new ArrayList<>(files);
+    for (int f = 0; f < files; f++) {
+      blocksByFile.add(generateFileBlocks(random, "file" + f, sharedFragments));
+    }
+    index = buildIndex();
+  }
+
+  private static List<Block> generateFileBlocks(Random random, String resourceId, long[][] sharedFragments) {
+    List<Block> blocks = new ArrayList<>(BLOCKS_PER_FILE);
+    Block.Builder builder = Block.builder().setResourceId(resourceId);
+    while (blocks.size() < BLOCKS_PER_FILE) {
+      // about 20% of the code is copy-pasted from another location
+      boolean duplicated = random.nextInt(5) == 0;
+      long[] fragment = duplicated ? sharedFragments[random.nextInt(sharedFragments.length)] : null;
+      for (int i = 0; i < FRAGMENT_SIZE && blocks.size() < BLOCKS_PER_FILE; i++) {
+        long hash = duplicated ? fragment[i] : random.nextLong();
+        int index = blocks.size();
+        blocks.add(builder
+          .setBlockHash(new ByteArray(hash))
+          .setIndexInFile(index)
+          .setLines(index + 1, index + 10)
+          .setUnit(index * 10, index * 10 + 50)
+          .build());
+      }
+    }
+    return blocks;
+  }
+
+  private PackedMemoryCloneIndex buildIndex() {
+    PackedMemoryCloneIndex result = new PackedMemoryCloneIndex();
+    for (List<Block> blocks : blocksByFile) {
+      for (Block block : blocks) {
+        result.insert(block);
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public PackedMemoryCloneIndex insertAllBlocks() {
+    return buildIndex();
+  }
+
+  @Benchmark
+  public int detectAllFiles() {
+    int groups = 0;
+    for (List<Block> blocks : blocksByFile) {
+      List<CloneGroup> clones = SuffixTreeCloneDetectionAlgorithm.detect(index, blocks);
+      groups += clones.size();
+    }
+    return groups;
+  }
+}
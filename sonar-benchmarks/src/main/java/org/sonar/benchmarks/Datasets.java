@@ -0,0 +1,122 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic generator of the datasets used by benchmarks. The same seed always
+ * produces the same data, so that results of two commits can be compared.
+ */
+public final class Datasets {
+
+  public static final long SEED = 42L;
+
+  private static final String[] STATEMENTS = {
+    "    int %s = %d;",
+    "    String %s = \"value_%d\";",
+    "    if (%s > %d) {",
+    "    }",
+    "    for (int i = 0; i < %2$d; i++) { %1$s += i; }",
+    "    return %s + %d;",
+    "    // TODO review %s, see ticket %d",
+    "    LOG.debug(\"%s={}\", %d);",
+    "",
+    "    list.add(%s.get(%d));"
+  };
+
+  private static final String[] MARKDOWN_PARAGRAPHS = {
+    "Unused private fields should be removed, as they make the code harder to read. See *field %s* declared at line %d.",
+    "== Noncompliant Code Example\n",
+    "``\npublic class Foo {\n  private int %s = %d; // Noncompliant\n}\n``",
+    "* Parameter ``%s`` is never read\n* Value %d is a magic number\n* Field is not final",
+    "1. Declare the field\n1. Use it %2$d times\n1. Remove %1$s",
+    "> Deprecated since %2$d, see %1$s",
+    "See [MITRE, CWE-%2$d](http://cwe.mitre.org/data/definitions/%2$d) and http://docs.sonarqube.org/display/%1$s for more details.",
+    "Some <html> & \"quoted\" text about %s, which must be escaped (%d%%)."
+  };
+
+  private Datasets() {
+    // only statics
+  }
+
+  public static Random newRandom() {
+    return new Random(SEED);
+  }
+
+  /**
+   * Lines of a Java-like source file. About 10% of lines are blank or single braces,
+   * like in real code bases.
+   */
+  public static List<String> sourceLines(Random random, int nbLines) {
+    List<String> lines = new ArrayList<>(nbLines);
+    lines.add("package org.sonar.generated;");
+    lines.add("");
+    lines.add("public class Generated" + random.nextInt(10_000) + " {");
+    while (lines.size() < nbLines - 1) {
+      if (random.nextInt(20) == 0) {
+        lines.add("  public void method" + lines.size() + "() {");
+      } else {
+        String statement = STATEMENTS[random.nextInt(STATEMENTS.length)];
+        lines.add(String.format(statement, "var" + random.nextInt(50), random.nextInt(1_000)));
+      }
+    }
+    lines.add("}");
+    return lines;
+  }
+
+  public static String sourceText(Random random, int nbLines) {
+    return String.join("\n", sourceLines(random, nbLines)) + "\n";
+  }
+
+  /**
+   * Copy of {@code lines} where about {@code changeRatio} percent of lines are modified, removed or inserted.
+   */
+  public static List<String> editedLines(Random random, List<String> lines, int changeRatio) {
+    List<String> result = new ArrayList<>(lines.size());
+    for (String line : lines) {
+      int dice = random.nextInt(100);
+      if (dice >= changeRatio) {
+        result.add(line);
+      } else if (dice % 3 == 0) {
+        result.add(line + " // edited");
+      } else if (dice % 3 == 1) {
+        result.add(line);
+        result.add("    inserted(" + random.nextInt(1_000) + ");");
+      }
+      // else line is removed
+    }
+    return result;
+  }
+
+  /**
+   * Markdown text similar to the descriptions of rules and to the comments of issues
+   */
+  public static String markdownText(Random random, int nbParagraphs) {
+    List<String> paragraphs = new ArrayList<>(nbParagraphs);
+    for (int i = 0; i < nbParagraphs; i++) {
+      String paragraph = MARKDOWN_PARAGRAPHS[random.nextInt(MARKDOWN_PARAGRAPHS.length)];
+      paragraphs.add(String.format(paragraph, "var" + random.nextInt(50), random.nextInt(1_000)));
+    }
+    return String.join("\n\n", paragraphs);
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.System2;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.server.util.cache.DiskCache;
+
+/**
+ * Full traversal of the issues serialized on disk by the Compute Engine, as done by every
+ * step consuming {@code IssueCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DiskCacheBenchmark {
+
+  @Param({"10000", "100000"})
+  public int issues;
+
+  private File dir;
+  private DiskCache<DefaultIssue> cache;
+
+  @Setup
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("benchmark-diskcache").toFile();
+    cache = new DiskCache<>(new File(dir, "issues"), System2.INSTANCE);
+    Random random = Datasets.newRandom();
+    try (DiskCache<DefaultIssue>.DiskAppender appender = cache.newAppender()) {
+      for (int i = 0; i < issues; i++) {
+        appender.append(newIssue(random, i));
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    FileUtils.deleteQuietly(dir);
+  }
+
+  static DefaultIssue newIssue(Random random, int index) {
+    return new DefaultIssue()
+      .setKey("AVx-issue-" + index)
+      .setType(RuleType.CODE_SMELL)
+      .setRuleKey(RuleKey.of("java", "S" + random.nextInt(100)))
+      .setComponentUuid("file-" + (index / 20))
+      .setComponentKey("org.sonar:project:src/main/java/File" + (index / 20) + ".java")
+      .setProjectUuid("project")
+      .setProjectKey("org.sonar:project")
+      .setSeverity(Severity.MAJOR)
+      .setMessage("Remove this unused private field " + random.nextInt(1_000))
+      .setLine(1 + random.nextInt(2_000))
+      .setStatus("OPEN")
+      .setChecksum(Long.toHexString(random.nextLong()))
+      .setCreationDate(new Date(1_500_000_000_000L + index));
+  }
+
+  @Benchmark
+  public int traverse() {
+    int count = 0;
+    try (CloseableIterator<DefaultIssue> it = cache.traverse()) {
+      while (it.hasNext()) {
+        it.next();
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.db.source.FileSourceDto;
+
+/**
+ * Compression and decompression of the column FILE_SOURCES.BINARY_DATA, as done by
+ * the Compute Engine when persisting sources and by web services when displaying them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileSourceDtoBenchmark {
+
+  @Param({"100", "2000", "20000"})
+  public int lines;
+
+  private final FileSourceDto dto = new FileSourceDto();
+  private DbFileSources.Data data;
+  private byte[] encoded;
+
+  @Setup
+  public void setUp() {
+    Random random = Datasets.newRandom();
+    List<String> sourceLines = Datasets.sourceLines(random, lines);
+    DbFileSources.Data.Builder builder = DbFileSources.Data.newBuilder();
+    for (int i = 0; i < sourceLines.size(); i++) {
+      String source = sourceLines.get(i);
+      DbFileSources.Line.Builder line = builder.addLinesBuilder()
+        .setLine(i + 1)
+        .setSource(source)
+        .setScmRevision(Long.toHexString(random.nextLong()))
+        .setScmAuthor("author" + random.nextInt(10) + "@sonarsource.com")
+        .setScmDate(1_500_000_000_000L + random.nextInt(1_000_000))
+        .setHighlighting("0," + source.length() + ",k");
+      if (random.nextBoolean()) {
+        line.setLineHits(random.nextInt(10)).setConditions(2).setCoveredConditions(random.nextInt(3));
+      }
+    }
+    data = builder.build();
+    encoded = FileSourceDto.encodeSourceData(data);
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    return FileSourceDto.encodeSourceData(data);
+  }
+
+  @Benchmark
+  public DbFileSources.Data decode() {
+    return dto.decodeSourceData(encoded);
+  }
+}
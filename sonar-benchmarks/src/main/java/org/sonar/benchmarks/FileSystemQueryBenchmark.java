@@ -0,0 +1,96 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.batch.fs.FilePredicate;
+import org.sonar.api.batch.fs.FilePredicates;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+
+/**
+ * Query of the files of a given language, type and status, as done repeatedly by sensors
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileSystemQueryBenchmark {
+
+  private static final String[] LANGUAGES = {"java", "java", "java", "js", "xml"};
+
+  @Param({"10000", "100000"})
+  public int files;
+
+  private DefaultFileSystem fs;
+
+  @Setup
+  public void setUp() {
+    fs = new DefaultFileSystem(Paths.get("benchmark"));
+    Random random = Datasets.newRandom();
+    for (int i = 0; i < files; i++) {
+      String language = LANGUAGES[random.nextInt(LANGUAGES.length)];
+      fs.add(new TestInputFileBuilder("benchmark", String.format("src/dir%d/File%d.%s", i % 100, i, language))
+        .setLanguage(language)
+        .setType(random.nextInt(4) == 0 ? InputFile.Type.TEST : InputFile.Type.MAIN)
+        .setStatus(random.nextInt(10) == 0 ? InputFile.Status.CHANGED : InputFile.Status.SAME)
+        .build());
+    }
+  }
+
+  @Benchmark
+  public int query() {
+    FilePredicates p = fs.predicates();
+    return count(fs.inputFiles(p.and(p.hasLanguage("js"), p.hasType(InputFile.Type.MAIN), p.hasStatus(InputFile.Status.CHANGED))));
+  }
+
+  /**
+   * Same query with a predicate that can neither use indexes nor be memoized
+   */
+  @Benchmark
+  public int queryWithCustomPredicate() {
+    FilePredicate predicate = f -> "js".equals(f.language()) && f.type() == InputFile.Type.MAIN && f.status() == InputFile.Status.CHANGED;
+    return count(fs.inputFiles(predicate));
+  }
+
+  private static int count(Iterable<InputFile> inputFiles) {
+    int count = 0;
+    for (InputFile inputFile : inputFiles) {
+      count++;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.batch.fs.internal.FileMetadata;
+import org.sonar.api.batch.fs.internal.Metadata;
+import org.sonar.api.batch.fs.internal.charhandler.CharHandler;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.core.config.IssueExclusionProperties;
+import org.sonar.scanner.issue.ignore.pattern.IssueExclusionPatternInitializer;
+import org.sonar.scanner.issue.ignore.pattern.PatternMatcher;
+import org.sonar.scanner.issue.ignore.scanner.IssueExclusionsLoader;
+
+/**
+ * Search of the issue exclusion patterns ("allfile" and "block" regular expressions) in the lines of a source file,
+ * during the read of its metadata. None of the patterns match, so that all patterns are evaluated on all lines.
+ * <ul>
+ *   <li>{@link #combinedPatterns()} uses {@link IssueExclusionsLoader}</li>
+ *   <li>{@link #patternByPattern()} evaluates each regular expression on each line, as the scanner did before
+ *   patterns were combined</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IssueExclusionsBenchmark {
+
+  @Param({"2", "20"})
+  public int patterns;
+
+  @Param({"2000"})
+  public int lines;
+
+  private final FileMetadata fileMetadata = new FileMetadata();
+  private byte[] content;
+  private IssueExclusionsLoader loader;
+  private List<Pattern> allFilePatterns;
+  private List<Pattern> blockStartPatterns;
+
+  @Setup
+  public void setUp() {
+    content = Datasets.sourceText(Datasets.newRandom(), lines).getBytes(StandardCharsets.UTF_8);
+
+    MapSettings settings = new MapSettings();
+    List<String> ids = new ArrayList<>();
+    allFilePatterns = new ArrayList<>();
+    blockStartPatterns = new ArrayList<>();
+    for (int i = 0; i < patterns; i++) {
+      String id = String.valueOf(i);
+      ids.add(id);
+      // half of the patterns are plain literals, as most of the patterns configured on real instances
+      String fileRegexp = i % 2 == 0 ? ("@Generated" + i) : ("(?i)do\\s+not\\s+edit " + i);
+      String beginRegexp = i % 2 == 0 ? ("// BEGIN-GENERATED-" + i) : ("^\\s*/\\* excluded-[a-z]+-" + i);
+      settings.setProperty(IssueExclusionProperties.PATTERNS_ALLFILE_KEY + "." + id + "." + IssueExclusionProperties.FILE_REGEXP, fileRegexp);
+      settings.setProperty(IssueExclusionProperties.PATTERNS_BLOCK_KEY + "." + id + "." + IssueExclusionProperties.BEGIN_BLOCK_REGEXP, beginRegexp);
+      settings.setProperty(IssueExclusionProperties.PATTERNS_BLOCK_KEY + "." + id + "." + IssueExclusionProperties.END_BLOCK_REGEXP, "// END-GENERATED");
+      allFilePatterns.add(Pattern.compile(fileRegexp));
+      blockStartPatterns.add(Pattern.compile(beginRegexp));
+    }
+    settings.setProperty(IssueExclusionProperties.PATTERNS_ALLFILE_KEY, String.join(",", ids));
+    settings.setProperty(IssueExclusionProperties.PATTERNS_BLOCK_KEY, String.join(",", ids));
+    loader = new IssueExclusionsLoader(new IssueExclusionPatternInitializer(settings.asConfig()), new PatternMatcher());
+  }
+
+  @Benchmark
+  public Metadata combinedPatterns() {
+    return fileMetadata.readMetadata(new ByteArrayInputStream(content), StandardCharsets.UTF_8, "Generated.java", loader.createCharHandlerFor("project:Generated.java"));
+  }
+
+  @Benchmark
+  public Metadata patternByPattern() {
+    return fileMetadata.readMetadata(new ByteArrayInputStream(content), StandardCharsets.UTF_8, "Generated.java",
+      new PatternByPatternHandler(allFilePatterns, blockStartPatterns));
+  }
+
+  private static class PatternByPatternHandler extends CharHandler {
+    private final StringBuilder sb = new StringBuilder();
+    private final List<Pattern> allFilePatterns;
+    private final List<Pattern> blockStartPatterns;
+    private int matches = 0;
+
+    PatternByPatternHandler(List<Pattern> allFilePatterns, List<Pattern> blockStartPatterns) {
+      this.allFilePatterns = allFilePatterns;
+      this.blockStartPatterns = blockStartPatterns;
+    }
+
+    @Override
+    public void handleIgnoreEoL(char c) {
+      sb.append(c);
+    }
+
+    @Override
+    public void newLine() {
+      processLine(sb.toString());
+      sb.setLength(0);
+    }
+
+    @Override
+    public void eof() {
+      processLine(sb.toString());
+    }
+
+    private void processLine(String line) {
+      if (line.trim().length() == 0) {
+        return;
+      }
+      for (Pattern pattern : allFilePatterns) {
+        if (pattern.matcher(line).find()) {
+          matches++;
+          return;
+        }
+      }
+      for (Pattern pattern : blockStartPatterns) {
+        if (pattern.matcher(line).find()) {
+          matches++;
+          return;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.utils.text.JsonWriter;
+import org.sonar.core.util.ProtobufJsonFormat;
+import org.sonarqube.ws.Common;
+import org.sonarqube.ws.Issues;
+
+/**
+ * JSON serialization of a protobuf web service response, as done for each request
+ * to a web service that does not accept protobuf. The response is a page of {@code api/issues/search}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProtobufJsonFormatBenchmark {
+
+  @Param({"100", "500"})
+  public int pageSize;
+
+  private Issues.SearchWsResponse response;
+
+  @Setup
+  public void setUp() {
+    Random random = Datasets.newRandom();
+    Issues.SearchWsResponse.Builder builder = Issues.SearchWsResponse.newBuilder()
+      .setTotal(pageSize * 10L)
+      .setP(1)
+      .setPs(pageSize);
+    for (int i = 0; i < pageSize; i++) {
+      int line = 1 + random.nextInt(2_000);
+      builder.addIssues(Issues.Issue.newBuilder()
+        .setKey("AVx-issue-" + i)
+        .setRule("java:S" + random.nextInt(100))
+        .setSeverity(Common.Severity.MAJOR)
+        .setComponent("org.sonar:project:src/main/java/File" + (i / 20) + ".java")
+        .setProject("org.sonar:project")
+        .setLine(line)
+        .setTextRange(Common.TextRange.newBuilder().setStartLine(line).setEndLine(line).setStartOffset(4).setEndOffset(30))
+        .setStatus("OPEN")
+        .setMessage("Remove this unused private field " + random.nextInt(1_000))
+        .setEffort("5min")
+        .addTags("unused")
+        .addTags("convention")
+        .setCreationDate("2017-08-01T12:00:00+0200")
+        .setUpdateDate("2017-08-02T12:00:00+0200")
+        .setType(Common.RuleType.CODE_SMELL)
+        .setOrganization("default-organization"));
+    }
+    response = builder.build();
+  }
+
+  @Benchmark
+  public String write() {
+    StringWriter json = new StringWriter();
+    try (JsonWriter writer = JsonWriter.of(json)) {
+      ProtobufJsonFormat.write(response, writer);
+    }
+    return json.toString();
+  }
+}
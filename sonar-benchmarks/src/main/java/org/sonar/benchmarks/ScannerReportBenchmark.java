@@ -0,0 +1,110 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.scanner.protocol.Constants;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReportReader;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+
+/**
+ * Write of the issues of a file into the scanner report, then read by the Compute Engine.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScannerReportBenchmark {
+
+  private static final int COMPONENT_REF = 2;
+
+  @Param({"10", "1000"})
+  public int issues;
+
+  private File dir;
+  private List<ScannerReport.Issue> reportIssues;
+
+  @Setup
+  public void setUp() {
+    Random random = Datasets.newRandom();
+    reportIssues = new ArrayList<>(issues);
+    for (int i = 0; i < issues; i++) {
+      int line = 1 + random.nextInt(2_000);
+      reportIssues.add(ScannerReport.Issue.newBuilder()
+        .setRuleRepository("java")
+        .setRuleKey("S" + random.nextInt(100))
+        .setMsg("Remove this unused private field " + random.nextInt(1_000))
+        .setSeverity(Constants.Severity.MAJOR)
+        .setGap(random.nextInt(10))
+        .setTextRange(ScannerReport.TextRange.newBuilder().setStartLine(line).setEndLine(line).setStartOffset(4).setEndOffset(30))
+        .build());
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void createDir() throws IOException {
+    dir = Files.createTempDirectory("benchmark-report").toFile();
+  }
+
+  @TearDown(Level.Invocation)
+  public void deleteDir() {
+    FileUtils.deleteQuietly(dir);
+  }
+
+  @Benchmark
+  public int writeAndRead() {
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    writer.writeComponentIssues(COMPONENT_REF, reportIssues);
+
+    int count = 0;
+    ScannerReportReader reader = new ScannerReportReader(dir);
+    try (CloseableIterator<ScannerReport.Issue> it = reader.readComponentIssues(COMPONENT_REF)) {
+      while (it.hasNext()) {
+        it.next();
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.core.issue.tracking.BlockHashSequence;
+import org.sonar.core.issue.tracking.Input;
+import org.sonar.core.issue.tracking.LineHashSequence;
+import org.sonar.core.issue.tracking.Trackable;
+import org.sonar.core.issue.tracking.Tracker;
+import org.sonar.core.issue.tracking.Tracking;
+
+/**
+ * Issue tracking of a single file, between the issues raised by the analysis and the issues stored
+ * in database. Source of the file is slightly modified between the two analyses, so that
+ * all the matching passes, including detection of moved blocks, are executed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrackerBenchmark {
+
+  private static final int NB_RULES = 20;
+
+  @Param({"10", "500"})
+  public int issues;
+
+  private final Tracker<FakeIssue, FakeIssue> tracker = new Tracker<>();
+  private FakeInput raw;
+  private FakeInput base;
+
+  @Setup
+  public void setUp() {
+    Random random = Datasets.newRandom();
+    List<String> baseLines = Datasets.sourceLines(random, 2_000);
+    List<String> rawLines = Datasets.editedLines(random, baseLines, 5);
+    base = new FakeInput(baseLines, random, issues);
+    raw = new FakeInput(rawLines, random, issues);
+  }
+
+  @Benchmark
+  public Tracking<FakeIssue, FakeIssue> track() {
+    return tracker.track(raw, base);
+  }
+
+  private static class FakeInput implements Input<FakeIssue> {
+    private final LineHashSequence lineHashes;
+    private final BlockHashSequence blockHashes;
+    private final List<FakeIssue> issues;
+
+    FakeInput(List<String> lines, Random random, int nbIssues) {
+      this.lineHashes = LineHashSequence.createForLines(lines);
+      this.blockHashes = BlockHashSequence.create(lineHashes);
+      this.issues = new ArrayList<>(nbIssues);
+      for (int i = 0; i < nbIssues; i++) {
+        int line = 1 + random.nextInt(lines.size());
+        RuleKey ruleKey = RuleKey.of("java", "S" + random.nextInt(NB_RULES));
+        issues.add(new FakeIssue(ruleKey, line, lineHashes.getHashForLine(line), "Message of " + ruleKey));
+      }
+    }
+
+    @Override
+    public LineHashSequence getLineHashSequence() {
+      return lineHashes;
+    }
+
+    @Override
+    public BlockHashSequence getBlockHashSequence() {
+      return blockHashes;
+    }
+
+    @Override
+    public Collection<FakeIssue> getIssues() {
+      return issues;
+    }
+  }
+
+  private static class FakeIssue implements Trackable {
+    private final RuleKey ruleKey;
+    private final Integer line;
+    private final String lineHash;
+    private final String message;
+
+    FakeIssue(RuleKey ruleKey, Integer line, String lineHash, String message) {
+      this.ruleKey = ruleKey;
+      this.line = line;
+      this.lineHash = lineHash;
+      this.message = message;
+    }
+
+    @CheckForNull
+    @Override
+    public Integer getLine() {
+      return line;
+    }
+
+    @Override
+    public String getMessage() {
+      return message;
+    }
+
+    @CheckForNull
+    @Override
+    public String getLineHash() {
+      return lineHash;
+    }
+
+    @Override
+    public RuleKey getRuleKey() {
+      return ruleKey;
+    }
+  }
+}
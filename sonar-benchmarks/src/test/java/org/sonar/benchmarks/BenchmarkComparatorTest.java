@@ -0,0 +1,85 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.io.StringReader;
+import java.util.List;
+import org.junit.Test;
+import org.sonar.benchmarks.BenchmarkComparator.Comparison;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BenchmarkComparatorTest {
+
+  private BenchmarkComparator underTest = new BenchmarkComparator(10.0);
+
+  @Test
+  public void detect_regression_of_average_time() {
+    List<Comparison> comparisons = underTest.compare(
+      json(result("org.sonar.benchmarks.FooBenchmark.foo", "avgt", 100.0)),
+      json(result("org.sonar.benchmarks.FooBenchmark.foo", "avgt", 150.0)));
+
+    assertThat(comparisons).hasSize(1);
+    Comparison comparison = comparisons.get(0);
+    assertThat(comparison.getKey()).isEqualTo("org.sonar.benchmarks.FooBenchmark.foo size=10");
+    assertThat(comparison.getImprovementPercent()).isEqualTo(-50.0);
+    assertThat(comparison.isRegression()).isTrue();
+    assertThat(comparison.toString()).startsWith("SLOWER");
+  }
+
+  @Test
+  public void variation_below_threshold_is_not_a_regression() {
+    List<Comparison> comparisons = underTest.compare(
+      json(result("org.sonar.benchmarks.FooBenchmark.foo", "avgt", 100.0)),
+      json(result("org.sonar.benchmarks.FooBenchmark.foo", "avgt", 105.0)));
+
+    assertThat(comparisons.get(0).isRegression()).isFalse();
+  }
+
+  @Test
+  public void higher_score_is_better_in_throughput_mode() {
+    List<Comparison> comparisons = underTest.compare(
+      json(result("org.sonar.benchmarks.FooBenchmark.foo", "thrpt", 100.0)),
+      json(result("org.sonar.benchmarks.FooBenchmark.foo", "thrpt", 150.0)));
+
+    assertThat(comparisons.get(0).getImprovementPercent()).isEqualTo(50.0);
+    assertThat(comparisons.get(0).isRegression()).isFalse();
+  }
+
+  @Test
+  public void benchmark_missing_from_baseline_is_new() {
+    List<Comparison> comparisons = underTest.compare(
+      json(),
+      json(result("org.sonar.benchmarks.FooBenchmark.foo", "avgt", 100.0)));
+
+    assertThat(comparisons.get(0).getImprovementPercent()).isNull();
+    assertThat(comparisons.get(0).isRegression()).isFalse();
+    assertThat(comparisons.get(0).toString()).startsWith("NEW");
+  }
+
+  private static String result(String benchmark, String mode, double score) {
+    return "{\"benchmark\": \"" + benchmark + "\", \"mode\": \"" + mode + "\", \"params\": {\"size\": \"10\"}," +
+      "\"primaryMetric\": {\"score\": " + score + ", \"scoreError\": 1.0, \"scoreUnit\": \"us/op\"}}";
+  }
+
+  private static StringReader json(String... results) {
+    return new StringReader("[" + String.join(",", results) + "]");
+  }
+}
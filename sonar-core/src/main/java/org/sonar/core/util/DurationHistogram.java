@@ -0,0 +1,126 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Lock-free histogram of durations, cheap enough to record every execution of a request.
+ * Durations are counted in buckets of powers of two microseconds, so that percentiles are
+ * approximated by the upper bound of their bucket, capped by the maximum duration.
+ */
+public class DurationHistogram {
+
+  private static final int BUCKETS = 40;
+
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final AtomicLong maxNanos = new AtomicLong();
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+  public void record(long durationNanos) {
+    count.increment();
+    totalNanos.add(durationNanos);
+    maxNanos.accumulateAndGet(durationNanos, Math::max);
+    buckets.incrementAndGet(bucketOf(durationNanos));
+  }
+
+  private static int bucketOf(long durationNanos) {
+    long micros = Math.max(0L, durationNanos / 1_000L);
+    // bucket i contains durations in [2^(i-1), 2^i[ microseconds
+    return Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(micros));
+  }
+
+  public Snapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    long bucketsTotal = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      bucketsTotal += counts[i];
+    }
+    long max = maxNanos.get();
+    return new Snapshot(count.sum(), totalNanos.sum(), max,
+      percentile(counts, bucketsTotal, 0.5, max), percentile(counts, bucketsTotal, 0.95, max), percentile(counts, bucketsTotal, 0.99, max));
+  }
+
+  private static long percentile(long[] counts, long total, double percentile, long maxNanos) {
+    long threshold = (long) Math.ceil(total * percentile);
+    long cumulated = 0L;
+    for (int i = 0; i < counts.length; i++) {
+      cumulated += counts[i];
+      if (cumulated >= threshold && cumulated > 0L) {
+        long upperBoundNanos = (1L << i) * 1_000L;
+        return Math.min(upperBoundNanos, maxNanos);
+      }
+    }
+    return maxNanos;
+  }
+
+  @Immutable
+  public static final class Snapshot {
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long p50Nanos;
+    private final long p95Nanos;
+    private final long p99Nanos;
+
+    private Snapshot(long count, long totalNanos, long maxNanos, long p50Nanos, long p95Nanos, long p99Nanos) {
+      this.count = count;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+      this.p50Nanos = p50Nanos;
+      this.p95Nanos = p95Nanos;
+      this.p99Nanos = p99Nanos;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getTotalMs() {
+      return TimeUnit.NANOSECONDS.toMillis(totalNanos);
+    }
+
+    public double getMeanMs() {
+      return count == 0L ? 0.0 : (totalNanos / (double) count / 1_000_000.0);
+    }
+
+    public double getP50Ms() {
+      return p50Nanos / 1_000_000.0;
+    }
+
+    public double getP95Ms() {
+      return p95Nanos / 1_000_000.0;
+    }
+
+    public double getP99Ms() {
+      return p99Nanos / 1_000_000.0;
+    }
+
+    public double getMaxMs() {
+      return maxNanos / 1_000_000.0;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DurationHistogramTest {
+
+  private DurationHistogram underTest = new DurationHistogram();
+
+  @Test
+  public void snapshot_of_empty_histogram() {
+    DurationHistogram.Snapshot snapshot = underTest.snapshot();
+
+    assertThat(snapshot.getCount()).isEqualTo(0L);
+    assertThat(snapshot.getTotalMs()).isEqualTo(0L);
+    assertThat(snapshot.getMeanMs()).isEqualTo(0.0);
+    assertThat(snapshot.getP50Ms()).isEqualTo(0.0);
+    assertThat(snapshot.getP99Ms()).isEqualTo(0.0);
+    assertThat(snapshot.getMaxMs()).isEqualTo(0.0);
+  }
+
+  @Test
+  public void compute_percentiles_from_buckets_of_powers_of_two_microseconds() {
+    // 1ms, 2ms, ..., 100ms
+    IntStream.rangeClosed(1, 100).forEach(i -> underTest.record(TimeUnit.MILLISECONDS.toNanos(i)));
+
+    DurationHistogram.Snapshot snapshot = underTest.snapshot();
+    assertThat(snapshot.getCount()).isEqualTo(100L);
+    assertThat(snapshot.getTotalMs()).isEqualTo(5_050L);
+    assertThat(snapshot.getMeanMs()).isEqualTo(50.5);
+    assertThat(snapshot.getMaxMs()).isEqualTo(100.0);
+    // 50ms is in the bucket [32.768ms, 65.536ms[
+    assertThat(snapshot.getP50Ms()).isEqualTo(65.536);
+    // capped by max
+    assertThat(snapshot.getP95Ms()).isEqualTo(100.0);
+    assertThat(snapshot.getP99Ms()).isEqualTo(100.0);
+  }
+
+  @Test
+  public void durations_shorter_than_one_microsecond_are_in_first_bucket() {
+    underTest.record(10L);
+    underTest.record(-5L);
+
+    DurationHistogram.Snapshot snapshot = underTest.snapshot();
+    assertThat(snapshot.getCount()).isEqualTo(2L);
+    assertThat(snapshot.getP99Ms()).isEqualTo(0.00001);
+  }
+}
@@ -0,0 +1,503 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.markdown;
+
+/**
+ * Converts escaped Markdown to HTML in a single pass over a char array. It supports exactly the same syntax
+ * as the channels of the historical implementation (see {@link Markdown#convertToHtmlWithChannels(String)}),
+ * with the same precedence: at each position, the constructions are tried in this order:
+ * <ol>
+ *   <li>documented link, see {@link HtmlLinkChannel}</li>
+ *   <li>URL, see {@link HtmlUrlChannel}</li>
+ *   <li>end of line, see {@link HtmlEndOfLineChannel}</li>
+ *   <li>emphasis, see {@link HtmlEmphasisChannel}</li>
+ *   <li>list, only at the beginning of a line, see {@link HtmlListChannel}</li>
+ *   <li>blockquote, only at the beginning of a line, see {@link HtmlBlockquoteChannel}</li>
+ *   <li>heading, see {@link HtmlHeadingChannel}</li>
+ *   <li>code, see {@link HtmlCodeChannel}</li>
+ *   <li>multi-line code, see {@link HtmlMultilineCodeChannel}</li>
+ * </ol>
+ * Other characters are copied as-is. Regular expressions are replaced by hand-written matchers, so that
+ * no intermediary token nor {@link java.util.regex.Matcher} is allocated.
+ *
+ * @since 6.6
+ */
+class HtmlRenderer {
+
+  private static final int MAX_HEADING_DEPTH = 6;
+  private static final int NO_MATCH = -1;
+
+  private final char[] input;
+  private final int length;
+  private final StringBuilder output;
+
+  private HtmlRenderer(String escapedInput) {
+    this.input = escapedInput.toCharArray();
+    this.length = input.length;
+    this.output = new StringBuilder(length + (length >> 2) + 16);
+  }
+
+  static String render(String escapedInput) {
+    return new HtmlRenderer(escapedInput).render();
+  }
+
+  private String render() {
+    int position = 0;
+    while (position < length) {
+      position = renderAt(position);
+    }
+    return output.toString();
+  }
+
+  /**
+   * @return the position following the consumed characters
+   */
+  private int renderAt(int position) {
+    int end = renderLink(position);
+    if (end == NO_MATCH) {
+      end = renderUrl(position);
+    }
+    if (end == NO_MATCH) {
+      end = endOfLine(position);
+      if (end != NO_MATCH) {
+        output.append("<br/>");
+      }
+    }
+    if (end == NO_MATCH) {
+      end = renderEmphasis(position);
+    }
+    if (end == NO_MATCH && isBeginningOfLine(position)) {
+      end = renderList(position);
+      if (end == NO_MATCH) {
+        end = renderBlockquote(position);
+      }
+    }
+    if (end == NO_MATCH) {
+      end = renderHeading(position);
+    }
+    if (end == NO_MATCH) {
+      end = renderCode(position);
+    }
+    if (end == NO_MATCH) {
+      end = renderMultilineCode(position);
+    }
+    if (end == NO_MATCH) {
+      end = position + 1;
+      while (end < length && isWordCharacter(input[position]) && isWordCharacter(input[end])) {
+        end++;
+      }
+      output.append(input, position, end - position);
+    }
+    return end;
+  }
+
+  /**
+   * {@code [text](url)}
+   */
+  private int renderLink(int position) {
+    if (input[position] != '[') {
+      return NO_MATCH;
+    }
+    int textEnd = indexOfNonEmptySequenceEnd(position + 1, ']');
+    if (textEnd == NO_MATCH || !isAt(textEnd + 1, '(')) {
+      return NO_MATCH;
+    }
+    int urlEnd = indexOfNonEmptySequenceEnd(textEnd + 2, ')');
+    if (urlEnd == NO_MATCH) {
+      return NO_MATCH;
+    }
+    output.append("<a href=\"").append(input, textEnd + 2, urlEnd - textEnd - 2).append("\" target=\"_blank\">")
+      .append(input, position + 1, textEnd - position - 1).append("</a>");
+    return urlEnd + 1;
+  }
+
+  /**
+   * @return the index of the first {@code terminator} found from {@code start}, if there is at least one
+   * other character before it
+   */
+  private int indexOfNonEmptySequenceEnd(int start, char terminator) {
+    for (int i = start; i < length; i++) {
+      if (input[i] == terminator) {
+        return i > start ? i : NO_MATCH;
+      }
+    }
+    return NO_MATCH;
+  }
+
+  private int renderUrl(int position) {
+    if (!startsWith(position, "http")) {
+      return NO_MATCH;
+    }
+    int start = position + 4;
+    if (isAt(start, 's')) {
+      start++;
+    }
+    if (!startsWith(start, "://")) {
+      return NO_MATCH;
+    }
+    start += 3;
+    int end = start;
+    while (end < length && isUrlCharacter(input[end])) {
+      end++;
+    }
+    if (end == start) {
+      return NO_MATCH;
+    }
+    output.append("<a href=\"").append(input, position, end - position).append("\" target=\"_blank\">")
+      .append(input, position, end - position).append("</a>");
+    return end;
+  }
+
+  private int endOfLine(int position) {
+    if (input[position] == '\r') {
+      return isAt(position + 1, '\n') ? (position + 2) : (position + 1);
+    }
+    return input[position] == '\n' ? (position + 1) : NO_MATCH;
+  }
+
+  /**
+   * {@code *text*}, with at least three characters and no whitespace after the opening star nor
+   * before the closing star
+   */
+  private int renderEmphasis(int position) {
+    if (input[position] != '*' || position + 1 >= length || isRegexWhitespace(input[position + 1]) || input[position + 1] == '*') {
+      return NO_MATCH;
+    }
+    for (int last = position + 3; last + 1 < length; last++) {
+      if (isLineBreak(input[last - 1])) {
+        return NO_MATCH;
+      }
+      if (!isRegexWhitespace(input[last]) && input[last] != '*' && input[last + 1] == '*') {
+        output.append("<strong>").append(input, position + 1, last - position).append("</strong>");
+        return last + 2;
+      }
+    }
+    return NO_MATCH;
+  }
+
+  private int renderList(int position) {
+    String listElement = "ol";
+    int end = listItemEnd(position, true);
+    if (end == NO_MATCH) {
+      listElement = "ul";
+      end = listItemEnd(position, false);
+    }
+    if (end == NO_MATCH) {
+      return NO_MATCH;
+    }
+    boolean ordered = "ol".equals(listElement);
+    output.append('<').append(listElement).append('>');
+    appendListItem(position, end);
+    while (true) {
+      int lineStart = end < length ? endOfLine(end) : NO_MATCH;
+      if (lineStart == NO_MATCH) {
+        break;
+      }
+      output.append(input, end, lineStart - end);
+      int itemEnd = listItemEnd(lineStart, ordered);
+      end = lineStart;
+      if (itemEnd == NO_MATCH) {
+        break;
+      }
+      appendListItem(lineStart, itemEnd);
+      end = itemEnd;
+    }
+    output.append("</").append(listElement).append('>');
+    return end;
+  }
+
+  /**
+   * Whitespaces (including line breaks), then a digit followed by a dot for ordered lists, or a star for
+   * unordered lists, then a whitespace and the rest of the line.
+   */
+  private int listItemEnd(int position, boolean ordered) {
+    int i = skipRegexWhitespaces(position);
+    if (ordered) {
+      if (i + 1 >= length || !isAsciiDigit(input[i]) || input[i + 1] != '.') {
+        return NO_MATCH;
+      }
+      i += 2;
+    } else {
+      if (!isAt(i, '*')) {
+        return NO_MATCH;
+      }
+      i++;
+    }
+    if (i >= length || !isRegexWhitespace(input[i])) {
+      return NO_MATCH;
+    }
+    return restOfLine(i + 1);
+  }
+
+  private void appendListItem(int start, int end) {
+    int contentStart = end - 1;
+    for (int index = start; index < end; index++) {
+      if (input[index] == '*' || Character.isDigit(input[index])) {
+        if (input[index + 1] == '.') {
+          index++;
+        }
+        contentStart = end - 1;
+        while (++index < end) {
+          if (input[index] != ' ') {
+            contentStart = index;
+            break;
+          }
+        }
+        break;
+      }
+    }
+    output.append("<li>").append(input, contentStart, end - contentStart).append("</li>");
+  }
+
+  private int renderBlockquote(int position) {
+    int end = quotedLineEnd(position);
+    if (end == NO_MATCH) {
+      return NO_MATCH;
+    }
+    output.append("<blockquote>");
+    appendQuotedLine(position, end);
+    while (true) {
+      int lineStart = end < length ? endOfLine(end) : NO_MATCH;
+      if (lineStart == NO_MATCH) {
+        break;
+      }
+      output.append(input, end, lineStart - end);
+      int lineEnd = quotedLineEnd(lineStart);
+      end = lineStart;
+      if (lineEnd == NO_MATCH) {
+        break;
+      }
+      appendQuotedLine(lineStart, lineEnd);
+      end = lineEnd;
+    }
+    output.append("</blockquote>");
+    return end;
+  }
+
+  /**
+   * Escaped greater than sign, then a whitespace and the rest of the line
+   */
+  private int quotedLineEnd(int position) {
+    if (!startsWith(position, "&gt;") || position + 4 >= length || !isRegexWhitespace(input[position + 4])) {
+      return NO_MATCH;
+    }
+    return restOfLine(position + 5);
+  }
+
+  private void appendQuotedLine(int start, int end) {
+    // the whitespace following the sign is dropped, then the leading spaces
+    int contentStart = start + 5;
+    while (contentStart < end && input[contentStart] == ' ') {
+      contentStart++;
+    }
+    if (contentStart >= end) {
+      contentStart = end - 1;
+    }
+    output.append(input, contentStart, end - contentStart).append("<br/>");
+  }
+
+  /**
+   * Whitespaces (including line breaks), equal signs, a whitespace, the rest of the line and the following line breaks.
+   * Note that, as in {@link HtmlHeadingChannel}, headings are not restricted to the beginning of lines.
+   */
+  private int renderHeading(int position) {
+    int i = skipRegexWhitespaces(position);
+    int signsStart = i;
+    while (i < length && input[i] == '=') {
+      i++;
+    }
+    if (i == signsStart || i >= length || !isRegexWhitespace(input[i])) {
+      return NO_MATCH;
+    }
+    int end = restOfLine(i + 1);
+    while (end < length && isLineBreak(input[end])) {
+      end++;
+    }
+
+    int index = position;
+    while (index < end && Character.isWhitespace(input[index])) {
+      index++;
+    }
+    int headingLevel = 0;
+    while (index < end && index - position <= MAX_HEADING_DEPTH && input[index] == '=') {
+      index++;
+      headingLevel++;
+    }
+    while (index < end && Character.isWhitespace(input[index])) {
+      index++;
+    }
+    output.append("<h").append(headingLevel).append('>')
+      .append(input, index, end - index)
+      .append("</h").append(headingLevel).append('>');
+    return end;
+  }
+
+  /**
+   * {@code ``code``} on a single line
+   */
+  private int renderCode(int position) {
+    if (!startsWith(position, "``")) {
+      return NO_MATCH;
+    }
+    for (int closing = position + 3; closing + 1 < length; closing++) {
+      if (isLineTerminator(input[closing - 1])) {
+        return NO_MATCH;
+      }
+      if (input[closing] == '`' && input[closing + 1] == '`') {
+        output.append("<code>").append(input, position + 2, closing - position - 2).append("</code>");
+        return closing + 2;
+      }
+    }
+    return NO_MATCH;
+  }
+
+  /**
+   * Double backticks optionally followed by a language, a line break, the code (at least one character),
+   * a line break and double backticks. Line breaks are {@code \n\r}, {@code \r} or {@code \n}.
+   */
+  private int renderMultilineCode(int position) {
+    if (!startsWith(position, "``")) {
+      return NO_MATCH;
+    }
+    int languageStart = position + 2;
+    int languageEnd = languageStart;
+    if (languageEnd < length && isAsciiLetter(input[languageEnd])) {
+      languageEnd++;
+      while (languageEnd < length && (isAsciiLetter(input[languageEnd]) || isAsciiDigit(input[languageEnd]) || input[languageEnd] == '_')) {
+        languageEnd++;
+      }
+    }
+    // alternatives of the first line break are tried in the same order as the regular expression
+    int[] codeStarts = {
+      startsWith(languageEnd, "\n\r") ? (languageEnd + 2) : NO_MATCH,
+      isAt(languageEnd, '\r') ? (languageEnd + 1) : NO_MATCH,
+      isAt(languageEnd, '\n') ? (languageEnd + 1) : NO_MATCH
+    };
+    for (int codeStart : codeStarts) {
+      if (codeStart == NO_MATCH) {
+        continue;
+      }
+      for (int codeEnd = codeStart + 1; codeEnd < length; codeEnd++) {
+        int end = closingOfMultilineCode(codeEnd);
+        if (end != NO_MATCH) {
+          output.append("<pre");
+          if (languageEnd > languageStart) {
+            output.append(" lang=\"").append(input, languageStart, languageEnd - languageStart).append('"');
+          }
+          output.append("><code>").append(input, codeStart, codeEnd - codeStart).append("</code></pre>");
+          return end;
+        }
+      }
+    }
+    return NO_MATCH;
+  }
+
+  private int closingOfMultilineCode(int position) {
+    if (startsWith(position, "\n\r``")) {
+      return position + 4;
+    }
+    if (startsWith(position, "\r``") || startsWith(position, "\n``")) {
+      return position + 3;
+    }
+    return NO_MATCH;
+  }
+
+  /**
+   * Same as the start of a new line in {@link org.sonar.channel.CodeReader}: after {@code \n}, or after {@code \r}
+   * if not followed by {@code \n}.
+   */
+  private boolean isBeginningOfLine(int position) {
+    if (position == 0) {
+      return true;
+    }
+    char previous = input[position - 1];
+    return previous == '\n' || (previous == '\r' && input[position] != '\n');
+  }
+
+  private int skipRegexWhitespaces(int position) {
+    int i = position;
+    while (i < length && isRegexWhitespace(input[i])) {
+      i++;
+    }
+    return i;
+  }
+
+  private int restOfLine(int position) {
+    int i = position;
+    while (i < length && !isLineBreak(input[i])) {
+      i++;
+    }
+    return i;
+  }
+
+  private boolean isAt(int position, char c) {
+    return position < length && input[position] == c;
+  }
+
+  private boolean startsWith(int position, String s) {
+    if (position + s.length() > length) {
+      return false;
+    }
+    for (int i = 0; i < s.length(); i++) {
+      if (input[position + i] != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * {@code \s} of {@link java.util.regex.Pattern}
+   */
+  private static boolean isRegexWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  private static boolean isLineBreak(char c) {
+    return c == '\n' || c == '\r';
+  }
+
+  /**
+   * Characters not matched by {@code .} in {@link java.util.regex.Pattern}
+   */
+  private static boolean isLineTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+  private static boolean isWordCharacter(char c) {
+    return isAsciiLetter(c) || isAsciiDigit(c) || c == '_';
+  }
+
+  private static boolean isAsciiLetter(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  private static boolean isAsciiDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * {@code [\w\d:#@%/;$()~_?\+-=\.&]}, where {@code \+-=} is the range from {@code +} to {@code =}
+   */
+  private static boolean isUrlCharacter(char c) {
+    return isWordCharacter(c) || (c >= '+' && c <= '=') || c == '#' || c == '@' || c == '%' || c == '$'
+      || c == '(' || c == ')' || c == '~' || c == '?' || c == '&';
+  }
+}
@@ -54,6 +54,14 @@ public final class Markdown {
   }
 
   public static String convertToHtml(String input) {
+    return HtmlRenderer.render(StringEscapeUtils.escapeHtml(input));
+  }
+
+  /**
+   * Historical implementation, based on a {@link ChannelDispatcher} of regular expressions. It is slower
+   * than {@link #convertToHtml(String)} and kept only as a reference for tests and benchmarks.
+   */
+  static String convertToHtmlWithChannels(String input) {
     return new Markdown().convert(StringEscapeUtils.escapeHtml(input));
   }
 }
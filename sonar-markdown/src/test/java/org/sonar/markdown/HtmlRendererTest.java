@@ -0,0 +1,64 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.markdown;
+
+import java.util.Random;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HtmlRendererTest {
+
+  private static final String[] FRAGMENTS = {
+    "a", "word", "42", "_", " ", "  ", "\t", "\n", "\r", "\r\n", "\n\r", "*", "**", "1.", "1. ", "* ", "=", "== ", ">", "> ", "&", "\"", "<", "`", "``", "``java",
+    "[", "]", "(", ")", "[doc](http://docs)", "http://", "https://sonarqube.org/a?b=c&d", "http", "é", "#", "$", "\u000B", "\f"};
+
+  @Test
+  public void render_same_html_as_channels_on_random_inputs() {
+    Random random = new Random(42L);
+    for (int i = 0; i < 100_000; i++) {
+      StringBuilder input = new StringBuilder();
+      int fragments = random.nextInt(25);
+      for (int j = 0; j < fragments; j++) {
+        input.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+      }
+      String markdown = input.toString();
+      String expected;
+      try {
+        expected = Markdown.convertToHtmlWithChannels(markdown);
+      } catch (StringIndexOutOfBoundsException e) {
+        // blockquotes without text are not supported by channels
+        continue;
+      }
+      assertThat(Markdown.convertToHtml(markdown)).as("Markdown <%s>", markdown).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void render_blockquote_without_text() {
+    assertThat(Markdown.convertToHtml("> ")).isEqualTo("<blockquote> <br/></blockquote>");
+    assertThat(Markdown.convertToHtml("> a\n>   ")).isEqualTo("<blockquote>a<br/>\n <br/></blockquote>");
+  }
+
+  @Test
+  public void render_empty_input() {
+    assertThat(Markdown.convertToHtml("")).isEmpty();
+  }
+}
@@ -100,4 +100,20 @@ class AndPredicate extends AbstractFilePredicate implements OperatorPredicate {
     return predicates.stream().map(p -> (FilePredicate) p).collect(toList());
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return predicates.equals(((AndPredicate) o).predicates);
+  }
+
+  @Override
+  public int hashCode() {
+    return predicates.hashCode();
+  }
+
 }
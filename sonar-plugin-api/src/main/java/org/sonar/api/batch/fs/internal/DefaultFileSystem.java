@@ -25,16 +25,22 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.FilePredicate;
 import org.sonar.api.batch.fs.FilePredicates;
@@ -49,7 +55,15 @@ import org.sonar.api.utils.PathUtils;
  */
 public class DefaultFileSystem implements FileSystem {
 
+  /**
+   * Predicates that are compared by value and whose result only depends on the indexed files, so that
+   * the files they match can be reused until the next change of the file system.
+   */
+  private static final Set<Class<?>> MEMOIZABLE_PREDICATES = new HashSet<>(Arrays.asList(LanguagePredicate.class, TypePredicate.class,
+    StatusPredicate.class, FilenamePredicate.class, FileExtensionPredicate.class, AndPredicate.class, OrPredicate.class, NotPredicate.class));
+
   private final Cache cache;
+  private final MemoizedQueries memoizedQueries = new MemoizedQueries();
   private final Path baseDir;
   private Path workDir;
   private Charset encoding;
@@ -102,6 +116,7 @@ public class DefaultFileSystem implements FileSystem {
 
   public DefaultFileSystem setDefaultPredicate(@Nullable Function<FilePredicate, Predicate<InputFile>> defaultPredicateFactory) {
     this.defaultPredicateFactory = defaultPredicateFactory;
+    memoizedQueries.clear();
     return this;
   }
 
@@ -146,6 +161,19 @@ public class DefaultFileSystem implements FileSystem {
 
   @Override
   public Iterable<InputFile> inputFiles(FilePredicate predicate) {
+    if (!isMemoizable(predicate)) {
+      return query(predicate);
+    }
+    long version = cache.version();
+    List<InputFile> files = memoizedQueries.get(predicate, version);
+    if (files == null) {
+      files = Collections.unmodifiableList(StreamSupport.stream(query(predicate).spliterator(), false).collect(Collectors.toList()));
+      memoizedQueries.put(predicate, version, files);
+    }
+    return files;
+  }
+
+  private Iterable<InputFile> query(FilePredicate predicate) {
     Iterable<InputFile> iterable = OptimizedFilePredicateAdapter.create(predicate).get(cache);
     if (defaultPredicateFactory != null) {
       return StreamSupport.stream(iterable.spliterator(), false)
@@ -154,6 +182,16 @@ public class DefaultFileSystem implements FileSystem {
     return iterable;
   }
 
+  static boolean isMemoizable(FilePredicate predicate) {
+    if (!MEMOIZABLE_PREDICATES.contains(predicate.getClass())) {
+      return false;
+    }
+    if (predicate instanceof OperatorPredicate) {
+      return ((OperatorPredicate) predicate).operands().stream().allMatch(DefaultFileSystem::isMemoizable);
+    }
+    return true;
+  }
+
   @Override
   public boolean hasFiles(FilePredicate predicate) {
     return inputFiles(predicate).iterator().hasNext();
@@ -197,12 +235,15 @@ public class DefaultFileSystem implements FileSystem {
 
   public abstract static class Cache implements Index {
 
+    private long modificationCount = 0L;
+
     protected abstract void doAdd(InputFile inputFile);
 
     protected abstract void doAdd(InputDir inputDir);
 
     final void add(InputFile inputFile) {
       doAdd(inputFile);
+      modificationCount++;
     }
 
     public void add(InputDir inputDir) {
@@ -210,6 +251,54 @@ public class DefaultFileSystem implements FileSystem {
     }
 
     protected abstract SortedSet<String> languages();
+
+    /**
+     * Changes whenever the results of queries may change, for example when files are added or removed.
+     * Results of queries are reused as long as it does not change.
+     * @since 6.6
+     */
+    protected long version() {
+      return modificationCount;
+    }
+  }
+
+  /**
+   * Files matched by the latest queries, evicted from the least recently used when they reference too many files
+   */
+  private static class MemoizedQueries {
+    private static final int MAX_MEMOIZED_FILES = 500_000;
+
+    private final LinkedHashMap<FilePredicate, List<InputFile>> filesByPredicate = new LinkedHashMap<>(16, 0.75F, true);
+    private long version = -1L;
+    private int memoizedFiles = 0;
+
+    @CheckForNull
+    synchronized List<InputFile> get(FilePredicate predicate, long currentVersion) {
+      if (version != currentVersion) {
+        clear();
+        version = currentVersion;
+        return null;
+      }
+      return filesByPredicate.get(predicate);
+    }
+
+    synchronized void put(FilePredicate predicate, long currentVersion, List<InputFile> files) {
+      if (version != currentVersion || files.size() > MAX_MEMOIZED_FILES) {
+        return;
+      }
+      filesByPredicate.put(predicate, files);
+      memoizedFiles += files.size();
+      Iterator<List<InputFile>> eldest = filesByPredicate.values().iterator();
+      while (memoizedFiles > MAX_MEMOIZED_FILES) {
+        memoizedFiles -= eldest.next().size();
+        eldest.remove();
+      }
+    }
+
+    synchronized void clear() {
+      filesByPredicate.clear();
+      memoizedFiles = 0;
+    }
   }
 
   /**
@@ -220,11 +309,13 @@ public class DefaultFileSystem implements FileSystem {
     private final Map<String, InputDir> dirMap = new HashMap<>();
     private final SetMultimap<String, InputFile> filesByNameCache = LinkedHashMultimap.create();
     private final SetMultimap<String, InputFile> filesByExtensionCache = LinkedHashMultimap.create();
+    private final SetMultimap<String, InputFile> filesByLanguageCache = LinkedHashMultimap.create();
+    private final SetMultimap<InputFile.Type, InputFile> filesByTypeCache = LinkedHashMultimap.create();
     private SortedSet<String> languages = new TreeSet<>();
 
     @Override
     public Iterable<InputFile> inputFiles() {
-      return new ArrayList<>(fileMap.values());
+      return Collections.unmodifiableCollection(fileMap.values());
     }
 
     @Override
@@ -247,14 +338,32 @@ public class DefaultFileSystem implements FileSystem {
       return filesByExtensionCache.get(extension);
     }
 
+    @Override
+    public Iterable<InputFile> getFilesByLanguage(String language) {
+      return filesByLanguageCache.get(language);
+    }
+
+    @Override
+    public Iterable<InputFile> getFilesByType(InputFile.Type type) {
+      return filesByTypeCache.get(type);
+    }
+
     @Override
     protected void doAdd(InputFile inputFile) {
+      InputFile previous = fileMap.put(inputFile.relativePath(), inputFile);
+      if (previous != null && previous != inputFile) {
+        filesByNameCache.remove(previous.filename(), previous);
+        filesByExtensionCache.remove(FileExtensionPredicate.getExtension(previous), previous);
+        filesByLanguageCache.remove(previous.language(), previous);
+        filesByTypeCache.remove(previous.type(), previous);
+      }
       if (inputFile.language() != null) {
         languages.add(inputFile.language());
+        filesByLanguageCache.put(inputFile.language(), inputFile);
       }
-      fileMap.put(inputFile.relativePath(), inputFile);
       filesByNameCache.put(inputFile.filename(), inputFile);
       filesByExtensionCache.put(FileExtensionPredicate.getExtension(inputFile), inputFile);
+      filesByTypeCache.put(inputFile.type(), inputFile);
     }
 
     @Override
@@ -59,4 +59,20 @@ public class FileExtensionPredicate extends AbstractFilePredicate {
   private static String lowercase(String extension) {
     return extension.toLowerCase(Locale.ENGLISH);
   }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return extension.equals(((FileExtensionPredicate) o).extension);
+  }
+
+  @Override
+  public int hashCode() {
+    return extension.hashCode();
+  }
 }
@@ -42,4 +42,19 @@ public class FilenamePredicate extends AbstractFilePredicate {
     return index.getFilesByName(filename);
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return filename.equals(((FilenamePredicate) o).filename);
+  }
+
+  @Override
+  public int hashCode() {
+    return filename.hashCode();
+  }
 }
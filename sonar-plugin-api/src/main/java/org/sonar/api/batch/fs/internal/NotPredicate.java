@@ -45,4 +45,20 @@ class NotPredicate extends AbstractFilePredicate implements OperatorPredicate {
     return Arrays.asList(predicate);
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return predicate.equals(((NotPredicate) o).predicate);
+  }
+
+  @Override
+  public int hashCode() {
+    return predicate.hashCode();
+  }
+
 }
@@ -73,4 +73,20 @@ class OrPredicate extends AbstractFilePredicate implements OperatorPredicate {
     return predicates;
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return predicates.equals(((OrPredicate) o).predicates);
+  }
+
+  @Override
+  public int hashCode() {
+    return predicates.hashCode();
+  }
+
 }
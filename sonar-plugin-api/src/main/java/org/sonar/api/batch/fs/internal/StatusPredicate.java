@@ -19,6 +19,7 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import java.util.Objects;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputFile;
 
@@ -35,4 +36,20 @@ public class StatusPredicate extends AbstractFilePredicate {
     return status == null || status == f.status();
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return status == ((StatusPredicate) o).status;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(status);
+  }
+
 }
@@ -174,4 +174,16 @@ public interface SensorContext {
    */
   void markForPublishing(InputFile inputFile);
 
+  /**
+   * Whether the scanner restores the data of unchanged files from the previous analysis. When enabled, the highlighting,
+   * symbol table, CPD tokens and measures saved during the previous analysis are restored for the files which
+   * content did not change ({@link InputFile#status()} is {@link InputFile.Status#SAME}), which are analyzed by a Sensor
+   * declaring {@link SensorDescriptor#reuseAnalysisCache()}, and for which no such data is saved by any sensor.
+   * So such a Sensor can skip computing them on unchanged files.
+   * <br/>
+   * Issues are never restored: they must still be reported on all files.
+   * @since 6.6
+   */
+  boolean isAnalysisCacheEnabled();
+
 }
@@ -96,4 +96,12 @@ public interface SensorDescriptor {
    * @since 6.5
    */
   SensorDescriptor onlyWhenConfiguration(Predicate<Configuration> predicate);
+
+  /**
+   * This {@link Sensor} may skip the files which content did not change when {@link SensorContext#isAnalysisCacheEnabled()}.
+   * The platform then restores the data saved during the previous analysis of the files this {@link Sensor} is executed on
+   * (see {@link #onlyOnLanguages(String...)} and {@link #onlyOnFileType(InputFile.Type)}). Ignored for global sensors.
+   * @since 6.6
+   */
+  SensorDescriptor reuseAnalysisCache();
 }
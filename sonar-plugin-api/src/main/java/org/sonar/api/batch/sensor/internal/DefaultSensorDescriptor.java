@@ -36,6 +36,7 @@ public class DefaultSensorDescriptor implements SensorDescriptor {
   private InputFile.Type type = null;
   private String[] ruleRepositories = new String[0];
   private boolean global = false;
+  private boolean analysisCacheReused = false;
   private Predicate<Configuration> configurationPredicate;
 
   public String name() {
@@ -63,6 +64,10 @@ public class DefaultSensorDescriptor implements SensorDescriptor {
     return global;
   }
 
+  public boolean isAnalysisCacheReused() {
+    return analysisCacheReused;
+  }
+
   @Override
   public DefaultSensorDescriptor name(String name) {
     this.name = name;
@@ -120,4 +125,10 @@ public class DefaultSensorDescriptor implements SensorDescriptor {
     return this;
   }
 
+  @Override
+  public DefaultSensorDescriptor reuseAnalysisCache() {
+    this.analysisCacheReused = true;
+    return this;
+  }
+
 }
@@ -103,6 +103,7 @@ public class SensorContextTester implements SensorContext {
   private InputModule module;
   private SonarRuntime runtime;
   private boolean cancelled;
+  private boolean analysisCacheEnabled;
 
   private SensorContextTester(Path moduleBaseDir) {
     this.settings = new MapSettings();
@@ -188,6 +189,15 @@ public class SensorContextTester implements SensorContext {
     this.cancelled = cancelled;
   }
 
+  @Override
+  public boolean isAnalysisCacheEnabled() {
+    return analysisCacheEnabled;
+  }
+
+  public void setAnalysisCacheEnabled(boolean analysisCacheEnabled) {
+    this.analysisCacheEnabled = analysisCacheEnabled;
+  }
+
   @Override
   public InputModule module() {
     return module;
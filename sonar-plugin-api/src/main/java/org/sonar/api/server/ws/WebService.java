@@ -250,6 +250,7 @@ public interface WebService extends Definable<WebService.Context> {
     private String deprecatedSince;
     private boolean post = false;
     private boolean isInternal = false;
+    private boolean cacheable = false;
     private RequestHandler handler;
     private Map<String, NewParam> newParams = new HashMap<>();
     private URL responseExample = null;
@@ -308,6 +309,19 @@ public interface WebService extends Definable<WebService.Context> {
       return this;
     }
 
+    /**
+     * Successful responses of cacheable actions can be cached by the server for a short period, and shared by
+     * the requests of a same user with the same parameters. Cached responses are invalidated when projects are
+     * analyzed or changed. Only read-only actions returning data that is not specific to the current time can be
+     * cacheable. By default an action is not cacheable.
+     *
+     * @since 6.6
+     */
+    public NewAction setCacheable(boolean b) {
+      this.cacheable = b;
+      return this;
+    }
+
     public NewAction setHandler(RequestHandler h) {
       this.handler = h;
       return this;
@@ -483,6 +497,7 @@ public interface WebService extends Definable<WebService.Context> {
     private final String deprecatedSince;
     private final boolean post;
     private final boolean isInternal;
+    private final boolean cacheable;
     private final RequestHandler handler;
     private final Map<String, Param> params;
     private final URL responseExample;
@@ -497,11 +512,13 @@ public interface WebService extends Definable<WebService.Context> {
       this.deprecatedSince = newAction.deprecatedSince;
       this.post = newAction.post;
       this.isInternal = newAction.isInternal;
+      this.cacheable = newAction.cacheable;
       this.responseExample = newAction.responseExample;
       this.handler = newAction.handler;
       this.changelog = newAction.changelog;
 
       checkState(this.handler != null, "RequestHandler is not set on action %s", path);
+      checkState(!this.post || !this.cacheable, "POST action %s can not be cacheable", path);
       logWarningIf(isNullOrEmpty(this.description), "Description is not set on action " + path);
       logWarningIf(isNullOrEmpty(this.since), "Since is not set on action " + path);
       logWarningIf(!this.post && this.responseExample == null, "The response example is not set on action " + path);
@@ -568,6 +585,14 @@ public interface WebService extends Definable<WebService.Context> {
       return isInternal;
     }
 
+    /**
+     * @see NewAction#setCacheable(boolean)
+     * @since 6.6
+     */
+    public boolean isCacheable() {
+      return cacheable;
+    }
+
     public RequestHandler handler() {
       return handler;
     }
@@ -0,0 +1,83 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileSystemTest {
+
+  private InputFile javaMain = new TestInputFileBuilder("foo", "src/Foo.java").setLanguage("java").build();
+  private InputFile javaTest = new TestInputFileBuilder("foo", "test/FooTest.java").setLanguage("java").setType(InputFile.Type.TEST).build();
+  private InputFile php = new TestInputFileBuilder("foo", "src/Bar.php").setLanguage("php").build();
+  private FileSystem.Index index = new SimpleIndex(Arrays.asList(javaMain, javaTest, php));
+
+  @Test
+  public void index_filters_input_files_by_language_by_default() {
+    assertThat(index.getFilesByLanguage("java")).containsExactly(javaMain, javaTest);
+    assertThat(index.getFilesByLanguage("xoo")).isEmpty();
+  }
+
+  @Test
+  public void index_filters_input_files_by_type_by_default() {
+    assertThat(index.getFilesByType(InputFile.Type.MAIN)).containsExactly(javaMain, php);
+    assertThat(index.getFilesByType(InputFile.Type.TEST)).containsExactly(javaTest);
+  }
+
+  /**
+   * Index implementing only the methods which have no default implementation
+   */
+  private static class SimpleIndex implements FileSystem.Index {
+    private final List<InputFile> inputFiles;
+
+    private SimpleIndex(List<InputFile> inputFiles) {
+      this.inputFiles = inputFiles;
+    }
+
+    @Override
+    public Iterable<InputFile> inputFiles() {
+      return inputFiles;
+    }
+
+    @Override
+    public InputFile inputFile(String relativePath) {
+      return null;
+    }
+
+    @Override
+    public InputDir inputDir(String relativePath) {
+      return null;
+    }
+
+    @Override
+    public Iterable<InputFile> getFilesByName(String filename) {
+      return null;
+    }
+
+    @Override
+    public Iterable<InputFile> getFilesByExtension(String extension) {
+      return null;
+    }
+  }
+}
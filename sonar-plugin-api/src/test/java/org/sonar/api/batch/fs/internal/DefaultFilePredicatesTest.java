@@ -241,4 +241,18 @@ public class DefaultFilePredicatesTest {
   public void hasExtension() {
     assertThat(predicates.hasExtension("java").apply(javaFile)).isTrue();
   }
+
+  @Test
+  public void predicates_on_file_attributes_are_compared_by_value() {
+    assertThat(predicates.and(predicates.hasLanguage("java"), predicates.hasType(InputFile.Type.MAIN), predicates.hasStatus(Status.CHANGED)))
+      .isEqualTo(predicates.and(predicates.hasLanguage("java"), predicates.hasType(InputFile.Type.MAIN), predicates.hasStatus(Status.CHANGED)));
+    assertThat(predicates.or(predicates.hasFilename("pom.xml"), predicates.not(predicates.hasExtension("java"))).hashCode())
+      .isEqualTo(predicates.or(predicates.hasFilename("pom.xml"), predicates.not(predicates.hasExtension("java"))).hashCode());
+    assertThat(predicates.hasAnyStatus()).isEqualTo(predicates.hasAnyStatus());
+
+    assertThat(predicates.hasLanguage("java")).isNotEqualTo(predicates.hasLanguage("php"));
+    assertThat(predicates.hasType(InputFile.Type.MAIN)).isNotEqualTo(predicates.hasType(InputFile.Type.TEST));
+    assertThat(predicates.hasStatus(Status.SAME)).isNotEqualTo(predicates.hasAnyStatus());
+    assertThat(predicates.hasFilename("java")).isNotEqualTo(predicates.hasExtension("java"));
+  }
 }
@@ -27,6 +27,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.FilePredicate;
+import org.sonar.api.batch.fs.InputFile;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -151,4 +153,46 @@ public class DefaultFileSystemTest {
     // it would fail if more than one java file
     assertThat(fs.inputFile(fs.predicates().hasLanguage("java"))).isNotNull();
   }
+
+  @Test
+  public void query_files_by_language_type_and_status() {
+    InputFile mainJava = new TestInputFileBuilder("foo", "src/Bar.java").setLanguage("java").setStatus(InputFile.Status.CHANGED).build();
+    InputFile sameJava = new TestInputFileBuilder("foo", "src/Baz.java").setLanguage("java").setStatus(InputFile.Status.SAME).build();
+    InputFile testJava = new TestInputFileBuilder("foo", "test/BarTest.java").setLanguage("java").setType(InputFile.Type.TEST)
+      .setStatus(InputFile.Status.CHANGED).build();
+    InputFile php = new TestInputFileBuilder("foo", "src/Foo.php").setLanguage("php").setStatus(InputFile.Status.CHANGED).build();
+    fs.add(mainJava).add(sameJava).add(testJava).add(php);
+
+    assertThat(fs.inputFiles(fs.predicates().and(fs.predicates().hasLanguage("java"), fs.predicates().hasType(InputFile.Type.MAIN),
+      fs.predicates().hasStatus(InputFile.Status.CHANGED)))).containsExactly(mainJava);
+    assertThat(fs.inputFiles(fs.predicates().hasType(InputFile.Type.TEST))).containsExactly(testJava);
+    assertThat(fs.inputFiles(fs.predicates().hasLanguages("java", "php"))).containsOnly(mainJava, sameJava, testJava, php);
+    assertThat(fs.inputFiles(fs.predicates().not(fs.predicates().hasLanguage("java")))).containsExactly(php);
+  }
+
+  @Test
+  public void reuse_results_of_queries_until_files_are_added() {
+    InputFile bar = new TestInputFileBuilder("foo", "src/Bar.java").setLanguage("java").build();
+    fs.add(bar);
+
+    Iterable<InputFile> javaFiles = fs.inputFiles(fs.predicates().hasLanguage("java"));
+    assertThat(javaFiles).containsExactly(bar);
+    assertThat(fs.inputFiles(fs.predicates().hasLanguage("java"))).isSameAs(javaFiles);
+
+    InputFile baz = new TestInputFileBuilder("foo", "src/Baz.java").setLanguage("java").build();
+    fs.add(baz);
+
+    assertThat(fs.inputFiles(fs.predicates().hasLanguage("java"))).containsOnly(bar, baz);
+    assertThat(javaFiles).containsExactly(bar);
+  }
+
+  @Test
+  public void do_not_reuse_results_of_custom_predicates() {
+    FilePredicate custom = f -> f.relativePath().startsWith("src/");
+
+    assertThat(DefaultFileSystem.isMemoizable(fs.predicates().and(fs.predicates().hasLanguage("java"), fs.predicates().hasType(InputFile.Type.MAIN)))).isTrue();
+    assertThat(DefaultFileSystem.isMemoizable(fs.predicates().and(fs.predicates().hasLanguage("java"), custom))).isFalse();
+    assertThat(DefaultFileSystem.isMemoizable(fs.predicates().hasRelativePath("src/Bar.java"))).isFalse();
+    assertThat(DefaultFileSystem.isMemoizable(fs.predicates().all())).isFalse();
+  }
 }
@@ -46,6 +46,15 @@ public class DefaultSensorDescriptorTest {
     settings.setProperty("sonar.foo.reportPath2", "foo");
     assertThat(descriptor.configurationPredicate().test(settings.asConfig())).isTrue();
     assertThat(descriptor.ruleRepositories()).containsOnly("squid-java");
+    assertThat(descriptor.isAnalysisCacheReused()).isFalse();
+  }
+
+  @Test
+  public void reuse_analysis_cache() {
+    DefaultSensorDescriptor descriptor = new DefaultSensorDescriptor();
+    descriptor.reuseAnalysisCache();
+
+    assertThat(descriptor.isAnalysisCacheReused()).isTrue();
   }
 
 }
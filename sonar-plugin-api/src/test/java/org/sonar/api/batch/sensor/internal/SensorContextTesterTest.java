@@ -339,6 +339,13 @@ public class SensorContextTesterTest {
     assertThat(tester.isCancelled()).isTrue();
   }
 
+  @Test
+  public void testAnalysisCache() {
+    assertThat(tester.isAnalysisCacheEnabled()).isFalse();
+    tester.setAnalysisCacheEnabled(true);
+    assertThat(tester.isAnalysisCacheEnabled()).isTrue();
+  }
+
   @Test
   public void testContextProperties() {
     assertThat(tester.getContextProperties()).isEmpty();
@@ -80,6 +80,7 @@ public class WebServiceTest {
     assertThat(showAction.since()).isEqualTo("4.2");
     assertThat(showAction.isPost()).isFalse();
     assertThat(showAction.isInternal()).isFalse();
+    assertThat(showAction.isCacheable()).isFalse();
     assertThat(showAction.path()).isEqualTo("api/metric/show");
     WebService.Action createAction = controller.action("create");
     assertThat(createAction).isNotNull();
@@ -385,6 +386,29 @@ public class WebServiceTest {
       .doesNotContain("The response example is not set on action api/rule/list");
   }
 
+  @Test
+  public void cacheable_action() {
+    ((WebService) context -> {
+      NewController newController = context.createController("api/rule");
+      newDefaultAction(newController, "list").setCacheable(true);
+      newController.done();
+    }).define(context);
+
+    assertThat(context.controller("api/rule").action("list").isCacheable()).isTrue();
+  }
+
+  @Test
+  public void fail_if_post_action_is_cacheable() {
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("POST action api/rule/list can not be cacheable");
+
+    ((WebService) context -> {
+      NewController newController = context.createController("api/rule");
+      newDefaultAction(newController, "list").setPost(true).setCacheable(true);
+      newController.done();
+    }).define(context);
+  }
+
   @Test
   public void fail_if_get_and_no_response_example() {
     ((WebService) context -> {
@@ -0,0 +1,295 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.SonarRuntime;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.batch.rule.ActiveRule;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.platform.PluginInfo;
+import org.sonar.core.platform.PluginRepository;
+import org.sonar.core.util.FileUtils;
+import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
+import org.sonar.scanner.config.DefaultConfiguration;
+import org.sonar.scanner.scan.branch.BranchConfiguration;
+
+/**
+ * Cache of the data computed on files during previous analyses, stored in the working directory of the root module.
+ * All the entries are invalidated when the versions of the plugins, the active rules or the settings which may drive the
+ * analysis of files change, that is all the "sonar.*" settings and the settings declared by plugins, except the ones which
+ * describe the analysis itself (project version, branch, credentials...). Each entry is
+ * only used if the hash of the file is the one it was computed for.
+ * <br/>
+ * The cache is only read in publish mode, and is not updated by the analyses of short-living branches.
+ */
+public class AnalysisCache implements Startable {
+
+  private static final Logger LOG = Loggers.get(AnalysisCache.class);
+
+  public static final String ENABLED_PROP_KEY = "sonar.scanner.analysisCache";
+  public static final String DIR_NAME = "analysis-cache";
+  static final String ENVIRONMENT_FILENAME = "environment";
+
+  /**
+   * Settings which do not change the data computed on a file, whatever its content. They change between analyses
+   * (project version, date, revision...), or only drive the connection to the server and the logs.
+   */
+  private static final List<String> NOT_ANALYSIS_PROPERTY_PREFIXES = Arrays.asList(
+    CoreProperties.PROJECT_VERSION_PROPERTY, CoreProperties.PROJECT_DATE_PROPERTY, "sonar.buildString",
+    "sonar.projectName", "sonar.projectDescription", "sonar.projectBaseDir", "sonar.working.directory", "sonar.links.",
+    "sonar.analysis.", "sonar.branch.", "sonar.pullrequest.", "sonar.scm.", "sonar.core.",
+    "sonar.host.url", "sonar.login", "sonar.password", "sonar.ws.", "sonar.userHome", "sonar.scanner.",
+    "sonar.verbose", "sonar.log.", "sonar.showProfiling");
+
+  private final DefaultConfiguration settings;
+  private final GlobalAnalysisMode analysisMode;
+  private final BranchConfiguration branchConfiguration;
+  private final InputModuleHierarchy moduleHierarchy;
+  private final PluginRepository pluginRepository;
+  private final ActiveRules activeRules;
+  private final SonarRuntime sonarRuntime;
+  private final Map<InputFile, Set<String>> restoredData = new HashMap<>();
+
+  private boolean enabled;
+  private Path dir;
+
+  public AnalysisCache(DefaultConfiguration settings, GlobalAnalysisMode analysisMode, BranchConfiguration branchConfiguration, InputModuleHierarchy moduleHierarchy,
+    PluginRepository pluginRepository, ActiveRules activeRules, SonarRuntime sonarRuntime) {
+    this.settings = settings;
+    this.analysisMode = analysisMode;
+    this.branchConfiguration = branchConfiguration;
+    this.moduleHierarchy = moduleHierarchy;
+    this.pluginRepository = pluginRepository;
+    this.activeRules = activeRules;
+    this.sonarRuntime = sonarRuntime;
+  }
+
+  @Override
+  public void start() {
+    enabled = settings.getBoolean(ENABLED_PROP_KEY).orElse(false) && analysisMode.isPublish();
+    if (!enabled) {
+      return;
+    }
+    dir = moduleHierarchy.root().getWorkDir().resolve(DIR_NAME);
+    String environment = computeEnvironmentKey();
+    Path environmentFile = dir.resolve(ENVIRONMENT_FILENAME);
+    try {
+      if (Files.exists(environmentFile) && environment.equals(new String(Files.readAllBytes(environmentFile), StandardCharsets.UTF_8))) {
+        LOG.debug("Analysis cache: {}", dir);
+        return;
+      }
+      LOG.info("Analysis cache is empty or outdated, all files will be analyzed");
+      FileUtils.deleteQuietly(dir);
+      Files.createDirectories(dir);
+      Files.write(environmentFile, environment.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to initialize analysis cache: " + dir, e);
+    }
+  }
+
+  @Override
+  public void stop() {
+    // nothing to do
+  }
+
+  private String computeEnvironmentKey() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(sonarRuntime.getApiVersion()).append('\n');
+    pluginRepository.getPluginInfos().stream()
+      .sorted(Comparator.comparing(PluginInfo::getKey))
+      .forEach(p -> sb.append(p.getKey()).append(':').append(p.getVersion()).append('\n'));
+    activeRules.findAll().stream()
+      .sorted(Comparator.comparing(r -> r.ruleKey().toString()))
+      .forEach(r -> appendActiveRule(sb, r));
+    appendAnalysisProperties(sb, settings.getProperties());
+    appendModuleProperties(sb, moduleHierarchy.root());
+    return DigestUtils.sha1Hex(sb.toString());
+  }
+
+  private void appendModuleProperties(StringBuilder sb, DefaultInputModule module) {
+    sb.append(module.key()).append('\n');
+    appendAnalysisProperties(sb, module.properties());
+    moduleHierarchy.children(module).stream()
+      .sorted(Comparator.comparing(DefaultInputModule::key))
+      .forEach(child -> appendModuleProperties(sb, child));
+  }
+
+  private void appendAnalysisProperties(StringBuilder sb, Map<String, String> properties) {
+    new TreeMap<>(properties).forEach((key, value) -> {
+      if (isAnalysisProperty(key)) {
+        sb.append(key).append('=').append(value).append('\n');
+      }
+    });
+  }
+
+  /**
+   * Properties which may change the data computed on a file, whatever its content, for example the exclusions, the
+   * encoding or the settings of language plugins (sonar.java.binaries...). Other properties, like the version of the
+   * project, must not invalidate the cache.
+   */
+  private boolean isAnalysisProperty(String key) {
+    if (NOT_ANALYSIS_PROPERTY_PREFIXES.stream().anyMatch(key::startsWith)) {
+      return false;
+    }
+    return key.startsWith("sonar.") || settings.getDefinitions().get(key) != null;
+  }
+
+  private static void appendActiveRule(StringBuilder sb, ActiveRule rule) {
+    sb.append(rule.ruleKey()).append(':')
+      .append(rule.severity()).append(':')
+      .append(rule.internalKey()).append(':')
+      .append(rule.templateRuleKey()).append(':')
+      .append(new TreeMap<>(rule.params()))
+      .append('\n');
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Entries are only written by the analyses of which the data can be reused later, that is not by the
+   * analyses of short-living branches.
+   */
+  public boolean isWritable() {
+    return enabled && !branchConfiguration.isShortLivingBranch();
+  }
+
+  /**
+   * @return the data computed during a previous analysis on the same content, or {@code null} if not available.
+   */
+  @CheckForNull
+  public AnalysisCacheEntry read(DefaultInputFile inputFile) {
+    if (!enabled) {
+      return null;
+    }
+    Path entryFile = entryFile(inputFile);
+    if (!Files.exists(entryFile)) {
+      return null;
+    }
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(entryFile))) {
+      AnalysisCacheEntry entry = AnalysisCacheEntry.readFrom(in);
+      if (entry != null && entry.fileHash().equals(inputFile.hash())) {
+        return entry;
+      }
+    } catch (IOException e) {
+      LOG.debug("Ignore corrupted entry of analysis cache for " + inputFile, e);
+    }
+    return null;
+  }
+
+  public void write(DefaultInputFile inputFile, AnalysisCacheEntry entry) {
+    if (!isWritable()) {
+      return;
+    }
+    Path entryFile = entryFile(inputFile);
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(entryFile))) {
+      entry.writeTo(out);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write entry of analysis cache for " + inputFile, e);
+    }
+  }
+
+  /**
+   * Delete the entries of all the files that are not in the given ones
+   */
+  public void purge(Collection<InputFile> keptFiles) {
+    if (!isWritable()) {
+      return;
+    }
+    Set<Path> keptEntries = new HashSet<>();
+    keptEntries.add(dir.resolve(ENVIRONMENT_FILENAME));
+    keptFiles.forEach(f -> keptEntries.add(entryFile((DefaultInputFile) f)));
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, p -> !keptEntries.contains(p))) {
+      for (Path entry : stream) {
+        Files.delete(entry);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to purge analysis cache: " + dir, e);
+    }
+  }
+
+  /**
+   * Data of some files is restored from the cache after the execution of the module sensors. Global sensors are allowed
+   * to save it again, once.
+   *
+   * @param dataKey the name of the {@link AnalysisCacheEntry.Section}, or {@link #measureDataKey(String)} for measures
+   */
+  public void markRestored(InputFile inputFile, String dataKey) {
+    restoredData.computeIfAbsent(inputFile, f -> new HashSet<>()).add(dataKey);
+  }
+
+  /**
+   * Whether some data of the file has been restored from the cache
+   */
+  public boolean isRestored(InputFile inputFile) {
+    return restoredData.containsKey(inputFile);
+  }
+
+  public boolean isRestored(InputFile inputFile, String dataKey) {
+    Set<String> dataKeys = restoredData.get(inputFile);
+    return dataKeys != null && dataKeys.contains(dataKey);
+  }
+
+  /**
+   * Called when data of a file is saved again by a sensor.
+   *
+   * @return whether the data had been restored from the cache, in which case it can be replaced
+   */
+  public boolean replaceRestored(InputFile inputFile, String dataKey) {
+    Set<String> dataKeys = restoredData.get(inputFile);
+    return dataKeys != null && dataKeys.remove(dataKey);
+  }
+
+  public static String measureDataKey(String metricKey) {
+    return AnalysisCacheEntry.Section.MEASURES.name() + ":" + metricKey;
+  }
+
+  private Path entryFile(DefaultInputFile inputFile) {
+    return dir.resolve(DigestUtils.sha1Hex(inputFile.key()));
+  }
+}
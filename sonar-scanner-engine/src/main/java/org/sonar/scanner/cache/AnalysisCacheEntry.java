@@ -0,0 +1,118 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+
+/**
+ * Data of a file saved in the {@link AnalysisCache}. Each section contains a stream of delimited
+ * protobuf messages, in the same format as the files of the scanner report.
+ */
+public class AnalysisCacheEntry {
+
+  private static final int FORMAT_VERSION = 1;
+
+  public enum Section {
+    HIGHLIGHTING(1), SYMBOLS(2), CPD_TEXT_BLOCKS(3), MEASURES(4);
+
+    private final int id;
+
+    Section(int id) {
+      this.id = id;
+    }
+
+    @CheckForNull
+    private static Section byId(int id) {
+      for (Section section : values()) {
+        if (section.id == id) {
+          return section;
+        }
+      }
+      return null;
+    }
+  }
+
+  private final String fileHash;
+  private final Map<Section, byte[]> sections = new EnumMap<>(Section.class);
+
+  public AnalysisCacheEntry(String fileHash) {
+    this.fileHash = fileHash;
+  }
+
+  public String fileHash() {
+    return fileHash;
+  }
+
+  public AnalysisCacheEntry put(Section section, byte[] data) {
+    sections.put(section, data);
+    return this;
+  }
+
+  @CheckForNull
+  public byte[] get(Section section) {
+    return sections.get(section);
+  }
+
+  public boolean isEmpty() {
+    return sections.isEmpty();
+  }
+
+  void writeTo(OutputStream output) throws IOException {
+    DataOutputStream out = new DataOutputStream(output);
+    out.writeInt(FORMAT_VERSION);
+    out.writeUTF(fileHash);
+    out.writeInt(sections.size());
+    for (Map.Entry<Section, byte[]> section : sections.entrySet()) {
+      out.writeInt(section.getKey().id);
+      out.writeInt(section.getValue().length);
+      out.write(section.getValue());
+    }
+    out.flush();
+  }
+
+  /**
+   * @return the entry, or {@code null} if it has been written in another format
+   */
+  @CheckForNull
+  static AnalysisCacheEntry readFrom(InputStream input) throws IOException {
+    DataInputStream in = new DataInputStream(input);
+    if (in.readInt() != FORMAT_VERSION) {
+      return null;
+    }
+    AnalysisCacheEntry entry = new AnalysisCacheEntry(in.readUTF());
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      Section section = Section.byId(in.readInt());
+      byte[] data = new byte[in.readInt()];
+      in.readFully(data);
+      if (section != null) {
+        entry.put(section, data);
+      }
+    }
+    return entry;
+  }
+}
@@ -0,0 +1,340 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cache;
+
+import com.google.protobuf.Message;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.measure.Metric;
+import org.sonar.api.batch.measure.MetricFinder;
+import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
+import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.Protobuf;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.scanner.cache.AnalysisCacheEntry.Section;
+import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
+import org.sonar.scanner.protocol.output.FileStructure.Domain;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReport.Measure.BoolValue;
+import org.sonar.scanner.protocol.output.ScannerReport.Measure.DoubleValue;
+import org.sonar.scanner.protocol.output.ScannerReport.Measure.IntValue;
+import org.sonar.scanner.protocol.output.ScannerReport.Measure.LongValue;
+import org.sonar.scanner.protocol.output.ScannerReport.Measure.StringValue;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+import org.sonar.scanner.report.ReportPublisher;
+import org.sonar.scanner.scan.branch.BranchConfiguration;
+import org.sonar.scanner.scan.filesystem.InputComponentStore;
+import org.sonar.scanner.scan.measure.MeasureCache;
+
+import static org.sonar.api.measures.CoreMetrics.CONDITIONS_BY_LINE_KEY;
+import static org.sonar.api.measures.CoreMetrics.CONDITIONS_TO_COVER_KEY;
+import static org.sonar.api.measures.CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY;
+import static org.sonar.api.measures.CoreMetrics.COVERED_CONDITIONS_BY_LINE_KEY;
+import static org.sonar.api.measures.CoreMetrics.LINES_TO_COVER_KEY;
+import static org.sonar.api.measures.CoreMetrics.SKIPPED_TESTS_KEY;
+import static org.sonar.api.measures.CoreMetrics.TESTS_KEY;
+import static org.sonar.api.measures.CoreMetrics.TEST_ERRORS_KEY;
+import static org.sonar.api.measures.CoreMetrics.TEST_EXECUTION_TIME_KEY;
+import static org.sonar.api.measures.CoreMetrics.TEST_FAILURES_KEY;
+import static org.sonar.api.measures.CoreMetrics.UNCOVERED_CONDITIONS_KEY;
+import static org.sonar.api.measures.CoreMetrics.UNCOVERED_LINES_KEY;
+
+/**
+ * Restores from the {@link AnalysisCache} the highlighting, symbols, CPD blocks and measures of the files
+ * for which sensors did not save them, and stores them back at the end of the sensors phase. Data is only restored
+ * for the files analyzed by sensors which declare that they reuse the cache, as other sensors do not expect it.
+ */
+public class AnalysisCacheExecutor {
+
+  private static final Logger LOG = Loggers.get(AnalysisCacheExecutor.class);
+
+  /**
+   * Measures loaded from external reports, that can change even if the file does not.
+   */
+  private static final Set<String> NOT_CACHED_METRICS = new HashSet<>(Arrays.asList(
+    LINES_TO_COVER_KEY, UNCOVERED_LINES_KEY, COVERAGE_LINE_HITS_DATA_KEY,
+    CONDITIONS_TO_COVER_KEY, UNCOVERED_CONDITIONS_KEY, CONDITIONS_BY_LINE_KEY, COVERED_CONDITIONS_BY_LINE_KEY,
+    TESTS_KEY, TEST_EXECUTION_TIME_KEY, TEST_ERRORS_KEY, SKIPPED_TESTS_KEY, TEST_FAILURES_KEY));
+
+  private final AnalysisCache cache;
+  private final InputComponentStore componentStore;
+  private final ReportPublisher reportPublisher;
+  private final SonarCpdBlockIndex index;
+  private final MeasureCache measureCache;
+  private final MetricFinder metricFinder;
+  private final BranchConfiguration branchConfiguration;
+
+  public AnalysisCacheExecutor(AnalysisCache cache, InputComponentStore componentStore, ReportPublisher reportPublisher, SonarCpdBlockIndex index,
+    MeasureCache measureCache, MetricFinder metricFinder, BranchConfiguration branchConfiguration) {
+    this.cache = cache;
+    this.componentStore = componentStore;
+    this.reportPublisher = reportPublisher;
+    this.index = index;
+    this.measureCache = measureCache;
+    this.metricFinder = metricFinder;
+    this.branchConfiguration = branchConfiguration;
+  }
+
+  /**
+   * Executed on each module, after the execution of its sensors.
+   *
+   * @param sensors the sensors executed on the module which declare {@link org.sonar.api.batch.sensor.SensorDescriptor#reuseAnalysisCache()}
+   */
+  public void restore(DefaultInputModule module, Collection<DefaultSensorDescriptor> sensors) {
+    if (!cache.isEnabled() || sensors.isEmpty()) {
+      return;
+    }
+    int restored = 0;
+    for (InputFile f : componentStore.filesByModule(module.key())) {
+      DefaultInputFile inputFile = (DefaultInputFile) f;
+      if (sensors.stream().noneMatch(sensor -> isAnalyzedBy(inputFile, sensor))) {
+        continue;
+      }
+      AnalysisCacheEntry entry = cache.read(inputFile);
+      if (entry != null && restore(inputFile, entry)) {
+        restored++;
+      }
+    }
+    if (restored > 0) {
+      LOG.info("Data of {} file(s) restored from the analysis cache", restored);
+    }
+  }
+
+  private static boolean isAnalyzedBy(InputFile inputFile, DefaultSensorDescriptor sensor) {
+    return (sensor.languages().isEmpty() || sensor.languages().contains(inputFile.language()))
+      && (sensor.type() == null || sensor.type() == inputFile.type());
+  }
+
+  private boolean restore(DefaultInputFile inputFile, AnalysisCacheEntry entry) {
+    ScannerReportWriter writer = reportPublisher.getWriter();
+    boolean restored = restoreReportData(writer, Domain.SYNTAX_HIGHLIGHTINGS, inputFile, entry, Section.HIGHLIGHTING);
+    restored |= restoreReportData(writer, Domain.SYMBOLS, inputFile, entry, Section.SYMBOLS);
+    restored |= restoreMeasures(inputFile, entry.get(Section.MEASURES));
+    // duplications are not computed on short-living branches
+    if (!branchConfiguration.isShortLivingBranch()) {
+      restored |= restoreCpdBlocks(inputFile, entry.get(Section.CPD_TEXT_BLOCKS));
+    }
+    if (restored) {
+      inputFile.setPublished(true);
+    }
+    return restored;
+  }
+
+  private boolean restoreReportData(ScannerReportWriter writer, Domain domain, DefaultInputFile inputFile, AnalysisCacheEntry entry, Section section) {
+    byte[] data = entry.get(section);
+    if (data == null || writer.hasComponentData(domain, inputFile.batchId())) {
+      return false;
+    }
+    File file = writer.getFileStructure().fileFor(domain, inputFile.batchId());
+    try {
+      Files.write(file.toPath(), data);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write " + file, e);
+    }
+    cache.markRestored(inputFile, section.name());
+    return true;
+  }
+
+  private boolean restoreMeasures(DefaultInputFile inputFile, @Nullable byte[] data) {
+    if (data == null) {
+      return false;
+    }
+    boolean restored = false;
+    try (CloseableIterator<ScannerReport.Measure> it = Protobuf.readStream(new ByteArrayInputStream(data), ScannerReport.Measure.parser())) {
+      while (it.hasNext()) {
+        ScannerReport.Measure measure = it.next();
+        Metric<Serializable> metric = metricFinder.findByKey(measure.getMetricKey());
+        if (metric != null && !measureCache.contains(inputFile.key(), metric.key())) {
+          measureCache.put(inputFile.key(), metric.key(), new DefaultMeasure<>()
+            .forMetric(metric)
+            .on(inputFile)
+            .withValue(toValue(measure)));
+          cache.markRestored(inputFile, AnalysisCache.measureDataKey(metric.key()));
+          restored = true;
+        }
+      }
+    }
+    return restored;
+  }
+
+  private boolean restoreCpdBlocks(DefaultInputFile inputFile, @Nullable byte[] data) {
+    if (data == null || index.isIndexed(inputFile)) {
+      return false;
+    }
+    List<Block> blocks = new ArrayList<>();
+    Block.Builder builder = Block.builder().setResourceId(inputFile.key());
+    try (CloseableIterator<ScannerReport.CpdTextBlock> it = Protobuf.readStream(new ByteArrayInputStream(data), ScannerReport.CpdTextBlock.parser())) {
+      while (it.hasNext()) {
+        ScannerReport.CpdTextBlock block = it.next();
+        blocks.add(builder
+          .setBlockHash(new ByteArray(block.getHash()))
+          .setIndexInFile(blocks.size())
+          .setLines(block.getStartLine(), block.getEndLine())
+          .setUnit(block.getStartTokenIndex(), block.getEndTokenIndex())
+          .build());
+      }
+    }
+    index.insert(inputFile, blocks);
+    cache.markRestored(inputFile, Section.CPD_TEXT_BLOCKS.name());
+    return true;
+  }
+
+  /**
+   * Executed on the root module, after the execution of all the sensors.
+   */
+  public void store() {
+    if (!cache.isWritable()) {
+      return;
+    }
+    ScannerReportWriter writer = reportPublisher.getWriter();
+    Collection<InputFile> cachedFiles = new ArrayList<>();
+    for (InputFile f : componentStore.allFiles()) {
+      DefaultInputFile inputFile = (DefaultInputFile) f;
+      if (cache.isRestored(inputFile)) {
+        // data computed by sensors on a file which content did not change is the one already in cache
+        cachedFiles.add(inputFile);
+        continue;
+      }
+      AnalysisCacheEntry entry = new AnalysisCacheEntry(inputFile.hash());
+      putIfNotNull(entry, Section.HIGHLIGHTING, readReportData(writer, Domain.SYNTAX_HIGHLIGHTINGS, inputFile));
+      putIfNotNull(entry, Section.SYMBOLS, readReportData(writer, Domain.SYMBOLS, inputFile));
+      putIfNotNull(entry, Section.MEASURES, serializeMeasures(inputFile));
+      putIfNotNull(entry, Section.CPD_TEXT_BLOCKS, serializeCpdBlocks(inputFile));
+      if (!entry.isEmpty()) {
+        cache.write(inputFile, entry);
+        cachedFiles.add(inputFile);
+      }
+    }
+    cache.purge(cachedFiles);
+  }
+
+  private static void putIfNotNull(AnalysisCacheEntry entry, Section section, @Nullable byte[] data) {
+    if (data != null) {
+      entry.put(section, data);
+    }
+  }
+
+  @CheckForNull
+  private static byte[] readReportData(ScannerReportWriter writer, Domain domain, DefaultInputFile inputFile) {
+    if (!writer.hasComponentData(domain, inputFile.batchId())) {
+      return null;
+    }
+    File file = writer.getFileStructure().fileFor(domain, inputFile.batchId());
+    try {
+      return Files.readAllBytes(file.toPath());
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read " + file, e);
+    }
+  }
+
+  @CheckForNull
+  private byte[] serializeMeasures(DefaultInputFile inputFile) {
+    List<ScannerReport.Measure> measures = new ArrayList<>();
+    ScannerReport.Measure.Builder builder = ScannerReport.Measure.newBuilder();
+    for (DefaultMeasure<?> measure : measureCache.byComponentKey(inputFile.key())) {
+      if (measure.value() != null && !NOT_CACHED_METRICS.contains(measure.metric().key())) {
+        builder.clear();
+        builder.setMetricKey(measure.metric().key());
+        setValue(builder, measure);
+        measures.add(builder.build());
+      }
+    }
+    return measures.isEmpty() ? null : serialize(measures);
+  }
+
+  @CheckForNull
+  private byte[] serializeCpdBlocks(DefaultInputFile inputFile) {
+    if (!index.isIndexed(inputFile)) {
+      return null;
+    }
+    List<ScannerReport.CpdTextBlock> blocks = new ArrayList<>();
+    ScannerReport.CpdTextBlock.Builder builder = ScannerReport.CpdTextBlock.newBuilder();
+    for (Block block : index.getByInputFile(inputFile.key())) {
+      builder.clear();
+      builder.setStartLine(block.getStartLine());
+      builder.setEndLine(block.getEndLine());
+      builder.setStartTokenIndex(block.getStartUnit());
+      builder.setEndTokenIndex(block.getEndUnit());
+      builder.setHash(block.getBlockHash().toHexString());
+      blocks.add(builder.build());
+    }
+    return serialize(blocks);
+  }
+
+  private static <M extends Message> byte[] serialize(Iterable<M> messages) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    Protobuf.writeStream(messages, output);
+    return output.toByteArray();
+  }
+
+  private static void setValue(ScannerReport.Measure.Builder builder, DefaultMeasure<?> measure) {
+    Serializable value = measure.value();
+    Class<?> valueType = measure.metric().valueType();
+    if (Boolean.class.equals(valueType)) {
+      builder.setBooleanValue(BoolValue.newBuilder().setValue((Boolean) value));
+    } else if (Integer.class.equals(valueType)) {
+      builder.setIntValue(IntValue.newBuilder().setValue(((Number) value).intValue()));
+    } else if (Double.class.equals(valueType)) {
+      builder.setDoubleValue(DoubleValue.newBuilder().setValue(((Number) value).doubleValue()));
+    } else if (String.class.equals(valueType)) {
+      builder.setStringValue(StringValue.newBuilder().setValue((String) value));
+    } else if (Long.class.equals(valueType)) {
+      builder.setLongValue(LongValue.newBuilder().setValue(((Number) value).longValue()));
+    } else {
+      throw new UnsupportedOperationException("Unsupported type :" + valueType);
+    }
+  }
+
+  private static Serializable toValue(ScannerReport.Measure measure) {
+    switch (measure.getValueCase()) {
+      case BOOLEAN_VALUE:
+        return measure.getBooleanValue().getValue();
+      case INT_VALUE:
+        return measure.getIntValue().getValue();
+      case LONG_VALUE:
+        return measure.getLongValue().getValue();
+      case DOUBLE_VALUE:
+        return measure.getDoubleValue().getValue();
+      case STRING_VALUE:
+        return measure.getStringValue().getValue();
+      default:
+        throw new IllegalStateException("Measure on metric " + measure.getMetricKey() + " has no value");
+    }
+  }
+}
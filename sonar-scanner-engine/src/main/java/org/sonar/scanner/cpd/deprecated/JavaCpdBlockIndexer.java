@@ -85,6 +85,9 @@ public class JavaCpdBlockIndexer extends CpdBlockIndexer {
     BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
 
     for (InputFile inputFile : sourceFiles) {
+      if (index.isIndexed(inputFile)) {
+        continue;
+      }
       LOG.debug("Populating index from {}", inputFile);
       String resourceEffectiveKey = ((DefaultInputFile) inputFile).key();
 
@@ -20,12 +20,13 @@
 package org.sonar.scanner.issue.ignore;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.CheckForNull;
 import javax.annotation.concurrent.ThreadSafe;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputComponent;
@@ -36,44 +37,62 @@ import org.sonar.api.scan.issue.filter.IssueFilterChain;
 import org.sonar.scanner.issue.ignore.pattern.IssueInclusionPatternInitializer;
 import org.sonar.scanner.issue.ignore.pattern.IssuePattern;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
+import org.sonar.scanner.util.WildcardPatternTrie;
 
 @ThreadSafe
 public class EnforceIssuesFilter implements IssueFilter {
   private static final Logger LOG = LoggerFactory.getLogger(EnforceIssuesFilter.class);
+  private static final BitSet NO_MATCH = new BitSet();
 
   private final List<IssuePattern> multicriteriaPatterns;
+  private final WildcardPatternTrie<IssuePattern> resourcePatterns = new WildcardPatternTrie<>();
   private final InputComponentStore componentStore;
+  // patterns matching a rule or a component are computed once, as there are much less rules and components than issues
+  private final Map<String, BitSet> matchingRulePatternsByRule = new ConcurrentHashMap<>();
+  private final Map<String, BitSet> matchingResourcePatternsByComponent = new ConcurrentHashMap<>();
 
   public EnforceIssuesFilter(IssueInclusionPatternInitializer patternInitializer, InputComponentStore componentStore) {
     this.multicriteriaPatterns = Collections.unmodifiableList(new ArrayList<>(patternInitializer.getMulticriteriaPatterns()));
     this.componentStore = componentStore;
+    for (IssuePattern pattern : multicriteriaPatterns) {
+      resourcePatterns.add(pattern.getResourcePattern().toString(), pattern);
+    }
   }
 
   @Override
   public boolean accept(FilterableIssue issue, IssueFilterChain chain) {
-    boolean atLeastOneRuleMatched = false;
-    boolean atLeastOnePatternFullyMatched = false;
-    IssuePattern matchingPattern = null;
+    if (multicriteriaPatterns.isEmpty()) {
+      return chain.accept(issue);
+    }
+    BitSet matchingRulePatterns = matchingRulePatternsByRule.computeIfAbsent(issue.ruleKey().toString(), this::matchRulePatterns);
+    if (matchingRulePatterns.isEmpty()) {
+      return chain.accept(issue);
+    }
 
-    for (IssuePattern pattern : multicriteriaPatterns) {
-      if (pattern.getRulePattern().match(issue.ruleKey().toString())) {
-        atLeastOneRuleMatched = true;
-        String relativePath = getRelativePath(issue.componentKey());
-        if (relativePath != null && pattern.getResourcePattern().match(relativePath)) {
-          atLeastOnePatternFullyMatched = true;
-          matchingPattern = pattern;
-        }
-      }
+    BitSet fullyMatchingPatterns = (BitSet) matchingResourcePatternsByComponent.computeIfAbsent(issue.componentKey(), this::matchResourcePatterns).clone();
+    fullyMatchingPatterns.and(matchingRulePatterns);
+    if (fullyMatchingPatterns.isEmpty()) {
+      return false;
     }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Issue {} enforced by pattern {}", issue, multicriteriaPatterns.get(fullyMatchingPatterns.length() - 1));
+    }
+    return true;
+  }
 
-    if (atLeastOneRuleMatched) {
-      if (atLeastOnePatternFullyMatched) {
-        LOG.debug("Issue {} enforced by pattern {}", issue, matchingPattern);
+  private BitSet matchRulePatterns(String ruleKey) {
+    BitSet matching = new BitSet(multicriteriaPatterns.size());
+    for (int i = 0; i < multicriteriaPatterns.size(); i++) {
+      if (multicriteriaPatterns.get(i).getRulePattern().match(ruleKey)) {
+        matching.set(i);
       }
-      return atLeastOnePatternFullyMatched;
-    } else {
-      return chain.accept(issue);
     }
+    return matching;
+  }
+
+  private BitSet matchResourcePatterns(String componentKey) {
+    String relativePath = getRelativePath(componentKey);
+    return relativePath == null ? NO_MATCH : resourcePatterns.matchingIndices(relativePath);
   }
 
   @CheckForNull
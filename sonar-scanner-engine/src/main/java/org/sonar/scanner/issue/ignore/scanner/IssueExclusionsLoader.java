@@ -28,29 +28,41 @@ import org.sonar.scanner.issue.ignore.pattern.BlockIssuePattern;
 import org.sonar.scanner.issue.ignore.pattern.IssueExclusionPatternInitializer;
 import org.sonar.scanner.issue.ignore.pattern.IssuePattern;
 import org.sonar.scanner.issue.ignore.pattern.PatternMatcher;
+import org.sonar.scanner.util.WildcardPatternTrie;
 
 public final class IssueExclusionsLoader {
-  private final List<java.util.regex.Pattern> allFilePatterns;
+  private final MultiRegexpMatcher allFilePatterns;
   private final List<DoubleRegexpMatcher> blockMatchers;
+  private final MultiRegexpMatcher blockStartPatterns;
   private final PatternMatcher patternMatcher;
   private final IssueExclusionPatternInitializer patternsInitializer;
+  private final WildcardPatternTrie<IssuePattern> multicriteriaPatterns = new WildcardPatternTrie<>();
   private final boolean enableCharHandler;
 
   public IssueExclusionsLoader(IssueExclusionPatternInitializer patternsInitializer, PatternMatcher patternMatcher) {
     this.patternsInitializer = patternsInitializer;
     this.patternMatcher = patternMatcher;
-    this.allFilePatterns = new ArrayList<>();
+    List<java.util.regex.Pattern> filePatterns = new ArrayList<>();
     this.blockMatchers = new ArrayList<>();
 
     for (String pattern : patternsInitializer.getAllFilePatterns()) {
-      allFilePatterns.add(java.util.regex.Pattern.compile(pattern));
+      filePatterns.add(java.util.regex.Pattern.compile(pattern));
     }
+    List<java.util.regex.Pattern> startPatterns = new ArrayList<>();
     for (BlockIssuePattern pattern : patternsInitializer.getBlockPatterns()) {
-      blockMatchers.add(new DoubleRegexpMatcher(
+      DoubleRegexpMatcher matcher = new DoubleRegexpMatcher(
         java.util.regex.Pattern.compile(pattern.getBeginBlockRegexp()),
-        java.util.regex.Pattern.compile(pattern.getEndBlockRegexp())));
+        java.util.regex.Pattern.compile(pattern.getEndBlockRegexp()));
+      blockMatchers.add(matcher);
+      startPatterns.add(matcher.firstPattern);
+    }
+    // all the patterns are combined once, then shared by the scanners of all files
+    this.allFilePatterns = new MultiRegexpMatcher(filePatterns);
+    this.blockStartPatterns = new MultiRegexpMatcher(startPatterns);
+    enableCharHandler = !filePatterns.isEmpty() || !blockMatchers.isEmpty();
+    for (IssuePattern pattern : patternsInitializer.getMulticriteriaPatterns()) {
+      multicriteriaPatterns.add(pattern.getResourcePattern().toString(), pattern);
     }
-    enableCharHandler = !allFilePatterns.isEmpty() || !blockMatchers.isEmpty();
   }
 
   public boolean shouldExecute() {
@@ -58,17 +70,15 @@ public final class IssueExclusionsLoader {
   }
 
   public void addMulticriteriaPatterns(String relativePath, String componentKey) {
-    for (IssuePattern pattern : patternsInitializer.getMulticriteriaPatterns()) {
-      if (pattern.matchResource(relativePath)) {
-        patternMatcher.addPatternForComponent(componentKey, pattern);
-      }
+    for (IssuePattern pattern : multicriteriaPatterns.match(relativePath)) {
+      patternMatcher.addPatternForComponent(componentKey, pattern);
     }
   }
 
   @CheckForNull
   public CharHandler createCharHandlerFor(String componentKey) {
     if (enableCharHandler) {
-      return new IssueExclusionsRegexpScanner(componentKey, allFilePatterns, blockMatchers, patternMatcher);
+      return new IssueExclusionsRegexpScanner(componentKey, allFilePatterns, blockMatchers, blockStartPatterns, patternMatcher);
     }
     return null;
   }
@@ -83,10 +93,6 @@ public final class IssueExclusionsLoader {
       this.secondPattern = secondPattern;
     }
 
-    boolean matchesFirstPattern(String line) {
-      return firstPattern.matcher(line).find();
-    }
-
     boolean matchesSecondPattern(String line) {
       return hasSecondPattern() && secondPattern.matcher(line).find();
     }
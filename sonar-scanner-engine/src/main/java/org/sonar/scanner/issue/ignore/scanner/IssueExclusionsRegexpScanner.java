@@ -23,7 +23,6 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Pattern;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,8 +35,9 @@ public class IssueExclusionsRegexpScanner extends CharHandler {
   private static final Logger LOG = LoggerFactory.getLogger(IssueExclusionsLoader.class);
 
   private final StringBuilder sb = new StringBuilder();
-  private final List<Pattern> allFilePatterns;
+  private final MultiRegexpMatcher allFilePatterns;
   private final List<DoubleRegexpMatcher> blockMatchers;
+  private final MultiRegexpMatcher blockStartPatterns;
   private final String componentKey;
   private final PatternMatcher patternMatcher;
 
@@ -47,9 +47,11 @@ public class IssueExclusionsRegexpScanner extends CharHandler {
   private int fileLength = 0;
   private DoubleRegexpMatcher currentMatcher;
 
-  IssueExclusionsRegexpScanner(String componentKey, List<Pattern> allFilePatterns, List<DoubleRegexpMatcher> blockMatchers, PatternMatcher patternMatcher) {
+  IssueExclusionsRegexpScanner(String componentKey, MultiRegexpMatcher allFilePatterns, List<DoubleRegexpMatcher> blockMatchers,
+    MultiRegexpMatcher blockStartPatterns, PatternMatcher patternMatcher) {
     this.allFilePatterns = allFilePatterns;
     this.blockMatchers = blockMatchers;
+    this.blockStartPatterns = blockStartPatterns;
     this.patternMatcher = patternMatcher;
     this.componentKey = componentKey;
     String relativePath = StringUtils.substringAfterLast(componentKey, ":");
@@ -87,18 +89,17 @@ public class IssueExclusionsRegexpScanner extends CharHandler {
   }
 
   private void processLine(String line) {
-    if (line.trim().length() == 0) {
+    if (StringUtils.isBlank(line)) {
       return;
     }
 
     // first check the single regexp patterns that can be used to totally exclude a file
-    for (Pattern pattern : allFilePatterns) {
-      if (pattern.matcher(line).find()) {
-        patternMatcher.addPatternToExcludeResource(componentKey);
-        // nothing more to do on this file
-        LOG.debug("- Exclusion pattern '{}': every issue in this file will be ignored.", pattern);
-        return;
-      }
+    int filePatternIndex = allFilePatterns.indexOfFirstMatch(line);
+    if (filePatternIndex >= 0) {
+      patternMatcher.addPatternToExcludeResource(componentKey);
+      // nothing more to do on this file
+      LOG.debug("- Exclusion pattern '{}': every issue in this file will be ignored.", allFilePatterns.get(filePatternIndex));
+      return;
     }
 
     // then check the double regexps if we're still here
@@ -115,12 +116,10 @@ public class IssueExclusionsRegexpScanner extends CharHandler {
 
   private void checkDoubleRegexps(String line, int lineIndex) {
     if (currentMatcher == null) {
-      for (DoubleRegexpMatcher matcher : blockMatchers) {
-        if (matcher.matchesFirstPattern(line)) {
-          startExclusion(lineIndex);
-          currentMatcher = matcher;
-          break;
-        }
+      int blockIndex = blockStartPatterns.indexOfFirstMatch(line);
+      if (blockIndex >= 0) {
+        startExclusion(lineIndex);
+        currentMatcher = blockMatchers.get(blockIndex);
       }
     } else {
       if (currentMatcher.matchesSecondPattern(line)) {
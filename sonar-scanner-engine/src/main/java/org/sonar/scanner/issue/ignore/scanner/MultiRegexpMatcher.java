@@ -0,0 +1,348 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.ignore.scanner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import javax.annotation.CheckForNull;
+
+/**
+ * Finds which regular expressions of a list match a line, without evaluating each regular expression on each line.
+ * <ul>
+ *   <li>regular expressions which are plain literals, for example {@code @javax\.annotation\.Generated}, are searched with
+ *   {@link String#contains(CharSequence)}</li>
+ *   <li>other regular expressions are combined into a single alternation, so that the line is scanned once for all of them.
+ *   When each of them requires a literal, for example {@code "BEGIN-"} in {@code ^//\s*BEGIN-[A-Z]+}, the alternation is
+ *   evaluated only on the lines which contain at least one of these literals.</li>
+ * </ul>
+ * Regular expressions are evaluated one by one only on the lines which match at least one of them.
+ */
+class MultiRegexpMatcher {
+
+  private static final String META_CHARS = "\\^$.|?*+()[]{}";
+  /**
+   * Constructs which can not be wrapped into a group of an alternation: back references and named groups are
+   * renumbered or duplicated, quotes and comments may swallow the end of the group.
+   */
+  private static final Pattern NOT_COMBINABLE = Pattern.compile("\\\\[1-9]|\\\\k<|\\(\\?<[a-zA-Z]|\\\\Q|\\(\\?[a-zA-Z-]*x");
+  private static final String IGNORE_CASE_FLAG = "(?i)";
+  /**
+   * Escaped characters which denote a class of characters or a boundary, so that they can be skipped when looking for
+   * a required literal. Other escape sequences like {@code \x41} or {@code \p{Lu}} prevent from looking for a literal.
+   */
+  private static final String SKIPPABLE_ESCAPES = "dDsSwWbBhHvVRAGZztnrfae";
+
+  private final List<Pattern> patterns;
+  private final String[] literals;
+  private final List<String> allLiterals = new ArrayList<>();
+  private final List<Pattern> standalonePatterns = new ArrayList<>();
+  private final Pattern combinedPattern;
+  private final List<String> requiredLiterals = new ArrayList<>();
+  private final List<String> requiredIgnoreCaseLiterals = new ArrayList<>();
+  private boolean prefilterCombinedPattern = true;
+
+  MultiRegexpMatcher(List<Pattern> patterns) {
+    this.patterns = patterns;
+    this.literals = new String[patterns.size()];
+    List<String> combinable = new ArrayList<>();
+    for (int i = 0; i < patterns.size(); i++) {
+      Pattern pattern = patterns.get(i);
+      String literal = pattern.flags() == 0 ? toLiteral(pattern.pattern()) : null;
+      if (literal != null) {
+        literals[i] = literal;
+        allLiterals.add(literal);
+      } else if (pattern.flags() == 0 && !NOT_COMBINABLE.matcher(pattern.pattern()).find()) {
+        combinable.add(pattern.pattern());
+        addRequiredLiteral(pattern.pattern());
+      } else {
+        standalonePatterns.add(pattern);
+      }
+    }
+    this.combinedPattern = combine(combinable);
+  }
+
+  private void addRequiredLiteral(String regexp) {
+    boolean ignoreCase = regexp.startsWith(IGNORE_CASE_FLAG);
+    String literal = requiredLiteral(ignoreCase ? regexp.substring(IGNORE_CASE_FLAG.length()) : regexp);
+    if (literal == null || literal.isEmpty() || (ignoreCase && !isAscii(literal))) {
+      prefilterCombinedPattern = false;
+    } else if (ignoreCase) {
+      // without the flag UNICODE_CASE, only the case of ASCII characters is ignored
+      requiredIgnoreCaseLiterals.add(literal.toLowerCase(Locale.ENGLISH));
+    } else {
+      requiredLiterals.add(literal);
+    }
+  }
+
+  private static boolean isAscii(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) > 127) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @CheckForNull
+  private Pattern combine(List<String> regexps) {
+    if (regexps.isEmpty()) {
+      return null;
+    }
+    if (regexps.size() == 1) {
+      return Pattern.compile(regexps.get(0));
+    }
+    StringBuilder sb = new StringBuilder();
+    for (String regexp : regexps) {
+      if (sb.length() > 0) {
+        sb.append('|');
+      }
+      sb.append("(?:").append(regexp).append(')');
+    }
+    try {
+      return Pattern.compile(sb.toString());
+    } catch (PatternSyntaxException e) {
+      // should not happen, but regular expressions are then evaluated one by one
+      for (String regexp : regexps) {
+        standalonePatterns.add(Pattern.compile(regexp));
+      }
+      return null;
+    }
+  }
+
+  /**
+   * @return the unescaped literal matched by the regular expression, or null if the regular expression is not a plain literal
+   */
+  @CheckForNull
+  static String toLiteral(String regexp) {
+    StringBuilder sb = new StringBuilder(regexp.length());
+    for (int i = 0; i < regexp.length(); i++) {
+      char c = regexp.charAt(i);
+      if (c == '\\') {
+        if (i + 1 < regexp.length() && !Character.isLetterOrDigit(regexp.charAt(i + 1))) {
+          i++;
+          sb.append(regexp.charAt(i));
+          continue;
+        }
+        return null;
+      }
+      if (META_CHARS.indexOf(c) >= 0) {
+        return null;
+      }
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Longest literal which is contained by any text matched by the regular expression. It is searched only at the top level
+   * of the regular expression, ignoring groups and character classes.
+   *
+   * @return the literal, or null if it can not be determined, for example because of alternations or inline flags
+   */
+  @CheckForNull
+  static String requiredLiteral(String regexp) {
+    if (regexp.indexOf('|') >= 0 || regexp.contains("(?")) {
+      return null;
+    }
+    String longest = "";
+    StringBuilder current = new StringBuilder();
+    int i = 0;
+    while (i < regexp.length()) {
+      char c = regexp.charAt(i);
+      if (c == '\\') {
+        if (i + 1 >= regexp.length()) {
+          return null;
+        }
+        char escaped = regexp.charAt(i + 1);
+        if (Character.isLetterOrDigit(escaped)) {
+          if (SKIPPABLE_ESCAPES.indexOf(escaped) < 0) {
+            return null;
+          }
+          longest = longest(longest, current);
+        } else {
+          current.append(escaped);
+        }
+        i += 2;
+      } else if (c == '?' || c == '*' || c == '{') {
+        // previous character is optional
+        if (current.length() > 0) {
+          current.setLength(current.length() - 1);
+        }
+        longest = longest(longest, current);
+        i = c == '{' ? skipQuantifier(regexp, i) : (i + 1);
+        if (i < 0) {
+          return null;
+        }
+      } else if (c == '+') {
+        longest = longest(longest, current);
+        i++;
+      } else if (c == '(' || c == '[') {
+        // content of groups and classes is ignored, as well as the quantifier of the group or class
+        longest = longest(longest, current);
+        i = c == '(' ? skipGroup(regexp, i) : skipClass(regexp, i);
+        if (i < 0) {
+          return null;
+        }
+      } else if (META_CHARS.indexOf(c) >= 0) {
+        longest = longest(longest, current);
+        i++;
+      } else {
+        current.append(c);
+        i++;
+      }
+    }
+    return longest(longest, current);
+  }
+
+  private static String longest(String longest, StringBuilder current) {
+    String res = current.length() > longest.length() ? current.toString() : longest;
+    current.setLength(0);
+    return res;
+  }
+
+  /**
+   * @return the index following the closing brace of the quantifier starting at {@code start}, or -1 if not found
+   */
+  private static int skipQuantifier(String regexp, int start) {
+    int end = regexp.indexOf('}', start);
+    return end < 0 ? -1 : (end + 1);
+  }
+
+  /**
+   * @return the index following the closing parenthesis of the group starting at {@code start}, or -1 if not found
+   */
+  private static int skipGroup(String regexp, int start) {
+    int depth = 0;
+    int i = start;
+    while (i >= 0 && i < regexp.length()) {
+      char c = regexp.charAt(i);
+      if (c == '\\') {
+        i += 2;
+      } else if (c == '[') {
+        i = skipClass(regexp, i);
+      } else {
+        if (c == '(') {
+          depth++;
+        } else if (c == ')' && --depth == 0) {
+          return i + 1;
+        }
+        i++;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the index following the closing bracket of the character class starting at {@code start}, or -1 if not found
+   */
+  private static int skipClass(String regexp, int start) {
+    int depth = 0;
+    int i = start;
+    while (i < regexp.length()) {
+      char c = regexp.charAt(i);
+      if (c == '\\') {
+        i += 2;
+        continue;
+      }
+      if (c == '[') {
+        depth++;
+        // a closing bracket right after the opening one, possibly negated, is a literal
+        if (i + 1 < regexp.length() && regexp.charAt(i + 1) == '^') {
+          i++;
+        }
+        if (i + 1 < regexp.length() && regexp.charAt(i + 1) == ']') {
+          i++;
+        }
+      } else if (c == ']' && --depth == 0) {
+        return i + 1;
+      }
+      i++;
+    }
+    return -1;
+  }
+
+  boolean matchesAny(String line) {
+    for (String literal : allLiterals) {
+      if (line.contains(literal)) {
+        return true;
+      }
+    }
+    if (combinedPattern != null && mayMatchCombinedPattern(line) && combinedPattern.matcher(line).find()) {
+      return true;
+    }
+    for (Pattern pattern : standalonePatterns) {
+      if (pattern.matcher(line).find()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean mayMatchCombinedPattern(String line) {
+    if (!prefilterCombinedPattern) {
+      return true;
+    }
+    for (String literal : requiredLiterals) {
+      if (line.contains(literal)) {
+        return true;
+      }
+    }
+    if (!requiredIgnoreCaseLiterals.isEmpty()) {
+      String lowerCaseLine = line.toLowerCase(Locale.ENGLISH);
+      for (String literal : requiredIgnoreCaseLiterals) {
+        if (lowerCaseLine.contains(literal)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the index of the first regular expression, in the order of the list given to the constructor, which
+   * matches the line, or -1 if none matches
+   */
+  int indexOfFirstMatch(String line) {
+    if (!matchesAny(line)) {
+      return -1;
+    }
+    for (int i = 0; i < patterns.size(); i++) {
+      if (matches(i, line)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean matches(int index, String line) {
+    String literal = literals[index];
+    if (literal != null) {
+      return line.contains(literal);
+    }
+    return patterns.get(index).matcher(line).find();
+  }
+
+  Pattern get(int index) {
+    return patterns.get(index);
+  }
+}
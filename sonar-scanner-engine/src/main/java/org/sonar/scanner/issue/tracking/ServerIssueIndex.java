@@ -0,0 +1,165 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.tracking;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.commons.io.IOUtils;
+import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
+
+/**
+ * In-memory index of the issues returned by the web service api/batch/issues. Issues are kept
+ * in their serialized form in a single byte buffer and are decoded only when the issues
+ * of a component are requested. Issues of a component are linked through primitive arrays, so
+ * that the index does not allocate any object per issue.
+ */
+class ServerIssueIndex {
+
+  @FunctionalInterface
+  interface ComponentResolver {
+    /**
+     * @return the ref of the component that the issue relates to.
+     */
+    int resolve(@Nullable String moduleKey, @Nullable String path);
+  }
+
+  private static final int NO_ISSUE = -1;
+  private static final int INITIAL_DATA_CAPACITY = 64 * 1024;
+  private static final int INITIAL_ISSUES_CAPACITY = 1024;
+
+  private byte[] data = new byte[INITIAL_DATA_CAPACITY];
+  private int dataSize = 0;
+
+  // indexed by issue
+  private int[] offsets = new int[INITIAL_ISSUES_CAPACITY];
+  private int[] lengths = new int[INITIAL_ISSUES_CAPACITY];
+  private int[] nextIssues = new int[INITIAL_ISSUES_CAPACITY];
+  private int issues = 0;
+
+  // indexed by component ref
+  private int[] firstIssues = new int[0];
+  private int[] lastIssues = new int[0];
+
+  /**
+   * Reads a stream of delimited {@link ServerIssue}. Only the module key and the path of issues
+   * are decoded, in order to find the component that they relate to.
+   */
+  void load(InputStream input, ComponentResolver componentResolver) throws IOException {
+    int firstByte = input.read();
+    while (firstByte != -1) {
+      int length = CodedInputStream.readRawVarint32(firstByte, input);
+      int offset = dataSize;
+      ensureDataCapacity(length);
+      IOUtils.readFully(input, data, offset, length);
+      dataSize += length;
+      add(resolveComponent(offset, length, componentResolver), offset, length);
+      firstByte = input.read();
+    }
+  }
+
+  private int resolveComponent(int offset, int length, ComponentResolver componentResolver) throws IOException {
+    CodedInputStream issueInput = CodedInputStream.newInstance(data, offset, length);
+    String moduleKey = null;
+    String path = null;
+    int tag = issueInput.readTag();
+    while (tag != 0) {
+      int fieldNumber = WireFormat.getTagFieldNumber(tag);
+      if (fieldNumber == ServerIssue.MODULE_KEY_FIELD_NUMBER) {
+        moduleKey = issueInput.readString();
+      } else if (fieldNumber == ServerIssue.PATH_FIELD_NUMBER) {
+        path = issueInput.readString();
+      } else {
+        issueInput.skipField(tag);
+      }
+      tag = issueInput.readTag();
+    }
+    return componentResolver.resolve(moduleKey, path);
+  }
+
+  private void add(int componentRef, int offset, int length) {
+    if (issues == offsets.length) {
+      int newCapacity = issues * 2;
+      offsets = Arrays.copyOf(offsets, newCapacity);
+      lengths = Arrays.copyOf(lengths, newCapacity);
+      nextIssues = Arrays.copyOf(nextIssues, newCapacity);
+    }
+    int issue = issues;
+    issues++;
+    offsets[issue] = offset;
+    lengths[issue] = length;
+    nextIssues[issue] = NO_ISSUE;
+
+    ensureComponentCapacity(componentRef);
+    if (firstIssues[componentRef] == NO_ISSUE) {
+      firstIssues[componentRef] = issue;
+    } else {
+      nextIssues[lastIssues[componentRef]] = issue;
+    }
+    lastIssues[componentRef] = issue;
+  }
+
+  private void ensureDataCapacity(int length) {
+    if (dataSize + length > data.length) {
+      data = Arrays.copyOf(data, Math.max(data.length * 2, dataSize + length));
+    }
+  }
+
+  private void ensureComponentCapacity(int componentRef) {
+    if (componentRef >= firstIssues.length) {
+      int oldCapacity = firstIssues.length;
+      int newCapacity = Math.max(oldCapacity * 2, componentRef + 1);
+      firstIssues = Arrays.copyOf(firstIssues, newCapacity);
+      lastIssues = Arrays.copyOf(lastIssues, newCapacity);
+      Arrays.fill(firstIssues, oldCapacity, newCapacity, NO_ISSUE);
+    }
+  }
+
+  int size() {
+    return issues;
+  }
+
+  /**
+   * Decodes the issues of the given component, sorted by key like when they were stored in the persistent cache.
+   */
+  List<ServerIssue> get(int componentRef) {
+    if (componentRef >= firstIssues.length || firstIssues[componentRef] == NO_ISSUE) {
+      return Collections.emptyList();
+    }
+    List<ServerIssue> result = new ArrayList<>();
+    for (int issue = firstIssues[componentRef]; issue != NO_ISSUE; issue = nextIssues[issue]) {
+      try {
+        result.add(ServerIssue.parser().parseFrom(data, offsets[issue], lengths[issue]));
+      } catch (InvalidProtocolBufferException e) {
+        throw new IllegalStateException("Unable to read issue from index", e);
+      }
+    }
+    result.sort(Comparator.comparing(ServerIssue::getKey));
+    return result;
+  }
+}
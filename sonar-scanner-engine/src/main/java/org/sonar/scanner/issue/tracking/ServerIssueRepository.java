@@ -19,6 +19,10 @@
  */
 package org.sonar.scanner.issue.tracking;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import javax.annotation.Nullable;
 import org.sonar.api.batch.InstantiationStrategy;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.fs.InputComponent;
@@ -32,8 +36,6 @@ import org.sonar.core.component.ComponentKeys;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 import org.sonar.scanner.repository.ServerIssuesLoader;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
-import org.sonar.scanner.storage.Storage;
-import org.sonar.scanner.storage.Storages;
 
 @InstantiationStrategy(InstantiationStrategy.PER_BATCH)
 @ScannerSide
@@ -41,47 +43,67 @@ public class ServerIssueRepository {
 
   private static final Logger LOG = Loggers.get(ServerIssueRepository.class);
   private static final String LOG_MSG = "Load server issues";
+  private static final int DELETED_COMPONENT_REF = 0;
 
-  private final Storages caches;
-  private Storage<ServerIssue> issuesCache;
   private final ServerIssuesLoader previousIssuesLoader;
   private final InputComponentStore componentStore;
+  private ServerIssueIndex issuesIndex;
 
-  public ServerIssueRepository(Storages caches, ServerIssuesLoader previousIssuesLoader, InputComponentStore componentStore) {
-    this.caches = caches;
+  public ServerIssueRepository(ServerIssuesLoader previousIssuesLoader, InputComponentStore componentStore) {
     this.previousIssuesLoader = previousIssuesLoader;
     this.componentStore = componentStore;
   }
 
   public void load() {
     Profiler profiler = Profiler.create(LOG).startInfo(LOG_MSG);
-    this.issuesCache = caches.createCache("previousIssues");
-    caches.registerValueCoder(ServerIssue.class, new ServerIssueValueCoder());
+    this.issuesIndex = new ServerIssueIndex();
     DefaultInputModule root = (DefaultInputModule) componentStore.root();
-    previousIssuesLoader.load(root.getKeyWithBranch(), this::store);
+    try (InputStream input = previousIssuesLoader.load(root.getKeyWithBranch())) {
+      issuesIndex.load(input, new CachingComponentResolver());
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to get previous issues", e);
+    }
     profiler.stopInfo();
   }
 
   public Iterable<ServerIssue> byComponent(InputComponent component) {
-    return issuesCache.values(((DefaultInputComponent) component).batchId());
+    return issuesIndex.get(((DefaultInputComponent) component).batchId());
   }
 
-  private void store(ServerIssue issue) {
-    String moduleKeyWithBranch = issue.getModuleKey();
-    InputModule module = componentStore.getModule(moduleKeyWithBranch);
-    if (module != null) {
-      String componentKeyWithoutBranch = ComponentKeys.createEffectiveKey(module.key(), issue.hasPath() ? issue.getPath() : null);
-      DefaultInputComponent r = (DefaultInputComponent) componentStore.getByKey(componentKeyWithoutBranch);
-      if (r != null) {
-        issuesCache.put(r.batchId(), issue.getKey(), issue);
-        return;
+  public Iterable<ServerIssue> issuesOnMissingComponents() {
+    return issuesIndex.get(DELETED_COMPONENT_REF);
+  }
+
+  /**
+   * Issues are returned by the server grouped by component, so resolution is not repeated
+   * for consecutive issues of the same component.
+   */
+  private class CachingComponentResolver implements ServerIssueIndex.ComponentResolver {
+    private String lastModuleKey;
+    private String lastPath;
+    private int lastRef = DELETED_COMPONENT_REF;
+
+    @Override
+    public int resolve(@Nullable String moduleKeyWithBranch, @Nullable String path) {
+      if (lastModuleKey == null || !lastModuleKey.equals(moduleKeyWithBranch) || !Objects.equals(lastPath, path)) {
+        lastModuleKey = moduleKeyWithBranch;
+        lastPath = path;
+        lastRef = doResolve(moduleKeyWithBranch, path);
       }
+      return lastRef;
     }
-    // Deleted resource
-    issuesCache.put(0, issue.getKey(), issue);
-  }
 
-  public Iterable<ServerIssue> issuesOnMissingComponents() {
-    return issuesCache.values(0);
+    private int doResolve(@Nullable String moduleKeyWithBranch, @Nullable String path) {
+      InputModule module = moduleKeyWithBranch == null ? null : componentStore.getModule(moduleKeyWithBranch);
+      if (module != null) {
+        String componentKeyWithoutBranch = ComponentKeys.createEffectiveKey(module.key(), path);
+        DefaultInputComponent r = (DefaultInputComponent) componentStore.getByKey(componentKeyWithoutBranch);
+        if (r != null) {
+          return r.batchId();
+        }
+      }
+      // Deleted resource
+      return DELETED_COMPONENT_REF;
+    }
   }
 }
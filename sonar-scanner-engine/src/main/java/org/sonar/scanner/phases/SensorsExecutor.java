@@ -23,15 +23,21 @@ import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.api.batch.fs.internal.SensorStrategy;
+import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
 import org.sonar.api.resources.Project;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
+import org.sonar.scanner.cache.AnalysisCacheExecutor;
 import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.sensor.SensorWrapper;
+
+import static org.sonar.core.util.stream.MoreCollectors.toList;
 
 @ScannerSide
 public class SensorsExecutor {
@@ -39,13 +45,16 @@ public class SensorsExecutor {
   private final DefaultInputModule module;
   private final EventBus eventBus;
   private final SensorStrategy strategy;
+  private final AnalysisCacheExecutor analysisCacheExecutor;
   private final boolean isRoot;
 
-  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, InputModuleHierarchy hierarchy, EventBus eventBus, SensorStrategy strategy) {
+  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, InputModuleHierarchy hierarchy, EventBus eventBus, SensorStrategy strategy,
+    AnalysisCacheExecutor analysisCacheExecutor) {
     this.selector = selector;
     this.module = module;
     this.eventBus = eventBus;
     this.strategy = strategy;
+    this.analysisCacheExecutor = analysisCacheExecutor;
     this.isRoot = hierarchy.isRoot(module);
   }
 
@@ -66,17 +75,28 @@ public class SensorsExecutor {
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(allSensors), true));
 
     execute(context, perModuleSensors);
+    // before global sensors, so that they can use data of unchanged files
+    analysisCacheExecutor.restore(module, analysisCacheUsers(perModuleSensors));
 
     if (isRoot) {
       boolean orig = strategy.isGlobal();
       strategy.setGlobal(true);
       execute(context, globalSensors);
       strategy.setGlobal(orig);
+      analysisCacheExecutor.store();
     }
 
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(allSensors), false));
   }
 
+  private static List<DefaultSensorDescriptor> analysisCacheUsers(Collection<Sensor> sensors) {
+    return sensors.stream()
+      .filter(SensorWrapper.class::isInstance)
+      .map(sensor -> ((SensorWrapper) sensor).descriptor())
+      .filter(DefaultSensorDescriptor::isAnalysisCacheReused)
+      .collect(toList());
+  }
+
   private void execute(SensorContext context, Collection<Sensor> sensors) {
     for (Sensor sensor : sensors) {
       executeSensor(context, sensor);
@@ -19,81 +19,62 @@
  */
 package org.sonar.scanner.report;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Iterables;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import javax.annotation.Nonnull;
-import org.apache.commons.lang.StringUtils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
-import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
-import org.sonar.api.measures.CoreMetrics;
-import org.sonar.api.utils.KeyValueFormat;
 import org.sonar.scanner.protocol.output.ScannerReport.LineCoverage;
-import org.sonar.scanner.protocol.output.ScannerReport.LineCoverage.Builder;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
-import org.sonar.scanner.scan.measure.MeasureCache;
+import org.sonar.scanner.scan.measure.FileLineCoverage;
+import org.sonar.scanner.scan.measure.LineCoverageCache;
+
+import static org.sonar.scanner.scan.measure.FileLineCoverage.NO_VALUE;
 
 public class CoveragePublisher implements ReportPublisherStep {
 
   private final InputComponentStore componentStore;
-  private final MeasureCache measureCache;
+  private final LineCoverageCache lineCoverageCache;
 
-  public CoveragePublisher(InputComponentStore componentStore, MeasureCache measureCache) {
+  public CoveragePublisher(InputComponentStore componentStore, LineCoverageCache lineCoverageCache) {
     this.componentStore = componentStore;
-    this.measureCache = measureCache;
+    this.lineCoverageCache = lineCoverageCache;
   }
 
   @Override
   public void publish(ScannerReportWriter writer) {
+    LineCoverage.Builder builder = LineCoverage.newBuilder();
     for (final DefaultInputFile inputFile : componentStore.allFilesToPublish()) {
-      Map<Integer, LineCoverage.Builder> coveragePerLine = new LinkedHashMap<>();
-
-      int lineCount = inputFile.lines();
-      applyLineMeasure(inputFile.key(), lineCount, CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY, coveragePerLine,
-        (value, builder) -> builder.setHits(Integer.parseInt(value) > 0));
-      applyLineMeasure(inputFile.key(), lineCount, CoreMetrics.CONDITIONS_BY_LINE_KEY, coveragePerLine,
-        (value, builder) -> builder.setConditions(Integer.parseInt(value)));
-      applyLineMeasure(inputFile.key(), lineCount, CoreMetrics.COVERED_CONDITIONS_BY_LINE_KEY, coveragePerLine,
-        (value, builder) -> builder.setCoveredConditions(Integer.parseInt(value)));
-      writer.writeComponentCoverage(inputFile.batchId(), Iterables.transform(coveragePerLine.values(), BuildCoverage.INSTANCE));
+      FileLineCoverage coverage = lineCoverageCache.byFile(inputFile.key());
+      List<LineCoverage> coveragePerLine = coverage == null ? Collections.emptyList() : toLineCoverages(coverage, inputFile.lines(), builder);
+      writer.writeComponentCoverage(inputFile.batchId(), coveragePerLine);
     }
   }
 
-  void applyLineMeasure(String inputFileKey, int lineCount, String metricKey, Map<Integer, LineCoverage.Builder> coveragePerLine, MeasureOperation op) {
-    DefaultMeasure<?> measure = measureCache.byMetric(inputFileKey, metricKey);
-    if (measure != null) {
-      Map<Integer, String> lineMeasures = KeyValueFormat.parseIntString((String) measure.value());
-      for (Map.Entry<Integer, String> lineMeasure : lineMeasures.entrySet()) {
-        int lineIdx = lineMeasure.getKey();
-        if (lineIdx <= lineCount) {
-          String value = lineMeasure.getValue();
-          if (StringUtils.isNotEmpty(value)) {
-            LineCoverage.Builder coverageBuilder = coveragePerLine.get(lineIdx);
-            if (coverageBuilder == null) {
-              coverageBuilder = LineCoverage.newBuilder();
-              coverageBuilder.setLine(lineIdx);
-              coveragePerLine.put(lineIdx, coverageBuilder);
-            }
-            op.apply(value, coverageBuilder);
-          }
-        }
+  private static List<LineCoverage> toLineCoverages(FileLineCoverage coverage, int lineCount, LineCoverage.Builder builder) {
+    List<LineCoverage> res = new ArrayList<>();
+    int maxLine = Math.min(lineCount, coverage.lines());
+    for (int line = 1; line <= maxLine; line++) {
+      int hits = coverage.hits(line);
+      int conditions = coverage.conditions(line);
+      int coveredConditions = coverage.coveredConditions(line);
+      if (hits == NO_VALUE && conditions == NO_VALUE && coveredConditions == NO_VALUE) {
+        continue;
       }
+      builder.clear();
+      builder.setLine(line);
+      if (hits != NO_VALUE) {
+        builder.setHits(hits > 0);
+      }
+      if (conditions != NO_VALUE) {
+        builder.setConditions(conditions);
+      }
+      if (coveredConditions != NO_VALUE) {
+        builder.setCoveredConditions(coveredConditions);
+      }
+      res.add(builder.build());
     }
-  }
-
-  interface MeasureOperation {
-    void apply(String value, LineCoverage.Builder builder);
-  }
-
-  private enum BuildCoverage implements Function<LineCoverage.Builder, LineCoverage> {
-    INSTANCE;
-
-    @Override
-    public LineCoverage apply(@Nonnull Builder input) {
-      return input.build();
-    }
+    return res;
   }
 
 }
@@ -21,19 +21,26 @@ package org.sonar.scanner.report;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Writer;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
 import okhttp3.HttpUrl;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.picocontainer.Startable;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
@@ -50,13 +57,31 @@ import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonarqube.ws.MediaTypes;
 import org.sonarqube.ws.WsCe;
+import org.sonarqube.ws.client.GetRequest;
 import org.sonarqube.ws.client.HttpException;
 import org.sonarqube.ws.client.PostRequest;
+import org.sonarqube.ws.client.WsRequest;
 import org.sonarqube.ws.client.WsResponse;
 
+import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
+import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
 import static org.sonar.core.config.ScannerProperties.BRANCH_NAME;
 import static org.sonar.core.config.ScannerProperties.ORGANIZATION;
 import static org.sonar.core.util.FileUtils.deleteQuietly;
+import static org.sonarqube.ws.client.ce.CeWsParameters.ACTION_UPLOAD_CHUNK;
+import static org.sonarqube.ws.client.ce.CeWsParameters.ACTION_UPLOAD_COMMIT;
+import static org.sonarqube.ws.client.ce.CeWsParameters.ACTION_UPLOAD_START;
+import static org.sonarqube.ws.client.ce.CeWsParameters.ACTION_UPLOAD_STATUS;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_ANALYSIS_CHARACTERISTIC;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNK;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNKS;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNK_CHECKSUM;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNK_INDEX;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_ORGANIZATION;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_PROJECT_BRANCH;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_PROJECT_KEY;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_PROJECT_NAME;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_UPLOAD_ID;
 
 @ScannerSide
 public class ReportPublisher implements Startable {
@@ -66,7 +91,10 @@ public class ReportPublisher implements Startable {
   public static final String KEEP_REPORT_PROP_KEY = "sonar.scanner.keepReport";
   public static final String VERBOSE_KEY = "sonar.verbose";
   public static final String METADATA_DUMP_FILENAME = "report-task.txt";
-  private static final String CHARACTERISTIC = "characteristic";
+  public static final String REPORT_CHUNK_SIZE_PROP_KEY = "sonar.scanner.reportChunkSize";
+  static final long DEFAULT_REPORT_CHUNK_SIZE = 10L * 1024 * 1024;
+  private static final int MAX_CHUNK_ATTEMPTS = 3;
+  private static final long DEFAULT_RETRY_DELAY_MS = 1_000L;
 
   private final Configuration settings;
   private final ScannerWsClient wsClient;
@@ -80,6 +108,7 @@ public class ReportPublisher implements Startable {
 
   private Path reportDir;
   private ScannerReportWriter writer;
+  private long retryDelay = DEFAULT_RETRY_DELAY_MS;
 
   public ReportPublisher(Configuration settings, ScannerWsClient wsClient, Server server, AnalysisContextReportPublisher contextPublisher,
     InputModuleHierarchy moduleHierarchy, GlobalAnalysisMode analysisMode, TempFolder temp, ReportPublisherStep[] publishers, BranchConfiguration branchConfiguration) {
@@ -163,44 +192,166 @@ public class ReportPublisher implements Startable {
   }
 
   /**
-   * Uploads the report file to server and returns the generated task id
+   * Uploads the report file to server and returns the generated task id. Reports bigger than
+   * {@link #REPORT_CHUNK_SIZE_PROP_KEY} are uploaded in chunks, so that network failures do not
+   * restart the whole upload.
    */
   @VisibleForTesting
   String upload(File report) {
     LOG.debug("Upload report");
     long startTime = System.currentTimeMillis();
-    PostRequest.Part filePart = new PostRequest.Part(MediaTypes.ZIP, report);
-    PostRequest post = new PostRequest("api/ce/submit")
+    try {
+      long chunkSize = settings.getLong(REPORT_CHUNK_SIZE_PROP_KEY).orElse(DEFAULT_REPORT_CHUNK_SIZE);
+      if (report.length() <= chunkSize) {
+        PostRequest post = setSubmitParameters(new PostRequest("api/ce/submit"))
+          .setPart("report", new PostRequest.Part(MediaTypes.ZIP, report));
+        return parse(call(post), WsCe.SubmitResponse.parser()).getTaskId();
+      }
+      return uploadInChunks(report, chunkSize);
+    } finally {
+      long stopTime = System.currentTimeMillis();
+      LOG.info("Analysis report uploaded in " + (stopTime - startTime) + "ms");
+    }
+  }
+
+  private String uploadInChunks(File report, long chunkSize) {
+    long reportSize = report.length();
+    int chunks = (int) ((reportSize + chunkSize - 1) / chunkSize);
+    String uploadId = parse(call(setSubmitParameters(new PostRequest(path(ACTION_UPLOAD_START)))), WsCe.UploadResponse.parser()).getUploadId();
+    LOG.debug("Upload report in {} chunks", chunks);
+
+    int nextChunk = 0;
+    int failures = 0;
+    boolean resume = false;
+    while (nextChunk < chunks) {
+      try {
+        if (resume) {
+          nextChunk = uploadStatus(uploadId);
+          resume = false;
+        } else {
+          nextChunk = uploadChunk(report, uploadId, nextChunk, chunkSize);
+          failures = 0;
+        }
+      } catch (IllegalStateException | HttpException e) {
+        failures++;
+        if (!isTransient(e) || failures >= MAX_CHUNK_ATTEMPTS) {
+          throw uploadFailure(e);
+        }
+        LOG.warn("Failed to upload chunk {} of the report, resuming upload: {}", nextChunk, e.getMessage());
+        backOff(failures);
+        resume = true;
+      }
+    }
+
+    PostRequest commit = new PostRequest(path(ACTION_UPLOAD_COMMIT))
       .setMediaType(MediaTypes.PROTOBUF)
-      .setParam("organization", settings.get(ORGANIZATION).orElse(null))
-      .setParam("projectKey", moduleHierarchy.root().key())
-      .setParam("projectName", moduleHierarchy.root().getOriginalName())
-      .setParam("projectBranch", moduleHierarchy.root().getBranch())
-      .setPart("report", filePart);
+      .setParam(PARAM_UPLOAD_ID, uploadId)
+      .setParam(PARAM_CHUNKS, chunks);
+    return parse(call(commit), WsCe.SubmitResponse.parser()).getTaskId();
+  }
+
+  private int uploadChunk(File report, String uploadId, int index, long chunkSize) {
+    long offset = index * chunkSize;
+    long length = Math.min(chunkSize, report.length() - offset);
+    PostRequest post = new PostRequest(path(ACTION_UPLOAD_CHUNK))
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam(PARAM_UPLOAD_ID, uploadId)
+      .setParam(PARAM_CHUNK_INDEX, index)
+      .setParam(PARAM_CHUNK_CHECKSUM, sha256Hex(report, offset, length))
+      .setPart(PARAM_CHUNK, new PostRequest.Part(MediaTypes.ZIP, report, offset, length));
+    return parse(wsClient.call(post).failIfNotSuccessful(), WsCe.UploadResponse.parser()).getNextChunk();
+  }
+
+  /**
+   * Asks the server which chunk is expected next, as the failed chunk may have been received anyway
+   */
+  private int uploadStatus(String uploadId) {
+    GetRequest status = new GetRequest(path(ACTION_UPLOAD_STATUS))
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam(PARAM_UPLOAD_ID, uploadId);
+    return parse(wsClient.call(status).failIfNotSuccessful(), WsCe.UploadResponse.parser()).getNextChunk();
+  }
+
+  /**
+   * Waits before the next attempt, twice as long after each consecutive failure
+   */
+  private void backOff(int failures) {
+    try {
+      Thread.sleep(retryDelay << (failures - 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while uploading report", e);
+    }
+  }
+
+  @VisibleForTesting
+  void setRetryDelay(long retryDelay) {
+    this.retryDelay = retryDelay;
+  }
+
+  private PostRequest setSubmitParameters(PostRequest post) {
+    post.setMediaType(MediaTypes.PROTOBUF)
+      .setParam(PARAM_ORGANIZATION, settings.get(ORGANIZATION).orElse(null))
+      .setParam(PARAM_PROJECT_KEY, moduleHierarchy.root().key())
+      .setParam(PARAM_PROJECT_NAME, moduleHierarchy.root().getOriginalName())
+      .setParam(PARAM_PROJECT_BRANCH, moduleHierarchy.root().getBranch());
 
     String branchName = branchConfiguration.branchName();
     if (branchName != null) {
-      post.setParam(CHARACTERISTIC, "branch=" + branchName);
-      post.setParam(CHARACTERISTIC, "branchType=" + branchConfiguration.branchType().name());
+      post.setParam(PARAM_ANALYSIS_CHARACTERISTIC, "branch=" + branchName);
+      post.setParam(PARAM_ANALYSIS_CHARACTERISTIC, "branchType=" + branchConfiguration.branchType().name());
     }
+    return post;
+  }
 
-    WsResponse response;
+  private WsResponse call(WsRequest request) {
     try {
-      response = wsClient.call(post).failIfNotSuccessful();
+      return wsClient.call(request).failIfNotSuccessful();
     } catch (HttpException e) {
-      throw MessageException.of(String.format("Failed to upload report - %d: %s", e.code(), ScannerWsClient.tryParseAsJsonError(e.content())));
+      throw uploadFailure(e);
     }
+  }
+
+  /**
+   * Chunks are sent again if the connection failed, if the server failed or if the chunk was corrupted
+   */
+  private static boolean isTransient(RuntimeException e) {
+    if (e instanceof HttpException) {
+      int code = ((HttpException) e).code();
+      return code == HTTP_BAD_REQUEST || code >= HTTP_INTERNAL_ERROR;
+    }
+    return true;
+  }
 
+  private static RuntimeException uploadFailure(RuntimeException e) {
+    if (e instanceof HttpException) {
+      HttpException httpException = (HttpException) e;
+      return MessageException.of(String.format("Failed to upload report - %d: %s", httpException.code(), ScannerWsClient.tryParseAsJsonError(httpException.content())));
+    }
+    return e;
+  }
+
+  private static <T extends Message> T parse(WsResponse response, Parser<T> parser) {
     try (InputStream protobuf = response.contentStream()) {
-      return WsCe.SubmitResponse.parser().parseFrom(protobuf).getTaskId();
+      return parser.parseFrom(protobuf);
     } catch (Exception e) {
       throw Throwables.propagate(e);
-    } finally {
-      long stopTime = System.currentTimeMillis();
-      LOG.info("Analysis report uploaded in " + (stopTime - startTime) + "ms");
     }
   }
 
+  private static String sha256Hex(File file, long offset, long length) {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      InputStream input = new BoundedInputStream(Channels.newInputStream(channel.position(offset)), length)) {
+      return DigestUtils.sha256Hex(input);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read " + file, e);
+    }
+  }
+
+  private static String path(String action) {
+    return "api/ce/" + action;
+  }
+
   @VisibleForTesting
   void logSuccess(@Nullable String taskId) {
     if (taskId == null) {
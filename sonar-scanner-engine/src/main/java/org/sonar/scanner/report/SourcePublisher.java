@@ -19,12 +19,14 @@
  */
 package org.sonar.scanner.report;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
@@ -33,6 +35,10 @@ import org.sonar.scanner.scan.filesystem.InputComponentStore;
 
 public class SourcePublisher implements ReportPublisherStep {
 
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final byte LINE_FEED = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+
   private final InputComponentStore componentCache;
 
   public SourcePublisher(InputComponentStore componentStore) {
@@ -45,15 +51,57 @@ public class SourcePublisher implements ReportPublisherStep {
       File iofile = writer.getSourceFile(inputFile.batchId());
 
       try (FileOutputStream output = new FileOutputStream(iofile);
-        InputStream in = inputFile.inputStream();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(in, inputFile.charset()))) {
-        writeSource(reader, output, inputFile.lines());
+        InputStream in = inputFile.inputStream()) {
+        if (StandardCharsets.UTF_8.equals(inputFile.charset())) {
+          copyUtf8Source(in, output, inputFile.lines());
+        } else {
+          BufferedReader reader = new BufferedReader(new InputStreamReader(in, inputFile.charset()));
+          writeSource(reader, output, inputFile.lines());
+        }
       } catch (IOException e) {
         throw new IllegalStateException("Unable to store file source in the report", e);
       }
     }
   }
 
+  /**
+   * Source is already encoded in UTF-8 (BOM is removed by {@link DefaultInputFile#inputStream()}), so bytes are copied
+   * without being decoded. Only line ends are normalized, with the same result as {@link #writeSource(BufferedReader, FileOutputStream, int)}:
+   * CR and CRLF are replaced by LF, and no line end is written after the last line. CR and LF bytes
+   * can't be part of a multi-byte character in UTF-8, so it's safe to handle them byte per byte.
+   */
+  private static void copyUtf8Source(InputStream in, OutputStream fileOutput, int lines) throws IOException {
+    OutputStream output = new BufferedOutputStream(fileOutput, BUFFER_SIZE);
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int line = 1;
+    boolean previousIsCarriageReturn = false;
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      int start = 0;
+      for (int i = 0; i < read; i++) {
+        byte b = buffer[i];
+        if (b != LINE_FEED && b != CARRIAGE_RETURN) {
+          previousIsCarriageReturn = false;
+          continue;
+        }
+        output.write(buffer, start, i - start);
+        start = i + 1;
+        if (b == LINE_FEED && previousIsCarriageReturn) {
+          // second byte of CRLF, already written
+          previousIsCarriageReturn = false;
+          continue;
+        }
+        previousIsCarriageReturn = b == CARRIAGE_RETURN;
+        if (line < lines) {
+          output.write(LINE_FEED);
+        }
+        line++;
+      }
+      output.write(buffer, start, read - start);
+    }
+    output.flush();
+  }
+
   private static void writeSource(BufferedReader reader, FileOutputStream output, int lines) throws IOException {
     int line = 0;
     String lineStr = reader.readLine();
@@ -19,12 +19,8 @@
  */
 package org.sonar.scanner.repository;
 
-import java.io.IOException;
 import java.io.InputStream;
-import java.util.function.Consumer;
-import org.apache.commons.io.IOUtils;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
-import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 import org.sonar.scanner.util.ScannerUtils;
 import org.sonarqube.ws.client.GetRequest;
 
@@ -37,23 +33,8 @@ public class DefaultServerIssuesLoader implements ServerIssuesLoader {
   }
 
   @Override
-  public void load(String componentKey, Consumer<ServerIssue> consumer) {
+  public InputStream load(String componentKey) {
     GetRequest getRequest = new GetRequest("/batch/issues.protobuf?key=" + ScannerUtils.encodeForUrl(componentKey));
-    InputStream is = wsClient.call(getRequest).contentStream();
-    parseIssues(is, consumer);
-  }
-
-  private static void parseIssues(InputStream is, Consumer<ServerIssue> consumer) {
-    try {
-      ServerIssue previousIssue = ServerIssue.parseDelimitedFrom(is);
-      while (previousIssue != null) {
-        consumer.accept(previousIssue);
-        previousIssue = ServerIssue.parseDelimitedFrom(is);
-      }
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to get previous issues", e);
-    } finally {
-      IOUtils.closeQuietly(is);
-    }
+    return wsClient.call(getRequest).contentStream();
   }
 }
@@ -19,11 +19,15 @@
  */
 package org.sonar.scanner.repository;
 
-import java.util.function.Consumer;
+import java.io.InputStream;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 
 public interface ServerIssuesLoader {
 
-  void load(String componentKey, Consumer<ServerIssue> consumer);
+  /**
+   * Stream of the open issues of a project, module or file, as delimited {@link ServerIssue}
+   * messages. The stream is closed by caller.
+   */
+  InputStream load(String componentKey);
 
 }
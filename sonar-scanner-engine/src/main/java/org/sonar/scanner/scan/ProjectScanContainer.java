@@ -43,6 +43,8 @@ import org.sonar.scanner.bootstrap.ExtensionMatcher;
 import org.sonar.scanner.bootstrap.ExtensionUtils;
 import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
 import org.sonar.scanner.bootstrap.MetricProvider;
+import org.sonar.scanner.cache.AnalysisCache;
+import org.sonar.scanner.cache.AnalysisCacheExecutor;
 import org.sonar.scanner.cpd.CpdExecutor;
 import org.sonar.scanner.cpd.CpdSettings;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
@@ -95,6 +97,7 @@ import org.sonar.scanner.scan.filesystem.BatchIdGenerator;
 import org.sonar.scanner.scan.filesystem.InputComponentStoreProvider;
 import org.sonar.scanner.scan.measure.DefaultMetricFinder;
 import org.sonar.scanner.scan.measure.DeprecatedMetricFinder;
+import org.sonar.scanner.scan.measure.LineCoverageCache;
 import org.sonar.scanner.scan.measure.MeasureCache;
 import org.sonar.scanner.storage.Storages;
 
@@ -181,6 +184,7 @@ public class ProjectScanContainer extends ComponentContainer {
 
       // Measures
       MeasureCache.class,
+      LineCoverageCache.class,
 
       // context
       ContextPropertiesCache.class,
@@ -206,6 +210,10 @@ public class ProjectScanContainer extends ComponentContainer {
       CpdSettings.class,
       SonarCpdBlockIndex.class,
 
+      // Analysis cache
+      AnalysisCache.class,
+      AnalysisCacheExecutor.class,
+
       ScanTaskObservers.class);
 
     addIfMissing(DefaultRulesLoader.class, RulesLoader.class);
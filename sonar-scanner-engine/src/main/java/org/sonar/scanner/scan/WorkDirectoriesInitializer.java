@@ -23,18 +23,24 @@ import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.core.util.FileUtils;
 import org.sonar.home.cache.DirectoryLock;
+import org.sonar.scanner.cache.AnalysisCache;
 
 /**
- * Clean and create working directories of each module.
+ * Clean and create working directories of each module, except the lock file and the analysis cache.
  * Be careful that sub module work dir might be nested in parent working directory.
  */
 public class WorkDirectoriesInitializer {
 
+  private static final Set<String> KEPT_FILE_NAMES = new HashSet<>(Arrays.asList(DirectoryLock.LOCK_FILE_NAME, AnalysisCache.DIR_NAME));
+
   private InputModuleHierarchy moduleHierarchy;
 
   public WorkDirectoriesInitializer(InputModuleHierarchy moduleHierarchy) {
@@ -79,6 +85,6 @@ public class WorkDirectoriesInitializer {
   }
 
   private static DirectoryStream<Path> list(Path dir) throws IOException {
-    return Files.newDirectoryStream(dir, entry -> !DirectoryLock.LOCK_FILE_NAME.equals(entry.getFileName().toString()));
+    return Files.newDirectoryStream(dir, entry -> !KEPT_FILE_NAMES.contains(entry.getFileName().toString()));
   }
 }
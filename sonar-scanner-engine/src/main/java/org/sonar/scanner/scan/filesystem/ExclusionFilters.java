@@ -20,6 +20,9 @@
 package org.sonar.scanner.scan.filesystem;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
 import org.apache.commons.lang.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,11 +30,17 @@ import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.PathPattern;
 import org.sonar.api.scan.filesystem.FileExclusions;
+import org.sonar.api.utils.PathUtils;
+import org.sonar.scanner.util.WildcardPatternTrie;
 
 @ScannerSide
 public class ExclusionFilters {
 
   private static final Logger LOG = LoggerFactory.getLogger(ExclusionFilters.class);
+  /**
+   * Prefix of the {@link PathPattern#toString()} of the deprecated patterns of absolute paths
+   */
+  private static final String ABSOLUTE_PATH_PATTERN_PREFIX = "file:";
 
   private final FileExclusions exclusionSettings;
 
@@ -39,6 +48,10 @@ public class ExclusionFilters {
   private PathPattern[] mainExclusions;
   private PathPattern[] testInclusions;
   private PathPattern[] testExclusions;
+  private CompiledPathPatterns compiledMainInclusions;
+  private CompiledPathPatterns compiledMainExclusions;
+  private CompiledPathPatterns compiledTestInclusions;
+  private CompiledPathPatterns compiledTestExclusions;
 
   public ExclusionFilters(FileExclusions exclusions) {
     this.exclusionSettings = exclusions;
@@ -49,6 +62,10 @@ public class ExclusionFilters {
     mainExclusions = prepareMainExclusions();
     testInclusions = prepareTestInclusions();
     testExclusions = prepareTestExclusions();
+    compiledMainInclusions = new CompiledPathPatterns(mainInclusions);
+    compiledMainExclusions = new CompiledPathPatterns(mainExclusions);
+    compiledTestInclusions = new CompiledPathPatterns(testInclusions);
+    compiledTestExclusions = new CompiledPathPatterns(testExclusions);
     log("Included sources: ", mainInclusions);
     log("Excluded sources: ", mainExclusions);
     log("Included tests: ", testInclusions);
@@ -69,35 +86,26 @@ public class ExclusionFilters {
   }
 
   public boolean accept(Path absolutePath, Path relativePath, InputFile.Type type) {
-    PathPattern[] inclusionPatterns;
-    PathPattern[] exclusionPatterns;
+    CompiledPathPatterns inclusionPatterns;
+    CompiledPathPatterns exclusionPatterns;
     if (InputFile.Type.MAIN == type) {
-      inclusionPatterns = mainInclusions;
-      exclusionPatterns = mainExclusions;
+      inclusionPatterns = compiledMainInclusions;
+      exclusionPatterns = compiledMainExclusions;
     } else if (InputFile.Type.TEST == type) {
-      inclusionPatterns = testInclusions;
-      exclusionPatterns = testExclusions;
+      inclusionPatterns = compiledTestInclusions;
+      exclusionPatterns = compiledTestExclusions;
     } else {
       throw new IllegalArgumentException("Unknown file type: " + type);
     }
 
-    if (inclusionPatterns.length > 0) {
-      boolean matchInclusion = false;
-      for (PathPattern pattern : inclusionPatterns) {
-        matchInclusion |= pattern.match(absolutePath, relativePath);
-      }
-      if (!matchInclusion) {
-        return false;
-      }
+    if (inclusionPatterns.isEmpty() && exclusionPatterns.isEmpty()) {
+      return true;
     }
-    if (exclusionPatterns.length > 0) {
-      for (PathPattern pattern : exclusionPatterns) {
-        if (pattern.match(absolutePath, relativePath)) {
-          return false;
-        }
-      }
+    String sanitizedRelativePath = PathUtils.sanitize(relativePath.toString());
+    if (!inclusionPatterns.isEmpty() && !inclusionPatterns.matchesAny(absolutePath, relativePath, sanitizedRelativePath)) {
+      return false;
     }
-    return true;
+    return !exclusionPatterns.matchesAny(absolutePath, relativePath, sanitizedRelativePath);
   }
 
   PathPattern[] prepareMainInclusions() {
@@ -129,4 +137,40 @@ public class ExclusionFilters {
   PathPattern[] prepareTestExclusions() {
     return PathPattern.create(exclusionSettings.testExclusions());
   }
+
+  /**
+   * Patterns of relative paths, which are most of the patterns, are matched at once. The deprecated
+   * patterns of absolute paths are matched one by one.
+   */
+  private static class CompiledPathPatterns {
+    private final WildcardPatternTrie<PathPattern> relativePathPatterns = new WildcardPatternTrie<>();
+    private final List<PathPattern> otherPatterns = new ArrayList<>();
+
+    private CompiledPathPatterns(PathPattern[] patterns) {
+      for (PathPattern pattern : patterns) {
+        String s = pattern.toString();
+        if (s.startsWith(ABSOLUTE_PATH_PATTERN_PREFIX)) {
+          otherPatterns.add(pattern);
+        } else {
+          relativePathPatterns.add(s, pattern);
+        }
+      }
+    }
+
+    private boolean isEmpty() {
+      return relativePathPatterns.isEmpty() && otherPatterns.isEmpty();
+    }
+
+    private boolean matchesAny(Path absolutePath, Path relativePath, @Nullable String sanitizedRelativePath) {
+      if (sanitizedRelativePath != null && relativePathPatterns.matchesAny(sanitizedRelativePath)) {
+        return true;
+      }
+      for (PathPattern pattern : otherPatterns) {
+        if (pattern.match(absolutePath, relativePath)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
 }
@@ -20,6 +20,7 @@
 package org.sonar.scanner.scan.filesystem;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Table;
@@ -30,6 +31,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import javax.annotation.CheckForNull;
 import org.sonar.api.batch.ScannerSide;
@@ -63,6 +65,10 @@ public class InputComponentStore {
   private final Map<String, InputComponent> inputComponents = new HashMap<>();
   private final SetMultimap<String, InputFile> filesByNameCache = LinkedHashMultimap.create();
   private final SetMultimap<String, InputFile> filesByExtensionCache = LinkedHashMultimap.create();
+  // indexed by module key
+  private final Map<String, SetMultimap<String, InputFile>> filesByLanguageCache = new TreeMap<>();
+  private final Map<String, SetMultimap<InputFile.Type, InputFile>> filesByTypeCache = new TreeMap<>();
+  private long modificationCount = 0L;
   private final InputModule root;
   private final BranchConfiguration branchConfiguration;
 
@@ -108,14 +114,20 @@ public class InputComponentStore {
   }
 
   public InputComponentStore removeModule(String moduleKey) {
+    inputFileCache.row(moduleKey).values().forEach(this::removeFromIndexes);
     inputFileCache.row(moduleKey).clear();
     inputDirCache.row(moduleKey).clear();
+    modificationCount++;
     return this;
   }
 
   public InputComponentStore remove(InputFile inputFile) {
     DefaultInputFile file = (DefaultInputFile) inputFile;
-    inputFileCache.remove(file.moduleKey(), file.getModuleRelativePath());
+    InputFile removed = inputFileCache.remove(file.moduleKey(), file.getModuleRelativePath());
+    if (removed != null) {
+      removeFromIndexes(removed);
+    }
+    modificationCount++;
     return this;
   }
 
@@ -127,12 +139,18 @@ public class InputComponentStore {
 
   public InputComponentStore put(InputFile inputFile) {
     DefaultInputFile file = (DefaultInputFile) inputFile;
+    InputFile previous = inputFileCache.put(file.moduleKey(), file.getModuleRelativePath(), inputFile);
+    if (previous != null && previous != inputFile) {
+      // the previous instance is equal to the new one, so it must be removed from the indexes before adding the new one
+      removeFromIndexes(previous);
+    }
     addToLanguageCache(file);
-    inputFileCache.put(file.moduleKey(), file.getModuleRelativePath(), inputFile);
     globalInputFileCache.put(file.getProjectRelativePath(), inputFile);
     inputComponents.put(inputFile.key(), inputFile);
     filesByNameCache.put(inputFile.filename(), inputFile);
     filesByExtensionCache.put(FileExtensionPredicate.getExtension(inputFile), inputFile);
+    filesByTypeCache.computeIfAbsent(file.moduleKey(), k -> LinkedHashMultimap.create()).put(inputFile.type(), inputFile);
+    modificationCount++;
     return this;
   }
 
@@ -141,6 +159,21 @@ public class InputComponentStore {
     if (language != null) {
       globalLanguagesCache.add(language);
       languagesCache.computeIfAbsent(inputFile.moduleKey(), k -> new TreeSet<>()).add(language);
+      filesByLanguageCache.computeIfAbsent(inputFile.moduleKey(), k -> LinkedHashMultimap.create()).put(language, inputFile);
+    }
+  }
+
+  private void removeFromIndexes(InputFile inputFile) {
+    String moduleKey = ((DefaultInputFile) inputFile).moduleKey();
+    filesByNameCache.remove(inputFile.filename(), inputFile);
+    filesByExtensionCache.remove(FileExtensionPredicate.getExtension(inputFile), inputFile);
+    SetMultimap<String, InputFile> moduleFilesByLanguage = filesByLanguageCache.get(moduleKey);
+    if (moduleFilesByLanguage != null) {
+      moduleFilesByLanguage.remove(inputFile.language(), inputFile);
+    }
+    SetMultimap<InputFile.Type, InputFile> moduleFilesByType = filesByTypeCache.get(moduleKey);
+    if (moduleFilesByType != null) {
+      moduleFilesByType.remove(inputFile.type(), inputFile);
     }
   }
 
@@ -204,6 +237,31 @@ public class InputComponentStore {
     return filesByExtensionCache.get(extension);
   }
 
+  public Iterable<InputFile> getFilesByLanguage(String language) {
+    return Iterables.concat(Iterables.transform(filesByLanguageCache.values(), moduleFiles -> moduleFiles.get(language)));
+  }
+
+  public Iterable<InputFile> getFilesByLanguage(String moduleKey, String language) {
+    SetMultimap<String, InputFile> moduleFiles = filesByLanguageCache.get(moduleKey);
+    return moduleFiles == null ? Collections.emptySet() : moduleFiles.get(language);
+  }
+
+  public Iterable<InputFile> getFilesByType(InputFile.Type type) {
+    return Iterables.concat(Iterables.transform(filesByTypeCache.values(), moduleFiles -> moduleFiles.get(type)));
+  }
+
+  public Iterable<InputFile> getFilesByType(String moduleKey, InputFile.Type type) {
+    SetMultimap<InputFile.Type, InputFile> moduleFiles = filesByTypeCache.get(moduleKey);
+    return moduleFiles == null ? Collections.emptySet() : moduleFiles.get(type);
+  }
+
+  /**
+   * Changes each time files are added or removed
+   */
+  public long modificationCount() {
+    return modificationCount;
+  }
+
   public SortedSet<String> getLanguages() {
     return globalLanguagesCache;
   }
@@ -0,0 +1,181 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.measure;
+
+import java.util.Arrays;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Line coverage data of a file, merged from all the coverage reports. Values are stored in arrays indexed by line
+ * number, so that merging a report does not require to parse and format the {@code *_DATA} measures.
+ * <ul>
+ *   <li>hits of a line are the sum of the hits provided by each report</li>
+ *   <li>conditions and covered conditions of a line are the max of the values provided by each report</li>
+ * </ul>
+ */
+public class FileLineCoverage {
+
+  public static final int NO_VALUE = -1;
+
+  private final int lines;
+  private int[] hits;
+  private int[] conditions;
+  private int[] coveredConditions;
+
+  public FileLineCoverage(int lines) {
+    this(lines, null, null, null);
+  }
+
+  FileLineCoverage(int lines, @Nullable int[] hits, @Nullable int[] conditions, @Nullable int[] coveredConditions) {
+    this.lines = lines;
+    this.hits = hits;
+    this.conditions = conditions;
+    this.coveredConditions = coveredConditions;
+  }
+
+  public int lines() {
+    return lines;
+  }
+
+  public FileLineCoverage addHits(int line, int lineHits) {
+    hits = initIfNull(hits);
+    hits[line] = hits[line] == NO_VALUE ? lineHits : (hits[line] + lineHits);
+    return this;
+  }
+
+  public FileLineCoverage mergeConditions(int line, int lineConditions) {
+    conditions = initIfNull(conditions);
+    conditions[line] = Math.max(conditions[line], lineConditions);
+    return this;
+  }
+
+  public FileLineCoverage mergeCoveredConditions(int line, int lineCoveredConditions) {
+    coveredConditions = initIfNull(coveredConditions);
+    coveredConditions[line] = Math.max(coveredConditions[line], lineCoveredConditions);
+    return this;
+  }
+
+  private int[] initIfNull(@Nullable int[] values) {
+    if (values != null) {
+      return values;
+    }
+    int[] res = new int[lines + 1];
+    Arrays.fill(res, NO_VALUE);
+    return res;
+  }
+
+  /**
+   * @return the hits of the line, or {@link #NO_VALUE}
+   */
+  public int hits(int line) {
+    return valueOf(hits, line);
+  }
+
+  /**
+   * @return the conditions of the line, or {@link #NO_VALUE}
+   */
+  public int conditions(int line) {
+    return valueOf(conditions, line);
+  }
+
+  /**
+   * @return the covered conditions of the line, or {@link #NO_VALUE}
+   */
+  public int coveredConditions(int line) {
+    return valueOf(coveredConditions, line);
+  }
+
+  private static int valueOf(@Nullable int[] values, int line) {
+    return values == null ? NO_VALUE : values[line];
+  }
+
+  public boolean hasHits() {
+    return hits != null;
+  }
+
+  public boolean hasConditions() {
+    return conditions != null;
+  }
+
+  public boolean hasCoveredConditions() {
+    return coveredConditions != null;
+  }
+
+  @CheckForNull
+  int[] rawHits() {
+    return hits;
+  }
+
+  @CheckForNull
+  int[] rawConditions() {
+    return conditions;
+  }
+
+  @CheckForNull
+  int[] rawCoveredConditions() {
+    return coveredConditions;
+  }
+
+  /**
+   * Hits in the format of the measure {@link org.sonar.api.measures.CoreMetrics#COVERAGE_LINE_HITS_DATA}, or null if no hits are defined.
+   */
+  @CheckForNull
+  public String hitsData() {
+    return format(hits);
+  }
+
+  /**
+   * Conditions in the format of the measure {@link org.sonar.api.measures.CoreMetrics#CONDITIONS_BY_LINE}, or null if no conditions are defined.
+   */
+  @CheckForNull
+  public String conditionsData() {
+    return format(conditions);
+  }
+
+  /**
+   * Covered conditions in the format of the measure {@link org.sonar.api.measures.CoreMetrics#COVERED_CONDITIONS_BY_LINE}, or null if
+   * no covered conditions are defined.
+   */
+  @CheckForNull
+  public String coveredConditionsData() {
+    return format(coveredConditions);
+  }
+
+  /**
+   * Same format as {@link org.sonar.api.utils.KeyValueFormat#format(java.util.Map)} applied on a sorted map
+   */
+  @CheckForNull
+  private static String format(@Nullable int[] values) {
+    if (values == null) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder();
+    for (int line = 1; line < values.length; line++) {
+      if (values[line] != NO_VALUE) {
+        if (sb.length() > 0) {
+          sb.append(';');
+        }
+        sb.append(line).append('=').append(values[line]);
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -17,29 +17,29 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-package org.sonar.scanner.issue.tracking;
+package org.sonar.scanner.scan.measure;
 
 import com.persistit.Value;
 import com.persistit.encoding.CoderContext;
 import com.persistit.encoding.ValueCoder;
-import java.io.IOException;
-import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 
-public class ServerIssueValueCoder implements ValueCoder {
+class FileLineCoverageValueCoder implements ValueCoder {
 
   @Override
   public void put(Value value, Object object, CoderContext context) {
-    ServerIssue issue = (ServerIssue) object;
-    value.putByteArray(issue.toByteArray());
+    FileLineCoverage coverage = (FileLineCoverage) object;
+    value.put(coverage.lines());
+    value.put(coverage.rawHits());
+    value.put(coverage.rawConditions());
+    value.put(coverage.rawCoveredConditions());
   }
 
   @Override
-  public Object get(Value value, Class<?> clazz, CoderContext context) {
-    try {
-      return ServerIssue.parseFrom(value.getByteArray());
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to read issue from cache", e);
-    }
+  public Object get(Value value, Class clazz, CoderContext context) {
+    int lines = value.getInt();
+    int[] hits = (int[]) value.get();
+    int[] conditions = (int[]) value.get();
+    int[] coveredConditions = (int[]) value.get();
+    return new FileLineCoverage(lines, hits, conditions, coveredConditions);
   }
-
 }
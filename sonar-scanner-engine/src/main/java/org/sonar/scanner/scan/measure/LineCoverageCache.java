@@ -0,0 +1,110 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.measure;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.scanner.storage.Storage;
+import org.sonar.scanner.storage.Storages;
+
+/**
+ * Line coverage of files, accumulated from all the coverage reports. This cache is shared amongst all project modules.
+ * <p>
+ * Coverage of files is merged in memory, and written to the storage only when the files in memory exceed
+ * {@link #MAX_LINES_IN_MEMORY} lines, so that the reports of a file are usually merged without reading and writing
+ * the storage.
+ */
+@ScannerSide
+public class LineCoverageCache {
+
+  static final int MAX_LINES_IN_MEMORY = 1_000_000;
+
+  private final Storage<FileLineCoverage> cache;
+  private final int maxLinesInMemory;
+  private final Map<String, FileLineCoverage> inMemory = new HashMap<>();
+  private int linesInMemory = 0;
+
+  public LineCoverageCache(Storages caches) {
+    this(caches, MAX_LINES_IN_MEMORY);
+  }
+
+  @VisibleForTesting
+  LineCoverageCache(Storages caches, int maxLinesInMemory) {
+    caches.registerValueCoder(FileLineCoverage.class, new FileLineCoverageValueCoder());
+    this.cache = caches.createCache("lineCoverage");
+    this.maxLinesInMemory = maxLinesInMemory;
+  }
+
+  /**
+   * Merge line coverage data into the coverage of the file. Maps are indexed by line number, which must be in the
+   * range of the lines of the file.
+   */
+  public void merge(InputFile file, Map<Integer, Integer> hitsByLine, Map<Integer, Integer> conditionsByLine, Map<Integer, Integer> coveredConditionsByLine) {
+    if (hitsByLine.isEmpty() && conditionsByLine.isEmpty() && coveredConditionsByLine.isEmpty()) {
+      return;
+    }
+    FileLineCoverage coverage = inMemory.get(file.key());
+    if (coverage == null) {
+      coverage = load(file);
+    }
+    for (Map.Entry<Integer, Integer> entry : hitsByLine.entrySet()) {
+      coverage.addHits(entry.getKey(), entry.getValue());
+    }
+    for (Map.Entry<Integer, Integer> entry : conditionsByLine.entrySet()) {
+      coverage.mergeConditions(entry.getKey(), entry.getValue());
+    }
+    for (Map.Entry<Integer, Integer> entry : coveredConditionsByLine.entrySet()) {
+      coverage.mergeCoveredConditions(entry.getKey(), entry.getValue());
+    }
+  }
+
+  private FileLineCoverage load(InputFile file) {
+    FileLineCoverage coverage = cache.get(file.key());
+    if (coverage == null) {
+      coverage = new FileLineCoverage(file.lines());
+    }
+    if (!inMemory.isEmpty() && linesInMemory + coverage.lines() > maxLinesInMemory) {
+      flush();
+    }
+    inMemory.put(file.key(), coverage);
+    linesInMemory += coverage.lines();
+    return coverage;
+  }
+
+  private void flush() {
+    inMemory.forEach(cache::put);
+    inMemory.clear();
+    linesInMemory = 0;
+  }
+
+  @CheckForNull
+  public FileLineCoverage byFile(String fileKey) {
+    FileLineCoverage coverage = inMemory.get(fileKey);
+    return coverage == null ? cache.get(fileKey) : coverage;
+  }
+
+  public boolean contains(String fileKey) {
+    return inMemory.containsKey(fileKey) || cache.containsKey(fileKey);
+  }
+}
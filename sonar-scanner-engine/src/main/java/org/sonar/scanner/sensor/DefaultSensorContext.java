@@ -46,6 +46,7 @@ import org.sonar.api.batch.sensor.symbol.internal.DefaultSymbolTable;
 import org.sonar.api.config.Configuration;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.Version;
+import org.sonar.scanner.cache.AnalysisCache;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonar.scanner.sensor.noop.NoOpNewAnalysisError;
 import org.sonar.scanner.sensor.noop.NoOpNewCoverage;
@@ -71,9 +72,10 @@ public class DefaultSensorContext implements SensorContext {
   private final SonarRuntime sonarRuntime;
   private final Configuration config;
   private final BranchConfiguration branchConfiguration;
+  private final AnalysisCache analysisCache;
 
   public DefaultSensorContext(InputModule module, Configuration config, Settings mutableSettings, FileSystem fs, ActiveRules activeRules,
-    AnalysisMode analysisMode, SensorStorage sensorStorage, SonarRuntime sonarRuntime, BranchConfiguration branchConfiguration) {
+    AnalysisMode analysisMode, SensorStorage sensorStorage, SonarRuntime sonarRuntime, BranchConfiguration branchConfiguration, AnalysisCache analysisCache) {
     this.module = module;
     this.config = config;
     this.mutableSettings = mutableSettings;
@@ -83,6 +85,7 @@ public class DefaultSensorContext implements SensorContext {
     this.sensorStorage = sensorStorage;
     this.sonarRuntime = sonarRuntime;
     this.branchConfiguration = branchConfiguration;
+    this.analysisCache = analysisCache;
   }
 
   @Override
@@ -182,4 +185,9 @@ public class DefaultSensorContext implements SensorContext {
     DefaultInputFile file = (DefaultInputFile) inputFile;
     file.setPublished(true);
   }
+
+  @Override
+  public boolean isAnalysisCacheEnabled() {
+    return analysisCache.isEnabled();
+  }
 }
@@ -21,15 +21,12 @@ package org.sonar.scanner.sensor;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.TextRange;
@@ -46,13 +43,14 @@ import org.sonar.api.batch.sensor.measure.Measure;
 import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
 import org.sonar.api.batch.sensor.symbol.internal.DefaultSymbolTable;
 import org.sonar.api.config.Configuration;
-import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.utils.KeyValueFormat;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.metric.ScannerMetrics;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.internal.pmd.PmdBlockChunker;
+import org.sonar.scanner.cache.AnalysisCache;
+import org.sonar.scanner.cache.AnalysisCacheEntry.Section;
 import org.sonar.scanner.cpd.deprecated.DefaultCpdBlockIndexer;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
 import org.sonar.scanner.issue.ModuleIssues;
@@ -62,8 +60,10 @@ import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.report.ReportPublisher;
 import org.sonar.scanner.report.ScannerReportUtils;
 import org.sonar.scanner.repository.ContextPropertiesCache;
+import org.sonar.scanner.scan.measure.LineCoverageCache;
 import org.sonar.scanner.scan.measure.MeasureCache;
 
+import static java.util.Collections.emptyMap;
 import static java.util.stream.Collectors.toList;
 import static org.sonar.api.measures.CoreMetrics.BRANCH_COVERAGE;
 import static org.sonar.api.measures.CoreMetrics.COMMENTED_OUT_CODE_LINES_KEY;
@@ -142,26 +142,30 @@ public class DefaultSensorStorage implements SensorStorage {
   private final ModuleIssues moduleIssues;
   private final ReportPublisher reportPublisher;
   private final MeasureCache measureCache;
+  private final LineCoverageCache lineCoverageCache;
   private final SonarCpdBlockIndex index;
   private final ContextPropertiesCache contextPropertiesCache;
   private final Configuration settings;
   private final ScannerMetrics scannerMetrics;
+  private final AnalysisCache analysisCache;
   private final Map<Metric<?>, Metric<?>> deprecatedCoverageMetricMapping = new HashMap<>();
   private final Set<Metric<?>> coverageMetrics = new HashSet<>();
   private final Set<Metric<?>> byLineMetrics = new HashSet<>();
   private final Set<String> alreadyLogged = new HashSet<>();
 
   public DefaultSensorStorage(MetricFinder metricFinder, ModuleIssues moduleIssues, Configuration settings,
-    ReportPublisher reportPublisher, MeasureCache measureCache, SonarCpdBlockIndex index,
-    ContextPropertiesCache contextPropertiesCache, ScannerMetrics scannerMetrics) {
+    ReportPublisher reportPublisher, MeasureCache measureCache, LineCoverageCache lineCoverageCache, SonarCpdBlockIndex index,
+    ContextPropertiesCache contextPropertiesCache, ScannerMetrics scannerMetrics, AnalysisCache analysisCache) {
     this.metricFinder = metricFinder;
     this.moduleIssues = moduleIssues;
     this.settings = settings;
     this.reportPublisher = reportPublisher;
     this.measureCache = measureCache;
+    this.lineCoverageCache = lineCoverageCache;
     this.index = index;
     this.contextPropertiesCache = contextPropertiesCache;
     this.scannerMetrics = scannerMetrics;
+    this.analysisCache = analysisCache;
 
     coverageMetrics.add(UNCOVERED_LINES);
     coverageMetrics.add(LINES_TO_COVER);
@@ -256,7 +260,7 @@ public class DefaultSensorStorage implements SensorStorage {
       }
       saveCoverageMetricInternal((InputFile) component, metric, measureToSave);
     } else {
-      if (measureCache.contains(component.key(), metric.key())) {
+      if (measureCache.contains(component.key(), metric.key()) && !replaceRestored(component, AnalysisCache.measureDataKey(metric.key()))) {
         throw new UnsupportedOperationException("Can not add the same measure twice on " + component + ": " + measure);
       }
       measureCache.put(component.key(), metric.key(), measureToSave);
@@ -265,14 +269,14 @@ public class DefaultSensorStorage implements SensorStorage {
 
   private void saveCoverageMetricInternal(InputFile file, Metric<?> metric, DefaultMeasure<?> measure) {
     if (isLineMetrics(metric)) {
-      validateCoverageMeasure((String) measure.value(), file);
-      DefaultMeasure<?> previousMeasure = measureCache.byMetric(file.key(), metric.key());
-      if (previousMeasure != null) {
-        measureCache.put(file.key(), metric.key(), new DefaultMeasure<String>()
-          .forMetric((Metric<String>) metric)
-          .withValue(mergeCoverageLineMetric(metric, (String) previousMeasure.value(), (String) measure.value())));
+      Map<Integer, Integer> data = KeyValueFormat.parseIntInt((String) measure.value());
+      validateCoverageMeasure(data, file);
+      if (metric.equals(COVERAGE_LINE_HITS_DATA)) {
+        lineCoverageCache.merge(file, data, emptyMap(), emptyMap());
+      } else if (metric.equals(CONDITIONS_BY_LINE)) {
+        lineCoverageCache.merge(file, emptyMap(), data, emptyMap());
       } else {
-        measureCache.put(file.key(), metric.key(), measure);
+        lineCoverageCache.merge(file, emptyMap(), emptyMap(), data);
       }
     } else {
       // Other coverage metrics are all integer values. Just erase value, it will be recomputed at the end anyway
@@ -281,33 +285,10 @@ public class DefaultSensorStorage implements SensorStorage {
   }
 
   /**
-   * Merge the two line coverage data measures. For lines hits use the sum, and for conditions 
-   * keep max value in case they both contains a value for the same line.
+   * Data restored from the analysis cache can be saved again by global sensors, once
    */
-  static String mergeCoverageLineMetric(Metric<?> metric, String value1, String value2) {
-    Map<Integer, Integer> data1 = KeyValueFormat.parseIntInt(value1);
-    Map<Integer, Integer> data2 = KeyValueFormat.parseIntInt(value2);
-    if (metric.key().equals(CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY)) {
-      return KeyValueFormat.format(Stream.of(data1, data2)
-        .map(Map::entrySet)
-        .flatMap(Collection::stream)
-        .collect(
-          Collectors.toMap(
-            Map.Entry::getKey,
-            Map.Entry::getValue,
-            Integer::sum,
-            TreeMap::new)));
-    } else {
-      return KeyValueFormat.format(Stream.of(data1, data2)
-        .map(Map::entrySet)
-        .flatMap(Collection::stream)
-        .collect(
-          Collectors.toMap(
-            Map.Entry::getKey,
-            Map.Entry::getValue,
-            Integer::max,
-            TreeMap::new)));
-    }
+  private boolean replaceRestored(InputComponent component, String dataKey) {
+    return component.isFile() && analysisCache.replaceRestored((InputFile) component, dataKey);
   }
 
   public static boolean isDeprecatedMetric(String metricKey) {
@@ -323,7 +304,10 @@ public class DefaultSensorStorage implements SensorStorage {
   }
 
   public static void validateCoverageMeasure(String value, InputFile inputFile) {
-    Map<Integer, Integer> m = KeyValueFormat.parseIntInt(value);
+    validateCoverageMeasure(KeyValueFormat.parseIntInt(value), inputFile);
+  }
+
+  private static void validateCoverageMeasure(Map<Integer, Integer> m, InputFile inputFile) {
     validatePositiveLine(m, inputFile.toString());
     validateMaxLine(m, inputFile);
   }
@@ -363,7 +347,7 @@ public class DefaultSensorStorage implements SensorStorage {
     DefaultInputFile inputFile = (DefaultInputFile) highlighting.inputFile();
     inputFile.setPublished(true);
     int componentRef = inputFile.batchId();
-    if (writer.hasComponentData(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef)) {
+    if (writer.hasComponentData(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef) && !replaceRestored(inputFile, Section.HIGHLIGHTING.name())) {
       throw new UnsupportedOperationException("Trying to save highlighting twice for the same file is not supported: " + inputFile);
     }
     final ScannerReport.SyntaxHighlightingRule.Builder builder = ScannerReport.SyntaxHighlightingRule.newBuilder();
@@ -388,7 +372,7 @@ public class DefaultSensorStorage implements SensorStorage {
     DefaultInputFile inputFile = (DefaultInputFile) symbolTable.inputFile();
     inputFile.setPublished(true);
     int componentRef = inputFile.batchId();
-    if (writer.hasComponentData(FileStructure.Domain.SYMBOLS, componentRef)) {
+    if (writer.hasComponentData(FileStructure.Domain.SYMBOLS, componentRef) && !replaceRestored(inputFile, Section.SYMBOLS.name())) {
       throw new UnsupportedOperationException("Trying to save symbol table twice for the same file is not supported: " + symbolTable.inputFile().absolutePath());
     }
     final ScannerReport.Symbol.Builder builder = ScannerReport.Symbol.newBuilder();
@@ -423,25 +407,24 @@ public class DefaultSensorStorage implements SensorStorage {
       saveCoverageMetricInternal(inputFile, LINES_TO_COVER, new DefaultMeasure<Integer>().forMetric(LINES_TO_COVER).withValue(defaultCoverage.linesToCover()));
       saveCoverageMetricInternal(inputFile, UNCOVERED_LINES,
         new DefaultMeasure<Integer>().forMetric(UNCOVERED_LINES).withValue(defaultCoverage.linesToCover() - defaultCoverage.coveredLines()));
-      saveCoverageMetricInternal(inputFile, COVERAGE_LINE_HITS_DATA,
-        new DefaultMeasure<String>().forMetric(COVERAGE_LINE_HITS_DATA).withValue(KeyValueFormat.format(defaultCoverage.hitsByLine())));
     }
     if (defaultCoverage.conditions() > 0) {
       saveCoverageMetricInternal(inputFile, CONDITIONS_TO_COVER,
         new DefaultMeasure<Integer>().forMetric(CONDITIONS_TO_COVER).withValue(defaultCoverage.conditions()));
       saveCoverageMetricInternal(inputFile, UNCOVERED_CONDITIONS,
         new DefaultMeasure<Integer>().forMetric(UNCOVERED_CONDITIONS).withValue(defaultCoverage.conditions() - defaultCoverage.coveredConditions()));
-      saveCoverageMetricInternal(inputFile, COVERED_CONDITIONS_BY_LINE,
-        new DefaultMeasure<String>().forMetric(COVERED_CONDITIONS_BY_LINE).withValue(KeyValueFormat.format(defaultCoverage.coveredConditionsByLine())));
-      saveCoverageMetricInternal(inputFile, CONDITIONS_BY_LINE,
-        new DefaultMeasure<String>().forMetric(CONDITIONS_BY_LINE).withValue(KeyValueFormat.format(defaultCoverage.conditionsByLine())));
     }
+    lineCoverageCache.merge(inputFile, defaultCoverage.hitsByLine(), defaultCoverage.conditionsByLine(), defaultCoverage.coveredConditionsByLine());
   }
 
   @Override
   public void store(DefaultCpdTokens defaultCpdTokens) {
     DefaultInputFile inputFile = (DefaultInputFile) defaultCpdTokens.inputFile();
     inputFile.setPublished(true);
+    if (index.isIndexed(inputFile) && analysisCache.isRestored(inputFile, Section.CPD_TEXT_BLOCKS.name())) {
+      // blocks of the same content are already indexed
+      return;
+    }
     PmdBlockChunker blockChunker = new PmdBlockChunker(getBlockSize(inputFile.language()));
     List<Block> blocks = blockChunker.chunk(inputFile.key(), defaultCpdTokens.getTokenLines());
     index.insert(inputFile, blocks);
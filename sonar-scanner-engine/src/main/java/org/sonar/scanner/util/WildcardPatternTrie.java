@@ -0,0 +1,169 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.utils.WildcardPattern;
+
+/**
+ * Set of {@link WildcardPattern} with "/" as directory separator, matched at once against a path.
+ * <p>
+ * Patterns are stored in a trie of their leading literal directories, for example {@code src/main} for
+ * {@code src/main/**&#47;*.java}, so that only the patterns whose leading directories are the ones of the path are
+ * evaluated. Patterns without wildcards are matched without regular expression. The regular expression of other
+ * patterns is evaluated only if the path ends with the literal which ends the pattern, for example {@code .java}.
+ * <p>
+ * Not thread-safe while patterns are added, thread-safe afterwards.
+ *
+ * @param <T> the values associated to the patterns
+ */
+public class WildcardPatternTrie<T> {
+
+  private final Node root = new Node();
+  private final List<T> values = new ArrayList<>();
+
+  public WildcardPatternTrie<T> add(String pattern, T value) {
+    int index = values.size();
+    values.add(value);
+    // same as WildcardPattern, which ignores the leading separator of the pattern
+    String normalized = pattern.startsWith("/") || pattern.startsWith("\\") ? pattern.substring(1) : pattern;
+    Node node = root;
+    int start = 0;
+    while (true) {
+      int end = indexOfSeparator(normalized, start);
+      String segment = normalized.substring(start, end < 0 ? normalized.length() : end);
+      if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+        node.wildcardPatterns.add(new CompiledPattern(index, WildcardPattern.create(pattern), requiredSuffix(normalized)));
+        return this;
+      }
+      node = node.children.computeIfAbsent(segment, s -> new Node());
+      if (end < 0) {
+        node.plainPatterns.add(index);
+        return this;
+      }
+      start = end + 1;
+    }
+  }
+
+  public boolean isEmpty() {
+    return values.isEmpty();
+  }
+
+  public boolean matchesAny(String path) {
+    return !matchingIndices(path, true).isEmpty();
+  }
+
+  /**
+   * @return the values of the patterns matching the path, in order of addition
+   */
+  public List<T> match(String path) {
+    BitSet indices = matchingIndices(path, false);
+    List<T> result = new ArrayList<>(indices.cardinality());
+    for (int i = indices.nextSetBit(0); i >= 0; i = indices.nextSetBit(i + 1)) {
+      result.add(values.get(i));
+    }
+    return result;
+  }
+
+  /**
+   * @return the indices, in order of addition, of the patterns matching the path
+   */
+  public BitSet matchingIndices(String path) {
+    return matchingIndices(path, false);
+  }
+
+  private BitSet matchingIndices(String path, boolean stopAtFirstMatch) {
+    BitSet result = new BitSet();
+    // same as WildcardPattern#match(String)
+    String value = StringUtils.removeEnd(StringUtils.removeStart(path, "/"), "/");
+    Node node = root;
+    int start = 0;
+    while (node != null) {
+      for (CompiledPattern pattern : node.wildcardPatterns) {
+        if (value.endsWith(pattern.requiredSuffix) && pattern.pattern.match(path)) {
+          result.set(pattern.index);
+          if (stopAtFirstMatch) {
+            return result;
+          }
+        }
+      }
+      if (start > value.length()) {
+        break;
+      }
+      int end = value.indexOf('/', start);
+      node = node.children.get(value.substring(start, end < 0 ? value.length() : end));
+      if (end < 0) {
+        if (node != null) {
+          node.plainPatterns.forEach(result::set);
+        }
+        start = value.length() + 1;
+      } else {
+        start = end + 1;
+      }
+    }
+    return result;
+  }
+
+  private static int indexOfSeparator(String pattern, int from) {
+    for (int i = from; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (c == '/' || c == '\\') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Literal following the last wildcard of the pattern, which ends all the matching paths
+   */
+  static String requiredSuffix(String pattern) {
+    int lastWildcard = Math.max(pattern.lastIndexOf('*'), pattern.lastIndexOf('?'));
+    int start = lastWildcard + 1;
+    if (lastWildcard > 0 && pattern.charAt(lastWildcard) == '*' && pattern.charAt(lastWildcard - 1) == '*' && indexOfSeparator(pattern, start) == start) {
+      // "**/" also matches zero directory
+      start++;
+    }
+    return pattern.substring(start).replace('\\', '/');
+  }
+
+  private static class Node {
+    private final Map<String, Node> children = new HashMap<>();
+    private final List<Integer> plainPatterns = new ArrayList<>();
+    private final List<CompiledPattern> wildcardPatterns = new ArrayList<>();
+  }
+
+  private static class CompiledPattern {
+    private final int index;
+    private final WildcardPattern pattern;
+    private final String requiredSuffix;
+
+    private CompiledPattern(int index, WildcardPattern pattern, String requiredSuffix) {
+      this.index = index;
+      this.pattern = pattern;
+      this.requiredSuffix = requiredSuffix;
+    }
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.measure.MetricFinder;
+import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
+import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.scanner.cache.AnalysisCacheEntry.Section;
+import org.sonar.scanner.cpd.CpdSettings;
+import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
+import org.sonar.scanner.protocol.output.FileStructure.Domain;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+import org.sonar.scanner.report.ReportPublisher;
+import org.sonar.scanner.scan.branch.BranchConfiguration;
+import org.sonar.scanner.scan.filesystem.InputComponentStore;
+import org.sonar.scanner.scan.measure.MeasureCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class AnalysisCacheExecutorTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private AnalysisCache cache = mock(AnalysisCache.class);
+  private InputComponentStore componentStore = mock(InputComponentStore.class);
+  private MeasureCache measureCache = mock(MeasureCache.class);
+  private MetricFinder metricFinder = mock(MetricFinder.class);
+  private BranchConfiguration branchConfiguration = mock(BranchConfiguration.class);
+  private DefaultInputModule module = mock(DefaultInputModule.class);
+  private DefaultInputFile inputFile = new TestInputFileBuilder("foo", "src/Foo.java").setHash("abc").setLanguage("java").build();
+  private List<DefaultSensorDescriptor> cacheUsers = Collections.singletonList(new DefaultSensorDescriptor().reuseAnalysisCache());
+  private ScannerReportWriter writer;
+  private SonarCpdBlockIndex index;
+  private AnalysisCacheExecutor underTest;
+
+  @Before
+  public void setUp() throws IOException {
+    writer = new ScannerReportWriter(temp.newFolder());
+    ReportPublisher reportPublisher = mock(ReportPublisher.class);
+    when(reportPublisher.getWriter()).thenReturn(writer);
+    index = new SonarCpdBlockIndex(reportPublisher, mock(CpdSettings.class));
+    when(module.key()).thenReturn("foo");
+    when(componentStore.filesByModule("foo")).thenReturn(Collections.singletonList(inputFile));
+    when(componentStore.allFiles()).thenReturn(Collections.singletonList(inputFile));
+    when(metricFinder.<Integer>findByKey(CoreMetrics.NCLOC_KEY)).thenReturn(CoreMetrics.NCLOC);
+    underTest = new AnalysisCacheExecutor(cache, componentStore, reportPublisher, index, measureCache, metricFinder, branchConfiguration);
+  }
+
+  @Test
+  public void do_nothing_if_disabled() {
+    underTest.restore(module, cacheUsers);
+    underTest.store();
+
+    verify(cache, never()).read(any(DefaultInputFile.class));
+    verify(cache, never()).write(any(DefaultInputFile.class), any(AnalysisCacheEntry.class));
+    verifyZeroInteractions(measureCache);
+  }
+
+  @Test
+  public void restore_data_not_saved_by_sensors() throws IOException {
+    when(cache.isEnabled()).thenReturn(true);
+    when(cache.read(inputFile)).thenReturn(new AnalysisCacheEntry("abc").put(Section.HIGHLIGHTING, new byte[] {1, 2}));
+
+    underTest.restore(module, cacheUsers);
+
+    assertThat(Files.readAllBytes(writer.getFileStructure().fileFor(Domain.SYNTAX_HIGHLIGHTINGS, inputFile.batchId()).toPath())).containsExactly(new byte[] {1, 2});
+    assertThat(inputFile.isPublished()).isTrue();
+    verify(cache).markRestored(inputFile, Section.HIGHLIGHTING.name());
+    verify(cache, never()).markRestored(inputFile, Section.SYMBOLS.name());
+  }
+
+  @Test
+  public void do_not_restore_data_if_no_sensor_reuses_cache() {
+    when(cache.isEnabled()).thenReturn(true);
+    when(cache.read(inputFile)).thenReturn(new AnalysisCacheEntry("abc").put(Section.HIGHLIGHTING, new byte[] {1, 2}));
+
+    underTest.restore(module, Collections.emptyList());
+
+    assertThat(writer.hasComponentData(Domain.SYNTAX_HIGHLIGHTINGS, inputFile.batchId())).isFalse();
+    verify(cache, never()).read(any(DefaultInputFile.class));
+  }
+
+  @Test
+  public void restore_data_only_of_files_analyzed_by_sensors_reusing_cache() {
+    when(cache.isEnabled()).thenReturn(true);
+    when(cache.read(inputFile)).thenReturn(new AnalysisCacheEntry("abc").put(Section.HIGHLIGHTING, new byte[] {1, 2}));
+
+    underTest.restore(module, Arrays.asList(
+      new DefaultSensorDescriptor().onlyOnLanguage("xoo").reuseAnalysisCache(),
+      new DefaultSensorDescriptor().onlyOnFileType(InputFile.Type.TEST).reuseAnalysisCache()));
+
+    assertThat(writer.hasComponentData(Domain.SYNTAX_HIGHLIGHTINGS, inputFile.batchId())).isFalse();
+    verify(cache, never()).read(any(DefaultInputFile.class));
+
+    underTest.restore(module, Collections.singletonList(new DefaultSensorDescriptor().onlyOnLanguages("xoo", "java").reuseAnalysisCache()));
+
+    assertThat(writer.hasComponentData(Domain.SYNTAX_HIGHLIGHTINGS, inputFile.batchId())).isTrue();
+  }
+
+  @Test
+  public void do_not_override_data_saved_by_sensors() throws IOException {
+    File symbols = writer.getFileStructure().fileFor(Domain.SYMBOLS, inputFile.batchId());
+    Files.write(symbols.toPath(), new byte[] {3});
+    when(cache.isEnabled()).thenReturn(true);
+    when(cache.read(inputFile)).thenReturn(new AnalysisCacheEntry("abc").put(Section.SYMBOLS, new byte[] {1, 2}));
+
+    underTest.restore(module, cacheUsers);
+
+    assertThat(Files.readAllBytes(symbols.toPath())).containsExactly(new byte[] {3});
+    verify(cache, never()).markRestored(any(DefaultInputFile.class), anyString());
+  }
+
+  @Test
+  public void store_data_of_analyzed_files() throws IOException {
+    when(cache.isWritable()).thenReturn(true);
+    Files.write(writer.getFileStructure().fileFor(Domain.SYNTAX_HIGHLIGHTINGS, inputFile.batchId()).toPath(), new byte[] {1, 2});
+    when(measureCache.byComponentKey(inputFile.key())).thenReturn(Arrays.asList(
+      new DefaultMeasure<Integer>().forMetric(CoreMetrics.NCLOC).withValue(12),
+      new DefaultMeasure<Integer>().forMetric(CoreMetrics.LINES_TO_COVER).withValue(5)));
+    index.insert(inputFile, Collections.singletonList(block(0, 10L)));
+
+    underTest.store();
+
+    AnalysisCacheEntry entry = captureWrittenEntry();
+    assertThat(entry.fileHash()).isEqualTo("abc");
+    assertThat(entry.get(Section.HIGHLIGHTING)).containsExactly(new byte[] {1, 2});
+    assertThat(entry.get(Section.SYMBOLS)).isNull();
+    assertThat(entry.get(Section.MEASURES)).isNotNull();
+    assertThat(entry.get(Section.CPD_TEXT_BLOCKS)).isNotNull();
+    verify(cache).purge(Collections.singletonList(inputFile));
+  }
+
+  @Test
+  public void do_not_store_again_restored_files() {
+    when(cache.isWritable()).thenReturn(true);
+    when(cache.isRestored(inputFile)).thenReturn(true);
+
+    underTest.store();
+
+    verify(cache, never()).write(any(DefaultInputFile.class), any(AnalysisCacheEntry.class));
+    verify(cache).purge(Collections.singletonList(inputFile));
+  }
+
+  @Test
+  public void restore_measures_and_cpd_blocks_stored_by_previous_analysis() throws IOException {
+    when(cache.isWritable()).thenReturn(true);
+    when(measureCache.byComponentKey(inputFile.key())).thenReturn(Collections.singletonList(
+      new DefaultMeasure<Integer>().forMetric(CoreMetrics.NCLOC).withValue(12)));
+    index.insert(inputFile, Arrays.asList(block(0, 10L), block(1, 11L)));
+    underTest.store();
+    AnalysisCacheEntry entry = captureWrittenEntry();
+
+    // next analysis
+    setUp();
+    when(cache.isEnabled()).thenReturn(true);
+    when(cache.read(inputFile)).thenReturn(entry);
+    underTest.restore(module, cacheUsers);
+
+    assertThat(index.isIndexed(inputFile)).isTrue();
+    assertThat(index.getByInputFile(inputFile.key())).extracting(b -> b.getBlockHash().toHexString()).containsExactly(new ByteArray(10L).toHexString(), new ByteArray(11L).toHexString());
+    ArgumentCaptor<DefaultMeasure> measure = ArgumentCaptor.forClass(DefaultMeasure.class);
+    verify(measureCache).put(eq(inputFile.key()), eq(CoreMetrics.NCLOC_KEY), measure.capture());
+    assertThat(measure.getValue().value()).isEqualTo(12);
+  }
+
+  @Test
+  public void do_not_restore_cpd_blocks_on_short_living_branches() throws IOException {
+    when(branchConfiguration.isShortLivingBranch()).thenReturn(true);
+    when(cache.isEnabled()).thenReturn(true);
+    when(cache.read(inputFile)).thenReturn(new AnalysisCacheEntry("abc").put(Section.CPD_TEXT_BLOCKS, new byte[0]));
+
+    underTest.restore(module, cacheUsers);
+
+    assertThat(index.isIndexed(inputFile)).isFalse();
+    verify(measureCache, never()).put(anyString(), anyString(), any(DefaultMeasure.class));
+  }
+
+  private AnalysisCacheEntry captureWrittenEntry() {
+    ArgumentCaptor<AnalysisCacheEntry> captor = ArgumentCaptor.forClass(AnalysisCacheEntry.class);
+    verify(cache).write(eq(inputFile), captor.capture());
+    return captor.getValue();
+  }
+
+  private Block block(int indexInFile, long hash) {
+    return Block.builder()
+      .setResourceId(inputFile.key())
+      .setBlockHash(new ByteArray(hash))
+      .setIndexInFile(indexInFile)
+      .setLines(indexInFile + 1, indexInFile + 10)
+      .setUnit(indexInFile, indexInFile + 20)
+      .build();
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.SonarQubeSide;
+import org.sonar.api.SonarRuntime;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.config.Encryption;
+import org.sonar.api.config.PropertyDefinition;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.internal.SonarRuntimeImpl;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.Version;
+import org.sonar.core.platform.PluginInfo;
+import org.sonar.core.platform.PluginRepository;
+import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
+import org.sonar.scanner.cache.AnalysisCacheEntry.Section;
+import org.sonar.scanner.scan.ProjectSettings;
+import org.sonar.scanner.scan.branch.BranchConfiguration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AnalysisCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private PropertyDefinitions definitions = new PropertyDefinitions();
+  private MapSettings settings = new MapSettings();
+  private GlobalAnalysisMode analysisMode = mock(GlobalAnalysisMode.class);
+  private BranchConfiguration branchConfiguration = mock(BranchConfiguration.class);
+  private InputModuleHierarchy moduleHierarchy = mock(InputModuleHierarchy.class);
+  private PluginRepository pluginRepository = mock(PluginRepository.class);
+  private SonarRuntime sonarRuntime = SonarRuntimeImpl.forSonarQube(Version.parse("6.6"), SonarQubeSide.SCANNER);
+  private File workDir;
+  private DefaultInputModule root = mock(DefaultInputModule.class);
+
+  @Before
+  public void setUp() throws IOException {
+    workDir = temp.newFolder();
+    when(root.getWorkDir()).thenReturn(workDir.toPath());
+    when(moduleHierarchy.root()).thenReturn(root);
+    when(analysisMode.isPublish()).thenReturn(true);
+    settings.setProperty(AnalysisCache.ENABLED_PROP_KEY, true);
+    mockPluginVersion("1.0");
+  }
+
+  @Test
+  public void disabled_by_default() {
+    settings.removeProperty(AnalysisCache.ENABLED_PROP_KEY);
+    AnalysisCache underTest = startCache(activeRules("MAJOR"));
+
+    assertThat(underTest.isEnabled()).isFalse();
+    assertThat(underTest.isWritable()).isFalse();
+    assertThat(underTest.read(file("abc"))).isNull();
+    assertThat(new File(workDir, AnalysisCache.DIR_NAME)).doesNotExist();
+  }
+
+  @Test
+  public void disabled_in_issues_mode() {
+    when(analysisMode.isPublish()).thenReturn(false);
+    AnalysisCache underTest = startCache(activeRules("MAJOR"));
+
+    assertThat(underTest.isEnabled()).isFalse();
+  }
+
+  @Test
+  public void read_entry_written_for_the_same_file_content() {
+    AnalysisCache underTest = startCache(activeRules("MAJOR"));
+    underTest.write(file("abc"), new AnalysisCacheEntry("abc").put(Section.SYMBOLS, new byte[] {1, 2, 3}));
+
+    AnalysisCacheEntry entry = underTest.read(file("abc"));
+    assertThat(entry.get(Section.SYMBOLS)).containsExactly(new byte[] {1, 2, 3});
+    assertThat(entry.get(Section.HIGHLIGHTING)).isNull();
+    assertThat(underTest.read(file("def"))).isNull();
+  }
+
+  @Test
+  public void entries_are_kept_between_analyses() {
+    startCache(activeRules("MAJOR")).write(file("abc"), new AnalysisCacheEntry("abc").put(Section.SYMBOLS, new byte[] {1}));
+
+    assertThat(startCache(activeRules("MAJOR")).read(file("abc"))).isNotNull();
+  }
+
+  @Test
+  public void entries_are_invalidated_when_active_rules_change() {
+    startCache(activeRules("MAJOR")).write(file("abc"), new AnalysisCacheEntry("abc").put(Section.SYMBOLS, new byte[] {1}));
+
+    assertThat(startCache(activeRules("BLOCKER")).read(file("abc"))).isNull();
+  }
+
+  @Test
+  public void entries_are_invalidated_when_plugins_change() {
+    startCache(activeRules("MAJOR")).write(file("abc"), new AnalysisCacheEntry("abc").put(Section.SYMBOLS, new byte[] {1}));
+
+    mockPluginVersion("1.1");
+    assertThat(startCache(activeRules("MAJOR")).read(file("abc"))).isNull();
+  }
+
+  @Test
+  public void entries_are_invalidated_when_cpd_exclusions_change() {
+    startCache(activeRules("MAJOR")).write(file("abc"), new AnalysisCacheEntry("abc").put(Section.CPD_TEXT_BLOCKS, new byte[] {1}));
+
+    settings.setProperty("sonar.cpd.exclusions", "**/*Generated.java");
+    assertThat(startCache(activeRules("MAJOR")).read(file("abc"))).isNull();
+  }
+
+  @Test
+  public void entries_are_invalidated_when_exclusions_of_a_module_change() {
+    startCache(activeRules("MAJOR")).write(file("abc"), new AnalysisCacheEntry("abc").put(Section.CPD_TEXT_BLOCKS, new byte[] {1}));
+
+    when(root.properties()).thenReturn(Collections.singletonMap("sonar.exclusions", "**/*.xml"));
+    assertThat(startCache(activeRules("MAJOR")).read(file("abc"))).isNull();
+  }
+
+  @Test
+  public void entries_are_invalidated_when_settings_of_plugins_change() {
+    startCache(activeRules("MAJOR")).write(file("abc"), new AnalysisCacheEntry("abc").put(Section.SYMBOLS, new byte[] {1}));
+
+    settings.setProperty("sonar.java.binaries", "target/classes");
+    assertThat(startCache(activeRules("MAJOR")).read(file("abc"))).isNull();
+  }
+
+  @Test
+  public void entries_are_invalidated_when_declared_settings_change() {
+    definitions.addComponent(PropertyDefinition.builder("custom.setting").build());
+    startCache(activeRules("MAJOR")).write(file("abc"), new AnalysisCacheEntry("abc").put(Section.SYMBOLS, new byte[] {1}));
+
+    settings.setProperty("custom.setting", "foo");
+    assertThat(startCache(activeRules("MAJOR")).read(file("abc"))).isNull();
+  }
+
+  @Test
+  public void entries_are_kept_when_other_settings_change() {
+    startCache(activeRules("MAJOR")).write(file("abc"), new AnalysisCacheEntry("abc").put(Section.CPD_TEXT_BLOCKS, new byte[] {1}));
+
+    settings.setProperty("sonar.projectVersion", "1.1");
+    settings.setProperty("sonar.analysis.buildNumber", "42");
+    settings.setProperty("sonar.core.startTime", "2017-10-19T10:00:00+0000");
+    settings.setProperty("undeclared.setting", "foo");
+    assertThat(startCache(activeRules("MAJOR")).read(file("abc"))).isNotNull();
+  }
+
+  @Test
+  public void read_only_on_short_living_branches() {
+    when(branchConfiguration.isShortLivingBranch()).thenReturn(true);
+    AnalysisCache underTest = startCache(activeRules("MAJOR"));
+    underTest.write(file("abc"), new AnalysisCacheEntry("abc").put(Section.SYMBOLS, new byte[] {1}));
+
+    assertThat(underTest.isEnabled()).isTrue();
+    assertThat(underTest.isWritable()).isFalse();
+    assertThat(underTest.read(file("abc"))).isNull();
+  }
+
+  @Test
+  public void purge_entries_of_other_files() {
+    AnalysisCache underTest = startCache(activeRules("MAJOR"));
+    DefaultInputFile kept = file("src/Kept.java", "abc");
+    DefaultInputFile deleted = file("src/Deleted.java", "abc");
+    underTest.write(kept, new AnalysisCacheEntry("abc").put(Section.SYMBOLS, new byte[] {1}));
+    underTest.write(deleted, new AnalysisCacheEntry("abc").put(Section.SYMBOLS, new byte[] {1}));
+
+    underTest.purge(Collections.singletonList(kept));
+
+    assertThat(underTest.read(kept)).isNotNull();
+    assertThat(underTest.read(deleted)).isNull();
+    assertThat(new File(new File(workDir, AnalysisCache.DIR_NAME), AnalysisCache.ENVIRONMENT_FILENAME)).exists();
+  }
+
+  @Test
+  public void track_restored_data() {
+    AnalysisCache underTest = startCache(activeRules("MAJOR"));
+    DefaultInputFile restored = file("src/Restored.java", "abc");
+
+    underTest.markRestored(restored, Section.HIGHLIGHTING.name());
+    underTest.markRestored(restored, AnalysisCache.measureDataKey("ncloc"));
+
+    assertThat(underTest.isRestored(restored)).isTrue();
+    assertThat(underTest.isRestored(restored, Section.HIGHLIGHTING.name())).isTrue();
+    assertThat(underTest.isRestored(restored, Section.SYMBOLS.name())).isFalse();
+    assertThat(underTest.isRestored(file("abc"))).isFalse();
+  }
+
+  @Test
+  public void restored_data_can_be_replaced_once() {
+    AnalysisCache underTest = startCache(activeRules("MAJOR"));
+    DefaultInputFile restored = file("src/Restored.java", "abc");
+    underTest.markRestored(restored, AnalysisCache.measureDataKey("ncloc"));
+
+    assertThat(underTest.replaceRestored(restored, AnalysisCache.measureDataKey("lines"))).isFalse();
+    assertThat(underTest.replaceRestored(restored, AnalysisCache.measureDataKey("ncloc"))).isTrue();
+    assertThat(underTest.replaceRestored(restored, AnalysisCache.measureDataKey("ncloc"))).isFalse();
+    assertThat(underTest.replaceRestored(file("abc"), Section.SYMBOLS.name())).isFalse();
+  }
+
+  private AnalysisCache startCache(ActiveRules activeRules) {
+    ProjectSettings projectSettings = new ProjectSettings(definitions, new Encryption(null), analysisMode, settings.getProperties());
+    AnalysisCache cache = new AnalysisCache(projectSettings, analysisMode, branchConfiguration, moduleHierarchy, pluginRepository, activeRules, sonarRuntime);
+    cache.start();
+    return cache;
+  }
+
+  private void mockPluginVersion(String version) {
+    when(pluginRepository.getPluginInfos()).thenReturn(Collections.singletonList(new PluginInfo("java").setVersion(org.sonar.updatecenter.common.Version.create(version))));
+  }
+
+  private static ActiveRules activeRules(String severity) {
+    return new ActiveRulesBuilder()
+      .create(RuleKey.of("squid", "S1")).setSeverity(severity).setParam("max", "10").activate()
+      .build();
+  }
+
+  private static DefaultInputFile file(String hash) {
+    return file("src/Foo.java", hash);
+  }
+
+  private static DefaultInputFile file(String path, String hash) {
+    return new TestInputFileBuilder("foo", path).setHash(hash).build();
+  }
+}
@@ -27,13 +27,13 @@ import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.scan.issue.filter.FilterableIssue;
 import org.sonar.api.scan.issue.filter.IssueFilterChain;
-import org.sonar.api.utils.WildcardPattern;
 import org.sonar.scanner.issue.ignore.pattern.IssueInclusionPatternInitializer;
 import org.sonar.scanner.issue.ignore.pattern.IssuePattern;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -69,10 +69,7 @@ public class EnforceIssuesFilterTest {
     when(ruleKey.toString()).thenReturn(rule);
     when(issue.ruleKey()).thenReturn(ruleKey);
 
-    IssuePattern matching = mock(IssuePattern.class);
-    WildcardPattern rulePattern = mock(WildcardPattern.class);
-    when(matching.getRulePattern()).thenReturn(rulePattern);
-    when(rulePattern.match(rule)).thenReturn(false);
+    IssuePattern matching = new IssuePattern("**", "other");
     when(exclusionPatternInitializer.getMulticriteriaPatterns()).thenReturn(ImmutableList.of(matching));
 
     ignoreFilter = new EnforceIssuesFilter(exclusionPatternInitializer, inputComponentStore);
@@ -90,13 +87,7 @@ public class EnforceIssuesFilterTest {
     when(issue.ruleKey()).thenReturn(ruleKey);
     when(issue.componentKey()).thenReturn(componentKey);
 
-    IssuePattern matching = mock(IssuePattern.class);
-    WildcardPattern rulePattern = mock(WildcardPattern.class);
-    when(matching.getRulePattern()).thenReturn(rulePattern);
-    when(rulePattern.match(rule)).thenReturn(true);
-    WildcardPattern pathPattern = mock(WildcardPattern.class);
-    when(matching.getResourcePattern()).thenReturn(pathPattern);
-    when(pathPattern.match(path)).thenReturn(true);
+    IssuePattern matching = new IssuePattern(path, rule);
     when(exclusionPatternInitializer.getMulticriteriaPatterns()).thenReturn(ImmutableList.of(matching));
     when(inputComponentStore.getByKey(componentKey)).thenReturn(createComponentWithPath(path));
 
@@ -119,13 +110,7 @@ public class EnforceIssuesFilterTest {
     when(issue.ruleKey()).thenReturn(ruleKey);
     when(issue.componentKey()).thenReturn(componentKey);
 
-    IssuePattern matching = mock(IssuePattern.class);
-    WildcardPattern rulePattern = mock(WildcardPattern.class);
-    when(matching.getRulePattern()).thenReturn(rulePattern);
-    when(rulePattern.match(rule)).thenReturn(true);
-    WildcardPattern pathPattern = mock(WildcardPattern.class);
-    when(matching.getResourcePattern()).thenReturn(pathPattern);
-    when(pathPattern.match(path)).thenReturn(false);
+    IssuePattern matching = new IssuePattern("org/sonar/api/Other.java", rule);
     when(exclusionPatternInitializer.getMulticriteriaPatterns()).thenReturn(ImmutableList.of(matching));
     when(inputComponentStore.getByKey(componentKey)).thenReturn(createComponentWithPath(path));
 
@@ -144,13 +129,7 @@ public class EnforceIssuesFilterTest {
     when(issue.ruleKey()).thenReturn(ruleKey);
     when(issue.componentKey()).thenReturn(componentKey);
 
-    IssuePattern matching = mock(IssuePattern.class);
-    WildcardPattern rulePattern = mock(WildcardPattern.class);
-    when(matching.getRulePattern()).thenReturn(rulePattern);
-    when(rulePattern.match(rule)).thenReturn(true);
-    WildcardPattern pathPattern = mock(WildcardPattern.class);
-    when(matching.getResourcePattern()).thenReturn(pathPattern);
-    when(pathPattern.match(path)).thenReturn(false);
+    IssuePattern matching = new IssuePattern("org/sonar/api/Other.java", rule);
     when(exclusionPatternInitializer.getMulticriteriaPatterns()).thenReturn(ImmutableList.of(matching));
     when(inputComponentStore.getByKey(componentKey)).thenReturn(null);
 
@@ -158,4 +137,28 @@ public class EnforceIssuesFilterTest {
     assertThat(ignoreFilter.accept(issue, chain)).isFalse();
     verifyZeroInteractions(chain);
   }
+
+  @Test
+  public void shouldMatchPatternsOnceByRuleAndComponent() {
+    String path = "org/sonar/api/Issue.java";
+    String componentKey = "org.sonar.api.Issue";
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S1"));
+    when(issue.componentKey()).thenReturn(componentKey);
+    when(exclusionPatternInitializer.getMulticriteriaPatterns()).thenReturn(ImmutableList.of(
+      new IssuePattern("org/sonar/api/**/*.java", "squid:*"),
+      new IssuePattern("org/sonar/plugins/**", "squid:S1")));
+    when(inputComponentStore.getByKey(componentKey)).thenReturn(createComponentWithPath(path));
+
+    ignoreFilter = new EnforceIssuesFilter(exclusionPatternInitializer, inputComponentStore);
+    assertThat(ignoreFilter.accept(issue, chain)).isTrue();
+    assertThat(ignoreFilter.accept(issue, chain)).isTrue();
+
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S2"));
+    assertThat(ignoreFilter.accept(issue, chain)).isTrue();
+    when(issue.ruleKey()).thenReturn(RuleKey.of("other", "S1"));
+    assertThat(ignoreFilter.accept(issue, chain)).isTrue();
+
+    verify(inputComponentStore, times(1)).getByKey(componentKey);
+    verify(chain, times(1)).accept(issue);
+  }
 }
@@ -70,7 +70,8 @@ public class IssueExclusionsRegexpScannerTest {
     allFilePatterns = Collections.singletonList(Pattern.compile("@SONAR-IGNORE-ALL"));
 
     javaFile = "org.sonar.test.MyFile";
-    regexpScanner = new IssueExclusionsRegexpScanner(javaFile, allFilePatterns, blockPatterns, patternMatcher);
+    regexpScanner = new IssueExclusionsRegexpScanner(javaFile, new MultiRegexpMatcher(allFilePatterns), blockPatterns,
+      new MultiRegexpMatcher(Arrays.asList(Pattern.compile("// SONAR-OFF"), Pattern.compile("// FOO-OFF"))), patternMatcher);
   }
 
   @Test
@@ -0,0 +1,154 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.ignore.scanner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MultiRegexpMatcherTest {
+
+  @Test
+  public void no_patterns_never_match() {
+    MultiRegexpMatcher underTest = new MultiRegexpMatcher(Collections.emptyList());
+
+    assertThat(underTest.matchesAny("foo")).isFalse();
+    assertThat(underTest.indexOfFirstMatch("foo")).isEqualTo(-1);
+  }
+
+  @Test
+  public void match_literals() {
+    MultiRegexpMatcher underTest = newMatcher("@SONAR-IGNORE-ALL", "@javax\\.annotation\\.Generated");
+
+    assertThat(underTest.indexOfFirstMatch("// @SONAR-IGNORE-ALL")).isEqualTo(0);
+    assertThat(underTest.indexOfFirstMatch("@javax.annotation.Generated(\"foo\")")).isEqualTo(1);
+    assertThat(underTest.indexOfFirstMatch("@javaxXannotation.Generated")).isEqualTo(-1);
+  }
+
+  @Test
+  public void match_regexps() {
+    MultiRegexpMatcher underTest = newMatcher("^// BEGIN-[A-Z]+$", "generated\\s+by", "(?i)do not edit");
+
+    assertThat(underTest.indexOfFirstMatch("// BEGIN-FOO")).isEqualTo(0);
+    assertThat(underTest.indexOfFirstMatch("  // BEGIN-FOO")).isEqualTo(-1);
+    assertThat(underTest.indexOfFirstMatch("// code generated   by tool")).isEqualTo(1);
+    assertThat(underTest.indexOfFirstMatch("/* DO NOT EDIT */")).isEqualTo(2);
+    assertThat(underTest.indexOfFirstMatch("int i = 0;")).isEqualTo(-1);
+  }
+
+  @Test
+  public void return_first_matching_pattern_in_order_of_declaration() {
+    MultiRegexpMatcher underTest = newMatcher("b+", "a", "ab");
+
+    // "a" is found before "b+" in the line, but "b+" is declared first
+    assertThat(underTest.indexOfFirstMatch("xab")).isEqualTo(0);
+    assertThat(underTest.indexOfFirstMatch("xa")).isEqualTo(1);
+  }
+
+  @Test
+  public void support_patterns_which_can_not_be_combined() {
+    MultiRegexpMatcher underTest = newMatcher("(a)\\1", "(?<word>x)y", "\\Q[foo]", "(?x) z # comment", "other");
+
+    assertThat(underTest.indexOfFirstMatch("aa")).isEqualTo(0);
+    assertThat(underTest.indexOfFirstMatch("a")).isEqualTo(-1);
+    assertThat(underTest.indexOfFirstMatch("xy")).isEqualTo(1);
+    assertThat(underTest.indexOfFirstMatch("[foo]")).isEqualTo(2);
+    assertThat(underTest.indexOfFirstMatch("z")).isEqualTo(3);
+    assertThat(underTest.indexOfFirstMatch("other")).isEqualTo(4);
+    assertThat(underTest.indexOfFirstMatch("[foo)|(?:other")).isEqualTo(4);
+  }
+
+  @Test
+  public void same_results_as_patterns_evaluated_one_by_one() {
+    List<Pattern> patterns = compile("NOSONAR", "^\\s*$", "a.c", "[0-9]{3}", "(?i)todo", "(x|y)\\1", "\\.", "\\$\\{");
+    MultiRegexpMatcher underTest = new MultiRegexpMatcher(patterns);
+
+    for (String line : Arrays.asList("", " ", "abc", "a.c", "12", "123", "ToDo", "xx", "xy", "${foo}", "$ {foo}", "// NOSONAR", "nothing")) {
+      int expected = -1;
+      for (int i = 0; i < patterns.size(); i++) {
+        if (patterns.get(i).matcher(line).find()) {
+          expected = i;
+          break;
+        }
+      }
+      assertThat(underTest.indexOfFirstMatch(line)).as(line).isEqualTo(expected);
+      assertThat(underTest.matchesAny(line)).as(line).isEqualTo(expected >= 0);
+    }
+  }
+
+  @Test
+  public void toLiteral() {
+    assertThat(MultiRegexpMatcher.toLiteral("foo")).isEqualTo("foo");
+    assertThat(MultiRegexpMatcher.toLiteral("@SuppressWarnings\\(\"all\"\\)")).isEqualTo("@SuppressWarnings(\"all\")");
+    assertThat(MultiRegexpMatcher.toLiteral("a\\\\b")).isEqualTo("a\\b");
+    assertThat(MultiRegexpMatcher.toLiteral("a.b")).isNull();
+    assertThat(MultiRegexpMatcher.toLiteral("a\\sb")).isNull();
+    assertThat(MultiRegexpMatcher.toLiteral("\\1")).isNull();
+    assertThat(MultiRegexpMatcher.toLiteral("foo\\")).isNull();
+  }
+
+  @Test
+  public void requiredLiteral() {
+    assertThat(MultiRegexpMatcher.requiredLiteral("^// BEGIN-[A-Z]+$")).isEqualTo("// BEGIN-");
+    assertThat(MultiRegexpMatcher.requiredLiteral("generated\\s+by")).isEqualTo("generated");
+    assertThat(MultiRegexpMatcher.requiredLiteral("colou?r")).isEqualTo("colo");
+    assertThat(MultiRegexpMatcher.requiredLiteral("ab*cd")).isEqualTo("cd");
+    assertThat(MultiRegexpMatcher.requiredLiteral("ab{0,2}c")).isEqualTo("a");
+    assertThat(MultiRegexpMatcher.requiredLiteral("x(optional)?yz")).isEqualTo("yz");
+    assertThat(MultiRegexpMatcher.requiredLiteral("x([)]abc)?yz")).isEqualTo("yz");
+    assertThat(MultiRegexpMatcher.requiredLiteral("[]ab]+cd")).isEqualTo("cd");
+    assertThat(MultiRegexpMatcher.requiredLiteral("\\$\\{foo")).isEqualTo("${foo");
+    assertThat(MultiRegexpMatcher.requiredLiteral("...")).isEmpty();
+    assertThat(MultiRegexpMatcher.requiredLiteral("foo|bar")).isNull();
+    assertThat(MultiRegexpMatcher.requiredLiteral("a(?i)bc")).isNull();
+    assertThat(MultiRegexpMatcher.requiredLiteral("\\x41BC")).isNull();
+    assertThat(MultiRegexpMatcher.requiredLiteral("a(b")).isNull();
+  }
+
+  @Test
+  public void combined_regexps_are_not_evaluated_on_lines_without_required_literals() {
+    List<Pattern> patterns = compile("^// BEGIN-[A-Z]+$", "generated\\s+by", "(?i)do not\\s+edit", "x(ab)?yz");
+    MultiRegexpMatcher underTest = new MultiRegexpMatcher(patterns);
+
+    for (String line : Arrays.asList("// BEGIN-FOO", "// BEGIN-", "generated  by", "generated", "Do Not  Edit", "DO NOT", "xyz", "xabyz", "xab", "other")) {
+      int expected = -1;
+      for (int i = 0; i < patterns.size(); i++) {
+        if (patterns.get(i).matcher(line).find()) {
+          expected = i;
+          break;
+        }
+      }
+      assertThat(underTest.indexOfFirstMatch(line)).as(line).isEqualTo(expected);
+    }
+  }
+
+  private static MultiRegexpMatcher newMatcher(String... regexps) {
+    return new MultiRegexpMatcher(compile(regexps));
+  }
+
+  private static List<Pattern> compile(String... regexps) {
+    return Arrays.stream(regexps).map(Pattern::compile).collect(toList());
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.tracking;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.core.util.Protobuf;
+import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
+import org.sonar.scanner.repository.ServerIssuesLoader;
+import org.sonar.scanner.scan.branch.BranchConfiguration;
+import org.sonar.scanner.scan.filesystem.InputComponentStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ServerIssueRepositoryTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private ServerIssuesLoader loader = mock(ServerIssuesLoader.class);
+  private DefaultInputModule module;
+  private DefaultInputFile file1;
+  private DefaultInputFile file2;
+  private ServerIssueRepository underTest;
+
+  @Before
+  public void setUp() throws IOException {
+    module = TestInputFileBuilder.newDefaultInputModule("foo", temp.newFolder());
+    file1 = new TestInputFileBuilder("foo", "src/Foo.java").build();
+    file2 = new TestInputFileBuilder("foo", "src/Bar.java").build();
+    InputComponentStore componentStore = new InputComponentStore(module, mock(BranchConfiguration.class));
+    componentStore.put(file1);
+    componentStore.put(file2);
+    underTest = new ServerIssueRepository(loader, componentStore);
+  }
+
+  @Test
+  public void index_issues_by_component() {
+    mockIssues(
+      newIssue("i1", "foo", "src/Foo.java"),
+      newIssue("i2", "foo", "src/Bar.java"),
+      newIssue("i3", "foo", "src/Foo.java"),
+      newIssue("i4", "foo", null));
+
+    underTest.load();
+
+    assertThat(underTest.byComponent(file1)).extracting(ServerIssue::getKey).containsExactly("i1", "i3");
+    assertThat(underTest.byComponent(file2)).extracting(ServerIssue::getKey).containsExactly("i2");
+    assertThat(underTest.byComponent(module)).extracting(ServerIssue::getKey).containsExactly("i4");
+    assertThat(underTest.issuesOnMissingComponents()).isEmpty();
+  }
+
+  @Test
+  public void issues_of_component_are_sorted_by_key() {
+    mockIssues(
+      newIssue("i3", "foo", "src/Foo.java"),
+      newIssue("i1", "foo", "src/Foo.java"),
+      newIssue("i4", "foo", "src/Deleted.java"),
+      newIssue("i2", "foo", "src/Foo.java"),
+      newIssue("i0", "foo", "src/Deleted.java"));
+
+    underTest.load();
+
+    assertThat(underTest.byComponent(file1)).extracting(ServerIssue::getKey).containsExactly("i1", "i2", "i3");
+    assertThat(underTest.issuesOnMissingComponents()).extracting(ServerIssue::getKey).containsExactly("i0", "i4");
+  }
+
+  @Test
+  public void issues_are_fully_decoded_when_requested() {
+    ServerIssue issue = newIssue("i1", "foo", "src/Foo.java").toBuilder()
+      .setRuleRepository("java")
+      .setRuleKey("S001")
+      .setLine(12)
+      .setMsg("message")
+      .setChecksum("abc")
+      .setCreationDate(1_000L)
+      .build();
+    mockIssues(issue);
+
+    underTest.load();
+
+    assertThat(underTest.byComponent(file1)).containsExactly(issue);
+  }
+
+  @Test
+  public void issues_on_unknown_modules_and_files_are_on_missing_components() {
+    mockIssues(
+      newIssue("i1", "foo", "src/Deleted.java"),
+      newIssue("i2", "other", "src/Foo.java"),
+      newIssue("i3", "foo", "src/Foo.java"));
+
+    underTest.load();
+
+    assertThat(underTest.issuesOnMissingComponents()).extracting(ServerIssue::getKey).containsExactly("i1", "i2");
+    assertThat(underTest.byComponent(file1)).extracting(ServerIssue::getKey).containsExactly("i3");
+  }
+
+  @Test
+  public void no_issues() {
+    mockIssues();
+
+    underTest.load();
+
+    assertThat(underTest.byComponent(file1)).isEmpty();
+    assertThat(underTest.issuesOnMissingComponents()).isEmpty();
+  }
+
+  @Test
+  public void fail_if_stream_can_not_be_read() throws IOException {
+    InputStream input = mock(InputStream.class);
+    when(input.read()).thenThrow(IOException.class);
+    when(loader.load("foo")).thenReturn(input);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Unable to get previous issues");
+
+    underTest.load();
+  }
+
+  private void mockIssues(ServerIssue... issues) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    Protobuf.writeStream(Arrays.asList(issues), output);
+    when(loader.load("foo")).thenReturn(new ByteArrayInputStream(output.toByteArray()));
+  }
+
+  private static ServerIssue newIssue(String key, String moduleKey, String path) {
+    ServerIssue.Builder builder = ServerIssue.newBuilder().setKey(key).setModuleKey(moduleKey);
+    if (path != null) {
+      builder.setPath(path);
+    }
+    return builder.build();
+  }
+}
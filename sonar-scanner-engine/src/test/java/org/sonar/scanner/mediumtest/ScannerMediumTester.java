@@ -21,9 +21,12 @@ package org.sonar.scanner.mediumtest;
 
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
@@ -36,7 +39,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.function.Consumer;
 import java.util.function.Supplier;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -53,6 +55,7 @@ import org.sonar.api.utils.DateUtils;
 import org.sonar.batch.bootstrapper.Batch;
 import org.sonar.batch.bootstrapper.EnvironmentInformation;
 import org.sonar.batch.bootstrapper.LogOutput;
+import org.sonar.core.util.Protobuf;
 import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
 import org.sonar.scanner.issue.tracking.ServerLineHashesLoader;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
@@ -477,10 +480,10 @@ public class ScannerMediumTester extends ExternalResource {
     }
 
     @Override
-    public void load(String componentKey, Consumer<ServerIssue> consumer) {
-      for (ServerIssue serverIssue : serverIssues) {
-        consumer.accept(serverIssue);
-      }
+    public InputStream load(String componentKey) {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      Protobuf.writeStream(serverIssues, output);
+      return new ByteArrayInputStream(output.toByteArray());
     }
   }
 
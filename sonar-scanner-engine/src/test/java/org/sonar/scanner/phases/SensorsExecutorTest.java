@@ -20,7 +20,9 @@
 package org.sonar.scanner.phases;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.function.Consumer;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -32,14 +34,20 @@ import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.api.batch.fs.internal.SensorStrategy;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.SensorDescriptor;
 import org.sonar.api.resources.Project;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
+import org.sonar.scanner.cache.AnalysisCacheExecutor;
 import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.sensor.SensorOptimizer;
+import org.sonar.scanner.sensor.SensorWrapper;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class SensorsExecutorTest {
@@ -49,8 +57,12 @@ public class SensorsExecutorTest {
   private SensorsExecutor rootModuleExecutor;
   private SensorsExecutor subModuleExecutor;
   private SensorContext context;
+  private AnalysisCacheExecutor analysisCacheExecutor = mock(AnalysisCacheExecutor.class);
+  private DefaultInputModule rootModule;
+  private DefaultInputModule subModule;
 
   private SensorStrategy strategy = new SensorStrategy();
+  private ScannerExtensionDictionnary selector;
 
   private TestSensor perModuleSensor = new TestSensor(strategy);
   private TestSensor globalSensor = new TestSensor(strategy);
@@ -81,21 +93,21 @@ public class SensorsExecutorTest {
   public void setUp() throws IOException {
     context = mock(SensorContext.class);
 
-    ScannerExtensionDictionnary selector = mock(ScannerExtensionDictionnary.class);
+    selector = mock(ScannerExtensionDictionnary.class);
     when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(Collections.singleton(perModuleSensor));
     when(selector.selectSensors(any(DefaultInputModule.class), eq(true))).thenReturn(Collections.singleton(globalSensor));
 
     ProjectDefinition childDef = ProjectDefinition.create().setKey("sub").setBaseDir(temp.newFolder()).setWorkDir(temp.newFolder());
     ProjectDefinition rootDef = ProjectDefinition.create().setKey("root").setBaseDir(temp.newFolder()).setWorkDir(temp.newFolder());
 
-    DefaultInputModule rootModule = TestInputFileBuilder.newDefaultInputModule(rootDef);
-    DefaultInputModule subModule = TestInputFileBuilder.newDefaultInputModule(childDef);
+    rootModule = TestInputFileBuilder.newDefaultInputModule(rootDef);
+    subModule = TestInputFileBuilder.newDefaultInputModule(childDef);
 
     InputModuleHierarchy hierarchy = mock(InputModuleHierarchy.class);
     when(hierarchy.isRoot(rootModule)).thenReturn(true);
 
-    rootModuleExecutor = new SensorsExecutor(selector, rootModule, hierarchy, mock(EventBus.class), strategy);
-    subModuleExecutor = new SensorsExecutor(selector, subModule, hierarchy, mock(EventBus.class), strategy);
+    rootModuleExecutor = new SensorsExecutor(selector, rootModule, hierarchy, mock(EventBus.class), strategy, analysisCacheExecutor);
+    subModuleExecutor = new SensorsExecutor(selector, subModule, hierarchy, mock(EventBus.class), strategy, analysisCacheExecutor);
   }
 
   @Test
@@ -105,6 +117,8 @@ public class SensorsExecutorTest {
     assertThat(perModuleSensor.called).isTrue();
     assertThat(perModuleSensor.global).isFalse();
     assertThat(globalSensor.called).isFalse();
+    verify(analysisCacheExecutor).restore(subModule, Collections.emptyList());
+    verify(analysisCacheExecutor, never()).store();
   }
 
   @Test
@@ -115,5 +129,33 @@ public class SensorsExecutorTest {
     assertThat(perModuleSensor.global).isFalse();
     assertThat(globalSensor.called).isTrue();
     assertThat(globalSensor.global).isTrue();
+    verify(analysisCacheExecutor).restore(rootModule, Collections.emptyList());
+    verify(analysisCacheExecutor).store();
+  }
+
+  @Test
+  public void restore_analysis_cache_for_sensors_reusing_it() {
+    SensorWrapper cacheUser = wrap(descriptor -> descriptor.onlyOnLanguage("java").reuseAnalysisCache());
+    SensorWrapper otherSensor = wrap(descriptor -> descriptor.onlyOnLanguage("java"));
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(Arrays.asList(cacheUser, otherSensor, perModuleSensor));
+
+    subModuleExecutor.execute(context);
+
+    verify(analysisCacheExecutor).restore(subModule, Collections.singletonList(cacheUser.descriptor()));
+  }
+
+  private static SensorWrapper wrap(Consumer<SensorDescriptor> describe) {
+    org.sonar.api.batch.sensor.Sensor sensor = new org.sonar.api.batch.sensor.Sensor() {
+      @Override
+      public void describe(SensorDescriptor descriptor) {
+        describe.accept(descriptor);
+      }
+
+      @Override
+      public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+        // nothing to do
+      }
+    };
+    return new SensorWrapper(sensor, mock(org.sonar.api.batch.sensor.SensorContext.class), mock(SensorOptimizer.class));
   }
 }
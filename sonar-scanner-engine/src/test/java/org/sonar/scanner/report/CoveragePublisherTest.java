@@ -28,18 +28,16 @@ import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
-import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
-import org.sonar.api.measures.CoreMetrics;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.protocol.output.ScannerReport.LineCoverage;
 import org.sonar.scanner.protocol.output.ScannerReportReader;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
-import org.sonar.scanner.scan.measure.MeasureCache;
+import org.sonar.scanner.scan.measure.FileLineCoverage;
+import org.sonar.scanner.scan.measure.LineCoverageCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -48,7 +46,7 @@ public class CoveragePublisherTest {
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
 
-  private MeasureCache measureCache;
+  private LineCoverageCache lineCoverageCache;
   private CoveragePublisher publisher;
 
   private DefaultInputFile inputFile;
@@ -61,22 +59,21 @@ public class CoveragePublisherTest {
     InputComponentStore componentCache = new InputComponentStore(rootModule, mock(BranchConfiguration.class));
     componentCache.put(inputFile);
 
-    measureCache = mock(MeasureCache.class);
-    when(measureCache.byMetric(anyString(), anyString())).thenReturn(null);
-    publisher = new CoveragePublisher(componentCache, measureCache);
+    lineCoverageCache = mock(LineCoverageCache.class);
+    publisher = new CoveragePublisher(componentCache, lineCoverageCache);
   }
 
   @Test
   public void publishCoverage() throws Exception {
-
-    DefaultMeasure<String> utLineHits = new DefaultMeasure<String>().forMetric(CoreMetrics.COVERAGE_LINE_HITS_DATA).withValue("2=1;3=1;5=0;6=3");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY)).thenReturn((DefaultMeasure) utLineHits);
-
-    DefaultMeasure<String> conditionsByLine = new DefaultMeasure<String>().forMetric(CoreMetrics.CONDITIONS_BY_LINE).withValue("3=4");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.CONDITIONS_BY_LINE_KEY)).thenReturn((DefaultMeasure) conditionsByLine);
-
-    DefaultMeasure<String> coveredConditionsByUts = new DefaultMeasure<String>().forMetric(CoreMetrics.COVERED_CONDITIONS_BY_LINE).withValue("3=2");
-    when(measureCache.byMetric("foo:src/Foo.php", CoreMetrics.COVERED_CONDITIONS_BY_LINE_KEY)).thenReturn((DefaultMeasure) coveredConditionsByUts);
+    // coverage may have been computed on a different version of the file
+    FileLineCoverage coverage = new FileLineCoverage(6)
+      .addHits(2, 1)
+      .addHits(3, 1)
+      .addHits(5, 0)
+      .addHits(6, 3)
+      .mergeConditions(3, 4)
+      .mergeCoveredConditions(3, 2);
+    when(lineCoverageCache.byFile("foo:src/Foo.php")).thenReturn(coverage);
 
     File outputDir = temp.newFolder();
     ScannerReportWriter writer = new ScannerReportWriter(outputDir);
@@ -98,6 +95,19 @@ public class CoveragePublisherTest {
         .setLine(5)
         .setHits(false)
         .build());
+      assertThat(it.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  public void publish_empty_coverage_if_no_data() throws Exception {
+    File outputDir = temp.newFolder();
+    ScannerReportWriter writer = new ScannerReportWriter(outputDir);
+
+    publisher.publish(writer);
+
+    try (CloseableIterator<LineCoverage> it = new ScannerReportReader(outputDir).readComponentCoverage(inputFile.batchId())) {
+      assertThat(it.hasNext()).isFalse();
     }
 
   }
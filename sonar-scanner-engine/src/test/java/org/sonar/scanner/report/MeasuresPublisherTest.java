@@ -40,6 +40,8 @@ import org.sonar.scanner.protocol.output.ScannerReportReader;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
+import org.sonar.scanner.scan.measure.FileLineCoverage;
+import org.sonar.scanner.scan.measure.LineCoverageCache;
 import org.sonar.scanner.scan.measure.MeasureCache;
 
 import static java.util.Arrays.asList;
@@ -47,6 +49,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class MeasuresPublisherTest {
@@ -57,6 +60,7 @@ public class MeasuresPublisherTest {
   public TemporaryFolder temp = new TemporaryFolder();
 
   private MeasureCache measureCache;
+  private LineCoverageCache lineCoverageCache;
   private MeasuresPublisher publisher;
 
   private File outputDir;
@@ -73,7 +77,8 @@ public class MeasuresPublisherTest {
     componentCache.put(inputFile);
     measureCache = mock(MeasureCache.class);
     when(measureCache.byComponentKey(anyString())).thenReturn(Collections.<DefaultMeasure<?>>emptyList());
-    publisher = new MeasuresPublisher(componentCache, measureCache, mock(TestPlanBuilder.class));
+    lineCoverageCache = mock(LineCoverageCache.class);
+    publisher = new MeasuresPublisher(componentCache, measureCache, lineCoverageCache, mock(TestPlanBuilder.class));
     outputDir = temp.newFolder();
     writer = new ScannerReportWriter(outputDir);
   }
@@ -96,6 +101,32 @@ public class MeasuresPublisherTest {
     }
   }
 
+  @Test
+  public void compute_coverage_measures_from_line_coverage() {
+    FileLineCoverage coverage = new FileLineCoverage(5)
+      .addHits(1, 2)
+      .addHits(2, 0)
+      .addHits(4, 0)
+      .mergeConditions(2, 4)
+      .mergeCoveredConditions(2, 1)
+      .mergeConditions(4, 2);
+    when(lineCoverageCache.byFile(inputFile.key())).thenReturn(coverage);
+
+    publisher.publish(writer);
+
+    verify(measureCache).put(inputFile.key(), CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY,
+      new DefaultMeasure<String>().forMetric(CoreMetrics.COVERAGE_LINE_HITS_DATA).withValue("1=2;2=0;4=0"));
+    verify(measureCache).put(inputFile.key(), CoreMetrics.CONDITIONS_BY_LINE_KEY,
+      new DefaultMeasure<String>().forMetric(CoreMetrics.CONDITIONS_BY_LINE).withValue("2=4;4=2"));
+    verify(measureCache).put(inputFile.key(), CoreMetrics.COVERED_CONDITIONS_BY_LINE_KEY,
+      new DefaultMeasure<String>().forMetric(CoreMetrics.COVERED_CONDITIONS_BY_LINE).withValue("2=1"));
+    verify(measureCache).put(inputFile.key(), CoreMetrics.LINES_TO_COVER_KEY, new DefaultMeasure<Integer>().forMetric(CoreMetrics.LINES_TO_COVER).withValue(3));
+    verify(measureCache).put(inputFile.key(), CoreMetrics.UNCOVERED_LINES_KEY, new DefaultMeasure<Integer>().forMetric(CoreMetrics.UNCOVERED_LINES).withValue(2));
+    verify(measureCache).put(inputFile.key(), CoreMetrics.CONDITIONS_TO_COVER_KEY, new DefaultMeasure<Integer>().forMetric(CoreMetrics.CONDITIONS_TO_COVER).withValue(6));
+    verify(measureCache).put(inputFile.key(), CoreMetrics.UNCOVERED_CONDITIONS_KEY,
+      new DefaultMeasure<Integer>().forMetric(CoreMetrics.UNCOVERED_CONDITIONS).withValue(5));
+  }
+
   @Test
   public void fail_with_IAE_when_measure_has_no_value() throws Exception {
     DefaultMeasure<Integer> measure = new DefaultMeasure<Integer>().forMetric(CoreMetrics.LINES_TO_COVER);
@@ -19,12 +19,19 @@
  */
 package org.sonar.scanner.report;
 
+import com.google.protobuf.Message;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -49,12 +56,14 @@ import org.sonar.scanner.bootstrap.ScannerWsClient;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonarqube.ws.WsCe;
 import org.sonarqube.ws.client.HttpException;
+import org.sonarqube.ws.client.PostRequest;
 import org.sonarqube.ws.client.WsRequest;
 import org.sonarqube.ws.client.WsResponse;
 
 import static org.apache.commons.io.FileUtils.readFileToString;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -267,4 +276,165 @@ public class ReportPublisherTest {
       .containsExactlyInAnyOrder("branch=" + branchName, "branchType=" + SHORT.name());
   }
 
+
+  @Test
+  public void upload_big_report_in_chunks() throws Exception {
+    ReportPublisher underTest = new ReportPublisher(settings.asConfig(), wsClient, server, contextPublisher, moduleHierarchy, mode, mock(TempFolder.class),
+      new ReportPublisherStep[0], branchConfiguration);
+    settings.setProperty(ReportPublisher.REPORT_CHUNK_SIZE_PROP_KEY, 4);
+    File report = temp.newFile();
+    FileUtils.write(report, "0123456789");
+
+    List<WsRequest> requests = new ArrayList<>();
+    when(wsClient.call(any(WsRequest.class))).thenAnswer(invocation -> {
+      WsRequest request = (WsRequest) invocation.getArguments()[0];
+      requests.add(request);
+      switch (request.getPath()) {
+        case "api/ce/upload_start":
+          return protobufResponse(WsCe.UploadResponse.newBuilder().setUploadId("UPLOAD_1").setNextChunk(0).build());
+        case "api/ce/upload_chunk":
+          int index = Integer.parseInt(request.getParams().get("index"));
+          return protobufResponse(WsCe.UploadResponse.newBuilder().setUploadId("UPLOAD_1").setNextChunk(index + 1).build());
+        case "api/ce/upload_commit":
+          return protobufResponse(WsCe.SubmitResponse.newBuilder().setTaskId("TASK_1").build());
+        default:
+          throw new IllegalArgumentException(request.getPath());
+      }
+    });
+
+    assertThat(underTest.upload(report)).isEqualTo("TASK_1");
+
+    assertThat(requests).extracting(WsRequest::getPath)
+      .containsExactly("api/ce/upload_start", "api/ce/upload_chunk", "api/ce/upload_chunk", "api/ce/upload_chunk", "api/ce/upload_commit");
+    assertThat(requests.get(0).getParams()).containsOnly(entry("projectKey", "struts"));
+    PostRequest lastChunk = (PostRequest) requests.get(3);
+    assertThat(lastChunk.getParams()).containsOnly(entry("uploadId", "UPLOAD_1"), entry("index", "2"), entry("checksum", DigestUtils.sha256Hex("89")));
+    assertThat(lastChunk.getParts().get("chunk").getOffset()).isEqualTo(8L);
+    assertThat(lastChunk.getParts().get("chunk").getLength()).isEqualTo(2L);
+    assertThat(requests.get(4).getParams()).containsOnly(entry("uploadId", "UPLOAD_1"), entry("chunks", "3"));
+  }
+
+  @Test
+  public void resume_chunked_upload_after_network_failure() throws Exception {
+    ReportPublisher underTest = new ReportPublisher(settings.asConfig(), wsClient, server, contextPublisher, moduleHierarchy, mode, mock(TempFolder.class),
+      new ReportPublisherStep[0], branchConfiguration);
+    underTest.setRetryDelay(1);
+    settings.setProperty(ReportPublisher.REPORT_CHUNK_SIZE_PROP_KEY, 4);
+    File report = temp.newFile();
+    FileUtils.write(report, "01234567");
+
+    List<String> chunks = new ArrayList<>();
+    AtomicBoolean failed = new AtomicBoolean(false);
+    when(wsClient.call(any(WsRequest.class))).thenAnswer(invocation -> {
+      WsRequest request = (WsRequest) invocation.getArguments()[0];
+      switch (request.getPath()) {
+        case "api/ce/upload_start":
+          return protobufResponse(WsCe.UploadResponse.newBuilder().setUploadId("UPLOAD_1").setNextChunk(0).build());
+        case "api/ce/upload_chunk":
+          String index = request.getParams().get("index");
+          if (index.equals("1") && !failed.getAndSet(true)) {
+            throw new IllegalStateException("Connection reset");
+          }
+          chunks.add(index);
+          return protobufResponse(WsCe.UploadResponse.newBuilder().setUploadId("UPLOAD_1").setNextChunk(Integer.parseInt(index) + 1).build());
+        case "api/ce/upload_status":
+          return protobufResponse(WsCe.UploadResponse.newBuilder().setUploadId("UPLOAD_1").setNextChunk(chunks.size()).build());
+        case "api/ce/upload_commit":
+          return protobufResponse(WsCe.SubmitResponse.newBuilder().setTaskId("TASK_1").build());
+        default:
+          throw new IllegalArgumentException(request.getPath());
+      }
+    });
+
+    assertThat(underTest.upload(report)).isEqualTo("TASK_1");
+
+    assertThat(chunks).containsExactly("0", "1");
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsExactly("Failed to upload chunk 1 of the report, resuming upload: Connection reset");
+  }
+
+  @Test
+  public void retry_upload_status_after_network_failure() throws Exception {
+    ReportPublisher underTest = new ReportPublisher(settings.asConfig(), wsClient, server, contextPublisher, moduleHierarchy, mode, mock(TempFolder.class),
+      new ReportPublisherStep[0], branchConfiguration);
+    underTest.setRetryDelay(1);
+    settings.setProperty(ReportPublisher.REPORT_CHUNK_SIZE_PROP_KEY, 4);
+    File report = temp.newFile();
+    FileUtils.write(report, "01234567");
+
+    List<String> chunks = new ArrayList<>();
+    AtomicBoolean chunkFailed = new AtomicBoolean(false);
+    AtomicBoolean statusFailed = new AtomicBoolean(false);
+    when(wsClient.call(any(WsRequest.class))).thenAnswer(invocation -> {
+      WsRequest request = (WsRequest) invocation.getArguments()[0];
+      switch (request.getPath()) {
+        case "api/ce/upload_start":
+          return protobufResponse(WsCe.UploadResponse.newBuilder().setUploadId("UPLOAD_1").setNextChunk(0).build());
+        case "api/ce/upload_chunk":
+          String index = request.getParams().get("index");
+          chunks.add(index);
+          if (index.equals("1") && !chunkFailed.getAndSet(true)) {
+            throw new IllegalStateException("Connection reset");
+          }
+          return protobufResponse(WsCe.UploadResponse.newBuilder().setUploadId("UPLOAD_1").setNextChunk(Integer.parseInt(index) + 1).build());
+        case "api/ce/upload_status":
+          if (!statusFailed.getAndSet(true)) {
+            throw new IllegalStateException("Connection refused");
+          }
+          return protobufResponse(WsCe.UploadResponse.newBuilder().setUploadId("UPLOAD_1").setNextChunk(2).build());
+        case "api/ce/upload_commit":
+          return protobufResponse(WsCe.SubmitResponse.newBuilder().setTaskId("TASK_1").build());
+        default:
+          throw new IllegalArgumentException(request.getPath());
+      }
+    });
+
+    assertThat(underTest.upload(report)).isEqualTo("TASK_1");
+
+    // the failed chunk was received by the server, so it is not sent again
+    assertThat(chunks).containsExactly("0", "1");
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsExactly(
+      "Failed to upload chunk 1 of the report, resuming upload: Connection reset",
+      "Failed to upload chunk 1 of the report, resuming upload: Connection refused");
+  }
+
+  @Test
+  public void fail_when_upload_status_keeps_failing() throws Exception {
+    ReportPublisher underTest = new ReportPublisher(settings.asConfig(), wsClient, server, contextPublisher, moduleHierarchy, mode, mock(TempFolder.class),
+      new ReportPublisherStep[0], branchConfiguration);
+    underTest.setRetryDelay(1);
+    settings.setProperty(ReportPublisher.REPORT_CHUNK_SIZE_PROP_KEY, 4);
+    File report = temp.newFile();
+    FileUtils.write(report, "01234567");
+
+    List<String> paths = new ArrayList<>();
+    when(wsClient.call(any(WsRequest.class))).thenAnswer(invocation -> {
+      WsRequest request = (WsRequest) invocation.getArguments()[0];
+      paths.add(request.getPath());
+      switch (request.getPath()) {
+        case "api/ce/upload_start":
+          return protobufResponse(WsCe.UploadResponse.newBuilder().setUploadId("UPLOAD_1").setNextChunk(0).build());
+        case "api/ce/upload_chunk":
+          throw new IllegalStateException("Connection reset");
+        case "api/ce/upload_status":
+          throw new IllegalStateException("Connection refused");
+        default:
+          throw new IllegalArgumentException(request.getPath());
+      }
+    });
+
+    try {
+      underTest.upload(report);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Connection refused");
+    }
+    assertThat(paths).containsExactly("api/ce/upload_start", "api/ce/upload_chunk", "api/ce/upload_status", "api/ce/upload_status");
+  }
+
+  private static WsResponse protobufResponse(Message message) throws IOException {
+    WsResponse response = mock(WsResponse.class);
+    when(response.failIfNotSuccessful()).thenReturn(response);
+    when(response.contentStream()).thenReturn(new ByteArrayInputStream(message.toByteArray()));
+    return response;
+  }
 }
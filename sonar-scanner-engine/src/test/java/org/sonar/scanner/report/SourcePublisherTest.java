@@ -117,4 +117,37 @@ public class SourcePublisherTest {
     assertThat(FileUtils.readFileToString(out, StandardCharsets.UTF_8)).isEqualTo("\n2\n3\n4\n5");
   }
 
+  @Test
+  public void publishUtf8SourceWithoutDecoding() throws Exception {
+    inputFile.setCharset(StandardCharsets.UTF_8);
+    FileUtils.write(sourceFile, "1\n\u00e9t\u00e9\n3\n\u4e2d\n5", StandardCharsets.UTF_8);
+
+    publisher.publish(writer);
+
+    File out = writer.getSourceFile(inputFile.batchId());
+    assertThat(FileUtils.readFileToString(out, StandardCharsets.UTF_8)).isEqualTo("1\n\u00e9t\u00e9\n3\n\u4e2d\n5");
+  }
+
+  @Test
+  public void publishUtf8SourceWithLastEmptyLine() throws Exception {
+    inputFile.setCharset(StandardCharsets.UTF_8);
+    FileUtils.write(sourceFile, "1\n2\n3\n4\n", StandardCharsets.UTF_8);
+
+    publisher.publish(writer);
+
+    File out = writer.getSourceFile(inputFile.batchId());
+    assertThat(FileUtils.readFileToString(out, StandardCharsets.UTF_8)).isEqualTo("1\n2\n3\n4\n");
+  }
+
+  @Test
+  public void removeBomAndCleanLineEndsOfUtf8Source() throws Exception {
+    inputFile.setCharset(StandardCharsets.UTF_8);
+    FileUtils.write(sourceFile, "\uFEFF\n2\r\n3\n4\r5", StandardCharsets.UTF_8);
+
+    publisher.publish(writer);
+
+    File out = writer.getSourceFile(inputFile.batchId());
+    assertThat(FileUtils.readFileToString(out, StandardCharsets.UTF_8)).isEqualTo("\n2\n3\n4\n5");
+  }
+
 }
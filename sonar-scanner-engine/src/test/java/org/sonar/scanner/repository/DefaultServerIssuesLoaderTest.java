@@ -21,20 +21,17 @@ package org.sonar.scanner.repository;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.Consumer;
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.Protobuf;
 import org.sonar.scanner.WsTestUtil;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
 
 public class DefaultServerIssuesLoaderTest {
   private DefaultServerIssuesLoader loader;
@@ -58,19 +55,16 @@ public class DefaultServerIssuesLoaderTest {
     InputStream is = new ByteArrayInputStream(bos.toByteArray());
     WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo", is);
 
-    final List<ServerIssue> result = new ArrayList<>();
-    loader.load("foo", issue -> {
-      result.add(issue);
-    });
-
-    assertThat(result).extracting("key").containsExactly("ab1", "ab2");
+    try (CloseableIterator<ServerIssue> result = Protobuf.readStream(loader.load("foo"), ServerIssue.parser())) {
+      assertThat(result).extracting("key").containsExactly("ab1", "ab2");
+    }
   }
 
-  @Test(expected = IllegalStateException.class)
-  public void testError() throws IOException {
-    InputStream is = mock(InputStream.class);
-    when(is.read()).thenThrow(IOException.class);
-    WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo", is);
-    loader.load("foo", mock(Consumer.class));
+  @Test
+  public void encode_component_key() throws Exception {
+    InputStream is = new ByteArrayInputStream(new byte[0]);
+    WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo%3Abar", is);
+
+    assertThat(loader.load("foo:bar")).isSameAs(is);
   }
 }
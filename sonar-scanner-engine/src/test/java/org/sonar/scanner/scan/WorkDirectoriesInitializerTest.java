@@ -29,6 +29,7 @@ import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.home.cache.DirectoryLock;
+import org.sonar.scanner.cache.AnalysisCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -81,6 +82,18 @@ public class WorkDirectoriesInitializerTest {
     assertThat(rootWorkDir.list()).containsOnly(DirectoryLock.LOCK_FILE_NAME);
   }
 
+  @Test
+  public void cleaningShouldNotDeleteAnalysisCache() throws IOException {
+    File cacheDir = new File(rootWorkDir, AnalysisCache.DIR_NAME);
+    cacheDir.mkdir();
+    new File(cacheDir, "entry").createNewFile();
+
+    initializer.execute();
+
+    assertThat(rootWorkDir.list()).containsOnly(DirectoryLock.LOCK_FILE_NAME, AnalysisCache.DIR_NAME);
+    assertThat(new File(cacheDir, "entry")).exists();
+  }
+
   @Test
   public void cleaningRootModuleShouldNotDeleteChildrenWorkDir() throws IOException {
     DefaultInputModule moduleA = mock(DefaultInputModule.class);
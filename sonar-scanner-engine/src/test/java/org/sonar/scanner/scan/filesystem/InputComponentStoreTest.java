@@ -144,4 +144,47 @@ public class InputComponentStoreTest {
     assertThat(tester.filesByModule(mod2Key)).containsExactly(mod2File);
     assertThat(tester.allFiles()).containsExactlyInAnyOrder(mod1File, mod2File);
   }
+
+  @Test
+  public void should_index_files_by_language_and_type_per_module_and_globally() throws IOException {
+    InputComponentStoreTester tester = new InputComponentStoreTester();
+
+    InputFile mod1Java = tester.addFile("mod1", "src/main/java/Foo.java", "java");
+    InputFile mod1Groovy = tester.addFile("mod1", "src/main/groovy/Foo.groovy", "groovy");
+    InputFile mod2Java = tester.addFile("mod2", "src/main/java/Bar.java", "java");
+
+    assertThat(tester.getFilesByLanguage("java")).containsExactly(mod1Java, mod2Java);
+    assertThat(tester.getFilesByLanguage("mod1", "java")).containsExactly(mod1Java);
+    assertThat(tester.getFilesByLanguage("mod3", "java")).isEmpty();
+    assertThat(tester.getFilesByType(Type.MAIN)).containsExactly(mod1Java, mod1Groovy, mod2Java);
+    assertThat(tester.getFilesByType("mod2", Type.MAIN)).containsExactly(mod2Java);
+    assertThat(tester.getFilesByType(Type.TEST)).isEmpty();
+
+    long modificationCount = tester.modificationCount();
+    tester.remove(mod1Java);
+    assertThat(tester.modificationCount()).isGreaterThan(modificationCount);
+    assertThat(tester.getFilesByLanguage("java")).containsExactly(mod2Java);
+    assertThat(tester.getFilesByExtension("java")).containsExactly(mod2Java);
+
+    tester.removeModule("mod2");
+    assertThat(tester.getFilesByLanguage("java")).isEmpty();
+    assertThat(tester.getFilesByType(Type.MAIN)).containsExactly(mod1Groovy);
+  }
+
+  @Test
+  public void should_keep_file_indexed_when_put_again() throws IOException {
+    InputComponentStoreTester tester = new InputComponentStoreTester();
+
+    tester.addFile("mod1", "src/main/java/Foo.java", "java");
+    InputFile newInstance = tester.addFile("mod1", "src/main/java/Foo.java", "java");
+    InputFile sameInstance = tester.addFile("mod1", "src/main/java/Bar.java", "java");
+    tester.put(sameInstance);
+
+    assertThat(tester.allFiles()).containsExactlyInAnyOrder(newInstance, sameInstance);
+    assertThat(tester.getFilesByLanguage("java")).extracting(f -> f == newInstance || f == sameInstance).containsExactly(true, true);
+    assertThat(tester.getFilesByLanguage("mod1", "java")).hasSize(2);
+    assertThat(tester.getFilesByName("Foo.java")).extracting(f -> f == newInstance).containsExactly(true);
+    assertThat(tester.getFilesByExtension("java")).hasSize(2);
+    assertThat(tester.getFilesByType(Type.MAIN)).hasSize(2);
+  }
 }
@@ -112,6 +112,20 @@ public class ModuleInputComponentStoreTest {
     assertThat(store.getFilesByExtension("nonexistent")).isEmpty();
   }
 
+  @Test
+  public void should_change_version_when_files_are_added_or_strategy_changes() {
+    SensorStrategy strategy = new SensorStrategy();
+    ModuleInputComponentStore store = new ModuleInputComponentStore(mock(InputModule.class), componentStore, strategy);
+
+    long version = store.version();
+    store.doAdd(new TestInputFileBuilder(moduleKey, "some/path/Program.java").build());
+    assertThat(store.version()).isNotEqualTo(version);
+
+    version = store.version();
+    strategy.setGlobal(true);
+    assertThat(store.version()).isNotEqualTo(version);
+  }
+
   private ModuleInputComponentStore newModuleInputComponentStore() {
     return new ModuleInputComponentStore(mock(InputModule.class), componentStore, mock(SensorStrategy.class));
   }
@@ -134,6 +148,12 @@ public class ModuleInputComponentStoreTest {
 
     store.languages();
     verify(inputComponentStore).getLanguages(any(String.class));
+
+    store.getFilesByLanguage("java");
+    verify(inputComponentStore).getFilesByLanguage(any(String.class), eq("java"));
+
+    store.getFilesByType(InputFile.Type.MAIN);
+    verify(inputComponentStore).getFilesByType(any(String.class), eq(InputFile.Type.MAIN));
   }
 
   @Test
@@ -156,5 +176,11 @@ public class ModuleInputComponentStoreTest {
 
     store.languages();
     verify(inputComponentStore).getLanguages();
+
+    store.getFilesByLanguage("java");
+    verify(inputComponentStore).getFilesByLanguage("java");
+
+    store.getFilesByType(InputFile.Type.MAIN);
+    verify(inputComponentStore).getFilesByType(InputFile.Type.MAIN);
   }
 }
@@ -0,0 +1,128 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.measure;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.scanner.index.AbstractCachesTest;
+import org.sonar.scanner.storage.Storage;
+import org.sonar.scanner.storage.Storages;
+
+import static java.util.Collections.emptyMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LineCoverageCacheTest extends AbstractCachesTest {
+
+  private InputFile file = new TestInputFileBuilder("foo", "src/Foo.php").setLines(10).build();
+  private LineCoverageCache underTest;
+
+  @Before
+  public void start() {
+    super.start();
+    underTest = new LineCoverageCache(caches);
+  }
+
+  @Test
+  public void no_coverage_by_default() {
+    assertThat(underTest.byFile(file.key())).isNull();
+    assertThat(underTest.contains(file.key())).isFalse();
+  }
+
+  @Test
+  public void ignore_empty_coverage() {
+    underTest.merge(file, emptyMap(), emptyMap(), emptyMap());
+
+    assertThat(underTest.contains(file.key())).isFalse();
+  }
+
+  @Test
+  public void store_coverage() {
+    underTest.merge(file, ImmutableMap.of(3, 1, 1, 0), ImmutableMap.of(3, 2), ImmutableMap.of(3, 1));
+
+    FileLineCoverage coverage = underTest.byFile(file.key());
+    assertThat(coverage.lines()).isEqualTo(10);
+    assertThat(coverage.hits(1)).isEqualTo(0);
+    assertThat(coverage.hits(2)).isEqualTo(FileLineCoverage.NO_VALUE);
+    assertThat(coverage.hits(3)).isEqualTo(1);
+    assertThat(coverage.conditions(3)).isEqualTo(2);
+    assertThat(coverage.coveredConditions(3)).isEqualTo(1);
+    assertThat(coverage.hitsData()).isEqualTo("1=0;3=1");
+    assertThat(coverage.conditionsData()).isEqualTo("3=2");
+    assertThat(coverage.coveredConditionsData()).isEqualTo("3=1");
+  }
+
+  @Test
+  public void sum_hits_of_several_reports() {
+    underTest.merge(file, ImmutableMap.of(1, 1), emptyMap(), emptyMap());
+    underTest.merge(file, ImmutableMap.of(1, 1), emptyMap(), emptyMap());
+    underTest.merge(file, ImmutableMap.of(2, 0), emptyMap(), emptyMap());
+
+    FileLineCoverage coverage = underTest.byFile(file.key());
+    assertThat(coverage.hitsData()).isEqualTo("1=2;2=0");
+    assertThat(coverage.hasConditions()).isFalse();
+    assertThat(coverage.conditionsData()).isNull();
+  }
+
+  @Test
+  public void keep_max_conditions_of_several_reports() {
+    underTest.merge(file, emptyMap(), ImmutableMap.of(2, 4), ImmutableMap.of(2, 1));
+    underTest.merge(file, emptyMap(), ImmutableMap.of(2, 2, 1, 2), ImmutableMap.of(2, 3, 1, 0));
+
+    FileLineCoverage coverage = underTest.byFile(file.key());
+    assertThat(coverage.hasHits()).isFalse();
+    assertThat(coverage.conditionsData()).isEqualTo("1=2;2=4");
+    assertThat(coverage.coveredConditionsData()).isEqualTo("1=0;2=3");
+  }
+
+  @Test
+  public void write_coverage_of_files_once_when_too_many_lines_in_memory() {
+    Storages storages = mock(Storages.class);
+    Storage<FileLineCoverage> storage = spy(caches.<FileLineCoverage>createCache("test"));
+    when(storages.<FileLineCoverage>createCache("lineCoverage")).thenReturn(storage);
+    underTest = new LineCoverageCache(storages, 15);
+    InputFile otherFile = new TestInputFileBuilder("foo", "src/Bar.php").setLines(10).build();
+
+    underTest.merge(file, ImmutableMap.of(1, 1), emptyMap(), emptyMap());
+    underTest.merge(file, ImmutableMap.of(1, 1), ImmutableMap.of(1, 2), emptyMap());
+    verify(storage, never()).put(anyString(), any(FileLineCoverage.class));
+
+    underTest.merge(otherFile, ImmutableMap.of(2, 1), emptyMap(), emptyMap());
+    verify(storage).put(eq(file.key()), any(FileLineCoverage.class));
+    verify(storage, never()).put(eq(otherFile.key()), any(FileLineCoverage.class));
+
+    // coverage which is not in memory anymore is loaded from storage
+    underTest.merge(file, ImmutableMap.of(1, 1), emptyMap(), emptyMap());
+    assertThat(underTest.byFile(file.key()).hitsData()).isEqualTo("1=3");
+    assertThat(underTest.byFile(file.key()).conditionsData()).isEqualTo("1=2");
+    assertThat(underTest.byFile(otherFile.key()).hitsData()).isEqualTo("2=1");
+    assertThat(underTest.contains(otherFile.key())).isTrue();
+  }
+}
@@ -37,6 +37,7 @@ import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.internal.SonarRuntimeImpl;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.utils.Version;
+import org.sonar.scanner.cache.AnalysisCache;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -59,6 +60,7 @@ public class DefaultSensorContextTest {
   private AnalysisMode analysisMode;
   private SonarRuntime runtime;
   private BranchConfiguration branchConfig;
+  private AnalysisCache analysisCache;
 
   @Before
   public void prepare() throws Exception {
@@ -69,10 +71,11 @@ public class DefaultSensorContextTest {
     when(metricFinder.<String>findByKey(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION_KEY)).thenReturn(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION);
     settings = new MapSettings();
     branchConfig = mock(BranchConfiguration.class);
+    analysisCache = mock(AnalysisCache.class);
     sensorStorage = mock(SensorStorage.class);
     analysisMode = mock(AnalysisMode.class);
     runtime = SonarRuntimeImpl.forSonarQube(Version.parse("5.5"), SonarQubeSide.SCANNER);
-    adaptor = new DefaultSensorContext(mock(InputModule.class), settings.asConfig(), settings, fs, activeRules, analysisMode, sensorStorage, runtime, branchConfig);
+    adaptor = new DefaultSensorContext(mock(InputModule.class), settings.asConfig(), settings, fs, activeRules, analysisMode, sensorStorage, runtime, branchConfig, analysisCache);
   }
 
   @Test
@@ -87,6 +90,13 @@ public class DefaultSensorContextTest {
     assertThat(adaptor.newMeasure()).isNotNull();
 
     assertThat(adaptor.isCancelled()).isFalse();
+    assertThat(adaptor.isAnalysisCacheEnabled()).isFalse();
+  }
+
+  @Test
+  public void shouldExposeAnalysisCacheStatus() {
+    when(analysisCache.isEnabled()).thenReturn(true);
+    assertThat(adaptor.isAnalysisCacheEnabled()).isTrue();
   }
 
   @Test
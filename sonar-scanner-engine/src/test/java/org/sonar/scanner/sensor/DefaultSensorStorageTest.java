@@ -33,6 +33,8 @@ import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.measure.MetricFinder;
+import org.sonar.api.batch.sensor.coverage.NewCoverage;
+import org.sonar.api.batch.sensor.coverage.internal.DefaultCoverage;
 import org.sonar.api.batch.sensor.highlighting.internal.DefaultHighlighting;
 import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
 import org.sonar.api.batch.sensor.symbol.internal.DefaultSymbolTable;
@@ -40,17 +42,24 @@ import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.utils.KeyValueFormat;
 import org.sonar.core.metric.ScannerMetrics;
+import org.sonar.scanner.cache.AnalysisCache;
+import org.sonar.scanner.cache.AnalysisCacheEntry.Section;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
 import org.sonar.scanner.issue.ModuleIssues;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.report.ReportPublisher;
 import org.sonar.scanner.repository.ContextPropertiesCache;
+import org.sonar.scanner.scan.measure.LineCoverageCache;
 import org.sonar.scanner.scan.measure.MeasureCache;
 
+import static java.util.Collections.emptyMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.data.MapEntry.entry;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DefaultSensorStorageTest {
@@ -65,21 +74,26 @@ public class DefaultSensorStorageTest {
   private MapSettings settings;
   private ModuleIssues moduleIssues;
   private MeasureCache measureCache;
+  private LineCoverageCache lineCoverageCache;
+  private MetricFinder metricFinder;
   private ContextPropertiesCache contextPropertiesCache = new ContextPropertiesCache();
+  private AnalysisCache analysisCache;
 
   @Before
   public void prepare() throws Exception {
-    MetricFinder metricFinder = mock(MetricFinder.class);
+    metricFinder = mock(MetricFinder.class);
     when(metricFinder.<Integer>findByKey(CoreMetrics.NCLOC_KEY)).thenReturn(CoreMetrics.NCLOC);
     when(metricFinder.<String>findByKey(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION_KEY)).thenReturn(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION);
     settings = new MapSettings();
     moduleIssues = mock(ModuleIssues.class);
     measureCache = mock(MeasureCache.class);
+    lineCoverageCache = mock(LineCoverageCache.class);
     ReportPublisher reportPublisher = mock(ReportPublisher.class);
     when(reportPublisher.getWriter()).thenReturn(new ScannerReportWriter(temp.newFolder()));
+    analysisCache = mock(AnalysisCache.class);
     underTest = new DefaultSensorStorage(metricFinder,
-      moduleIssues, settings.asConfig(), reportPublisher, measureCache,
-      mock(SonarCpdBlockIndex.class), contextPropertiesCache, new ScannerMetrics());
+      moduleIssues, settings.asConfig(), reportPublisher, measureCache, lineCoverageCache,
+      mock(SonarCpdBlockIndex.class), contextPropertiesCache, new ScannerMetrics(), analysisCache);
   }
 
   @Test
@@ -139,6 +153,33 @@ public class DefaultSensorStorageTest {
     underTest.store(h);
   }
 
+  @Test
+  public void overrideHighlightingRestoredFromCache() throws Exception {
+    InputFile inputFile = new TestInputFileBuilder("foo", "src/Foo.java")
+      .setModuleBaseDir(temp.newFolder().toPath()).build();
+    DefaultHighlighting h = new DefaultHighlighting(null)
+      .onFile(inputFile);
+    underTest.store(h);
+    when(analysisCache.replaceRestored(inputFile, Section.HIGHLIGHTING.name())).thenReturn(true, false);
+    underTest.store(h);
+
+    thrown.expect(UnsupportedOperationException.class);
+    underTest.store(h);
+  }
+
+  @Test
+  public void duplicateSymbolTableWhenOnlyHighlightingRestoredFromCache() throws Exception {
+    InputFile inputFile = new TestInputFileBuilder("foo", "src/Foo.java")
+      .setModuleBaseDir(temp.newFolder().toPath()).build();
+    DefaultSymbolTable st = new DefaultSymbolTable(null)
+      .onFile(inputFile);
+    underTest.store(st);
+    when(analysisCache.replaceRestored(inputFile, Section.HIGHLIGHTING.name())).thenReturn(true);
+
+    thrown.expect(UnsupportedOperationException.class);
+    underTest.store(st);
+  }
+
   @Test(expected = UnsupportedOperationException.class)
   public void duplicateSymbolTable() throws Exception {
     InputFile inputFile = new TestInputFileBuilder("foo", "src/Foo.java")
@@ -177,14 +218,33 @@ public class DefaultSensorStorageTest {
   }
 
   @Test
-  public void mergeCoverageLineMetrics_should_be_sorted() {
-    assertThat(DefaultSensorStorage.mergeCoverageLineMetric(CoreMetrics.COVERAGE_LINE_HITS_DATA, "1=1", "1=1")).isEqualTo("1=2");
-    assertThat(DefaultSensorStorage.mergeCoverageLineMetric(CoreMetrics.COVERAGE_LINE_HITS_DATA, "1=1", "2=1")).isEqualTo("1=1;2=1");
-    assertThat(DefaultSensorStorage.mergeCoverageLineMetric(CoreMetrics.COVERAGE_LINE_HITS_DATA, "2=1", "1=1")).isEqualTo("1=1;2=1");
-
-    assertThat(DefaultSensorStorage.mergeCoverageLineMetric(CoreMetrics.COVERED_CONDITIONS_BY_LINE, "1=1", "1=1")).isEqualTo("1=1");
-    assertThat(DefaultSensorStorage.mergeCoverageLineMetric(CoreMetrics.COVERED_CONDITIONS_BY_LINE, "1=1", "2=1")).isEqualTo("1=1;2=1");
-    assertThat(DefaultSensorStorage.mergeCoverageLineMetric(CoreMetrics.COVERED_CONDITIONS_BY_LINE, "2=1", "1=1")).isEqualTo("1=1;2=1");
+  public void store_line_coverage_in_line_coverage_cache() {
+    InputFile file = new TestInputFileBuilder("foo", "src/Foo.php").setLines(10).build();
+    NewCoverage coverage = new DefaultCoverage(underTest)
+      .onFile(file)
+      .lineHits(2, 1)
+      .lineHits(3, 0)
+      .conditions(2, 4, 3);
+
+    coverage.save();
+
+    verify(lineCoverageCache).merge(file, ImmutableMap.of(2, 1, 3, 0), ImmutableMap.of(2, 4), ImmutableMap.of(2, 3));
+    verify(measureCache).put(eq(file.key()), eq(CoreMetrics.LINES_TO_COVER_KEY), any(DefaultMeasure.class));
+    verify(measureCache, never()).put(eq(file.key()), eq(CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY), any(DefaultMeasure.class));
+  }
+
+  @Test
+  public void store_deprecated_line_coverage_measure_in_line_coverage_cache() {
+    InputFile file = new TestInputFileBuilder("foo", "src/Foo.php").setLines(10).build();
+    when(metricFinder.<String>findByKey(CoreMetrics.IT_COVERAGE_LINE_HITS_DATA_KEY)).thenReturn(CoreMetrics.IT_COVERAGE_LINE_HITS_DATA);
+    when(metricFinder.<String>findByKey(CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY)).thenReturn(CoreMetrics.COVERAGE_LINE_HITS_DATA);
+
+    underTest.store(new DefaultMeasure<String>()
+      .on(file)
+      .forMetric(CoreMetrics.IT_COVERAGE_LINE_HITS_DATA)
+      .withValue("1=2;4=0"));
+
+    verify(lineCoverageCache).merge(file, ImmutableMap.of(1, 2, 4, 0), emptyMap(), emptyMap());
   }
 
 }
@@ -0,0 +1,85 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.util;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.sonar.api.utils.WildcardPattern;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WildcardPatternTrieTest {
+
+  @Test
+  public void no_patterns_never_match() {
+    WildcardPatternTrie<String> underTest = new WildcardPatternTrie<>();
+
+    assertThat(underTest.isEmpty()).isTrue();
+    assertThat(underTest.matchesAny("src/Foo.java")).isFalse();
+    assertThat(underTest.match("src/Foo.java")).isEmpty();
+  }
+
+  @Test
+  public void return_values_of_matching_patterns_in_order_of_addition() {
+    WildcardPatternTrie<String> underTest = new WildcardPatternTrie<String>()
+      .add("src/main/**/*.java", "java")
+      .add("**/Foo.java", "foo")
+      .add("src/main/java/Foo.java", "plain")
+      .add("src/test/**", "test");
+
+    assertThat(underTest.isEmpty()).isFalse();
+    assertThat(underTest.match("src/main/java/Foo.java")).containsExactly("java", "foo", "plain");
+    assertThat(underTest.match("Foo.java")).containsExactly("foo");
+    assertThat(underTest.match("src/test/Foo.java")).containsExactly("foo", "test");
+    assertThat(underTest.match("src/test/Bar.java")).containsExactly("test");
+    assertThat(underTest.match("src/main/java/Bar.js")).isEmpty();
+    assertThat(underTest.matchesAny("src/test/Bar.java")).isTrue();
+    assertThat(underTest.matchesAny("src/main/java/Bar.js")).isFalse();
+  }
+
+  @Test
+  public void same_results_as_wildcard_patterns() {
+    List<String> patterns = Arrays.asList("**", "*", "**/*", "*.java", "**/*.java", "src/**", "src/**/*.java", "src/*/Foo.java", "src/**/Foo.java",
+      "src/main/java/Foo.java", "/src/main/java/Foo.java", "src\\main\\**\\*.java", "src/Fo?.java", "src/**Foo.java", "src/**/", "**/test/**",
+      "**/test/**/*Test.java", "src/main", "", "org.foo.Bar", "src/a+b(c)/*.java", "src/***/Foo.java");
+    List<String> paths = Arrays.asList("", "Foo.java", "/Foo.java", "src/Foo.java", "src/Foo.js", "src/main", "src/main/", "src/main/java/Foo.java",
+      "/src/main/java/Foo.java", "src/main/java/Bar.java", "src/main/java/foo/Foo.java", "src/test/java/FooTest.java", "src/a+b(c)/Foo.java",
+      "src\\main\\java\\Foo.java", "srcFoo.java", "org.foo.Bar", "test/Foo.java", "lib/test/Foo.java", "//src/Foo.java");
+    WildcardPatternTrie<String> underTest = new WildcardPatternTrie<>();
+    patterns.forEach(pattern -> underTest.add(pattern, pattern));
+
+    for (String path : paths) {
+      List<String> expected = patterns.stream().filter(pattern -> WildcardPattern.create(pattern).match(path)).collect(toList());
+      assertThat(underTest.match(path)).as(path).isEqualTo(expected);
+      assertThat(underTest.matchesAny(path)).as(path).isEqualTo(!expected.isEmpty());
+    }
+  }
+
+  @Test
+  public void requiredSuffix() {
+    assertThat(WildcardPatternTrie.requiredSuffix("**/*.java")).isEqualTo(".java");
+    assertThat(WildcardPatternTrie.requiredSuffix("src/**/Foo.java")).isEqualTo("Foo.java");
+    assertThat(WildcardPatternTrie.requiredSuffix("src\\*\\Foo.java")).isEqualTo("/Foo.java");
+    assertThat(WildcardPatternTrie.requiredSuffix("src/Fo?")).isEmpty();
+    assertThat(WildcardPatternTrie.requiredSuffix("src/**")).isEmpty();
+  }
+}
@@ -21,6 +21,9 @@ package org.sonarqube.ws.client;
 
 import java.io.IOException;
 import java.net.Proxy;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Map;
 import javax.annotation.Nullable;
 import javax.net.ssl.SSLSocketFactory;
@@ -35,6 +38,9 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -146,7 +152,7 @@ public class HttpConnector implements WsConnector {
         bodyBuilder.addFormDataPart(
           param.getKey(),
           part.getFile().getName(),
-          RequestBody.create(MediaType.parse(part.getMediaType()), part.getFile()));
+          toRequestBody(part));
       });
       body = bodyBuilder.build();
     }
@@ -156,6 +162,32 @@ public class HttpConnector implements WsConnector {
     return new OkHttpResponse(response);
   }
 
+  private static RequestBody toRequestBody(PostRequest.Part part) {
+    MediaType mediaType = MediaType.parse(part.getMediaType());
+    if (part.isWholeFile()) {
+      return RequestBody.create(mediaType, part.getFile());
+    }
+    return new RequestBody() {
+      @Override
+      public MediaType contentType() {
+        return mediaType;
+      }
+
+      @Override
+      public long contentLength() {
+        return part.getLength();
+      }
+
+      @Override
+      public void writeTo(BufferedSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(part.getFile().toPath(), StandardOpenOption.READ);
+          Source source = Okio.source(Channels.newInputStream(channel.position(part.getOffset())))) {
+          sink.write(source, part.getLength());
+        }
+      }
+    };
+  }
+
   private HttpUrl.Builder prepareUrlBuilder(WsRequest wsRequest) {
     String path = wsRequest.getPath();
     return baseUrl
@@ -51,10 +51,23 @@ public class PostRequest extends BaseRequest<PostRequest> {
   public static class Part {
     private final String mediaType;
     private final File file;
+    private final long offset;
+    private final long length;
 
     public Part(String mediaType, File file) {
+      this(mediaType, file, 0L, -1L);
+    }
+
+    /**
+     * Part made of the {@code length} bytes of the file starting at {@code offset}
+     *
+     * @since 6.6
+     */
+    public Part(String mediaType, File file, long offset, long length) {
       this.mediaType = mediaType;
       this.file = file;
+      this.offset = offset;
+      this.length = length;
     }
 
     public String getMediaType() {
@@ -64,6 +77,29 @@ public class PostRequest extends BaseRequest<PostRequest> {
     public File getFile() {
       return file;
     }
+
+    /**
+     * @since 6.6
+     */
+    public long getOffset() {
+      return offset;
+    }
+
+    /**
+     * Number of bytes of the part, or -1 if the part is the whole file
+     *
+     * @since 6.6
+     */
+    public long getLength() {
+      return length;
+    }
+
+    /**
+     * @since 6.6
+     */
+    public boolean isWholeFile() {
+      return length < 0;
+    }
   }
 
 }
@@ -23,20 +23,36 @@ import org.sonarqube.ws.WsCe;
 import org.sonarqube.ws.WsCe.ActivityResponse;
 import org.sonarqube.ws.WsCe.ProjectResponse;
 import org.sonarqube.ws.WsCe.TaskTypesWsResponse;
+import org.sonarqube.ws.WsCe.UploadResponse;
 import org.sonarqube.ws.WsCe.WorkerCountResponse;
 import org.sonarqube.ws.client.BaseService;
 import org.sonarqube.ws.client.GetRequest;
+import org.sonarqube.ws.client.PostRequest;
 import org.sonarqube.ws.client.WsConnector;
 
+import static org.sonarqube.ws.client.ce.CeWsParameters.ACTION_UPLOAD_CHUNK;
+import static org.sonarqube.ws.client.ce.CeWsParameters.ACTION_UPLOAD_COMMIT;
+import static org.sonarqube.ws.client.ce.CeWsParameters.ACTION_UPLOAD_START;
+import static org.sonarqube.ws.client.ce.CeWsParameters.ACTION_UPLOAD_STATUS;
 import static org.sonarqube.ws.client.ce.CeWsParameters.ACTION_WORKER_COUNT;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_ANALYSIS_CHARACTERISTIC;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNK;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNKS;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNK_CHECKSUM;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNK_INDEX;
 import static org.sonarqube.ws.client.ce.CeWsParameters.DEPRECATED_PARAM_COMPONENT_KEY;
 import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_COMPONENT;
 import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_COMPONENT_ID;
 import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_MAX_EXECUTED_AT;
 import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_MIN_SUBMITTED_AT;
 import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_ONLY_CURRENTS;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_ORGANIZATION;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_PROJECT_BRANCH;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_PROJECT_KEY;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_PROJECT_NAME;
 import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_STATUS;
 import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_TYPE;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_UPLOAD_ID;
 
 /**
  * Maps web service {@code api/ce} (Compute Engine).
@@ -97,6 +113,62 @@ public class CeService extends BaseService {
     return call(new GetRequest(path(ACTION_WORKER_COUNT)), WorkerCountResponse.parser());
   }
 
+  /**
+   * Starts a chunked upload of a scanner report. The report is submitted to the queue by {@link #uploadCommit(String, int)}.
+   *
+   * @since 6.6
+   */
+  public UploadResponse uploadStart(UploadStartWsRequest request) {
+    PostRequest post = new PostRequest(path(ACTION_UPLOAD_START))
+      .setParam(PARAM_ORGANIZATION, request.getOrganization())
+      .setParam(PARAM_PROJECT_KEY, request.getProjectKey())
+      .setParam(PARAM_PROJECT_BRANCH, request.getProjectBranch())
+      .setParam(PARAM_PROJECT_NAME, request.getProjectName());
+    request.getCharacteristics().forEach(characteristic -> post.setParam(PARAM_ANALYSIS_CHARACTERISTIC, characteristic));
+    return call(post, UploadResponse.parser());
+  }
+
+  /**
+   * Sends a chunk of the report. Chunks must be sent in order, starting from index 0.
+   *
+   * @param checksum SHA-256 of the chunk, in hexadecimal
+   * @since 6.6
+   */
+  public UploadResponse uploadChunk(String uploadId, int index, String checksum, PostRequest.Part chunk) {
+    return call(
+      new PostRequest(path(ACTION_UPLOAD_CHUNK))
+        .setParam(PARAM_UPLOAD_ID, uploadId)
+        .setParam(PARAM_CHUNK_INDEX, index)
+        .setParam(PARAM_CHUNK_CHECKSUM, checksum)
+        .setPart(PARAM_CHUNK, chunk),
+      UploadResponse.parser());
+  }
+
+  /**
+   * Gets the index of the next chunk expected by the server, in order to resume an interrupted upload.
+   *
+   * @since 6.6
+   */
+  public UploadResponse uploadStatus(String uploadId) {
+    return call(
+      new GetRequest(path(ACTION_UPLOAD_STATUS))
+        .setParam(PARAM_UPLOAD_ID, uploadId),
+      UploadResponse.parser());
+  }
+
+  /**
+   * Submits the uploaded report to the queue.
+   *
+   * @since 6.6
+   */
+  public WsCe.SubmitResponse uploadCommit(String uploadId, int chunks) {
+    return call(
+      new PostRequest(path(ACTION_UPLOAD_COMMIT))
+        .setParam(PARAM_UPLOAD_ID, uploadId)
+        .setParam(PARAM_CHUNKS, chunks),
+      WsCe.SubmitResponse.parser());
+  }
+
   public ProjectResponse component(String componentKey) {
     return call(
       new GetRequest(path("component"))
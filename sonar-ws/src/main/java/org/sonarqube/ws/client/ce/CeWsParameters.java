@@ -22,6 +22,10 @@ package org.sonarqube.ws.client.ce;
 public class CeWsParameters {
 
   public static final String ACTION_WORKER_COUNT = "worker_count";
+  public static final String ACTION_UPLOAD_START = "upload_start";
+  public static final String ACTION_UPLOAD_CHUNK = "upload_chunk";
+  public static final String ACTION_UPLOAD_STATUS = "upload_status";
+  public static final String ACTION_UPLOAD_COMMIT = "upload_commit";
 
   public static final String PARAM_COMPONENT_ID = "componentId";
   public static final String DEPRECATED_PARAM_COMPONENT_KEY = "componentKey";
@@ -33,6 +37,17 @@ public class CeWsParameters {
   public static final String PARAM_MIN_SUBMITTED_AT = "minSubmittedAt";
   public static final String PARAM_MAX_EXECUTED_AT = "maxExecutedAt";
 
+  public static final String PARAM_ORGANIZATION = "organization";
+  public static final String PARAM_PROJECT_KEY = "projectKey";
+  public static final String PARAM_PROJECT_BRANCH = "projectBranch";
+  public static final String PARAM_PROJECT_NAME = "projectName";
+  public static final String PARAM_ANALYSIS_CHARACTERISTIC = "characteristic";
+  public static final String PARAM_UPLOAD_ID = "uploadId";
+  public static final String PARAM_CHUNK = "chunk";
+  public static final String PARAM_CHUNK_INDEX = "index";
+  public static final String PARAM_CHUNK_CHECKSUM = "checksum";
+  public static final String PARAM_CHUNKS = "chunks";
+
   private CeWsParameters() {
     // prevent instantiation
   }
@@ -0,0 +1,120 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarqube.ws.client.ce;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * @since 6.6
+ */
+@Immutable
+public class UploadStartWsRequest {
+  private final String organization;
+  private final String projectKey;
+  private final String projectBranch;
+  private final String projectName;
+  private final List<String> characteristics;
+
+  private UploadStartWsRequest(Builder builder) {
+    this.organization = builder.organization;
+    this.projectKey = requireNonNull(builder.projectKey, "Project key is mandatory");
+    this.projectBranch = builder.projectBranch;
+    this.projectName = builder.projectName;
+    this.characteristics = Collections.unmodifiableList(new ArrayList<>(builder.characteristics));
+  }
+
+  @CheckForNull
+  public String getOrganization() {
+    return organization;
+  }
+
+  public String getProjectKey() {
+    return projectKey;
+  }
+
+  @CheckForNull
+  public String getProjectBranch() {
+    return projectBranch;
+  }
+
+  @CheckForNull
+  public String getProjectName() {
+    return projectName;
+  }
+
+  /**
+   * Characteristics of the analysis, with the format "key=value"
+   */
+  public List<String> getCharacteristics() {
+    return characteristics;
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+    private String organization;
+    private String projectKey;
+    private String projectBranch;
+    private String projectName;
+    private final List<String> characteristics = new ArrayList<>();
+
+    private Builder() {
+      // enforce newBuilder() use for instantiation
+    }
+
+    public Builder setOrganization(@Nullable String organization) {
+      this.organization = organization;
+      return this;
+    }
+
+    public Builder setProjectKey(String projectKey) {
+      this.projectKey = projectKey;
+      return this;
+    }
+
+    public Builder setProjectBranch(@Nullable String projectBranch) {
+      this.projectBranch = projectBranch;
+      return this;
+    }
+
+    public Builder setProjectName(@Nullable String projectName) {
+      this.projectName = projectName;
+      return this;
+    }
+
+    public Builder addCharacteristic(String key, String value) {
+      this.characteristics.add(key + "=" + value);
+      return this;
+    }
+
+    public UploadStartWsRequest build() {
+      return new UploadStartWsRequest(this);
+    }
+  }
+}
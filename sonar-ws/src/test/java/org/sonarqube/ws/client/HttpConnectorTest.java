@@ -358,6 +358,26 @@ public class HttpConnectorTest {
       .contains("the report content");
   }
 
+  @Test
+  public void upload_part_of_file() throws Exception {
+    answerHelloWorld();
+    File reportFile = temp.newFile();
+    FileUtils.write(reportFile, "the report content");
+    PostRequest request = new PostRequest("api/ce/upload_chunk")
+      .setPart("chunk", new PostRequest.Part(MediaTypes.TXT, reportFile, 4L, 6L));
+
+    underTest = HttpConnector.newBuilder().url(serverUrl).build();
+    underTest.call(request);
+
+    RecordedRequest recordedRequest = server.takeRequest();
+    String body = IOUtils.toString(recordedRequest.getBody().inputStream());
+    assertThat(body)
+      .contains("Content-Disposition: form-data; name=\"chunk\"")
+      .contains("Content-Length: 6")
+      .contains("\r\n\r\nreport\r\n")
+      .doesNotContain("the report content");
+  }
+
   @Test
   public void http_error() throws Exception {
     server.enqueue(new MockResponse().setResponseCode(404));
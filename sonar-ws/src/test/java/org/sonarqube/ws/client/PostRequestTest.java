@@ -56,5 +56,19 @@ public class PostRequestTest {
     PostRequest.Part part = request.getParts().get("report");
     assertThat(part.getMediaType()).isEqualTo(MediaTypes.JSON);
     assertThat(part.getFile()).isSameAs(reportFile);
+    assertThat(part.isWholeFile()).isTrue();
+  }
+
+  @Test
+  public void add_part_of_file() throws IOException {
+    PostRequest request = new PostRequest("api/ce/upload_chunk");
+    File reportFile = temp.newFile();
+    request.setPart("chunk", new PostRequest.Part(MediaTypes.ZIP, reportFile, 100L, 50L));
+
+    PostRequest.Part part = request.getParts().get("chunk");
+    assertThat(part.getFile()).isSameAs(reportFile);
+    assertThat(part.getOffset()).isEqualTo(100L);
+    assertThat(part.getLength()).isEqualTo(50L);
+    assertThat(part.isWholeFile()).isFalse();
   }
 }
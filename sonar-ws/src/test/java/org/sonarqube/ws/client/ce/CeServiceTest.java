@@ -20,24 +20,37 @@
 package org.sonarqube.ws.client.ce;
 
 import com.google.common.collect.ImmutableList;
+import java.io.File;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonarqube.ws.WsCe;
 import org.sonarqube.ws.WsCe.ActivityResponse;
 import org.sonarqube.ws.client.GetRequest;
+import org.sonarqube.ws.client.PostRequest;
 import org.sonarqube.ws.client.ServiceTester;
 import org.sonarqube.ws.client.WsConnector;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.data.MapEntry.entry;
 import static org.mockito.Mockito.mock;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_ANALYSIS_CHARACTERISTIC;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNK;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNKS;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNK_CHECKSUM;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_CHUNK_INDEX;
 import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_COMPONENT;
 import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_COMPONENT_ID;
 import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_MAX_EXECUTED_AT;
 import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_MIN_SUBMITTED_AT;
 import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_ONLY_CURRENTS;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_ORGANIZATION;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_PROJECT_BRANCH;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_PROJECT_KEY;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_PROJECT_NAME;
 import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_STATUS;
 import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_TYPE;
+import static org.sonarqube.ws.client.ce.CeWsParameters.PARAM_UPLOAD_ID;
 
 public class CeServiceTest {
   private static final String VALUE_COMPONENT_ID = "component-uuid";
@@ -154,4 +167,69 @@ public class CeServiceTest {
       .hasParam(PARAM_COMPONENT, "my_component")
       .andNoOtherParam();
   }
+
+  @Test
+  public void upload_start() {
+    underTest.uploadStart(UploadStartWsRequest.newBuilder()
+      .setOrganization("my-org")
+      .setProjectKey("my_project")
+      .setProjectBranch("branch-1.x")
+      .setProjectName("My Project")
+      .addCharacteristic("branch", "feature")
+      .addCharacteristic("branchType", "SHORT")
+      .build());
+    PostRequest result = serviceTester.getPostRequest();
+
+    assertThat(serviceTester.getPostParser()).isSameAs(WsCe.UploadResponse.parser());
+    serviceTester.assertThat(result)
+      .hasPath("upload_start")
+      .hasParam(PARAM_ORGANIZATION, "my-org")
+      .hasParam(PARAM_PROJECT_KEY, "my_project")
+      .hasParam(PARAM_PROJECT_BRANCH, "branch-1.x")
+      .hasParam(PARAM_PROJECT_NAME, "My Project")
+      .hasParam(PARAM_ANALYSIS_CHARACTERISTIC, asList("branch=feature", "branchType=SHORT"))
+      .andNoOtherParam();
+  }
+
+  @Test
+  public void upload_chunk() {
+    PostRequest.Part chunk = new PostRequest.Part("application/zip", new File("report.zip"), 10L, 20L);
+
+    underTest.uploadChunk("upload_id", 2, "the_checksum", chunk);
+    PostRequest result = serviceTester.getPostRequest();
+
+    assertThat(serviceTester.getPostParser()).isSameAs(WsCe.UploadResponse.parser());
+    serviceTester.assertThat(result)
+      .hasPath("upload_chunk")
+      .hasParam(PARAM_UPLOAD_ID, "upload_id")
+      .hasParam(PARAM_CHUNK_INDEX, 2)
+      .hasParam(PARAM_CHUNK_CHECKSUM, "the_checksum")
+      .andNoOtherParam();
+    assertThat(result.getParts()).containsOnly(entry(PARAM_CHUNK, chunk));
+  }
+
+  @Test
+  public void upload_status() {
+    underTest.uploadStatus("upload_id");
+    GetRequest result = serviceTester.getGetRequest();
+
+    assertThat(serviceTester.getGetParser()).isSameAs(WsCe.UploadResponse.parser());
+    serviceTester.assertThat(result)
+      .hasPath("upload_status")
+      .hasParam(PARAM_UPLOAD_ID, "upload_id")
+      .andNoOtherParam();
+  }
+
+  @Test
+  public void upload_commit() {
+    underTest.uploadCommit("upload_id", 3);
+    PostRequest result = serviceTester.getPostRequest();
+
+    assertThat(serviceTester.getPostParser()).isSameAs(WsCe.SubmitResponse.parser());
+    serviceTester.assertThat(result)
+      .hasPath("upload_commit")
+      .hasParam(PARAM_UPLOAD_ID, "upload_id")
+      .hasParam(PARAM_CHUNKS, 3)
+      .andNoOtherParam();
+  }
 }